@@ -32,6 +32,10 @@ import org.elasticsearch.action.admin.cluster.node.shutdown.NodesShutdownAction;
 import org.elasticsearch.action.admin.cluster.node.shutdown.TransportNodesShutdownAction;
 import org.elasticsearch.action.admin.cluster.node.stats.NodesStatsAction;
 import org.elasticsearch.action.admin.cluster.node.stats.TransportNodesStatsAction;
+import org.elasticsearch.action.admin.cluster.node.tasks.CancelSearchTaskAction;
+import org.elasticsearch.action.admin.cluster.node.tasks.ListSearchTasksAction;
+import org.elasticsearch.action.admin.cluster.node.tasks.TransportCancelSearchTaskAction;
+import org.elasticsearch.action.admin.cluster.node.tasks.TransportListSearchTasksAction;
 import org.elasticsearch.action.admin.cluster.repositories.delete.DeleteRepositoryAction;
 import org.elasticsearch.action.admin.cluster.repositories.delete.TransportDeleteRepositoryAction;
 import org.elasticsearch.action.admin.cluster.repositories.get.GetRepositoriesAction;
@@ -200,6 +204,8 @@ public class ActionModule extends AbstractModule {
         registerAction(NodesShutdownAction.INSTANCE, TransportNodesShutdownAction.class);
         registerAction(NodesRestartAction.INSTANCE, TransportNodesRestartAction.class);
         registerAction(NodesHotThreadsAction.INSTANCE, TransportNodesHotThreadsAction.class);
+        registerAction(ListSearchTasksAction.INSTANCE, TransportListSearchTasksAction.class);
+        registerAction(CancelSearchTaskAction.INSTANCE, TransportCancelSearchTaskAction.class);
 
         registerAction(ClusterStatsAction.INSTANCE, TransportClusterStatsAction.class);
         registerAction(ClusterStateAction.INSTANCE, TransportClusterStateAction.class);
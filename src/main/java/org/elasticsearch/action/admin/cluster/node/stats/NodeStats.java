@@ -19,15 +19,20 @@
 
 package org.elasticsearch.action.admin.cluster.node.stats;
 
+import org.elasticsearch.Version;
 import org.elasticsearch.action.support.nodes.NodeOperationResponse;
 import org.elasticsearch.cluster.node.DiscoveryNode;
+import org.elasticsearch.cluster.routing.operation.AdaptiveSelectionStats;
 import org.elasticsearch.common.Nullable;
+import org.elasticsearch.common.breaker.MemoryCircuitBreaker;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.xcontent.ToXContent;
 import org.elasticsearch.common.xcontent.XContentBuilder;
 import org.elasticsearch.http.HttpStats;
 import org.elasticsearch.indices.NodeIndicesStats;
+import org.elasticsearch.indices.fielddata.breaker.AllCircuitBreakerStats;
+import org.elasticsearch.indices.fielddata.breaker.CircuitBreakerStats;
 import org.elasticsearch.indices.fielddata.breaker.FieldDataBreakerStats;
 import org.elasticsearch.monitor.fs.FsStats;
 import org.elasticsearch.monitor.jvm.JvmStats;
@@ -75,7 +80,10 @@ public class NodeStats extends NodeOperationResponse implements ToXContent {
     private HttpStats http;
 
     @Nullable
-    private FieldDataBreakerStats breaker;
+    private AllCircuitBreakerStats breaker;
+
+    @Nullable
+    private AdaptiveSelectionStats adaptiveSelection;
 
     NodeStats() {
     }
@@ -83,7 +91,7 @@ public class NodeStats extends NodeOperationResponse implements ToXContent {
     public NodeStats(DiscoveryNode node, long timestamp, @Nullable NodeIndicesStats indices,
                      @Nullable OsStats os, @Nullable ProcessStats process, @Nullable JvmStats jvm, @Nullable ThreadPoolStats threadPool,
                      @Nullable NetworkStats network, @Nullable FsStats fs, @Nullable TransportStats transport, @Nullable HttpStats http,
-                     @Nullable FieldDataBreakerStats breaker) {
+                     @Nullable AllCircuitBreakerStats breaker, @Nullable AdaptiveSelectionStats adaptiveSelection) {
         super(node);
         this.timestamp = timestamp;
         this.indices = indices;
@@ -96,6 +104,7 @@ public class NodeStats extends NodeOperationResponse implements ToXContent {
         this.transport = transport;
         this.http = http;
         this.breaker = breaker;
+        this.adaptiveSelection = adaptiveSelection;
     }
 
     public long getTimestamp() {
@@ -174,10 +183,18 @@ public class NodeStats extends NodeOperationResponse implements ToXContent {
     }
 
     @Nullable
-    public FieldDataBreakerStats getBreaker() {
+    public AllCircuitBreakerStats getBreaker() {
         return this.breaker;
     }
 
+    /**
+     * The statistics the node collected about the other nodes for adaptive replica selection.
+     */
+    @Nullable
+    public AdaptiveSelectionStats getAdaptiveSelection() {
+        return this.adaptiveSelection;
+    }
+
     public static NodeStats readNodeStats(StreamInput in) throws IOException {
         NodeStats nodeInfo = new NodeStats();
         nodeInfo.readFrom(in);
@@ -215,7 +232,20 @@ public class NodeStats extends NodeOperationResponse implements ToXContent {
         if (in.readBoolean()) {
             http = HttpStats.readHttpStats(in);
         }
-        breaker = FieldDataBreakerStats.readOptionalCircuitBreakerStats(in);
+        if (in.getVersion().onOrAfter(Version.V_2_0_0)) {
+            breaker = AllCircuitBreakerStats.readOptionalAllCircuitBreakerStats(in);
+        } else {
+            FieldDataBreakerStats fieldDataBreakerStats = FieldDataBreakerStats.readOptionalCircuitBreakerStats(in);
+            if (fieldDataBreakerStats != null) {
+                breaker = new AllCircuitBreakerStats(new CircuitBreakerStats[] {
+                        new CircuitBreakerStats(MemoryCircuitBreaker.FIELDDATA, fieldDataBreakerStats.getMaximum(),
+                                fieldDataBreakerStats.getEstimated(), fieldDataBreakerStats.getOverhead(), 0)
+                });
+            }
+        }
+        if (in.getVersion().onOrAfter(Version.V_2_0_0)) {
+            adaptiveSelection = AdaptiveSelectionStats.readOptionalAdaptiveSelectionStats(in);
+        }
     }
 
     @Override
@@ -276,7 +306,16 @@ public class NodeStats extends NodeOperationResponse implements ToXContent {
             out.writeBoolean(true);
             http.writeTo(out);
         }
-        out.writeOptionalStreamable(breaker);
+        if (out.getVersion().onOrAfter(Version.V_2_0_0)) {
+            out.writeOptionalStreamable(breaker);
+        } else {
+            CircuitBreakerStats fieldDataBreakerStats = breaker == null ? null : breaker.getStats(MemoryCircuitBreaker.FIELDDATA);
+            out.writeOptionalStreamable(fieldDataBreakerStats == null ? null : new FieldDataBreakerStats(fieldDataBreakerStats.getLimit(),
+                    fieldDataBreakerStats.getEstimated(), fieldDataBreakerStats.getOverhead()));
+        }
+        if (out.getVersion().onOrAfter(Version.V_2_0_0)) {
+            out.writeOptionalStreamable(adaptiveSelection);
+        }
     }
 
     @Override
@@ -327,6 +366,9 @@ public class NodeStats extends NodeOperationResponse implements ToXContent {
         if (getBreaker() != null) {
             getBreaker().toXContent(builder, params);
         }
+        if (getAdaptiveSelection() != null) {
+            getAdaptiveSelection().toXContent(builder, params);
+        }
 
         return builder;
     }
@@ -19,6 +19,7 @@
 
 package org.elasticsearch.action.admin.cluster.node.stats;
 
+import org.elasticsearch.Version;
 import org.elasticsearch.action.admin.indices.stats.CommonStatsFlags;
 import org.elasticsearch.action.support.nodes.NodesOperationRequest;
 import org.elasticsearch.common.io.stream.StreamInput;
@@ -41,6 +42,7 @@ public class NodesStatsRequest extends NodesOperationRequest<NodesStatsRequest>
     private boolean transport;
     private boolean http;
     private boolean breaker;
+    private boolean adaptiveSelection;
 
     protected NodesStatsRequest() {
     }
@@ -67,6 +69,7 @@ public class NodesStatsRequest extends NodesOperationRequest<NodesStatsRequest>
         this.transport = true;
         this.http = true;
         this.breaker = true;
+        this.adaptiveSelection = true;
         return this;
     }
 
@@ -84,6 +87,7 @@ public class NodesStatsRequest extends NodesOperationRequest<NodesStatsRequest>
         this.transport = false;
         this.http = false;
         this.breaker = false;
+        this.adaptiveSelection = false;
         return this;
     }
 
@@ -240,6 +244,18 @@ public class NodesStatsRequest extends NodesOperationRequest<NodesStatsRequest>
         return this;
     }
 
+    public boolean adaptiveSelection() {
+        return this.adaptiveSelection;
+    }
+
+    /**
+     * Should the statistics the node collected about the other nodes for adaptive replica selection be returned.
+     */
+    public NodesStatsRequest adaptiveSelection(boolean adaptiveSelection) {
+        this.adaptiveSelection = adaptiveSelection;
+        return this;
+    }
+
     @Override
     public void readFrom(StreamInput in) throws IOException {
         super.readFrom(in);
@@ -253,6 +269,9 @@ public class NodesStatsRequest extends NodesOperationRequest<NodesStatsRequest>
         transport = in.readBoolean();
         http = in.readBoolean();
         breaker = in.readBoolean();
+        if (in.getVersion().onOrAfter(Version.V_2_0_0)) {
+            adaptiveSelection = in.readBoolean();
+        }
     }
 
     @Override
@@ -268,6 +287,9 @@ public class NodesStatsRequest extends NodesOperationRequest<NodesStatsRequest>
         out.writeBoolean(transport);
         out.writeBoolean(http);
         out.writeBoolean(breaker);
+        if (out.getVersion().onOrAfter(Version.V_2_0_0)) {
+            out.writeBoolean(adaptiveSelection);
+        }
     }
 
 }
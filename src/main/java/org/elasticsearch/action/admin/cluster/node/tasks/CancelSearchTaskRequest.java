@@ -0,0 +1,88 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.action.admin.cluster.node.tasks;
+
+import org.elasticsearch.ElasticsearchIllegalArgumentException;
+import org.elasticsearch.action.ActionRequestValidationException;
+import org.elasticsearch.action.support.nodes.NodesOperationRequest;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.search.task.SearchTaskManager;
+
+import java.io.IOException;
+
+import static org.elasticsearch.action.ValidateActions.addValidationError;
+
+/**
+ * A request to cancel a search task, identified by its full id (<tt>node_id:id</tt>). The request is sent to the node
+ * coordinating the task only.
+ */
+public class CancelSearchTaskRequest extends NodesOperationRequest<CancelSearchTaskRequest> {
+
+    private String taskId;
+
+    CancelSearchTaskRequest() {
+    }
+
+    public CancelSearchTaskRequest(String taskId) {
+        taskId(taskId);
+    }
+
+    public CancelSearchTaskRequest taskId(String taskId) {
+        this.taskId = taskId;
+        try {
+            nodesIds(SearchTaskManager.parseFullId(taskId).v1());
+        } catch (ElasticsearchIllegalArgumentException e) {
+            // reported by validate
+        }
+        return this;
+    }
+
+    public String taskId() {
+        return taskId;
+    }
+
+    @Override
+    public ActionRequestValidationException validate() {
+        ActionRequestValidationException validationException = super.validate();
+        if (taskId == null) {
+            validationException = addValidationError("task id is missing", validationException);
+        } else {
+            try {
+                SearchTaskManager.parseFullId(taskId);
+            } catch (ElasticsearchIllegalArgumentException e) {
+                validationException = addValidationError(e.getMessage(), validationException);
+            }
+        }
+        return validationException;
+    }
+
+    @Override
+    public void readFrom(StreamInput in) throws IOException {
+        super.readFrom(in);
+        taskId = in.readString();
+    }
+
+    @Override
+    public void writeTo(StreamOutput out) throws IOException {
+        super.writeTo(out);
+        out.writeString(taskId);
+    }
+}
@@ -0,0 +1,47 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.action.admin.cluster.node.tasks;
+
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.support.nodes.NodesOperationRequestBuilder;
+import org.elasticsearch.client.ClusterAdminClient;
+import org.elasticsearch.client.internal.InternalClusterAdminClient;
+
+/**
+ */
+public class CancelSearchTaskRequestBuilder extends NodesOperationRequestBuilder<CancelSearchTaskRequest, SearchTasksResponse, CancelSearchTaskRequestBuilder> {
+
+    public CancelSearchTaskRequestBuilder(ClusterAdminClient clusterClient) {
+        super((InternalClusterAdminClient) clusterClient, new CancelSearchTaskRequest());
+    }
+
+    /**
+     * The full id of the search task to cancel, <tt>node_id:id</tt>.
+     */
+    public CancelSearchTaskRequestBuilder setTaskId(String taskId) {
+        request.taskId(taskId);
+        return this;
+    }
+
+    @Override
+    protected void doExecute(ActionListener<SearchTasksResponse> listener) {
+        ((ClusterAdminClient) client).cancelSearchTask(request, listener);
+    }
+}
@@ -0,0 +1,46 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.action.admin.cluster.node.tasks;
+
+import org.elasticsearch.action.admin.cluster.ClusterAction;
+import org.elasticsearch.client.ClusterAdminClient;
+
+/**
+ * Lists the searches in flight on the nodes of the cluster.
+ */
+public class ListSearchTasksAction extends ClusterAction<ListSearchTasksRequest, SearchTasksResponse, ListSearchTasksRequestBuilder> {
+
+    public static final ListSearchTasksAction INSTANCE = new ListSearchTasksAction();
+    public static final String NAME = "cluster/nodes/search_tasks/list";
+
+    private ListSearchTasksAction() {
+        super(NAME);
+    }
+
+    @Override
+    public SearchTasksResponse newResponse() {
+        return new SearchTasksResponse();
+    }
+
+    @Override
+    public ListSearchTasksRequestBuilder newRequestBuilder(ClusterAdminClient client) {
+        return new ListSearchTasksRequestBuilder(client);
+    }
+}
@@ -0,0 +1,47 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.action.admin.cluster.node.tasks;
+
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.support.nodes.NodesOperationRequestBuilder;
+import org.elasticsearch.client.ClusterAdminClient;
+import org.elasticsearch.client.internal.InternalClusterAdminClient;
+
+/**
+ */
+public class ListSearchTasksRequestBuilder extends NodesOperationRequestBuilder<ListSearchTasksRequest, SearchTasksResponse, ListSearchTasksRequestBuilder> {
+
+    public ListSearchTasksRequestBuilder(ClusterAdminClient clusterClient) {
+        super((InternalClusterAdminClient) clusterClient, new ListSearchTasksRequest());
+    }
+
+    /**
+     * Should the searches of the shards be listed along with the search tasks. Defaults to <tt>true</tt>.
+     */
+    public ListSearchTasksRequestBuilder setShards(boolean shards) {
+        request.shards(shards);
+        return this;
+    }
+
+    @Override
+    protected void doExecute(ActionListener<SearchTasksResponse> listener) {
+        ((ClusterAdminClient) client).listSearchTasks(request, listener);
+    }
+}
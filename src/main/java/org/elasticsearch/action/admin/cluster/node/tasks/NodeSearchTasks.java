@@ -0,0 +1,94 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.action.admin.cluster.node.tasks;
+
+import org.elasticsearch.action.support.nodes.NodeOperationResponse;
+import org.elasticsearch.cluster.node.DiscoveryNode;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.xcontent.ToXContent;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentBuilderString;
+import org.elasticsearch.search.task.SearchTaskInfo;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The searches in flight on a node: the search tasks it coordinates and the searches of its shards.
+ */
+public class NodeSearchTasks extends NodeOperationResponse implements ToXContent {
+
+    private List<SearchTaskInfo> tasks;
+
+    NodeSearchTasks() {
+    }
+
+    public NodeSearchTasks(DiscoveryNode node, List<SearchTaskInfo> tasks) {
+        super(node);
+        this.tasks = tasks;
+    }
+
+    public List<SearchTaskInfo> getTasks() {
+        return tasks;
+    }
+
+    public static NodeSearchTasks readNodeSearchTasks(StreamInput in) throws IOException {
+        NodeSearchTasks node = new NodeSearchTasks();
+        node.readFrom(in);
+        return node;
+    }
+
+    @Override
+    public void readFrom(StreamInput in) throws IOException {
+        super.readFrom(in);
+        int size = in.readVInt();
+        tasks = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            tasks.add(SearchTaskInfo.readSearchTaskInfo(in));
+        }
+    }
+
+    @Override
+    public void writeTo(StreamOutput out) throws IOException {
+        super.writeTo(out);
+        out.writeVInt(tasks.size());
+        for (SearchTaskInfo task : tasks) {
+            task.writeTo(out);
+        }
+    }
+
+    @Override
+    public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
+        builder.field(Fields.NAME, getNode().name(), XContentBuilder.FieldCaseConversion.NONE);
+        builder.startArray(Fields.TASKS);
+        for (SearchTaskInfo task : tasks) {
+            task.toXContent(builder, params);
+        }
+        builder.endArray();
+        return builder;
+    }
+
+    static final class Fields {
+        static final XContentBuilderString NAME = new XContentBuilderString("name");
+        static final XContentBuilderString TASKS = new XContentBuilderString("tasks");
+    }
+}
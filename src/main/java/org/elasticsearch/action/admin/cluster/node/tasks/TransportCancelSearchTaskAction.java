@@ -0,0 +1,154 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.action.admin.cluster.node.tasks;
+
+import com.google.common.collect.Lists;
+import org.elasticsearch.ElasticsearchException;
+import org.elasticsearch.action.support.nodes.NodeOperationRequest;
+import org.elasticsearch.action.support.nodes.TransportNodesOperationAction;
+import org.elasticsearch.cluster.ClusterName;
+import org.elasticsearch.cluster.ClusterService;
+import org.elasticsearch.cluster.node.DiscoveryNode;
+import org.elasticsearch.cluster.node.DiscoveryNodes;
+import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.search.action.SearchServiceTransportAction;
+import org.elasticsearch.search.task.SearchTask;
+import org.elasticsearch.search.task.SearchTaskInfo;
+import org.elasticsearch.search.task.SearchTaskManager;
+import org.elasticsearch.threadpool.ThreadPool;
+import org.elasticsearch.transport.TransportService;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Cancels a search task on the node coordinating it, then asks every node the task sent shard requests to to cancel
+ * the searches of the task. The response holds the cancelled task, or no task if it was already done.
+ */
+public class TransportCancelSearchTaskAction extends TransportNodesOperationAction<CancelSearchTaskRequest, SearchTasksResponse, TransportCancelSearchTaskAction.NodeRequest, NodeSearchTasks> {
+
+    private final SearchTaskManager taskManager;
+
+    private final SearchServiceTransportAction searchServiceTransportAction;
+
+    @Inject
+    public TransportCancelSearchTaskAction(Settings settings, ClusterName clusterName, ThreadPool threadPool,
+                                           ClusterService clusterService, TransportService transportService,
+                                           SearchTaskManager taskManager, SearchServiceTransportAction searchServiceTransportAction) {
+        super(settings, clusterName, threadPool, clusterService, transportService);
+        this.taskManager = taskManager;
+        this.searchServiceTransportAction = searchServiceTransportAction;
+    }
+
+    @Override
+    protected String executor() {
+        return ThreadPool.Names.MANAGEMENT;
+    }
+
+    @Override
+    protected String transportAction() {
+        return CancelSearchTaskAction.NAME;
+    }
+
+    @Override
+    protected SearchTasksResponse newResponse(CancelSearchTaskRequest request, AtomicReferenceArray responses) {
+        final List<NodeSearchTasks> nodes = Lists.newArrayList();
+        for (int i = 0; i < responses.length(); i++) {
+            Object resp = responses.get(i);
+            if (resp instanceof NodeSearchTasks) {
+                nodes.add((NodeSearchTasks) resp);
+            }
+        }
+        return new SearchTasksResponse(clusterName, nodes.toArray(new NodeSearchTasks[nodes.size()]));
+    }
+
+    @Override
+    protected CancelSearchTaskRequest newRequest() {
+        return new CancelSearchTaskRequest();
+    }
+
+    @Override
+    protected NodeRequest newNodeRequest() {
+        return new NodeRequest();
+    }
+
+    @Override
+    protected NodeRequest newNodeRequest(String nodeId, CancelSearchTaskRequest request) {
+        return new NodeRequest(nodeId, request);
+    }
+
+    @Override
+    protected NodeSearchTasks newNodeResponse() {
+        return new NodeSearchTasks();
+    }
+
+    @Override
+    protected NodeSearchTasks nodeOperation(NodeRequest request) throws ElasticsearchException {
+        final long id = SearchTaskManager.parseFullId(request.request.taskId()).v2();
+        final SearchTask task = taskManager.cancel(id);
+        if (task == null) {
+            return new NodeSearchTasks(clusterService.localNode(), Collections.<SearchTaskInfo>emptyList());
+        }
+        final DiscoveryNodes nodes = clusterService.state().nodes();
+        for (String nodeId : task.nodes()) {
+            DiscoveryNode node = nodes.get(nodeId);
+            if (node != null) {
+                searchServiceTransportAction.sendCancelSearch(node, task.fullId(), request);
+            }
+        }
+        return new NodeSearchTasks(clusterService.localNode(), Collections.singletonList(task.info()));
+    }
+
+    @Override
+    protected boolean accumulateExceptions() {
+        return false;
+    }
+
+    static class NodeRequest extends NodeOperationRequest {
+
+        CancelSearchTaskRequest request;
+
+        NodeRequest() {
+        }
+
+        NodeRequest(String nodeId, CancelSearchTaskRequest request) {
+            super(request, nodeId);
+            this.request = request;
+        }
+
+        @Override
+        public void readFrom(StreamInput in) throws IOException {
+            super.readFrom(in);
+            request = new CancelSearchTaskRequest();
+            request.readFrom(in);
+        }
+
+        @Override
+        public void writeTo(StreamOutput out) throws IOException {
+            super.writeTo(out);
+            request.writeTo(out);
+        }
+    }
+}
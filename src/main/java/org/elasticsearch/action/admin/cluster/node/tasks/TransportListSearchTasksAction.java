@@ -0,0 +1,146 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.action.admin.cluster.node.tasks;
+
+import com.google.common.collect.Lists;
+import org.elasticsearch.ElasticsearchException;
+import org.elasticsearch.action.support.nodes.NodeOperationRequest;
+import org.elasticsearch.action.support.nodes.TransportNodesOperationAction;
+import org.elasticsearch.cluster.ClusterName;
+import org.elasticsearch.cluster.ClusterService;
+import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.search.SearchService;
+import org.elasticsearch.search.task.SearchTask;
+import org.elasticsearch.search.task.SearchTaskInfo;
+import org.elasticsearch.search.task.SearchTaskManager;
+import org.elasticsearch.threadpool.ThreadPool;
+import org.elasticsearch.transport.TransportService;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ *
+ */
+public class TransportListSearchTasksAction extends TransportNodesOperationAction<ListSearchTasksRequest, SearchTasksResponse, TransportListSearchTasksAction.NodeRequest, NodeSearchTasks> {
+
+    private final SearchTaskManager taskManager;
+
+    private final SearchService searchService;
+
+    @Inject
+    public TransportListSearchTasksAction(Settings settings, ClusterName clusterName, ThreadPool threadPool,
+                                          ClusterService clusterService, TransportService transportService,
+                                          SearchTaskManager taskManager, SearchService searchService) {
+        super(settings, clusterName, threadPool, clusterService, transportService);
+        this.taskManager = taskManager;
+        this.searchService = searchService;
+    }
+
+    @Override
+    protected String executor() {
+        return ThreadPool.Names.MANAGEMENT;
+    }
+
+    @Override
+    protected String transportAction() {
+        return ListSearchTasksAction.NAME;
+    }
+
+    @Override
+    protected SearchTasksResponse newResponse(ListSearchTasksRequest request, AtomicReferenceArray responses) {
+        final List<NodeSearchTasks> nodes = Lists.newArrayList();
+        for (int i = 0; i < responses.length(); i++) {
+            Object resp = responses.get(i);
+            if (resp instanceof NodeSearchTasks) {
+                nodes.add((NodeSearchTasks) resp);
+            }
+        }
+        return new SearchTasksResponse(clusterName, nodes.toArray(new NodeSearchTasks[nodes.size()]));
+    }
+
+    @Override
+    protected ListSearchTasksRequest newRequest() {
+        return new ListSearchTasksRequest();
+    }
+
+    @Override
+    protected NodeRequest newNodeRequest() {
+        return new NodeRequest();
+    }
+
+    @Override
+    protected NodeRequest newNodeRequest(String nodeId, ListSearchTasksRequest request) {
+        return new NodeRequest(nodeId, request);
+    }
+
+    @Override
+    protected NodeSearchTasks newNodeResponse() {
+        return new NodeSearchTasks();
+    }
+
+    @Override
+    protected NodeSearchTasks nodeOperation(NodeRequest request) throws ElasticsearchException {
+        List<SearchTaskInfo> tasks = new ArrayList<>();
+        for (SearchTask task : taskManager.tasks()) {
+            tasks.add(task.info());
+        }
+        if (request.request.shards()) {
+            tasks.addAll(searchService.shardSearchTasks());
+        }
+        return new NodeSearchTasks(clusterService.localNode(), tasks);
+    }
+
+    @Override
+    protected boolean accumulateExceptions() {
+        return false;
+    }
+
+    static class NodeRequest extends NodeOperationRequest {
+
+        ListSearchTasksRequest request;
+
+        NodeRequest() {
+        }
+
+        NodeRequest(String nodeId, ListSearchTasksRequest request) {
+            super(request, nodeId);
+            this.request = request;
+        }
+
+        @Override
+        public void readFrom(StreamInput in) throws IOException {
+            super.readFrom(in);
+            request = new ListSearchTasksRequest();
+            request.readFrom(in);
+        }
+
+        @Override
+        public void writeTo(StreamOutput out) throws IOException {
+            super.writeTo(out);
+            request.writeTo(out);
+        }
+    }
+}
@@ -19,6 +19,7 @@
 
 package org.elasticsearch.action.bulk;
 
+import com.carrotsearch.hppc.IntArrayList;
 import com.google.common.collect.Sets;
 import org.elasticsearch.ElasticsearchException;
 import org.elasticsearch.ElasticsearchIllegalStateException;
@@ -62,6 +63,8 @@ import org.elasticsearch.threadpool.ThreadPool;
 import org.elasticsearch.transport.TransportRequestOptions;
 import org.elasticsearch.transport.TransportService;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -144,6 +147,9 @@ public class TransportShardBulkAction extends TransportShardReplicationOperation
         BulkItemResponse[] responses = new BulkItemResponse[request.items().length];
         long[] preVersions = new long[request.items().length];
         VersionType[] preVersionTypes = new VersionType[request.items().length];
+        // consecutive index and delete items are applied to the engine as a single bulk
+        final IntArrayList pendingIndices = new IntArrayList();
+        final List<Engine.Operation> pendingOps = new ArrayList<>();
         for (int requestIndex = 0; requestIndex < request.items().length; requestIndex++) {
             BulkItemRequest item = request.items()[requestIndex];
             if (item.request() instanceof IndexRequest) {
@@ -151,78 +157,28 @@ public class TransportShardBulkAction extends TransportShardReplicationOperation
                 preVersions[requestIndex] = indexRequest.version();
                 preVersionTypes[requestIndex] = indexRequest.versionType();
                 try {
-                    try {
-                        WriteResult result = shardIndexOperation(request, indexRequest, clusterState, indexShard, true);
-                        // add the response
-                        IndexResponse indexResponse = result.response();
-                        responses[requestIndex] = new BulkItemResponse(item.id(), indexRequest.opType().lowercase(), indexResponse);
-                        if (result.mappingToUpdate != null) {
-                            mappingsToUpdate.add(result.mappingToUpdate);
-                        }
-                        if (result.op != null) {
-                            if (ops == null) {
-                                ops = new Engine.IndexingOperation[request.items().length];
-                            }
-                            ops[requestIndex] = result.op;
-                        }
-                    } catch (WriteFailure e) {
-                        Tuple<String, String> mappingsToUpdateOnFailure = e.mappingsToUpdate;
-                        if (mappingsToUpdateOnFailure != null) {
-                            mappingsToUpdate.add(mappingsToUpdateOnFailure);
-                        }
-                        throw e.getCause();
+                    Engine.IndexingOperation op = prepareIndexOperation(request, indexRequest, clusterState, indexShard, true);
+                    if (op.parsedDoc().mappingsModified()) {
+                        mappingsToUpdate.add(Tuple.tuple(indexRequest.index(), indexRequest.type()));
                     }
+                    pendingIndices.add(requestIndex);
+                    pendingOps.add(op);
                 } catch (Throwable e) {
-                    // rethrow the failure if we are going to retry on primary and let parent failure to handle it
-                    if (retryPrimaryException(e)) {
-                        // restore updated versions...
-                        for (int j = 0; j < requestIndex; j++) {
-                            applyVersion(request.items()[j], preVersions[j], preVersionTypes[j]);
-                        }
-                        for (Tuple<String, String> mappingToUpdate : mappingsToUpdate) {
-                            mappingUpdatedAction.updateMappingOnMaster(mappingToUpdate.v1(), mappingToUpdate.v2(), true);
-                        }
-                        throw (ElasticsearchException) e;
-                    }
-                    if (e instanceof ElasticsearchException && ((ElasticsearchException) e).status() == RestStatus.CONFLICT) {
-                        logger.trace("[{}][{}] failed to execute bulk item (index) {}", e, shardRequest.request.index(), shardRequest.shardId, indexRequest);
-                    } else {
-                        logger.debug("[{}][{}] failed to execute bulk item (index) {}", e, shardRequest.request.index(), shardRequest.shardId, indexRequest);
-                    }
-                    responses[requestIndex] = new BulkItemResponse(item.id(), indexRequest.opType().lowercase(),
-                            new BulkItemResponse.Failure(indexRequest.index(), indexRequest.type(), indexRequest.id(), e));
-                    // nullify the request so it won't execute on the replicas
-                    request.items()[requestIndex] = null;
+                    failItem(shardRequest, requestIndex, e, preVersions, preVersionTypes, mappingsToUpdate, responses);
                 }
             } else if (item.request() instanceof DeleteRequest) {
                 DeleteRequest deleteRequest = (DeleteRequest) item.request();
                 preVersions[requestIndex] = deleteRequest.version();
                 preVersionTypes[requestIndex] = deleteRequest.versionType();
-
                 try {
-                    // add the response
-                    DeleteResponse deleteResponse = shardDeleteOperation(deleteRequest, indexShard).response();
-                    responses[requestIndex] = new BulkItemResponse(item.id(), "delete", deleteResponse);
+                    pendingOps.add(indexShard.prepareDelete(deleteRequest.type(), deleteRequest.id(), deleteRequest.version(), deleteRequest.versionType(), Engine.Operation.Origin.PRIMARY));
+                    pendingIndices.add(requestIndex);
                 } catch (Throwable e) {
-                    // rethrow the failure if we are going to retry on primary and let parent failure to handle it
-                    if (retryPrimaryException(e)) {
-                        // restore updated versions...
-                        for (int j = 0; j < requestIndex; j++) {
-                            applyVersion(request.items()[j], preVersions[j], preVersionTypes[j]);
-                        }
-                        throw (ElasticsearchException) e;
-                    }
-                    if (e instanceof ElasticsearchException && ((ElasticsearchException) e).status() == RestStatus.CONFLICT) {
-                        logger.trace("[{}][{}] failed to execute bulk item (delete) {}", e, shardRequest.request.index(), shardRequest.shardId, deleteRequest);
-                    } else {
-                        logger.debug("[{}][{}] failed to execute bulk item (delete) {}", e, shardRequest.request.index(), shardRequest.shardId, deleteRequest);
-                    }
-                    responses[requestIndex] = new BulkItemResponse(item.id(), "delete",
-                            new BulkItemResponse.Failure(deleteRequest.index(), deleteRequest.type(), deleteRequest.id(), e));
-                    // nullify the request so it won't execute on the replicas
-                    request.items()[requestIndex] = null;
+                    failItem(shardRequest, requestIndex, e, preVersions, preVersionTypes, mappingsToUpdate, responses);
                 }
             } else if (item.request() instanceof UpdateRequest) {
+                // updates read the current document, the pending operations must be applied first
+                ops = applyPendingOperations(shardRequest, indexShard, pendingIndices, pendingOps, ops, preVersions, preVersionTypes, mappingsToUpdate, responses);
                 UpdateRequest updateRequest = (UpdateRequest) item.request();
                 preVersions[requestIndex] = updateRequest.version();
                 preVersionTypes[requestIndex] = updateRequest.versionType();
@@ -334,9 +290,11 @@ public class TransportShardBulkAction extends TransportShardReplicationOperation
                 }
             }
 
-            assert responses[requestIndex] != null; // we must have set a response somewhere.
             assert preVersionTypes[requestIndex] != null;
-
+        }
+        ops = applyPendingOperations(shardRequest, indexShard, pendingIndices, pendingOps, ops, preVersions, preVersionTypes, mappingsToUpdate, responses);
+        for (BulkItemResponse itemResponse : responses) {
+            assert itemResponse != null; // we must have set a response somewhere.
         }
 
         for (Tuple<String, String> mappingToUpdate : mappingsToUpdate) {
@@ -354,6 +312,105 @@ public class TransportShardBulkAction extends TransportShardReplicationOperation
         return new PrimaryResponse<>(shardRequest.request, response, ops);
     }
 
+    /**
+     * Applies the pending index and delete operations in a single engine call, and builds their responses.
+     */
+    private Engine.IndexingOperation[] applyPendingOperations(PrimaryOperationRequest shardRequest, IndexShard indexShard,
+                                                             IntArrayList pendingIndices, List<Engine.Operation> pendingOps,
+                                                             Engine.IndexingOperation[] ops, long[] preVersions, VersionType[] preVersionTypes,
+                                                             Set<Tuple<String, String>> mappingsToUpdate, BulkItemResponse[] responses) {
+        if (pendingOps.isEmpty()) {
+            return ops;
+        }
+        final BulkShardRequest request = shardRequest.request;
+        final Engine.Bulk bulk = new Engine.Bulk(pendingOps.toArray(new Engine.Operation[pendingOps.size()]));
+        Throwable bulkFailure = null;
+        try {
+            indexShard.bulk(bulk);
+        } catch (Throwable t) {
+            bulkFailure = t;
+        }
+        final Engine.Operation[] operations = bulk.operations();
+        for (int i = 0; i < operations.length; i++) {
+            final int requestIndex = pendingIndices.get(i);
+            final BulkItemRequest item = request.items()[requestIndex];
+            final Throwable failure = bulkFailure != null ? bulkFailure : bulk.failure(i);
+            if (failure != null) {
+                failItem(shardRequest, requestIndex, failure, preVersions, preVersionTypes, mappingsToUpdate, responses);
+                continue;
+            }
+            if (item.request() instanceof IndexRequest) {
+                IndexRequest indexRequest = (IndexRequest) item.request();
+                Engine.IndexingOperation op = (Engine.IndexingOperation) operations[i];
+                boolean created = op.opType() == Engine.Operation.Type.CREATE || ((Engine.Index) op).created();
+                // update the version on request so it will happen on the replicas
+                indexRequest.versionType(indexRequest.versionType().versionTypeForReplicationAndRecovery());
+                indexRequest.version(op.version());
+                assert indexRequest.versionType().validateVersionForWrites(indexRequest.version());
+                responses[requestIndex] = new BulkItemResponse(item.id(), indexRequest.opType().lowercase(),
+                        new IndexResponse(indexRequest.index(), indexRequest.type(), indexRequest.id(), op.version(), created));
+                if (ops == null) {
+                    ops = new Engine.IndexingOperation[request.items().length];
+                }
+                ops[requestIndex] = op;
+            } else {
+                DeleteRequest deleteRequest = (DeleteRequest) item.request();
+                Engine.Delete delete = (Engine.Delete) operations[i];
+                // update the request with the version so it will go to the replicas
+                deleteRequest.versionType(delete.versionType().versionTypeForReplicationAndRecovery());
+                deleteRequest.version(delete.version());
+                assert deleteRequest.versionType().validateVersionForWrites(deleteRequest.version());
+                responses[requestIndex] = new BulkItemResponse(item.id(), "delete",
+                        new DeleteResponse(deleteRequest.index(), deleteRequest.type(), deleteRequest.id(), delete.version(), delete.found()));
+            }
+        }
+        pendingIndices.clear();
+        pendingOps.clear();
+        return ops;
+    }
+
+    /**
+     * Records the failure of an index or delete item, or rethrows it if the whole request should be retried on
+     * the primary.
+     */
+    private void failItem(PrimaryOperationRequest shardRequest, int requestIndex, Throwable e, long[] preVersions, VersionType[] preVersionTypes,
+                          Set<Tuple<String, String>> mappingsToUpdate, BulkItemResponse[] responses) {
+        final BulkShardRequest request = shardRequest.request;
+        final BulkItemRequest item = request.items()[requestIndex];
+        // rethrow the failure if we are going to retry on primary and let parent failure to handle it
+        if (retryPrimaryException(e)) {
+            // restore updated versions...
+            for (int j = 0; j < requestIndex; j++) {
+                applyVersion(request.items()[j], preVersions[j], preVersionTypes[j]);
+            }
+            for (Tuple<String, String> mappingToUpdate : mappingsToUpdate) {
+                mappingUpdatedAction.updateMappingOnMaster(mappingToUpdate.v1(), mappingToUpdate.v2(), true);
+            }
+            throw (ElasticsearchException) e;
+        }
+        if (item.request() instanceof IndexRequest) {
+            IndexRequest indexRequest = (IndexRequest) item.request();
+            if (e instanceof ElasticsearchException && ((ElasticsearchException) e).status() == RestStatus.CONFLICT) {
+                logger.trace("[{}][{}] failed to execute bulk item (index) {}", e, request.index(), shardRequest.shardId, indexRequest);
+            } else {
+                logger.debug("[{}][{}] failed to execute bulk item (index) {}", e, request.index(), shardRequest.shardId, indexRequest);
+            }
+            responses[requestIndex] = new BulkItemResponse(item.id(), indexRequest.opType().lowercase(),
+                    new BulkItemResponse.Failure(indexRequest.index(), indexRequest.type(), indexRequest.id(), e));
+        } else {
+            DeleteRequest deleteRequest = (DeleteRequest) item.request();
+            if (e instanceof ElasticsearchException && ((ElasticsearchException) e).status() == RestStatus.CONFLICT) {
+                logger.trace("[{}][{}] failed to execute bulk item (delete) {}", e, request.index(), shardRequest.shardId, deleteRequest);
+            } else {
+                logger.debug("[{}][{}] failed to execute bulk item (delete) {}", e, request.index(), shardRequest.shardId, deleteRequest);
+            }
+            responses[requestIndex] = new BulkItemResponse(item.id(), "delete",
+                    new BulkItemResponse.Failure(deleteRequest.index(), deleteRequest.type(), deleteRequest.id(), e));
+        }
+        // nullify the request so it won't execute on the replicas
+        request.items()[requestIndex] = null;
+    }
+
     static class WriteResult {
 
         final Object response;
@@ -384,8 +441,8 @@ public class TransportShardBulkAction extends TransportShardReplicationOperation
         }
     }
 
-    private WriteResult shardIndexOperation(BulkShardRequest request, IndexRequest indexRequest, ClusterState clusterState,
-                                            IndexShard indexShard, boolean processed) {
+    private Engine.IndexingOperation prepareIndexOperation(BulkShardRequest request, IndexRequest indexRequest, ClusterState clusterState,
+                                                          IndexShard indexShard, boolean processed) {
 
         // validate, if routing is required, that we got routing
         MappingMetaData mappingMd = clusterState.metaData().index(request.index()).mappingOrDefault(indexRequest.type());
@@ -402,31 +459,36 @@ public class TransportShardBulkAction extends TransportShardReplicationOperation
         SourceToParse sourceToParse = SourceToParse.source(SourceToParse.Origin.PRIMARY, indexRequest.source()).type(indexRequest.type()).id(indexRequest.id())
                 .routing(indexRequest.routing()).parent(indexRequest.parent()).timestamp(indexRequest.timestamp()).ttl(indexRequest.ttl());
 
+        if (indexRequest.opType() == IndexRequest.OpType.INDEX) {
+            return indexShard.prepareIndex(sourceToParse, indexRequest.version(), indexRequest.versionType(), Engine.Operation.Origin.PRIMARY, request.canHaveDuplicates() || indexRequest.canHaveDuplicates());
+        } else {
+            return indexShard.prepareCreate(sourceToParse, indexRequest.version(), indexRequest.versionType(), Engine.Operation.Origin.PRIMARY,
+                    request.canHaveDuplicates() || indexRequest.canHaveDuplicates(), indexRequest.autoGeneratedId());
+        }
+    }
+
+    private WriteResult shardIndexOperation(BulkShardRequest request, IndexRequest indexRequest, ClusterState clusterState,
+                                            IndexShard indexShard, boolean processed) {
+        Engine.IndexingOperation op = prepareIndexOperation(request, indexRequest, clusterState, indexShard, processed);
+
         // update mapping on master if needed, we won't update changes to the same type, since once its changed, it won't have mappers added
         Tuple<String, String> mappingsToUpdate = null;
+        if (op.parsedDoc().mappingsModified()) {
+            mappingsToUpdate = Tuple.tuple(indexRequest.index(), indexRequest.type());
+        }
 
         long version;
         boolean created;
-        Engine.IndexingOperation op;
         try {
-            if (indexRequest.opType() == IndexRequest.OpType.INDEX) {
-                Engine.Index index = indexShard.prepareIndex(sourceToParse, indexRequest.version(), indexRequest.versionType(), Engine.Operation.Origin.PRIMARY, request.canHaveDuplicates() || indexRequest.canHaveDuplicates());
-                if (index.parsedDoc().mappingsModified()) {
-                    mappingsToUpdate = Tuple.tuple(indexRequest.index(), indexRequest.type());
-                }
+            if (op.opType() == Engine.Operation.Type.INDEX) {
+                Engine.Index index = (Engine.Index) op;
                 indexShard.index(index);
                 version = index.version();
-                op = index;
                 created = index.created();
             } else {
-                Engine.Create create = indexShard.prepareCreate(sourceToParse, indexRequest.version(), indexRequest.versionType(), Engine.Operation.Origin.PRIMARY,
-                        request.canHaveDuplicates() || indexRequest.canHaveDuplicates(), indexRequest.autoGeneratedId());
-                if (create.parsedDoc().mappingsModified()) {
-                    mappingsToUpdate = Tuple.tuple(indexRequest.index(), indexRequest.type());
-                }
+                Engine.Create create = (Engine.Create) op;
                 indexShard.create(create);
                 version = create.version();
-                op = create;
                 created = true;
             }
             // update the version on request so it will happen on the replicas
@@ -551,6 +613,7 @@ public class TransportShardBulkAction extends TransportShardReplicationOperation
     protected void shardOperationOnReplica(ReplicaOperationRequest shardRequest) {
         IndexShard indexShard = indicesService.indexServiceSafe(shardRequest.request.index()).shardSafe(shardRequest.shardId);
         final BulkShardRequest request = shardRequest.request;
+        final List<Engine.Operation> operations = new ArrayList<>(request.items().length);
         for (int i = 0; i < request.items().length; i++) {
             BulkItemRequest item = request.items()[i];
             if (item == null) {
@@ -563,13 +626,11 @@ public class TransportShardBulkAction extends TransportShardReplicationOperation
                             .routing(indexRequest.routing()).parent(indexRequest.parent()).timestamp(indexRequest.timestamp()).ttl(indexRequest.ttl());
 
                     if (indexRequest.opType() == IndexRequest.OpType.INDEX) {
-                        Engine.Index index = indexShard.prepareIndex(sourceToParse, indexRequest.version(), indexRequest.versionType(), Engine.Operation.Origin.REPLICA, request.canHaveDuplicates() || indexRequest.canHaveDuplicates());
-                        indexShard.index(index);
+                        operations.add(indexShard.prepareIndex(sourceToParse, indexRequest.version(), indexRequest.versionType(), Engine.Operation.Origin.REPLICA, request.canHaveDuplicates() || indexRequest.canHaveDuplicates()));
                     } else {
-                        Engine.Create create = indexShard.prepareCreate(sourceToParse,
+                        operations.add(indexShard.prepareCreate(sourceToParse,
                                 indexRequest.version(), indexRequest.versionType(),
-                                Engine.Operation.Origin.REPLICA, request.canHaveDuplicates() || indexRequest.canHaveDuplicates(), indexRequest.autoGeneratedId());
-                        indexShard.create(create);
+                                Engine.Operation.Origin.REPLICA, request.canHaveDuplicates() || indexRequest.canHaveDuplicates(), indexRequest.autoGeneratedId()));
                     }
                 } catch (Throwable e) {
                     // ignore, we are on backup
@@ -577,13 +638,20 @@ public class TransportShardBulkAction extends TransportShardReplicationOperation
             } else if (item.request() instanceof DeleteRequest) {
                 DeleteRequest deleteRequest = (DeleteRequest) item.request();
                 try {
-                    Engine.Delete delete = indexShard.prepareDelete(deleteRequest.type(), deleteRequest.id(), deleteRequest.version(), deleteRequest.versionType(), Engine.Operation.Origin.REPLICA);
-                    indexShard.delete(delete);
+                    operations.add(indexShard.prepareDelete(deleteRequest.type(), deleteRequest.id(), deleteRequest.version(), deleteRequest.versionType(), Engine.Operation.Origin.REPLICA));
                 } catch (Throwable e) {
                     // ignore, we are on backup
                 }
             }
         }
+        if (!operations.isEmpty()) {
+            try {
+                // failures of single operations are reported on the bulk, and ignored, we are on backup
+                indexShard.bulk(new Engine.Bulk(operations.toArray(new Engine.Operation[operations.size()])));
+            } catch (Throwable e) {
+                // ignore, we are on backup
+            }
+        }
 
         if (request.refresh()) {
             try {
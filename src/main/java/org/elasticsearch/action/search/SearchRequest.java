@@ -42,6 +42,7 @@ import java.io.IOException;
 import java.util.Collections;
 import java.util.Map;
 
+import static org.elasticsearch.action.ValidateActions.addValidationError;
 import static org.elasticsearch.search.Scroll.readScroll;
 
 /**
@@ -59,6 +60,9 @@ import static org.elasticsearch.search.Scroll.readScroll;
  */
 public class SearchRequest extends ActionRequest<SearchRequest> {
 
+    public static final int DEFAULT_BATCHED_REDUCE_SIZE = 512;
+    public static final int DEFAULT_PRE_FILTER_SHARD_SIZE = 128;
+
     private SearchType searchType = SearchType.DEFAULT;
 
     private String[] indices;
@@ -85,6 +89,10 @@ public class SearchRequest extends ActionRequest<SearchRequest> {
 
     private IndicesOptions indicesOptions = IndicesOptions.strictExpandOpen();
 
+    private int batchedReduceSize = DEFAULT_BATCHED_REDUCE_SIZE;
+
+    private int preFilterShardSize = DEFAULT_PRE_FILTER_SHARD_SIZE;
+
     public SearchRequest() {
     }
 
@@ -111,6 +119,12 @@ public class SearchRequest extends ActionRequest<SearchRequest> {
 //        if (source == null && extraSource == null) {
 //            validationException = addValidationError("search source is missing", validationException);
 //        }
+        if (batchedReduceSize < 2) {
+            validationException = addValidationError("batched_reduce_size must be >= 2", validationException);
+        }
+        if (preFilterShardSize < 1) {
+            validationException = addValidationError("pre_filter_shard_size must be >= 1", validationException);
+        }
         return validationException;
     }
 
@@ -211,6 +225,34 @@ public class SearchRequest extends ActionRequest<SearchRequest> {
         return this.preference;
     }
 
+    /**
+     * Sets the number of shard results that are buffered on the coordinating node before their aggregations are
+     * reduced into a partial result, which bounds the memory used by the aggregations of searches across many
+     * shards. Defaults to <tt>512</tt>.
+     */
+    public SearchRequest batchedReduceSize(int batchedReduceSize) {
+        this.batchedReduceSize = batchedReduceSize;
+        return this;
+    }
+
+    public int batchedReduceSize() {
+        return this.batchedReduceSize;
+    }
+
+    /**
+     * Sets the number of shards above which the shards are first asked whether the query can match any of their
+     * documents, so that the query phase skips the shards that can't, based on the range clauses of the query.
+     * Defaults to <tt>128</tt>.
+     */
+    public SearchRequest preFilterShardSize(int preFilterShardSize) {
+        this.preFilterShardSize = preFilterShardSize;
+        return this;
+    }
+
+    public int preFilterShardSize() {
+        return this.preFilterShardSize;
+    }
+
     /**
      * The search type to execute, defaults to {@link SearchType#DEFAULT}.
      */
@@ -512,6 +554,10 @@ public class SearchRequest extends ActionRequest<SearchRequest> {
                 templateParams = (Map<String, String>) in.readGenericValue();
             }
         }
+        if (in.getVersion().onOrAfter(Version.V_2_0_0)) {
+            batchedReduceSize = in.readVInt();
+            preFilterShardSize = in.readVInt();
+        }
     }
 
     @Override
@@ -551,5 +597,9 @@ public class SearchRequest extends ActionRequest<SearchRequest> {
                 out.writeGenericValue(templateParams);
             }
         }
+        if (out.getVersion().onOrAfter(Version.V_2_0_0)) {
+            out.writeVInt(batchedReduceSize);
+            out.writeVInt(preFilterShardSize);
+        }
     }
 }
@@ -37,6 +37,7 @@ import org.elasticsearch.search.builder.SearchSourceBuilder;
 import org.elasticsearch.search.facet.FacetBuilder;
 import org.elasticsearch.search.highlight.HighlightBuilder;
 import org.elasticsearch.search.rescore.RescoreBuilder;
+import org.elasticsearch.search.slice.SliceBuilder;
 import org.elasticsearch.search.sort.SortBuilder;
 import org.elasticsearch.search.sort.SortOrder;
 import org.elasticsearch.search.suggest.SuggestBuilder;
@@ -155,6 +156,24 @@ public class SearchRequestBuilder extends ActionRequestBuilder<SearchRequest, Se
         return this;
     }
 
+    /**
+     * Sets the number of shard results that are buffered on the coordinating node before their aggregations are
+     * reduced into a partial result. Defaults to <tt>512</tt>.
+     */
+    public SearchRequestBuilder setBatchedReduceSize(int batchedReduceSize) {
+        request.batchedReduceSize(batchedReduceSize);
+        return this;
+    }
+
+    /**
+     * Sets the number of shards above which the shards that can't match the range clauses of the query are skipped
+     * before the query phase. Defaults to <tt>128</tt>.
+     */
+    public SearchRequestBuilder setPreFilterShardSize(int preFilterShardSize) {
+        request.preFilterShardSize(preFilterShardSize);
+        return this;
+    }
+
     /**
      * Specifies what type of requested indices to ignore and wildcard indices expressions.
      *
@@ -294,6 +313,22 @@ public class SearchRequestBuilder extends ActionRequestBuilder<SearchRequest, Se
         return this;
     }
 
+    /**
+     * Sets the slice of the scrolled search to execute, see {@link SliceBuilder}.
+     */
+    public SearchRequestBuilder setSlice(SliceBuilder slice) {
+        sourceBuilder().slice(slice);
+        return this;
+    }
+
+    /**
+     * Should the query phase of the shards be profiled. Defaults to <tt>false</tt>.
+     */
+    public SearchRequestBuilder setProfile(boolean profile) {
+        sourceBuilder().profile(profile);
+        return this;
+    }
+
     /**
      * From index to start the search from. Defaults to <tt>0</tt>.
      */
@@ -19,7 +19,9 @@
 
 package org.elasticsearch.action.search;
 
+import org.elasticsearch.Version;
 import org.elasticsearch.action.ActionResponse;
+import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.unit.TimeValue;
@@ -29,9 +31,11 @@ import org.elasticsearch.search.SearchHits;
 import org.elasticsearch.search.aggregations.Aggregations;
 import org.elasticsearch.search.facet.Facets;
 import org.elasticsearch.search.internal.InternalSearchResponse;
+import org.elasticsearch.search.profile.ProfileShardResult;
 import org.elasticsearch.search.suggest.Suggest;
 
 import java.io.IOException;
+import java.util.Map;
 
 import static org.elasticsearch.action.search.ShardSearchFailure.readShardSearchFailure;
 import static org.elasticsearch.search.internal.InternalSearchResponse.readInternalSearchResponse;
@@ -49,6 +53,8 @@ public class SearchResponse extends ActionResponse implements StatusToXContent {
 
     private int successfulShards;
 
+    private int skippedShards;
+
     private ShardSearchFailure[] shardFailures;
 
     private long tookInMillis;
@@ -57,10 +63,15 @@ public class SearchResponse extends ActionResponse implements StatusToXContent {
     }
 
     public SearchResponse(InternalSearchResponse internalResponse, String scrollId, int totalShards, int successfulShards, long tookInMillis, ShardSearchFailure[] shardFailures) {
+        this(internalResponse, scrollId, totalShards, successfulShards, 0, tookInMillis, shardFailures);
+    }
+
+    public SearchResponse(InternalSearchResponse internalResponse, String scrollId, int totalShards, int successfulShards, int skippedShards, long tookInMillis, ShardSearchFailure[] shardFailures) {
         this.internalResponse = internalResponse;
         this.scrollId = scrollId;
         this.totalShards = totalShards;
         this.successfulShards = successfulShards;
+        this.skippedShards = skippedShards;
         this.tookInMillis = tookInMillis;
         this.shardFailures = shardFailures;
     }
@@ -109,6 +120,13 @@ public class SearchResponse extends ActionResponse implements StatusToXContent {
         return internalResponse.suggest();
     }
 
+    /**
+     * The profiles of the query phase of the shards, keyed by shard, or <tt>null</tt> if the search wasn't profiled.
+     */
+    public Map<String, ProfileShardResult> getProfileResults() {
+        return internalResponse.profileResults();
+    }
+
     /**
      * Has the search operation timed out.
      */
@@ -116,6 +134,15 @@ public class SearchResponse extends ActionResponse implements StatusToXContent {
         return internalResponse.timedOut();
     }
 
+    /**
+     * Has the collection of the query been terminated early on any shard, <tt>null</tt> if no shard could terminate
+     * it early.
+     */
+    @Nullable
+    public Boolean isTerminatedEarly() {
+        return internalResponse.terminatedEarly();
+    }
+
     /**
      * How long the search took.
      */
@@ -144,6 +171,14 @@ public class SearchResponse extends ActionResponse implements StatusToXContent {
         return successfulShards;
     }
 
+    /**
+     * The number of shards that were skipped because the query couldn't match any of their documents. Skipped shards
+     * are counted as successful shards.
+     */
+    public int getSkippedShards() {
+        return skippedShards;
+    }
+
     /**
      * The failed number of shards the search was executed on.
      */
@@ -173,6 +208,7 @@ public class SearchResponse extends ActionResponse implements StatusToXContent {
         static final XContentBuilderString _SHARDS = new XContentBuilderString("_shards");
         static final XContentBuilderString TOTAL = new XContentBuilderString("total");
         static final XContentBuilderString SUCCESSFUL = new XContentBuilderString("successful");
+        static final XContentBuilderString SKIPPED = new XContentBuilderString("skipped");
         static final XContentBuilderString FAILED = new XContentBuilderString("failed");
         static final XContentBuilderString FAILURES = new XContentBuilderString("failures");
         static final XContentBuilderString STATUS = new XContentBuilderString("status");
@@ -181,6 +217,7 @@ public class SearchResponse extends ActionResponse implements StatusToXContent {
         static final XContentBuilderString REASON = new XContentBuilderString("reason");
         static final XContentBuilderString TOOK = new XContentBuilderString("took");
         static final XContentBuilderString TIMED_OUT = new XContentBuilderString("timed_out");
+        static final XContentBuilderString TERMINATED_EARLY = new XContentBuilderString("terminated_early");
     }
 
     @Override
@@ -190,9 +227,13 @@ public class SearchResponse extends ActionResponse implements StatusToXContent {
         }
         builder.field(Fields.TOOK, tookInMillis);
         builder.field(Fields.TIMED_OUT, isTimedOut());
+        if (isTerminatedEarly() != null) {
+            builder.field(Fields.TERMINATED_EARLY, isTerminatedEarly());
+        }
         builder.startObject(Fields._SHARDS);
         builder.field(Fields.TOTAL, getTotalShards());
         builder.field(Fields.SUCCESSFUL, getSuccessfulShards());
+        builder.field(Fields.SKIPPED, getSkippedShards());
         builder.field(Fields.FAILED, getFailedShards());
 
         if (shardFailures.length > 0) {
@@ -238,6 +279,9 @@ public class SearchResponse extends ActionResponse implements StatusToXContent {
         }
         scrollId = in.readOptionalString();
         tookInMillis = in.readVLong();
+        if (in.getVersion().onOrAfter(Version.V_2_0_0)) {
+            skippedShards = in.readVInt();
+        }
     }
 
     @Override
@@ -254,6 +298,9 @@ public class SearchResponse extends ActionResponse implements StatusToXContent {
 
         out.writeOptionalString(scrollId);
         out.writeVLong(tookInMillis);
+        if (out.getVersion().onOrAfter(Version.V_2_0_0)) {
+            out.writeVInt(skippedShards);
+        }
     }
 
     @Override
@@ -28,6 +28,8 @@ import org.elasticsearch.action.search.type.TransportSearchScrollScanAction;
 import org.elasticsearch.action.support.TransportAction;
 import org.elasticsearch.common.inject.Inject;
 import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.search.task.SearchTask;
+import org.elasticsearch.search.task.SearchTaskManager;
 import org.elasticsearch.threadpool.ThreadPool;
 import org.elasticsearch.transport.BaseTransportRequestHandler;
 import org.elasticsearch.transport.TransportChannel;
@@ -35,6 +37,7 @@ import org.elasticsearch.transport.TransportService;
 
 import static org.elasticsearch.action.search.type.ParsedScrollId.*;
 import static org.elasticsearch.action.search.type.TransportSearchHelper.parseScrollId;
+import static org.elasticsearch.action.search.type.TransportSearchHelper.taskDescription;
 
 /**
  *
@@ -47,33 +50,55 @@ public class TransportSearchScrollAction extends TransportAction<SearchScrollReq
 
     private final TransportSearchScrollScanAction scanAction;
 
+    private final SearchTaskManager taskManager;
+
     @Inject
     public TransportSearchScrollAction(Settings settings, ThreadPool threadPool, TransportService transportService,
                                        TransportSearchScrollQueryThenFetchAction queryThenFetchAction,
                                        TransportSearchScrollQueryAndFetchAction queryAndFetchAction,
-                                       TransportSearchScrollScanAction scanAction) {
+                                       TransportSearchScrollScanAction scanAction, SearchTaskManager taskManager) {
         super(settings, threadPool);
         this.queryThenFetchAction = queryThenFetchAction;
         this.queryAndFetchAction = queryAndFetchAction;
         this.scanAction = scanAction;
+        this.taskManager = taskManager;
 
         transportService.registerHandler(SearchScrollAction.NAME, new TransportHandler());
     }
 
     @Override
-    protected void doExecute(SearchScrollRequest request, ActionListener<SearchResponse> listener) {
+    protected void doExecute(SearchScrollRequest request, final ActionListener<SearchResponse> listener) {
+        SearchTask task = null;
         try {
             ParsedScrollId scrollId = parseScrollId(request.scrollId());
+            task = taskManager.register(SearchScrollAction.NAME, taskDescription(request, scrollId));
+            final SearchTask scrollTask = task;
+            ActionListener<SearchResponse> taskListener = new ActionListener<SearchResponse>() {
+                @Override
+                public void onResponse(SearchResponse response) {
+                    taskManager.unregister(scrollTask);
+                    listener.onResponse(response);
+                }
+
+                @Override
+                public void onFailure(Throwable e) {
+                    taskManager.unregister(scrollTask);
+                    listener.onFailure(e);
+                }
+            };
             if (scrollId.getType().equals(QUERY_THEN_FETCH_TYPE)) {
-                queryThenFetchAction.execute(request, scrollId, listener);
+                queryThenFetchAction.execute(request, scrollId, task, taskListener);
             } else if (scrollId.getType().equals(QUERY_AND_FETCH_TYPE)) {
-                queryAndFetchAction.execute(request, scrollId, listener);
+                queryAndFetchAction.execute(request, scrollId, task, taskListener);
             } else if (scrollId.getType().equals(SCAN)) {
-                scanAction.execute(request, scrollId, listener);
+                scanAction.execute(request, scrollId, task, taskListener);
             } else {
                 throw new ElasticsearchIllegalArgumentException("Scroll id type [" + scrollId.getType() + "] unrecognized");
             }
         } catch (Throwable e) {
+            if (task != null) {
+                taskManager.unregister(task);
+            }
             listener.onFailure(e);
         }
     }
@@ -95,6 +95,7 @@ public class TransportSearchDfsQueryAndFetchAction extends TransportSearchTypeAc
                 public void onResult(QueryFetchSearchResult result) {
                     result.shardTarget(dfsResult.shardTarget());
                     queryFetchResults.set(shardIndex, result);
+                    aggregationsReducer.consume(result.queryResult());
                     if (counter.decrementAndGet() == 0) {
                         finishHim();
                     }
@@ -134,7 +135,7 @@ public class TransportSearchDfsQueryAndFetchAction extends TransportSearchTypeAc
 
         void innerFinishHim() throws Exception {
             sortedShardList = searchPhaseController.sortDocs(request, useSlowScroll, queryFetchResults);
-            final InternalSearchResponse internalResponse = searchPhaseController.merge(sortedShardList, queryFetchResults, queryFetchResults);
+            final InternalSearchResponse internalResponse = searchPhaseController.merge(sortedShardList, queryFetchResults, queryFetchResults, aggregationsReducer);
             String scrollId = null;
             if (request.scroll() != null) {
                 scrollId = TransportSearchHelper.buildScrollId(request.searchType(), firstResults, null);
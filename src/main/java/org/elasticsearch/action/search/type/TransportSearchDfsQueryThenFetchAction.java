@@ -104,6 +104,7 @@ public class TransportSearchDfsQueryThenFetchAction extends TransportSearchTypeA
                 public void onResult(QuerySearchResult result) {
                     result.shardTarget(dfsResult.shardTarget());
                     queryResults.set(shardIndex, result);
+                    aggregationsReducer.consume(result);
                     if (counter.decrementAndGet() == 0) {
                         executeFetchPhase();
                     }
@@ -204,7 +205,7 @@ public class TransportSearchDfsQueryThenFetchAction extends TransportSearchTypeA
         }
 
         void innerFinishHim() throws Exception {
-            final InternalSearchResponse internalResponse = searchPhaseController.merge(sortedShardList, queryResults, fetchResults);
+            final InternalSearchResponse internalResponse = searchPhaseController.merge(sortedShardList, queryResults, fetchResults, aggregationsReducer);
             String scrollId = null;
             if (request.scroll() != null) {
                 scrollId = TransportSearchHelper.buildScrollId(request.searchType(), firstResults, null);
@@ -38,8 +38,10 @@ import org.elasticsearch.common.util.concurrent.AtomicArray;
 import org.elasticsearch.search.SearchPhaseResult;
 import org.elasticsearch.search.internal.InternalScrollSearchRequest;
 import org.elasticsearch.search.internal.ShardSearchRequest;
+import org.elasticsearch.search.task.SearchTask;
 
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.Map;
 
 /**
@@ -54,8 +56,29 @@ public abstract class TransportSearchHelper {
         return shardRequest;
     }
 
-    public static InternalScrollSearchRequest internalScrollSearchRequest(long id, SearchScrollRequest request) {
-        return new InternalScrollSearchRequest(request, id);
+    public static InternalScrollSearchRequest internalScrollSearchRequest(long id, SearchScrollRequest request, SearchTask task) {
+        return new InternalScrollSearchRequest(request, id).parentTask(task.fullId());
+    }
+
+    /**
+     * Describes a search request in the list of search tasks.
+     */
+    public static String taskDescription(SearchRequest request) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("indices").append(Arrays.toString(request.indices()));
+        sb.append(", types").append(Arrays.toString(request.types()));
+        sb.append(", search_type[").append(request.searchType()).append(']');
+        if (request.scroll() != null) {
+            sb.append(", scroll[").append(request.scroll().keepAlive()).append(']');
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Describes a search scroll request in the list of search tasks.
+     */
+    public static String taskDescription(SearchScrollRequest request, ParsedScrollId scrollId) {
+        return "scroll_type[" + scrollId.getType() + "], shards[" + scrollId.getContext().length + "]";
     }
 
     public static String buildScrollId(SearchType searchType, AtomicArray<? extends SearchPhaseResult> searchPhaseResults, @Nullable Map<String, String> attributes) throws IOException {
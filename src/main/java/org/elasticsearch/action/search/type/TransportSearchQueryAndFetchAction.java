@@ -86,12 +86,12 @@ public class TransportSearchQueryAndFetchAction extends TransportSearchTypeActio
 
         private void innerFinishHim() throws IOException {
             sortedShardList = searchPhaseController.sortDocs(request, useSlowScroll, firstResults);
-            final InternalSearchResponse internalResponse = searchPhaseController.merge(sortedShardList, firstResults, firstResults);
+            final InternalSearchResponse internalResponse = searchPhaseController.merge(sortedShardList, firstResults, firstResults, aggregationsReducer);
             String scrollId = null;
             if (request.scroll() != null) {
                 scrollId = buildScrollId(request.searchType(), firstResults, null);
             }
-            listener.onResponse(new SearchResponse(internalResponse, scrollId, expectedSuccessfulOps, successfulOps.get(), buildTookInMillis(), buildShardFailures()));
+            listener.onResponse(new SearchResponse(internalResponse, scrollId, expectedSuccessfulOps, successfulOps.get(), skippedOps.get(), buildTookInMillis(), buildShardFailures()));
         }
     }
 }
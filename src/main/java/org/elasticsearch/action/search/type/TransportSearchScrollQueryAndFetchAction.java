@@ -30,12 +30,14 @@ import org.elasticsearch.common.component.AbstractComponent;
 import org.elasticsearch.common.inject.Inject;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.util.concurrent.AtomicArray;
+import org.elasticsearch.search.SearchCancelledException;
 import org.elasticsearch.search.action.SearchServiceListener;
 import org.elasticsearch.search.action.SearchServiceTransportAction;
 import org.elasticsearch.search.controller.SearchPhaseController;
 import org.elasticsearch.search.fetch.QueryFetchSearchResult;
 import org.elasticsearch.search.internal.InternalScrollSearchRequest;
 import org.elasticsearch.search.internal.InternalSearchResponse;
+import org.elasticsearch.search.task.SearchTask;
 
 import java.util.List;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -60,8 +62,8 @@ public class TransportSearchScrollQueryAndFetchAction extends AbstractComponent
         this.searchPhaseController = searchPhaseController;
     }
 
-    public void execute(SearchScrollRequest request, ParsedScrollId scrollId, ActionListener<SearchResponse> listener) {
-        new AsyncAction(request, scrollId, listener).start();
+    public void execute(SearchScrollRequest request, ParsedScrollId scrollId, SearchTask task, ActionListener<SearchResponse> listener) {
+        new AsyncAction(request, scrollId, task, listener).start();
     }
 
     private class AsyncAction {
@@ -71,6 +73,8 @@ public class TransportSearchScrollQueryAndFetchAction extends AbstractComponent
 
         private final ActionListener<SearchResponse> listener;
 
+        private final SearchTask task;
+
         private final ParsedScrollId scrollId;
 
         private final DiscoveryNodes nodes;
@@ -83,8 +87,9 @@ public class TransportSearchScrollQueryAndFetchAction extends AbstractComponent
 
         private final long startTime = System.currentTimeMillis();
 
-        private AsyncAction(SearchScrollRequest request, ParsedScrollId scrollId, ActionListener<SearchResponse> listener) {
+        private AsyncAction(SearchScrollRequest request, ParsedScrollId scrollId, SearchTask task, ActionListener<SearchResponse> listener) {
             this.request = request;
+            this.task = task;
             this.listener = listener;
             this.scrollId = scrollId;
             this.nodes = clusterService.state().nodes();
@@ -157,7 +162,12 @@ public class TransportSearchScrollQueryAndFetchAction extends AbstractComponent
         }
 
         void executePhase(final int shardIndex, DiscoveryNode node, final long searchId) {
-            InternalScrollSearchRequest internalRequest = internalScrollSearchRequest(searchId, request);
+            if (task.isCancelled()) {
+                onPhaseFailure(new SearchCancelledException("search task [" + task.fullId() + "] was cancelled"), searchId, shardIndex);
+                return;
+            }
+            task.addNode(node.id());
+            InternalScrollSearchRequest internalRequest = internalScrollSearchRequest(searchId, request, task);
             searchService.sendExecuteFetch(node, internalRequest, new SearchServiceListener<QueryFetchSearchResult>() {
                 @Override
                 public void onResult(QueryFetchSearchResult result) {
@@ -33,6 +33,7 @@ import org.elasticsearch.common.component.AbstractComponent;
 import org.elasticsearch.common.inject.Inject;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.util.concurrent.AtomicArray;
+import org.elasticsearch.search.SearchCancelledException;
 import org.elasticsearch.search.SearchContextMissingException;
 import org.elasticsearch.search.action.SearchServiceListener;
 import org.elasticsearch.search.action.SearchServiceTransportAction;
@@ -42,6 +43,7 @@ import org.elasticsearch.search.fetch.FetchSearchResult;
 import org.elasticsearch.search.internal.InternalScrollSearchRequest;
 import org.elasticsearch.search.internal.InternalSearchResponse;
 import org.elasticsearch.search.query.QuerySearchResult;
+import org.elasticsearch.search.task.SearchTask;
 
 import java.util.List;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -66,8 +68,8 @@ public class TransportSearchScrollQueryThenFetchAction extends AbstractComponent
         this.searchPhaseController = searchPhaseController;
     }
 
-    public void execute(SearchScrollRequest request, ParsedScrollId scrollId, ActionListener<SearchResponse> listener) {
-        new AsyncAction(request, scrollId, listener).start();
+    public void execute(SearchScrollRequest request, ParsedScrollId scrollId, SearchTask task, ActionListener<SearchResponse> listener) {
+        new AsyncAction(request, scrollId, task, listener).start();
     }
 
     private class AsyncAction {
@@ -76,6 +78,8 @@ public class TransportSearchScrollQueryThenFetchAction extends AbstractComponent
 
         private final ActionListener<SearchResponse> listener;
 
+        private final SearchTask task;
+
         private final ParsedScrollId scrollId;
 
         private final DiscoveryNodes nodes;
@@ -92,8 +96,9 @@ public class TransportSearchScrollQueryThenFetchAction extends AbstractComponent
 
         private volatile boolean useSlowScroll;
 
-        private AsyncAction(SearchScrollRequest request, ParsedScrollId scrollId, ActionListener<SearchResponse> listener) {
+        private AsyncAction(SearchScrollRequest request, ParsedScrollId scrollId, SearchTask task, ActionListener<SearchResponse> listener) {
             this.request = request;
+            this.task = task;
             this.listener = listener;
             this.scrollId = scrollId;
             this.nodes = clusterService.state().nodes();
@@ -158,7 +163,12 @@ public class TransportSearchScrollQueryThenFetchAction extends AbstractComponent
         }
 
         private void executeQueryPhase(final int shardIndex, final AtomicInteger counter, DiscoveryNode node, final long searchId) {
-            InternalScrollSearchRequest internalRequest = internalScrollSearchRequest(searchId, request);
+            if (task.isCancelled()) {
+                onQueryPhaseFailure(shardIndex, counter, searchId, new SearchCancelledException("search task [" + task.fullId() + "] was cancelled"));
+                return;
+            }
+            task.addNode(node.id());
+            InternalScrollSearchRequest internalRequest = internalScrollSearchRequest(searchId, request, task);
             searchService.sendExecuteQuery(node, internalRequest, new SearchServiceListener<QuerySearchResult>() {
                 @Override
                 public void onResult(QuerySearchResult result) {
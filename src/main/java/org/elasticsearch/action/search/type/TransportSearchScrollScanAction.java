@@ -33,12 +33,14 @@ import org.elasticsearch.common.component.AbstractComponent;
 import org.elasticsearch.common.inject.Inject;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.util.concurrent.AtomicArray;
+import org.elasticsearch.search.SearchCancelledException;
 import org.elasticsearch.search.action.SearchServiceListener;
 import org.elasticsearch.search.action.SearchServiceTransportAction;
 import org.elasticsearch.search.controller.SearchPhaseController;
 import org.elasticsearch.search.fetch.QueryFetchSearchResult;
 import org.elasticsearch.search.internal.InternalSearchHits;
 import org.elasticsearch.search.internal.InternalSearchResponse;
+import org.elasticsearch.search.task.SearchTask;
 
 import java.io.IOException;
 import java.util.List;
@@ -64,8 +66,8 @@ public class TransportSearchScrollScanAction extends AbstractComponent {
         this.searchPhaseController = searchPhaseController;
     }
 
-    public void execute(SearchScrollRequest request, ParsedScrollId scrollId, ActionListener<SearchResponse> listener) {
-        new AsyncAction(request, scrollId, listener).start();
+    public void execute(SearchScrollRequest request, ParsedScrollId scrollId, SearchTask task, ActionListener<SearchResponse> listener) {
+        new AsyncAction(request, scrollId, task, listener).start();
     }
 
     private class AsyncAction {
@@ -74,6 +76,8 @@ public class TransportSearchScrollScanAction extends AbstractComponent {
 
         private final ActionListener<SearchResponse> listener;
 
+        private final SearchTask task;
+
         private final ParsedScrollId scrollId;
 
         private final DiscoveryNodes nodes;
@@ -85,8 +89,9 @@ public class TransportSearchScrollScanAction extends AbstractComponent {
         private final AtomicInteger counter;
         private final long startTime = System.currentTimeMillis();
 
-        private AsyncAction(SearchScrollRequest request, ParsedScrollId scrollId, ActionListener<SearchResponse> listener) {
+        private AsyncAction(SearchScrollRequest request, ParsedScrollId scrollId, SearchTask task, ActionListener<SearchResponse> listener) {
             this.request = request;
+            this.task = task;
             this.listener = listener;
             this.scrollId = scrollId;
             this.nodes = clusterService.state().nodes();
@@ -157,7 +162,12 @@ public class TransportSearchScrollScanAction extends AbstractComponent {
         }
 
         void executePhase(final int shardIndex, DiscoveryNode node, final long searchId) {
-            searchService.sendExecuteScan(node, internalScrollSearchRequest(searchId, request), new SearchServiceListener<QueryFetchSearchResult>() {
+            if (task.isCancelled()) {
+                onPhaseFailure(new SearchCancelledException("search task [" + task.fullId() + "] was cancelled"), searchId, shardIndex);
+                return;
+            }
+            task.addNode(node.id());
+            searchService.sendExecuteScan(node, internalScrollSearchRequest(searchId, request, task), new SearchServiceListener<QueryFetchSearchResult>() {
                 @Override
                 public void onResult(QueryFetchSearchResult result) {
                     queryFetchResults.set(shardIndex, result);
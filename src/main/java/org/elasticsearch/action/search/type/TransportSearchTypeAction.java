@@ -38,16 +38,20 @@ import org.elasticsearch.cluster.routing.ShardRouting;
 import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.util.concurrent.AtomicArray;
+import org.elasticsearch.search.SearchCancelledException;
 import org.elasticsearch.search.SearchPhaseResult;
 import org.elasticsearch.search.SearchShardTarget;
 import org.elasticsearch.search.action.SearchServiceListener;
 import org.elasticsearch.search.action.SearchServiceTransportAction;
+import org.elasticsearch.search.controller.BatchedAggregationsReducer;
 import org.elasticsearch.search.controller.SearchPhaseController;
 import org.elasticsearch.search.fetch.FetchSearchRequest;
 import org.elasticsearch.search.internal.InternalSearchResponse;
 import org.elasticsearch.search.internal.ShardSearchRequest;
 import org.elasticsearch.search.query.QuerySearchResult;
 import org.elasticsearch.search.query.QuerySearchResultProvider;
+import org.elasticsearch.search.task.SearchTask;
+import org.elasticsearch.search.task.SearchTaskManager;
 import org.elasticsearch.threadpool.ThreadPool;
 
 import java.util.List;
@@ -91,9 +95,11 @@ public abstract class TransportSearchTypeAction extends TransportAction<SearchRe
         private final int expectedTotalOps;
 
         protected final AtomicInteger successfulOps = new AtomicInteger();
+        protected final AtomicInteger skippedOps = new AtomicInteger();
         private final AtomicInteger totalOps = new AtomicInteger();
 
         protected final AtomicArray<FirstResult> firstResults;
+        protected final BatchedAggregationsReducer aggregationsReducer;
         private volatile AtomicArray<ShardSearchFailure> shardFailures;
         private final Object shardFailuresMutex = new Object();
         protected volatile ScoreDoc[] sortedShardList;
@@ -101,9 +107,10 @@ public abstract class TransportSearchTypeAction extends TransportAction<SearchRe
         protected final boolean useSlowScroll;
         protected final long startTime = System.currentTimeMillis();
 
-        protected BaseAsyncAction(SearchRequest request, ActionListener<SearchResponse> listener) {
+        protected final SearchTask task;
+
+        protected BaseAsyncAction(SearchRequest request, final ActionListener<SearchResponse> listener) {
             this.request = request;
-            this.listener = listener;
 
             this.clusterState = clusterService.state();
             nodes = clusterState.nodes();
@@ -124,6 +131,7 @@ public abstract class TransportSearchTypeAction extends TransportAction<SearchRe
             expectedTotalOps = shardsIts.totalSizeWith1ForEmpty();
 
             firstResults = new AtomicArray<>(shardsIts.size());
+            aggregationsReducer = searchPhaseController.newAggregationsReducer(request);
             // Not so nice, but we need to know if there're nodes below the supported version
             // and if so fall back to classic scroll (based on from). We need to check every node
             // because we don't to what nodes we end up sending the request (shard may fail or relocate)
@@ -136,6 +144,22 @@ public abstract class TransportSearchTypeAction extends TransportAction<SearchRe
                 }
             }
             this.useSlowScroll = useSlowScroll;
+
+            final SearchTaskManager taskManager = searchService.taskManager();
+            this.task = taskManager.register(SearchAction.NAME, TransportSearchHelper.taskDescription(request));
+            this.listener = new ActionListener<SearchResponse>() {
+                @Override
+                public void onResponse(SearchResponse response) {
+                    taskManager.unregister(task);
+                    listener.onResponse(response);
+                }
+
+                @Override
+                public void onFailure(Throwable e) {
+                    taskManager.unregister(task);
+                    listener.onFailure(e);
+                }
+            };
         }
 
         public void start() {
@@ -145,10 +169,102 @@ public abstract class TransportSearchTypeAction extends TransportAction<SearchRe
                 return;
             }
             request.beforeStart();
+            final ShardRouting[] shards = new ShardRouting[shardsIts.size()];
+            int shardIndex = -1;
+            for (final ShardIterator shardIt : shardsIts) {
+                shards[++shardIndex] = shardIt.nextOrNull();
+            }
+            if (shouldPreFilter()) {
+                preFilter(shards);
+            } else {
+                performFirstPhases(shards, null);
+            }
+        }
+
+        /**
+         * Whether to first ask each shard if the query can match any of its documents, which pays off when searching
+         * many shards whose documents are partitioned by a field the query has a range on, like time based indices.
+         */
+        private boolean shouldPreFilter() {
+            if (shardsIts.size() <= request.preFilterShardSize()) {
+                return false;
+            }
+            final SearchType searchType = request.searchType();
+            return searchType == SearchType.QUERY_THEN_FETCH || searchType == SearchType.QUERY_AND_FETCH || searchType == SearchType.COUNT;
+        }
+
+        private void preFilter(final ShardRouting[] shards) {
+            final boolean[] canMatch = new boolean[shards.length];
+            // the decrement of the counter publishes the answers to the thread handling the last one
+            final AtomicInteger pending = new AtomicInteger(shards.length);
+            int shardIndex = -1;
+            for (final ShardIterator shardIt : shardsIts) {
+                final int index = ++shardIndex;
+                final ShardRouting shard = shards[index];
+                final DiscoveryNode node = shard == null ? null : nodes.get(shard.currentNodeId());
+                if (node == null) {
+                    // the query phase deals with unavailable shards
+                    canMatch[index] = true;
+                    if (pending.decrementAndGet() == 0) {
+                        performFirstPhases(shards, canMatch);
+                    }
+                    continue;
+                }
+                String[] filteringAliases = clusterState.metaData().filteringAliases(shard.index(), request.indices());
+                searchService.sendCanMatch(node, internalSearchRequest(shard, shardsIts.size(), request, filteringAliases, startTime, useSlowScroll).parentTask(task.fullId()), new SearchServiceListener<Boolean>() {
+                    @Override
+                    public void onResult(Boolean result) {
+                        canMatch[index] = result;
+                        if (pending.decrementAndGet() == 0) {
+                            performFirstPhases(shards, canMatch);
+                        }
+                    }
+
+                    @Override
+                    public void onFailure(Throwable t) {
+                        if (logger.isTraceEnabled()) {
+                            logger.trace("{}: Failed to check if [{}] can match", t, shard.shortSummary(), request);
+                        }
+                        canMatch[index] = true;
+                        if (pending.decrementAndGet() == 0) {
+                            performFirstPhases(shards, canMatch);
+                        }
+                    }
+                });
+            }
+        }
+
+        /**
+         * Starts the first phase on the given shards, skipping the ones that can't match if <tt>canMatch</tt> is set.
+         * Skipped shards are accounted as successful before any first phase starts, so that the first phase can't
+         * complete early, and at least one shard is always searched so that the response has the shape of a regular
+         * one.
+         */
+        private void performFirstPhases(ShardRouting[] shards, @Nullable boolean[] canMatch) {
+            if (canMatch != null) {
+                boolean anyMatch = false;
+                for (boolean match : canMatch) {
+                    anyMatch |= match;
+                }
+                if (!anyMatch) {
+                    canMatch[0] = true;
+                }
+                int shardIndex = -1;
+                for (final ShardIterator shardIt : shardsIts) {
+                    if (!canMatch[++shardIndex]) {
+                        successfulOps.incrementAndGet();
+                        skippedOps.incrementAndGet();
+                        totalOps.addAndGet(shardIt.remaining() + 1);
+                    }
+                }
+            }
             int shardIndex = -1;
             for (final ShardIterator shardIt : shardsIts) {
                 shardIndex++;
-                final ShardRouting shard = shardIt.nextOrNull();
+                if (canMatch != null && !canMatch[shardIndex]) {
+                    continue;
+                }
+                final ShardRouting shard = shards[shardIndex];
                 if (shard != null) {
                     performFirstPhase(shardIndex, shardIt, shard);
                 } else {
@@ -166,9 +282,12 @@ public abstract class TransportSearchTypeAction extends TransportAction<SearchRe
                 final DiscoveryNode node = nodes.get(shard.currentNodeId());
                 if (node == null) {
                     onFirstPhaseResult(shardIndex, shard, null, shardIt, new NoShardAvailableActionException(shardIt.shardId()));
+                } else if (task.isCancelled()) {
+                    onFirstPhaseResult(shardIndex, shard, node.id(), shardIt, cancelledException());
                 } else {
+                    task.addNode(node.id());
                     String[] filteringAliases = clusterState.metaData().filteringAliases(shard.index(), request.indices());
-                    sendExecuteFirstPhase(node, internalSearchRequest(shard, shardsIts.size(), request, filteringAliases, startTime, useSlowScroll), new SearchServiceListener<FirstResult>() {
+                    sendExecuteFirstPhase(node, internalSearchRequest(shard, shardsIts.size(), request, filteringAliases, startTime, useSlowScroll).parentTask(task.fullId()), new SearchServiceListener<FirstResult>() {
                         @Override
                         public void onResult(FirstResult result) {
                             onFirstPhaseResult(shardIndex, shard, result, shardIt);
@@ -262,6 +381,10 @@ public abstract class TransportSearchTypeAction extends TransportAction<SearchRe
             }
         }
 
+        private SearchCancelledException cancelledException() {
+            return new SearchCancelledException("search task [" + task.fullId() + "] was cancelled");
+        }
+
         private String executionFailureMsg(@Nullable ShardRouting shard, final ShardIterator shardIt, SearchRequest request, boolean lastShard) {
             if (shard != null) {
                 return shard.shortSummary() + ": Failed to execute [" + request + "] lastShard [" + lastShard + "]";
@@ -368,6 +491,9 @@ public abstract class TransportSearchTypeAction extends TransportAction<SearchRe
 
         protected final void processFirstPhaseResult(int shardIndex, ShardRouting shard, FirstResult result) {
             firstResults.set(shardIndex, result);
+            if (result instanceof QuerySearchResultProvider) {
+                aggregationsReducer.consume(((QuerySearchResultProvider) result).queryResult());
+            }
 
             if (logger.isTraceEnabled()) {
                 logger.trace("got first-phase result from {}", result != null ? result.shardTarget() : null);
@@ -383,6 +509,9 @@ public abstract class TransportSearchTypeAction extends TransportAction<SearchRe
         }
 
         final void innerMoveToSecondPhase() throws Exception {
+            if (task.isCancelled()) {
+                throw cancelledException();
+            }
             if (logger.isTraceEnabled()) {
                 StringBuilder sb = new StringBuilder();
                 boolean hadOne = false;
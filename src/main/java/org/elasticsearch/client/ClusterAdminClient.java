@@ -39,6 +39,11 @@ import org.elasticsearch.action.admin.cluster.node.shutdown.NodesShutdownRespons
 import org.elasticsearch.action.admin.cluster.node.stats.NodesStatsRequest;
 import org.elasticsearch.action.admin.cluster.node.stats.NodesStatsRequestBuilder;
 import org.elasticsearch.action.admin.cluster.node.stats.NodesStatsResponse;
+import org.elasticsearch.action.admin.cluster.node.tasks.CancelSearchTaskRequest;
+import org.elasticsearch.action.admin.cluster.node.tasks.CancelSearchTaskRequestBuilder;
+import org.elasticsearch.action.admin.cluster.node.tasks.ListSearchTasksRequest;
+import org.elasticsearch.action.admin.cluster.node.tasks.ListSearchTasksRequestBuilder;
+import org.elasticsearch.action.admin.cluster.node.tasks.SearchTasksResponse;
 import org.elasticsearch.action.admin.cluster.repositories.delete.DeleteRepositoryRequest;
 import org.elasticsearch.action.admin.cluster.repositories.delete.DeleteRepositoryRequestBuilder;
 import org.elasticsearch.action.admin.cluster.repositories.delete.DeleteRepositoryResponse;
@@ -243,6 +248,50 @@ public interface ClusterAdminClient {
 
     NodesHotThreadsRequestBuilder prepareNodesHotThreads(String... nodesIds);
 
+    /**
+     * Lists the searches in flight on the nodes of the cluster.
+     *
+     * @param request The list search tasks request
+     * @return The result future
+     */
+    ActionFuture<SearchTasksResponse> listSearchTasks(ListSearchTasksRequest request);
+
+    /**
+     * Lists the searches in flight on the nodes of the cluster.
+     *
+     * @param request  The list search tasks request
+     * @param listener A listener to be notified with a result
+     */
+    void listSearchTasks(ListSearchTasksRequest request, ActionListener<SearchTasksResponse> listener);
+
+    /**
+     * Lists the searches in flight on the nodes of the cluster.
+     */
+    ListSearchTasksRequestBuilder prepareListSearchTasks(String... nodesIds);
+
+    /**
+     * Cancels a search task and the searches of its shards.
+     *
+     * @param request The cancel search task request
+     * @return The result future
+     */
+    ActionFuture<SearchTasksResponse> cancelSearchTask(CancelSearchTaskRequest request);
+
+    /**
+     * Cancels a search task and the searches of its shards.
+     *
+     * @param request  The cancel search task request
+     * @param listener A listener to be notified with a result
+     */
+    void cancelSearchTask(CancelSearchTaskRequest request, ActionListener<SearchTasksResponse> listener);
+
+    /**
+     * Cancels a search task and the searches of its shards.
+     *
+     * @param taskId The full id of the task, <tt>node_id:id</tt>
+     */
+    CancelSearchTaskRequestBuilder prepareCancelSearchTask(String taskId);
+
     /**
      * Shutdown nodes in the cluster.
      *
@@ -45,6 +45,13 @@ import org.elasticsearch.action.admin.cluster.node.stats.NodesStatsAction;
 import org.elasticsearch.action.admin.cluster.node.stats.NodesStatsRequest;
 import org.elasticsearch.action.admin.cluster.node.stats.NodesStatsRequestBuilder;
 import org.elasticsearch.action.admin.cluster.node.stats.NodesStatsResponse;
+import org.elasticsearch.action.admin.cluster.node.tasks.CancelSearchTaskAction;
+import org.elasticsearch.action.admin.cluster.node.tasks.CancelSearchTaskRequest;
+import org.elasticsearch.action.admin.cluster.node.tasks.CancelSearchTaskRequestBuilder;
+import org.elasticsearch.action.admin.cluster.node.tasks.ListSearchTasksAction;
+import org.elasticsearch.action.admin.cluster.node.tasks.ListSearchTasksRequest;
+import org.elasticsearch.action.admin.cluster.node.tasks.ListSearchTasksRequestBuilder;
+import org.elasticsearch.action.admin.cluster.node.tasks.SearchTasksResponse;
 import org.elasticsearch.action.admin.cluster.repositories.delete.DeleteRepositoryAction;
 import org.elasticsearch.action.admin.cluster.repositories.delete.DeleteRepositoryRequest;
 import org.elasticsearch.action.admin.cluster.repositories.delete.DeleteRepositoryRequestBuilder;
@@ -233,6 +240,36 @@ public abstract class AbstractClusterAdminClient implements InternalClusterAdmin
         return new NodesHotThreadsRequestBuilder(this).setNodesIds(nodesIds);
     }
 
+    @Override
+    public ActionFuture<SearchTasksResponse> listSearchTasks(ListSearchTasksRequest request) {
+        return execute(ListSearchTasksAction.INSTANCE, request);
+    }
+
+    @Override
+    public void listSearchTasks(ListSearchTasksRequest request, ActionListener<SearchTasksResponse> listener) {
+        execute(ListSearchTasksAction.INSTANCE, request, listener);
+    }
+
+    @Override
+    public ListSearchTasksRequestBuilder prepareListSearchTasks(String... nodesIds) {
+        return new ListSearchTasksRequestBuilder(this).setNodesIds(nodesIds);
+    }
+
+    @Override
+    public ActionFuture<SearchTasksResponse> cancelSearchTask(CancelSearchTaskRequest request) {
+        return execute(CancelSearchTaskAction.INSTANCE, request);
+    }
+
+    @Override
+    public void cancelSearchTask(CancelSearchTaskRequest request, ActionListener<SearchTasksResponse> listener) {
+        execute(CancelSearchTaskAction.INSTANCE, request, listener);
+    }
+
+    @Override
+    public CancelSearchTaskRequestBuilder prepareCancelSearchTask(String taskId) {
+        return new CancelSearchTaskRequestBuilder(this).setTaskId(taskId);
+    }
+
     @Override
     public ActionFuture<NodesRestartResponse> nodesRestart(final NodesRestartRequest request) {
         return execute(NodesRestartAction.INSTANCE, request);
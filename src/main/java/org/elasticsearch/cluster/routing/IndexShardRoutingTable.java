@@ -22,6 +22,7 @@ package org.elasticsearch.cluster.routing;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.UnmodifiableIterator;
+import org.apache.lucene.util.CollectionUtil;
 import org.elasticsearch.cluster.node.DiscoveryNode;
 import org.elasticsearch.cluster.node.DiscoveryNodes;
 import org.elasticsearch.common.collect.MapBuilder;
@@ -302,6 +303,32 @@ public class IndexShardRoutingTable implements Iterable<ShardRouting> {
         return new PlainShardIterator(shardId, ordered);
     }
 
+    /**
+     * Returns an iterator over active and initializing shards, the active shards ordered by the rank of their node,
+     * lower ranks first. Active shards on nodes without a rank come first, so that they get searched and ranked, and
+     * ties are broken randomly. Initializing shards are the last to iterate through.
+     */
+    public ShardIterator activeInitializingShardsRankedIt(final Map<String, Double> nodeRanks) {
+        ArrayList<ShardRouting> ordered = new ArrayList<>(activeShards.size() + allInitializingShards.size());
+        ordered.addAll(shuffler.shuffle(activeShards));
+        if (ordered.size() > 1) {
+            // a stable sort, that keeps the shuffled order of equal ranks
+            CollectionUtil.timSort(ordered, new Comparator<ShardRouting>() {
+                @Override
+                public int compare(ShardRouting o1, ShardRouting o2) {
+                    return Double.compare(rank(o1), rank(o2));
+                }
+
+                private double rank(ShardRouting shard) {
+                    Double rank = nodeRanks.get(shard.currentNodeId());
+                    return rank == null ? Double.NEGATIVE_INFINITY : rank;
+                }
+            });
+        }
+        ordered.addAll(allInitializingShards);
+        return new PlainShardIterator(shardId, ordered);
+    }
+
     public ShardIterator assignedShardsRandomIt() {
         return new PlainShardIterator(shardId, shuffler.shuffle(assignedShards));
     }
@@ -0,0 +1,137 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.cluster.routing.operation;
+
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.io.stream.Streamable;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.common.xcontent.ToXContent;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentBuilderString;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The statistics a node collected about the other nodes for adaptive replica selection.
+ */
+public class AdaptiveSelectionStats implements Streamable, ToXContent {
+
+    private Map<String, Long> outgoingSearches;
+    private Map<String, ComputedNodeStats> nodeStats;
+
+    AdaptiveSelectionStats() {
+    }
+
+    public AdaptiveSelectionStats(Map<String, Long> outgoingSearches, Map<String, ComputedNodeStats> nodeStats) {
+        this.outgoingSearches = outgoingSearches;
+        this.nodeStats = nodeStats;
+    }
+
+    /**
+     * The number of searches sent to each node that didn't respond yet.
+     */
+    public Map<String, Long> getOutgoingSearches() {
+        return outgoingSearches;
+    }
+
+    public Map<String, ComputedNodeStats> getNodeStats() {
+        return nodeStats;
+    }
+
+    public static AdaptiveSelectionStats readOptionalAdaptiveSelectionStats(StreamInput in) throws IOException {
+        return in.readOptionalStreamable(new AdaptiveSelectionStats());
+    }
+
+    @Override
+    public void readFrom(StreamInput in) throws IOException {
+        int size = in.readVInt();
+        outgoingSearches = new HashMap<>(size);
+        for (int i = 0; i < size; i++) {
+            outgoingSearches.put(in.readString(), in.readVLong());
+        }
+        size = in.readVInt();
+        nodeStats = new HashMap<>(size);
+        for (int i = 0; i < size; i++) {
+            String nodeId = in.readString();
+            ComputedNodeStats stats = new ComputedNodeStats();
+            stats.readFrom(in);
+            nodeStats.put(nodeId, stats);
+        }
+    }
+
+    @Override
+    public void writeTo(StreamOutput out) throws IOException {
+        out.writeVInt(outgoingSearches.size());
+        for (Map.Entry<String, Long> entry : outgoingSearches.entrySet()) {
+            out.writeString(entry.getKey());
+            out.writeVLong(entry.getValue());
+        }
+        out.writeVInt(nodeStats.size());
+        for (Map.Entry<String, ComputedNodeStats> entry : nodeStats.entrySet()) {
+            out.writeString(entry.getKey());
+            entry.getValue().writeTo(out);
+        }
+    }
+
+    @Override
+    public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
+        builder.startObject(Fields.ADAPTIVE_SELECTION);
+        Set<String> nodeIds = new HashSet<>(outgoingSearches.keySet());
+        nodeIds.addAll(nodeStats.keySet());
+        for (String nodeId : nodeIds) {
+            builder.startObject(nodeId);
+            Long outgoing = outgoingSearches.get(nodeId);
+            builder.field(Fields.OUTGOING_SEARCHES, outgoing == null ? 0 : outgoing);
+            ComputedNodeStats stats = nodeStats.get(nodeId);
+            if (stats != null) {
+                builder.field(Fields.AVG_QUEUE_SIZE, stats.queueSize());
+                if (builder.humanReadable()) {
+                    builder.field(Fields.AVG_SERVICE_TIME, TimeValue.timeValueNanos(stats.serviceTime()).toString());
+                }
+                builder.field(Fields.AVG_SERVICE_TIME_NS, stats.serviceTime());
+                if (builder.humanReadable()) {
+                    builder.field(Fields.AVG_RESPONSE_TIME, TimeValue.timeValueNanos(stats.responseTime()).toString());
+                }
+                builder.field(Fields.AVG_RESPONSE_TIME_NS, stats.responseTime());
+                builder.field(Fields.RANK, String.format(Locale.ROOT, "%.1f", stats.rank()));
+            }
+            builder.endObject();
+        }
+        builder.endObject();
+        return builder;
+    }
+
+    static final class Fields {
+        static final XContentBuilderString ADAPTIVE_SELECTION = new XContentBuilderString("adaptive_selection");
+        static final XContentBuilderString OUTGOING_SEARCHES = new XContentBuilderString("outgoing_searches");
+        static final XContentBuilderString AVG_QUEUE_SIZE = new XContentBuilderString("avg_queue_size");
+        static final XContentBuilderString AVG_SERVICE_TIME = new XContentBuilderString("avg_service_time");
+        static final XContentBuilderString AVG_SERVICE_TIME_NS = new XContentBuilderString("avg_service_time_ns");
+        static final XContentBuilderString AVG_RESPONSE_TIME = new XContentBuilderString("avg_response_time");
+        static final XContentBuilderString AVG_RESPONSE_TIME_NS = new XContentBuilderString("avg_response_time_ns");
+        static final XContentBuilderString RANK = new XContentBuilderString("rank");
+    }
+}
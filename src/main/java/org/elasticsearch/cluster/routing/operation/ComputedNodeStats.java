@@ -0,0 +1,99 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.cluster.routing.operation;
+
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.io.stream.Streamable;
+
+import java.io.IOException;
+
+/**
+ * The statistics of a node used to rank it for adaptive replica selection, see {@link ResponseCollectorService}.
+ */
+public class ComputedNodeStats implements Streamable {
+
+    private int clientNum;
+    private long outgoingSearches;
+    private double queueSize;
+    private long responseTime;
+    private long serviceTime;
+
+    ComputedNodeStats() {
+    }
+
+    public ComputedNodeStats(int clientNum, long outgoingSearches, double queueSize, long responseTime, long serviceTime) {
+        this.clientNum = clientNum;
+        this.outgoingSearches = outgoingSearches;
+        this.queueSize = queueSize;
+        this.responseTime = responseTime;
+        this.serviceTime = serviceTime;
+    }
+
+    /**
+     * The moving average of the search queue size of the node.
+     */
+    public double queueSize() {
+        return queueSize;
+    }
+
+    /**
+     * The moving average of the response time of the node, in nanoseconds.
+     */
+    public long responseTime() {
+        return responseTime;
+    }
+
+    /**
+     * The moving average of the query phase time of the node, in nanoseconds.
+     */
+    public long serviceTime() {
+        return serviceTime;
+    }
+
+    /**
+     * The rank of the node, the lower the better.
+     */
+    public double rank() {
+        // in milliseconds, so that the cubed queue size doesn't dwarf the times
+        final double responseTimeMillis = responseTime / 1000000d;
+        final double serviceTimeMillis = serviceTime / 1000000d;
+        final double queue = 1 + outgoingSearches * clientNum + queueSize;
+        return responseTimeMillis - serviceTimeMillis + Math.pow(queue, 3) * serviceTimeMillis;
+    }
+
+    @Override
+    public void readFrom(StreamInput in) throws IOException {
+        clientNum = in.readVInt();
+        outgoingSearches = in.readVLong();
+        queueSize = in.readDouble();
+        responseTime = in.readVLong();
+        serviceTime = in.readVLong();
+    }
+
+    @Override
+    public void writeTo(StreamOutput out) throws IOException {
+        out.writeVInt(clientNum);
+        out.writeVLong(outgoingSearches);
+        out.writeDouble(queueSize);
+        out.writeVLong(responseTime);
+        out.writeVLong(serviceTime);
+    }
+}
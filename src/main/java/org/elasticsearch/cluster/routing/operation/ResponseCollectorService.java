@@ -0,0 +1,205 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.cluster.routing.operation;
+
+import org.elasticsearch.cluster.ClusterChangedEvent;
+import org.elasticsearch.cluster.ClusterStateListener;
+import org.elasticsearch.cluster.node.DiscoveryNode;
+import org.elasticsearch.common.Nullable;
+import org.elasticsearch.common.component.AbstractComponent;
+import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.metrics.ExponentiallyWeightedMovingAverage;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Collects the queue size, response time and service time of the search responses of every node, as seen from this
+ * node, and ranks the nodes for adaptive replica selection.
+ * <p/>
+ * The rank of a node follows the C3 replica selection: <tt>R - 1/mu + q^3/mu</tt>, where <tt>R</tt> is the moving
+ * average of the response time, <tt>1/mu</tt> the moving average of the service time reported by the node, and
+ * <tt>q</tt> the moving average of the search queue size of the node plus the searches this node still waits for,
+ * scaled by the number of nodes also sending searches to it. The lower the rank, the better the node.
+ * <p/>
+ * The operation routing, and so the cluster service, depend on this service, it is registered as a cluster state
+ * listener by {@link org.elasticsearch.search.action.SearchServiceTransportAction} to forget the nodes that left.
+ */
+public class ResponseCollectorService extends AbstractComponent implements ClusterStateListener {
+
+    /**
+     * The weight of the last response in the moving averages of a node.
+     */
+    private static final double ALPHA = 0.3;
+
+    private final ConcurrentMap<String, NodeStatistics> nodeIdToStats = ConcurrentCollections.newConcurrentMap();
+    private final ConcurrentMap<String, AtomicLong> outgoingSearches = ConcurrentCollections.newConcurrentMap();
+
+    @Inject
+    public ResponseCollectorService(Settings settings) {
+        super(settings);
+    }
+
+    @Override
+    public void clusterChanged(ClusterChangedEvent event) {
+        if (event.nodesRemoved()) {
+            for (DiscoveryNode removedNode : event.nodesDelta().removedNodes()) {
+                nodeIdToStats.remove(removedNode.id());
+                outgoingSearches.remove(removedNode.id());
+            }
+        }
+    }
+
+    /**
+     * Records a search response of the node, along with the load the node reported in it.
+     */
+    public void addNodeStatistics(String nodeId, int queueSize, long responseTimeNanos, long serviceTimeNanos) {
+        NodeStatistics stats = nodeIdToStats.get(nodeId);
+        if (stats == null) {
+            NodeStatistics newStats = new NodeStatistics();
+            stats = nodeIdToStats.putIfAbsent(nodeId, newStats);
+            if (stats == null) {
+                stats = newStats;
+            }
+        }
+        stats.add(queueSize, responseTimeNanos, serviceTimeNanos);
+    }
+
+    public void onSearchSent(String nodeId) {
+        AtomicLong counter = outgoingSearches.get(nodeId);
+        if (counter == null) {
+            AtomicLong newCounter = new AtomicLong();
+            counter = outgoingSearches.putIfAbsent(nodeId, newCounter);
+            if (counter == null) {
+                counter = newCounter;
+            }
+        }
+        counter.incrementAndGet();
+    }
+
+    public void onSearchDone(String nodeId) {
+        AtomicLong counter = outgoingSearches.get(nodeId);
+        if (counter != null && counter.decrementAndGet() < 0) {
+            // the node left and came back while searches were in flight
+            counter.set(0);
+        }
+    }
+
+    /**
+     * Returns the current rank of the nodes that responded to searches of this node.
+     */
+    public Map<String, Double> ranks() {
+        final int clientNum = Math.max(1, nodeIdToStats.size());
+        final Map<String, Double> ranks = new HashMap<>(nodeIdToStats.size());
+        for (Map.Entry<String, NodeStatistics> entry : nodeIdToStats.entrySet()) {
+            ranks.put(entry.getKey(), entry.getValue().compute(outgoingSearches(entry.getKey()), clientNum).rank());
+        }
+        return ranks;
+    }
+
+    /**
+     * Moves the statistics of the nodes that weren't selected by a search towards the statistics of the best of the
+     * selected ones, so that a node that was slow once gets searched again, and its statistics refreshed, once it
+     * isn't slow anymore.
+     */
+    public void adjustNotSelected(Set<String> selectedNodeIds, Set<String> notSelectedNodeIds) {
+        final int clientNum = Math.max(1, nodeIdToStats.size());
+        NodeStatistics best = null;
+        double bestRank = Double.POSITIVE_INFINITY;
+        for (String nodeId : selectedNodeIds) {
+            final NodeStatistics stats = nodeIdToStats.get(nodeId);
+            if (stats != null) {
+                final double rank = stats.compute(outgoingSearches(nodeId), clientNum).rank();
+                if (rank < bestRank) {
+                    best = stats;
+                    bestRank = rank;
+                }
+            }
+        }
+        if (best == null) {
+            return;
+        }
+        for (String nodeId : notSelectedNodeIds) {
+            final NodeStatistics stats = nodeIdToStats.get(nodeId);
+            if (stats != null) {
+                stats.moveTowards(best);
+            }
+        }
+    }
+
+    @Nullable
+    public ComputedNodeStats nodeStatistics(String nodeId) {
+        final NodeStatistics stats = nodeIdToStats.get(nodeId);
+        if (stats == null) {
+            return null;
+        }
+        return stats.compute(outgoingSearches(nodeId), Math.max(1, nodeIdToStats.size()));
+    }
+
+    public AdaptiveSelectionStats stats() {
+        final int clientNum = Math.max(1, nodeIdToStats.size());
+        final Map<String, Long> outgoing = new HashMap<>(outgoingSearches.size());
+        for (Map.Entry<String, AtomicLong> entry : outgoingSearches.entrySet()) {
+            outgoing.put(entry.getKey(), entry.getValue().get());
+        }
+        final Map<String, ComputedNodeStats> computed = new HashMap<>(nodeIdToStats.size());
+        for (Map.Entry<String, NodeStatistics> entry : nodeIdToStats.entrySet()) {
+            computed.put(entry.getKey(), entry.getValue().compute(outgoingSearches(entry.getKey()), clientNum));
+        }
+        return new AdaptiveSelectionStats(outgoing, computed);
+    }
+
+    private long outgoingSearches(String nodeId) {
+        final AtomicLong counter = outgoingSearches.get(nodeId);
+        return counter == null ? 0 : counter.get();
+    }
+
+    private static class NodeStatistics {
+
+        private final ExponentiallyWeightedMovingAverage queueSize = new ExponentiallyWeightedMovingAverage(ALPHA);
+        private final ExponentiallyWeightedMovingAverage responseTime = new ExponentiallyWeightedMovingAverage(ALPHA);
+        // the service time the node reports is already averaged
+        private volatile double serviceTime;
+
+        void add(int queueSize, long responseTimeNanos, long serviceTimeNanos) {
+            if (queueSize >= 0) {
+                this.queueSize.addValue(queueSize);
+            }
+            this.responseTime.addValue(responseTimeNanos);
+            if (serviceTimeNanos >= 0) {
+                this.serviceTime = serviceTimeNanos;
+            }
+        }
+
+        void moveTowards(NodeStatistics other) {
+            queueSize.addValue((queueSize.getAverage() + other.queueSize.getAverage()) / 2);
+            responseTime.addValue((responseTime.getAverage() + other.responseTime.getAverage()) / 2);
+        }
+
+        ComputedNodeStats compute(long outgoingSearches, int clientNum) {
+            return new ComputedNodeStats(clientNum, outgoingSearches, queueSize.getAverage(), (long) responseTime.getAverage(), (long) serviceTime);
+        }
+    }
+}
@@ -27,8 +27,10 @@ import org.elasticsearch.cluster.routing.GroupShardsIterator;
 import org.elasticsearch.cluster.routing.IndexRoutingTable;
 import org.elasticsearch.cluster.routing.IndexShardRoutingTable;
 import org.elasticsearch.cluster.routing.ShardIterator;
+import org.elasticsearch.cluster.routing.ShardRouting;
 import org.elasticsearch.cluster.routing.allocation.decider.AwarenessAllocationDecider;
 import org.elasticsearch.cluster.routing.operation.OperationRouting;
+import org.elasticsearch.cluster.routing.operation.ResponseCollectorService;
 import org.elasticsearch.cluster.routing.operation.hash.HashFunction;
 import org.elasticsearch.cluster.routing.operation.hash.djb.DjbHashFunction;
 import org.elasticsearch.common.Nullable;
@@ -41,6 +43,7 @@ import org.elasticsearch.index.Index;
 import org.elasticsearch.index.IndexShardMissingException;
 import org.elasticsearch.index.shard.ShardId;
 import org.elasticsearch.indices.IndexMissingException;
+import org.elasticsearch.node.settings.NodeSettingsService;
 
 import java.util.Collections;
 import java.util.HashSet;
@@ -52,18 +55,43 @@ import java.util.Set;
  */
 public class PlainOperationRouting extends AbstractComponent implements OperationRouting {
 
+    public static final String CLUSTER_ROUTING_USE_ADAPTIVE_REPLICA_SELECTION = "cluster.routing.use_adaptive_replica_selection";
+
+    class ApplySettings implements NodeSettingsService.Listener {
+        @Override
+        public void onRefreshSettings(Settings settings) {
+            boolean useAdaptiveReplicaSelection = settings.getAsBoolean(CLUSTER_ROUTING_USE_ADAPTIVE_REPLICA_SELECTION, PlainOperationRouting.this.useAdaptiveReplicaSelection);
+            if (useAdaptiveReplicaSelection != PlainOperationRouting.this.useAdaptiveReplicaSelection) {
+                logger.info("updating [{}] from [{}] to [{}]", CLUSTER_ROUTING_USE_ADAPTIVE_REPLICA_SELECTION, PlainOperationRouting.this.useAdaptiveReplicaSelection, useAdaptiveReplicaSelection);
+                PlainOperationRouting.this.useAdaptiveReplicaSelection = useAdaptiveReplicaSelection;
+            }
+        }
+    }
+
     private final HashFunction hashFunction;
 
     private final boolean useType;
 
     private final AwarenessAllocationDecider awarenessAllocationDecider;
 
-    @Inject
+    private final ResponseCollectorService responseCollectorService;
+
+    private volatile boolean useAdaptiveReplicaSelection;
+
     public PlainOperationRouting(Settings indexSettings, HashFunction hashFunction, AwarenessAllocationDecider awarenessAllocationDecider) {
+        this(indexSettings, hashFunction, awarenessAllocationDecider, new ResponseCollectorService(indexSettings), new NodeSettingsService(indexSettings));
+    }
+
+    @Inject
+    public PlainOperationRouting(Settings indexSettings, HashFunction hashFunction, AwarenessAllocationDecider awarenessAllocationDecider,
+                                 ResponseCollectorService responseCollectorService, NodeSettingsService nodeSettingsService) {
         super(indexSettings);
         this.hashFunction = hashFunction;
         this.useType = indexSettings.getAsBoolean("cluster.routing.operation.use_type", false);
         this.awarenessAllocationDecider = awarenessAllocationDecider;
+        this.responseCollectorService = responseCollectorService;
+        this.useAdaptiveReplicaSelection = indexSettings.getAsBoolean(CLUSTER_ROUTING_USE_ADAPTIVE_REPLICA_SELECTION, false);
+        nodeSettingsService.addListener(new ApplySettings());
     }
 
     @Override
@@ -78,12 +106,21 @@ public class PlainOperationRouting extends AbstractComponent implements Operatio
 
     @Override
     public ShardIterator getShards(ClusterState clusterState, String index, String type, String id, @Nullable String routing, @Nullable String preference) throws IndexMissingException, IndexShardMissingException {
-        return preferenceActiveShardIterator(shards(clusterState, index, type, id, routing), clusterState.nodes().localNodeId(), clusterState.nodes(), preference);
+        return getShards(clusterState, shards(clusterState, index, type, id, routing), preference);
     }
 
     @Override
     public ShardIterator getShards(ClusterState clusterState, String index, int shardId, @Nullable String preference) throws IndexMissingException, IndexShardMissingException {
-        return preferenceActiveShardIterator(shards(clusterState, index, shardId), clusterState.nodes().localNodeId(), clusterState.nodes(), preference);
+        return getShards(clusterState, shards(clusterState, index, shardId), preference);
+    }
+
+    private ShardIterator getShards(ClusterState clusterState, IndexShardRoutingTable indexShard, @Nullable String preference) {
+        final Map<String, Double> nodeRanks = nodeRanks();
+        ShardIterator iterator = preferenceActiveShardIterator(indexShard, clusterState.nodes().localNodeId(), clusterState.nodes(), preference, nodeRanks);
+        if (nodeRanks != null && iterator != null && (preference == null || preference.isEmpty())) {
+            adjustNotSelected(Collections.singleton(iterator));
+        }
+        return iterator;
     }
 
     @Override
@@ -121,12 +158,16 @@ public class PlainOperationRouting extends AbstractComponent implements Operatio
     public GroupShardsIterator searchShards(ClusterState clusterState, String[] indices, String[] concreteIndices, @Nullable Map<String, Set<String>> routing, @Nullable String preference) throws IndexMissingException {
         final Set<IndexShardRoutingTable> shards = computeTargetedShards(clusterState, concreteIndices, routing);
         final Set<ShardIterator> set = new HashSet<>(shards.size());
+        final Map<String, Double> nodeRanks = nodeRanks();
         for (IndexShardRoutingTable shard : shards) {
-            ShardIterator iterator = preferenceActiveShardIterator(shard, clusterState.nodes().localNodeId(), clusterState.nodes(), preference);
+            ShardIterator iterator = preferenceActiveShardIterator(shard, clusterState.nodes().localNodeId(), clusterState.nodes(), preference, nodeRanks);
             if (iterator != null) {
                 set.add(iterator);
             }
         }
+        if (nodeRanks != null && (preference == null || preference.isEmpty())) {
+            adjustNotSelected(set);
+        }
         return new GroupShardsIterator(set);
     }
 
@@ -158,14 +199,58 @@ public class PlainOperationRouting extends AbstractComponent implements Operatio
         return set;
     }
 
-    private ShardIterator preferenceActiveShardIterator(IndexShardRoutingTable indexShard, String localNodeId, DiscoveryNodes nodes, @Nullable String preference) {
-        if (preference == null || preference.isEmpty()) {
-            String[] awarenessAttributes = awarenessAllocationDecider.awarenessAttributes();
-            if (awarenessAttributes.length == 0) {
-                return indexShard.activeInitializingShardsRandomIt();
-            } else {
-                return indexShard.preferAttributesActiveInitializingShardsIt(awarenessAttributes, nodes);
+    /**
+     * The ranks of the nodes if adaptive replica selection is enabled and applies, <tt>null</tt> otherwise.
+     */
+    @Nullable
+    private Map<String, Double> nodeRanks() {
+        if (!useAdaptiveReplicaSelection || awarenessAllocationDecider.awarenessAttributes().length > 0) {
+            return null;
+        }
+        return responseCollectorService.ranks();
+    }
+
+    /**
+     * Lets the nodes that were ranked out of all the ranked iterators catch up with the best selected node.
+     */
+    private void adjustNotSelected(Iterable<ShardIterator> iterators) {
+        final Set<String> selected = new HashSet<>();
+        final Set<String> notSelected = new HashSet<>();
+        for (ShardIterator iterator : iterators) {
+            final ShardRouting first = iterator.nextOrNull();
+            iterator.reset();
+            if (first == null) {
+                continue;
             }
+            selected.add(first.currentNodeId());
+            for (ShardRouting shard : iterator.asUnordered()) {
+                if (shard.active()) {
+                    notSelected.add(shard.currentNodeId());
+                }
+            }
+        }
+        notSelected.removeAll(selected);
+        if (!notSelected.isEmpty()) {
+            responseCollectorService.adjustNotSelected(selected, notSelected);
+        }
+    }
+
+    private ShardIterator defaultActiveShardIterator(IndexShardRoutingTable indexShard, DiscoveryNodes nodes, @Nullable Map<String, Double> nodeRanks) {
+        String[] awarenessAttributes = awarenessAllocationDecider.awarenessAttributes();
+        if (awarenessAttributes.length == 0) {
+            if (nodeRanks != null) {
+                return indexShard.activeInitializingShardsRankedIt(nodeRanks);
+            }
+            return indexShard.activeInitializingShardsRandomIt();
+        } else {
+            return indexShard.preferAttributesActiveInitializingShardsIt(awarenessAttributes, nodes);
+        }
+    }
+
+    private ShardIterator preferenceActiveShardIterator(IndexShardRoutingTable indexShard, String localNodeId, DiscoveryNodes nodes, @Nullable String preference,
+                                                        @Nullable Map<String, Double> nodeRanks) {
+        if (preference == null || preference.isEmpty()) {
+            return defaultActiveShardIterator(indexShard, nodes, nodeRanks);
         }
         if (preference.charAt(0) == '_') {
             if (preference.startsWith("_shards:")) {
@@ -190,12 +275,7 @@ public class PlainOperationRouting extends AbstractComponent implements Operatio
                 }
                 // no more preference
                 if (index == -1 || index == preference.length() - 1) {
-                    String[] awarenessAttributes = awarenessAllocationDecider.awarenessAttributes();
-                    if (awarenessAttributes.length == 0) {
-                        return indexShard.activeInitializingShardsRandomIt();
-                    } else {
-                        return indexShard.preferAttributesActiveInitializingShardsIt(awarenessAttributes, nodes);
-                    }
+                    return defaultActiveShardIterator(indexShard, nodes, nodeRanks);
                 } else {
                     // update the preference and continue
                     preference = preference.substring(index + 1);
@@ -18,6 +18,7 @@
  */
 package org.elasticsearch.common.breaker;
 
+import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.logging.ESLogger;
 import org.elasticsearch.common.unit.ByteSizeValue;
 
@@ -25,13 +26,35 @@ import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * MemoryCircuitBreaker is a circuit breaker that breaks once a
- * configurable memory limit has been reached.
+ * configurable memory limit has been reached. Breakers can have a
+ * {@link Parent} that is checked every time bytes are added, which
+ * allows to put a limit on the total memory used by several breakers.
  */
 public class MemoryCircuitBreaker {
 
+    public static final String FIELDDATA = "fielddata";
+    public static final String REQUEST = "request";
+    public static final String PARENT = "parent";
+
+    /**
+     * A breaker that limits the memory used by its children.
+     */
+    public interface Parent {
+
+        /**
+         * Check whether the memory used by all the children is still under
+         * the limit, this is called after a child accounted for new bytes.
+         * @throws CircuitBreakingException if the limit is exceeded
+         */
+        void checkParentLimit(String label) throws CircuitBreakingException;
+    }
+
+    private final String name;
     private final long memoryBytesLimit;
     private final double overheadConstant;
     private final AtomicLong used;
+    private final AtomicLong trippedCount;
+    private final Parent parent;
     private final ESLogger logger;
 
 
@@ -43,14 +66,7 @@ public class MemoryCircuitBreaker {
      * @param overheadConstant constant multiplier for byte estimations
      */
     public MemoryCircuitBreaker(ByteSizeValue limit, double overheadConstant, ESLogger logger) {
-        this.memoryBytesLimit = limit.bytes();
-        this.overheadConstant = overheadConstant;
-        this.used = new AtomicLong(0);
-        this.logger = logger;
-        if (logger.isTraceEnabled()) {
-            logger.trace("Creating MemoryCircuitBreaker with a limit of {} bytes ({}) and a overhead constant of {}",
-                    this.memoryBytesLimit, limit, this.overheadConstant);
-        }
+        this(limit, overheadConstant, null, logger);
     }
 
     /**
@@ -63,17 +79,38 @@ public class MemoryCircuitBreaker {
      * @param oldBreaker the previous circuit breaker to inherit the used value from (starting offset)
      */
     public MemoryCircuitBreaker(ByteSizeValue limit, double overheadConstant, MemoryCircuitBreaker oldBreaker, ESLogger logger) {
+        this(FIELDDATA, limit, overheadConstant, oldBreaker, null, logger);
+    }
+
+    /**
+     * Create a named circuit breaker that will break if the number of
+     * estimated bytes grows above the limit or if its parent trips. All
+     * estimations will be multiplied by the given overheadConstant. Uses
+     * the given oldBreaker to initialize the starting offset and the
+     * number of times the breaker tripped.
+     * @param name the name of the breaker, used in messages and stats
+     * @param limit circuit breaker limit
+     * @param overheadConstant constant multiplier for byte estimations
+     * @param oldBreaker the previous circuit breaker to inherit the used value from (starting offset)
+     * @param parent the breaker to check once bytes have been added, may be null
+     */
+    public MemoryCircuitBreaker(String name, ByteSizeValue limit, double overheadConstant, @Nullable MemoryCircuitBreaker oldBreaker,
+                                @Nullable Parent parent, ESLogger logger) {
+        this.name = name;
         this.memoryBytesLimit = limit.bytes();
         this.overheadConstant = overheadConstant;
         if (oldBreaker == null) {
             this.used = new AtomicLong(0);
+            this.trippedCount = new AtomicLong(0);
         } else {
             this.used = oldBreaker.used;
+            this.trippedCount = oldBreaker.trippedCount;
         }
+        this.parent = parent;
         this.logger = logger;
         if (logger.isTraceEnabled()) {
-            logger.trace("Creating MemoryCircuitBreaker with a limit of {} bytes ({}) and a overhead constant of {}",
-                    this.memoryBytesLimit, limit, this.overheadConstant);
+            logger.trace("Creating MemoryCircuitBreaker [{}] with a limit of {} bytes ({}) and a overhead constant of {}",
+                    this.name, this.memoryBytesLimit, limit, this.overheadConstant);
         }
     }
 
@@ -82,7 +119,8 @@ public class MemoryCircuitBreaker {
      * @throws CircuitBreakingException
      */
     public void circuitBreak(String fieldName) throws CircuitBreakingException {
-        throw new CircuitBreakingException("Data too large, data for field [" + fieldName + "] would be larger than limit of [" +
+        this.trippedCount.incrementAndGet();
+        throw new CircuitBreakingException("[" + name + "] Data too large, data for field [" + fieldName + "] would be larger than limit of [" +
                 memoryBytesLimit + "/" + new ByteSizeValue(memoryBytesLimit) + "]");
     }
 
@@ -111,6 +149,7 @@ public class MemoryCircuitBreaker {
                 logger.trace("Adding [{}][{}] to used bytes [new used: [{}], limit: [-1b]]",
                         new ByteSizeValue(bytes), fieldName, new ByteSizeValue(newUsed));
             }
+            checkParentLimit(bytes, fieldName);
             return newUsed;
         }
 
@@ -138,9 +177,22 @@ public class MemoryCircuitBreaker {
             // underneath us, if it has, keep trying until we are able to set it
         } while (!this.used.compareAndSet(currentUsed, newUsed));
 
+        checkParentLimit(bytes, fieldName);
         return newUsed;
     }
 
+    private void checkParentLimit(long bytes, String fieldName) throws CircuitBreakingException {
+        if (parent != null) {
+            try {
+                parent.checkParentLimit(fieldName);
+            } catch (CircuitBreakingException e) {
+                // the bytes are not used after all
+                this.used.addAndGet(-bytes);
+                throw e;
+            }
+        }
+    }
+
     /**
      * Add an <b>exact</b> number of bytes, not checking for tripping the
      * circuit breaker. This bypasses the overheadConstant multiplication.
@@ -176,4 +228,18 @@ public class MemoryCircuitBreaker {
     public double getOverhead() {
         return this.overheadConstant;
     }
+
+    /**
+     * @return the number of times the breaker has tripped
+     */
+    public long getTrippedCount() {
+        return this.trippedCount.get();
+    }
+
+    /**
+     * @return the name of the breaker
+     */
+    public String getName() {
+        return this.name;
+    }
 }
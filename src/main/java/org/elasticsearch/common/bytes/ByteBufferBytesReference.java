@@ -67,7 +67,8 @@ public class ByteBufferBytesReference implements BytesReference {
 
     @Override
     public StreamInput streamInput() {
-        return new ByteBufferStreamInput(buffer);
+        // duplicate, reading the stream must not move the position of this reference
+        return new ByteBufferStreamInput(buffer.duplicate());
     }
 
     @Override
@@ -19,12 +19,18 @@
 
 package org.elasticsearch.common.io;
 
+import org.apache.lucene.store.MMapDirectory;
 import org.apache.lucene.util.IOUtils;
 import org.elasticsearch.common.logging.ESLogger;
 
 import java.io.File;
 import java.io.FileFilter;
 import java.io.IOException;
+import java.lang.reflect.Method;
+import java.nio.MappedByteBuffer;
+import java.security.AccessController;
+import java.security.PrivilegedActionException;
+import java.security.PrivilegedExceptionAction;
 
 /**
  *
@@ -183,4 +189,31 @@ public class FileSystemUtils {
             // ignore
         }
     }
+
+    /**
+     * Unmaps a memory mapped buffer right away rather than when it is garbage collected, which releases its address
+     * space and lets the file be truncated or deleted on all platforms. The buffer, and any view over it, must not be
+     * accessed anymore. Does nothing if unmapping isn't supported by the JVM.
+     */
+    public static void unmap(final MappedByteBuffer buffer) {
+        if (!MMapDirectory.UNMAP_SUPPORTED) {
+            return;
+        }
+        try {
+            AccessController.doPrivileged(new PrivilegedExceptionAction<Void>() {
+                @Override
+                public Void run() throws Exception {
+                    final Method getCleanerMethod = buffer.getClass().getMethod("cleaner");
+                    getCleanerMethod.setAccessible(true);
+                    final Object cleaner = getCleanerMethod.invoke(buffer);
+                    if (cleaner != null) {
+                        cleaner.getClass().getMethod("clean").invoke(cleaner);
+                    }
+                    return null;
+                }
+            });
+        } catch (PrivilegedActionException e) {
+            // ignore, the mapping is released once it is garbage collected
+        }
+    }
 }
@@ -18,6 +18,9 @@
  */
 package org.elasticsearch.common.io.stream;
 
+import org.elasticsearch.common.bytes.ByteBufferBytesReference;
+import org.elasticsearch.common.bytes.BytesReference;
+
 import java.io.EOFException;
 import java.io.IOException;
 import java.nio.ByteBuffer;
@@ -72,12 +75,26 @@ public class ByteBufferStreamInput extends StreamInput {
 
     @Override
     public void readBytes(byte[] b, int offset, int len) throws IOException {
-        if (buffer.remaining() > len) {
+        if (buffer.remaining() < len) {
             throw new EOFException();
         }
         buffer.get(b, offset, len);
     }
 
+    /**
+     * Returns a view over the underlying buffer rather than a copy.
+     */
+    @Override
+    public BytesReference readBytesReference(int length) throws IOException {
+        if (buffer.remaining() < length) {
+            throw new EOFException();
+        }
+        ByteBuffer slice = buffer.duplicate();
+        slice.limit(slice.position() + length);
+        buffer.position(buffer.position() + length);
+        return new ByteBufferBytesReference(slice.slice());
+    }
+
     @Override
     public void reset() throws IOException {
         buffer.reset();
@@ -145,6 +145,13 @@ public final class XFilteredQuery extends Query {
         return rawFilter;
     }
 
+    /**
+     * Returns the strategy used to apply the filter
+     */
+    public FilterStrategy getFilterStrategy() {
+        return strategy;
+    }
+
     // inherit javadoc
     @Override
     public void extractTerms(Set<Term> terms) {
@@ -0,0 +1,222 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.common.lucene.uid;
+
+import org.apache.lucene.index.AtomicReader;
+import org.apache.lucene.index.AtomicReaderContext;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.SegmentReader;
+import org.apache.lucene.index.Terms;
+import org.apache.lucene.index.TermsEnum;
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.ElasticsearchIllegalStateException;
+import org.elasticsearch.ExceptionsHelper;
+import org.elasticsearch.common.lucene.SegmentReaderUtils;
+import org.elasticsearch.common.util.BloomFilter;
+import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
+import org.elasticsearch.index.codec.postingsformat.BloomFilterPostingsFormat;
+import org.elasticsearch.index.mapper.internal.UidFieldMapper;
+
+import java.io.IOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Caches, per segment, a bloom filter of the uids of the segment along with its smallest and largest uid, so that
+ * version lookups can skip the segments that can't contain a uid without seeking their terms dictionary. This
+ * works whatever the postings format of the <tt>_uid</tt> field is.
+ * <p/>
+ * Filters are meant to be built when segments are warmed, see {@link #warm(IndexReader)}, so that indexing and get
+ * threads don't pay for them. A lookup that hits a segment that wasn't warmed builds its filter, concurrent lookups
+ * on the same segment wait for it rather than building it again. Filters are dropped once their segment is closed.
+ * Segments are immutable, deletes don't add uids, so a filter stays valid for the whole life of its segment.
+ * Segments with less than <tt>minSegmentSize</tt> documents are cheap to seek and churn with every refresh, they
+ * are never filtered, nor are segments whose <tt>_uid</tt> postings already have a loaded bloom filter.
+ */
+public class UidFilterCache implements SegmentReader.CoreClosedListener {
+
+    private final ConcurrentMap<Object, FutureTask<UidFilter>> filters = ConcurrentCollections.newConcurrentMap();
+    private final AtomicLong sizeInBytes = new AtomicLong();
+
+    private final BloomFilter.Factory bloomFilterFactory;
+    private final int minSegmentSize;
+
+    public UidFilterCache(BloomFilter.Factory bloomFilterFactory, int minSegmentSize) {
+        this.bloomFilterFactory = bloomFilterFactory;
+        this.minSegmentSize = minSegmentSize;
+    }
+
+    /**
+     * Builds the filters of the segments of the given reader that don't have one yet.
+     */
+    public void warm(IndexReader reader) throws IOException {
+        for (AtomicReaderContext context : reader.leaves()) {
+            if (context.reader().maxDoc() >= minSegmentSize) {
+                filter(context.reader());
+            }
+        }
+    }
+
+    /**
+     * Returns <tt>false</tt> if the segment definitely doesn't contain the uid, <tt>true</tt> if it might.
+     */
+    public boolean mightContain(AtomicReaderContext context, BytesRef uid) throws IOException {
+        final AtomicReader reader = context.reader();
+        if (reader.maxDoc() < minSegmentSize) {
+            return true;
+        }
+        return filter(reader).mightContain(uid);
+    }
+
+    private UidFilter filter(final AtomicReader reader) throws IOException {
+        final Object key = reader.getCoreCacheKey();
+        FutureTask<UidFilter> future = filters.get(key);
+        if (future == null) {
+            // registered before the filter is published so that it can't outlive its segment, registering it
+            // several times is fine. Readers we can't be notified of the close of are never filtered.
+            if (!SegmentReaderUtils.registerCoreListener(reader, this)) {
+                return UidFilter.NO_FILTER;
+            }
+            final FutureTask<UidFilter> newFuture = new FutureTask<>(new Callable<UidFilter>() {
+                @Override
+                public UidFilter call() throws Exception {
+                    return build(reader);
+                }
+            });
+            future = filters.putIfAbsent(key, newFuture);
+            if (future == null) {
+                future = newFuture;
+                // built by the thread that published it, concurrent lookups wait for it
+                newFuture.run();
+                try {
+                    sizeInBytes.addAndGet(newFuture.get().sizeInBytes());
+                } catch (Exception e) {
+                    // let the next lookup try again
+                    filters.remove(key, newFuture);
+                }
+            }
+        }
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ElasticsearchIllegalStateException("interrupted while waiting for the uid filter to be built", e);
+        } catch (ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw ExceptionsHelper.convertToRuntime(cause);
+        }
+    }
+
+    private UidFilter build(AtomicReader reader) throws IOException {
+        final Terms terms = reader.terms(UidFieldMapper.NAME);
+        if (terms == null || terms instanceof BloomFilterPostingsFormat.BloomFilteredTerms) {
+            return UidFilter.NO_FILTER;
+        }
+        long size = terms.size();
+        if (size < 0) {
+            size = reader.maxDoc();
+        }
+        final BloomFilter bloomFilter = bloomFilterFactory.createFilter((int) Math.min(Integer.MAX_VALUE, size));
+        final TermsEnum termsEnum = terms.iterator(null);
+        BytesRef min = null;
+        // the terms enum reuses its bytes, they can't be read once it is exhausted
+        final BytesRef max = new BytesRef();
+        for (BytesRef term = termsEnum.next(); term != null; term = termsEnum.next()) {
+            if (min == null) {
+                min = BytesRef.deepCopyOf(term);
+            }
+            max.copyBytes(term);
+            bloomFilter.put(term);
+        }
+        if (min == null) {
+            return UidFilter.NO_FILTER;
+        }
+        return new UidFilter(bloomFilter, min, max);
+    }
+
+    @Override
+    public void onClose(Object ownerCoreCacheKey) {
+        final FutureTask<UidFilter> future = filters.remove(ownerCoreCacheKey);
+        if (future != null) {
+            try {
+                // the segment is closed, so the filter was built by the lookup that published it
+                sizeInBytes.addAndGet(-future.get().sizeInBytes());
+            } catch (Exception e) {
+                // it failed to build and was never accounted
+            }
+        }
+    }
+
+    /**
+     * The memory used by the cached filters.
+     */
+    public long sizeInBytes() {
+        return sizeInBytes.get();
+    }
+
+    /**
+     * The number of cached filters.
+     */
+    public int size() {
+        return filters.size();
+    }
+
+    static final class UidFilter {
+
+        static final UidFilter NO_FILTER = new UidFilter(null, null, null);
+
+        private final BloomFilter bloomFilter;
+        private final BytesRef min;
+        private final BytesRef max;
+
+        UidFilter(BloomFilter bloomFilter, BytesRef min, BytesRef max) {
+            this.bloomFilter = bloomFilter;
+            this.min = min;
+            this.max = max;
+        }
+
+        boolean mightContain(BytesRef uid) {
+            if (bloomFilter == null) {
+                return true;
+            }
+            // the range check only skips segments whose uids are clustered, such as increasing ids set by the client,
+            // the auto generated ids are random and always fall between the smallest and largest uid of a segment
+            if (uid.compareTo(min) < 0 || uid.compareTo(max) > 0) {
+                return false;
+            }
+            return bloomFilter.mightContain(uid);
+        }
+
+        long sizeInBytes() {
+            if (bloomFilter == null) {
+                return 0;
+            }
+            return bloomFilter.getSizeInBytes() + min.length + max.length;
+        }
+    }
+}
@@ -22,11 +22,14 @@ package org.elasticsearch.common.lucene.uid;
 import org.apache.lucene.index.*;
 import org.apache.lucene.util.Bits;
 import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.InPlaceMergeSorter;
+import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.Numbers;
 import org.elasticsearch.index.mapper.internal.UidFieldMapper;
 import org.elasticsearch.index.mapper.internal.VersionFieldMapper;
 
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.List;
 
 /** Utility class to resolve the Lucene doc ID and version for a given uid. */
@@ -58,10 +61,21 @@ public class Versions {
      * </ul>
      */
     public static DocIdAndVersion loadDocIdAndVersion(IndexReader reader, Term term) throws IOException {
+        return loadDocIdAndVersion(reader, term, null);
+    }
+
+    /**
+     * Same as {@link #loadDocIdAndVersion(IndexReader, Term)}, skipping the segments that the given filter cache
+     * knows can't contain the uid.
+     */
+    public static DocIdAndVersion loadDocIdAndVersion(IndexReader reader, Term term, @Nullable UidFilterCache filterCache) throws IOException {
         // iterate backwards to optimize for the frequently updated documents
         // which are likely to be in the last segments
         final List<AtomicReaderContext> leaves = reader.leaves();
         for (int i = leaves.size() - 1; i >= 0; --i) {
+            if (filterCache != null && !filterCache.mightContain(leaves.get(i), term.bytes())) {
+                continue;
+            }
             final DocIdAndVersion docIdAndVersion = loadDocIdAndVersion(leaves.get(i), term);
             if (docIdAndVersion != null) {
                 assert docIdAndVersion.version != NOT_FOUND;
@@ -79,19 +93,91 @@ public class Versions {
      * </ul>
      */
     public static long loadVersion(IndexReader reader, Term term) throws IOException {
-        final DocIdAndVersion docIdAndVersion = loadDocIdAndVersion(reader, term);
+        return loadVersion(reader, term, null);
+    }
+
+    /**
+     * Same as {@link #loadVersion(IndexReader, Term)}, skipping the segments that the given filter cache knows
+     * can't contain the uid.
+     */
+    public static long loadVersion(IndexReader reader, Term term, @Nullable UidFilterCache filterCache) throws IOException {
+        final DocIdAndVersion docIdAndVersion = loadDocIdAndVersion(reader, term, filterCache);
         return docIdAndVersion == null ? NOT_FOUND : docIdAndVersion.version;
     }
 
+    /**
+     * Same as {@link #loadVersion(IndexReader, Term)} for several uids at once. Each segment is only visited once,
+     * with a single terms enum that seeks the uids in sorted order, and uids that are found in a recent segment are
+     * not looked up in older ones.
+     */
+    public static long[] loadVersions(IndexReader reader, final Term[] terms) throws IOException {
+        return loadVersions(reader, terms, null);
+    }
+
+    /**
+     * Same as {@link #loadVersions(IndexReader, Term[])}, skipping the segments that the given filter cache knows
+     * can't contain a uid.
+     */
+    public static long[] loadVersions(IndexReader reader, final Term[] terms, @Nullable UidFilterCache filterCache) throws IOException {
+        final long[] versions = new long[terms.length];
+        Arrays.fill(versions, NOT_FOUND);
+        final int[] order = new int[terms.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        new InPlaceMergeSorter() {
+            @Override
+            protected void swap(int i, int j) {
+                final int tmp = order[i];
+                order[i] = order[j];
+                order[j] = tmp;
+            }
+
+            @Override
+            protected int compare(int i, int j) {
+                return terms[order[i]].bytes().compareTo(terms[order[j]].bytes());
+            }
+        }.sort(0, order.length);
+
+        final boolean[] found = new boolean[terms.length];
+        final List<AtomicReaderContext> leaves = reader.leaves();
+        // iterate backwards to optimize for the frequently updated documents
+        // which are likely to be in the last segments
+        for (int i = leaves.size() - 1; i >= 0; --i) {
+            final AtomicReaderContext readerContext = leaves.get(i);
+            final Terms uidTerms = readerContext.reader().terms(UidFieldMapper.NAME);
+            assert uidTerms != null : "All segments must have a _uid field, but " + readerContext.reader() + " doesn't";
+            final TermsEnum termsEnum = uidTerms.iterator(null);
+            for (int j : order) {
+                if (found[j]) {
+                    continue;
+                }
+                if (filterCache != null && !filterCache.mightContain(readerContext, terms[j].bytes())) {
+                    continue;
+                }
+                assert terms[j].field().equals(UidFieldMapper.NAME);
+                final DocIdAndVersion docIdAndVersion = loadDocIdAndVersion(readerContext, uidTerms, termsEnum, terms[j].bytes());
+                if (docIdAndVersion != null) {
+                    versions[j] = docIdAndVersion.version;
+                    found[j] = true;
+                }
+            }
+        }
+        return versions;
+    }
+
     /** Same as {@link #loadDocIdAndVersion(IndexReader, Term)} but operates directly on a reader context. */
     public static DocIdAndVersion loadDocIdAndVersion(AtomicReaderContext readerContext, Term term) throws IOException {
         assert term.field().equals(UidFieldMapper.NAME);
+        final Terms terms = readerContext.reader().terms(UidFieldMapper.NAME);
+        assert terms != null : "All segments must have a _uid field, but " + readerContext.reader() + " doesn't";
+        return loadDocIdAndVersion(readerContext, terms, terms.iterator(null), term.bytes());
+    }
+
+    private static DocIdAndVersion loadDocIdAndVersion(AtomicReaderContext readerContext, Terms terms, TermsEnum termsEnum, BytesRef uid) throws IOException {
         final AtomicReader reader = readerContext.reader();
         final Bits liveDocs = reader.getLiveDocs();
-        final Terms terms = reader.terms(UidFieldMapper.NAME);
-        assert terms != null : "All segments must have a _uid field, but " + reader + " doesn't";
-        final TermsEnum termsEnum = terms.iterator(null);
-        if (!termsEnum.seekExact(term.bytes())) {
+        if (!termsEnum.seekExact(uid)) {
             return null;
         }
 
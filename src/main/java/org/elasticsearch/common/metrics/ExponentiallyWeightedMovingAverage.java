@@ -0,0 +1,64 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.common.metrics;
+
+import org.elasticsearch.ElasticsearchIllegalArgumentException;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * An exponentially weighted moving average of a series of values, as opposed to {@link EWMA} which averages a rate
+ * over fixed intervals. Every new value moves the average by <tt>alpha</tt> of the difference, and the first value
+ * is the initial average.
+ */
+public class ExponentiallyWeightedMovingAverage {
+
+    private final double alpha;
+    private final AtomicLong averageBits = new AtomicLong(Double.doubleToLongBits(Double.NaN));
+
+    /**
+     * @param alpha the weight of a new value, between 0 (new values are ignored) and 1 (only the last value counts)
+     */
+    public ExponentiallyWeightedMovingAverage(double alpha) {
+        if (alpha < 0 || alpha > 1) {
+            throw new ElasticsearchIllegalArgumentException("alpha must be between 0 and 1, got [" + alpha + "]");
+        }
+        this.alpha = alpha;
+    }
+
+    public void addValue(double value) {
+        while (true) {
+            final long currentBits = averageBits.get();
+            final double current = Double.longBitsToDouble(currentBits);
+            final double next = Double.isNaN(current) ? value : current + alpha * (value - current);
+            if (averageBits.compareAndSet(currentBits, Double.doubleToLongBits(next))) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Returns the average, or <tt>0</tt> if no value was added yet.
+     */
+    public double getAverage() {
+        final double average = Double.longBitsToDouble(averageBits.get());
+        return Double.isNaN(average) ? 0 : average;
+    }
+}
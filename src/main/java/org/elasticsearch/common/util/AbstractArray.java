@@ -22,7 +22,7 @@ package org.elasticsearch.common.util;
 
 abstract class AbstractArray implements BigArray {
 
-    private final BigArrays bigArrays;
+    final BigArrays bigArrays;
     public final boolean clearOnResize;
     private boolean released = false;
 
@@ -33,7 +33,7 @@ abstract class AbstractArray implements BigArray {
 
     @Override
     public final void close() {
-        bigArrays.ramBytesUsed.addAndGet(-sizeInBytes());
+        bigArrays.adjustBreaker(-sizeInBytes());
         assert !released : "double release";
         released = true;
         doClose();
@@ -50,6 +50,13 @@ abstract class AbstractHash extends AbstractPagedHashMap {
         ids = bigArrays.resize(ids, capacity);
     }
 
+    /**
+     * Return an estimated memory usage of this instance.
+     */
+    public long sizeInBytes() {
+        return ids.sizeInBytes();
+    }
+
     @Override
     protected boolean used(long bucket) {
         return id(bucket) >= 0;
@@ -23,8 +23,10 @@ import com.google.common.base.Preconditions;
 import org.apache.lucene.util.ArrayUtil;
 import org.apache.lucene.util.BytesRef;
 import org.apache.lucene.util.RamUsageEstimator;
-import org.elasticsearch.ElasticsearchIllegalStateException;
 import org.elasticsearch.cache.recycler.PageCacheRecycler;
+import org.elasticsearch.common.Nullable;
+import org.elasticsearch.common.breaker.CircuitBreakingException;
+import org.elasticsearch.common.breaker.MemoryCircuitBreaker;
 import org.elasticsearch.common.component.AbstractComponent;
 import org.elasticsearch.common.inject.Inject;
 import org.elasticsearch.common.lease.Releasable;
@@ -32,6 +34,7 @@ import org.elasticsearch.common.lease.Releasables;
 import org.elasticsearch.common.recycler.Recycler;
 import org.elasticsearch.common.settings.ImmutableSettings;
 import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.indices.fielddata.breaker.CircuitBreakerService;
 
 import java.util.Arrays;
 import java.util.concurrent.atomic.AtomicLong;
@@ -39,9 +42,7 @@ import java.util.concurrent.atomic.AtomicLong;
 /** Utility class to work with arrays. */
 public class BigArrays extends AbstractComponent {
 
-    // TODO: switch to a circuit breaker that is shared not only on big arrays level, and applies to other request level data structures
-    public static final String MAX_SIZE_IN_BYTES_SETTING = "requests.memory.breaker.limit";
-    public static final BigArrays NON_RECYCLING_INSTANCE = new BigArrays(ImmutableSettings.EMPTY, null, Long.MAX_VALUE);
+    public static final BigArrays NON_RECYCLING_INSTANCE = new BigArrays(ImmutableSettings.EMPTY, null, null);
 
     /** Page size in bytes: 16KB */
     public static final int PAGE_SIZE_IN_BYTES = 1 << 14;
@@ -364,38 +365,75 @@ public class BigArrays extends AbstractComponent {
 
     final PageCacheRecycler recycler;
     final AtomicLong ramBytesUsed;
-    final long maxSizeInBytes;
+    private final CircuitBreakerService breakerService;
+    private final boolean checkBreaker;
 
-    @Inject
     public BigArrays(Settings settings, PageCacheRecycler recycler) {
-        this(settings, recycler, settings.getAsMemory(MAX_SIZE_IN_BYTES_SETTING, "20%").bytes());
+        this(settings, recycler, null);
+    }
+
+    @Inject
+    public BigArrays(Settings settings, PageCacheRecycler recycler, @Nullable CircuitBreakerService breakerService) {
+        this(settings, recycler, breakerService, false, new AtomicLong());
     }
 
-    private BigArrays(Settings settings, PageCacheRecycler recycler, final long maxSizeInBytes) {
+    private BigArrays(Settings settings, PageCacheRecycler recycler, @Nullable CircuitBreakerService breakerService, boolean checkBreaker, AtomicLong ramBytesUsed) {
         super(settings);
-        this.maxSizeInBytes = maxSizeInBytes;
         this.recycler = recycler;
-        ramBytesUsed = new AtomicLong();
+        this.breakerService = breakerService;
+        this.checkBreaker = checkBreaker;
+        this.ramBytesUsed = ramBytesUsed;
+    }
+
+    /**
+     * Create a view of this instance whose allocations are accounted for by the request circuit breaker, which trips if
+     * they would make the memory used by requests exceed its limit. The arrays give the bytes back to the breaker when
+     * they are closed.
+     */
+    protected BigArrays(BigArrays bigArrays) {
+        this(bigArrays.settings, bigArrays.recycler, bigArrays.breakerService, true, bigArrays.ramBytesUsed);
     }
 
-    private void validate(long delta) {
-        final long totalSizeInBytes = ramBytesUsed.addAndGet(delta);
-        if (totalSizeInBytes > maxSizeInBytes) {
-            throw new ElasticsearchIllegalStateException("Maximum number of bytes allocated exceeded: [" + totalSizeInBytes + "] (> " + maxSizeInBytes + ")");
+    /**
+     * Return an instance whose allocations are accounted for by the request circuit breaker, to be used by requests,
+     * such as searches, that can allocate an amount of memory that depends on the data they run on.
+     */
+    public BigArrays withCircuitBreaking() {
+        return new BigArrays(this);
+    }
+
+    /**
+     * Account for a change of the size of an array allocated by this instance.
+     */
+    void adjustBreaker(long delta) {
+        ramBytesUsed.addAndGet(delta);
+        if (checkBreaker && breakerService != null) {
+            final MemoryCircuitBreaker breaker = breakerService.getRequestBreaker();
+            if (delta > 0) {
+                try {
+                    breaker.addEstimateBytesAndMaybeBreak(delta, "<reused_arrays>");
+                } catch (CircuitBreakingException e) {
+                    // the array is still going to be closed, which gives its bytes back to the breaker
+                    breaker.addWithoutBreaking(delta);
+                    throw e;
+                }
+            } else {
+                breaker.addWithoutBreaking(delta);
+            }
         }
     }
 
     private <T extends AbstractBigArray> T resizeInPlace(T array, long newSize) {
         final long oldMemSize = array.sizeInBytes();
         array.resize(newSize);
-        validate(array.sizeInBytes() - oldMemSize);
+        array.bigArrays.adjustBreaker(array.sizeInBytes() - oldMemSize);
         return array;
     }
 
     private <T extends BigArray> T validate(T array) {
         boolean success = false;
         try {
-            validate(array.sizeInBytes());
+            adjustBreaker(array.sizeInBytes());
             success = true;
         } finally {
             if (!success) {
@@ -159,6 +159,11 @@ public final class BytesRefHash extends AbstractHash {
         reset(code, id);
     }
 
+    @Override
+    public long sizeInBytes() {
+        return super.sizeInBytes() + startOffsets.sizeInBytes() + bytes.sizeInBytes() + hashes.sizeInBytes();
+    }
+
     @Override
     public void close() {
         try (Releasable releasable = Releasables.wrap(bytes, hashes, startOffsets)) {
@@ -0,0 +1,123 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.common.util.concurrent;
+
+import org.elasticsearch.ElasticsearchException;
+import org.elasticsearch.ElasticsearchIllegalArgumentException;
+import org.elasticsearch.common.lease.Releasable;
+import org.elasticsearch.common.math.MathUtils;
+
+import java.util.Arrays;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A fixed set of locks that keys are mapped to by hash. Uncontended acquisitions only cost a compare-and-set,
+ * threads only park when another thread holds the stripe of the key.
+ * <p/>
+ * Several keys can be locked at once with {@link #acquireAll(int[])}, which locks each stripe only once and always
+ * in ascending order, so that concurrent batched acquisitions can't deadlock.
+ */
+public final class StripedLock {
+
+    private final Stripe[] stripes;
+
+    public StripedLock(int numStripes) {
+        if (numStripes <= 0) {
+            throw new ElasticsearchIllegalArgumentException("numStripes must be > 0 but was [" + numStripes + "]");
+        }
+        stripes = new Stripe[numStripes];
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new Stripe();
+        }
+    }
+
+    public int numStripes() {
+        return stripes.length;
+    }
+
+    /**
+     * Acquires the lock of the given key hash. The lock is released by closing the returned {@link Releasable}.
+     */
+    public Releasable acquire(int hash) {
+        final Stripe stripe = stripes[MathUtils.mod(hash, stripes.length)];
+        stripe.lock();
+        return stripe;
+    }
+
+    /**
+     * Acquires the locks of all the given key hashes. The locks are released by closing the returned
+     * {@link Releasable}.
+     */
+    public Releasable acquireAll(int[] hashes) {
+        int[] indices = new int[hashes.length];
+        for (int i = 0; i < hashes.length; i++) {
+            indices[i] = MathUtils.mod(hashes[i], stripes.length);
+        }
+        Arrays.sort(indices);
+        int numLocks = 0;
+        for (int i = 0; i < indices.length; i++) {
+            if (i == 0 || indices[i] != indices[i - 1]) {
+                indices[numLocks++] = indices[i];
+            }
+        }
+        final Stripe[] locked = new Stripe[numLocks];
+        boolean success = false;
+        int acquired = 0;
+        try {
+            for (; acquired < numLocks; acquired++) {
+                locked[acquired] = stripes[indices[acquired]];
+                locked[acquired].lock();
+            }
+            success = true;
+        } finally {
+            if (!success) {
+                // lock() might throw on an error, only unlock what we actually locked
+                for (int i = 0; i < acquired; i++) {
+                    locked[i].unlock();
+                }
+            }
+        }
+        return new MultiStripeLock(locked);
+    }
+
+    private static final class MultiStripeLock implements Releasable {
+        private final Stripe[] stripes;
+
+        private MultiStripeLock(Stripe[] stripes) {
+            this.stripes = stripes;
+        }
+
+        @Override
+        public void close() throws ElasticsearchException {
+            for (int i = stripes.length - 1; i >= 0; i--) {
+                stripes[i].unlock();
+            }
+        }
+    }
+
+    @SuppressWarnings("serial")
+    private static final class Stripe extends ReentrantLock implements Releasable {
+
+        @Override
+        public void close() throws ElasticsearchException {
+            unlock();
+        }
+    }
+}
@@ -22,6 +22,7 @@ package org.elasticsearch.common.xcontent;
 import com.google.common.base.Charsets;
 import com.google.common.collect.Maps;
 import org.elasticsearch.ElasticsearchParseException;
+import org.elasticsearch.common.Strings;
 import org.elasticsearch.common.bytes.BytesArray;
 import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.common.collect.Tuple;
@@ -30,6 +31,7 @@ import org.elasticsearch.common.compress.Compressor;
 import org.elasticsearch.common.compress.CompressorFactory;
 import org.elasticsearch.common.io.Streams;
 import org.elasticsearch.common.io.stream.BytesStreamInput;
+import org.elasticsearch.common.regex.Regex;
 
 import java.io.IOException;
 import java.util.ArrayList;
@@ -270,6 +272,192 @@ public class XContentHelper {
         return true;
     }
 
+    /**
+     * Filters the given source with includes and excludes, with the same semantics as
+     * {@link org.elasticsearch.common.xcontent.support.XContentMapValues#filter(Map, String[], String[])}, but
+     * streaming the source from a parser to a builder instead of building a map out of it. The order of the fields
+     * is preserved. Returns the source as is if there is nothing to filter.
+     */
+    public static BytesReference filter(BytesReference source, String[] includes, String[] excludes) throws IOException {
+        includes = includes == null ? Strings.EMPTY_ARRAY : includes;
+        excludes = excludes == null ? Strings.EMPTY_ARRAY : excludes;
+        if (includes.length == 0 && excludes.length == 0) {
+            return source;
+        }
+        XContentParser parser = createParser(source);
+        try {
+            if (parser.nextToken() != XContentParser.Token.START_OBJECT) {
+                throw new ElasticsearchParseException("Failed to filter source, expected an object but got [" + parser.currentToken() + "]");
+            }
+            XContentBuilder builder = XContentFactory.contentBuilder(parser.contentType());
+            builder.startObject();
+            new SourceFilter(parser, builder).filterObject(includes, excludes, new StringBuilder());
+            builder.endObject();
+            return builder.bytes();
+        } finally {
+            parser.close();
+        }
+    }
+
+    /**
+     * Copies the fields of a source that match includes and excludes. Objects and arrays are only started on the
+     * builder once something is written into them, so that the ones that end up empty can be dropped.
+     */
+    private static class SourceFilter {
+
+        private final XContentParser parser;
+        private final XContentBuilder builder;
+
+        // the containers that were entered but not written yet, with their field name or null within arrays
+        private final List<String> pendingNames = new ArrayList<>();
+        private final List<Boolean> pendingArrays = new ArrayList<>();
+
+        SourceFilter(XContentParser parser, XContentBuilder builder) {
+            this.parser = parser;
+            this.builder = builder;
+        }
+
+        void filterObject(String[] includes, String[] excludes, StringBuilder sb) throws IOException {
+            XContentParser.Token token;
+            while ((token = parser.nextToken()) != XContentParser.Token.END_OBJECT) {
+                String key = parser.currentName();
+                token = parser.nextToken();
+
+                int mark = sb.length();
+                if (sb.length() > 0) {
+                    sb.append('.');
+                }
+                sb.append(key);
+                String path = sb.toString();
+
+                if (Regex.simpleMatch(excludes, path)) {
+                    parser.skipChildren();
+                    sb.setLength(mark);
+                    continue;
+                }
+
+                boolean exactIncludeMatch = false; // true if the current position was specifically mentioned
+                boolean pathIsPrefixOfAnInclude = false; // true if potentially a sub scope can be included
+                if (includes.length == 0) {
+                    // implied match anything
+                    exactIncludeMatch = true;
+                } else {
+                    for (String include : includes) {
+                        if (include.charAt(0) == '*') {
+                            if (Regex.simpleMatch(include, path)) {
+                                exactIncludeMatch = true;
+                                break;
+                            }
+                            pathIsPrefixOfAnInclude = true;
+                            continue;
+                        }
+                        if (include.startsWith(path)) {
+                            if (include.length() == path.length()) {
+                                exactIncludeMatch = true;
+                                break;
+                            } else if (include.length() > path.length() && include.charAt(path.length()) == '.') {
+                                pathIsPrefixOfAnInclude = true;
+                                continue;
+                            }
+                        }
+                        if (Regex.simpleMatch(include, path)) {
+                            exactIncludeMatch = true;
+                            break;
+                        }
+                    }
+                }
+
+                if (!(pathIsPrefixOfAnInclude || exactIncludeMatch)) {
+                    // skip subkeys, not interesting.
+                    parser.skipChildren();
+                    sb.setLength(mark);
+                    continue;
+                }
+
+                if (token == XContentParser.Token.START_OBJECT || token == XContentParser.Token.START_ARRAY) {
+                    boolean array = token == XContentParser.Token.START_ARRAY;
+                    if (exactIncludeMatch && excludes.length == 0) {
+                        // nothing left to filter within
+                        flushPending();
+                        builder.field(key);
+                        builder.copyCurrentStructure(parser);
+                    } else {
+                        int pending = pendingNames.size();
+                        pendingNames.add(key);
+                        pendingArrays.add(array);
+                        // if we had an exact match, we want give deeper excludes their chance
+                        String[] innerIncludes = exactIncludeMatch ? Strings.EMPTY_ARRAY : includes;
+                        if (array) {
+                            filterArray(innerIncludes, excludes, sb);
+                        } else {
+                            filterObject(innerIncludes, excludes, sb);
+                        }
+                        // arrays are always kept, objects only if they were asked for or aren't empty
+                        endContainer(pending, array, array || exactIncludeMatch);
+                    }
+                } else if (exactIncludeMatch) {
+                    flushPending();
+                    builder.field(key);
+                    builder.copyCurrentStructure(parser);
+                }
+                sb.setLength(mark);
+            }
+        }
+
+        void filterArray(String[] includes, String[] excludes, StringBuilder sb) throws IOException {
+            XContentParser.Token token;
+            while ((token = parser.nextToken()) != XContentParser.Token.END_ARRAY) {
+                if (token == XContentParser.Token.START_OBJECT || token == XContentParser.Token.START_ARRAY) {
+                    boolean array = token == XContentParser.Token.START_ARRAY;
+                    int pending = pendingNames.size();
+                    pendingNames.add(null);
+                    pendingArrays.add(array);
+                    if (array) {
+                        filterArray(includes, excludes, sb);
+                    } else {
+                        filterObject(includes, excludes, sb);
+                    }
+                    endContainer(pending, array, false);
+                } else {
+                    flushPending();
+                    builder.copyCurrentStructure(parser);
+                }
+            }
+        }
+
+        private void flushPending() throws IOException {
+            for (int i = 0; i < pendingNames.size(); i++) {
+                if (pendingNames.get(i) != null) {
+                    builder.field(pendingNames.get(i));
+                }
+                if (pendingArrays.get(i)) {
+                    builder.startArray();
+                } else {
+                    builder.startObject();
+                }
+            }
+            pendingNames.clear();
+            pendingArrays.clear();
+        }
+
+        private void endContainer(int pending, boolean array, boolean keepIfEmpty) throws IOException {
+            if (pendingNames.size() > pending) {
+                // nothing was written into the container
+                if (!keepIfEmpty) {
+                    pendingNames.subList(pending, pendingNames.size()).clear();
+                    pendingArrays.subList(pending, pendingArrays.size()).clear();
+                    return;
+                }
+                flushPending();
+            }
+            if (array) {
+                builder.endArray();
+            } else {
+                builder.endObject();
+            }
+        }
+    }
+
     public static void copyCurrentStructure(XContentGenerator generator, XContentParser parser) throws IOException {
         XContentParser.Token token = parser.currentToken();
 
@@ -79,6 +79,12 @@ public interface Engine extends IndexShardComponent, CloseableComponent {
 
     void delete(DeleteByQuery delete) throws EngineException;
 
+    /**
+     * Applies create, index and delete operations as a single batch. The failure of an operation doesn't prevent
+     * the other ones from being applied, failures are reported per operation through {@link Bulk#failure(int)}.
+     */
+    void bulk(Bulk bulk) throws EngineException;
+
     GetResult get(Get get) throws EngineException;
 
     /**
@@ -644,6 +650,31 @@ public interface Engine extends IndexShardComponent, CloseableComponent {
         }
     }
 
+    static class Bulk {
+        private final Operation[] operations;
+        private final Throwable[] failures;
+
+        public Bulk(Operation[] operations) {
+            this.operations = operations;
+            this.failures = new Throwable[operations.length];
+        }
+
+        public Operation[] operations() {
+            return operations;
+        }
+
+        /**
+         * Returns the failure of the operation at the given index, or <tt>null</tt> if it was applied.
+         */
+        public Throwable failure(int index) {
+            return failures[index];
+        }
+
+        public void failure(int index, Throwable failure) {
+            failures[index] = failure;
+        }
+    }
+
     static class DeleteByQuery {
         private final Query query;
         private final BytesReference source;
@@ -774,15 +805,25 @@ public interface Engine extends IndexShardComponent, CloseableComponent {
         private final Translog.Source source;
         private final Versions.DocIdAndVersion docIdAndVersion;
         private final Searcher searcher;
+        private final Releasable translogBytes;
 
         public static final GetResult NOT_EXISTS = new GetResult(false, Versions.NOT_FOUND, null);
 
         public GetResult(boolean exists, long version, @Nullable Translog.Source source) {
+            this(exists, version, source, null);
+        }
+
+        /**
+         * A result read from the translog, whose source is only valid until the result is released if the translog
+         * bytes it was read from need to be released.
+         */
+        public GetResult(boolean exists, long version, @Nullable Translog.Source source, @Nullable Releasable translogBytes) {
             this.source = source;
             this.exists = exists;
             this.version = version;
             this.docIdAndVersion = null;
             this.searcher = null;
+            this.translogBytes = translogBytes;
         }
 
         public GetResult(Searcher searcher, Versions.DocIdAndVersion docIdAndVersion) {
@@ -791,6 +832,7 @@ public interface Engine extends IndexShardComponent, CloseableComponent {
             this.version = docIdAndVersion.version;
             this.docIdAndVersion = docIdAndVersion;
             this.searcher = searcher;
+            this.translogBytes = null;
         }
 
         public boolean exists() {
@@ -818,6 +860,9 @@ public interface Engine extends IndexShardComponent, CloseableComponent {
             if (searcher != null) {
                 searcher.close();
             }
+            if (translogBytes != null) {
+                translogBytes.close();
+            }
         }
     }
 
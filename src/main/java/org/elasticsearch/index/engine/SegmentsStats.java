@@ -19,6 +19,7 @@
 
 package org.elasticsearch.index.engine;
 
+import org.elasticsearch.Version;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.io.stream.Streamable;
@@ -36,6 +37,8 @@ public class SegmentsStats implements Streamable, ToXContent {
 
     private long count;
     private long memoryInBytes;
+    private long versionMapMemoryInBytes;
+    private long uidFilterMemoryInBytes;
 
     public SegmentsStats() {
 
@@ -46,11 +49,21 @@ public class SegmentsStats implements Streamable, ToXContent {
         this.memoryInBytes += memoryInBytes;
     }
 
+    public void addVersionMapMemoryInBytes(long versionMapMemoryInBytes) {
+        this.versionMapMemoryInBytes += versionMapMemoryInBytes;
+    }
+
+    public void addUidFilterMemoryInBytes(long uidFilterMemoryInBytes) {
+        this.uidFilterMemoryInBytes += uidFilterMemoryInBytes;
+    }
+
     public void add(SegmentsStats mergeStats) {
         if (mergeStats == null) {
             return;
         }
         add(mergeStats.count, mergeStats.memoryInBytes);
+        addVersionMapMemoryInBytes(mergeStats.versionMapMemoryInBytes);
+        addUidFilterMemoryInBytes(mergeStats.uidFilterMemoryInBytes);
     }
 
     /**
@@ -71,6 +84,28 @@ public class SegmentsStats implements Streamable, ToXContent {
         return new ByteSizeValue(memoryInBytes);
     }
 
+    /**
+     * Estimation of the memory used by the live version map of the engine.
+     */
+    public long getVersionMapMemoryInBytes() {
+        return this.versionMapMemoryInBytes;
+    }
+
+    public ByteSizeValue getVersionMapMemory() {
+        return new ByteSizeValue(versionMapMemoryInBytes);
+    }
+
+    /**
+     * Estimation of the memory used by the per segment uid filters of the engine.
+     */
+    public long getUidFilterMemoryInBytes() {
+        return this.uidFilterMemoryInBytes;
+    }
+
+    public ByteSizeValue getUidFilterMemory() {
+        return new ByteSizeValue(uidFilterMemoryInBytes);
+    }
+
     public static SegmentsStats readSegmentsStats(StreamInput in) throws IOException {
         SegmentsStats stats = new SegmentsStats();
         stats.readFrom(in);
@@ -82,6 +117,8 @@ public class SegmentsStats implements Streamable, ToXContent {
         builder.startObject(Fields.SEGMENTS);
         builder.field(Fields.COUNT, count);
         builder.byteSizeField(Fields.MEMORY_IN_BYTES, Fields.MEMORY, memoryInBytes);
+        builder.byteSizeField(Fields.VERSION_MAP_MEMORY_IN_BYTES, Fields.VERSION_MAP_MEMORY, versionMapMemoryInBytes);
+        builder.byteSizeField(Fields.UID_FILTER_MEMORY_IN_BYTES, Fields.UID_FILTER_MEMORY, uidFilterMemoryInBytes);
         builder.endObject();
         return builder;
     }
@@ -91,17 +128,29 @@ public class SegmentsStats implements Streamable, ToXContent {
         static final XContentBuilderString COUNT = new XContentBuilderString("count");
         static final XContentBuilderString MEMORY = new XContentBuilderString("memory");
         static final XContentBuilderString MEMORY_IN_BYTES = new XContentBuilderString("memory_in_bytes");
+        static final XContentBuilderString VERSION_MAP_MEMORY = new XContentBuilderString("version_map_memory");
+        static final XContentBuilderString VERSION_MAP_MEMORY_IN_BYTES = new XContentBuilderString("version_map_memory_in_bytes");
+        static final XContentBuilderString UID_FILTER_MEMORY = new XContentBuilderString("uid_filter_memory");
+        static final XContentBuilderString UID_FILTER_MEMORY_IN_BYTES = new XContentBuilderString("uid_filter_memory_in_bytes");
     }
 
     @Override
     public void readFrom(StreamInput in) throws IOException {
         count = in.readVLong();
         memoryInBytes = in.readLong();
+        if (in.getVersion().onOrAfter(Version.V_2_0_0)) {
+            versionMapMemoryInBytes = in.readLong();
+            uidFilterMemoryInBytes = in.readLong();
+        }
     }
 
     @Override
     public void writeTo(StreamOutput out) throws IOException {
         out.writeVLong(count);
         out.writeLong(memoryInBytes);
+        if (out.getVersion().onOrAfter(Version.V_2_0_0)) {
+            out.writeLong(versionMapMemoryInBytes);
+            out.writeLong(uidFilterMemoryInBytes);
+        }
     }
 }
\ No newline at end of file
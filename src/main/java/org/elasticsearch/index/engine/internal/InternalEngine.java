@@ -22,10 +22,12 @@ package org.elasticsearch.index.engine.internal;
 import com.google.common.collect.Lists;
 import org.apache.lucene.index.*;
 import org.apache.lucene.index.IndexWriter.IndexReaderWarmer;
+import org.apache.lucene.index.sorter.SortingMergePolicy;
 import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.Query;
 import org.apache.lucene.search.SearcherFactory;
 import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.Sort;
 import org.apache.lucene.store.AlreadyClosedException;
 import org.apache.lucene.store.LockObtainFailedException;
 import org.apache.lucene.util.BytesRef;
@@ -35,32 +37,36 @@ import org.elasticsearch.ElasticsearchIllegalStateException;
 import org.elasticsearch.cluster.routing.operation.hash.djb.DjbHashFunction;
 import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.Preconditions;
+import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.common.collect.MapBuilder;
 import org.elasticsearch.common.inject.Inject;
 import org.elasticsearch.common.lease.Releasable;
 import org.elasticsearch.common.lease.Releasables;
-import org.elasticsearch.common.lucene.HashedBytesRef;
 import org.elasticsearch.common.lucene.LoggerInfoStream;
 import org.elasticsearch.common.lucene.Lucene;
 import org.elasticsearch.common.lucene.SegmentReaderUtils;
 import org.elasticsearch.common.lucene.search.XFilteredQuery;
+import org.elasticsearch.common.lucene.uid.UidFilterCache;
 import org.elasticsearch.common.lucene.uid.Versions;
-import org.elasticsearch.common.math.MathUtils;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.unit.ByteSizeUnit;
 import org.elasticsearch.common.unit.ByteSizeValue;
 import org.elasticsearch.common.unit.TimeValue;
-import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
+import org.elasticsearch.common.util.BigArrays;
+import org.elasticsearch.common.util.BloomFilter;
 import org.elasticsearch.common.util.concurrent.EsExecutors;
+import org.elasticsearch.common.util.concurrent.StripedLock;
 import org.elasticsearch.index.analysis.AnalysisService;
 import org.elasticsearch.index.codec.CodecService;
 import org.elasticsearch.index.deletionpolicy.SnapshotDeletionPolicy;
 import org.elasticsearch.index.deletionpolicy.SnapshotIndexCommit;
 import org.elasticsearch.index.engine.*;
 import org.elasticsearch.index.indexing.ShardIndexingService;
+import org.elasticsearch.index.mapper.ParseContext;
 import org.elasticsearch.index.mapper.Uid;
 import org.elasticsearch.index.merge.OnGoingMerge;
 import org.elasticsearch.index.merge.policy.ElasticsearchMergePolicy;
+import org.elasticsearch.index.merge.policy.IndexSort;
 import org.elasticsearch.index.merge.policy.MergePolicyProvider;
 import org.elasticsearch.index.merge.scheduler.MergeSchedulerProvider;
 import org.elasticsearch.index.search.nested.IncludeNestedDocsQuery;
@@ -71,6 +77,7 @@ import org.elasticsearch.index.shard.ShardId;
 import org.elasticsearch.index.similarity.SimilarityService;
 import org.elasticsearch.index.store.Store;
 import org.elasticsearch.index.translog.Translog;
+import org.elasticsearch.index.translog.TranslogException;
 import org.elasticsearch.index.translog.TranslogStreams;
 import org.elasticsearch.indices.warmer.IndicesWarmer;
 import org.elasticsearch.indices.warmer.InternalIndicesWarmer;
@@ -78,7 +85,6 @@ import org.elasticsearch.threadpool.ThreadPool;
 
 import java.io.IOException;
 import java.util.*;
-import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -102,6 +108,8 @@ public class InternalEngine extends AbstractIndexShardComponent implements Engin
     private volatile String codecName;
     private final boolean optimizeAutoGenerateId;
 
+    private final boolean appendOnly;
+
     private final ThreadPool threadPool;
 
     private final ShardIndexingService indexingService;
@@ -144,11 +152,13 @@ public class InternalEngine extends AbstractIndexShardComponent implements Engin
     private final RecoveryCounter onGoingRecoveries = new RecoveryCounter();
 
 
-    // A uid (in the form of BytesRef) to the version map
-    // we use the hashed variant since we iterate over it and check removal and additions on existing keys
-    private final ConcurrentMap<HashedBytesRef, VersionValue> versionMap;
+    // A uid (in the form of BytesRef) to the version map, swapped on each refresh
+    private final LiveVersionMap versionMap;
+
+    private final StripedLock dirtyLocks;
 
-    private final Object[] dirtyLocks;
+    @Nullable
+    private final UidFilterCache uidFilterCache;
 
     private final Object refreshMutex = new Object();
 
@@ -192,12 +202,17 @@ public class InternalEngine extends AbstractIndexShardComponent implements Engin
         this.codecService = codecService;
         this.compoundOnFlush = indexSettings.getAsBoolean(INDEX_COMPOUND_ON_FLUSH, this.compoundOnFlush);
         this.indexConcurrency = indexSettings.getAsInt(INDEX_INDEX_CONCURRENCY, Math.max(IndexWriterConfig.DEFAULT_MAX_THREAD_STATES, (int) (EsExecutors.boundedNumberOfProcessors(indexSettings) * 0.65)));
-        this.versionMap = ConcurrentCollections.newConcurrentMapWithAggressiveConcurrency();
-        this.dirtyLocks = new Object[indexConcurrency * 50]; // we multiply it to have enough...
-        for (int i = 0; i < dirtyLocks.length; i++) {
-            dirtyLocks[i] = new Object();
-        }
+        // the map lives as long as the engine, it must not hold on to pages of the shared recycler
+        this.versionMap = new LiveVersionMap(BigArrays.NON_RECYCLING_INSTANCE, indexConcurrency * 4);
+        this.dirtyLocks = new StripedLock(indexConcurrency * 50); // we multiply it to have enough...
         this.optimizeAutoGenerateId = indexSettings.getAsBoolean("index.optimize_auto_generated_id", true);
+        this.appendOnly = indexSettings.getAsBoolean(INDEX_APPEND_ONLY, false);
+        if (indexSettings.getAsBoolean(INDEX_UID_FILTER_ENABLED, true)) {
+            this.uidFilterCache = new UidFilterCache(BloomFilter.Factory.buildFromString(indexSettings.get(INDEX_UID_FILTER_FPP)),
+                    indexSettings.getAsInt(INDEX_UID_FILTER_MIN_SEGMENT_SIZE, 10000));
+        } else {
+            this.uidFilterCache = null;
+        }
 
         this.indexSettingsService.addListener(applySettings);
 
@@ -313,7 +328,7 @@ public class InternalEngine extends AbstractIndexShardComponent implements Engin
     public GetResult get(Get get) throws EngineException {
         try (InternalLock _ = readLock.acquire()) {
             if (get.realtime()) {
-                VersionValue versionValue = versionMap.get(versionKey(get.uid()));
+                VersionValue versionValue = versionMap.get(get.uid().bytes());
                 if (versionValue != null) {
                     if (versionValue.delete()) {
                         return GetResult.NOT_EXISTS;
@@ -325,13 +340,16 @@ public class InternalEngine extends AbstractIndexShardComponent implements Engin
                     if (!get.loadSource()) {
                         return new GetResult(true, versionValue.version(), null);
                     }
-                    byte[] data = translog.read(versionValue.translogLocation());
+                    BytesReference data = translog.read(versionValue.translogLocation());
                     if (data != null) {
+                        // bytes read from a memory mapped translog keep it mapped until the get is released
+                        final Releasable translogBytes = data instanceof Releasable ? (Releasable) data : null;
                         try {
                             Translog.Source source = TranslogStreams.readSource(data);
-                            return new GetResult(true, versionValue.version(), source);
+                            return new GetResult(true, versionValue.version(), source, translogBytes);
                         } catch (IOException e) {
                             // switched on us, read it from the reader
+                            Releasables.close(translogBytes);
                         }
                     }
                 }
@@ -341,7 +359,7 @@ public class InternalEngine extends AbstractIndexShardComponent implements Engin
             Searcher searcher = acquireSearcher("get");
             final Versions.DocIdAndVersion docIdAndVersion;
             try {
-                docIdAndVersion = Versions.loadDocIdAndVersion(searcher.reader(), get.uid());
+                docIdAndVersion = Versions.loadDocIdAndVersion(searcher.reader(), get.uid(), uidFilterCache);
             } catch (Throwable e) {
                 Releasables.closeWhileHandlingException(searcher);
                 //TODO: A better exception goes here
@@ -390,69 +408,125 @@ public class InternalEngine extends AbstractIndexShardComponent implements Engin
     }
 
     private void innerCreate(Create create, IndexWriter writer) throws IOException {
-        synchronized (dirtyLock(create.uid())) {
-            HashedBytesRef versionKey = versionKey(create.uid());
-            final long currentVersion;
-            final VersionValue versionValue;
-            if (optimizeAutoGenerateId && create.autoGeneratedId() && !create.canHaveDuplicates()) {
-                currentVersion = Versions.NOT_FOUND;
-                versionValue = null;
+        if (appendOnly) {
+            innerAppendOnlyCreate(create, writer);
+            return;
+        }
+        try (Releasable _ = dirtyLock(create.uid())) {
+            if (applyCreate(create, writer, null)) {
+                Translog.Location translogLocation = translog.add(new Translog.Create(create));
+
+                versionMap.put(create.uid().bytes(), create.version(), false, threadPool.estimatedTimeInMillis(), translogLocation);
+
+                indexingService.postCreateUnderLock(create);
+            }
+        }
+    }
+
+    /**
+     * Adds the documents of the create without looking up the uid, without taking its dirty lock and without
+     * tracking it in the version map: in an append only index, documents are never updated or deleted by id.
+     */
+    private void innerAppendOnlyCreate(Create create, IndexWriter writer) throws IOException {
+        prepareAppendOnlyCreate(create);
+        appendDocuments(create, writer);
+        translog.add(new Translog.Create(create));
+        indexingService.postCreateUnderLock(create);
+    }
+
+    private void appendDocuments(Create create, IndexWriter writer) throws IOException {
+        if (mightBeIndexedAlready(create)) {
+            if (create.docs().size() > 1) {
+                writer.updateDocuments(create.uid(), create.docs(), create.analyzer());
             } else {
-                versionValue = versionMap.get(versionKey);
-                if (versionValue == null) {
-                    currentVersion = loadCurrentVersionFromIndex(create.uid());
-                } else {
-                    if (enableGcDeletes && versionValue.delete() && (threadPool.estimatedTimeInMillis() - versionValue.time()) > gcDeletesInMillis) {
-                        currentVersion = Versions.NOT_FOUND; // deleted, and GC
-                    } else {
-                        currentVersion = versionValue.version();
-                    }
-                }
+                writer.updateDocument(create.uid(), create.docs().get(0), create.analyzer());
             }
+        } else {
+            if (create.docs().size() > 1) {
+                writer.addDocuments(create.docs(), create.analyzer());
+            } else {
+                writer.addDocument(create.docs().get(0), create.analyzer());
+            }
+        }
+    }
 
-            // same logic as index
-            long updatedVersion;
-            long expectedVersion = create.version();
-            if (create.versionType().isVersionConflictForWrites(currentVersion, expectedVersion)) {
-                if (create.origin() == Operation.Origin.RECOVERY) {
-                    return;
+    private void prepareAppendOnlyCreate(Create create) {
+        if (!create.autoGeneratedId() && create.origin() != Operation.Origin.RECOVERY) {
+            throw new AppendOnlyEngineException(shardId, create.type(), create.id(), "create");
+        }
+        // the document is new, unless it's a retry, in which case it replaces the copy that might be there
+        create.updateVersion(create.versionType().updateVersion(Versions.NOT_FOUND, create.version()));
+    }
+
+    /**
+     * Retried operations, and operations replayed from the translog, might already be in the index. Replacing the
+     * documents by uid keeps them idempotent without having to look the uid up.
+     */
+    private static boolean mightBeIndexedAlready(Create create) {
+        return create.canHaveDuplicates() || create.origin() == Operation.Origin.RECOVERY;
+    }
+
+    /**
+     * Resolves the version of the create and adds its documents to the writer, returns <tt>false</tt> if it had to
+     * be ignored during recovery. Adding it to the translog and the version map is left to the caller.
+     */
+    private boolean applyCreate(Create create, IndexWriter writer, @Nullable BulkContext bulk) throws IOException {
+        final long currentVersion;
+        final VersionValue versionValue;
+        if (!needsVersionLookup(create)) {
+            currentVersion = Versions.NOT_FOUND;
+            versionValue = null;
+        } else {
+            versionValue = versionValue(create.uid(), bulk);
+            if (versionValue == null) {
+                currentVersion = indexVersion(create.uid(), bulk);
+            } else {
+                if (enableGcDeletes && versionValue.delete() && (threadPool.estimatedTimeInMillis() - versionValue.time()) > gcDeletesInMillis) {
+                    currentVersion = Versions.NOT_FOUND; // deleted, and GC
                 } else {
-                    throw new VersionConflictEngineException(shardId, create.type(), create.id(), currentVersion, expectedVersion);
+                    currentVersion = versionValue.version();
                 }
             }
-            updatedVersion = create.versionType().updateVersion(currentVersion, expectedVersion);
+        }
 
-            // if the doc does not exists or it exists but not delete
-            if (versionValue != null) {
-                if (!versionValue.delete()) {
-                    if (create.origin() == Operation.Origin.RECOVERY) {
-                        return;
-                    } else {
-                        throw new DocumentAlreadyExistsException(shardId, create.type(), create.id());
-                    }
-                }
-            } else if (currentVersion != Versions.NOT_FOUND) {
-                // its not deleted, its already there
+        // same logic as index
+        long updatedVersion;
+        long expectedVersion = create.version();
+        if (create.versionType().isVersionConflictForWrites(currentVersion, expectedVersion)) {
+            if (create.origin() == Operation.Origin.RECOVERY) {
+                return false;
+            } else {
+                throw new VersionConflictEngineException(shardId, create.type(), create.id(), currentVersion, expectedVersion);
+            }
+        }
+        updatedVersion = create.versionType().updateVersion(currentVersion, expectedVersion);
+
+        // if the doc does not exists or it exists but not delete
+        if (versionValue != null) {
+            if (!versionValue.delete()) {
                 if (create.origin() == Operation.Origin.RECOVERY) {
-                    return;
+                    return false;
                 } else {
                     throw new DocumentAlreadyExistsException(shardId, create.type(), create.id());
                 }
             }
-
-            create.updateVersion(updatedVersion);
-
-            if (create.docs().size() > 1) {
-                writer.addDocuments(create.docs(), create.analyzer());
+        } else if (currentVersion != Versions.NOT_FOUND) {
+            // its not deleted, its already there
+            if (create.origin() == Operation.Origin.RECOVERY) {
+                return false;
             } else {
-                writer.addDocument(create.docs().get(0), create.analyzer());
+                throw new DocumentAlreadyExistsException(shardId, create.type(), create.id());
             }
-            Translog.Location translogLocation = translog.add(new Translog.Create(create));
+        }
 
-            versionMap.put(versionKey, new VersionValue(updatedVersion, false, threadPool.estimatedTimeInMillis(), translogLocation));
+        create.updateVersion(updatedVersion);
 
-            indexingService.postCreateUnderLock(create);
+        if (create.docs().size() > 1) {
+            writer.addDocuments(create.docs(), create.analyzer());
+        } else {
+            writer.addDocument(create.docs().get(0), create.analyzer());
         }
+        return true;
     }
 
     @Override
@@ -474,57 +548,68 @@ public class InternalEngine extends AbstractIndexShardComponent implements Engin
     }
 
     private void innerIndex(Index index, IndexWriter writer) throws IOException {
-        synchronized (dirtyLock(index.uid())) {
-            HashedBytesRef versionKey = versionKey(index.uid());
-            final long currentVersion;
-            VersionValue versionValue = versionMap.get(versionKey);
-            if (versionValue == null) {
-                currentVersion = loadCurrentVersionFromIndex(index.uid());
-            } else {
-                if (enableGcDeletes && versionValue.delete() && (threadPool.estimatedTimeInMillis() - versionValue.time()) > gcDeletesInMillis) {
-                    currentVersion = Versions.NOT_FOUND; // deleted, and GC
-                } else {
-                    currentVersion = versionValue.version();
-                }
-            }
+        if (appendOnly) {
+            throw new AppendOnlyEngineException(shardId, index.type(), index.id(), "index");
+        }
+        try (Releasable _ = dirtyLock(index.uid())) {
+            if (applyIndex(index, writer, null)) {
+                Translog.Location translogLocation = translog.add(new Translog.Index(index));
 
-            long updatedVersion;
-            long expectedVersion = index.version();
-            if (index.versionType().isVersionConflictForWrites(currentVersion, expectedVersion)) {
-                if (index.origin() == Operation.Origin.RECOVERY) {
-                    return;
-                } else {
-                    throw new VersionConflictEngineException(shardId, index.type(), index.id(), currentVersion, expectedVersion);
-                }
+                versionMap.put(index.uid().bytes(), index.version(), false, threadPool.estimatedTimeInMillis(), translogLocation);
+
+                indexingService.postIndexUnderLock(index);
             }
-            updatedVersion = index.versionType().updateVersion(currentVersion, expectedVersion);
+        }
+    }
 
+    /**
+     * Same as {@link #applyCreate(Create, IndexWriter, BulkContext)} for an index operation.
+     */
+    private boolean applyIndex(Index index, IndexWriter writer, @Nullable BulkContext bulk) throws IOException {
+        final long currentVersion;
+        VersionValue versionValue = versionValue(index.uid(), bulk);
+        if (versionValue == null) {
+            currentVersion = indexVersion(index.uid(), bulk);
+        } else {
+            if (enableGcDeletes && versionValue.delete() && (threadPool.estimatedTimeInMillis() - versionValue.time()) > gcDeletesInMillis) {
+                currentVersion = Versions.NOT_FOUND; // deleted, and GC
+            } else {
+                currentVersion = versionValue.version();
+            }
+        }
 
-            index.updateVersion(updatedVersion);
-            if (currentVersion == Versions.NOT_FOUND) {
-                // document does not exists, we can optimize for create
-                index.created(true);
-                if (index.docs().size() > 1) {
-                    writer.addDocuments(index.docs(), index.analyzer());
-                } else {
-                    writer.addDocument(index.docs().get(0), index.analyzer());
-                }
+        long updatedVersion;
+        long expectedVersion = index.version();
+        if (index.versionType().isVersionConflictForWrites(currentVersion, expectedVersion)) {
+            if (index.origin() == Operation.Origin.RECOVERY) {
+                return false;
             } else {
-                if (versionValue != null) {
-                    index.created(versionValue.delete()); // we have a delete which is not GC'ed...
-                }
-                if (index.docs().size() > 1) {
-                    writer.updateDocuments(index.uid(), index.docs(), index.analyzer());
-                } else {
-                    writer.updateDocument(index.uid(), index.docs().get(0), index.analyzer());
-                }
+                throw new VersionConflictEngineException(shardId, index.type(), index.id(), currentVersion, expectedVersion);
             }
-            Translog.Location translogLocation = translog.add(new Translog.Index(index));
+        }
+        updatedVersion = index.versionType().updateVersion(currentVersion, expectedVersion);
 
-            versionMap.put(versionKey, new VersionValue(updatedVersion, false, threadPool.estimatedTimeInMillis(), translogLocation));
 
-            indexingService.postIndexUnderLock(index);
+        index.updateVersion(updatedVersion);
+        if (currentVersion == Versions.NOT_FOUND) {
+            // document does not exists, we can optimize for create
+            index.created(true);
+            if (index.docs().size() > 1) {
+                writer.addDocuments(index.docs(), index.analyzer());
+            } else {
+                writer.addDocument(index.docs().get(0), index.analyzer());
+            }
+        } else {
+            if (versionValue != null) {
+                index.created(versionValue.delete()); // we have a delete which is not GC'ed...
+            }
+            if (index.docs().size() > 1) {
+                writer.updateDocuments(index.uid(), index.docs(), index.analyzer());
+            } else {
+                writer.updateDocument(index.uid(), index.docs().get(0), index.analyzer());
+            }
         }
+        return true;
     }
 
     @Override
@@ -545,49 +630,341 @@ public class InternalEngine extends AbstractIndexShardComponent implements Engin
     }
 
     private void innerDelete(Delete delete, IndexWriter writer) throws IOException {
-        synchronized (dirtyLock(delete.uid())) {
-            final long currentVersion;
-            HashedBytesRef versionKey = versionKey(delete.uid());
-            VersionValue versionValue = versionMap.get(versionKey);
-            if (versionValue == null) {
-                currentVersion = loadCurrentVersionFromIndex(delete.uid());
+        if (appendOnly) {
+            throw new AppendOnlyEngineException(shardId, delete.type(), delete.id(), "delete");
+        }
+        try (Releasable _ = dirtyLock(delete.uid())) {
+            if (applyDelete(delete, writer, null)) {
+                Translog.Location translogLocation = translog.add(new Translog.Delete(delete));
+
+                versionMap.put(delete.uid().bytes(), delete.version(), true, threadPool.estimatedTimeInMillis(), translogLocation);
+
+                indexingService.postDeleteUnderLock(delete);
+            }
+        }
+    }
+
+    /**
+     * Same as {@link #applyCreate(Create, IndexWriter, BulkContext)} for a delete operation.
+     */
+    private boolean applyDelete(Delete delete, IndexWriter writer, @Nullable BulkContext bulk) throws IOException {
+        final long currentVersion;
+        VersionValue versionValue = versionValue(delete.uid(), bulk);
+        if (versionValue == null) {
+            currentVersion = indexVersion(delete.uid(), bulk);
+        } else {
+            if (enableGcDeletes && versionValue.delete() && (threadPool.estimatedTimeInMillis() - versionValue.time()) > gcDeletesInMillis) {
+                currentVersion = Versions.NOT_FOUND; // deleted, and GC
             } else {
-                if (enableGcDeletes && versionValue.delete() && (threadPool.estimatedTimeInMillis() - versionValue.time()) > gcDeletesInMillis) {
-                    currentVersion = Versions.NOT_FOUND; // deleted, and GC
-                } else {
-                    currentVersion = versionValue.version();
+                currentVersion = versionValue.version();
+            }
+        }
+
+        long updatedVersion;
+        long expectedVersion = delete.version();
+        if (delete.versionType().isVersionConflictForWrites(currentVersion, expectedVersion)) {
+            if (delete.origin() == Operation.Origin.RECOVERY) {
+                return false;
+            } else {
+                throw new VersionConflictEngineException(shardId, delete.type(), delete.id(), currentVersion, expectedVersion);
+            }
+        }
+        updatedVersion = delete.versionType().updateVersion(currentVersion, expectedVersion);
+
+        if (currentVersion == Versions.NOT_FOUND) {
+            // doc does not exists and no prior deletes
+            delete.updateVersion(updatedVersion, false);
+        } else if (versionValue != null && versionValue.delete()) {
+            // a "delete on delete", in this case, we still increment the version, log it, and return that version
+            delete.updateVersion(updatedVersion, false);
+        } else {
+            delete.updateVersion(updatedVersion, true);
+            writer.deleteDocuments(delete.uid());
+        }
+        return true;
+    }
+
+    @Override
+    public void bulk(Bulk bulk) throws EngineException {
+        final Operation[] operations = bulk.operations();
+        try (InternalLock _ = readLock.acquire()) {
+            IndexWriter writer = this.indexWriter;
+            if (writer == null) {
+                throw new EngineClosedException(shardId, failedEngine);
+            }
+            if (appendOnly) {
+                innerAppendOnlyBulk(bulk, writer);
+            } else {
+                final int[] hashes = new int[operations.length];
+                for (int i = 0; i < operations.length; i++) {
+                    final BytesRef uid = uid(operations[i]).bytes();
+                    hashes[i] = DjbHashFunction.DJB_HASH(uid.bytes, uid.offset, uid.length);
+                }
+                // the locks of all the uids are taken at once, in a deadlock free order
+                try (Releasable __ = dirtyLocks.acquireAll(hashes)) {
+                    innerBulk(bulk, writer);
                 }
             }
+            dirty = true;
+            possibleMergeNeeded = true;
+            flushNeeded = true;
+        }
+    }
 
-            long updatedVersion;
-            long expectedVersion = delete.version();
-            if (delete.versionType().isVersionConflictForWrites(currentVersion, expectedVersion)) {
-                if (delete.origin() == Operation.Origin.RECOVERY) {
-                    return;
-                } else {
-                    throw new VersionConflictEngineException(shardId, delete.type(), delete.id(), currentVersion, expectedVersion);
+    private void innerBulk(Bulk bulk, IndexWriter writer) {
+        final Operation[] operations = bulk.operations();
+        final BulkContext context = new BulkContext();
+        try {
+            context.loadIndexVersions(operations);
+        } catch (IOException e) {
+            for (int i = 0; i < operations.length; i++) {
+                bulk.failure(i, failedEngineException(operations[i], e));
+            }
+            return;
+        }
+
+        final boolean[] applied = new boolean[operations.length];
+        final List<Translog.Operation> translogOperations = new ArrayList<>(operations.length);
+        for (int i = 0; i < operations.length; i++) {
+            final Operation operation = operations[i];
+            try {
+                switch (operation.opType()) {
+                    case CREATE:
+                        applied[i] = applyCreate((Create) operation, writer, context);
+                        break;
+                    case INDEX:
+                        applied[i] = applyIndex((Index) operation, writer, context);
+                        break;
+                    case DELETE:
+                        applied[i] = applyDelete((Delete) operation, writer, context);
+                        break;
+                    default:
+                        throw new ElasticsearchIllegalStateException("No operation defined for [" + operation + "]");
                 }
+            } catch (OutOfMemoryError | IllegalStateException | IOException t) {
+                maybeFailEngine(t);
+                bulk.failure(i, failedEngineException(operation, t));
+            } catch (RuntimeException e) {
+                bulk.failure(i, e);
+            }
+            if (applied[i]) {
+                // later operations on the same uid must see this one
+                context.versionValues.put(uid(operation).bytes(), new VersionValue(version(operation), operation.opType() == Operation.Type.DELETE,
+                        threadPool.estimatedTimeInMillis(), null));
+                translogOperations.add(translogOperation(operation));
             }
-            updatedVersion = delete.versionType().updateVersion(currentVersion, expectedVersion);
+        }
 
-            if (currentVersion == Versions.NOT_FOUND) {
-                // doc does not exists and no prior deletes
-                delete.updateVersion(updatedVersion, false);
-                Translog.Location translogLocation = translog.add(new Translog.Delete(delete));
-                versionMap.put(versionKey, new VersionValue(updatedVersion, true, threadPool.estimatedTimeInMillis(), translogLocation));
-            } else if (versionValue != null && versionValue.delete()) {
-                // a "delete on delete", in this case, we still increment the version, log it, and return that version
-                delete.updateVersion(updatedVersion, false);
-                Translog.Location translogLocation = translog.add(new Translog.Delete(delete));
-                versionMap.put(versionKey, new VersionValue(updatedVersion, true, threadPool.estimatedTimeInMillis(), translogLocation));
-            } else {
-                delete.updateVersion(updatedVersion, true);
-                writer.deleteDocuments(delete.uid());
-                Translog.Location translogLocation = translog.add(new Translog.Delete(delete));
-                versionMap.put(versionKey, new VersionValue(updatedVersion, true, threadPool.estimatedTimeInMillis(), translogLocation));
+        completeBulk(bulk, applied, translogOperations, true);
+    }
+
+    /**
+     * Adds the applied operations of the bulk to the translog in one go, and to the version map if needed, then
+     * notifies the listeners.
+     */
+    private void completeBulk(Bulk bulk, boolean[] applied, List<Translog.Operation> translogOperations, boolean updateVersionMap) {
+        final Operation[] operations = bulk.operations();
+        // the whole batch goes to the translog at once, and is synced once if needed
+        final Translog.Location[] translogLocations;
+        try {
+            translogLocations = translog.add(translogOperations.toArray(new Translog.Operation[translogOperations.size()]));
+        } catch (TranslogException e) {
+            for (int i = 0; i < operations.length; i++) {
+                if (applied[i]) {
+                    bulk.failure(i, e);
+                }
+            }
+            return;
+        }
+        int translogIndex = 0;
+        for (int i = 0; i < operations.length; i++) {
+            if (!applied[i]) {
+                continue;
+            }
+            final Operation operation = operations[i];
+            final Translog.Location translogLocation = translogLocations[translogIndex++];
+            if (updateVersionMap) {
+                versionMap.put(uid(operation).bytes(), version(operation), operation.opType() == Operation.Type.DELETE,
+                        threadPool.estimatedTimeInMillis(), translogLocation);
             }
+            switch (operation.opType()) {
+                case CREATE:
+                    indexingService.postCreateUnderLock((Create) operation);
+                    break;
+                case INDEX:
+                    indexingService.postIndexUnderLock((Index) operation);
+                    break;
+                case DELETE:
+                    indexingService.postDeleteUnderLock((Delete) operation);
+                    break;
+            }
+        }
+    }
 
-            indexingService.postDeleteUnderLock(delete);
+    /**
+     * Applies a bulk to an append only index. Runs of consecutive creates that can't be in the index already are
+     * added with a single {@link IndexWriter#addDocuments} call, which is atomic: if it fails, all the creates of
+     * the run fail.
+     */
+    private void innerAppendOnlyBulk(Bulk bulk, IndexWriter writer) {
+        final Operation[] operations = bulk.operations();
+        final boolean[] applied = new boolean[operations.length];
+        int i = 0;
+        while (i < operations.length) {
+            if (!prepareAppendOnlyBulkCreate(bulk, i)) {
+                i++;
+                continue;
+            }
+            final Create create = (Create) operations[i];
+            if (mightBeIndexedAlready(create)) {
+                try {
+                    appendDocuments(create, writer);
+                    applied[i] = true;
+                } catch (OutOfMemoryError | IllegalStateException | IOException t) {
+                    maybeFailEngine(t);
+                    bulk.failure(i, failedEngineException(create, t));
+                } catch (RuntimeException e) {
+                    bulk.failure(i, e);
+                }
+                i++;
+                continue;
+            }
+            // gather the following creates that can be added along with this one
+            final int from = i;
+            final List<ParseContext.Document> docs = new ArrayList<>(create.docs());
+            for (i = i + 1; i < operations.length; i++) {
+                if (operations[i].opType() != Operation.Type.CREATE) {
+                    break;
+                }
+                final Create next = (Create) operations[i];
+                if (next.analyzer() != create.analyzer() || mightBeIndexedAlready(next) || !prepareAppendOnlyBulkCreate(bulk, i)) {
+                    break;
+                }
+                docs.addAll(next.docs());
+            }
+            try {
+                writer.addDocuments(docs, create.analyzer());
+                Arrays.fill(applied, from, i, true);
+            } catch (OutOfMemoryError | IllegalStateException | IOException t) {
+                maybeFailEngine(t);
+                for (int j = from; j < i; j++) {
+                    bulk.failure(j, failedEngineException(operations[j], t));
+                }
+            } catch (RuntimeException e) {
+                for (int j = from; j < i; j++) {
+                    bulk.failure(j, e);
+                }
+            }
+        }
+
+        final List<Translog.Operation> translogOperations = new ArrayList<>(operations.length);
+        for (int j = 0; j < operations.length; j++) {
+            if (applied[j]) {
+                translogOperations.add(translogOperation(operations[j]));
+            }
+        }
+        completeBulk(bulk, applied, translogOperations, false);
+    }
+
+    /**
+     * Prepares the operation at the given index of a bulk on an append only index, returns <tt>false</tt> and
+     * records the failure on the bulk if it's not supported.
+     */
+    private boolean prepareAppendOnlyBulkCreate(Bulk bulk, int index) {
+        final Operation operation = bulk.operations()[index];
+        try {
+            switch (operation.opType()) {
+                case CREATE:
+                    prepareAppendOnlyCreate((Create) operation);
+                    return true;
+                case INDEX:
+                    throw new AppendOnlyEngineException(shardId, ((Index) operation).type(), ((Index) operation).id(), "index");
+                case DELETE:
+                    throw new AppendOnlyEngineException(shardId, ((Delete) operation).type(), ((Delete) operation).id(), "delete");
+                default:
+                    throw new ElasticsearchIllegalStateException("No operation defined for [" + operation + "]");
+            }
+        } catch (EngineException e) {
+            bulk.failure(index, e);
+            return false;
+        }
+    }
+
+    private boolean needsVersionLookup(Operation operation) {
+        if (operation.opType() == Operation.Type.CREATE) {
+            Create create = (Create) operation;
+            return !(optimizeAutoGenerateId && create.autoGeneratedId() && !create.canHaveDuplicates());
+        }
+        return true;
+    }
+
+    private VersionValue versionValue(Term uid, @Nullable BulkContext bulk) {
+        if (bulk != null) {
+            VersionValue versionValue = bulk.versionValues.get(uid.bytes());
+            if (versionValue != null) {
+                return versionValue;
+            }
+        }
+        return versionMap.get(uid.bytes());
+    }
+
+    private long indexVersion(Term uid, @Nullable BulkContext bulk) throws IOException {
+        if (bulk != null) {
+            Long version = bulk.indexVersions.get(uid.bytes());
+            if (version != null) {
+                return version;
+            }
+        }
+        return loadCurrentVersionFromIndex(uid);
+    }
+
+    private static Term uid(Operation operation) {
+        switch (operation.opType()) {
+            case CREATE:
+            case INDEX:
+                return ((IndexingOperation) operation).uid();
+            case DELETE:
+                return ((Delete) operation).uid();
+            default:
+                throw new ElasticsearchIllegalStateException("No operation defined for [" + operation + "]");
+        }
+    }
+
+    private static long version(Operation operation) {
+        switch (operation.opType()) {
+            case CREATE:
+            case INDEX:
+                return ((IndexingOperation) operation).version();
+            case DELETE:
+                return ((Delete) operation).version();
+            default:
+                throw new ElasticsearchIllegalStateException("No operation defined for [" + operation + "]");
+        }
+    }
+
+    private static Translog.Operation translogOperation(Operation operation) {
+        switch (operation.opType()) {
+            case CREATE:
+                return new Translog.Create((Create) operation);
+            case INDEX:
+                return new Translog.Index((Index) operation);
+            case DELETE:
+                return new Translog.Delete((Delete) operation);
+            default:
+                throw new ElasticsearchIllegalStateException("No operation defined for [" + operation + "]");
+        }
+    }
+
+    private EngineException failedEngineException(Operation operation, Throwable t) {
+        switch (operation.opType()) {
+            case CREATE:
+                return new CreateFailedEngineException(shardId, (Create) operation, t);
+            case INDEX:
+                return new IndexFailedEngineException(shardId, (Index) operation, t);
+            case DELETE:
+                return new DeleteFailedEngineException(shardId, (Delete) operation, t);
+            default:
+                throw new ElasticsearchIllegalStateException("No operation defined for [" + operation + "]");
         }
     }
 
@@ -620,7 +997,7 @@ public class InternalEngine extends AbstractIndexShardComponent implements Engin
             throw new DeleteByQueryFailedEngineException(shardId, delete, t);
         }
         //TODO: This is heavy, since we refresh, but we really have to...
-        refreshVersioningTable(System.currentTimeMillis());
+        refreshVersioningTable();
     }
 
     @Override
@@ -700,8 +1077,12 @@ public class InternalEngine extends AbstractIndexShardComponent implements Engin
                     // as the refresh only holds for data indexed before it. Any data indexed during
                     // the refresh will not be part of it and will set the dirty flag back to true
                     dirty = false;
+                    // swap the version map before opening the new reader, so the values written before the
+                    // swap are visible in the reader once we drop them
+                    versionMap.beforeRefresh();
                     boolean refreshed = searcherManager.maybeRefresh();
                     assert refreshed : "failed to refresh even though refreshMutex was acquired";
+                    versionMap.afterRefresh(enableGcDeletes ? threadPool.estimatedTimeInMillis() - gcDeletesInMillis : Long.MIN_VALUE);
                 }
             }
         } catch (AlreadyClosedException e) {
@@ -762,7 +1143,7 @@ public class InternalEngine extends AbstractIndexShardComponent implements Engin
                         } catch (Throwable t) {
                             logger.warn("Failed to close current SearcherManager", t);
                         }
-                        refreshVersioningTable(threadPool.estimatedTimeInMillis());
+                        refreshVersioningTable();
                     } catch (Throwable t) {
                         throw new FlushFailedEngineException(shardId, t);
                     }
@@ -781,7 +1162,7 @@ public class InternalEngine extends AbstractIndexShardComponent implements Engin
                             translog.newTransientTranslog(translogId);
                             indexWriter.setCommitData(MapBuilder.<String, String>newMapBuilder().put(Translog.TRANSLOG_ID_KEY, Long.toString(translogId)).map());
                             indexWriter.commit();
-                            refreshVersioningTable(threadPool.estimatedTimeInMillis());
+                            refreshVersioningTable();
                             // we need to move transient to current only after we refresh
                             // so items added to current will still be around for realtime get
                             // when tans overrides it
@@ -851,28 +1232,9 @@ public class InternalEngine extends AbstractIndexShardComponent implements Engin
         return writer;
     }
 
-    private void refreshVersioningTable(long time) {
-        // we need to refresh in order to clear older version values
+    private void refreshVersioningTable() {
+        // we need to refresh in order to clear older version values, the version map is swapped on refresh
         refresh(new Refresh("version_table").force(true));
-        for (Map.Entry<HashedBytesRef, VersionValue> entry : versionMap.entrySet()) {
-            HashedBytesRef uid = entry.getKey();
-            synchronized (dirtyLock(uid.bytes)) { // can we do it without this lock on each value? maybe batch to a set and get the lock once per set?
-                VersionValue versionValue = versionMap.get(uid);
-                if (versionValue == null) {
-                    continue;
-                }
-                if (time - versionValue.time() <= 0) {
-                    continue; // its a newer value, from after/during we refreshed, don't clear it
-                }
-                if (versionValue.delete()) {
-                    if (enableGcDeletes && (time - versionValue.time()) > gcDeletesInMillis) {
-                        versionMap.remove(uid);
-                    }
-                } else {
-                    versionMap.remove(uid);
-                }
-            }
-        }
     }
 
     @Override
@@ -1034,6 +1396,10 @@ public class InternalEngine extends AbstractIndexShardComponent implements Engin
                 for (AtomicReaderContext reader : searcher.reader().leaves()) {
                     stats.add(1, getReaderRamBytesUsed(reader));
                 }
+                stats.addVersionMapMemoryInBytes(versionMap.sizeInBytes());
+                if (uidFilterCache != null) {
+                    stats.addUidFilterMemoryInBytes(uidFilterCache.sizeInBytes());
+                }
                 return stats;
             } finally {
                 searcher.close();
@@ -1129,7 +1495,7 @@ public class InternalEngine extends AbstractIndexShardComponent implements Engin
                 try {
                     closed = true;
                     indexSettingsService.removeListener(applySettings);
-                    this.versionMap.clear();
+                    this.versionMap.close();
                     this.failedEngineListeners.clear();
                     try {
                         IOUtils.close(searcherManager);
@@ -1190,23 +1556,18 @@ public class InternalEngine extends AbstractIndexShardComponent implements Engin
         }
     }
 
-    private HashedBytesRef versionKey(Term uid) {
-        return new HashedBytesRef(uid.bytes());
-    }
-
-    private Object dirtyLock(BytesRef uid) {
-        int hash = DjbHashFunction.DJB_HASH(uid.bytes, uid.offset, uid.length);
-        return dirtyLocks[MathUtils.mod(hash, dirtyLocks.length)];
+    private Releasable dirtyLock(BytesRef uid) {
+        return dirtyLocks.acquire(DjbHashFunction.DJB_HASH(uid.bytes, uid.offset, uid.length));
     }
 
-    private Object dirtyLock(Term uid) {
+    private Releasable dirtyLock(Term uid) {
         return dirtyLock(uid.bytes());
     }
 
     private long loadCurrentVersionFromIndex(Term uid) throws IOException {
         Searcher searcher = acquireSearcher("load_version");
         try {
-            return Versions.loadVersion(searcher.reader(), uid);
+            return Versions.loadVersion(searcher.reader(), uid, uidFilterCache);
         } finally {
             searcher.close();
         }
@@ -1237,6 +1598,11 @@ public class InternalEngine extends AbstractIndexShardComponent implements Engin
             config.setInfoStream(new LoggerInfoStream(indexSettings, shardId));
             config.setMergeScheduler(mergeScheduler.newMergeScheduler());
             MergePolicy mergePolicy = mergePolicyProvider.newMergePolicy();
+            final Sort indexSort = IndexSort.indexSort(indexSettings);
+            if (indexSort != null) {
+                // only the merged segments are sorted, the flushed ones keep the indexing order
+                mergePolicy = new SortingMergePolicy(mergePolicy, indexSort);
+            }
             // Give us the opportunity to upgrade old segments while performing
             // background merges
             mergePolicy = new ElasticsearchMergePolicy(mergePolicy);
@@ -1259,6 +1625,9 @@ public class InternalEngine extends AbstractIndexShardComponent implements Engin
                 public void warm(AtomicReader reader) throws IOException {
                     try {
                         assert isMergedSegment(reader);
+                        if (uidFilterCache != null) {
+                            uidFilterCache.warm(reader);
+                        }
                         final Engine.Searcher searcher = new SimpleSearcher("warmer", new IndexSearcher(reader));
                         final IndicesWarmer.WarmerContext context = new IndicesWarmer.WarmerContext(shardId, searcher);
                         if (warmer != null) {
@@ -1288,6 +1657,10 @@ public class InternalEngine extends AbstractIndexShardComponent implements Engin
     public static final String INDEX_COMPOUND_ON_FLUSH = "index.compound_on_flush";
     public static final String INDEX_GC_DELETES = "index.gc_deletes";
     public static final String INDEX_FAIL_ON_MERGE_FAILURE = "index.fail_on_merge_failure";
+    public static final String INDEX_APPEND_ONLY = "index.append_only";
+    public static final String INDEX_UID_FILTER_ENABLED = "index.uid_filter.enabled";
+    public static final String INDEX_UID_FILTER_FPP = "index.uid_filter.fpp";
+    public static final String INDEX_UID_FILTER_MIN_SEGMENT_SIZE = "index.uid_filter.min_segment_size";
 
     class ApplySettings implements IndexSettingsService.Listener {
 
@@ -1401,6 +1774,40 @@ public class InternalEngine extends AbstractIndexShardComponent implements Engin
         }
     }
 
+    /**
+     * The state of a batch applied by {@link #bulk(Bulk)}. The versions of the uids that are not in the version map
+     * are loaded from the index at once, and the versions set by the operations of the batch are tracked here until
+     * the whole batch is in the translog and they can be added to the version map.
+     */
+    private final class BulkContext {
+        final Map<BytesRef, Long> indexVersions = new HashMap<>();
+        final Map<BytesRef, VersionValue> versionValues = new HashMap<>();
+
+        void loadIndexVersions(Operation[] operations) throws IOException {
+            final List<Term> uids = new ArrayList<>();
+            for (Operation operation : operations) {
+                final Term uid = uid(operation);
+                if (needsVersionLookup(operation) && versionMap.get(uid.bytes()) == null && !indexVersions.containsKey(uid.bytes())) {
+                    indexVersions.put(uid.bytes(), null);
+                    uids.add(uid);
+                }
+            }
+            if (uids.isEmpty()) {
+                return;
+            }
+            final long[] versions;
+            final Searcher searcher = acquireSearcher("load_version");
+            try {
+                versions = Versions.loadVersions(searcher.reader(), uids.toArray(new Term[uids.size()]), uidFilterCache);
+            } finally {
+                searcher.close();
+            }
+            for (int i = 0; i < versions.length; i++) {
+                indexVersions.put(uids.get(i).bytes(), versions[i]);
+            }
+        }
+    }
+
     static class VersionValue {
         private final long version;
         private final boolean delete;
@@ -1437,6 +1844,16 @@ public class InternalEngine extends AbstractIndexShardComponent implements Engin
         public IndexSearcher newSearcher(IndexReader reader) throws IOException {
             IndexSearcher searcher = new IndexSearcher(reader);
             searcher.setSimilarity(similarityService.similarity());
+            if (uidFilterCache != null) {
+                // build the filters of the new segments here rather than on the first indexing or get that hits them
+                try {
+                    uidFilterCache.warm(reader);
+                } catch (Throwable e) {
+                    if (!closed) {
+                        logger.warn("failed to warm uid filters", e);
+                    }
+                }
+            }
             if (warmer != null) {
                 // we need to pass a custom searcher that does not release anything on Engine.Search Release,
                 // we will release explicitly
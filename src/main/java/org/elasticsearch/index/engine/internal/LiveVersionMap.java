@@ -0,0 +1,344 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.engine.internal;
+
+import com.carrotsearch.hppc.hash.MurmurHash3;
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.common.lease.Releasable;
+import org.elasticsearch.common.lease.Releasables;
+import org.elasticsearch.common.math.MathUtils;
+import org.elasticsearch.common.util.*;
+import org.elasticsearch.index.translog.Translog;
+
+/**
+ * Maps the uids of documents that were changed since the last refresh to their version, time, translog location
+ * and delete flag.
+ * <p/>
+ * Entries are stored in paged, {@link BigArrays} backed open-addressing tables, so the map costs a fixed number
+ * of bytes per uid and does not create any object per entry. The map is split into generations that are swapped
+ * around refreshes: {@link #beforeRefresh()} moves the current tables aside and starts new ones, and
+ * {@link #afterRefresh(long)} drops the old tables once the refreshed reader can serve their uids. Deletes are
+ * carried over to the new generation until they are older than the given GC threshold, since the reader can't
+ * tell a deleted document from a document that never existed.
+ * <p/>
+ * The tables are striped by uid hash, each stripe having its own monitor, so that writes on different uids don't
+ * contend. Writes on the same uid are expected to be serialized by the caller.
+ */
+final class LiveVersionMap implements Releasable {
+
+    private static final int INITIAL_STRIPE_CAPACITY = 16;
+
+    private final BigArrays bigArrays;
+    private final int numStripes;
+
+    private volatile Generations generations;
+
+    LiveVersionMap(BigArrays bigArrays, int numStripes) {
+        this.bigArrays = bigArrays;
+        this.numStripes = numStripes;
+        this.generations = new Generations(new Generation(), null);
+    }
+
+    /**
+     * Returns the version value of the uid, or <tt>null</tt> if the uid was not changed since the last refresh.
+     */
+    InternalEngine.VersionValue get(BytesRef uid) {
+        final int hash = hash(uid);
+        while (true) {
+            final Generations generations = this.generations;
+            InternalEngine.VersionValue value = generations.current.get(uid, hash);
+            if (value == null && generations.old != null) {
+                value = generations.old.get(uid, hash);
+            }
+            if (value != null || generations == this.generations) {
+                return value;
+            }
+            // a refresh completed between the two reads: the deletes of the old generation might have been carried
+            // over to the current generation after it was read, and the old generation dropped before it was read
+        }
+    }
+
+    /**
+     * Sets the version value of the uid. Must be called after the change has been applied to the index writer,
+     * so that it's either part of the current generation or visible to the reader of the ongoing refresh. A write
+     * that races with a refresh and finds its generation sealed or dropped is retried on the current generation.
+     */
+    void put(BytesRef uid, long version, boolean delete, long time, Translog.Location location) {
+        final int hash = hash(uid);
+        while (true) {
+            final Generations generations = this.generations;
+            if (generations.current.put(uid, hash, version, delete, time, location)) {
+                return;
+            }
+            if (generations == this.generations) {
+                // the map is closed
+                return;
+            }
+            // the generation became the old one and its deletes were already carried over, or it was dropped,
+            // write to the new current generation so that the value doesn't get lost
+        }
+    }
+
+    /**
+     * Starts a new generation, must be called right before the searcher is refreshed. If the previous refresh
+     * failed to complete, the old generation is kept and the current one is not swapped.
+     */
+    void beforeRefresh() {
+        final Generations generations = this.generations;
+        if (generations.old == null) {
+            this.generations = new Generations(new Generation(), generations.current);
+        }
+    }
+
+    /**
+     * Drops the generation that was swapped by {@link #beforeRefresh()}, must be called once the refreshed searcher
+     * is visible. Deletes that are not older than <tt>pruneDeletesBefore</tt> are carried over to the current
+     * generation.
+     */
+    void afterRefresh(long pruneDeletesBefore) {
+        final Generations generations = this.generations;
+        final Generation old = generations.old;
+        if (old == null) {
+            return;
+        }
+        old.carryDeletesInto(generations.current, pruneDeletesBefore);
+        this.generations = new Generations(generations.current, null);
+        old.close();
+    }
+
+    /**
+     * Returns the number of uids in the map, possibly counting uids twice while a refresh is ongoing.
+     */
+    long size() {
+        final Generations generations = this.generations;
+        long size = generations.current.size();
+        if (generations.old != null) {
+            size += generations.old.size();
+        }
+        return size;
+    }
+
+    /**
+     * Returns the estimated memory used by the map.
+     */
+    long sizeInBytes() {
+        final Generations generations = this.generations;
+        long sizeInBytes = generations.current.sizeInBytes();
+        if (generations.old != null) {
+            sizeInBytes += generations.old.sizeInBytes();
+        }
+        return sizeInBytes;
+    }
+
+    @Override
+    public void close() {
+        final Generations generations = this.generations;
+        Releasables.close(generations.current, generations.old);
+    }
+
+    private static int hash(BytesRef uid) {
+        return MurmurHash3.hash(uid.hashCode());
+    }
+
+    private static final class Generations {
+        final Generation current;
+        final Generation old;
+
+        Generations(Generation current, Generation old) {
+            this.current = current;
+            this.old = old;
+        }
+    }
+
+    private final class Generation implements Releasable {
+
+        private final Stripe[] stripes;
+
+        Generation() {
+            stripes = new Stripe[numStripes];
+            for (int i = 0; i < stripes.length; i++) {
+                stripes[i] = new Stripe();
+            }
+        }
+
+        InternalEngine.VersionValue get(BytesRef uid, int hash) {
+            return stripes[MathUtils.mod(hash, stripes.length)].get(uid);
+        }
+
+        boolean put(BytesRef uid, int hash, long version, boolean delete, long time, Translog.Location location) {
+            return stripes[MathUtils.mod(hash, stripes.length)].put(uid, version, delete, time, location, false);
+        }
+
+        void carryDeletesInto(Generation target, long pruneDeletesBefore) {
+            assert target.stripes.length == stripes.length;
+            for (int i = 0; i < stripes.length; i++) {
+                // both generations have the same number of stripes, so a uid lives in the same stripe in both
+                stripes[i].carryDeletesInto(target.stripes[i], pruneDeletesBefore);
+            }
+        }
+
+        long size() {
+            long size = 0;
+            for (Stripe stripe : stripes) {
+                size += stripe.size();
+            }
+            return size;
+        }
+
+        long sizeInBytes() {
+            long sizeInBytes = 0;
+            for (Stripe stripe : stripes) {
+                sizeInBytes += stripe.sizeInBytes();
+            }
+            return sizeInBytes;
+        }
+
+        @Override
+        public void close() {
+            Releasables.close(stripes);
+        }
+    }
+
+    private final class Stripe implements Releasable {
+
+        private final BytesRef spare = new BytesRef();
+
+        private BytesRefHash uids;
+        private LongArray versions;
+        private LongArray times;
+        private LongArray translogIds;
+        private LongArray translogPositions;
+        private IntArray translogSizes;
+        private ByteArray deletes;
+        // set once the deletes of the stripe have been carried over, later writes must go to the current generation
+        private boolean sealed;
+        private boolean closed;
+
+        Stripe() {
+            boolean success = false;
+            try {
+                uids = new BytesRefHash(INITIAL_STRIPE_CAPACITY, bigArrays);
+                versions = bigArrays.newLongArray(INITIAL_STRIPE_CAPACITY, false);
+                times = bigArrays.newLongArray(INITIAL_STRIPE_CAPACITY, false);
+                translogIds = bigArrays.newLongArray(INITIAL_STRIPE_CAPACITY, false);
+                translogPositions = bigArrays.newLongArray(INITIAL_STRIPE_CAPACITY, false);
+                translogSizes = bigArrays.newIntArray(INITIAL_STRIPE_CAPACITY, false);
+                deletes = bigArrays.newByteArray(INITIAL_STRIPE_CAPACITY, false);
+                success = true;
+            } finally {
+                if (!success) {
+                    close();
+                }
+            }
+        }
+
+        synchronized InternalEngine.VersionValue get(BytesRef uid) {
+            if (closed) {
+                // the generation was dropped after a refresh, the reader knows about this uid
+                return null;
+            }
+            final long id = uids.find(uid);
+            if (id < 0) {
+                return null;
+            }
+            return value(id);
+        }
+
+        synchronized boolean put(BytesRef uid, long version, boolean delete, long time, Translog.Location location, boolean onlyIfAbsent) {
+            if (closed || sealed) {
+                return false;
+            }
+            long id = uids.add(uid);
+            if (id < 0) {
+                if (onlyIfAbsent) {
+                    return false;
+                }
+                id = -1 - id;
+            } else {
+                versions = bigArrays.grow(versions, id + 1);
+                times = bigArrays.grow(times, id + 1);
+                translogIds = bigArrays.grow(translogIds, id + 1);
+                translogPositions = bigArrays.grow(translogPositions, id + 1);
+                translogSizes = bigArrays.grow(translogSizes, id + 1);
+                deletes = bigArrays.grow(deletes, id + 1);
+            }
+            versions.set(id, version);
+            times.set(id, time);
+            if (location == null) {
+                translogIds.set(id, -1);
+                translogPositions.set(id, -1);
+                translogSizes.set(id, -1);
+            } else {
+                translogIds.set(id, location.translogId);
+                translogPositions.set(id, location.translogLocation);
+                translogSizes.set(id, location.size);
+            }
+            deletes.set(id, delete ? (byte) 1 : (byte) 0);
+            return true;
+        }
+
+        synchronized void carryDeletesInto(Stripe target, long pruneDeletesBefore) {
+            if (closed) {
+                return;
+            }
+            sealed = true;
+            final long size = uids.size();
+            for (long id = 0; id < size; id++) {
+                if (deletes.get(id) == 0 || times.get(id) < pruneDeletesBefore) {
+                    continue;
+                }
+                // only if absent, a newer value might have been written to the target since the swap
+                target.put(uids.get(id, spare), versions.get(id), true, times.get(id), location(id), true);
+            }
+        }
+
+        private InternalEngine.VersionValue value(long id) {
+            return new InternalEngine.VersionValue(versions.get(id), deletes.get(id) != 0, times.get(id), location(id));
+        }
+
+        private Translog.Location location(long id) {
+            final long translogId = translogIds.get(id);
+            if (translogId == -1) {
+                return null;
+            }
+            return new Translog.Location(translogId, translogPositions.get(id), translogSizes.get(id));
+        }
+
+        synchronized long size() {
+            return closed ? 0 : uids.size();
+        }
+
+        synchronized long sizeInBytes() {
+            if (closed) {
+                return 0;
+            }
+            return uids.sizeInBytes() + versions.sizeInBytes() + times.sizeInBytes() + translogIds.sizeInBytes()
+                    + translogPositions.sizeInBytes() + translogSizes.sizeInBytes() + deletes.sizeInBytes();
+        }
+
+        @Override
+        public synchronized void close() {
+            if (!closed) {
+                closed = true;
+                Releasables.close(uids, versions, times, translogIds, translogPositions, translogSizes, deletes);
+            }
+        }
+    }
+}
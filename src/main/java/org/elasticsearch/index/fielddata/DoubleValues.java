@@ -87,6 +87,27 @@ public abstract class DoubleValues {
      */
     public abstract double nextValue();
 
+    /**
+     * Bulk version of {@link #setDocument(int)} and {@link #nextValue()} for single-valued instances.
+     * Reads the values of the first <tt>count</tt> documents of <tt>docs</tt>, which must be sorted
+     * in increasing order, into <tt>values</tt> and returns the number of values that have been read.
+     * Documents that don't have a value are skipped, so this number may be less than <tt>count</tt>.
+     * <p>
+     * Implementations are encouraged to override this method in order to decode the values of
+     * consecutive documents in bulk.
+     * </p>
+     */
+    public int fill(int[] docs, int count, double[] values) {
+        assert !isMultiValued();
+        int numValues = 0;
+        for (int i = 0; i < count; i++) {
+            if (setDocument(docs[i]) != 0) {
+                values[numValues++] = nextValue();
+            }
+        }
+        return numValues;
+    }
+
     /**
      * Returns the order the values are returned from {@link #nextValue()}.
      * <p> Note: {@link DoubleValues} have {@link AtomicFieldData.Order#NUMERIC} by default.</p>
@@ -20,11 +20,13 @@
 package org.elasticsearch.index.fielddata;
 
 import com.carrotsearch.hppc.ObjectLongOpenHashMap;
+import org.elasticsearch.Version;
 import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.io.stream.Streamable;
 import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.common.xcontent.ToXContent;
 import org.elasticsearch.common.xcontent.XContentBuilder;
 import org.elasticsearch.common.xcontent.XContentBuilderString;
@@ -39,20 +41,34 @@ public class FieldDataStats implements Streamable, ToXContent {
     long evictions;
     @Nullable
     ObjectLongOpenHashMap<String> fields;
+    long globalOrdinalsMemorySize;
+    long globalOrdinalsBuildCount;
+    long globalOrdinalsBuildTimeInMillis;
 
     public FieldDataStats() {
 
     }
 
     public FieldDataStats(long memorySize, long evictions, @Nullable ObjectLongOpenHashMap<String> fields) {
+        this(memorySize, evictions, fields, 0, 0, 0);
+    }
+
+    public FieldDataStats(long memorySize, long evictions, @Nullable ObjectLongOpenHashMap<String> fields,
+                          long globalOrdinalsMemorySize, long globalOrdinalsBuildCount, long globalOrdinalsBuildTimeInMillis) {
         this.memorySize = memorySize;
         this.evictions = evictions;
         this.fields = fields;
+        this.globalOrdinalsMemorySize = globalOrdinalsMemorySize;
+        this.globalOrdinalsBuildCount = globalOrdinalsBuildCount;
+        this.globalOrdinalsBuildTimeInMillis = globalOrdinalsBuildTimeInMillis;
     }
 
     public void add(FieldDataStats stats) {
         this.memorySize += stats.memorySize;
         this.evictions += stats.evictions;
+        this.globalOrdinalsMemorySize += stats.globalOrdinalsMemorySize;
+        this.globalOrdinalsBuildCount += stats.globalOrdinalsBuildCount;
+        this.globalOrdinalsBuildTimeInMillis += stats.globalOrdinalsBuildTimeInMillis;
         if (stats.fields != null) {
             if (fields == null) fields = new ObjectLongOpenHashMap<>();
             final boolean[] states = stats.fields.allocated;
@@ -83,6 +99,35 @@ public class FieldDataStats implements Streamable, ToXContent {
         return fields;
     }
 
+    /**
+     * @return the memory used by the global ordinals that are currently loaded, this is included in {@link #getMemorySizeInBytes()}
+     */
+    public long getGlobalOrdinalsMemorySizeInBytes() {
+        return globalOrdinalsMemorySize;
+    }
+
+    public ByteSizeValue getGlobalOrdinalsMemorySize() {
+        return new ByteSizeValue(globalOrdinalsMemorySize);
+    }
+
+    /**
+     * @return the number of times global ordinals have been built
+     */
+    public long getGlobalOrdinalsBuildCount() {
+        return globalOrdinalsBuildCount;
+    }
+
+    /**
+     * @return the total time spent building global ordinals
+     */
+    public long getGlobalOrdinalsBuildTimeInMillis() {
+        return globalOrdinalsBuildTimeInMillis;
+    }
+
+    public TimeValue getGlobalOrdinalsBuildTime() {
+        return new TimeValue(globalOrdinalsBuildTimeInMillis);
+    }
+
     public static FieldDataStats readFieldDataStats(StreamInput in) throws IOException {
         FieldDataStats stats = new FieldDataStats();
         stats.readFrom(in);
@@ -100,6 +145,11 @@ public class FieldDataStats implements Streamable, ToXContent {
                 fields.put(in.readString(), in.readVLong());
             }
         }
+        if (in.getVersion().onOrAfter(Version.V_2_0_0)) {
+            globalOrdinalsMemorySize = in.readVLong();
+            globalOrdinalsBuildCount = in.readVLong();
+            globalOrdinalsBuildTimeInMillis = in.readVLong();
+        }
     }
 
     @Override
@@ -121,6 +171,11 @@ public class FieldDataStats implements Streamable, ToXContent {
                 }
             }
         }
+        if (out.getVersion().onOrAfter(Version.V_2_0_0)) {
+            out.writeVLong(globalOrdinalsMemorySize);
+            out.writeVLong(globalOrdinalsBuildCount);
+            out.writeVLong(globalOrdinalsBuildTimeInMillis);
+        }
     }
 
     @Override
@@ -128,6 +183,11 @@ public class FieldDataStats implements Streamable, ToXContent {
         builder.startObject(Fields.FIELDDATA);
         builder.byteSizeField(Fields.MEMORY_SIZE_IN_BYTES, Fields.MEMORY_SIZE, memorySize);
         builder.field(Fields.EVICTIONS, getEvictions());
+        builder.startObject(Fields.GLOBAL_ORDINALS);
+        builder.byteSizeField(Fields.MEMORY_SIZE_IN_BYTES, Fields.MEMORY_SIZE, globalOrdinalsMemorySize);
+        builder.field(Fields.BUILD_TOTAL, globalOrdinalsBuildCount);
+        builder.timeValueField(Fields.BUILD_TIME_IN_MILLIS, Fields.BUILD_TIME, globalOrdinalsBuildTimeInMillis);
+        builder.endObject();
         if (fields != null) {
             builder.startObject(Fields.FIELDS);
             final boolean[] states = fields.allocated;
@@ -152,5 +212,9 @@ public class FieldDataStats implements Streamable, ToXContent {
         static final XContentBuilderString MEMORY_SIZE_IN_BYTES = new XContentBuilderString("memory_size_in_bytes");
         static final XContentBuilderString EVICTIONS = new XContentBuilderString("evictions");
         static final XContentBuilderString FIELDS = new XContentBuilderString("fields");
+        static final XContentBuilderString GLOBAL_ORDINALS = new XContentBuilderString("global_ordinals");
+        static final XContentBuilderString BUILD_TOTAL = new XContentBuilderString("build_total");
+        static final XContentBuilderString BUILD_TIME = new XContentBuilderString("build_time");
+        static final XContentBuilderString BUILD_TIME_IN_MILLIS = new XContentBuilderString("build_time_in_millis");
     }
 }
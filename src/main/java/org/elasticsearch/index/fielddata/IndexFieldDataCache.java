@@ -64,7 +64,10 @@ public interface IndexFieldDataCache {
 
         void onLoad(FieldMapper.Names fieldNames, FieldDataType fieldDataType, RamUsage ramUsage);
 
-        void onUnload(FieldMapper.Names fieldNames, FieldDataType fieldDataType, boolean wasEvicted, long sizeInBytes);
+        /**
+         * @param globalOrdinals whether the unloaded entry holds the global ordinals of a top level reader
+         */
+        void onUnload(FieldMapper.Names fieldNames, FieldDataType fieldDataType, boolean wasEvicted, long sizeInBytes, boolean globalOrdinals);
     }
 
     /**
@@ -100,7 +103,7 @@ public interface IndexFieldDataCache {
                 sizeInBytes = value.getMemorySizeInBytes();
             }
             for (Listener listener : key.listeners) {
-                listener.onUnload(fieldNames, fieldDataType, notification.wasEvicted(), sizeInBytes);
+                listener.onUnload(fieldNames, fieldDataType, notification.wasEvicted(), sizeInBytes, key.globalOrdinals);
             }
         }
 
@@ -139,6 +142,7 @@ public interface IndexFieldDataCache {
                     indexReader.addReaderClosedListener(FieldBased.this);
                     GlobalOrdinalsIndexFieldData ifd = (GlobalOrdinalsIndexFieldData) indexFieldData.localGlobalDirect(indexReader);
                     key.sizeInBytes = ifd.getMemorySizeInBytes();
+                    key.globalOrdinals = true;
                     key.listeners.add(indicesFieldDataCacheListener);
                     final ShardId shardId = ShardUtils.extractShardId(indexReader);
                     if (shardId != null) {
@@ -178,13 +182,14 @@ public interface IndexFieldDataCache {
 
         @Override
         public void onClose(IndexReader reader) {
-            cache.invalidate(reader.getCoreCacheKey());
+            cache.invalidate(new Key(reader.getCoreCacheKey()));
         }
 
         static class Key {
             final Object readerKey;
             final List<Listener> listeners = new ArrayList<>();
             long sizeInBytes = -1; // optional size in bytes (we keep it here in case the values are soft references)
+            boolean globalOrdinals;
 
             Key(Object readerKey) {
                 this.readerKey = readerKey;
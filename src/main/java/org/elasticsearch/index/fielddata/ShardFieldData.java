@@ -22,9 +22,11 @@ package org.elasticsearch.index.fielddata;
 import com.carrotsearch.hppc.ObjectLongOpenHashMap;
 import org.elasticsearch.common.inject.Inject;
 import org.elasticsearch.common.metrics.CounterMetric;
+import org.elasticsearch.common.metrics.MeanMetric;
 import org.elasticsearch.common.regex.Regex;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
+import org.elasticsearch.index.fielddata.ordinals.GlobalOrdinalsIndexFieldData;
 import org.elasticsearch.index.mapper.FieldMapper;
 import org.elasticsearch.index.mapper.internal.ParentFieldMapper;
 import org.elasticsearch.index.settings.IndexSettings;
@@ -40,6 +42,8 @@ public class ShardFieldData extends AbstractIndexShardComponent implements Index
 
     final CounterMetric evictionsMetric = new CounterMetric();
     final CounterMetric totalMetric = new CounterMetric();
+    final CounterMetric globalOrdinalsTotalMetric = new CounterMetric();
+    final MeanMetric globalOrdinalsBuildMetric = new MeanMetric();
 
     final ConcurrentMap<String, CounterMetric> perFieldTotals = ConcurrentCollections.newConcurrentMap();
 
@@ -67,12 +71,17 @@ public class ShardFieldData extends AbstractIndexShardComponent implements Index
         if (perFieldTotals.containsKey(ParentFieldMapper.NAME)) {
             memorySize -= perFieldTotals.get(ParentFieldMapper.NAME).count();
         }
-        return new FieldDataStats(memorySize, evictionsMetric.count(), fieldTotals);
+        return new FieldDataStats(memorySize, evictionsMetric.count(), fieldTotals, globalOrdinalsTotalMetric.count(),
+                globalOrdinalsBuildMetric.count(), globalOrdinalsBuildMetric.sum());
     }
 
     @Override
     public void onLoad(FieldMapper.Names fieldNames, FieldDataType fieldDataType, RamUsage ramUsage) {
         totalMetric.inc(ramUsage.getMemorySizeInBytes());
+        if (ramUsage instanceof GlobalOrdinalsIndexFieldData) {
+            globalOrdinalsTotalMetric.inc(ramUsage.getMemorySizeInBytes());
+            globalOrdinalsBuildMetric.inc(((GlobalOrdinalsIndexFieldData) ramUsage).getBuildTimeInMillis());
+        }
         String keyFieldName = fieldNames.indexName();
         CounterMetric total = perFieldTotals.get(keyFieldName);
         if (total != null) {
@@ -88,12 +97,15 @@ public class ShardFieldData extends AbstractIndexShardComponent implements Index
     }
 
     @Override
-    public void onUnload(FieldMapper.Names fieldNames, FieldDataType fieldDataType, boolean wasEvicted, long sizeInBytes) {
+    public void onUnload(FieldMapper.Names fieldNames, FieldDataType fieldDataType, boolean wasEvicted, long sizeInBytes, boolean globalOrdinals) {
         if (wasEvicted) {
             evictionsMetric.inc();
         }
         if (sizeInBytes != -1) {
             totalMetric.dec(sizeInBytes);
+            if (globalOrdinals) {
+                globalOrdinalsTotalMetric.dec(sizeInBytes);
+            }
 
             String keyFieldName = fieldNames.indexName();
             CounterMetric total = perFieldTotals.get(keyFieldName);
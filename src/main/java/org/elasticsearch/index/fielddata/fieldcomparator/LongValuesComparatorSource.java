@@ -41,6 +41,21 @@ public class LongValuesComparatorSource extends IndexFieldData.XFieldComparatorS
         this.sortMode = sortMode;
     }
 
+    /**
+     * Returns the <tt>missing</tt> option of the sort, <tt>null</tt> if it wasn't set.
+     */
+    @Nullable
+    public Object missingValue() {
+        return missingValue;
+    }
+
+    /**
+     * Returns the value that documents with several values sort by.
+     */
+    public MultiValueMode sortMode() {
+        return sortMode;
+    }
+
     @Override
     public SortField.Type reducedType() {
         return SortField.Type.LONG;
@@ -39,12 +39,14 @@ public abstract class GlobalOrdinalsIndexFieldData extends AbstractIndexComponen
     private final FieldMapper.Names fieldNames;
     private final FieldDataType fieldDataType;
     private final long memorySizeInBytes;
+    private final long buildTimeInMillis;
 
-    protected GlobalOrdinalsIndexFieldData(Index index, Settings settings, FieldMapper.Names fieldNames, FieldDataType fieldDataType, long memorySizeInBytes) {
+    protected GlobalOrdinalsIndexFieldData(Index index, Settings settings, FieldMapper.Names fieldNames, FieldDataType fieldDataType, long memorySizeInBytes, long buildTimeInMillis) {
         super(index, settings);
         this.fieldNames = fieldNames;
         this.fieldDataType = fieldDataType;
         this.memorySizeInBytes = memorySizeInBytes;
+        this.buildTimeInMillis = buildTimeInMillis;
     }
 
     @Override
@@ -97,4 +99,11 @@ public abstract class GlobalOrdinalsIndexFieldData extends AbstractIndexComponen
         return memorySizeInBytes;
     }
 
+    /**
+     * @return the time it took to build these global ordinals
+     */
+    public long getBuildTimeInMillis() {
+        return buildTimeInMillis;
+    }
+
 }
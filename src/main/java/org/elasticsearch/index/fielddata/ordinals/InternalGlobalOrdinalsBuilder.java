@@ -24,23 +24,31 @@ import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.index.TermsEnum;
 import org.apache.lucene.util.BytesRef;
 import org.apache.lucene.util.BytesRefIterator;
+import org.apache.lucene.util.LongValues;
 import org.apache.lucene.util.PriorityQueue;
 import org.apache.lucene.util.packed.AppendingPackedLongBuffer;
 import org.apache.lucene.util.packed.MonotonicAppendingLongBuffer;
 import org.apache.lucene.util.packed.PackedInts;
+import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.index.AbstractIndexComponent;
 import org.elasticsearch.index.Index;
 import org.elasticsearch.index.fielddata.AtomicFieldData;
+import org.elasticsearch.index.fielddata.BytesValues;
 import org.elasticsearch.index.fielddata.FieldDataType;
 import org.elasticsearch.index.fielddata.IndexFieldData;
 import org.elasticsearch.index.settings.IndexSettings;
 import org.elasticsearch.indices.fielddata.breaker.CircuitBreakerService;
 
 import java.io.IOException;
+import java.lang.ref.WeakReference;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
 
 /**
  */
@@ -50,6 +58,10 @@ public class InternalGlobalOrdinalsBuilder extends AbstractIndexComponent implem
     public final static String ORDINAL_MAPPING_THRESHOLD_KEY = "global_ordinals_compress_threshold";
     public final static String ORDINAL_MAPPING_THRESHOLD_INDEX_SETTING_KEY = "index." + ORDINAL_MAPPING_THRESHOLD_KEY;
 
+    // the last global ordinals built per field data, these are reused for the segments that didn't change
+    private final Map<IndexFieldData.WithOrdinals, WeakReference<InternalGlobalOrdinalsIndexFieldData>> previousGlobalOrdinals =
+            Collections.synchronizedMap(new WeakHashMap<IndexFieldData.WithOrdinals, WeakReference<InternalGlobalOrdinalsIndexFieldData>>());
+
     public InternalGlobalOrdinalsBuilder(Index index, @IndexSettings Settings indexSettings) {
         super(index, indexSettings);
     }
@@ -73,17 +85,33 @@ public class InternalGlobalOrdinalsBuilder extends AbstractIndexComponent implem
                 indexReader.leaves().size(), acceptableOverheadRatio, threshold
         );
 
-        long currentGlobalOrdinal = 0;
-        final AtomicFieldData.WithOrdinals[] withOrdinals = new AtomicFieldData.WithOrdinals[indexReader.leaves().size()];
-        TermIterator termIterator = new TermIterator(indexFieldData, indexReader.leaves(), withOrdinals);
-        for (BytesRef term = termIterator.next(); term != null; term = termIterator.next()) {
-            globalOrdToFirstSegment.add(termIterator.firstReaderIndex());
-            long globalOrdinalDelta = currentGlobalOrdinal - termIterator.firstLocalOrdinal();
-            globalOrdToFirstSegmentDelta.add(globalOrdinalDelta);
-            for (TermIterator.LeafSource leafSource : termIterator.competitiveLeafs()) {
-                ordinalMappingBuilder.onOrdinal(leafSource.context.ord, leafSource.tenum.ord(), currentGlobalOrdinal);
+        final List<AtomicReaderContext> leaves = indexReader.leaves();
+        final AtomicFieldData.WithOrdinals[] withOrdinals = new AtomicFieldData.WithOrdinals[leaves.size()];
+        final Object[] coreCacheKeys = new Object[leaves.size()];
+        for (int i = 0; i < leaves.size(); i++) {
+            AtomicReaderContext atomicReaderContext = leaves.get(i);
+            withOrdinals[i] = indexFieldData.load(atomicReaderContext);
+            coreCacheKeys[i] = atomicReaderContext.reader().getCoreCacheKey();
+        }
+
+        WeakReference<InternalGlobalOrdinalsIndexFieldData> previousRef = previousGlobalOrdinals.get(indexFieldData);
+        IncrementalBuild incrementalBuild = IncrementalBuild.create(previousRef == null ? null : previousRef.get(), leaves, withOrdinals);
+        final long maxOrd;
+        if (incrementalBuild != null) {
+            maxOrd = incrementalBuild.build(globalOrdToFirstSegment, globalOrdToFirstSegmentDelta, ordinalMappingBuilder);
+        } else {
+            long currentGlobalOrdinal = 0;
+            TermIterator termIterator = new TermIterator(leaves, withOrdinals);
+            for (BytesRef term = termIterator.next(); term != null; term = termIterator.next()) {
+                globalOrdToFirstSegment.add(termIterator.firstReaderIndex());
+                long globalOrdinalDelta = currentGlobalOrdinal - termIterator.firstLocalOrdinal();
+                globalOrdToFirstSegmentDelta.add(globalOrdinalDelta);
+                for (TermIterator.LeafSource leafSource : termIterator.competitiveLeafs()) {
+                    ordinalMappingBuilder.onOrdinal(leafSource.context.ord, leafSource.tenum.ord(), currentGlobalOrdinal);
+                }
+                currentGlobalOrdinal++;
             }
-            currentGlobalOrdinal++;
+            maxOrd = currentGlobalOrdinal;
         }
 
         // ram used for the globalOrd to segmentOrd and segmentOrd to firstReaderIndex lookups
@@ -93,7 +121,6 @@ public class InternalGlobalOrdinalsBuilder extends AbstractIndexComponent implem
         globalOrdToFirstSegmentDelta.freeze();
         memorySizeInBytesCounter += globalOrdToFirstSegmentDelta.ramBytesUsed();
 
-        final long maxOrd = currentGlobalOrdinal;
         OrdinalMappingSource[] segmentOrdToGlobalOrdLookups = ordinalMappingBuilder.build(maxOrd);
         // add ram used for the main segmentOrd to globalOrd lookups
         memorySizeInBytesCounter += ordinalMappingBuilder.getMemorySizeInBytes();
@@ -101,27 +128,316 @@ public class InternalGlobalOrdinalsBuilder extends AbstractIndexComponent implem
         final long memorySizeInBytes = memorySizeInBytesCounter;
         breakerService.getBreaker().addWithoutBreaking(memorySizeInBytes);
 
+        final long buildTimeInMillis = System.currentTimeMillis() - startTime;
         if (logger.isDebugEnabled()) {
             // this does include the [] from the array in the impl name
             String implName = segmentOrdToGlobalOrdLookups.getClass().getSimpleName();
             logger.debug(
-                    "Global-ordinals[{}][{}][{}] took {} ms",
+                    "Global-ordinals[{}][{}][{}] took {} ms, reused [{}] segments",
                     implName,
                     indexFieldData.getFieldNames().fullName(),
                     maxOrd,
-                    (System.currentTimeMillis() - startTime)
+                    buildTimeInMillis,
+                    incrementalBuild == null ? 0 : incrementalBuild.numKeptSegments()
             );
         }
-        return new InternalGlobalOrdinalsIndexFieldData(indexFieldData.index(), settings, indexFieldData.getFieldNames(),
-                fieldDataType, withOrdinals, globalOrdToFirstSegment, globalOrdToFirstSegmentDelta,
-                segmentOrdToGlobalOrdLookups, memorySizeInBytes
+        InternalGlobalOrdinalsIndexFieldData globalOrdinals = new InternalGlobalOrdinalsIndexFieldData(indexFieldData.index(),
+                settings, indexFieldData.getFieldNames(), fieldDataType, withOrdinals, coreCacheKeys, globalOrdToFirstSegment,
+                globalOrdToFirstSegmentDelta, segmentOrdToGlobalOrdLookups, maxOrd, memorySizeInBytes, buildTimeInMillis
         );
+        previousGlobalOrdinals.put(indexFieldData, new WeakReference<>(globalOrdinals));
+        return globalOrdinals;
+    }
+
+    /**
+     * Builds global ordinals from the global ordinals of a previous top level reader. The segments this reader shares
+     * with the previous reader have the same term dictionaries, so their terms are already sorted in the global ordinal
+     * space of the previous reader. Only the terms of the new segments need to be merged into that space, by binary
+     * searching each of them among the terms of the shared segments. The segment ordinal to global ordinal mappings of
+     * the shared segments are then shifted by the number of new terms that sort before each of their terms.
+     */
+    private final static class IncrementalBuild {
+
+        private final InternalGlobalOrdinalsIndexFieldData previous;
+        private final List<AtomicReaderContext> leaves;
+        private final AtomicFieldData.WithOrdinals[] withOrdinals;
+        private final BytesValues.WithOrdinals[] bytesValues;
+        // the index of each segment in the previous global ordinals, -1 if it is a new segment
+        private final int[] previousSegments;
+        // the index of each segment of the previous global ordinals in the current reader, -1 if it is gone
+        private final int[] keptSegments;
+        private final int numKeptSegments;
+
+        // the terms of the shared segments, ranked in term order
+        private long numKeptTerms;
+        private LongValues keptTermToFirstSegment;
+        private LongValues keptTermToFirstSegmentOrd;
+        // only set when some segments of the previous reader are gone
+        private LongValues previousOrdToKeptTerm;
+
+        private IncrementalBuild(InternalGlobalOrdinalsIndexFieldData previous, List<AtomicReaderContext> leaves, AtomicFieldData.WithOrdinals[] withOrdinals, int[] previousSegments, int[] keptSegments, int numKeptSegments) {
+            this.previous = previous;
+            this.leaves = leaves;
+            this.withOrdinals = withOrdinals;
+            this.previousSegments = previousSegments;
+            this.keptSegments = keptSegments;
+            this.numKeptSegments = numKeptSegments;
+            this.bytesValues = new BytesValues.WithOrdinals[withOrdinals.length];
+            for (int i = 0; i < withOrdinals.length; i++) {
+                bytesValues[i] = withOrdinals[i].getBytesValues(false);
+            }
+        }
+
+        /**
+         * @return an incremental build or <code>null</code> if the global ordinals can't be built incrementally or if
+         * a full build is expected to be cheaper
+         */
+        static IncrementalBuild create(@Nullable InternalGlobalOrdinalsIndexFieldData previous, List<AtomicReaderContext> leaves, AtomicFieldData.WithOrdinals[] withOrdinals) {
+            if (previous == null) {
+                return null;
+            }
+            int[] previousSegments = new int[leaves.size()];
+            int[] keptSegments = new int[previous.numSegments()];
+            Arrays.fill(keptSegments, -1);
+            int numKeptSegments = 0;
+            long numOrds = 0;
+            long numNewOrds = 0;
+            for (int i = 0; i < leaves.size(); i++) {
+                // segments sharing a core share their terms, deletes don't matter
+                int previousSegment = previous.segmentIndex(leaves.get(i).reader().getCoreCacheKey());
+                previousSegments[i] = previousSegment;
+                long segmentMaxOrd = withOrdinals[i].getBytesValues(false).ordinals().getMaxOrd();
+                numOrds += segmentMaxOrd;
+                if (previousSegment == -1) {
+                    numNewOrds += segmentMaxOrd;
+                } else {
+                    keptSegments[previousSegment] = i;
+                    numKeptSegments++;
+                }
+            }
+            // a full build merges all the terms, while an incremental build binary searches the terms of the new segments
+            if (numKeptSegments == 0 || numNewOrds * PackedInts.bitsRequired(previous.maxOrd()) >= numOrds) {
+                return null;
+            }
+            return new IncrementalBuild(previous, leaves, withOrdinals, previousSegments, keptSegments, numKeptSegments);
+        }
+
+        int numKeptSegments() {
+            return numKeptSegments;
+        }
+
+        long build(AppendingPackedLongBuffer globalOrdToFirstSegment, MonotonicAppendingLongBuffer globalOrdToFirstSegmentDelta, OrdinalMappingSourceBuilder ordinalMappingBuilder) throws IOException {
+            rankKeptTerms();
+
+            // merge the terms of the new segments into the terms of the shared segments
+            final AppendingPackedLongBuffer newTermToKeptTerm = new AppendingPackedLongBuffer(PackedInts.COMPACT);
+            final AppendingPackedLongBuffer newTermToFirstSegment = new AppendingPackedLongBuffer(PackedInts.COMPACT);
+            final AppendingPackedLongBuffer newTermToFirstSegmentOrd = new AppendingPackedLongBuffer(PackedInts.COMPACT);
+            List<AtomicReaderContext> newLeaves = new ArrayList<>();
+            for (int i = 0; i < leaves.size(); i++) {
+                if (previousSegments[i] == -1) {
+                    newLeaves.add(leaves.get(i));
+                }
+            }
+            long low = 0;
+            long numNewTerms = 0;
+            TermIterator termIterator = new TermIterator(newLeaves, withOrdinals);
+            for (BytesRef term = termIterator.next(); term != null; term = termIterator.next()) {
+                // terms come in order, so the search can start from the position of the previous term
+                long high = numKeptTerms - 1;
+                boolean found = false;
+                while (low <= high) {
+                    long mid = (low + high) >>> 1;
+                    int cmp = keptTermBytes(mid).compareTo(term);
+                    if (cmp < 0) {
+                        low = mid + 1;
+                    } else if (cmp > 0) {
+                        high = mid - 1;
+                    } else {
+                        low = mid;
+                        found = true;
+                        break;
+                    }
+                }
+                // all the new terms seen so far sort before this term, all the following ones after it
+                long globalOrd = low + numNewTerms;
+                for (TermIterator.LeafSource leafSource : termIterator.competitiveLeafs()) {
+                    ordinalMappingBuilder.onOrdinal(leafSource.context.ord, leafSource.tenum.ord(), globalOrd);
+                }
+                if (!found) {
+                    newTermToKeptTerm.add(low);
+                    newTermToFirstSegment.add(termIterator.firstReaderIndex());
+                    newTermToFirstSegmentOrd.add(termIterator.firstLocalOrdinal());
+                    numNewTerms++;
+                }
+            }
+            newTermToKeptTerm.freeze();
+            newTermToFirstSegment.freeze();
+            newTermToFirstSegmentOrd.freeze();
+
+            // interleave the terms of the shared segments with the new terms
+            final MonotonicAppendingLongBuffer keptTermToGlobalOrd = new MonotonicAppendingLongBuffer(PackedInts.COMPACT);
+            long globalOrd = 0;
+            long newTerm = 0;
+            for (long keptTerm = 0; keptTerm < numKeptTerms; keptTerm++) {
+                for (; newTerm < numNewTerms && newTermToKeptTerm.get(newTerm) == keptTerm; newTerm++, globalOrd++) {
+                    globalOrdToFirstSegment.add(newTermToFirstSegment.get(newTerm));
+                    globalOrdToFirstSegmentDelta.add(globalOrd - newTermToFirstSegmentOrd.get(newTerm));
+                }
+                globalOrdToFirstSegment.add(keptTermFirstSegment(keptTerm));
+                globalOrdToFirstSegmentDelta.add(globalOrd - keptTermFirstSegmentOrd(keptTerm));
+                keptTermToGlobalOrd.add(globalOrd++);
+            }
+            for (; newTerm < numNewTerms; newTerm++, globalOrd++) {
+                globalOrdToFirstSegment.add(newTermToFirstSegment.get(newTerm));
+                globalOrdToFirstSegmentDelta.add(globalOrd - newTermToFirstSegmentOrd.get(newTerm));
+            }
+            keptTermToGlobalOrd.freeze();
+
+            // shift the mappings of the shared segments
+            for (int i = 0; i < leaves.size(); i++) {
+                int previousSegment = previousSegments[i];
+                if (previousSegment == -1) {
+                    continue;
+                }
+                long segmentMaxOrd = bytesValues[i].ordinals().getMaxOrd();
+                for (long segmentOrd = 0; segmentOrd < segmentMaxOrd; segmentOrd++) {
+                    long keptTerm = toKeptTerm(previous.globalOrd(previousSegment, segmentOrd));
+                    ordinalMappingBuilder.onOrdinal(i, segmentOrd, keptTermToGlobalOrd.get(keptTerm));
+                }
+            }
+            return globalOrd;
+        }
+
+        /**
+         * Ranks the terms of the shared segments. If all the segments of the previous reader are still there, then these
+         * are just the previous global ordinals, otherwise the terms that only lived in the removed segments are dropped
+         * by merging the previous global ordinals of the shared segments.
+         */
+        private void rankKeptTerms() {
+            if (numKeptSegments == previous.numSegments()) {
+                numKeptTerms = previous.maxOrd();
+                return;
+            }
+            AppendingPackedLongBuffer keptTermToFirstSegment = new AppendingPackedLongBuffer(PackedInts.COMPACT);
+            AppendingPackedLongBuffer keptTermToFirstSegmentOrd = new AppendingPackedLongBuffer(PackedInts.COMPACT);
+            MonotonicAppendingLongBuffer previousOrdToKeptTerm = new MonotonicAppendingLongBuffer(PackedInts.COMPACT);
+            PreviousOrdQueue queue = new PreviousOrdQueue(numKeptSegments);
+            for (int i = 0; i < leaves.size(); i++) {
+                if (previousSegments[i] != -1) {
+                    PreviousOrdSource source = new PreviousOrdSource(i, previousSegments[i], bytesValues[i].ordinals().getMaxOrd());
+                    if (source.next()) {
+                        queue.add(source);
+                    }
+                }
+            }
+            long keptTerm = 0;
+            long previousOrd = 0;
+            while (queue.size() > 0) {
+                final PreviousOrdSource top = queue.top();
+                final long currentPreviousOrd = top.previousOrd;
+                // the terms that sort before belonged to removed segments only
+                for (; previousOrd <= currentPreviousOrd; previousOrd++) {
+                    previousOrdToKeptTerm.add(keptTerm);
+                }
+                keptTermToFirstSegment.add(top.segment);
+                keptTermToFirstSegmentOrd.add(top.segmentOrd);
+                while (queue.size() > 0 && queue.top().previousOrd == currentPreviousOrd) {
+                    if (queue.top().next()) {
+                        queue.updateTop();
+                    } else {
+                        queue.pop();
+                    }
+                }
+                keptTerm++;
+            }
+            for (; previousOrd < previous.maxOrd(); previousOrd++) {
+                previousOrdToKeptTerm.add(keptTerm);
+            }
+            keptTermToFirstSegment.freeze();
+            keptTermToFirstSegmentOrd.freeze();
+            previousOrdToKeptTerm.freeze();
+            this.numKeptTerms = keptTerm;
+            this.keptTermToFirstSegment = keptTermToFirstSegment;
+            this.keptTermToFirstSegmentOrd = keptTermToFirstSegmentOrd;
+            this.previousOrdToKeptTerm = previousOrdToKeptTerm;
+        }
+
+        private long toKeptTerm(long previousOrd) {
+            return previousOrdToKeptTerm == null ? previousOrd : previousOrdToKeptTerm.get(previousOrd);
+        }
+
+        private BytesRef keptTermBytes(long keptTerm) {
+            return bytesValues[keptTermFirstSegment(keptTerm)].getValueByOrd(keptTermFirstSegmentOrd(keptTerm));
+        }
+
+        /**
+         * @return the index in the current reader of the first shared segment that has the given kept term
+         */
+        private int keptTermFirstSegment(long keptTerm) {
+            if (previousOrdToKeptTerm == null) {
+                // the kept terms are the previous global ordinals
+                return keptSegments[previous.firstSegment(keptTerm)];
+            } else {
+                return (int) keptTermToFirstSegment.get(keptTerm);
+            }
+        }
+
+        /**
+         * @return the ordinal of the given kept term in its {@link #keptTermFirstSegment(long) first segment}
+         */
+        private long keptTermFirstSegmentOrd(long keptTerm) {
+            if (previousOrdToKeptTerm == null) {
+                return previous.firstSegmentOrd(keptTerm);
+            } else {
+                return keptTermToFirstSegmentOrd.get(keptTerm);
+            }
+        }
+
+        private final class PreviousOrdSource {
+
+            final int segment;
+            final int previousSegment;
+            final long maxOrd;
+
+            long segmentOrd = -1;
+            long previousOrd;
+
+            private PreviousOrdSource(int segment, int previousSegment, long maxOrd) {
+                this.segment = segment;
+                this.previousSegment = previousSegment;
+                this.maxOrd = maxOrd;
+            }
+
+            boolean next() {
+                if (++segmentOrd >= maxOrd) {
+                    return false;
+                }
+                previousOrd = previous.globalOrd(previousSegment, segmentOrd);
+                return true;
+            }
+        }
+
+        private final static class PreviousOrdQueue extends PriorityQueue<PreviousOrdSource> {
+
+            PreviousOrdQueue(int size) {
+                super(size);
+            }
+
+            @Override
+            protected boolean lessThan(PreviousOrdSource a, PreviousOrdSource b) {
+                return a.previousOrd < b.previousOrd;
+            }
+        }
+
     }
 
     public interface OrdinalMappingSource {
 
         Ordinals.Docs globalOrdinals(Ordinals.Docs segmentOrdinals);
 
+        long globalOrd(long segmentOrd);
+
     }
 
     public static abstract class GlobalOrdinalMapping implements Ordinals.Docs {
@@ -279,6 +595,11 @@ public class InternalGlobalOrdinalsBuilder extends AbstractIndexComponent implem
             return new GlobalOrdinalsDocs(segmentOrdinals, globalOrdinalMapping, memorySizeInBytes, maxOrd);
         }
 
+        @Override
+        public long globalOrd(long segmentOrd) {
+            return segmentOrd + globalOrdinalMapping.get(segmentOrd);
+        }
+
         private final static class GlobalOrdinalsDocs extends GlobalOrdinalMapping {
 
             private final MonotonicAppendingLongBuffer segmentOrdToGlobalOrdLookup;
@@ -313,6 +634,11 @@ public class InternalGlobalOrdinalsBuilder extends AbstractIndexComponent implem
             return new GlobalOrdinalsDocs(segmentOrdinals, memorySizeInBytes, maxOrd, segmentOrdToGlobalOrdLookup);
         }
 
+        @Override
+        public long globalOrd(long segmentOrd) {
+            return segmentOrd + segmentOrdToGlobalOrdLookup.get((int) segmentOrd);
+        }
+
         private final static class GlobalOrdinalsDocs extends GlobalOrdinalMapping {
 
             private final PackedInts.Reader segmentOrdToGlobalOrdLookup;
@@ -335,13 +661,11 @@ public class InternalGlobalOrdinalsBuilder extends AbstractIndexComponent implem
         private final LeafSourceQueue sources;
         private final List<LeafSource> competitiveLeafs = new ArrayList<>();
 
-        private TermIterator(IndexFieldData.WithOrdinals indexFieldData, List<AtomicReaderContext> leaves, AtomicFieldData.WithOrdinals[] withOrdinals) throws IOException {
+        private TermIterator(List<AtomicReaderContext> leaves, AtomicFieldData.WithOrdinals[] withOrdinals) throws IOException {
             this.sources = new LeafSourceQueue(leaves.size());
             for (int i = 0; i < leaves.size(); i++) {
                 AtomicReaderContext atomicReaderContext = leaves.get(i);
-                AtomicFieldData.WithOrdinals afd = indexFieldData.load(atomicReaderContext);
-                withOrdinals[i] = afd;
-                LeafSource leafSource = new LeafSource(afd, atomicReaderContext);
+                LeafSource leafSource = new LeafSource(withOrdinals[atomicReaderContext.ord], atomicReaderContext);
                 if (leafSource.current != null) {
                     sources.add(leafSource);
                 }
@@ -38,13 +38,21 @@ import org.elasticsearch.index.mapper.FieldMapper;
 final class InternalGlobalOrdinalsIndexFieldData extends GlobalOrdinalsIndexFieldData {
 
     private final Atomic[] atomicReaders;
+    private final Object[] segmentCoreCacheKeys;
+    private final LongValues globalOrdToFirstSegment;
+    private final LongValues globalOrdToFirstSegmentDelta;
+    private final long maxOrd;
 
-    InternalGlobalOrdinalsIndexFieldData(Index index, Settings settings, FieldMapper.Names fieldNames, FieldDataType fieldDataType, AtomicFieldData.WithOrdinals[] segmentAfd, LongValues globalOrdToFirstSegment, LongValues globalOrdToFirstSegmentDelta, OrdinalMappingSource[] segmentOrdToGlobalOrds, long memorySizeInBytes) {
-        super(index, settings, fieldNames, fieldDataType, memorySizeInBytes);
+    InternalGlobalOrdinalsIndexFieldData(Index index, Settings settings, FieldMapper.Names fieldNames, FieldDataType fieldDataType, AtomicFieldData.WithOrdinals[] segmentAfd, Object[] segmentCoreCacheKeys, LongValues globalOrdToFirstSegment, LongValues globalOrdToFirstSegmentDelta, OrdinalMappingSource[] segmentOrdToGlobalOrds, long maxOrd, long memorySizeInBytes, long buildTimeInMillis) {
+        super(index, settings, fieldNames, fieldDataType, memorySizeInBytes, buildTimeInMillis);
         this.atomicReaders = new Atomic[segmentAfd.length];
         for (int i = 0; i < segmentAfd.length; i++) {
             atomicReaders[i] = new Atomic(segmentAfd[i], globalOrdToFirstSegment, globalOrdToFirstSegmentDelta, segmentOrdToGlobalOrds[i]);
         }
+        this.segmentCoreCacheKeys = segmentCoreCacheKeys;
+        this.globalOrdToFirstSegment = globalOrdToFirstSegment;
+        this.globalOrdToFirstSegmentDelta = globalOrdToFirstSegmentDelta;
+        this.maxOrd = maxOrd;
     }
 
     @Override
@@ -52,6 +60,55 @@ final class InternalGlobalOrdinalsIndexFieldData extends GlobalOrdinalsIndexFiel
         return atomicReaders[context.ord];
     }
 
+    /**
+     * @return the number of global ordinals
+     */
+    long maxOrd() {
+        return maxOrd;
+    }
+
+    /**
+     * @return the number of segments these global ordinals were built from
+     */
+    int numSegments() {
+        return atomicReaders.length;
+    }
+
+    /**
+     * @return the index of the segment with the given core cache key or <code>-1</code> if these global ordinals
+     * weren't built from this segment
+     */
+    int segmentIndex(Object coreCacheKey) {
+        for (int i = 0; i < segmentCoreCacheKeys.length; i++) {
+            if (segmentCoreCacheKeys[i] == coreCacheKey) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return the global ordinal the segment ordinal of the segment at the given index maps to
+     */
+    long globalOrd(int segmentIndex, long segmentOrd) {
+        OrdinalMappingSource mapping = atomicReaders[segmentIndex].segmentOrdToGlobalOrdLookup;
+        return mapping == null ? segmentOrd : mapping.globalOrd(segmentOrd);
+    }
+
+    /**
+     * @return the index of the first segment that holds the term of the given global ordinal
+     */
+    int firstSegment(long globalOrd) {
+        return (int) globalOrdToFirstSegment.get(globalOrd);
+    }
+
+    /**
+     * @return the ordinal of the term of the given global ordinal in its first segment
+     */
+    long firstSegmentOrd(long globalOrd) {
+        return globalOrd - globalOrdToFirstSegmentDelta.get(globalOrd);
+    }
+
     private final class Atomic implements AtomicFieldData.WithOrdinals {
 
         private final WithOrdinals afd;
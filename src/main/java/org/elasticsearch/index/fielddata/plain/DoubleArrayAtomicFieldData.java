@@ -325,7 +325,14 @@ public abstract class DoubleArrayAtomicFieldData extends AbstractAtomicNumericFi
             public double nextValue() {
                 return values.get(docId);
             }
-            
+
+            @Override
+            public int fill(int[] docs, int count, double[] values) {
+                for (int i = 0; i < count; i++) {
+                    values[i] = this.values.get(docs[i]);
+                }
+                return count;
+            }
         }
     }
 }
@@ -325,6 +325,14 @@ public abstract class FloatArrayAtomicFieldData extends AbstractAtomicNumericFie
                 return values.get(docId);
             }
 
+            @Override
+            public int fill(int[] docs, int count, double[] values) {
+                for (int i = 0; i < count; i++) {
+                    values[i] = this.values.get(docs[i]);
+                }
+                return count;
+            }
+
         }
     }
 }
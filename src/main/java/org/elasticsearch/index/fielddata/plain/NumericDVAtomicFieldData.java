@@ -131,6 +131,26 @@ public class NumericDVAtomicFieldData extends AbstractAtomicNumericFieldData {
                 return docValues.values.get(docId);
             }
 
+            @Override
+            public int fill(int[] docs, int count, double[] values) {
+                final NumericDocValues numericValues = docValues.values;
+                if (docValues.docsWithField instanceof Bits.MatchAllBits) {
+                    for (int i = 0; i < count; i++) {
+                        values[i] = numericValues.get(docs[i]);
+                    }
+                    return count;
+                }
+                final Bits docsWithField = docValues.docsWithField;
+                int numValues = 0;
+                for (int i = 0; i < count; i++) {
+                    final int doc = docs[i];
+                    if (docsWithField.get(doc)) {
+                        values[numValues++] = numericValues.get(doc);
+                    }
+                }
+                return numValues;
+            }
+
         };
     }
 
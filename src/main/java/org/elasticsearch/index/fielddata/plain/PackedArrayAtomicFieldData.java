@@ -19,6 +19,7 @@
 
 package org.elasticsearch.index.fielddata.plain;
 
+import org.apache.lucene.util.ArrayUtil;
 import org.apache.lucene.util.FixedBitSet;
 import org.apache.lucene.util.RamUsageEstimator;
 import org.apache.lucene.util.packed.AppendingDeltaPackedLongBuffer;
@@ -328,6 +329,7 @@ public abstract class PackedArrayAtomicFieldData extends AbstractAtomicNumericFi
 
             private final PackedInts.Mutable values;
             private final long minValue;
+            private long[] buffer;
 
             DoubleValues(PackedInts.Mutable values, long minValue) {
                 super(false);
@@ -346,6 +348,27 @@ public abstract class PackedArrayAtomicFieldData extends AbstractAtomicNumericFi
                 return minValue + values.get(docId);
             }
 
+            @Override
+            public int fill(int[] docs, int count, double[] values) {
+                if (count > 1 && docs[count - 1] - docs[0] == count - 1) {
+                    // consecutive documents: decode the packed blocks in bulk instead of value by value
+                    if (buffer == null || buffer.length < count) {
+                        buffer = new long[ArrayUtil.oversize(count, RamUsageEstimator.NUM_BYTES_LONG)];
+                    }
+                    for (int read = 0; read < count; ) {
+                        read += this.values.get(docs[0] + read, buffer, read, count - read);
+                    }
+                    for (int i = 0; i < count; i++) {
+                        values[i] = minValue + buffer[i];
+                    }
+                } else {
+                    for (int i = 0; i < count; i++) {
+                        values[i] = minValue + this.values.get(docs[i]);
+                    }
+                }
+                return count;
+            }
+
         }
     }
 
@@ -287,7 +287,7 @@ public class ParentChildIndexFieldData extends AbstractIndexFieldData<ParentChil
                     PerType perType = new PerType(parentType.utf8ToString());
                     globalIfdPerType.put(perType.type, perType);
                 }
-                return new ParentChildGlobalOrdinalsIndexFieldData(globalIfdPerType.build(), 0);
+                return new ParentChildGlobalOrdinalsIndexFieldData(globalIfdPerType.build(), 0, 0);
             }
 
             try {
@@ -305,13 +305,15 @@ public class ParentChildIndexFieldData extends AbstractIndexFieldData<ParentChil
         public WithOrdinals localGlobalDirect(IndexReader indexReader) throws Exception {
             ImmutableOpenMap.Builder<String, WithOrdinals> globalIfdPerType = ImmutableOpenMap.builder();
             long memorySizeInBytes = 0;
+            long buildTimeInMillis = 0;
             for (BytesRef parentType : parentTypes) {
                 PerType perType = new PerType(parentType.utf8ToString());
                 GlobalOrdinalsIndexFieldData globalIfd = (GlobalOrdinalsIndexFieldData) globalOrdinalsBuilder.build(indexReader, perType, indexSettings, breakerService);
                 globalIfdPerType.put(perType.type, globalIfd);
                 memorySizeInBytes += globalIfd.getMemorySizeInBytes();
+                buildTimeInMillis += globalIfd.getBuildTimeInMillis();
             }
-            return new ParentChildGlobalOrdinalsIndexFieldData(globalIfdPerType.build(), memorySizeInBytes);
+            return new ParentChildGlobalOrdinalsIndexFieldData(globalIfdPerType.build(), memorySizeInBytes, buildTimeInMillis);
         }
 
         @Override
@@ -388,8 +390,8 @@ public class ParentChildIndexFieldData extends AbstractIndexFieldData<ParentChil
 
         private final ImmutableOpenMap<String, WithOrdinals> typeGlobalOrdinals;
 
-        private ParentChildGlobalOrdinalsIndexFieldData(ImmutableOpenMap<String, WithOrdinals> typeGlobalOrdinals, long memorySizeInBytes) {
-            super(ParentChildIndexFieldData.this.index(), ParentChildIndexFieldData.this.indexSettings, ParentChildIndexFieldData.this.getFieldNames(), ParentChildIndexFieldData.this.getFieldDataType(), memorySizeInBytes);
+        private ParentChildGlobalOrdinalsIndexFieldData(ImmutableOpenMap<String, WithOrdinals> typeGlobalOrdinals, long memorySizeInBytes, long buildTimeInMillis) {
+            super(ParentChildIndexFieldData.this.index(), ParentChildIndexFieldData.this.indexSettings, ParentChildIndexFieldData.this.getFieldNames(), ParentChildIndexFieldData.this.getFieldDataType(), memorySizeInBytes, buildTimeInMillis);
             this.typeGlobalOrdinals = typeGlobalOrdinals;
         }
 
@@ -22,13 +22,18 @@ package org.elasticsearch.index.gateway.local;
 import org.apache.lucene.index.IndexWriter;
 import org.apache.lucene.index.IndexWriterConfig;
 import org.apache.lucene.index.SegmentInfos;
+import org.apache.lucene.util.IOUtils;
 import org.elasticsearch.ElasticsearchException;
 import org.elasticsearch.ExceptionsHelper;
 import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.io.FileSystemUtils;
+import org.elasticsearch.common.io.stream.ByteBufferStreamInput;
 import org.elasticsearch.common.io.stream.InputStreamStreamInput;
+import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.lucene.Lucene;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.common.util.concurrent.EsExecutors;
 import org.elasticsearch.index.gateway.IndexShardGateway;
 import org.elasticsearch.index.gateway.IndexShardGatewayRecoveryException;
 import org.elasticsearch.indices.recovery.RecoveryState;
@@ -44,10 +49,12 @@ import org.elasticsearch.index.translog.fs.FsTranslog;
 import org.elasticsearch.rest.RestStatus;
 import org.elasticsearch.threadpool.ThreadPool;
 
-import java.io.EOFException;
+import java.io.BufferedInputStream;
 import java.io.File;
 import java.io.FileInputStream;
-import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
 import java.util.Arrays;
 import java.util.concurrent.ScheduledFuture;
 
@@ -65,6 +72,9 @@ public class LocalIndexShardGateway extends AbstractIndexShardComponent implemen
     private volatile ScheduledFuture flushScheduler;
     private final TimeValue syncInterval;
 
+    private final int recoveryConcurrency;
+    private final int recoveryBatchSize;
+
     @Inject
     public LocalIndexShardGateway(ShardId shardId, @IndexSettings Settings indexSettings, ThreadPool threadPool, IndexShard indexShard) {
         super(shardId, indexSettings);
@@ -81,6 +91,9 @@ public class LocalIndexShardGateway extends AbstractIndexShardComponent implemen
         } else {
             flushScheduler = null;
         }
+
+        this.recoveryConcurrency = componentSettings.getAsInt("recovery.concurrency", Math.min(4, EsExecutors.boundedNumberOfProcessors(indexSettings)));
+        this.recoveryBatchSize = componentSettings.getAsInt("recovery.batch_size", 1000);
     }
 
     @Override
@@ -207,22 +220,32 @@ public class LocalIndexShardGateway extends AbstractIndexShardComponent implemen
 
         recoveryState.getTranslog().startTime(System.currentTimeMillis());
         recoveryState.setStage(RecoveryState.Stage.TRANSLOG);
-        FileInputStream fs = null;
+        RandomAccessFile raf = null;
+        MappedByteBuffer mapped = null;
         try {
-            fs = new FileInputStream(recoveringTranslogFile);
-            InputStreamStreamInput si = new InputStreamStreamInput(fs);
+            raf = new RandomAccessFile(recoveringTranslogFile, "r");
+            final StreamInput si;
+            if (raf.length() <= Integer.MAX_VALUE) {
+                // operations are parsed straight out of the mapping, their sources are slices of it
+                mapped = raf.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, raf.length());
+                si = new ByteBufferStreamInput(mapped);
+            } else {
+                si = new InputStreamStreamInput(new BufferedInputStream(new FileInputStream(raf.getFD())));
+            }
+            TranslogRecoveryPipeline pipeline = null;
+            if (recoveryConcurrency > 1) {
+                pipeline = new TranslogRecoveryPipeline(indexShard, recoveryState.getTranslog(),
+                        threadPool.executor(ThreadPool.Names.GENERIC), recoveryConcurrency, recoveryBatchSize, logger);
+            }
             while (true) {
-                Translog.Operation operation;
-                try {
-                    int opSize = si.readInt();
-                    operation = TranslogStreams.readTranslogOperation(si);
-                } catch (EOFException e) {
-                    // ignore, not properly written the last op
-                    break;
-                } catch (IOException e) {
-                    // ignore, not properly written last op
+                Translog.Operation operation = TranslogStreams.readNextOperation(si);
+                if (operation == null) {
                     break;
                 }
+                if (pipeline != null) {
+                    pipeline.add(operation);
+                    continue;
+                }
                 try {
                     indexShard.performRecoveryOperation(operation);
                     recoveryState.getTranslog().addTranslogOperations(1);
@@ -235,16 +258,19 @@ public class LocalIndexShardGateway extends AbstractIndexShardComponent implemen
                     }
                 }
             }
+            if (pipeline != null) {
+                pipeline.finish();
+            }
         } catch (Throwable e) {
             // we failed to recovery, make sure to delete the translog file (and keep the recovering one)
             indexShard.translog().closeWithDelete();
             throw new IndexShardGatewayRecoveryException(shardId, "failed to recover shard", e);
         } finally {
-            try {
-                fs.close();
-            } catch (IOException e) {
-                // ignore
+            // all the operations were applied, nothing references the mapping anymore
+            if (mapped != null) {
+                FileSystemUtils.unmap(mapped);
             }
+            IOUtils.closeWhileHandlingException(raf);
         }
         indexShard.performRecoveryFinalization(true);
 
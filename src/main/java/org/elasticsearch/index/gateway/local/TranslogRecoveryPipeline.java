@@ -0,0 +1,286 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.gateway.local;
+
+import com.carrotsearch.hppc.IntArrayList;
+import com.carrotsearch.hppc.hash.MurmurHash3;
+import org.apache.lucene.index.Term;
+import org.elasticsearch.ElasticsearchException;
+import org.elasticsearch.ElasticsearchIllegalStateException;
+import org.elasticsearch.common.logging.ESLogger;
+import org.elasticsearch.common.math.MathUtils;
+import org.elasticsearch.index.engine.Engine;
+import org.elasticsearch.index.shard.service.InternalIndexShard;
+import org.elasticsearch.index.translog.Translog;
+import org.elasticsearch.indices.recovery.RecoveryState;
+import org.elasticsearch.rest.RestStatus;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Replays translog operations in a pipeline. The caller reads operations from the translog and hands them over in
+ * batches. The operations of a batch are parsed concurrently, and then applied to the engine concurrently, the
+ * operations of a uid always being applied by the same task, in translog order. While a batch is applied, the next
+ * one is read and parsed.
+ * <p/>
+ * Delete by query operations can match any uid, so they act as a barrier: everything before them is applied first,
+ * then they are applied on their own.
+ * <p/>
+ * Operations that fail to parse with a {@link RestStatus#BAD_REQUEST} are ignored, any other failure aborts the
+ * recovery once the tasks that are still running are done.
+ */
+class TranslogRecoveryPipeline {
+
+    /**
+     * Where the operations are replayed, the shard being recovered.
+     */
+    interface Target {
+
+        Engine.Operation prepareRecoveryOperation(Translog.Operation operation) throws ElasticsearchException;
+
+        void performRecoveryOperation(Engine.Operation operation) throws ElasticsearchException;
+
+        void performRecoveryOperation(Translog.Operation operation) throws ElasticsearchException;
+    }
+
+    private final Target indexShard;
+    private final RecoveryState.Translog recoveryState;
+    private final Executor executor;
+    private final int concurrency;
+    private final int batchSize;
+    private final ESLogger logger;
+
+    private List<Translog.Operation> batch;
+
+    private List<FutureTask<Void>> pendingApplies = new ArrayList<>();
+    private final AtomicInteger applied = new AtomicInteger();
+
+    TranslogRecoveryPipeline(final InternalIndexShard indexShard, RecoveryState.Translog recoveryState, Executor executor,
+                             int concurrency, int batchSize, ESLogger logger) {
+        this(new Target() {
+            @Override
+            public Engine.Operation prepareRecoveryOperation(Translog.Operation operation) throws ElasticsearchException {
+                return indexShard.prepareRecoveryOperation(operation);
+            }
+
+            @Override
+            public void performRecoveryOperation(Engine.Operation operation) throws ElasticsearchException {
+                indexShard.performRecoveryOperation(operation);
+            }
+
+            @Override
+            public void performRecoveryOperation(Translog.Operation operation) throws ElasticsearchException {
+                indexShard.performRecoveryOperation(operation);
+            }
+        }, recoveryState, executor, concurrency, batchSize, logger);
+    }
+
+    TranslogRecoveryPipeline(Target indexShard, RecoveryState.Translog recoveryState, Executor executor,
+                             int concurrency, int batchSize, ESLogger logger) {
+        this.indexShard = indexShard;
+        this.recoveryState = recoveryState;
+        this.executor = executor;
+        this.concurrency = concurrency;
+        this.batchSize = batchSize;
+        this.logger = logger;
+        this.batch = new ArrayList<>(batchSize);
+    }
+
+    /**
+     * Adds an operation read from the translog, possibly waiting for the previous batch to be applied.
+     */
+    public void add(Translog.Operation operation) throws Exception {
+        if (operation.opType() == Translog.Operation.Type.DELETE_BY_QUERY) {
+            flushBatch();
+            waitForPendingApplies();
+            try {
+                indexShard.performRecoveryOperation(operation);
+                recoveryState.addTranslogOperations(1);
+            } catch (ElasticsearchException e) {
+                ignoreIfBadRequest(e);
+            }
+            return;
+        }
+        batch.add(operation);
+        if (batch.size() >= batchSize) {
+            flushBatch();
+        }
+    }
+
+    /**
+     * Replays the operations that were not replayed yet, and waits for all of them to be applied.
+     */
+    public void finish() throws Exception {
+        flushBatch();
+        waitForPendingApplies();
+    }
+
+    private void flushBatch() throws Exception {
+        if (batch.isEmpty()) {
+            return;
+        }
+        final List<Translog.Operation> operations = batch;
+        batch = new ArrayList<>(batchSize);
+        final Engine.Operation[] prepared;
+        try {
+            prepared = prepare(operations);
+        } catch (Throwable t) {
+            // don't leave the previous batch being applied behind
+            try {
+                waitForPendingApplies();
+            } catch (Throwable t1) {
+                // ignore, we report the first failure
+            }
+            throw t;
+        }
+        // operations on the same uid might be spread over consecutive batches, the previous one must be applied first
+        waitForPendingApplies();
+        apply(prepared);
+    }
+
+    private Engine.Operation[] prepare(final List<Translog.Operation> operations) throws Exception {
+        final Engine.Operation[] prepared = new Engine.Operation[operations.size()];
+        final int sliceSize = (operations.size() + concurrency - 1) / concurrency;
+        final List<FutureTask<Void>> tasks = new ArrayList<>(concurrency);
+        for (int start = 0; start < operations.size(); start += sliceSize) {
+            final int from = start;
+            final int to = Math.min(operations.size(), start + sliceSize);
+            tasks.add(new FutureTask<>(new Callable<Void>() {
+                @Override
+                public Void call() throws Exception {
+                    for (int i = from; i < to; i++) {
+                        try {
+                            prepared[i] = indexShard.prepareRecoveryOperation(operations.get(i));
+                        } catch (ElasticsearchException e) {
+                            ignoreIfBadRequest(e);
+                        }
+                    }
+                    return null;
+                }
+            }));
+        }
+        // the recovery thread would wait anyway, it can as well parse the last slice
+        for (int i = 0; i < tasks.size() - 1; i++) {
+            executor.execute(tasks.get(i));
+        }
+        tasks.get(tasks.size() - 1).run();
+        waitFor(tasks);
+        return prepared;
+    }
+
+    private void apply(final Engine.Operation[] prepared) {
+        final IntArrayList[] partitions = new IntArrayList[concurrency];
+        for (int i = 0; i < prepared.length; i++) {
+            if (prepared[i] == null) {
+                continue;
+            }
+            final int partition = MathUtils.mod(MurmurHash3.hash(uid(prepared[i]).bytes().hashCode()), concurrency);
+            if (partitions[partition] == null) {
+                partitions[partition] = new IntArrayList();
+            }
+            partitions[partition].add(i);
+        }
+        final List<FutureTask<Void>> tasks = new ArrayList<>(concurrency);
+        for (final IntArrayList partition : partitions) {
+            if (partition == null) {
+                continue;
+            }
+            tasks.add(new FutureTask<>(new Callable<Void>() {
+                @Override
+                public Void call() throws Exception {
+                    for (int i = 0; i < partition.size(); i++) {
+                        try {
+                            indexShard.performRecoveryOperation(prepared[partition.get(i)]);
+                            applied.incrementAndGet();
+                        } catch (ElasticsearchException e) {
+                            ignoreIfBadRequest(e);
+                        }
+                    }
+                    return null;
+                }
+            }));
+        }
+        pendingApplies = tasks;
+        // applied in the background, while the recovery thread reads and parses the next batch
+        for (FutureTask<Void> task : tasks) {
+            executor.execute(task);
+        }
+    }
+
+    private void waitForPendingApplies() throws Exception {
+        final List<FutureTask<Void>> tasks = pendingApplies;
+        pendingApplies = new ArrayList<>();
+        try {
+            waitFor(tasks);
+        } finally {
+            // the recovery state is only updated from the recovery thread
+            recoveryState.addTranslogOperations(applied.getAndSet(0));
+        }
+    }
+
+    /**
+     * Waits for all the tasks, even if some of them fail, so that nothing is left running once the recovery
+     * is aborted. The first failure is rethrown.
+     */
+    private static void waitFor(List<FutureTask<Void>> tasks) throws Exception {
+        Throwable failure = null;
+        for (FutureTask<Void> task : tasks) {
+            try {
+                task.get();
+            } catch (ExecutionException e) {
+                if (failure == null) {
+                    failure = e.getCause();
+                }
+            }
+        }
+        if (failure instanceof Exception) {
+            throw (Exception) failure;
+        } else if (failure instanceof Error) {
+            throw (Error) failure;
+        }
+    }
+
+    private void ignoreIfBadRequest(ElasticsearchException e) throws ElasticsearchException {
+        if (e.status() == RestStatus.BAD_REQUEST) {
+            // mainly for MapperParsingException and Failure to detect xcontent
+            logger.info("ignoring recovery of a corrupt translog entry", e);
+        } else {
+            throw e;
+        }
+    }
+
+    private static Term uid(Engine.Operation operation) {
+        switch (operation.opType()) {
+            case CREATE:
+            case INDEX:
+                return ((Engine.IndexingOperation) operation).uid();
+            case DELETE:
+                return ((Engine.Delete) operation).uid();
+            default:
+                throw new ElasticsearchIllegalStateException("No operation defined for [" + operation + "]");
+        }
+    }
+}
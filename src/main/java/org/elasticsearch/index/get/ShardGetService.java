@@ -280,32 +280,19 @@ public class ShardGetService extends AbstractIndexShardComponent {
 
                     sourceToBeReturned = source.source;
 
-                    // Cater for source excludes/includes at the cost of performance
                     // We must first apply the field mapper filtering to make sure we get correct results
                     // in the case that the fetchSourceContext white lists something that's not included by the field mapper
-
-                    Map<String, Object> filteredSource = null;
-                    XContentType sourceContentType = null;
-                    if (sourceFieldMapper.includes().length > 0 || sourceFieldMapper.excludes().length > 0) {
-                        // TODO: The source might parsed and available in the sourceLookup but that one uses unordered maps so different. Do we care?
-                        Tuple<XContentType, Map<String, Object>> typeMapTuple = XContentHelper.convertToMap(source.source, true);
-                        sourceContentType = typeMapTuple.v1();
-                        filteredSource = XContentMapValues.filter(typeMapTuple.v2(), sourceFieldMapper.includes(), sourceFieldMapper.excludes());
-                    }
-                    if (fetchSourceContext.includes().length > 0 || fetchSourceContext.excludes().length > 0) {
-                        if (filteredSource == null) {
-                            Tuple<XContentType, Map<String, Object>> typeMapTuple = XContentHelper.convertToMap(source.source, true);
-                            sourceContentType = typeMapTuple.v1();
-                            filteredSource = typeMapTuple.v2();
-                        }
-                        filteredSource = XContentMapValues.filter(filteredSource, fetchSourceContext.includes(), fetchSourceContext.excludes());
+                    // The source is filtered while it's streamed, so we don't build a map out of the whole document
+                    try {
+                        sourceToBeReturned = XContentHelper.filter(sourceToBeReturned, sourceFieldMapper.includes(), sourceFieldMapper.excludes());
+                        sourceToBeReturned = XContentHelper.filter(sourceToBeReturned, fetchSourceContext.includes(), fetchSourceContext.excludes());
+                    } catch (IOException e) {
+                        throw new ElasticsearchException("Failed to get type [" + type + "] and id [" + id + "] with includes/excludes set", e);
                     }
-                    if (filteredSource != null) {
-                        try {
-                            sourceToBeReturned = XContentFactory.contentBuilder(sourceContentType).map(filteredSource).bytes();
-                        } catch (IOException e) {
-                            throw new ElasticsearchException("Failed to get type [" + type + "] and id [" + id + "] with includes/excludes set", e);
-                        }
+                    if (sourceToBeReturned == source.source && !sourceToBeReturned.hasArray()) {
+                        // an unfiltered source that isn't on heap is a view over a memory mapped translog, which is
+                        // only valid until the get is released
+                        sourceToBeReturned = sourceToBeReturned.copyBytesArray();
                     }
                 }
 
@@ -19,10 +19,12 @@
 
 package org.elasticsearch.index.indexing;
 
+import org.elasticsearch.Version;
 import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.io.stream.Streamable;
+import org.elasticsearch.common.unit.ByteSizeValue;
 import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.common.xcontent.ToXContent;
 import org.elasticsearch.common.xcontent.XContentBuilder;
@@ -148,6 +150,9 @@ public class IndexingStats implements Streamable, ToXContent {
     @Nullable
     private Map<String, Stats> typeStats;
 
+    private long indexBufferSizeInBytes = -1;
+    private long translogBufferSizeInBytes = -1;
+
     public IndexingStats() {
         totalStats = new Stats();
     }
@@ -157,6 +162,12 @@ public class IndexingStats implements Streamable, ToXContent {
         this.typeStats = typeStats;
     }
 
+    public IndexingStats(Stats totalStats, @Nullable Map<String, Stats> typeStats, long indexBufferSizeInBytes, long translogBufferSizeInBytes) {
+        this(totalStats, typeStats);
+        this.indexBufferSizeInBytes = indexBufferSizeInBytes;
+        this.translogBufferSizeInBytes = translogBufferSizeInBytes;
+    }
+
     public void add(IndexingStats indexingStats) {
         add(indexingStats, true);
     }
@@ -166,6 +177,8 @@ public class IndexingStats implements Streamable, ToXContent {
             return;
         }
         totalStats.add(indexingStats.totalStats);
+        indexBufferSizeInBytes = addBufferSize(indexBufferSizeInBytes, indexingStats.indexBufferSizeInBytes);
+        translogBufferSizeInBytes = addBufferSize(translogBufferSizeInBytes, indexingStats.translogBufferSizeInBytes);
         if (includeTypes && indexingStats.typeStats != null && !indexingStats.typeStats.isEmpty()) {
             if (typeStats == null) {
                 typeStats = new HashMap<>(indexingStats.typeStats.size());
@@ -181,10 +194,34 @@ public class IndexingStats implements Streamable, ToXContent {
         }
     }
 
+    private static long addBufferSize(long size, long other) {
+        // -1 means that no buffer was allocated yet
+        if (other < 0) {
+            return size;
+        }
+        return size < 0 ? other : size + other;
+    }
+
     public Stats getTotal() {
         return this.totalStats;
     }
 
+    /**
+     * The indexing buffer allocated to the shards, <tt>null</tt> if none was allocated yet.
+     */
+    @Nullable
+    public ByteSizeValue getIndexBufferSize() {
+        return indexBufferSizeInBytes < 0 ? null : new ByteSizeValue(indexBufferSizeInBytes);
+    }
+
+    /**
+     * The translog buffer allocated to the shards, <tt>null</tt> if none was allocated yet.
+     */
+    @Nullable
+    public ByteSizeValue getTranslogBufferSize() {
+        return translogBufferSizeInBytes < 0 ? null : new ByteSizeValue(translogBufferSizeInBytes);
+    }
+
     @Nullable
     public Map<String, Stats> getTypeStats() {
         return this.typeStats;
@@ -194,6 +231,12 @@ public class IndexingStats implements Streamable, ToXContent {
     public XContentBuilder toXContent(XContentBuilder builder, ToXContent.Params params) throws IOException {
         builder.startObject(Fields.INDEXING);
         totalStats.toXContent(builder, params);
+        if (indexBufferSizeInBytes >= 0) {
+            builder.byteSizeField(Fields.INDEX_BUFFER_SIZE_IN_BYTES, Fields.INDEX_BUFFER_SIZE, indexBufferSizeInBytes);
+        }
+        if (translogBufferSizeInBytes >= 0) {
+            builder.byteSizeField(Fields.TRANSLOG_BUFFER_SIZE_IN_BYTES, Fields.TRANSLOG_BUFFER_SIZE, translogBufferSizeInBytes);
+        }
         if (typeStats != null && !typeStats.isEmpty()) {
             builder.startObject(Fields.TYPES);
             for (Map.Entry<String, Stats> entry : typeStats.entrySet()) {
@@ -218,6 +261,10 @@ public class IndexingStats implements Streamable, ToXContent {
         static final XContentBuilderString DELETE_TIME = new XContentBuilderString("delete_time");
         static final XContentBuilderString DELETE_TIME_IN_MILLIS = new XContentBuilderString("delete_time_in_millis");
         static final XContentBuilderString DELETE_CURRENT = new XContentBuilderString("delete_current");
+        static final XContentBuilderString INDEX_BUFFER_SIZE = new XContentBuilderString("index_buffer_size");
+        static final XContentBuilderString INDEX_BUFFER_SIZE_IN_BYTES = new XContentBuilderString("index_buffer_size_in_bytes");
+        static final XContentBuilderString TRANSLOG_BUFFER_SIZE = new XContentBuilderString("translog_buffer_size");
+        static final XContentBuilderString TRANSLOG_BUFFER_SIZE_IN_BYTES = new XContentBuilderString("translog_buffer_size_in_bytes");
     }
 
     public static IndexingStats readIndexingStats(StreamInput in) throws IOException {
@@ -236,6 +283,10 @@ public class IndexingStats implements Streamable, ToXContent {
                 typeStats.put(in.readString(), Stats.readStats(in));
             }
         }
+        if (in.getVersion().onOrAfter(Version.V_2_0_0)) {
+            indexBufferSizeInBytes = in.readLong();
+            translogBufferSizeInBytes = in.readLong();
+        }
     }
 
     @Override
@@ -251,5 +302,9 @@ public class IndexingStats implements Streamable, ToXContent {
                 entry.getValue().writeTo(out);
             }
         }
+        if (out.getVersion().onOrAfter(Version.V_2_0_0)) {
+            out.writeLong(indexBufferSizeInBytes);
+            out.writeLong(translogBufferSizeInBytes);
+        }
     }
 }
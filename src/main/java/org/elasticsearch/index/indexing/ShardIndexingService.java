@@ -25,6 +25,7 @@ import org.elasticsearch.common.inject.Inject;
 import org.elasticsearch.common.metrics.CounterMetric;
 import org.elasticsearch.common.metrics.MeanMetric;
 import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.ByteSizeValue;
 import org.elasticsearch.index.engine.Engine;
 import org.elasticsearch.index.indexing.slowlog.ShardSlowLogIndexingService;
 import org.elasticsearch.index.settings.IndexSettings;
@@ -48,6 +49,11 @@ public class ShardIndexingService extends AbstractIndexShardComponent {
 
     private volatile Map<String, StatsHolder> typesStats = ImmutableMap.of();
 
+    private final CounterMetric indexedBytes = new CounterMetric();
+
+    private volatile long indexBufferSizeInBytes = -1;
+    private volatile long translogBufferSizeInBytes = -1;
+
     @Inject
     public ShardIndexingService(ShardId shardId, @IndexSettings Settings indexSettings, ShardSlowLogIndexingService slowLog) {
         super(shardId, indexSettings);
@@ -78,7 +84,22 @@ public class ShardIndexingService extends AbstractIndexShardComponent {
                 }
             }
         }
-        return new IndexingStats(total, typesSt);
+        return new IndexingStats(total, typesSt, indexBufferSizeInBytes, translogBufferSizeInBytes);
+    }
+
+    /**
+     * Returns the number of source bytes indexed on this shard since it was created, not reset by {@link #clear()}.
+     */
+    public long indexedBytes() {
+        return indexedBytes.count();
+    }
+
+    /**
+     * Records the indexing and translog buffer sizes allocated to this shard, for stats.
+     */
+    public void updateBufferSizes(ByteSizeValue indexBufferSize, ByteSizeValue translogBufferSize) {
+        this.indexBufferSizeInBytes = indexBufferSize.bytes();
+        this.translogBufferSizeInBytes = translogBufferSize.bytes();
     }
 
     public void addListener(IndexingOperationListener listener) {
@@ -115,6 +136,7 @@ public class ShardIndexingService extends AbstractIndexShardComponent {
         StatsHolder typeStats = typeStats(create.type());
         typeStats.indexMetric.inc(took);
         typeStats.indexCurrent.dec();
+        indexedBytes.inc(create.source().length());
         slowLog.postCreate(create, took);
         for (IndexingOperationListener listener : listeners) {
             try {
@@ -151,6 +173,7 @@ public class ShardIndexingService extends AbstractIndexShardComponent {
         StatsHolder typeStats = typeStats(index.type());
         typeStats.indexMetric.inc(took);
         typeStats.indexCurrent.dec();
+        indexedBytes.inc(index.source().length());
         slowLog.postIndex(index, took);
         for (IndexingOperationListener listener : listeners) {
             try {
@@ -161,6 +184,11 @@ public class ShardIndexingService extends AbstractIndexShardComponent {
         }
     }
 
+    public void failedCreate(Engine.Create create) {
+        totalStats.indexCurrent.dec();
+        typeStats(create.type()).indexCurrent.dec();
+    }
+
     public void failedIndex(Engine.Index index) {
         totalStats.indexCurrent.dec();
         typeStats(index.type()).indexCurrent.dec();
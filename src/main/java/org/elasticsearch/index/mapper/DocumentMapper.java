@@ -45,6 +45,7 @@ import org.elasticsearch.index.analysis.NamedAnalyzer;
 import org.elasticsearch.index.mapper.internal.*;
 import org.elasticsearch.index.mapper.object.ObjectMapper;
 import org.elasticsearch.index.mapper.object.RootObjectMapper;
+import org.elasticsearch.index.merge.policy.IndexSort;
 
 import java.io.IOException;
 import java.util.*;
@@ -560,6 +561,14 @@ public class DocumentMapper implements ToXContent {
             }
         }
 
+        // the field that sorts the index can't be validated by the mapping alone, documents could have several values
+        final String indexSortField = indexSettings == null ? null : indexSettings.get(IndexSort.INDEX_SORT_FIELD);
+        if (indexSortField != null) {
+            for (ParseContext.Document document : context.docs()) {
+                IndexSort.validateDocument(indexSortField, document);
+            }
+        }
+
         ParsedDocument doc = new ParsedDocument(context.uid(), context.version(), context.id(), context.type(), source.routing(), source.timestamp(), source.ttl(), context.docs(), context.analyzer(),
                 context.source(), context.mappingsModified()).parent(source.parent());
         // reset the context to free up memory
@@ -52,6 +52,7 @@ import org.elasticsearch.index.codec.postingsformat.PostingsFormatService;
 import org.elasticsearch.index.fielddata.IndexFieldDataService;
 import org.elasticsearch.index.mapper.internal.TypeFieldMapper;
 import org.elasticsearch.index.mapper.object.ObjectMapper;
+import org.elasticsearch.index.merge.policy.IndexSort;
 import org.elasticsearch.index.search.nested.NonNestedDocsFilter;
 import org.elasticsearch.index.settings.IndexSettings;
 import org.elasticsearch.index.similarity.SimilarityLookupService;
@@ -273,6 +274,7 @@ public class MapperService extends AbstractIndexComponent implements Iterable<Do
             if (mapper.type().contains(".") && !PercolatorService.TYPE_NAME.equals(mapper.type())) {
                 logger.warn("Type [{}] contains a '.', it is recommended not to include it within a type name", mapper.type());
             }
+            IndexSort.validateMapping(indexSettings, mapper);
             // we can add new field/object mappers while the old ones are there
             // since we get new instances of those, and when we remove, we remove
             // by instance equality
@@ -24,6 +24,7 @@ import com.google.common.collect.Lists;
 import org.apache.lucene.index.*;
 import org.apache.lucene.index.FieldInfo.DocValuesType;
 import org.apache.lucene.index.FieldInfo.IndexOptions;
+import org.apache.lucene.index.sorter.SortingMergePolicy;
 import org.apache.lucene.store.Directory;
 import org.apache.lucene.util.Bits;
 import org.apache.lucene.util.BytesRef;
@@ -187,10 +188,21 @@ public final class ElasticsearchMergePolicy extends MergePolicy {
         return upgradedSpec;
     }
 
+    /**
+     * The merges of a {@link SortingMergePolicy} read the segments through their own sorted view, they are kept as is:
+     * sorted segments are only written by recent indices, which store the versions in doc values already.
+     */
+    private MergeSpecification upgrade(MergeSpecification spec) {
+        if (delegate instanceof SortingMergePolicy) {
+            return spec;
+        }
+        return upgradedMergeSpecification(spec);
+    }
+
     @Override
     public MergeSpecification findMerges(MergeTrigger mergeTrigger,
         SegmentInfos segmentInfos) throws IOException {
-      return upgradedMergeSpecification(delegate.findMerges(mergeTrigger, segmentInfos));
+      return upgrade(delegate.findMerges(mergeTrigger, segmentInfos));
     }
 
     @Override
@@ -210,13 +222,13 @@ public final class ElasticsearchMergePolicy extends MergePolicy {
               return spec;
           }
       }
-      return upgradedMergeSpecification(delegate.findForcedMerges(segmentInfos, maxSegmentCount, segmentsToMerge));
+      return upgrade(delegate.findForcedMerges(segmentInfos, maxSegmentCount, segmentsToMerge));
     }
 
     @Override
     public MergeSpecification findForcedDeletesMerges(SegmentInfos segmentInfos)
         throws IOException {
-      return upgradedMergeSpecification(delegate.findForcedDeletesMerges(segmentInfos));
+      return upgrade(delegate.findForcedDeletesMerges(segmentInfos));
     }
 
     @Override
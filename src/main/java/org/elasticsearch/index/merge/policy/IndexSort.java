@@ -0,0 +1,189 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.elasticsearch.index.merge.policy;
+
+import org.apache.lucene.index.IndexableField;
+import org.apache.lucene.search.FieldComparatorSource;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.SortField;
+import org.elasticsearch.ElasticsearchIllegalArgumentException;
+import org.elasticsearch.common.Nullable;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.index.fielddata.fieldcomparator.DoubleValuesComparatorSource;
+import org.elasticsearch.index.fielddata.fieldcomparator.FloatValuesComparatorSource;
+import org.elasticsearch.index.fielddata.fieldcomparator.LongValuesComparatorSource;
+import org.elasticsearch.index.mapper.DocumentMapper;
+import org.elasticsearch.index.mapper.FieldMapper;
+import org.elasticsearch.index.mapper.FieldMappers;
+import org.elasticsearch.index.mapper.MapperParsingException;
+import org.elasticsearch.index.mapper.ParseContext;
+import org.elasticsearch.index.mapper.core.NumberFieldMapper;
+import org.elasticsearch.search.MultiValueMode;
+
+import java.util.Locale;
+
+/**
+ * The sort of the documents of the merged segments of an index, set with the <tt>index.sort.field</tt>,
+ * <tt>index.sort.order</tt> and <tt>index.sort.type</tt> settings. The merges sort the documents through the field
+ * cache, so only numeric fields without doc values can sort an index, see {@link #validateMapping}, and the documents
+ * can't have more than one value for the field, see {@link #validateDocument}. The documents without a value are
+ * sorted last, like the default <tt>missing</tt> of the search sort.
+ */
+public final class IndexSort {
+
+    public static final String INDEX_SORT_FIELD = "index.sort.field";
+    public static final String INDEX_SORT_ORDER = "index.sort.order";
+    public static final String INDEX_SORT_TYPE = "index.sort.type";
+
+    private IndexSort() {
+    }
+
+    /**
+     * Returns the sort of the index, <tt>null</tt> if the index isn't sorted.
+     */
+    @Nullable
+    public static Sort indexSort(Settings indexSettings) {
+        final String field = indexSettings.get(INDEX_SORT_FIELD);
+        if (field == null) {
+            return null;
+        }
+        final String order = indexSettings.get(INDEX_SORT_ORDER, "asc");
+        final boolean reverse;
+        if ("asc".equals(order)) {
+            reverse = false;
+        } else if ("desc".equals(order)) {
+            reverse = true;
+        } else {
+            throw new ElasticsearchIllegalArgumentException("Unknown [" + INDEX_SORT_ORDER + "] [" + order + "], must be one of [asc, desc]");
+        }
+        final String type = indexSettings.get(INDEX_SORT_TYPE, "long");
+        final SortField sortField;
+        switch (type.toLowerCase(Locale.ROOT)) {
+            case "long":
+                sortField = new SortField(field, SortField.Type.LONG, reverse);
+                sortField.setMissingValue(reverse ? Long.MIN_VALUE : Long.MAX_VALUE);
+                break;
+            case "integer":
+                sortField = new SortField(field, SortField.Type.INT, reverse);
+                sortField.setMissingValue(reverse ? Integer.MIN_VALUE : Integer.MAX_VALUE);
+                break;
+            case "double":
+                sortField = new SortField(field, SortField.Type.DOUBLE, reverse);
+                sortField.setMissingValue(reverse ? Double.NEGATIVE_INFINITY : Double.POSITIVE_INFINITY);
+                break;
+            case "float":
+                sortField = new SortField(field, SortField.Type.FLOAT, reverse);
+                sortField.setMissingValue(reverse ? Float.NEGATIVE_INFINITY : Float.POSITIVE_INFINITY);
+                break;
+            default:
+                throw new ElasticsearchIllegalArgumentException("Unknown [" + INDEX_SORT_TYPE + "] [" + type + "], must be one of [long, integer, double, float]");
+        }
+        return new Sort(sortField);
+    }
+
+    /**
+     * Fails if the given mapping maps the field that sorts the index to anything but a numeric field without doc values:
+     * the field cache of the merges can't read the binary doc values of the numeric fields, nor the terms of the other
+     * fields.
+     */
+    public static void validateMapping(Settings indexSettings, DocumentMapper mapper) throws MapperParsingException {
+        final String field = indexSettings.get(INDEX_SORT_FIELD);
+        if (field == null) {
+            return;
+        }
+        final FieldMappers fieldMappers = mapper.mappers().indexName(field);
+        if (fieldMappers == null) {
+            return;
+        }
+        for (FieldMapper fieldMapper : fieldMappers) {
+            if (!(fieldMapper instanceof NumberFieldMapper)) {
+                throw new MapperParsingException("The index is sorted by [" + field + "], it must be mapped to a numeric field in type [" + mapper.type() + "]");
+            }
+            if (fieldMapper.hasDocValues()) {
+                throw new MapperParsingException("The index is sorted by [" + field + "], it can't have doc values in type [" + mapper.type() + "]");
+            }
+        }
+    }
+
+    /**
+     * Fails if the given document has more than one value for the field that sorts the index, or if it indexes doc values
+     * for that field. The field cache of the merges would sort such a document by its highest value whatever the order of the
+     * index, unlike the search sort, and dynamically mapped fields skip {@link #validateMapping}.
+     */
+    public static void validateDocument(String field, ParseContext.Document doc) throws MapperParsingException {
+        int values = 0;
+        for (IndexableField indexableField : doc.getFields(field)) {
+            if (indexableField.fieldType().docValueType() != null) {
+                throw new MapperParsingException("The index is sorted by [" + field + "], it can't have doc values");
+            }
+            if (indexableField.fieldType().indexed() && ++values > 1) {
+                throw new MapperParsingException("The index is sorted by [" + field + "], documents can't have more than one value for it");
+            }
+        }
+    }
+
+    /**
+     * Returns <tt>true</tt> if the top hits of the given sort are the first documents of the segments sorted by the
+     * index sort, which is the case when both sort on the same field in the same order, the documents without a value
+     * are sorted last and the sort mode is the default one of the order. Sorts on nested fields never sort like the
+     * index.
+     */
+    public static boolean sortsLike(Sort indexSort, Sort sort) {
+        final SortField[] indexSortFields = indexSort.getSort();
+        final SortField[] sortFields = sort.getSort();
+        if (sortFields.length != indexSortFields.length) {
+            return false;
+        }
+        for (int i = 0; i < sortFields.length; i++) {
+            if (!sortsLike(indexSortFields[i], sortFields[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean sortsLike(SortField indexSortField, SortField sortField) {
+        if (sortField.getField() == null || !sortField.getField().equals(indexSortField.getField())
+                || sortField.getReverse() != indexSortField.getReverse()) {
+            return false;
+        }
+        final FieldComparatorSource comparatorSource = sortField.getComparatorSource();
+        final Object missingValue;
+        final MultiValueMode sortMode;
+        if (comparatorSource instanceof LongValuesComparatorSource) {
+            missingValue = ((LongValuesComparatorSource) comparatorSource).missingValue();
+            sortMode = ((LongValuesComparatorSource) comparatorSource).sortMode();
+        } else if (comparatorSource instanceof DoubleValuesComparatorSource) {
+            missingValue = ((DoubleValuesComparatorSource) comparatorSource).missingValue();
+            sortMode = ((DoubleValuesComparatorSource) comparatorSource).sortMode();
+        } else if (comparatorSource instanceof FloatValuesComparatorSource) {
+            missingValue = ((FloatValuesComparatorSource) comparatorSource).missingValue();
+            sortMode = ((FloatValuesComparatorSource) comparatorSource).sortMode();
+        } else {
+            // nested, script and non numeric sorts
+            return false;
+        }
+        if (missingValue != null && !"_last".equals(missingValue)) {
+            return false;
+        }
+        return sortMode == (sortField.getReverse() ? MultiValueMode.MAX : MultiValueMode.MIN);
+    }
+}
@@ -26,6 +26,8 @@ import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.index.VersionType;
 import org.elasticsearch.index.cache.filter.FilterCacheStats;
 import org.elasticsearch.index.cache.filter.ShardFilterCache;
+import org.elasticsearch.index.cache.query.QueryCacheStats;
+import org.elasticsearch.index.cache.query.ShardQueryCache;
 import org.elasticsearch.index.cache.id.IdCacheStats;
 import org.elasticsearch.index.deletionpolicy.SnapshotIndexCommit;
 import org.elasticsearch.index.engine.Engine;
@@ -77,6 +79,8 @@ public interface IndexShard extends IndexShardComponent {
 
     ShardFilterCache filterCache();
 
+    ShardQueryCache queryCache();
+
     ShardFieldData fieldData();
 
     ShardRouting routingEntry();
@@ -103,6 +107,8 @@ public interface IndexShard extends IndexShardComponent {
 
     FilterCacheStats filterCacheStats();
 
+    QueryCacheStats queryCacheStats();
+
     IdCacheStats idCacheStats();
 
     FieldDataStats fieldDataStats(String... fields);
@@ -141,6 +147,12 @@ public interface IndexShard extends IndexShardComponent {
 
     void delete(Engine.Delete delete) throws ElasticsearchException;
 
+    /**
+     * Applies the create, index and delete operations of the bulk in a single engine call. The operations that
+     * failed have their failure set on the bulk, instead of failing the whole call.
+     */
+    void bulk(Engine.Bulk bulk) throws ElasticsearchException;
+
     Engine.DeleteByQuery prepareDeleteByQuery(BytesReference source, @Nullable String[] filteringAliases, Engine.Operation.Origin origin, String... types) throws ElasticsearchException;
 
     void deleteByQuery(Engine.DeleteByQuery deleteByQuery) throws ElasticsearchException;
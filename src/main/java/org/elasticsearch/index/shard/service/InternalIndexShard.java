@@ -46,6 +46,8 @@ import org.elasticsearch.index.aliases.IndexAliasesService;
 import org.elasticsearch.index.cache.IndexCache;
 import org.elasticsearch.index.cache.filter.FilterCacheStats;
 import org.elasticsearch.index.cache.filter.ShardFilterCache;
+import org.elasticsearch.index.cache.query.QueryCacheStats;
+import org.elasticsearch.index.cache.query.ShardQueryCache;
 import org.elasticsearch.index.cache.id.IdCacheStats;
 import org.elasticsearch.index.codec.CodecService;
 import org.elasticsearch.index.deletionpolicy.SnapshotIndexCommit;
@@ -118,6 +120,8 @@ public class InternalIndexShard extends AbstractIndexShardComponent implements I
     private final ShardGetService getService;
     private final ShardIndexWarmerService shardWarmerService;
     private final ShardFilterCache shardFilterCache;
+
+    private final ShardQueryCache shardQueryCache;
     private final ShardFieldData shardFieldData;
     private final PercolatorQueriesRegistry percolatorQueriesRegistry;
     private final ShardPercolateService shardPercolateService;
@@ -149,7 +153,7 @@ public class InternalIndexShard extends AbstractIndexShardComponent implements I
     @Inject
     public InternalIndexShard(ShardId shardId, @IndexSettings Settings indexSettings, IndexSettingsService indexSettingsService, IndicesLifecycle indicesLifecycle, Store store, Engine engine, MergeSchedulerProvider mergeScheduler, Translog translog,
                               ThreadPool threadPool, MapperService mapperService, IndexQueryParserService queryParserService, IndexCache indexCache, IndexAliasesService indexAliasesService, ShardIndexingService indexingService, ShardGetService getService, ShardSearchService searchService, ShardIndexWarmerService shardWarmerService,
-                              ShardFilterCache shardFilterCache, ShardFieldData shardFieldData, PercolatorQueriesRegistry percolatorQueriesRegistry, ShardPercolateService shardPercolateService, CodecService codecService,
+                              ShardFilterCache shardFilterCache, ShardQueryCache shardQueryCache, ShardFieldData shardFieldData, PercolatorQueriesRegistry percolatorQueriesRegistry, ShardPercolateService shardPercolateService, CodecService codecService,
                               ShardTermVectorService termVectorService, IndexFieldDataService indexFieldDataService, IndexService indexService, ShardSuggestService shardSuggestService) {
         super(shardId, indexSettings);
         this.indicesLifecycle = (InternalIndicesLifecycle) indicesLifecycle;
@@ -169,6 +173,7 @@ public class InternalIndexShard extends AbstractIndexShardComponent implements I
         this.searchService = searchService;
         this.shardWarmerService = shardWarmerService;
         this.shardFilterCache = shardFilterCache;
+        this.shardQueryCache = shardQueryCache;
         this.shardFieldData = shardFieldData;
         this.percolatorQueriesRegistry = percolatorQueriesRegistry;
         this.shardPercolateService = shardPercolateService;
@@ -253,6 +258,11 @@ public class InternalIndexShard extends AbstractIndexShardComponent implements I
         return this.shardFilterCache;
     }
 
+    @Override
+    public ShardQueryCache queryCache() {
+        return this.shardQueryCache;
+    }
+
     @Override
     public ShardFieldData fieldData() {
         return this.shardFieldData;
@@ -437,6 +447,75 @@ public class InternalIndexShard extends AbstractIndexShardComponent implements I
         indexingService.postDelete(delete);
     }
 
+    @Override
+    public void bulk(Engine.Bulk bulk) throws ElasticsearchException {
+        final Engine.Operation[] operations = bulk.operations();
+        for (Engine.Operation operation : operations) {
+            writeAllowed(operation.origin());
+        }
+        for (int i = 0; i < operations.length; i++) {
+            switch (operations[i].opType()) {
+                case CREATE:
+                    operations[i] = indexingService.preCreate((Engine.Create) operations[i]);
+                    break;
+                case INDEX:
+                    operations[i] = indexingService.preIndex((Engine.Index) operations[i]);
+                    break;
+                case DELETE:
+                    operations[i] = indexingService.preDelete((Engine.Delete) operations[i]);
+                    break;
+                default:
+                    throw new ElasticsearchIllegalArgumentException("No operation defined for [" + operations[i] + "]");
+            }
+        }
+        if (logger.isTraceEnabled()) {
+            logger.trace("bulk of [{}] operations", operations.length);
+        }
+        try {
+            engine.bulk(bulk);
+        } catch (RuntimeException ex) {
+            for (Engine.Operation operation : operations) {
+                failedOperation(operation);
+            }
+            throw ex;
+        }
+        final long endTime = System.nanoTime();
+        for (int i = 0; i < operations.length; i++) {
+            if (bulk.failure(i) != null) {
+                failedOperation(operations[i]);
+                continue;
+            }
+            switch (operations[i].opType()) {
+                case CREATE:
+                    ((Engine.Create) operations[i]).endTime(endTime);
+                    indexingService.postCreate((Engine.Create) operations[i]);
+                    break;
+                case INDEX:
+                    ((Engine.Index) operations[i]).endTime(endTime);
+                    indexingService.postIndex((Engine.Index) operations[i]);
+                    break;
+                case DELETE:
+                    ((Engine.Delete) operations[i]).endTime(endTime);
+                    indexingService.postDelete((Engine.Delete) operations[i]);
+                    break;
+            }
+        }
+    }
+
+    private void failedOperation(Engine.Operation operation) {
+        switch (operation.opType()) {
+            case CREATE:
+                indexingService.failedCreate((Engine.Create) operation);
+                break;
+            case INDEX:
+                indexingService.failedIndex((Engine.Index) operation);
+                break;
+            case DELETE:
+                indexingService.failedDelete((Engine.Delete) operation);
+                break;
+        }
+    }
+
     @Override
     public Engine.DeleteByQuery prepareDeleteByQuery(BytesReference source, @Nullable String[] filteringAliases, Engine.Operation.Origin origin, String... types) throws ElasticsearchException {
         long startTime = System.nanoTime();
@@ -544,6 +623,11 @@ public class InternalIndexShard extends AbstractIndexShardComponent implements I
         return shardFilterCache.stats();
     }
 
+    @Override
+    public QueryCacheStats queryCacheStats() {
+        return shardQueryCache.stats();
+    }
+
     @Override
     public FieldDataStats fieldDataStats(String... fields) {
         return shardFieldData.stats(fields);
@@ -741,51 +825,91 @@ public class InternalIndexShard extends AbstractIndexShardComponent implements I
             throw new IndexShardNotRecoveringException(shardId, state);
         }
         try {
-            switch (operation.opType()) {
-                case CREATE:
-                    Translog.Create create = (Translog.Create) operation;
-                    engine.create(prepareCreate(
-                            source(create.source()).type(create.type()).id(create.id())
-                            .routing(create.routing()).parent(create.parent()).timestamp(create.timestamp()).ttl(create.ttl()),
-                            create.version(), create.versionType().versionTypeForReplicationAndRecovery(), Engine.Operation.Origin.RECOVERY, true, false));
-                    break;
-                case SAVE:
-                    Translog.Index index = (Translog.Index) operation;
-                    engine.index(prepareIndex(source(index.source()).type(index.type()).id(index.id())
-                            .routing(index.routing()).parent(index.parent()).timestamp(index.timestamp()).ttl(index.ttl()),
-                            index.version(),index.versionType().versionTypeForReplicationAndRecovery(), Engine.Operation.Origin.RECOVERY, true));
-                    break;
-                case DELETE:
-                    Translog.Delete delete = (Translog.Delete) operation;
-                    Uid uid = Uid.createUid(delete.uid().text());
-                    engine.delete(new Engine.Delete(uid.type(), uid.id(), delete.uid(), delete.version(),
-                            delete.versionType().versionTypeForReplicationAndRecovery(), Engine.Operation.Origin.RECOVERY, System.nanoTime(), false));
-                    break;
-                case DELETE_BY_QUERY:
-                    Translog.DeleteByQuery deleteByQuery = (Translog.DeleteByQuery) operation;
-                    engine.delete(prepareDeleteByQuery(deleteByQuery.source(), deleteByQuery.filteringAliases(), Engine.Operation.Origin.RECOVERY, deleteByQuery.types()));
-                    break;
-                default:
-                    throw new ElasticsearchIllegalStateException("No operation defined for [" + operation + "]");
+            if (operation.opType() == Translog.Operation.Type.DELETE_BY_QUERY) {
+                Translog.DeleteByQuery deleteByQuery = (Translog.DeleteByQuery) operation;
+                engine.delete(prepareDeleteByQuery(deleteByQuery.source(), deleteByQuery.filteringAliases(), Engine.Operation.Origin.RECOVERY, deleteByQuery.types()));
+            } else {
+                applyRecoveryOperation(prepareRecoveryOperation(operation));
             }
         } catch (ElasticsearchException e) {
-            boolean hasIgnoreOnRecoveryException = false;
-            ElasticsearchException current = e;
-            while (true) {
-                if (current instanceof IgnoreOnRecoveryEngineException) {
-                    hasIgnoreOnRecoveryException = true;
-                    break;
-                }
-                if (current.getCause() instanceof ElasticsearchException) {
-                    current = (ElasticsearchException) current.getCause();
-                } else {
-                    break;
-                }
+            rethrowUnlessIgnoredOnRecovery(e);
+        }
+    }
+
+    /**
+     * Parses a create, index or delete translog operation into the engine operation replaying it. Parsing doesn't
+     * touch the engine, so operations can be prepared concurrently and applied later on, in translog order for each
+     * uid, with {@link #performRecoveryOperation(Engine.Operation)}.
+     */
+    public Engine.Operation prepareRecoveryOperation(Translog.Operation operation) throws ElasticsearchException {
+        if (state != IndexShardState.RECOVERING) {
+            throw new IndexShardNotRecoveringException(shardId, state);
+        }
+        switch (operation.opType()) {
+            case CREATE:
+                Translog.Create create = (Translog.Create) operation;
+                return prepareCreate(
+                        source(create.source()).type(create.type()).id(create.id())
+                        .routing(create.routing()).parent(create.parent()).timestamp(create.timestamp()).ttl(create.ttl()),
+                        create.version(), create.versionType().versionTypeForReplicationAndRecovery(), Engine.Operation.Origin.RECOVERY, true, false);
+            case SAVE:
+                Translog.Index index = (Translog.Index) operation;
+                return prepareIndex(source(index.source()).type(index.type()).id(index.id())
+                        .routing(index.routing()).parent(index.parent()).timestamp(index.timestamp()).ttl(index.ttl()),
+                        index.version(),index.versionType().versionTypeForReplicationAndRecovery(), Engine.Operation.Origin.RECOVERY, true);
+            case DELETE:
+                Translog.Delete delete = (Translog.Delete) operation;
+                Uid uid = Uid.createUid(delete.uid().text());
+                return new Engine.Delete(uid.type(), uid.id(), delete.uid(), delete.version(),
+                        delete.versionType().versionTypeForReplicationAndRecovery(), Engine.Operation.Origin.RECOVERY, System.nanoTime(), false);
+            default:
+                throw new ElasticsearchIllegalArgumentException("Operation [" + operation + "] can't be prepared for recovery");
+        }
+    }
+
+    /**
+     * Applies an operation prepared by {@link #prepareRecoveryOperation(Translog.Operation)} to the engine.
+     */
+    public void performRecoveryOperation(Engine.Operation operation) throws ElasticsearchException {
+        if (state != IndexShardState.RECOVERING) {
+            throw new IndexShardNotRecoveringException(shardId, state);
+        }
+        try {
+            applyRecoveryOperation(operation);
+        } catch (ElasticsearchException e) {
+            rethrowUnlessIgnoredOnRecovery(e);
+        }
+    }
+
+    private void applyRecoveryOperation(Engine.Operation operation) throws ElasticsearchException {
+        switch (operation.opType()) {
+            case CREATE:
+                engine.create((Engine.Create) operation);
+                break;
+            case INDEX:
+                engine.index((Engine.Index) operation);
+                break;
+            case DELETE:
+                engine.delete((Engine.Delete) operation);
+                break;
+            default:
+                throw new ElasticsearchIllegalStateException("No operation defined for [" + operation + "]");
+        }
+    }
+
+    private void rethrowUnlessIgnoredOnRecovery(ElasticsearchException e) throws ElasticsearchException {
+        ElasticsearchException current = e;
+        while (true) {
+            if (current instanceof IgnoreOnRecoveryEngineException) {
+                return;
             }
-            if (!hasIgnoreOnRecoveryException) {
-                throw e;
+            if (current.getCause() instanceof ElasticsearchException) {
+                current = (ElasticsearchException) current.getCause();
+            } else {
+                break;
             }
         }
+        throw e;
     }
 
     /**
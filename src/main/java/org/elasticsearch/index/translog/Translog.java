@@ -104,7 +104,17 @@ public interface Translog extends IndexShardComponent, CloseableIndexComponent {
      */
     Location add(Operation operation) throws TranslogException;
 
-    byte[] read(Location location);
+    /**
+     * Adds a batch of operations to the transaction log at once, and returns their locations in the same order. The
+     * operations are still written as separate entries, but the log is only synced once for the whole batch.
+     */
+    Location[] add(Operation[] operations) throws TranslogException;
+
+    /**
+     * Reads the serialized operation at the given location, or <tt>null</tt> if it can't be read anymore. The
+     * returned bytes might be a view over the translog file rather than a copy.
+     */
+    BytesReference read(Location location);
 
     /**
      * Snapshots the current transaction log allowing to safely iterate over the snapshot.
@@ -18,9 +18,11 @@
  */
 package org.elasticsearch.index.translog;
 
+import org.elasticsearch.Version;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.io.stream.Streamable;
+import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.common.xcontent.ToXContent;
 import org.elasticsearch.common.xcontent.XContentBuilder;
 import org.elasticsearch.common.xcontent.XContentBuilderString;
@@ -34,12 +36,20 @@ public class TranslogStats implements ToXContent, Streamable {
 
     private long translogSizeInBytes = 0;
     private int estimatedNumberOfOperations = 0;
+    private long syncCount = 0;
+    private long syncTimeInMillis = 0;
 
     public TranslogStats() {}
 
     public TranslogStats(int estimatedNumberOfOperations, long translogSizeInBytes) {
+        this(estimatedNumberOfOperations, translogSizeInBytes, 0, 0);
+    }
+
+    public TranslogStats(int estimatedNumberOfOperations, long translogSizeInBytes, long syncCount, long syncTimeInMillis) {
         this.estimatedNumberOfOperations = estimatedNumberOfOperations;
         this.translogSizeInBytes = translogSizeInBytes;
+        this.syncCount = syncCount;
+        this.syncTimeInMillis = syncTimeInMillis;
     }
 
     public void add(TranslogStats translogStats) {
@@ -48,7 +58,31 @@ public class TranslogStats implements ToXContent, Streamable {
         }
 
         this.estimatedNumberOfOperations += translogStats.estimatedNumberOfOperations;
-        this.translogSizeInBytes =+ translogStats.translogSizeInBytes;
+        this.translogSizeInBytes += translogStats.translogSizeInBytes;
+        this.syncCount += translogStats.syncCount;
+        this.syncTimeInMillis += translogStats.syncTimeInMillis;
+    }
+
+    public long getTranslogSizeInBytes() {
+        return translogSizeInBytes;
+    }
+
+    public int getEstimatedNumberOfOperations() {
+        return estimatedNumberOfOperations;
+    }
+
+    /**
+     * The number of fsyncs of the translog.
+     */
+    public long getSyncCount() {
+        return syncCount;
+    }
+
+    /**
+     * The total time spent in fsyncs of the translog.
+     */
+    public TimeValue getSyncTime() {
+        return new TimeValue(syncTimeInMillis);
     }
 
     @Override
@@ -56,6 +90,8 @@ public class TranslogStats implements ToXContent, Streamable {
         builder.startObject(Fields.TRANSLOG);
         builder.field(Fields.OPERATIONS, estimatedNumberOfOperations);
         builder.byteSizeField(Fields.SIZE_IN_BYTES, Fields.SIZE, translogSizeInBytes);
+        builder.field(Fields.SYNC_TOTAL, syncCount);
+        builder.timeValueField(Fields.SYNC_TIME_IN_MILLIS, Fields.SYNC_TIME, syncTimeInMillis);
         builder.endObject();
         return builder;
     }
@@ -65,15 +101,28 @@ public class TranslogStats implements ToXContent, Streamable {
         static final XContentBuilderString OPERATIONS = new XContentBuilderString("operations");
         static final XContentBuilderString SIZE = new XContentBuilderString("size");
         static final XContentBuilderString SIZE_IN_BYTES = new XContentBuilderString("size_in_bytes");
+        static final XContentBuilderString SYNC_TOTAL = new XContentBuilderString("sync_total");
+        static final XContentBuilderString SYNC_TIME = new XContentBuilderString("sync_time");
+        static final XContentBuilderString SYNC_TIME_IN_MILLIS = new XContentBuilderString("sync_time_in_millis");
     }
 
     @Override
     public void readFrom(StreamInput in) throws IOException {
         estimatedNumberOfOperations = in.readVInt();
+        if (in.getVersion().onOrAfter(Version.V_2_0_0)) {
+            translogSizeInBytes = in.readVLong();
+            syncCount = in.readVLong();
+            syncTimeInMillis = in.readVLong();
+        }
     }
 
     @Override
     public void writeTo(StreamOutput out) throws IOException {
         out.writeVInt(estimatedNumberOfOperations);
+        if (out.getVersion().onOrAfter(Version.V_2_0_0)) {
+            out.writeVLong(translogSizeInBytes);
+            out.writeVLong(syncCount);
+            out.writeVLong(syncTimeInMillis);
+        }
     }
 }
@@ -19,11 +19,13 @@
 
 package org.elasticsearch.index.translog;
 
-import org.elasticsearch.common.io.stream.BytesStreamInput;
+import org.elasticsearch.common.Nullable;
+import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 
 import java.io.IOException;
+import java.util.zip.CRC32;
 
 /**
  *
@@ -53,8 +55,81 @@ public class TranslogStreams {
         return operation;
     }
 
-    public static Translog.Source readSource(byte[] data) throws IOException {
-        BytesStreamInput in = new BytesStreamInput(data, false);
+    /**
+     * Reads the next frame of a translog file, returns <tt>null</tt> once the end of the translog is reached: the end
+     * of the file, the preallocated space that was never written to, or a frame that was only partially written or
+     * whose checksum doesn't match, which is what a crash while writing leaves behind.
+     */
+    @Nullable
+    public static Translog.Operation readNextOperation(StreamInput in) {
+        try {
+            int opSize = in.readInt();
+            if (opSize == 0) {
+                // preallocated space that was never written to
+                return null;
+            } else if (opSize < 0) {
+                return readChecksummedOperation(in, -opSize);
+            } else {
+                return readTranslogOperation(in);
+            }
+        } catch (IOException e) {
+            // not properly written last op
+            return null;
+        }
+    }
+
+    /**
+     * Reads the operation of a checksummed frame, whose size header was already read from the stream. Checksummed
+     * frames are laid out as <tt>[-size][operation][crc32 of the operation]</tt>, the negative size header is what
+     * tells them apart from plain <tt>[size][operation]</tt> frames.
+     *
+     * @throws IOException if the frame is truncated or its checksum doesn't match
+     */
+    public static Translog.Operation readChecksummedOperation(StreamInput in, int size) throws IOException {
+        // streams over a memory mapped translog slice the operation out of the mapping rather than copying it
+        BytesReference data = in.readBytesReference(size);
+        int checksum = in.readInt();
+        int actual = checksum(data);
+        if (actual != checksum) {
+            throw new IOException("translog operation checksum mismatch, expected [" + checksum + "] but was [" + actual + "]");
+        }
+        return readTranslogOperation(data.streamInput());
+    }
+
+    /**
+     * Returns the checksum of a checksummed frame.
+     */
+    public static int checksum(byte[] data, int offset, int length) {
+        CRC32 crc32 = new CRC32();
+        crc32.update(data, offset, length);
+        return (int) crc32.getValue();
+    }
+
+    /**
+     * Returns the checksum of a checksummed frame. Bytes that aren't backed by an array are checksummed through a
+     * small buffer.
+     */
+    public static int checksum(BytesReference data) throws IOException {
+        if (data.hasArray()) {
+            return checksum(data.array(), data.arrayOffset(), data.length());
+        }
+        CRC32 crc32 = new CRC32();
+        byte[] buffer = new byte[Math.min(data.length(), 8192)];
+        StreamInput in = data.streamInput();
+        for (int remaining = data.length(); remaining > 0; ) {
+            int length = Math.min(remaining, buffer.length);
+            in.readBytes(buffer, 0, length);
+            crc32.update(buffer, 0, length);
+            remaining -= length;
+        }
+        return (int) crc32.getValue();
+    }
+
+    /**
+     * Reads the source of a serialized operation. The source is sliced out of the given bytes, without copying.
+     */
+    public static Translog.Source readSource(BytesReference data) throws IOException {
+        StreamInput in = data.streamInput();
         in.readInt(); // the size header
         Translog.Operation.Type type = Translog.Operation.Type.fromId(in.readByte());
         Translog.Operation operation;
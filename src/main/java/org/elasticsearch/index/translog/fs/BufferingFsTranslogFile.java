@@ -19,6 +19,7 @@
 
 package org.elasticsearch.index.translog.fs;
 
+import org.elasticsearch.common.bytes.BytesArray;
 import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.index.shard.ShardId;
 import org.elasticsearch.index.translog.Translog;
@@ -111,20 +112,21 @@ public class BufferingFsTranslogFile implements FsTranslogFile {
     }
 
     @Override
-    public byte[] read(Translog.Location location) throws IOException {
+    public BytesReference read(Translog.Location location) throws IOException {
         rwl.readLock().lock();
         try {
             if (location.translogLocation >= lastWrittenPosition) {
+                // the buffer is reused once flushed, so we need to copy
                 byte[] data = new byte[location.size];
                 System.arraycopy(buffer, (int) (location.translogLocation - lastWrittenPosition), data, 0, location.size);
-                return data;
+                return new BytesArray(data);
             }
         } finally {
             rwl.readLock().unlock();
         }
         ByteBuffer buffer = ByteBuffer.allocate(location.size);
         raf.channel().read(buffer, location.translogLocation);
-        return buffer.array();
+        return new BytesArray(buffer.array());
     }
 
     @Override
@@ -153,14 +155,22 @@ public class BufferingFsTranslogFile implements FsTranslogFile {
         if (!syncNeeded()) {
             return;
         }
+        final long position;
         rwl.writeLock().lock();
         try {
             flushBuffer();
-            lastSyncPosition = lastPosition;
+            position = lastPosition;
         } finally {
             rwl.writeLock().unlock();
         }
         raf.channel().force(false);
+        // only mark the position as synced once it is, concurrent writers rely on it to skip their own sync
+        lastSyncPosition = position;
+    }
+
+    @Override
+    public long syncedPosition() {
+        return lastSyncPosition;
     }
 
     @Override
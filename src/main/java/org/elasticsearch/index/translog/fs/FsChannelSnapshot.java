@@ -106,20 +106,35 @@ public class FsChannelSnapshot implements Translog.Snapshot {
             }
             cacheBuffer.flip();
             int opSize = cacheBuffer.getInt();
+            if (opSize == 0) {
+                // preallocated space that was never written to
+                return false;
+            }
+            // checksummed frames have a negative size header and are followed by the checksum
+            final boolean checksummed = opSize < 0;
+            if (checksummed) {
+                opSize = -opSize;
+            }
+            final int frameSize = checksummed ? opSize + 4 : opSize;
             position += 4;
-            if ((position + opSize) > length) {
+            if ((position + frameSize) > length) {
                 // restore the position to before we read the opSize
                 position -= 4;
                 return false;
             }
-            if (cacheBuffer.capacity() < opSize) {
-                cacheBuffer = ByteBuffer.allocate(opSize);
+            if (cacheBuffer.capacity() < frameSize) {
+                cacheBuffer = ByteBuffer.allocate(frameSize);
             }
             cacheBuffer.clear();
-            cacheBuffer.limit(opSize);
+            cacheBuffer.limit(frameSize);
             channel.read(cacheBuffer, position);
             cacheBuffer.flip();
-            position += opSize;
+            if (checksummed && TranslogStreams.checksum(cacheBuffer.array(), 0, opSize) != cacheBuffer.getInt(opSize)) {
+                // a torn write, treat it as the end of the translog
+                position -= 4;
+                return false;
+            }
+            position += frameSize;
             lastOperationRead = TranslogStreams.readTranslogOperation(new BytesStreamInput(cacheBuffer.array(), 0, opSize, true));
             return true;
         } catch (Exception e) {
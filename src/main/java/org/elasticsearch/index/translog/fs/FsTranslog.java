@@ -20,13 +20,17 @@
 package org.elasticsearch.index.translog.fs;
 
 import org.elasticsearch.ElasticsearchException;
+import org.elasticsearch.ElasticsearchIllegalArgumentException;
+import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.common.bytes.ReleasableBytesReference;
 import org.elasticsearch.common.inject.Inject;
 import org.elasticsearch.common.io.FileSystemUtils;
 import org.elasticsearch.common.io.stream.ReleasableBytesStreamOutput;
 import org.elasticsearch.common.lease.Releasables;
+import org.elasticsearch.common.metrics.MeanMetric;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.common.util.BigArrays;
 import org.elasticsearch.env.NodeEnvironment;
 import org.elasticsearch.index.settings.IndexSettings;
@@ -42,6 +46,8 @@ import java.io.File;
 import java.io.IOException;
 import java.nio.channels.ClosedChannelException;
 import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
@@ -51,6 +57,32 @@ import java.util.concurrent.locks.ReentrantReadWriteLock;
 public class FsTranslog extends AbstractIndexShardComponent implements Translog {
 
     public static final String INDEX_TRANSLOG_FS_TYPE = "index.translog.fs.type";
+    public static final String INDEX_TRANSLOG_DURABILITY = "index.translog.durability";
+    public static final String INDEX_TRANSLOG_SYNC_WINDOW = "index.translog.sync_window";
+
+    /**
+     * When operations are made durable.
+     */
+    public static enum Durability {
+        /**
+         * Operations are fsync'ed in the background, see <tt>index.gateway.local.sync</tt>. Operations that were
+         * acknowledged since the last sync might be lost on a crash.
+         */
+        ASYNC,
+        /**
+         * Operations are fsync'ed before they are acknowledged. Concurrent operations share the same fsync.
+         */
+        REQUEST;
+
+        public static Durability fromString(String durability) throws ElasticsearchIllegalArgumentException {
+            for (Durability value : values()) {
+                if (value.name().equalsIgnoreCase(durability)) {
+                    return value;
+                }
+            }
+            throw new ElasticsearchIllegalArgumentException("No translog durability [" + durability + "]");
+        }
+    }
 
     class ApplySettings implements IndexSettingsService.Listener {
         @Override
@@ -60,6 +92,16 @@ public class FsTranslog extends AbstractIndexShardComponent implements Translog
                 logger.info("updating type from [{}] to [{}]", FsTranslog.this.type, type);
                 FsTranslog.this.type = type;
             }
+            Durability durability = Durability.fromString(settings.get(INDEX_TRANSLOG_DURABILITY, FsTranslog.this.durability.name()));
+            if (durability != FsTranslog.this.durability) {
+                logger.info("updating durability from [{}] to [{}]", FsTranslog.this.durability, durability);
+                FsTranslog.this.durability = durability;
+            }
+            TimeValue syncWindow = settings.getAsTime(INDEX_TRANSLOG_SYNC_WINDOW, FsTranslog.this.syncWindow);
+            if (!syncWindow.equals(FsTranslog.this.syncWindow)) {
+                logger.info("updating sync_window from [{}] to [{}]", FsTranslog.this.syncWindow, syncWindow);
+                FsTranslog.this.syncWindow = syncWindow;
+            }
         }
     }
 
@@ -74,7 +116,11 @@ public class FsTranslog extends AbstractIndexShardComponent implements Translog
 
     private FsTranslogFile.Type type;
 
-    private boolean syncOnEachOperation = false;
+    private volatile Durability durability;
+    private volatile TimeValue syncWindow;
+    // serializes fsyncs, writers waiting on it are covered by the fsync of the writer holding it
+    private final Object syncMutex = new Object();
+    private final MeanMetric syncMetric = new MeanMetric();
 
     private volatile int bufferSize;
     private volatile int transientBufferSize;
@@ -96,6 +142,8 @@ public class FsTranslog extends AbstractIndexShardComponent implements Translog
         this.type = FsTranslogFile.Type.fromString(componentSettings.get("type", FsTranslogFile.Type.BUFFERED.name()));
         this.bufferSize = (int) componentSettings.getAsBytesSize("buffer_size", ByteSizeValue.parseBytesSizeValue("64k")).bytes(); // Not really interesting, updated by IndexingMemoryController...
         this.transientBufferSize = (int) componentSettings.getAsBytesSize("transient_buffer_size", ByteSizeValue.parseBytesSizeValue("8k")).bytes();
+        this.durability = Durability.fromString(indexSettings.get(INDEX_TRANSLOG_DURABILITY, Durability.ASYNC.name()));
+        this.syncWindow = indexSettings.getAsTime(INDEX_TRANSLOG_SYNC_WINDOW, TimeValue.timeValueMillis(0));
 
         indexSettingsService.addListener(applySettings);
     }
@@ -108,6 +156,8 @@ public class FsTranslog extends AbstractIndexShardComponent implements Translog
         this.bigArrays = BigArrays.NON_RECYCLING_INSTANCE;
 
         this.type = FsTranslogFile.Type.fromString(componentSettings.get("type", FsTranslogFile.Type.BUFFERED.name()));
+        this.durability = Durability.fromString(indexSettings.get(INDEX_TRANSLOG_DURABILITY, Durability.ASYNC.name()));
+        this.syncWindow = indexSettings.getAsTime(INDEX_TRANSLOG_SYNC_WINDOW, TimeValue.timeValueMillis(0));
     }
 
     @Override
@@ -313,7 +363,7 @@ public class FsTranslog extends AbstractIndexShardComponent implements Translog
         }
     }
 
-    public byte[] read(Location location) {
+    public BytesReference read(Location location) {
         rwl.readLock().lock();
         try {
             FsTranslogFile trans = this.trans;
@@ -339,40 +389,73 @@ public class FsTranslog extends AbstractIndexShardComponent implements Translog
 
     @Override
     public Location add(Operation operation) throws TranslogException {
+        return add(new Operation[]{operation})[0];
+    }
+
+    @Override
+    public Location[] add(Operation[] operations) throws TranslogException {
+        final Location[] locations = new Location[operations.length];
+        if (operations.length == 0) {
+            return locations;
+        }
         rwl.readLock().lock();
         ReleasableBytesStreamOutput out = new ReleasableBytesStreamOutput(bigArrays);
         boolean released = false;
         try {
-            out.writeInt(0); // marker for the size...
-            TranslogStreams.writeTranslogOperation(out, operation);
-            out.flush();
-
-            // write size to beginning of stream
-            int size = out.size();
-            out.seek(0);
-            out.writeInt(size - 4);
-
-            // seek back to end
-            out.seek(size);
+            // all the operations are serialized in a single stream, each of them framed with its size
+            final int[] offsets = new int[operations.length + 1];
+            for (int i = 0; i < operations.length; i++) {
+                final int start = out.size();
+                offsets[i] = start;
+                out.writeInt(0); // marker for the size...
+                TranslogStreams.writeTranslogOperation(out, operations[i]);
+                out.flush();
+
+                // write size to beginning of the frame
+                int size = out.size();
+                out.seek(start);
+                out.writeInt(size - start - 4);
+
+                // seek back to end
+                out.seek(size);
+            }
+            offsets[operations.length] = out.size();
 
             ReleasableBytesReference bytes = out.bytes();
-            Location location = current.add(bytes);
-            if (syncOnEachOperation) {
-                current.sync();
-            }
+            FsTranslogFile current = this.current;
             FsTranslogFile trans = this.trans;
-            if (trans != null) {
-                try {
-                    location = trans.add(bytes);
-                } catch (ClosedChannelException e) {
-                    // ignore
+            Location lastCurrentLocation = null;
+            Location lastTransLocation = null;
+            boolean transClosed = false;
+            for (int i = 0; i < operations.length; i++) {
+                BytesReference frame = bytes.slice(offsets[i], offsets[i + 1] - offsets[i]);
+                lastCurrentLocation = current.add(frame);
+                locations[i] = lastCurrentLocation;
+                if (trans != null && !transClosed) {
+                    try {
+                        lastTransLocation = trans.add(frame);
+                        locations[i] = lastTransLocation;
+                    } catch (ClosedChannelException e) {
+                        // ignore, and don't write the rest of the batch to it either
+                        transClosed = true;
+                    }
                 }
             }
             Releasables.close(bytes);
             released = true;
-            return location;
+            if (durability == Durability.REQUEST) {
+                // a single sync covers the whole batch
+                syncUpTo(current, lastCurrentLocation);
+                if (lastTransLocation != null) {
+                    syncUpTo(trans, lastTransLocation);
+                }
+            }
+            return locations;
         } catch (Throwable e) {
-            throw new TranslogException(shardId, "Failed to write operation [" + operation + "]", e);
+            if (operations.length == 1) {
+                throw new TranslogException(shardId, "Failed to write operation [" + operations[0] + "]", e);
+            }
+            throw new TranslogException(shardId, "Failed to write [" + operations.length + "] operations", e);
         } finally {
             rwl.readLock().unlock();
             if (!released) {
@@ -382,9 +465,9 @@ public class FsTranslog extends AbstractIndexShardComponent implements Translog
     }
 
     @Override
-    public FsChannelSnapshot snapshot() throws TranslogException {
+    public Snapshot snapshot() throws TranslogException {
         while (true) {
-            FsChannelSnapshot snapshot = current.snapshot();
+            Snapshot snapshot = current.snapshot();
             if (snapshot != null) {
                 return snapshot;
             }
@@ -394,7 +477,7 @@ public class FsTranslog extends AbstractIndexShardComponent implements Translog
 
     @Override
     public Snapshot snapshot(Snapshot snapshot) {
-        FsChannelSnapshot snap = snapshot();
+        Snapshot snap = snapshot();
         if (snap.translogId() == snapshot.translogId()) {
             snap.seekForward(snapshot.position());
         }
@@ -408,7 +491,9 @@ public class FsTranslog extends AbstractIndexShardComponent implements Translog
             return;
         }
         try {
-            current1.sync();
+            synchronized (syncMutex) {
+                syncFile(current1);
+            }
         } catch (IOException e) {
             // if we switches translots (!=), then this failure is not relevant
             // we are working on a new translog
@@ -418,6 +503,53 @@ public class FsTranslog extends AbstractIndexShardComponent implements Translog
         }
     }
 
+    /**
+     * Makes sure the file is fsync'ed at least up to the end of the given location. Writers that come in while a
+     * sync is in progress wait for it and are then usually covered by it, so concurrent operations are committed
+     * as a group with a single fsync.
+     */
+    private void syncUpTo(FsTranslogFile file, Location location) throws IOException {
+        final long position = location.translogLocation + location.size;
+        if (file.syncedPosition() >= position) {
+            return;
+        }
+        synchronized (syncMutex) {
+            // a sync that was in progress while we were waiting might have covered us
+            if (file.syncedPosition() >= position) {
+                return;
+            }
+            final long syncWindowNanos = syncWindow.nanos();
+            if (syncWindowNanos > 0) {
+                // give concurrent operations a chance to be appended so they are synced with this one
+                LockSupport.parkNanos(syncWindowNanos);
+            }
+            syncFile(file);
+        }
+    }
+
+    private void syncFile(FsTranslogFile file) throws IOException {
+        assert Thread.holdsLock(syncMutex);
+        if (!file.syncNeeded()) {
+            return;
+        }
+        final long start = System.nanoTime();
+        file.sync();
+        syncMetric.inc(System.nanoTime() - start);
+    }
+
+    /**
+     * Returns <tt>true</tt> if the operation at the given location is known to be fsync'ed.
+     */
+    boolean synced(Location location) {
+        final long position = location.translogLocation + location.size;
+        FsTranslogFile trans = this.trans;
+        if (trans != null && trans.id() == location.translogId) {
+            return trans.syncedPosition() >= position;
+        }
+        FsTranslogFile current = this.current;
+        return current != null && current.id() == location.translogId && current.syncedPosition() >= position;
+    }
+
     @Override
     public boolean syncNeeded() {
         FsTranslogFile current1 = this.current;
@@ -426,16 +558,17 @@ public class FsTranslog extends AbstractIndexShardComponent implements Translog
 
     @Override
     public void syncOnEachOperation(boolean syncOnEachOperation) {
-        this.syncOnEachOperation = syncOnEachOperation;
         if (syncOnEachOperation) {
+            this.durability = Durability.REQUEST;
             type = FsTranslogFile.Type.SIMPLE;
         } else {
+            // keep the durability of the index settings, the gateway syncs in the background
             type = FsTranslogFile.Type.BUFFERED;
         }
     }
 
     @Override
     public TranslogStats stats() {
-        return new TranslogStats(estimatedNumberOfOperations(), translogSizeInBytes());
+        return new TranslogStats(estimatedNumberOfOperations(), translogSizeInBytes(), syncMetric.count(), TimeUnit.NANOSECONDS.toMillis(syncMetric.sum()));
     }
 }
@@ -42,6 +42,12 @@ public interface FsTranslogFile {
             public FsTranslogFile create(ShardId shardId, long id, RafReference raf, int bufferSize) throws IOException {
                 return new BufferingFsTranslogFile(shardId, id, raf, bufferSize);
             }
+        },
+        MMAP() {
+            @Override
+            public FsTranslogFile create(ShardId shardId, long id, RafReference raf, int bufferSize) throws IOException {
+                return new MmapFsTranslogFile(shardId, id, raf);
+            }
         };
 
         public abstract FsTranslogFile create(ShardId shardId, long id, RafReference raf, int bufferSize) throws IOException;
@@ -51,6 +57,8 @@ public interface FsTranslogFile {
                 return SIMPLE;
             } else if (BUFFERED.name().equalsIgnoreCase(type)) {
                 return BUFFERED;
+            } else if (MMAP.name().equalsIgnoreCase(type)) {
+                return MMAP;
             }
             throw new ElasticsearchIllegalArgumentException("No translog fs type [" + type + "]");
         }
@@ -64,11 +72,11 @@ public interface FsTranslogFile {
 
     Translog.Location add(BytesReference data) throws IOException;
 
-    byte[] read(Translog.Location location) throws IOException;
+    BytesReference read(Translog.Location location) throws IOException;
 
     void close(boolean delete) throws TranslogException;
 
-    FsChannelSnapshot snapshot() throws TranslogException;
+    Translog.Snapshot snapshot() throws TranslogException;
 
     void reuse(FsTranslogFile other) throws TranslogException;
 
@@ -76,5 +84,10 @@ public interface FsTranslogFile {
 
     void sync() throws IOException;
 
+    /**
+     * Returns the position up to which the operations added to this file are known to be fsync'ed.
+     */
+    long syncedPosition();
+
     boolean syncNeeded();
 }
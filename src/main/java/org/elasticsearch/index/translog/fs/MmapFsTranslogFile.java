@@ -0,0 +1,483 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.translog.fs;
+
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.ElasticsearchException;
+import org.elasticsearch.common.bytes.ByteBufferBytesReference;
+import org.elasticsearch.common.bytes.BytesArray;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.bytes.ReleasableBytesReference;
+import org.elasticsearch.common.io.FileSystemUtils;
+import org.elasticsearch.index.shard.ShardId;
+import org.elasticsearch.index.translog.Translog;
+import org.elasticsearch.index.translog.TranslogException;
+import org.elasticsearch.index.translog.TranslogStreams;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * A translog file that writes operations directly into memory mapped, preallocated chunks of the file. Operations
+ * are written as checksummed frames (<tt>[-size][operation][crc32 of the operation]</tt>), so a torn write at the
+ * end of the file is detected on recovery instead of being replayed. The preallocated space that was never written
+ * to reads as a <tt>0</tt> size header, which also marks the end of the translog.
+ * <p/>
+ * Reads and snapshots are served from the mapping. The bytes they return and the snapshots hold a reference on the
+ * file, the chunks are only unmapped, and the file truncated or deleted, once the file is closed and all of them are
+ * released.
+ */
+public class MmapFsTranslogFile implements FsTranslogFile {
+
+    static final int CHUNK_SIZE = 1 << 24; // 16mb
+
+    private final long id;
+    private final ShardId shardId;
+    private final RafReference raf;
+
+    private final ReadWriteLock rwl = new ReentrantReadWriteLock();
+    private final AtomicBoolean closed = new AtomicBoolean();
+    // one reference for the file itself, released on close, and one for each unreleased read and snapshot
+    private final AtomicInteger refCount = new AtomicInteger(1);
+    private volatile boolean delete;
+
+    private final byte[] header = new byte[4];
+
+    private MappedByteBuffer[] chunks = new MappedByteBuffer[0];
+
+    private volatile int operationCounter;
+
+    private volatile long lastPosition;
+
+    private volatile long lastSyncPosition = 0;
+
+    public MmapFsTranslogFile(ShardId shardId, long id, RafReference raf) throws IOException {
+        this.shardId = shardId;
+        this.id = id;
+        this.raf = raf;
+        raf.raf().setLength(0);
+        rwl.writeLock().lock();
+        try {
+            ensureCapacity(CHUNK_SIZE);
+        } finally {
+            rwl.writeLock().unlock();
+        }
+    }
+
+    public long id() {
+        return this.id;
+    }
+
+    public int estimatedNumberOfOperations() {
+        return operationCounter;
+    }
+
+    public long translogSizeInBytes() {
+        return lastPosition;
+    }
+
+    @Override
+    public Translog.Location add(BytesReference data) throws IOException {
+        // the data is framed as [size][operation], we replace the frame with a checksummed one
+        final BytesRef operation = data.slice(4, data.length() - 4).toBytesRef();
+        final int checksum = TranslogStreams.checksum(operation.bytes, operation.offset, operation.length);
+        final int frameSize = 4 + operation.length + 4;
+        rwl.writeLock().lock();
+        try {
+            if (closed.get()) {
+                throw new ClosedChannelException();
+            }
+            final long position = lastPosition;
+            ensureCapacity(position + frameSize);
+            writeInt(position, -operation.length);
+            write(position + 4, operation.bytes, operation.offset, operation.length);
+            writeInt(position + 4 + operation.length, checksum);
+            lastPosition = position + frameSize;
+            operationCounter++;
+            return new Translog.Location(id, position, frameSize);
+        } finally {
+            rwl.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Reads the checksummed frame of the operation, straight from the mapping. Readers of the source skip the size
+     * header, and ignore the trailing checksum.
+     * <p/>
+     * Frames that don't cross a chunk boundary are returned as a view over the mapping, which keeps the chunks mapped
+     * until it is released, see {@link ReleasableBytesReference}. Written frames are never modified.
+     */
+    @Override
+    public BytesReference read(Translog.Location location) throws IOException {
+        if (!tryIncRef()) {
+            throw new ClosedChannelException();
+        }
+        boolean success = false;
+        try {
+            final BytesReference frame = readFrame(location.translogLocation, location.size);
+            success = frame instanceof MappedBytesReference;
+            return frame;
+        } finally {
+            if (!success) {
+                decRef();
+            }
+        }
+    }
+
+    /**
+     * Returns the bytes at the given position, a view over the mapping if they don't cross a chunk boundary, a copy
+     * otherwise. The caller must hold a reference on the file, that the view takes over.
+     */
+    private BytesReference readFrame(long position, int size) {
+        rwl.readLock().lock();
+        try {
+            final int chunkOffset = (int) (position % CHUNK_SIZE);
+            if (chunkOffset + size <= CHUNK_SIZE) {
+                // duplicate, since concurrent readers would otherwise share the position of the chunk
+                final ByteBuffer view = chunks[(int) (position / CHUNK_SIZE)].duplicate();
+                view.position(chunkOffset);
+                view.limit(chunkOffset + size);
+                return new MappedBytesReference(view.slice());
+            }
+            final byte[] data = new byte[size];
+            int offset = 0;
+            while (offset < data.length) {
+                final ByteBuffer chunk = chunks[(int) (position / CHUNK_SIZE)].duplicate();
+                chunk.position((int) (position % CHUNK_SIZE));
+                final int length = Math.min(data.length - offset, chunk.remaining());
+                chunk.get(data, offset, length);
+                offset += length;
+                position += length;
+            }
+            return new BytesArray(data);
+        } finally {
+            rwl.readLock().unlock();
+        }
+    }
+
+    private int readInt(long position) {
+        final BytesReference bytes = readFrame(position, 4);
+        return ((bytes.get(0) & 0xFF) << 24) | ((bytes.get(1) & 0xFF) << 16) | ((bytes.get(2) & 0xFF) << 8) | (bytes.get(3) & 0xFF);
+    }
+
+    private void ensureCapacity(long size) throws IOException {
+        assert (((ReentrantReadWriteLock.WriteLock) rwl.writeLock()).isHeldByCurrentThread());
+        while ((long) chunks.length * CHUNK_SIZE < size) {
+            // mapping a region past the end of the file extends the file
+            final MappedByteBuffer chunk = raf.channel().map(FileChannel.MapMode.READ_WRITE, (long) chunks.length * CHUNK_SIZE, CHUNK_SIZE);
+            chunks = Arrays.copyOf(chunks, chunks.length + 1);
+            chunks[chunks.length - 1] = chunk;
+        }
+    }
+
+    private void writeInt(long position, int value) {
+        header[0] = (byte) (value >> 24);
+        header[1] = (byte) (value >> 16);
+        header[2] = (byte) (value >> 8);
+        header[3] = (byte) value;
+        write(position, header, 0, 4);
+    }
+
+    private void write(long position, byte[] bytes, int offset, int length) {
+        assert (((ReentrantReadWriteLock.WriteLock) rwl.writeLock()).isHeldByCurrentThread());
+        while (length > 0) {
+            final MappedByteBuffer chunk = chunks[(int) (position / CHUNK_SIZE)];
+            chunk.position((int) (position % CHUNK_SIZE));
+            final int toWrite = Math.min(length, chunk.remaining());
+            chunk.put(bytes, offset, toWrite);
+            offset += toWrite;
+            length -= toWrite;
+            position += toWrite;
+        }
+    }
+
+    @Override
+    public Translog.Snapshot snapshot() throws TranslogException {
+        rwl.writeLock().lock();
+        try {
+            if (!tryIncRef()) {
+                return null;
+            }
+            return new MmapSnapshot(lastPosition, operationCounter);
+        } finally {
+            rwl.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean syncNeeded() {
+        return lastPosition != lastSyncPosition;
+    }
+
+    @Override
+    public void sync() throws IOException {
+        if (!syncNeeded()) {
+            return;
+        }
+        // the chunks must stay mapped while they are forced
+        if (!tryIncRef()) {
+            throw new ClosedChannelException();
+        }
+        try {
+            final long position;
+            final MappedByteBuffer[] chunks;
+            rwl.readLock().lock();
+            try {
+                position = lastPosition;
+                chunks = this.chunks;
+            } finally {
+                rwl.readLock().unlock();
+            }
+            final long lastSyncPosition = this.lastSyncPosition;
+            final int lastChunk = Math.min(chunks.length - 1, (int) ((position - 1) / CHUNK_SIZE));
+            for (int i = (int) (lastSyncPosition / CHUNK_SIZE); i <= lastChunk; i++) {
+                chunks[i].force();
+            }
+            this.lastSyncPosition = position;
+        } finally {
+            decRef();
+        }
+    }
+
+    @Override
+    public long syncedPosition() {
+        return lastSyncPosition;
+    }
+
+    @Override
+    public void close(boolean delete) {
+        if (closed.get()) {
+            return;
+        }
+        try {
+            if (!delete) {
+                try {
+                    sync();
+                } catch (Exception e) {
+                    throw new TranslogException(shardId, "failed to sync on close", e);
+                }
+            }
+        } finally {
+            rwl.writeLock().lock();
+            try {
+                if (!closed.compareAndSet(false, true)) {
+                    return;
+                }
+                this.delete = delete;
+            } finally {
+                rwl.writeLock().unlock();
+            }
+            decRef();
+        }
+    }
+
+    private boolean tryIncRef() {
+        while (true) {
+            final int count = refCount.get();
+            if (count <= 0) {
+                return false;
+            }
+            if (refCount.compareAndSet(count, count + 1)) {
+                return true;
+            }
+        }
+    }
+
+    private void decRef() {
+        final int count = refCount.decrementAndGet();
+        assert count >= 0;
+        if (count == 0) {
+            release();
+        }
+    }
+
+    /**
+     * Unmaps the chunks right away, rather than when they get garbage collected, which would keep the address space
+     * and the disk space of deleted files around and prevent truncating the file on some platforms.
+     */
+    private void release() {
+        rwl.writeLock().lock();
+        try {
+            final MappedByteBuffer[] chunks = this.chunks;
+            this.chunks = new MappedByteBuffer[0];
+            for (MappedByteBuffer chunk : chunks) {
+                FileSystemUtils.unmap(chunk);
+            }
+            if (!delete) {
+                try {
+                    // drop the preallocated space that was never written to
+                    raf.raf().setLength(lastPosition);
+                } catch (IOException e) {
+                    // ignore, the preallocated space reads as the end of the translog
+                }
+            }
+        } finally {
+            rwl.writeLock().unlock();
+        }
+        raf.decreaseRefCount(delete);
+    }
+
+    @Override
+    public void reuse(FsTranslogFile other) {
+        // nothing to do there
+    }
+
+    @Override
+    public void updateBufferSize(int bufferSize) throws TranslogException {
+        // nothing to do here, operations are written straight into the mapping
+    }
+
+    /**
+     * A view over the mapping, which keeps the file mapped until it is released.
+     */
+    private final class MappedBytesReference extends ByteBufferBytesReference implements ReleasableBytesReference {
+
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        MappedBytesReference(ByteBuffer buffer) {
+            super(buffer);
+        }
+
+        @Override
+        public void close() throws ElasticsearchException {
+            if (released.compareAndSet(false, true)) {
+                decRef();
+            }
+        }
+    }
+
+    /**
+     * A snapshot that parses the operations straight out of the mapping. Operations are read from the frames written
+     * before the snapshot was taken, which are complete, so their checksums aren't verified.
+     */
+    private final class MmapSnapshot implements Translog.Snapshot {
+
+        private final long length;
+        private final int totalOperations;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private long position = 0;
+        private Translog.Operation lastOperationRead;
+
+        MmapSnapshot(long length, int totalOperations) {
+            this.length = length;
+            this.totalOperations = totalOperations;
+        }
+
+        @Override
+        public long translogId() {
+            return id;
+        }
+
+        @Override
+        public long position() {
+            return position;
+        }
+
+        @Override
+        public long length() {
+            return length;
+        }
+
+        @Override
+        public int estimatedTotalOperations() {
+            return totalOperations;
+        }
+
+        @Override
+        public boolean hasNext() {
+            try {
+                if (position + 4 > length) {
+                    return false;
+                }
+                final int size = -readInt(position);
+                if (size <= 0 || position + 4 + size + 4 > length) {
+                    return false;
+                }
+                // the operations slice their source out of the mapping, which the snapshot keeps mapped until closed
+                lastOperationRead = TranslogStreams.readTranslogOperation(readFrame(position + 4, size).streamInput());
+                position += 4 + size + 4;
+                return true;
+            } catch (Exception e) {
+                return false;
+            }
+        }
+
+        @Override
+        public Translog.Operation next() {
+            return lastOperationRead;
+        }
+
+        @Override
+        public void seekForward(long length) {
+            position += length;
+        }
+
+        @Override
+        public InputStream stream() throws IOException {
+            return new InputStream() {
+                private long streamPosition = position;
+
+                @Override
+                public int read() throws IOException {
+                    if (streamPosition >= length) {
+                        return -1;
+                    }
+                    return readFrame(streamPosition++, 1).get(0) & 0xFF;
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len) throws IOException {
+                    if (streamPosition >= length) {
+                        return -1;
+                    }
+                    // stay within the chunk, so that the bytes are read straight from the mapping
+                    final int chunkRemaining = CHUNK_SIZE - (int) (streamPosition % CHUNK_SIZE);
+                    len = (int) Math.min(Math.min(len, chunkRemaining), length - streamPosition);
+                    final BytesReference bytes = readFrame(streamPosition, len);
+                    bytes.streamInput().readBytes(b, off, len);
+                    streamPosition += len;
+                    return len;
+                }
+            };
+        }
+
+        @Override
+        public long lengthInBytes() {
+            return length - position;
+        }
+
+        @Override
+        public void close() throws ElasticsearchException {
+            if (released.compareAndSet(false, true)) {
+                decRef();
+            }
+        }
+    }
+}
@@ -19,6 +19,7 @@
 
 package org.elasticsearch.index.translog.fs;
 
+import org.elasticsearch.common.bytes.BytesArray;
 import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.index.shard.ShardId;
 import org.elasticsearch.index.translog.Translog;
@@ -28,7 +29,6 @@ import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
-import java.util.concurrent.atomic.AtomicLong;
 
 public class SimpleFsTranslogFile implements FsTranslogFile {
 
@@ -39,8 +39,10 @@ public class SimpleFsTranslogFile implements FsTranslogFile {
 
     private final AtomicInteger operationCounter = new AtomicInteger();
 
-    private final AtomicLong lastPosition = new AtomicLong(0);
-    private final AtomicLong lastWrittenPosition = new AtomicLong(0);
+    private final Object writeMutex = new Object();
+
+    // only advanced under the write mutex, once the operation is written: everything below it is on the channel
+    private volatile long lastWrittenPosition = 0;
 
     private volatile long lastSyncPosition = 0;
 
@@ -60,21 +62,26 @@ public class SimpleFsTranslogFile implements FsTranslogFile {
     }
 
     public long translogSizeInBytes() {
-        return lastWrittenPosition.get();
+        return lastWrittenPosition;
     }
 
     public Translog.Location add(BytesReference data) throws IOException {
-        long position = lastPosition.getAndAdd(data.length());
-        data.writeTo(raf.channel());
-        lastWrittenPosition.getAndAdd(data.length());
+        // the channel writes at its own position, and a sync must only cover completed writes, so writes are
+        // serialized. The channel serializes them anyway.
+        final long position;
+        synchronized (writeMutex) {
+            position = lastWrittenPosition;
+            data.writeTo(raf.channel());
+            lastWrittenPosition = position + data.length();
+        }
         operationCounter.incrementAndGet();
         return new Translog.Location(id, position, data.length());
     }
 
-    public byte[] read(Translog.Location location) throws IOException {
+    public BytesReference read(Translog.Location location) throws IOException {
         ByteBuffer buffer = ByteBuffer.allocate(location.size);
         raf.channel().read(buffer, location.translogLocation);
-        return buffer.array();
+        return new BytesArray(buffer.array());
     }
 
     public void close(boolean delete) {
@@ -102,7 +109,7 @@ public class SimpleFsTranslogFile implements FsTranslogFile {
             if (!raf.increaseRefCount()) {
                 return null;
             }
-            return new FsChannelSnapshot(this.id, raf, lastWrittenPosition.get(), operationCounter.get());
+            return new FsChannelSnapshot(this.id, raf, lastWrittenPosition, operationCounter.get());
         } catch (Exception e) {
             throw new TranslogException(shardId, "Failed to snapshot", e);
         }
@@ -110,17 +117,22 @@ public class SimpleFsTranslogFile implements FsTranslogFile {
 
     @Override
     public boolean syncNeeded() {
-        return lastWrittenPosition.get() != lastSyncPosition;
+        return lastWrittenPosition != lastSyncPosition;
     }
 
     public void sync() throws IOException {
-        // check if we really need to sync here...
-        long last = lastWrittenPosition.get();
+        // check if we really need to sync here... captured before forcing, so it only covers completed writes
+        long last = lastWrittenPosition;
         if (last == lastSyncPosition) {
             return;
         }
-        lastSyncPosition = last;
         raf.channel().force(false);
+        lastSyncPosition = last;
+    }
+
+    @Override
+    public long syncedPosition() {
+        return lastSyncPosition;
     }
 
     @Override
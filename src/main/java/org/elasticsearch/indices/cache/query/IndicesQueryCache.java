@@ -0,0 +1,417 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.elasticsearch.indices.cache.query;
+
+import com.google.common.base.Objects;
+import com.google.common.cache.*;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.util.RamUsageEstimator;
+import org.elasticsearch.action.search.SearchType;
+import org.elasticsearch.common.Nullable;
+import org.elasticsearch.common.breaker.CircuitBreakingException;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.component.AbstractComponent;
+import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.common.unit.MemorySizeValue;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
+import org.elasticsearch.common.util.concurrent.EsRejectedExecutionException;
+import org.elasticsearch.index.shard.IndexShardState;
+import org.elasticsearch.index.shard.ShardId;
+import org.elasticsearch.index.shard.service.IndexShard;
+import org.elasticsearch.indices.IndicesLifecycle;
+import org.elasticsearch.indices.fielddata.breaker.CircuitBreakerService;
+import org.elasticsearch.node.settings.NodeSettingsService;
+import org.elasticsearch.search.internal.SearchContext;
+import org.elasticsearch.search.internal.ShardSearchRequest;
+import org.elasticsearch.search.query.QueryPhase;
+import org.elasticsearch.search.query.QuerySearchResult;
+import org.elasticsearch.threadpool.ThreadPool;
+
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The node level cache of the results of the query phase of requests that don't return hits, such as counts and
+ * aggregations with a <tt>size</tt> of <tt>0</tt>. The cached results are keyed by the shard, the version of its
+ * reader and the source of the request. A refresh that changes the shard opens a new reader, the results of the
+ * old reader are never hit again and are cleaned once it is closed.
+ * <p/>
+ * Results are cached serialized, the memory they use is bounded by <tt>indices.cache.query.size</tt> and accounted
+ * in the request circuit breaker. The cache is enabled per index, with <tt>index.cache.query.enable</tt>.
+ */
+public class IndicesQueryCache extends AbstractComponent implements RemovalListener<IndicesQueryCache.Key, IndicesQueryCache.Value> {
+
+    public static final String INDEX_CACHE_QUERY_ENABLED = "index.cache.query.enable";
+    public static final String INDICES_CACHE_QUERY_SIZE = "indices.cache.query.size";
+    public static final String INDICES_CACHE_QUERY_EXPIRE = "indices.cache.query.expire";
+
+    private final ThreadPool threadPool;
+    private final CircuitBreakerService breakerService;
+
+    private final TimeValue cleanInterval;
+
+    final ConcurrentMap<CleanupKey, Boolean> registeredClosedListeners = ConcurrentCollections.newConcurrentMap();
+    final Set<CleanupKey> keysToClean = ConcurrentCollections.newConcurrentSet();
+
+    private volatile String size;
+    private volatile TimeValue expire;
+
+    private volatile Cache<Key, Value> cache;
+
+    private volatile boolean closed;
+
+    class ApplySettings implements NodeSettingsService.Listener {
+        @Override
+        public void onRefreshSettings(Settings settings) {
+            boolean replace = false;
+            String size = settings.get(INDICES_CACHE_QUERY_SIZE, IndicesQueryCache.this.size);
+            if (!size.equals(IndicesQueryCache.this.size)) {
+                logger.info("updating [{}] from [{}] to [{}]", INDICES_CACHE_QUERY_SIZE, IndicesQueryCache.this.size, size);
+                IndicesQueryCache.this.size = size;
+                replace = true;
+            }
+            TimeValue expire = settings.getAsTime(INDICES_CACHE_QUERY_EXPIRE, IndicesQueryCache.this.expire);
+            if (!Objects.equal(expire, IndicesQueryCache.this.expire)) {
+                logger.info("updating [{}] from [{}] to [{}]", INDICES_CACHE_QUERY_EXPIRE, IndicesQueryCache.this.expire, expire);
+                IndicesQueryCache.this.expire = expire;
+                replace = true;
+            }
+            if (replace) {
+                Cache<Key, Value> oldCache = IndicesQueryCache.this.cache;
+                buildCache();
+                oldCache.invalidateAll();
+            }
+        }
+    }
+
+    @Inject
+    public IndicesQueryCache(Settings settings, ThreadPool threadPool, CircuitBreakerService breakerService,
+                             IndicesLifecycle indicesLifecycle, NodeSettingsService nodeSettingsService) {
+        super(settings);
+        this.threadPool = threadPool;
+        this.breakerService = breakerService;
+        this.size = componentSettings.get("size", "1%");
+        this.expire = componentSettings.getAsTime("expire", null);
+        this.cleanInterval = componentSettings.getAsTime("clean_interval", TimeValue.timeValueSeconds(60));
+        buildCache();
+
+        nodeSettingsService.addListener(new ApplySettings());
+        indicesLifecycle.addListener(new IndicesLifecycle.Listener() {
+            @Override
+            public void beforeIndexShardClosed(ShardId shardId, @Nullable IndexShard indexShard) {
+                if (indexShard != null) {
+                    // all the results of the shard, whatever their reader, right away rather than on the next reap so
+                    // that their memory is given back to the request breaker when the shard goes away
+                    for (Iterator<Key> iterator = cache.asMap().keySet().iterator(); iterator.hasNext(); ) {
+                        if (iterator.next().shard == indexShard) {
+                            iterator.remove();
+                        }
+                    }
+                }
+            }
+        });
+
+        threadPool.schedule(cleanInterval, ThreadPool.Names.SAME, new Reaper());
+    }
+
+    private void buildCache() {
+        long sizeInBytes = MemorySizeValue.parseBytesSizeValueOrHeapRatio(size).bytes();
+        CacheBuilder<Key, Value> cacheBuilder = CacheBuilder.newBuilder()
+                .removalListener(this)
+                .maximumWeight(sizeInBytes).weigher(new QueryCacheWeigher());
+
+        // defaults to 4, but this is a busy map for all indices, increase it a bit
+        cacheBuilder.concurrencyLevel(16);
+
+        if (expire != null) {
+            cacheBuilder.expireAfterAccess(expire.millis(), TimeUnit.MILLISECONDS);
+        }
+
+        logger.debug("using [node] query cache with size [{}], actual_size [{}], expire [{}], clean_interval [{}]",
+                size, new ByteSizeValue(sizeInBytes), expire, cleanInterval);
+        cache = cacheBuilder.build();
+    }
+
+    public void close() {
+        closed = true;
+        cache.invalidateAll();
+    }
+
+    @Override
+    public void onRemoval(RemovalNotification<Key, Value> notification) {
+        if (notification.getKey() == null) {
+            return;
+        }
+        notification.getKey().shard.queryCache().onRemoval(notification);
+        if (notification.getValue() != null) {
+            breakerService.getRequestBreaker().addWithoutBreaking(-weight(notification.getKey(), notification.getValue()));
+        }
+    }
+
+    /**
+     * Can the results of the query phase of the request be cached? Only requests that don't return hits are, since
+     * the hits would then need a search context for the fetch phase.
+     */
+    public boolean canCache(ShardSearchRequest request, SearchContext context) {
+        if (!context.indexShard().indexService().settingsService().getSettings().getAsBoolean(INDEX_CACHE_QUERY_ENABLED, false)) {
+            return false;
+        }
+        if (request.scroll() != null || context.searchType() == SearchType.SCAN) {
+            return false;
+        }
+        if (context.searchType() != SearchType.COUNT && context.size() != 0) {
+            return false;
+        }
+        if (context.nowInMillisUsed()) {
+            return false;
+        }
+        // profiling is about the execution of the query, not its results
+        if (context.profilers() != null) {
+            return false;
+        }
+        // the reader version is part of the key
+        return context.searcher().getIndexReader() instanceof DirectoryReader;
+    }
+
+    /**
+     * Loads the results of the query phase of the request from the cache, or executes the query phase and caches its
+     * results.
+     */
+    public void loadIntoContext(final ShardSearchRequest request, final SearchContext context, final QueryPhase queryPhase) throws IOException {
+        final IndexShard shard = context.indexShard();
+        final DirectoryReader reader = (DirectoryReader) context.searcher().getIndexReader();
+        final Key key = new Key(shard, reader.getVersion(), request.cacheKey());
+        final Value cached = cache.getIfPresent(key);
+        if (cached != null) {
+            shard.queryCache().onHit();
+            context.queryResult().readFromWithId(context.id(), cached.reference.streamInput());
+            return;
+        }
+        shard.queryCache().onMiss();
+        queryPhase.execute(context);
+
+        final QuerySearchResult result = context.queryResult();
+        if (result.searchTimedOut() || context.nowInMillisUsed()) {
+            // partial results, or results that depend on the time the request was executed at
+            return;
+        }
+        BytesStreamOutput out = new BytesStreamOutput();
+        result.writeToNoId(out);
+        final Value value = new Value(out.bytes().copyBytesArray());
+        try {
+            breakerService.getRequestBreaker().addEstimateBytesAndMaybeBreak(weight(key, value), "<query_cache>");
+        } catch (CircuitBreakingException e) {
+            logger.debug("{} not caching query results of [{}] bytes", e, shard.shardId(), value.ramBytesUsed());
+            return;
+        }
+        shard.queryCache().onCached(key, value);
+        cache.put(key, value);
+
+        CleanupKey cleanupKey = new CleanupKey(shard, reader.getVersion());
+        if (registeredClosedListeners.putIfAbsent(cleanupKey, Boolean.TRUE) == null) {
+            reader.addReaderClosedListener(cleanupKey);
+        }
+    }
+
+    private static long weight(Key key, Value value) {
+        return key.ramBytesUsed() + value.ramBytesUsed();
+    }
+
+    public static class QueryCacheWeigher implements Weigher<Key, Value> {
+
+        @Override
+        public int weigh(Key key, Value value) {
+            return (int) weight(key, value);
+        }
+    }
+
+    public static class Value {
+
+        final BytesReference reference;
+
+        Value(BytesReference reference) {
+            this.reference = reference;
+        }
+
+        public long ramBytesUsed() {
+            return RamUsageEstimator.NUM_BYTES_OBJECT_HEADER + RamUsageEstimator.NUM_BYTES_OBJECT_REF + reference.length();
+        }
+    }
+
+    public static class Key {
+
+        public final IndexShard shard; // use as identity equality
+        public final long readerVersion; // use the reader version to not keep a reference to a "short" lived reader until its reaped
+        public final BytesReference value;
+
+        Key(IndexShard shard, long readerVersion, BytesReference value) {
+            this.shard = shard;
+            this.readerVersion = readerVersion;
+            this.value = value;
+        }
+
+        public long ramBytesUsed() {
+            return RamUsageEstimator.NUM_BYTES_OBJECT_HEADER + 2 * RamUsageEstimator.NUM_BYTES_OBJECT_REF + RamUsageEstimator.NUM_BYTES_LONG + value.length();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            Key key = (Key) o;
+            if (readerVersion != key.readerVersion) return false;
+            if (shard != key.shard) return false;
+            if (!value.equals(key.value)) return false;
+            return true;
+        }
+
+        @Override
+        public int hashCode() {
+            int result = System.identityHashCode(shard);
+            result = 31 * result + (int) (readerVersion ^ (readerVersion >>> 32));
+            result = 31 * result + value.hashCode();
+            return result;
+        }
+    }
+
+    private class CleanupKey implements IndexReader.ReaderClosedListener {
+
+        final IndexShard shard;
+        final long readerVersion; // use the reader version to not keep a reference to a "short" lived reader until its reaped
+
+        private CleanupKey(IndexShard shard, long readerVersion) {
+            this.shard = shard;
+            this.readerVersion = readerVersion;
+        }
+
+        @Override
+        public void onClose(IndexReader reader) {
+            Boolean remove = registeredClosedListeners.remove(this);
+            if (remove != null) {
+                keysToClean.add(this);
+            }
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            CleanupKey that = (CleanupKey) o;
+            if (readerVersion != that.readerVersion) return false;
+            if (shard != that.shard) return false;
+            return true;
+        }
+
+        @Override
+        public int hashCode() {
+            int result = System.identityHashCode(shard);
+            result = 31 * result + (int) (readerVersion ^ (readerVersion >>> 32));
+            return result;
+        }
+    }
+
+    /**
+     * Removes the results of closed readers and shards. Iterating over the whole cache is expensive, so it's done
+     * periodically rather than every time a reader is closed.
+     */
+    private class Reaper implements Runnable {
+
+        private final Set<CleanupKey> currentKeysToClean = new HashSet<>();
+        private final Set<IndexShard> currentFullClean = new HashSet<>();
+
+        @Override
+        public void run() {
+            if (closed) {
+                return;
+            }
+            if (keysToClean.isEmpty()) {
+                schedule();
+                return;
+            }
+            boolean submitted = false;
+            try {
+                threadPool.executor(ThreadPool.Names.GENERIC).execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            reap();
+                        } finally {
+                            schedule();
+                        }
+                    }
+                });
+                submitted = true;
+            } catch (EsRejectedExecutionException ex) {
+                logger.debug("Can not run Reaper - execution rejected", ex);
+            } finally {
+                // the submitted reap schedules the next one, otherwise the reaper would never run again
+                if (!submitted) {
+                    schedule();
+                }
+            }
+        }
+
+        private void schedule() {
+            try {
+                threadPool.schedule(cleanInterval, ThreadPool.Names.SAME, this);
+            } catch (EsRejectedExecutionException ex) {
+                logger.debug("Can not schedule Reaper - execution rejected", ex);
+            }
+        }
+
+        private synchronized void reap() {
+            currentKeysToClean.clear();
+            currentFullClean.clear();
+            for (Iterator<CleanupKey> iterator = keysToClean.iterator(); iterator.hasNext(); ) {
+                CleanupKey cleanupKey = iterator.next();
+                iterator.remove();
+                if (cleanupKey.readerVersion == -1 || cleanupKey.shard.state() == IndexShardState.CLOSED) {
+                    // -1 indicates full cleanup, as does a closed shard
+                    currentFullClean.add(cleanupKey.shard);
+                } else {
+                    currentKeysToClean.add(cleanupKey);
+                }
+            }
+
+            if (!currentKeysToClean.isEmpty() || !currentFullClean.isEmpty()) {
+                for (Iterator<Key> iterator = cache.asMap().keySet().iterator(); iterator.hasNext(); ) {
+                    Key key = iterator.next();
+                    if (currentFullClean.contains(key.shard)) {
+                        iterator.remove();
+                    } else if (currentKeysToClean.contains(new CleanupKey(key.shard, key.readerVersion))) {
+                        iterator.remove();
+                    }
+                }
+            }
+
+            cache.cleanUp();
+            currentKeysToClean.clear();
+            currentFullClean.clear();
+        }
+    }
+}
@@ -23,7 +23,7 @@ import org.elasticsearch.common.breaker.MemoryCircuitBreaker;
 
 /**
  * Interface for Circuit Breaker services, which provide breakers to classes
- * that load field data.
+ * that load field data or allocate memory for requests.
  */
 public interface CircuitBreakerService {
 
@@ -32,9 +32,13 @@ public interface CircuitBreakerService {
      */
     public MemoryCircuitBreaker getBreaker();
 
+    /**
+     * @return the breaker that can be used to register estimates of the memory allocated by requests
+     */
+    public MemoryCircuitBreaker getRequestBreaker();
 
     /**
-     * @return stats about the breaker
+     * @return stats about the breakers
      */
-    public FieldDataBreakerStats stats();
+    public AllCircuitBreakerStats stats();
 }
@@ -30,7 +30,8 @@ import org.elasticsearch.common.xcontent.XContentBuilderString;
 import java.io.IOException;
 
 /**
- * Class encapsulating stats about the circuit breaker
+ * Class encapsulating stats about the field data circuit breaker, as sent by nodes before
+ * {@link AllCircuitBreakerStats} covered all breakers.
  */
 public class FieldDataBreakerStats implements Streamable, ToXContent {
 
@@ -19,6 +19,7 @@
 package org.elasticsearch.indices.fielddata.breaker;
 
 import org.elasticsearch.ElasticsearchException;
+import org.elasticsearch.common.breaker.CircuitBreakingException;
 import org.elasticsearch.common.breaker.MemoryCircuitBreaker;
 import org.elasticsearch.common.component.AbstractLifecycleComponent;
 import org.elasticsearch.common.inject.Inject;
@@ -26,31 +27,56 @@ import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.unit.ByteSizeValue;
 import org.elasticsearch.node.settings.NodeSettingsService;
 
+import java.util.concurrent.atomic.AtomicLong;
+
 /**
  * The InternalCircuitBreakerService handles providing
  * {@link org.elasticsearch.common.breaker.MemoryCircuitBreaker}s
  * that can be used to keep track of memory usage across the node, preventing
  * actions that could cause an {@link OutOfMemoryError} on the node.
+ *
+ * There are two breakers: the field data breaker accounts for the memory used by
+ * field data and the request breaker for the memory allocated by requests, such as
+ * the {@link org.elasticsearch.common.util.BigArrays} used by aggregations. On top
+ * of their own limits, both of them are limited by a total limit, that applies to
+ * the sum of their estimations.
  */
-public class InternalCircuitBreakerService extends AbstractLifecycleComponent<InternalCircuitBreakerService> implements CircuitBreakerService {
+public class InternalCircuitBreakerService extends AbstractLifecycleComponent<InternalCircuitBreakerService> implements CircuitBreakerService, MemoryCircuitBreaker.Parent {
 
     public static final String CIRCUIT_BREAKER_MAX_BYTES_SETTING = "indices.fielddata.breaker.limit";
     public static final String CIRCUIT_BREAKER_OVERHEAD_SETTING = "indices.fielddata.breaker.overhead";
+    public static final String REQUEST_CIRCUIT_BREAKER_MAX_BYTES_SETTING = "indices.breaker.request.limit";
+    public static final String REQUEST_CIRCUIT_BREAKER_OVERHEAD_SETTING = "indices.breaker.request.overhead";
+    public static final String TOTAL_CIRCUIT_BREAKER_MAX_BYTES_SETTING = "indices.breaker.total.limit";
 
     public static final double DEFAULT_OVERHEAD_CONSTANT = 1.03;
+    public static final double DEFAULT_REQUEST_OVERHEAD_CONSTANT = 1.0;
     private static final String DEFAULT_BREAKER_LIMIT = "60%";
+    private static final String DEFAULT_REQUEST_BREAKER_LIMIT = "40%";
+    private static final String DEFAULT_TOTAL_BREAKER_LIMIT = "70%";
 
     private volatile MemoryCircuitBreaker breaker;
     private volatile long maxBytes;
     private volatile double overhead;
 
+    private volatile MemoryCircuitBreaker requestBreaker;
+    private volatile long requestMaxBytes;
+    private volatile double requestOverhead;
+
+    private volatile long totalMaxBytes;
+    private final AtomicLong parentTrippedCount = new AtomicLong();
+
     @Inject
     public InternalCircuitBreakerService(Settings settings, NodeSettingsService nodeSettingsService) {
         super(settings);
         this.maxBytes = settings.getAsMemory(CIRCUIT_BREAKER_MAX_BYTES_SETTING, DEFAULT_BREAKER_LIMIT).bytes();
         this.overhead = settings.getAsDouble(CIRCUIT_BREAKER_OVERHEAD_SETTING, DEFAULT_OVERHEAD_CONSTANT);
+        this.requestMaxBytes = settings.getAsMemory(REQUEST_CIRCUIT_BREAKER_MAX_BYTES_SETTING, DEFAULT_REQUEST_BREAKER_LIMIT).bytes();
+        this.requestOverhead = settings.getAsDouble(REQUEST_CIRCUIT_BREAKER_OVERHEAD_SETTING, DEFAULT_REQUEST_OVERHEAD_CONSTANT);
+        this.totalMaxBytes = settings.getAsMemory(TOTAL_CIRCUIT_BREAKER_MAX_BYTES_SETTING, DEFAULT_TOTAL_BREAKER_LIMIT).bytes();
 
-        this.breaker = new MemoryCircuitBreaker(new ByteSizeValue(maxBytes), overhead, null, logger);
+        this.breaker = new MemoryCircuitBreaker(MemoryCircuitBreaker.FIELDDATA, new ByteSizeValue(maxBytes), overhead, null, this, logger);
+        this.requestBreaker = new MemoryCircuitBreaker(MemoryCircuitBreaker.REQUEST, new ByteSizeValue(requestMaxBytes), requestOverhead, null, this, logger);
 
         nodeSettingsService.addListener(new ApplySettings());
     }
@@ -81,6 +107,37 @@ public class InternalCircuitBreakerService extends AbstractLifecycleComponent<In
             if (breakerResetNeeded) {
                 resetBreaker();
             }
+
+            long newRequestMaxByteSizeValue = settings.getAsMemory(REQUEST_CIRCUIT_BREAKER_MAX_BYTES_SETTING, Long.toString(requestMaxBytes)).bytes();
+            boolean requestBreakerResetNeeded = false;
+
+            if (newRequestMaxByteSizeValue != requestMaxBytes) {
+                logger.info("updating [{}] from [{}]({}) to [{}]({})", REQUEST_CIRCUIT_BREAKER_MAX_BYTES_SETTING,
+                        requestMaxBytes, new ByteSizeValue(requestMaxBytes),
+                        newRequestMaxByteSizeValue, new ByteSizeValue(newRequestMaxByteSizeValue));
+                requestMaxBytes = newRequestMaxByteSizeValue;
+                requestBreakerResetNeeded = true;
+            }
+
+            double newRequestOverhead = settings.getAsDouble(REQUEST_CIRCUIT_BREAKER_OVERHEAD_SETTING, requestOverhead);
+            if (newRequestOverhead != requestOverhead) {
+                logger.info("updating [{}] from [{}] to [{}]", REQUEST_CIRCUIT_BREAKER_OVERHEAD_SETTING,
+                        requestOverhead, newRequestOverhead);
+                requestOverhead = newRequestOverhead;
+                requestBreakerResetNeeded = true;
+            }
+
+            if (requestBreakerResetNeeded) {
+                resetRequestBreaker();
+            }
+
+            long newTotalMaxByteSizeValue = settings.getAsMemory(TOTAL_CIRCUIT_BREAKER_MAX_BYTES_SETTING, Long.toString(totalMaxBytes)).bytes();
+            if (newTotalMaxByteSizeValue != totalMaxBytes) {
+                logger.info("updating [{}] from [{}]({}) to [{}]({})", TOTAL_CIRCUIT_BREAKER_MAX_BYTES_SETTING,
+                        totalMaxBytes, new ByteSizeValue(totalMaxBytes),
+                        newTotalMaxByteSizeValue, new ByteSizeValue(newTotalMaxByteSizeValue));
+                totalMaxBytes = newTotalMaxByteSizeValue;
+            }
         }
     }
 
@@ -91,6 +148,11 @@ public class InternalCircuitBreakerService extends AbstractLifecycleComponent<In
         return this.breaker;
     }
 
+    @Override
+    public MemoryCircuitBreaker getRequestBreaker() {
+        return this.requestBreaker;
+    }
+
     /**
      * Reset the breaker, creating a new one and initializing its used value
      * to the actual field data usage, or the existing estimated usage if the
@@ -100,12 +162,43 @@ public class InternalCircuitBreakerService extends AbstractLifecycleComponent<In
     public synchronized void resetBreaker() {
         final MemoryCircuitBreaker oldBreaker = this.breaker;
         // discard old breaker by creating a new one and pre-populating from the current breaker
-        this.breaker = new MemoryCircuitBreaker(new ByteSizeValue(maxBytes), overhead, oldBreaker, logger);
+        this.breaker = new MemoryCircuitBreaker(MemoryCircuitBreaker.FIELDDATA, new ByteSizeValue(maxBytes), overhead, oldBreaker, this, logger);
+    }
+
+    /**
+     * Reset the request breaker, keeping the bytes that are currently used.
+     */
+    public synchronized void resetRequestBreaker() {
+        final MemoryCircuitBreaker oldBreaker = this.requestBreaker;
+        this.requestBreaker = new MemoryCircuitBreaker(MemoryCircuitBreaker.REQUEST, new ByteSizeValue(requestMaxBytes), requestOverhead, oldBreaker, this, logger);
+    }
+
+    @Override
+    public void checkParentLimit(String label) throws CircuitBreakingException {
+        final long totalMaxBytes = this.totalMaxBytes;
+        if (totalMaxBytes < 0) {
+            return;
+        }
+        final MemoryCircuitBreaker breaker = this.breaker;
+        final MemoryCircuitBreaker requestBreaker = this.requestBreaker;
+        long totalUsed = (long) (breaker.getUsed() * breaker.getOverhead()) + (long) (requestBreaker.getUsed() * requestBreaker.getOverhead());
+        if (totalUsed > totalMaxBytes) {
+            parentTrippedCount.incrementAndGet();
+            throw new CircuitBreakingException("[" + MemoryCircuitBreaker.PARENT + "] Data too large, data for [" + label +
+                    "] would be larger than limit of [" + totalMaxBytes + "/" + new ByteSizeValue(totalMaxBytes) + "]");
+        }
     }
 
     @Override
-    public FieldDataBreakerStats stats() {
-        return new FieldDataBreakerStats(breaker.getMaximum(), breaker.getUsed(), breaker.getOverhead());
+    public AllCircuitBreakerStats stats() {
+        final MemoryCircuitBreaker breaker = this.breaker;
+        final MemoryCircuitBreaker requestBreaker = this.requestBreaker;
+        long totalUsed = (long) (breaker.getUsed() * breaker.getOverhead()) + (long) (requestBreaker.getUsed() * requestBreaker.getOverhead());
+        return new AllCircuitBreakerStats(new CircuitBreakerStats[] {
+                new CircuitBreakerStats(breaker.getName(), breaker.getMaximum(), breaker.getUsed(), breaker.getOverhead(), breaker.getTrippedCount()),
+                new CircuitBreakerStats(requestBreaker.getName(), requestBreaker.getMaximum(), requestBreaker.getUsed(), requestBreaker.getOverhead(), requestBreaker.getTrippedCount()),
+                new CircuitBreakerStats(MemoryCircuitBreaker.PARENT, totalMaxBytes, totalUsed, 1.0, parentTrippedCount.get())
+        });
     }
 
     @Override
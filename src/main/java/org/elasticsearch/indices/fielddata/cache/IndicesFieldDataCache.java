@@ -95,7 +95,7 @@ public class IndicesFieldDataCache extends AbstractComponent implements RemovalL
             sizeInBytes = value.getMemorySizeInBytes();
         }
         for (IndexFieldDataCache.Listener listener : key.listeners) {
-            listener.onUnload(indexCache.fieldNames, indexCache.fieldDataType, notification.wasEvicted(), sizeInBytes);
+            listener.onUnload(indexCache.fieldNames, indexCache.fieldDataType, notification.wasEvicted(), sizeInBytes, key.globalOrdinals);
         }
     }
 
@@ -165,6 +165,8 @@ public class IndicesFieldDataCache extends AbstractComponent implements RemovalL
                 public RamUsage call() throws Exception {
                     indexReader.addReaderClosedListener(IndexFieldCache.this);
                     GlobalOrdinalsIndexFieldData ifd = (GlobalOrdinalsIndexFieldData) indexFieldData.localGlobalDirect(indexReader);
+                    key.sizeInBytes = ifd.getMemorySizeInBytes();
+                    key.globalOrdinals = true;
                     key.listeners.add(indicesFieldDataCacheListener);
                     final ShardId shardId = ShardUtils.extractShardId(indexReader);
                     if (shardId != null) {
@@ -223,6 +225,7 @@ public class IndicesFieldDataCache extends AbstractComponent implements RemovalL
 
         public final List<IndexFieldDataCache.Listener> listeners = new ArrayList<>();
         long sizeInBytes = -1; // optional size in bytes (we keep it here in case the values are soft references)
+        boolean globalOrdinals;
 
 
         Key(IndexFieldCache indexCache, Object readerKey) {
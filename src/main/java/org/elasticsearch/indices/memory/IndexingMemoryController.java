@@ -47,7 +47,14 @@ import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
- *
+ * Divides the node level indexing and translog buffers between the shards of the node.
+ * <p/>
+ * Shards that didn't index anything for <tt>shard_inactive_time</tt> get a minimal buffer. Every active shard gets
+ * the minimal shard buffer, and what's left of the node buffer is divided proportionally to the rate at which each
+ * shard indexed source bytes recently, so that shards that take most of the writes also get most of the memory and
+ * write bigger segments. The rates are sampled every <tt>interval</tt> and smoothed, and the buffer of a shard is
+ * only changed once its new allocation differs from the current one by more than <tt>reallocation_threshold</tt>,
+ * so that small variations of the rates don't keep resizing buffers.
  */
 public class IndexingMemoryController extends AbstractLifecycleComponent<IndexingMemoryController> {
 
@@ -64,6 +71,7 @@ public class IndexingMemoryController extends AbstractLifecycleComponent<Indexin
 
     private final TimeValue inactiveTime;
     private final TimeValue interval;
+    private final double reallocationThreshold;
     private final AtomicBoolean shardsCreatedOrDeleted = new AtomicBoolean();
 
     private final Listener listener = new Listener();
@@ -126,6 +134,7 @@ public class IndexingMemoryController extends AbstractLifecycleComponent<Indexin
         this.inactiveTime = componentSettings.getAsTime("shard_inactive_time", TimeValue.timeValueMinutes(30));
         // we need to have this relatively small to move a shard from inactive to active fast (enough)
         this.interval = componentSettings.getAsTime("interval", TimeValue.timeValueSeconds(30));
+        this.reallocationThreshold = componentSettings.getAsDouble("reallocation_threshold", 0.25);
 
         logger.debug("using index_buffer_size [{}], with min_shard_index_buffer_size [{}], max_shard_index_buffer_size [{}], shard_inactive_time [{}]", this.indexingBuffer, this.minShardIndexBufferSize, this.maxShardIndexBufferSize, this.inactiveTime);
 
@@ -178,6 +187,9 @@ public class IndexingMemoryController extends AbstractLifecycleComponent<Indexin
                                     // inactive for this amount of time, mark it
                                     activeToInactiveIndexingShards.add(indexShard);
                                     status.inactiveIndexing = true;
+                                    // the shard gets its active buffers back once it's active again
+                                    status.indexBufferSize = -1;
+                                    status.translogBufferSize = -1;
                                     activeInactiveStatusChanges = true;
                                     logger.debug("marking shard [{}][{}] as inactive (inactive_time[{}]) indexing wise, setting size to [{}]", indexShard.shardId().index().name(), indexShard.shardId().id(), inactiveTime, Engine.INACTIVE_SHARD_INDEXING_BUFFER);
                                 }
@@ -193,6 +205,7 @@ public class IndexingMemoryController extends AbstractLifecycleComponent<Indexin
                         }
                         status.translogId = translog.currentId();
                         status.translogNumberOfOperations = translog.estimatedNumberOfOperations();
+                        status.sampleIndexingRate(indexShard.indexingService().indexedBytes(), time);
                     }
                 }
                 for (IndexShard indexShard : activeToInactiveIndexingShards) {
@@ -200,6 +213,7 @@ public class IndexingMemoryController extends AbstractLifecycleComponent<Indexin
                     try {
                         ((InternalIndexShard) indexShard).engine().updateIndexingBufferSize(Engine.INACTIVE_SHARD_INDEXING_BUFFER);
                         ((InternalIndexShard) indexShard).translog().updateBuffer(Translog.INACTIVE_SHARD_TRANSLOG_BUFFER);
+                        indexShard.indexingService().updateBufferSizes(Engine.INACTIVE_SHARD_INDEXING_BUFFER, Translog.INACTIVE_SHARD_TRANSLOG_BUFFER);
                     } catch (EngineClosedException e) {
                         // ignore
                     } catch (FlushNotAllowedEngineException e) {
@@ -207,9 +221,8 @@ public class IndexingMemoryController extends AbstractLifecycleComponent<Indexin
                     }
                 }
                 boolean shardsCreatedOrDeleted = IndexingMemoryController.this.shardsCreatedOrDeleted.compareAndSet(true, false);
-                if (shardsCreatedOrDeleted || activeInactiveStatusChanges) {
-                    calcAndSetShardBuffers("active/inactive[" + activeInactiveStatusChanges + "] created/deleted[" + shardsCreatedOrDeleted + "]");
-                }
+                // the indexing rates changed since the last run, so we always recalculate, only significant changes are applied
+                calcAndSetShardBuffers("active/inactive[" + activeInactiveStatusChanges + "] created/deleted[" + shardsCreatedOrDeleted + "]");
             }
         }
     }
@@ -235,59 +248,78 @@ public class IndexingMemoryController extends AbstractLifecycleComponent<Indexin
 
 
     private void calcAndSetShardBuffers(String reason) {
-        int shardsCount = countShards();
-        if (shardsCount == 0) {
-            return;
-        }
-        ByteSizeValue shardIndexingBufferSize = new ByteSizeValue(indexingBuffer.bytes() / shardsCount);
-        if (shardIndexingBufferSize.bytes() < minShardIndexBufferSize.bytes()) {
-            shardIndexingBufferSize = minShardIndexBufferSize;
-        }
-        if (shardIndexingBufferSize.bytes() > maxShardIndexBufferSize.bytes()) {
-            shardIndexingBufferSize = maxShardIndexBufferSize;
-        }
-
-        ByteSizeValue shardTranslogBufferSize = new ByteSizeValue(translogBuffer.bytes() / shardsCount);
-        if (shardTranslogBufferSize.bytes() < minShardTranslogBufferSize.bytes()) {
-            shardTranslogBufferSize = minShardTranslogBufferSize;
-        }
-        if (shardTranslogBufferSize.bytes() > maxShardTranslogBufferSize.bytes()) {
-            shardTranslogBufferSize = maxShardTranslogBufferSize;
-        }
-
-        logger.debug("recalculating shard indexing buffer (reason={}), total is [{}] with [{}] active shards, each shard set to indexing=[{}], translog=[{}]", reason, indexingBuffer, shardsCount, shardIndexingBufferSize, shardTranslogBufferSize);
+        List<IndexShard> activeShards = Lists.newArrayList();
         for (IndexService indexService : indicesService) {
             for (IndexShard indexShard : indexService) {
                 ShardIndexingStatus status = shardsIndicesStatus.get(indexShard.shardId());
                 if (status == null || !status.inactiveIndexing) {
-                    try {
-                        ((InternalIndexShard) indexShard).engine().updateIndexingBufferSize(shardIndexingBufferSize);
-                        ((InternalIndexShard) indexShard).translog().updateBuffer(shardTranslogBufferSize);
-                    } catch (EngineClosedException e) {
-                        // ignore
-                        continue;
-                    } catch (FlushNotAllowedEngineException e) {
-                        // ignore
-                        continue;
-                    } catch (Exception e) {
-                        logger.warn("failed to set shard [{}][{}] index buffer to [{}]", indexShard.shardId().index().name(), indexShard.shardId().id(), shardIndexingBufferSize);
-                    }
+                    activeShards.add(indexShard);
                 }
             }
         }
-    }
-
-    private int countShards() {
-        int shardsCount = 0;
-        for (IndexService indexService : indicesService) {
-            for (IndexShard indexShard : indexService) {
-                ShardIndexingStatus status = shardsIndicesStatus.get(indexShard.shardId());
-                if (status == null || !status.inactiveIndexing) {
-                    shardsCount++;
+        if (activeShards.isEmpty()) {
+            return;
+        }
+        double[] rates = new double[activeShards.size()];
+        for (int i = 0; i < rates.length; i++) {
+            ShardIndexingStatus status = shardsIndicesStatus.get(activeShards.get(i).shardId());
+            rates[i] = status == null ? 0 : status.indexingRate;
+        }
+        long[] shardIndexingBufferSizes = allocate(indexingBuffer.bytes(), minShardIndexBufferSize.bytes(), maxShardIndexBufferSize.bytes(), rates);
+        long[] shardTranslogBufferSizes = allocate(translogBuffer.bytes(), minShardTranslogBufferSize.bytes(), maxShardTranslogBufferSize.bytes(), rates);
+
+        boolean loggedReason = false;
+        for (int i = 0; i < activeShards.size(); i++) {
+            IndexShard indexShard = activeShards.get(i);
+            ShardIndexingStatus status = shardsIndicesStatus.get(indexShard.shardId());
+            if (status != null && !status.needsReallocation(shardIndexingBufferSizes[i], shardTranslogBufferSizes[i], reallocationThreshold)) {
+                continue;
+            }
+            ByteSizeValue shardIndexingBufferSize = new ByteSizeValue(shardIndexingBufferSizes[i]);
+            ByteSizeValue shardTranslogBufferSize = new ByteSizeValue(shardTranslogBufferSizes[i]);
+            if (!loggedReason) {
+                logger.debug("recalculating shard indexing buffer (reason={}), total is [{}] with [{}] active shards", reason, indexingBuffer, activeShards.size());
+                loggedReason = true;
+            }
+            logger.debug("setting shard [{}][{}] buffers to indexing=[{}], translog=[{}], indexing rate [{}/s]", indexShard.shardId().index().name(), indexShard.shardId().id(),
+                    shardIndexingBufferSize, shardTranslogBufferSize, new ByteSizeValue((long) rates[i]));
+            try {
+                ((InternalIndexShard) indexShard).engine().updateIndexingBufferSize(shardIndexingBufferSize);
+                ((InternalIndexShard) indexShard).translog().updateBuffer(shardTranslogBufferSize);
+                indexShard.indexingService().updateBufferSizes(shardIndexingBufferSize, shardTranslogBufferSize);
+                if (status != null) {
+                    status.indexBufferSize = shardIndexingBufferSizes[i];
+                    status.translogBufferSize = shardTranslogBufferSizes[i];
                 }
+            } catch (EngineClosedException e) {
+                // ignore
+                continue;
+            } catch (FlushNotAllowedEngineException e) {
+                // ignore
+                continue;
+            } catch (Exception e) {
+                logger.warn("failed to set shard [{}][{}] index buffer to [{}]", indexShard.shardId().index().name(), indexShard.shardId().id(), shardIndexingBufferSize);
             }
         }
-        return shardsCount;
+    }
+
+    /**
+     * Divides the given buffer between shards indexing at the given rates. Each shard gets at least <tt>min</tt>,
+     * and what's left is divided proportionally to the rates, or evenly if no shard indexed anything. Shards never
+     * get more than <tt>max</tt>.
+     */
+    static long[] allocate(long buffer, long min, long max, double[] rates) {
+        double totalRate = 0;
+        for (double rate : rates) {
+            totalRate += rate;
+        }
+        long remaining = Math.max(0, buffer - min * rates.length);
+        long[] sizes = new long[rates.length];
+        for (int i = 0; i < rates.length; i++) {
+            double share = totalRate > 0 ? rates[i] / totalRate : 1.0 / rates.length;
+            sizes[i] = Math.min(max, min + (long) (remaining * share));
+        }
+        return sizes;
     }
 
     static class ShardIndexingStatus {
@@ -295,5 +327,34 @@ public class IndexingMemoryController extends AbstractLifecycleComponent<Indexin
         int translogNumberOfOperations = -1;
         boolean inactiveIndexing = false;
         long time = -1; // contains the first time we saw this shard with no operations done on it
+
+        long indexedBytes = -1; // the indexed bytes of the shard at the last sample
+        long sampleTime = -1;
+        double indexingRate = 0; // smoothed indexed bytes per second
+
+        long indexBufferSize = -1; // the buffer sizes last set on the shard
+        long translogBufferSize = -1;
+
+        void sampleIndexingRate(long indexedBytes, long time) {
+            if (this.indexedBytes >= 0 && time > sampleTime) {
+                double rate = (indexedBytes - this.indexedBytes) * 1000.0 / (time - sampleTime);
+                // give the previous samples as much weight as the last one, so that a single burst doesn't move buffers
+                indexingRate = (indexingRate + rate) / 2;
+            }
+            this.indexedBytes = indexedBytes;
+            this.sampleTime = time;
+        }
+
+        boolean needsReallocation(long indexBufferSize, long translogBufferSize, double threshold) {
+            if (this.indexBufferSize < 0 || this.translogBufferSize < 0) {
+                return true;
+            }
+            return moved(indexBufferSize, this.indexBufferSize, threshold) || moved(translogBufferSize, this.translogBufferSize, threshold);
+        }
+
+        private static boolean moved(long size, long previousSize, double threshold) {
+            final long delta = size > previousSize ? size - previousSize : previousSize - size;
+            return delta > previousSize * threshold;
+        }
     }
 }
@@ -64,6 +64,7 @@ import org.elasticsearch.search.fetch.source.FetchSourceContext;
 import org.elasticsearch.search.highlight.SearchContextHighlight;
 import org.elasticsearch.search.internal.*;
 import org.elasticsearch.search.lookup.SearchLookup;
+import org.elasticsearch.search.profile.Profilers;
 import org.elasticsearch.search.query.QuerySearchResult;
 import org.elasticsearch.search.rescore.RescoreSearchContext;
 import org.elasticsearch.search.scan.ScanContext;
@@ -206,6 +207,11 @@ public class PercolateContext extends SearchContext {
         return searchLookup;
     }
 
+    @Override
+    public boolean hasLookup() {
+        return searchLookup != null;
+    }
+
     @Override
     protected void doClose() {
         try (Releasable releasable = Releasables.wrap(engineSearcher, docSearcher)) {
@@ -346,7 +352,7 @@ public class PercolateContext extends SearchContext {
     }
 
     @Override
-    public long nowInMillis() {
+    protected long nowInMillisImpl() {
         throw new UnsupportedOperationException();
     }
 
@@ -537,6 +543,26 @@ public class PercolateContext extends SearchContext {
         throw new UnsupportedOperationException();
     }
 
+    @Override
+    public SearchContext sliceFilter(Filter sliceFilter) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Filter sliceFilter() {
+        return null;
+    }
+
+    @Override
+    public SearchContext profilers(Profilers profilers) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Profilers profilers() {
+        return null;
+    }
+
     @Override
     public int from() {
         return 0;
@@ -0,0 +1,53 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.rest.action.admin.cluster.node.tasks;
+
+import org.elasticsearch.action.admin.cluster.node.tasks.ListSearchTasksRequest;
+import org.elasticsearch.action.admin.cluster.node.tasks.SearchTasksResponse;
+import org.elasticsearch.client.Client;
+import org.elasticsearch.common.Strings;
+import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.rest.BaseRestHandler;
+import org.elasticsearch.rest.RestChannel;
+import org.elasticsearch.rest.RestController;
+import org.elasticsearch.rest.RestRequest;
+import org.elasticsearch.rest.action.support.RestToXContentListener;
+
+/**
+ */
+public class RestListSearchTasksAction extends BaseRestHandler {
+
+    @Inject
+    public RestListSearchTasksAction(Settings settings, Client client, RestController controller) {
+        super(settings, client);
+        controller.registerHandler(RestRequest.Method.GET, "/_nodes/search_tasks", this);
+        controller.registerHandler(RestRequest.Method.GET, "/_nodes/{nodeId}/search_tasks", this);
+    }
+
+    @Override
+    public void handleRequest(final RestRequest request, final RestChannel channel) {
+        String[] nodesIds = Strings.splitStringByCommaToArray(request.param("nodeId"));
+        ListSearchTasksRequest listSearchTasksRequest = new ListSearchTasksRequest(nodesIds);
+        listSearchTasksRequest.shards(request.paramAsBoolean("shards", listSearchTasksRequest.shards()));
+        listSearchTasksRequest.listenerThreaded(false);
+        client.admin().cluster().listSearchTasks(listSearchTasksRequest, new RestToXContentListener<SearchTasksResponse>(channel));
+    }
+}
@@ -122,6 +122,11 @@ public class RestNodesAction extends AbstractCatAction {
         table.addCell("filter_cache.memory_size", "alias:fcm,filterCacheMemory;default:false;text-align:right;desc:used filter cache");
         table.addCell("filter_cache.evictions", "alias:fce,filterCacheEvictions;default:false;text-align:right;desc:filter cache evictions");
 
+        table.addCell("query_cache.memory_size", "alias:qcm,queryCacheMemory;default:false;text-align:right;desc:used query cache");
+        table.addCell("query_cache.evictions", "alias:qce,queryCacheEvictions;default:false;text-align:right;desc:query cache evictions");
+        table.addCell("query_cache.hit_count", "alias:qchc,queryCacheHitCount;default:false;text-align:right;desc:query cache hit count");
+        table.addCell("query_cache.miss_count", "alias:qcmc,queryCacheMissCount;default:false;text-align:right;desc:query cache miss count");
+
         table.addCell("flush.total", "alias:ft,flushTotal;default:false;text-align:right;desc:number of flushes");
         table.addCell("flush.total_time", "alias:ftt,flushTotalTime;default:false;text-align:right;desc:time spent in flush");
 
@@ -169,6 +174,8 @@ public class RestNodesAction extends AbstractCatAction {
 
         table.addCell("segments.count", "alias:sc,segmentsCount;default:false;text-align:right;desc:number of segments");
         table.addCell("segments.memory", "alias:sm,segmentsMemory;default:false;text-align:right;desc:memory used by segments");
+        table.addCell("segments.version_map_memory", "alias:svmm,segmentsVersionMapMemory;default:false;text-align:right;desc:memory used by version map");
+        table.addCell("segments.uid_filter_memory", "alias:sufm,segmentsUidFilterMemory;default:false;text-align:right;desc:memory used by uid filters");
 
         table.addCell("suggest.current", "alias:suc,suggestCurrent;default:false;text-align:right;desc:number of current suggest ops");
         table.addCell("suggest.time", "alias:suti,suggestTime;default:false;text-align:right;desc:time spend in suggest");
@@ -224,6 +231,11 @@ public class RestNodesAction extends AbstractCatAction {
             table.addCell(stats == null ? null : stats.getIndices().getFilterCache().getMemorySize());
             table.addCell(stats == null ? null : stats.getIndices().getFilterCache().getEvictions());
 
+            table.addCell(stats == null ? null : stats.getIndices().getQueryCache().getMemorySize());
+            table.addCell(stats == null ? null : stats.getIndices().getQueryCache().getEvictions());
+            table.addCell(stats == null ? null : stats.getIndices().getQueryCache().getHitCount());
+            table.addCell(stats == null ? null : stats.getIndices().getQueryCache().getMissCount());
+
             table.addCell(stats == null ? null : stats.getIndices().getFlush().getTotal());
             table.addCell(stats == null ? null : stats.getIndices().getFlush().getTotalTime());
 
@@ -271,6 +283,8 @@ public class RestNodesAction extends AbstractCatAction {
 
             table.addCell(stats == null ? null : stats.getIndices().getSegments().getCount());
             table.addCell(stats == null ? null : stats.getIndices().getSegments().getMemory());
+            table.addCell(stats == null ? null : stats.getIndices().getSegments().getVersionMapMemory());
+            table.addCell(stats == null ? null : stats.getIndices().getSegments().getUidFilterMemory());
 
             table.addCell(stats == null ? null : stats.getIndices().getSuggest().getCurrent());
             table.addCell(stats == null ? null : stats.getIndices().getSuggest().getTime());
@@ -98,6 +98,11 @@ public class RestShardsAction extends AbstractCatAction {
         table.addCell("filter_cache.memory_size", "alias:fcm,filterCacheMemory;default:false;text-align:right;desc:used filter cache");
         table.addCell("filter_cache.evictions", "alias:fce,filterCacheEvictions;default:false;text-align:right;desc:filter cache evictions");
 
+        table.addCell("query_cache.memory_size", "alias:qcm,queryCacheMemory;default:false;text-align:right;desc:used query cache");
+        table.addCell("query_cache.evictions", "alias:qce,queryCacheEvictions;default:false;text-align:right;desc:query cache evictions");
+        table.addCell("query_cache.hit_count", "alias:qchc,queryCacheHitCount;default:false;text-align:right;desc:query cache hit count");
+        table.addCell("query_cache.miss_count", "alias:qcmc,queryCacheMissCount;default:false;text-align:right;desc:query cache miss count");
+
         table.addCell("flush.total", "alias:ft,flushTotal;default:false;text-align:right;desc:number of flushes");
         table.addCell("flush.total_time", "alias:ftt,flushTotalTime;default:false;text-align:right;desc:time spent in flush");
 
@@ -145,6 +150,8 @@ public class RestShardsAction extends AbstractCatAction {
 
         table.addCell("segments.count", "alias:sc,segmentsCount;default:false;text-align:right;desc:number of segments");
         table.addCell("segments.memory", "alias:sm,segmentsMemory;default:false;text-align:right;desc:memory used by segments");
+        table.addCell("segments.version_map_memory", "alias:svmm,segmentsVersionMapMemory;default:false;text-align:right;desc:memory used by version map");
+        table.addCell("segments.uid_filter_memory", "alias:sufm,segmentsUidFilterMemory;default:false;text-align:right;desc:memory used by uid filters");
 
         table.addCell("warmer.current", "alias:wc,warmerCurrent;default:false;text-align:right;desc:current warmer ops");
         table.addCell("warmer.total", "alias:wto,warmerTotal;default:false;text-align:right;desc:total warmer ops");
@@ -195,6 +202,11 @@ public class RestShardsAction extends AbstractCatAction {
             table.addCell(shardStats == null ? null : shardStats.getFilterCache().getMemorySize());
             table.addCell(shardStats == null ? null : shardStats.getFilterCache().getEvictions());
 
+            table.addCell(shardStats == null ? null : shardStats.getQueryCache().getMemorySize());
+            table.addCell(shardStats == null ? null : shardStats.getQueryCache().getEvictions());
+            table.addCell(shardStats == null ? null : shardStats.getQueryCache().getHitCount());
+            table.addCell(shardStats == null ? null : shardStats.getQueryCache().getMissCount());
+
             table.addCell(shardStats == null ? null : shardStats.getFlush().getTotal());
             table.addCell(shardStats == null ? null : shardStats.getFlush().getTotalTime());
 
@@ -242,6 +254,8 @@ public class RestShardsAction extends AbstractCatAction {
 
             table.addCell(shardStats == null ? null : shardStats.getSegments().getCount());
             table.addCell(shardStats == null ? null : shardStats.getSegments().getMemory());
+            table.addCell(shardStats == null ? null : shardStats.getSegments().getVersionMapMemory());
+            table.addCell(shardStats == null ? null : shardStats.getSegments().getUidFilterMemory());
 
             table.addCell(shardStats == null ? null : shardStats.getWarmer().current());
             table.addCell(shardStats == null ? null : shardStats.getWarmer().total());
@@ -41,6 +41,7 @@ import org.elasticsearch.search.highlight.HighlightModule;
 import org.elasticsearch.search.highlight.HighlightPhase;
 import org.elasticsearch.search.query.QueryPhase;
 import org.elasticsearch.search.suggest.SuggestModule;
+import org.elasticsearch.search.task.SearchTaskManager;
 
 /**
  *
@@ -69,6 +70,7 @@ public class SearchModule extends AbstractModule implements SpawnModules {
         bind(MatchedQueriesFetchSubPhase.class).asEagerSingleton();
         bind(HighlightPhase.class).asEagerSingleton();
 
+        bind(SearchTaskManager.class).asEagerSingleton();
         bind(SearchServiceTransportAction.class).asEagerSingleton();
     }
 }
@@ -39,11 +39,13 @@ import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.common.component.AbstractLifecycleComponent;
 import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.metrics.ExponentiallyWeightedMovingAverage;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.common.util.BigArrays;
 import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
 import org.elasticsearch.common.util.concurrent.ConcurrentMapLong;
+import org.elasticsearch.common.util.concurrent.EsExecutors;
 import org.elasticsearch.common.xcontent.XContentFactory;
 import org.elasticsearch.common.xcontent.XContentHelper;
 import org.elasticsearch.common.xcontent.XContentParser;
@@ -61,6 +63,7 @@ import org.elasticsearch.index.service.IndexService;
 import org.elasticsearch.index.shard.service.IndexShard;
 import org.elasticsearch.indices.IndicesLifecycle;
 import org.elasticsearch.indices.IndicesService;
+import org.elasticsearch.indices.cache.query.IndicesQueryCache;
 import org.elasticsearch.indices.warmer.IndicesWarmer;
 import org.elasticsearch.indices.warmer.IndicesWarmer.WarmerContext;
 import org.elasticsearch.script.ExecutableScript;
@@ -72,16 +75,20 @@ import org.elasticsearch.search.fetch.*;
 import org.elasticsearch.search.internal.*;
 import org.elasticsearch.search.internal.SearchContext.Lifetime;
 import org.elasticsearch.search.query.*;
+import org.elasticsearch.search.task.SearchTaskInfo;
 import org.elasticsearch.search.warmer.IndexWarmersMetaData;
 import org.elasticsearch.threadpool.ThreadPool;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Executor;
 import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.atomic.AtomicLong;
 
 import static org.elasticsearch.common.Strings.hasLength;
@@ -93,11 +100,19 @@ import static org.elasticsearch.common.unit.TimeValue.timeValueMinutes;
 public class SearchService extends AbstractLifecycleComponent<SearchService> {
 
     public static final String NORMS_LOADING_KEY = "index.norms.loading";
+    public static final String INDEX_CONCURRENT_SEARCH_ENABLED = "index.search.concurrent.enabled";
+    public static final String INDEX_CONCURRENT_SEARCH_MAX_SLICES = "index.search.concurrent.max_slices";
+    public static final String INDEX_CONCURRENT_SEARCH_MIN_DOCS_PER_SLICE = "index.search.concurrent.min_docs_per_slice";
     private static final String DEFAUTL_KEEPALIVE_COMPONENENT_KEY = "default_keep_alive";
     public static final String DEFAUTL_KEEPALIVE_KEY = "search." + DEFAUTL_KEEPALIVE_COMPONENENT_KEY;
     private static final String KEEPALIVE_INTERVAL_COMPONENENT_KEY = "keep_alive_interval";
     public static final String KEEPALIVE_INTERVAL_KEY = "search." + KEEPALIVE_INTERVAL_COMPONENENT_KEY;
 
+    /**
+     * The action of the searches of shards in the list of search tasks.
+     */
+    public static final String SHARD_SEARCH_ACTION = "search[shard]";
+
 
     private final ThreadPool threadPool;
 
@@ -115,6 +130,8 @@ public class SearchService extends AbstractLifecycleComponent<SearchService> {
 
     private final BigArrays bigArrays;
 
+    private final IndicesQueryCache indicesQueryCache;
+
     private final DfsPhase dfsPhase;
 
     private final QueryPhase queryPhase;
@@ -123,17 +140,22 @@ public class SearchService extends AbstractLifecycleComponent<SearchService> {
 
     private final long defaultKeepAlive;
 
+    private final int defaultConcurrentSearchMaxSlices;
+
     private final ScheduledFuture<?> keepAliveReaper;
 
     private final AtomicLong idGenerator = new AtomicLong();
 
+    private final ExponentiallyWeightedMovingAverage queryPhaseTimeEWMA = new ExponentiallyWeightedMovingAverage(0.3);
+
     private final ConcurrentMapLong<SearchContext> activeContexts = ConcurrentCollections.newConcurrentMapLongWithAggressiveConcurrency();
 
     private final ImmutableMap<String, SearchParseElement> elementParsers;
 
     @Inject
     public SearchService(Settings settings, ClusterService clusterService, IndicesService indicesService, IndicesLifecycle indicesLifecycle, IndicesWarmer indicesWarmer, ThreadPool threadPool,
-                         ScriptService scriptService, CacheRecycler cacheRecycler, PageCacheRecycler pageCacheRecycler, BigArrays bigArrays, DfsPhase dfsPhase, QueryPhase queryPhase, FetchPhase fetchPhase) {
+                         ScriptService scriptService, CacheRecycler cacheRecycler, PageCacheRecycler pageCacheRecycler, BigArrays bigArrays, DfsPhase dfsPhase, QueryPhase queryPhase, FetchPhase fetchPhase,
+                         IndicesQueryCache indicesQueryCache) {
         super(settings);
         this.threadPool = threadPool;
         this.clusterService = clusterService;
@@ -142,14 +164,16 @@ public class SearchService extends AbstractLifecycleComponent<SearchService> {
         this.scriptService = scriptService;
         this.cacheRecycler = cacheRecycler;
         this.pageCacheRecycler = pageCacheRecycler;
-        this.bigArrays = bigArrays;
+        this.bigArrays = bigArrays.withCircuitBreaking();
         this.dfsPhase = dfsPhase;
         this.queryPhase = queryPhase;
         this.fetchPhase = fetchPhase;
+        this.indicesQueryCache = indicesQueryCache;
 
         TimeValue keepAliveInterval = componentSettings.getAsTime(KEEPALIVE_INTERVAL_COMPONENENT_KEY, timeValueMinutes(1));
         // we can have 5 minutes here, since we make sure to clean with search requests and when shard/index closes
         this.defaultKeepAlive = componentSettings.getAsTime(DEFAUTL_KEEPALIVE_COMPONENENT_KEY, timeValueMinutes(5)).millis();
+        this.defaultConcurrentSearchMaxSlices = EsExecutors.boundedNumberOfProcessors(settings);
 
         Map<String, SearchParseElement> elementParsers = new HashMap<>();
         elementParsers.putAll(dfsPhase.parseElements());
@@ -222,7 +246,6 @@ public class SearchService extends AbstractLifecycleComponent<SearchService> {
 
     public ScrollQueryFetchSearchResult executeScan(InternalScrollSearchRequest request) throws ElasticsearchException {
         SearchContext context = findContext(request.id());
-        contextProcessing(context);
         try {
             processScroll(request, context);
             if (context.searchType() == SearchType.COUNT) {
@@ -254,13 +277,19 @@ public class SearchService extends AbstractLifecycleComponent<SearchService> {
             context.indexShard().searchService().onPreQueryPhase(context);
             long time = System.nanoTime();
             contextProcessing(context);
-            queryPhase.execute(context);
+            if (indicesQueryCache.canCache(request, context)) {
+                indicesQueryCache.loadIntoContext(request, context, queryPhase);
+            } else {
+                queryPhase.execute(context);
+            }
             if (context.searchType() == SearchType.COUNT) {
                 freeContext(context.id());
             } else {
                 contextProcessedSuccessfully(context);
             }
-            context.indexShard().searchService().onQueryPhase(context, System.nanoTime() - time);
+            final long took = System.nanoTime() - time;
+            context.indexShard().searchService().onQueryPhase(context, took);
+            addNodeStatistics(context.queryResult(), took);
             return context.queryResult();
         } catch (Throwable e) {
             context.indexShard().searchService().onFailedQueryPhase(context);
@@ -272,12 +301,45 @@ public class SearchService extends AbstractLifecycleComponent<SearchService> {
         }
     }
 
+    /**
+     * Tells whether the request can match any document of the shard, so that the coordinating node can skip the shards
+     * that can't before the query phase. Errors are left to the query phase, the shard is then assumed to match.
+     */
+    public boolean canMatch(ShardSearchRequest request) {
+        Engine.Searcher searcher = null;
+        try {
+            IndexService indexService = indicesService.indexServiceSafe(request.index());
+            IndexShard indexShard = indexService.shardSafe(request.shardId());
+            searcher = indexShard.acquireSearcher("can_match");
+            return new CanMatchChecker(indexService.mapperService()).canMatch(request, searcher.reader());
+        } catch (Throwable e) {
+            logger.trace("Can match phase failed", e);
+            return true;
+        } finally {
+            if (searcher != null) {
+                searcher.close();
+            }
+        }
+    }
+
+    /**
+     * Adds the load of this node to the query result, for the coordinating node to rank the copies of the shards in
+     * the next searches.
+     */
+    private void addNodeStatistics(QuerySearchResult result, long queryPhaseTimeInNanos) {
+        queryPhaseTimeEWMA.addValue(queryPhaseTimeInNanos);
+        final Executor executor = threadPool.executor(ThreadPool.Names.SEARCH);
+        if (executor instanceof ThreadPoolExecutor) {
+            result.nodeQueueSize(((ThreadPoolExecutor) executor).getQueue().size());
+        }
+        result.serviceTimeEWMA((long) queryPhaseTimeEWMA.getAverage());
+    }
+
     public ScrollQuerySearchResult executeQueryPhase(InternalScrollSearchRequest request) throws ElasticsearchException {
         SearchContext context = findContext(request.id());
         try {
             context.indexShard().searchService().onPreQueryPhase(context);
             long time = System.nanoTime();
-            contextProcessing(context);
             processScroll(request, context);
             queryPhase.execute(context);
             contextProcessedSuccessfully(context);
@@ -295,7 +357,6 @@ public class SearchService extends AbstractLifecycleComponent<SearchService> {
 
     public QuerySearchResult executeQueryPhase(QuerySearchRequest request) throws ElasticsearchException {
         SearchContext context = findContext(request.id());
-        contextProcessing(context);
         try {
             context.searcher().dfSource(new CachedDfSource(context.searcher().getIndexReader(), request.dfs(), context.similarityService().similarity()));
         } catch (Throwable e) {
@@ -334,6 +395,7 @@ public class SearchService extends AbstractLifecycleComponent<SearchService> {
             }
             long time2 = System.nanoTime();
             context.indexShard().searchService().onQueryPhase(context, time2 - time);
+            addNodeStatistics(context.queryResult(), time2 - time);
             context.indexShard().searchService().onPreFetchPhase(context);
             try {
                 shortcutDocIdsToLoad(context);
@@ -360,7 +422,6 @@ public class SearchService extends AbstractLifecycleComponent<SearchService> {
 
     public QueryFetchSearchResult executeFetchPhase(QuerySearchRequest request) throws ElasticsearchException {
         SearchContext context = findContext(request.id());
-        contextProcessing(context);
         try {
             context.searcher().dfSource(new CachedDfSource(context.searcher().getIndexReader(), request.dfs(), context.similarityService().similarity()));
         } catch (Throwable e) {
@@ -405,7 +466,6 @@ public class SearchService extends AbstractLifecycleComponent<SearchService> {
 
     public ScrollQueryFetchSearchResult executeFetchPhase(InternalScrollSearchRequest request) throws ElasticsearchException {
         SearchContext context = findContext(request.id());
-        contextProcessing(context);
         try {
             processScroll(request, context);
             context.indexShard().searchService().onPreQueryPhase(context);
@@ -444,7 +504,6 @@ public class SearchService extends AbstractLifecycleComponent<SearchService> {
 
     public FetchSearchResult executeFetchPhase(FetchSearchRequest request) throws ElasticsearchException {
         SearchContext context = findContext(request.id());
-        contextProcessing(context);
         try {
             if (request.lastEmittedDoc() != null) {
                 context.lastEmittedDoc(request.lastEmittedDoc());
@@ -470,11 +529,23 @@ public class SearchService extends AbstractLifecycleComponent<SearchService> {
         }
     }
 
-    private SearchContext findContext(long id) throws SearchContextMissingException {
+    /**
+     * Looks up the context of the given id and marks it as being processed. A context whose search was cancelled
+     * while it was idle is freed instead.
+     */
+    private SearchContext findContext(long id) throws SearchContextMissingException, SearchCancelledException {
         SearchContext context = activeContexts.get(id);
         if (context == null) {
             throw new SearchContextMissingException(id);
         }
+        // cancelSearches frees idle contexts under the same lock, so the context can't be freed once we marked it
+        synchronized (context) {
+            if (context.isCancelled()) {
+                freeContext(id);
+                context.checkCancelled();
+            }
+            contextProcessing(context);
+        }
         SearchContext.setCurrent(context);
         return context;
     }
@@ -504,8 +575,15 @@ public class SearchService extends AbstractLifecycleComponent<SearchService> {
         SearchContext context = new DefaultSearchContext(idGenerator.incrementAndGet(), request, shardTarget, engineSearcher, indexService, indexShard, scriptService, cacheRecycler, pageCacheRecycler, bigArrays);
         SearchContext.setCurrent(context);
         try {
+            Settings indexSettings = indexService.settingsService().getSettings();
+            if (indexSettings.getAsBoolean(INDEX_CONCURRENT_SEARCH_ENABLED, false)) {
+                context.searcher().concurrentSearch(threadPool.executor(ThreadPool.Names.SEARCH_WORKER),
+                        indexSettings.getAsInt(INDEX_CONCURRENT_SEARCH_MAX_SLICES, defaultConcurrentSearchMaxSlices),
+                        indexSettings.getAsInt(INDEX_CONCURRENT_SEARCH_MIN_DOCS_PER_SLICE, 50000));
+            }
             context.scroll(request.scroll());
             context.useSlowScroll(request.useSlowScroll());
+            context.parentTask(request.parentTask());
 
             parseTemplate(request);
             parseSource(context, request.source());
@@ -563,13 +641,60 @@ public class SearchService extends AbstractLifecycleComponent<SearchService> {
         }
     }
 
+    /**
+     * Cancels the searches of the shards that are part of the given search task. The contexts that execute a phase
+     * fail at their next cancellation check and are freed by that phase, the idle ones are freed right away. Returns
+     * the number of cancelled contexts.
+     */
+    public int cancelSearches(String parentTask) {
+        int cancelled = 0;
+        for (SearchContext context : activeContexts.values()) {
+            if (parentTask.equals(context.parentTask())) {
+                synchronized (context) {
+                    context.cancel();
+                    if (context.lastAccessTime() != -1) {
+                        freeContext(context.id());
+                    }
+                }
+                cancelled++;
+            }
+        }
+        return cancelled;
+    }
+
+    /**
+     * The searches of the shards of the node, with the search task each one is part of.
+     */
+    public List<SearchTaskInfo> shardSearchTasks() {
+        final String nodeId = clusterService.localNode().id();
+        final long now = System.currentTimeMillis();
+        List<SearchTaskInfo> tasks = new ArrayList<>();
+        for (SearchContext context : activeContexts.values()) {
+            StringBuilder description = new StringBuilder();
+            description.append(context.shardTarget()).append(", search_type[").append(context.searchType()).append(']');
+            if (context.scroll() != null) {
+                description.append(", scroll");
+            }
+            tasks.add(new SearchTaskInfo(nodeId, context.id(), SHARD_SEARCH_ACTION, description.toString(), context.parentTask(),
+                    context.startTime(), now - context.startTime(), context.isCancelled()));
+        }
+        return tasks;
+    }
+
     private void contextProcessing(SearchContext context) {
         // disable timeout while executing a search
         context.accessed(-1);
     }
 
     private void contextProcessedSuccessfully(SearchContext context) {
-        context.accessed(threadPool.estimatedTimeInMillis());
+        synchronized (context) {
+            if (context.isCancelled()) {
+                // cancelled while we were processing it, nobody else frees it
+                freeContext(context.id());
+            } else {
+                context.accessed(threadPool.estimatedTimeInMillis());
+            }
+        }
     }
 
     private void cleanContext(SearchContext context) {
@@ -707,6 +832,7 @@ public class SearchService extends AbstractLifecycleComponent<SearchService> {
         // process scroll
         context.from(context.from() + context.size());
         context.scroll(request.scroll());
+        context.parentTask(request.parentTask());
         // update the context keep alive based on the new scroll value
         if (request.scroll() != null && request.scroll().keepAlive() != null) {
             context.keepAlive(request.scroll().keepAlive().millis());
@@ -24,6 +24,7 @@ import org.elasticsearch.action.search.ClearScrollRequest;
 import org.elasticsearch.action.search.SearchRequest;
 import org.elasticsearch.cluster.ClusterService;
 import org.elasticsearch.cluster.node.DiscoveryNode;
+import org.elasticsearch.cluster.routing.operation.ResponseCollectorService;
 import org.elasticsearch.common.component.AbstractComponent;
 import org.elasticsearch.common.inject.Inject;
 import org.elasticsearch.common.io.stream.StreamInput;
@@ -40,7 +41,9 @@ import org.elasticsearch.search.internal.InternalScrollSearchRequest;
 import org.elasticsearch.search.internal.ShardSearchRequest;
 import org.elasticsearch.search.query.QuerySearchRequest;
 import org.elasticsearch.search.query.QuerySearchResult;
+import org.elasticsearch.search.query.QuerySearchResultProvider;
 import org.elasticsearch.search.query.ScrollQuerySearchResult;
+import org.elasticsearch.search.task.SearchTaskManager;
 import org.elasticsearch.threadpool.ThreadPool;
 import org.elasticsearch.transport.*;
 
@@ -72,18 +75,33 @@ public class SearchServiceTransportAction extends AbstractComponent {
     private final TransportService transportService;
     private final ClusterService clusterService;
     private final SearchService searchService;
+    private final ResponseCollectorService responseCollectorService;
+    private final SearchTaskManager taskManager;
     private final FreeContextResponseHandler freeContextResponseHandler = new FreeContextResponseHandler(logger);
+    private final EmptyTransportResponseHandler cancelSearchResponseHandler = new EmptyTransportResponseHandler(ThreadPool.Names.SAME) {
+        @Override
+        public void handleException(TransportException exp) {
+            logger.warn("Failed to send search cancellation", exp);
+        }
+    };
 
     @Inject
-    public SearchServiceTransportAction(Settings settings, ThreadPool threadPool, TransportService transportService, ClusterService clusterService, SearchService searchService) {
+    public SearchServiceTransportAction(Settings settings, ThreadPool threadPool, TransportService transportService, ClusterService clusterService, SearchService searchService,
+                                        ResponseCollectorService responseCollectorService, SearchTaskManager taskManager) {
         super(settings);
         this.threadPool = threadPool;
         this.transportService = transportService;
         this.clusterService = clusterService;
         this.searchService = searchService;
+        this.responseCollectorService = responseCollectorService;
+        this.taskManager = taskManager;
+        // the cluster service depends on the collector, it can't register itself
+        clusterService.add(responseCollectorService);
 
         transportService.registerHandler(SearchFreeContextTransportHandler.ACTION, new SearchFreeContextTransportHandler());
+        transportService.registerHandler(SearchCancelTransportHandler.ACTION, new SearchCancelTransportHandler());
         transportService.registerHandler(ClearScrollContextsTransportHandler.ACTION, new ClearScrollContextsTransportHandler());
+        transportService.registerHandler(SearchCanMatchTransportHandler.ACTION, new SearchCanMatchTransportHandler());
         transportService.registerHandler(SearchDfsTransportHandler.ACTION, new SearchDfsTransportHandler());
         transportService.registerHandler(SearchQueryTransportHandler.ACTION, new SearchQueryTransportHandler());
         transportService.registerHandler(SearchQueryByIdTransportHandler.ACTION, new SearchQueryByIdTransportHandler());
@@ -96,6 +114,24 @@ public class SearchServiceTransportAction extends AbstractComponent {
         transportService.registerHandler(SearchScanScrollTransportHandler.ACTION, new SearchScanScrollTransportHandler());
     }
 
+    /**
+     * The registry of the search tasks this node coordinates.
+     */
+    public SearchTaskManager taskManager() {
+        return taskManager;
+    }
+
+    /**
+     * Cancels the searches of the shards of the node that are part of the given search task.
+     */
+    public void sendCancelSearch(DiscoveryNode node, String parentTask, TransportRequest request) {
+        if (clusterService.state().nodes().localNodeId().equals(node.id())) {
+            searchService.cancelSearches(parentTask);
+        } else {
+            transportService.sendRequest(node, SearchCancelTransportHandler.ACTION, new SearchCancelRequest(request, parentTask), cancelSearchResponseHandler);
+        }
+    }
+
     public void sendFreeContext(DiscoveryNode node, final long contextId, SearchRequest request) {
         if (clusterService.state().nodes().localNodeId().equals(node.id())) {
             searchService.freeContext(contextId);
@@ -162,6 +198,40 @@ public class SearchServiceTransportAction extends AbstractComponent {
         }
     }
 
+    public void sendCanMatch(DiscoveryNode node, final ShardSearchRequest request, final SearchServiceListener<Boolean> listener) {
+        if (clusterService.state().nodes().localNodeId().equals(node.id())) {
+            execute(new Callable<Boolean>() {
+                @Override
+                public Boolean call() throws Exception {
+                    return searchService.canMatch(request);
+                }
+            }, listener);
+        } else {
+            transportService.sendRequest(node, SearchCanMatchTransportHandler.ACTION, request, new BaseTransportResponseHandler<CanMatchResponse>() {
+
+                @Override
+                public CanMatchResponse newInstance() {
+                    return new CanMatchResponse();
+                }
+
+                @Override
+                public void handleResponse(CanMatchResponse response) {
+                    listener.onResult(response.canMatch());
+                }
+
+                @Override
+                public void handleException(TransportException exp) {
+                    listener.onFailure(exp);
+                }
+
+                @Override
+                public String executor() {
+                    return ThreadPool.Names.SAME;
+                }
+            });
+        }
+    }
+
     public void sendExecuteDfs(DiscoveryNode node, final ShardSearchRequest request, final SearchServiceListener<DfsSearchResult> listener) {
         if (clusterService.state().nodes().localNodeId().equals(node.id())) {
             execute(new Callable<DfsSearchResult>() {
@@ -196,7 +266,8 @@ public class SearchServiceTransportAction extends AbstractComponent {
         }
     }
 
-    public void sendExecuteQuery(DiscoveryNode node, final ShardSearchRequest request, final SearchServiceListener<QuerySearchResult> listener) {
+    public void sendExecuteQuery(DiscoveryNode node, final ShardSearchRequest request, SearchServiceListener<QuerySearchResult> queryListener) {
+        final SearchServiceListener<QuerySearchResult> listener = collectNodeStatistics(node, queryListener);
         if (clusterService.state().nodes().localNodeId().equals(node.id())) {
             execute(new Callable<QuerySearchResult>() {
                 @Override
@@ -298,7 +369,8 @@ public class SearchServiceTransportAction extends AbstractComponent {
         }
     }
 
-    public void sendExecuteFetch(DiscoveryNode node, final ShardSearchRequest request, final SearchServiceListener<QueryFetchSearchResult> listener) {
+    public void sendExecuteFetch(DiscoveryNode node, final ShardSearchRequest request, SearchServiceListener<QueryFetchSearchResult> queryFetchListener) {
+        final SearchServiceListener<QueryFetchSearchResult> listener = collectNodeStatistics(node, queryFetchListener);
         if (clusterService.state().nodes().localNodeId().equals(node.id())) {
             execute(new Callable<QueryFetchSearchResult>() {
                 @Override
@@ -502,6 +574,30 @@ public class SearchServiceTransportAction extends AbstractComponent {
         }
     }
 
+    /**
+     * Wraps the listener of a query phase to feed the response time and the load the node reported to the
+     * {@link ResponseCollectorService}, for adaptive replica selection.
+     */
+    private <T extends QuerySearchResultProvider> SearchServiceListener<T> collectNodeStatistics(final DiscoveryNode node, final SearchServiceListener<T> listener) {
+        final long startNanos = System.nanoTime();
+        responseCollectorService.onSearchSent(node.id());
+        return new SearchServiceListener<T>() {
+            @Override
+            public void onResult(T result) {
+                responseCollectorService.onSearchDone(node.id());
+                final QuerySearchResult queryResult = result.queryResult();
+                responseCollectorService.addNodeStatistics(node.id(), queryResult.nodeQueueSize(), System.nanoTime() - startNanos, queryResult.serviceTimeEWMA());
+                listener.onResult(result);
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+                responseCollectorService.onSearchDone(node.id());
+                listener.onFailure(t);
+            }
+        };
+    }
+
     private <T> void execute(final Callable<? extends T> callable, final SearchServiceListener<T> listener) {
         try {
             threadPool.executor(ThreadPool.Names.SEARCH).execute(new Runnable() {
@@ -583,6 +679,58 @@ public class SearchServiceTransportAction extends AbstractComponent {
         }
     }
 
+    class SearchCancelRequest extends TransportRequest {
+
+        private String parentTask;
+
+        SearchCancelRequest() {
+        }
+
+        SearchCancelRequest(TransportRequest request, String parentTask) {
+            super(request);
+            this.parentTask = parentTask;
+        }
+
+        public String parentTask() {
+            return parentTask;
+        }
+
+        @Override
+        public void readFrom(StreamInput in) throws IOException {
+            super.readFrom(in);
+            parentTask = in.readString();
+        }
+
+        @Override
+        public void writeTo(StreamOutput out) throws IOException {
+            super.writeTo(out);
+            out.writeString(parentTask);
+        }
+    }
+
+    class SearchCancelTransportHandler extends BaseTransportRequestHandler<SearchCancelRequest> {
+
+        static final String ACTION = "search/cancel";
+
+        @Override
+        public SearchCancelRequest newInstance() {
+            return new SearchCancelRequest();
+        }
+
+        @Override
+        public void messageReceived(SearchCancelRequest request, TransportChannel channel) throws Exception {
+            searchService.cancelSearches(request.parentTask());
+            channel.sendResponse(TransportResponse.Empty.INSTANCE);
+        }
+
+        @Override
+        public String executor() {
+            // cancelling only flags the contexts and frees the idle ones,
+            // no need for fork it to another thread
+            return ThreadPool.Names.SAME;
+        }
+    }
+
     class ClearScrollContextsRequest extends TransportRequest {
 
         ClearScrollContextsRequest() {
@@ -617,6 +765,54 @@ public class SearchServiceTransportAction extends AbstractComponent {
         }
     }
 
+    static class CanMatchResponse extends TransportResponse {
+
+        private boolean canMatch;
+
+        CanMatchResponse() {
+        }
+
+        CanMatchResponse(boolean canMatch) {
+            this.canMatch = canMatch;
+        }
+
+        public boolean canMatch() {
+            return canMatch;
+        }
+
+        @Override
+        public void readFrom(StreamInput in) throws IOException {
+            super.readFrom(in);
+            canMatch = in.readBoolean();
+        }
+
+        @Override
+        public void writeTo(StreamOutput out) throws IOException {
+            super.writeTo(out);
+            out.writeBoolean(canMatch);
+        }
+    }
+
+    private class SearchCanMatchTransportHandler extends BaseTransportRequestHandler<ShardSearchRequest> {
+
+        static final String ACTION = "search/phase/can_match";
+
+        @Override
+        public ShardSearchRequest newInstance() {
+            return new ShardSearchRequest();
+        }
+
+        @Override
+        public void messageReceived(ShardSearchRequest request, TransportChannel channel) throws Exception {
+            channel.sendResponse(new CanMatchResponse(searchService.canMatch(request)));
+        }
+
+        @Override
+        public String executor() {
+            return ThreadPool.Names.SEARCH;
+        }
+    }
+
     private class SearchDfsTransportHandler extends BaseTransportRequestHandler<ShardSearchRequest> {
 
         static final String ACTION = "search/phase/dfs";
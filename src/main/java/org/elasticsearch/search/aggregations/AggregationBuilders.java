@@ -18,6 +18,7 @@
  */
 package org.elasticsearch.search.aggregations;
 
+import org.elasticsearch.search.aggregations.bucket.composite.CompositeBuilder;
 import org.elasticsearch.search.aggregations.bucket.filter.FilterAggregationBuilder;
 import org.elasticsearch.search.aggregations.bucket.geogrid.GeoHashGridBuilder;
 import org.elasticsearch.search.aggregations.bucket.global.GlobalBuilder;
@@ -141,4 +142,8 @@ public class AggregationBuilders {
     public static CardinalityBuilder cardinality(String name) {
         return new CardinalityBuilder(name);
     }
+
+    public static CompositeBuilder composite(String name) {
+        return new CompositeBuilder(name);
+    }
 }
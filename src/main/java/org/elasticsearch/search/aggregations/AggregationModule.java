@@ -21,6 +21,7 @@ package org.elasticsearch.search.aggregations;
 import com.google.common.collect.Lists;
 import org.elasticsearch.common.inject.AbstractModule;
 import org.elasticsearch.common.inject.multibindings.Multibinder;
+import org.elasticsearch.search.aggregations.bucket.composite.CompositeParser;
 import org.elasticsearch.search.aggregations.bucket.filter.FilterParser;
 import org.elasticsearch.search.aggregations.bucket.geogrid.GeoHashGridParser;
 import org.elasticsearch.search.aggregations.bucket.global.GlobalParser;
@@ -79,6 +80,7 @@ public class AggregationModule extends AbstractModule {
         parsers.add(GeoHashGridParser.class);
         parsers.add(NestedParser.class);
         parsers.add(ReverseNestedParser.class);
+        parsers.add(CompositeParser.class);
     }
 
     /**
@@ -24,6 +24,7 @@ import org.apache.lucene.search.Filter;
 import org.apache.lucene.search.Query;
 import org.apache.lucene.search.Scorer;
 import org.elasticsearch.ElasticsearchException;
+import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.inject.Inject;
 import org.elasticsearch.common.lucene.search.Queries;
 import org.elasticsearch.common.lucene.search.XCollector;
@@ -34,6 +35,9 @@ import org.elasticsearch.search.SearchPhase;
 import org.elasticsearch.search.aggregations.bucket.global.GlobalAggregator;
 import org.elasticsearch.search.aggregations.support.AggregationContext;
 import org.elasticsearch.search.internal.SearchContext;
+import org.elasticsearch.search.profile.AggregationTimingType;
+import org.elasticsearch.search.profile.ProfileBreakdown;
+import org.elasticsearch.search.profile.Profilers;
 import org.elasticsearch.search.query.QueryPhaseExecutionException;
 
 import java.io.IOException;
@@ -87,7 +91,7 @@ public class AggregationPhase implements SearchPhase {
             }
             context.aggregations().aggregators(aggregators);
             if (!collectors.isEmpty()) {
-                context.searcher().addMainQueryCollector(new AggregationsCollector(collectors, aggregationContext));
+                context.searcher().addMainQueryCollector(new AggregationsCollector(collectors, aggregationContext, context.profilers()));
             }
             aggregationContext.setNextReader(context.searcher().getIndexReader().getContext());
         }
@@ -114,7 +118,7 @@ public class AggregationPhase implements SearchPhase {
 
         // optimize the global collector based execution
         if (!globals.isEmpty()) {
-            AggregationsCollector collector = new AggregationsCollector(globals, context.aggregations().aggregationContext());
+            AggregationsCollector collector = new AggregationsCollector(globals, context.aggregations().aggregationContext(), context.profilers());
             Query query = new XConstantScoreQuery(Queries.MATCH_ALL_FILTER);
             Filter searchFilter = context.searchFilter(context.types());
             if (searchFilter != null) {
@@ -130,7 +134,14 @@ public class AggregationPhase implements SearchPhase {
 
         List<InternalAggregation> aggregations = new ArrayList<>(aggregators.length);
         for (Aggregator aggregator : context.aggregations().aggregators()) {
-            aggregations.add(aggregator.buildAggregation(0));
+            context.checkCancelled();
+            if (context.profilers() == null) {
+                aggregations.add(aggregator.buildAggregation(0));
+            } else {
+                final long start = System.nanoTime();
+                aggregations.add(aggregator.buildAggregation(0));
+                context.profilers().aggregationProfiler().breakdown(aggregator).record(AggregationTimingType.BUILD_AGGREGATION, start);
+            }
         }
         context.queryResult().aggregations(new InternalAggregations(aggregations));
     }
@@ -138,12 +149,51 @@ public class AggregationPhase implements SearchPhase {
 
     public static class AggregationsCollector extends XCollector {
 
+        /** Number of documents that are buffered before being handed to the aggregators that collect in batches. */
+        static final int BATCH_SIZE = 1024;
+
         private final AggregationContext aggregationContext;
         private final Aggregator[] collectors;
+        private final Aggregator[] docCollectors;
+        private final Aggregator[] batchCollectors;
+        private final ProfileBreakdown<AggregationTimingType>[] docBreakdowns;
+        private final ProfileBreakdown<AggregationTimingType>[] batchBreakdowns;
+        private final int[] batch;
+        private int batchCount;
 
         public AggregationsCollector(Collection<Aggregator> collectors, AggregationContext aggregationContext) {
+            this(collectors, aggregationContext, null);
+        }
+
+        public AggregationsCollector(Collection<Aggregator> collectors, AggregationContext aggregationContext, @Nullable Profilers profilers) {
             this.collectors = collectors.toArray(new Aggregator[collectors.size()]);
             this.aggregationContext = aggregationContext;
+            List<Aggregator> docCollectors = new ArrayList<>();
+            List<Aggregator> batchCollectors = new ArrayList<>();
+            for (Aggregator collector : collectors) {
+                if (collector.collectsInBatches()) {
+                    batchCollectors.add(collector);
+                } else {
+                    docCollectors.add(collector);
+                }
+            }
+            this.docCollectors = docCollectors.toArray(new Aggregator[docCollectors.size()]);
+            this.batchCollectors = batchCollectors.toArray(new Aggregator[batchCollectors.size()]);
+            this.docBreakdowns = breakdowns(this.docCollectors, profilers);
+            this.batchBreakdowns = breakdowns(this.batchCollectors, profilers);
+            this.batch = this.batchCollectors.length == 0 ? null : new int[BATCH_SIZE];
+        }
+
+        @SuppressWarnings("unchecked")
+        private static ProfileBreakdown<AggregationTimingType>[] breakdowns(Aggregator[] collectors, @Nullable Profilers profilers) {
+            if (profilers == null) {
+                return null;
+            }
+            ProfileBreakdown<AggregationTimingType>[] breakdowns = new ProfileBreakdown[collectors.length];
+            for (int i = 0; i < breakdowns.length; i++) {
+                breakdowns[i] = profilers.aggregationProfiler().breakdown(collectors[i]);
+            }
+            return breakdowns;
         }
 
         @Override
@@ -153,13 +203,51 @@ public class AggregationPhase implements SearchPhase {
 
         @Override
         public void collect(int doc) throws IOException {
-            for (Aggregator collector : collectors) {
-                collector.collect(doc, 0);
+            if (docBreakdowns == null) {
+                for (Aggregator collector : docCollectors) {
+                    collector.collect(doc, 0);
+                }
+            } else {
+                for (int i = 0; i < docCollectors.length; i++) {
+                    final long start = System.nanoTime();
+                    docCollectors[i].collect(doc, 0);
+                    docBreakdowns[i].record(AggregationTimingType.COLLECT, start);
+                }
+            }
+            if (batch != null) {
+                if (batchCount > 0 && doc <= batch[batchCount - 1]) {
+                    // batches must be sorted, documents are collected out of order
+                    flushBatch();
+                }
+                batch[batchCount++] = doc;
+                if (batchCount == batch.length) {
+                    flushBatch();
+                }
+            }
+        }
+
+        private void flushBatch() throws IOException {
+            if (batchCount == 0) {
+                return;
+            }
+            if (batchBreakdowns == null) {
+                for (Aggregator collector : batchCollectors) {
+                    collector.collect(batch, batchCount, 0);
+                }
+            } else {
+                for (int i = 0; i < batchCollectors.length; i++) {
+                    final long start = System.nanoTime();
+                    batchCollectors[i].collect(batch, batchCount, 0);
+                    batchBreakdowns[i].record(AggregationTimingType.COLLECT, start);
+                }
             }
+            batchCount = 0;
         }
 
         @Override
         public void setNextReader(AtomicReaderContext context) throws IOException {
+            // the buffered documents belong to the previous segment
+            flushBatch();
             aggregationContext.setNextReader(context);
         }
 
@@ -170,6 +258,7 @@ public class AggregationPhase implements SearchPhase {
 
         @Override
         public void postCollection() throws IOException {
+            flushBatch();
             for (Aggregator collector : collectors) {
                 collector.postCollection();
             }
@@ -20,6 +20,8 @@ package org.elasticsearch.search.aggregations;
 
 import com.google.common.base.Predicate;
 import com.google.common.collect.Iterables;
+import org.elasticsearch.ElasticsearchIllegalArgumentException;
+import org.elasticsearch.common.ParseField;
 import org.elasticsearch.common.lease.Releasable;
 import org.elasticsearch.common.util.BigArrays;
 import org.elasticsearch.common.xcontent.XContentParser;
@@ -68,6 +70,47 @@ public abstract class Aggregator extends BucketCollector implements Releasable {
         MULTI_BUCKETS
     }
 
+    /**
+     * Defines when the sub-aggregators of a bucket aggregator collect the documents of its buckets.
+     */
+    public static enum SubAggCollectionMode {
+
+        /**
+         * The sub-aggregators collect the documents of all the buckets, as they are collected.
+         */
+        DEPTH_FIRST(new ParseField("depth_first")),
+
+        /**
+         * The documents and their buckets are recorded, and the sub-aggregators only collect the documents of the
+         * buckets that are kept once the collection is done.
+         */
+        BREADTH_FIRST(new ParseField("breadth_first"));
+
+        private final ParseField parseField;
+
+        SubAggCollectionMode(ParseField parseField) {
+            this.parseField = parseField;
+        }
+
+        public ParseField parseField() {
+            return parseField;
+        }
+
+        public static SubAggCollectionMode parse(String value) {
+            for (SubAggCollectionMode mode : values()) {
+                if (mode.parseField.match(value)) {
+                    return mode;
+                }
+            }
+            throw new ElasticsearchIllegalArgumentException("Unknown `collect_mode` [" + value + "], expected one of " + Arrays.toString(values()));
+        }
+
+        @Override
+        public String toString() {
+            return parseField.getPreferredName();
+        }
+    }
+
     protected final String name;
     protected final Aggregator parent;
     protected final AggregationContext context;
@@ -78,9 +121,10 @@ public abstract class Aggregator extends BucketCollector implements Releasable {
     protected final BucketAggregationMode bucketAggregationMode;
     protected final AggregatorFactories factories;
     protected final Aggregator[] subAggregators;
-    protected final BucketCollector collectableSugAggregators;
+    protected BucketCollector collectableSugAggregators;
 
     private Map<String, Aggregator> subAggregatorbyName;
+    private DeferringBucketCollector deferringCollector;
 
     /**
      * Constructs a new Aggregator.
@@ -107,6 +151,60 @@ public abstract class Aggregator extends BucketCollector implements Releasable {
         context.searchContext().addReleasable(this, Lifetime.PHASE);
     }
 
+    /**
+     * Called once the aggregator is created, before it collects any document: the sub-aggregators for which
+     * {@link #shouldDefer(Aggregator)} returns <tt>true</tt> don't collect the documents of the buckets until
+     * {@link #runDeferredCollections(long...)} is called.
+     */
+    final void preCollection() {
+        List<BucketCollector> collectors = new ArrayList<>();
+        List<BucketCollector> deferred = new ArrayList<>();
+        for (Aggregator subAggregator : Iterables.filter(Arrays.asList(subAggregators), COLLECTABLE_AGGREGATOR)) {
+            if (shouldDefer(subAggregator)) {
+                deferred.add(subAggregator);
+            } else {
+                collectors.add(subAggregator);
+            }
+        }
+        if (!deferred.isEmpty()) {
+            deferringCollector = new DeferringBucketCollector(replayCollector(BucketCollector.wrap(deferred)), context);
+            context.registerReaderContextAware(deferringCollector);
+            collectors.add(deferringCollector);
+            collectableSugAggregators = BucketCollector.wrap(collectors);
+        }
+    }
+
+    /**
+     * Returns whether the collection of the given sub-aggregator should be deferred until the buckets that are kept
+     * are known. Aggregators that defer sub-aggregators must call {@link #runDeferredCollections(long...)} before
+     * building the aggregations of the buckets.
+     */
+    protected boolean shouldDefer(Aggregator subAggregator) {
+        return false;
+    }
+
+    /**
+     * Returns the collector the recorded documents are replayed into. Aggregators that only know the buckets of the
+     * documents once the collection is done can wrap the deferred sub-aggregators in order to remap the recorded
+     * bucket ordinals.
+     */
+    protected BucketCollector replayCollector(BucketCollector deferred) {
+        return deferred;
+    }
+
+    /**
+     * Replays the collection of the documents of the given buckets into the deferred sub-aggregators, if any.
+     */
+    protected final void runDeferredCollections(long... bucketOrds) {
+        if (deferringCollector != null) {
+            try {
+                deferringCollector.replay(bucketOrds);
+            } catch (IOException e) {
+                throw new AggregationExecutionException("Failed to replay the deferred collection of [" + name + "]", e);
+            }
+        }
+    }
+
     /**
      * @return  The name of the aggregation.
      */
@@ -170,6 +268,16 @@ public abstract class Aggregator extends BucketCollector implements Releasable {
      */
     public abstract boolean shouldCollect();
 
+    /**
+     * @return  Whether this aggregator can be handed the documents of a segment in batches through
+     *          {@link #collect(int[], int, long)}. Since the scorer is not positioned on the collected documents anymore
+     *          by the time a batch is collected, this is only possible for aggregators that don't need scores. Defaults
+     *          to <tt>false</tt>.
+     */
+    public boolean collectsInBatches() {
+        return false;
+    }
+
     /**
      * Called after collection of all document is done.
      */
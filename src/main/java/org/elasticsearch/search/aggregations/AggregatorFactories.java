@@ -47,6 +47,7 @@ public class AggregatorFactories {
 
     private static Aggregator createAndRegisterContextAware(AggregationContext context, AggregatorFactory factory, Aggregator parent, long estimatedBucketsCount) {
         final Aggregator aggregator = factory.create(context, parent, estimatedBucketsCount);
+        aggregator.preCollection();
         if (aggregator.shouldCollect()) {
             context.registerReaderContextAware(aggregator);
         }
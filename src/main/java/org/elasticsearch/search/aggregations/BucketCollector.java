@@ -69,6 +69,13 @@ public abstract class BucketCollector implements ReaderContextAware {
                         }
                     }
 
+                    @Override
+                    public void collect(int[] docs, int count, long bucketOrdinal) throws IOException {
+                        for (BucketCollector collector : collectors) {
+                            collector.collect(docs, count, bucketOrdinal);
+                        }
+                    }
+
                     @Override
                     public void setNextReader(AtomicReaderContext reader) {
                         for (BucketCollector collector : collectors) {
@@ -100,6 +107,21 @@ public abstract class BucketCollector implements ReaderContextAware {
      */
     public abstract void collect(int docId, long bucketOrdinal) throws IOException;
 
+    /**
+     * Called during the query phase, to collect & aggregate a batch of documents of the current segment into the same bucket.
+     * The default implementation collects the documents one by one, collectors that can process them in bulk should override it.
+     *
+     * @param docs                  The documents to be collected/aggregated, in increasing order
+     * @param count                 The number of documents of the batch, only the first <tt>count</tt> entries of <tt>docs</tt> are used
+     * @param bucketOrdinal         The ordinal of the bucket the documents belong to, see {@link #collect(int, long)}
+     * @throws IOException
+     */
+    public void collect(int[] docs, int count, long bucketOrdinal) throws IOException {
+        for (int i = 0; i < count; i++) {
+            collect(docs[i], bucketOrdinal);
+        }
+    }
+
     /**
      * Post collection callback.
      */
@@ -0,0 +1,121 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.elasticsearch.search.aggregations;
+
+import org.apache.lucene.index.AtomicReaderContext;
+import org.apache.lucene.util.packed.AppendingDeltaPackedLongBuffer;
+import org.apache.lucene.util.packed.AppendingPackedLongBuffer;
+import org.elasticsearch.ElasticsearchIllegalStateException;
+import org.elasticsearch.search.aggregations.support.AggregationContext;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A {@link BucketCollector} that records the doc ids and bucket ordinals it collects, compactly and per segment,
+ * instead of passing them to the deferred collector. Once the aggregator that owns the buckets knows which ones
+ * survive, {@link #replay(long...)} passes the recorded documents of these buckets only to the deferred collector.
+ */
+class DeferringBucketCollector extends BucketCollector {
+
+    private final BucketCollector deferred;
+    private final AggregationContext context;
+    private final List<SegmentCollects> segments = new ArrayList<>();
+    private SegmentCollects current;
+    private boolean replayed;
+
+    DeferringBucketCollector(BucketCollector deferred, AggregationContext context) {
+        this.deferred = deferred;
+        this.context = context;
+    }
+
+    @Override
+    public void setNextReader(AtomicReaderContext reader) {
+        if (replayed) {
+            // the aggregation context sets the readers of the replay of other collectors
+            return;
+        }
+        if (current == null || current.readerContext != reader) {
+            finishSegment();
+            current = new SegmentCollects(reader);
+        }
+    }
+
+    @Override
+    public void collect(int docId, long bucketOrdinal) throws IOException {
+        current.docs.add(docId);
+        current.buckets.add(bucketOrdinal);
+    }
+
+    @Override
+    public void postCollection() throws IOException {
+        finishSegment();
+    }
+
+    private void finishSegment() {
+        if (current != null && current.docs.size() > 0) {
+            current.docs.freeze();
+            current.buckets.freeze();
+            segments.add(current);
+        }
+        current = null;
+    }
+
+    /**
+     * Passes the recorded documents of the given buckets to the deferred collector, and then calls its post collection
+     * callback. Can only be called once.
+     */
+    void replay(long... survivingBucketOrds) throws IOException {
+        if (replayed) {
+            throw new ElasticsearchIllegalStateException("The deferred collection has already been replayed");
+        }
+        replayed = true;
+        final long[] ords = Arrays.copyOf(survivingBucketOrds, survivingBucketOrds.length);
+        Arrays.sort(ords);
+        for (SegmentCollects segment : segments) {
+            // sets the reader of the value sources of the deferred collectors as well
+            context.setNextReader(segment.readerContext);
+            final long size = segment.docs.size();
+            for (long i = 0; i < size; i++) {
+                final long bucket = segment.buckets.get(i);
+                if (Arrays.binarySearch(ords, bucket) >= 0) {
+                    deferred.collect((int) segment.docs.get(i), bucket);
+                }
+            }
+        }
+        segments.clear();
+        deferred.postCollection();
+    }
+
+    private static class SegmentCollects {
+
+        final AtomicReaderContext readerContext;
+        // the documents are mostly collected in order, deltas compress them best
+        final AppendingDeltaPackedLongBuffer docs = new AppendingDeltaPackedLongBuffer();
+        final AppendingPackedLongBuffer buckets = new AppendingPackedLongBuffer();
+
+        SegmentCollects(AtomicReaderContext readerContext) {
+            this.readerContext = readerContext;
+        }
+    }
+}
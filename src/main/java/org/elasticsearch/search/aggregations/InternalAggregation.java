@@ -85,10 +85,16 @@ public abstract class InternalAggregation implements Aggregation, ToXContent, St
 
         private final List<InternalAggregation> aggregations;
         private final BigArrays bigArrays;
+        private final boolean finalReduce;
 
         public ReduceContext(List<InternalAggregation> aggregations, BigArrays bigArrays) {
+            this(aggregations, bigArrays, true);
+        }
+
+        public ReduceContext(List<InternalAggregation> aggregations, BigArrays bigArrays, boolean finalReduce) {
             this.aggregations = aggregations;
             this.bigArrays = bigArrays;
+            this.finalReduce = finalReduce;
         }
 
         public List<InternalAggregation> aggregations() {
@@ -98,6 +104,15 @@ public abstract class InternalAggregation implements Aggregation, ToXContent, St
         public BigArrays bigArrays() {
             return bigArrays;
         }
+
+        /**
+         * Whether this is the last reduce of the aggregations. A partial reduce only merges the shard results it is
+         * given, its result is reduced again with other shard results later on, so it must not trim buckets nor
+         * drop buckets that don't match the <tt>min_doc_count</tt> yet.
+         */
+        public boolean isFinalReduce() {
+            return finalReduce;
+        }
     }
 
 
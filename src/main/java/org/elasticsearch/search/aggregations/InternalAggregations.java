@@ -119,6 +119,18 @@ public class InternalAggregations implements Aggregations, ToXContent, Streamabl
      * @return                  The reduced addAggregation
      */
     public static InternalAggregations reduce(List<InternalAggregations> aggregationsList, BigArrays bigArrays) {
+        return reduce(aggregationsList, bigArrays, true);
+    }
+
+    /**
+     * Reduces the given lists of addAggregation, the result of a partial reduce (<tt>finalReduce</tt> set to
+     * <tt>false</tt>) can be reduced again along with other shard results.
+     *
+     * @param aggregationsList  A list of aggregation to reduce
+     * @param finalReduce       Whether this is the last reduce of the aggregations
+     * @return                  The reduced addAggregation
+     */
+    public static InternalAggregations reduce(List<InternalAggregations> aggregationsList, BigArrays bigArrays, boolean finalReduce) {
         if (aggregationsList.isEmpty()) {
             return null;
         }
@@ -143,7 +155,7 @@ public class InternalAggregations implements Aggregations, ToXContent, Streamabl
         for (Map.Entry<String, List<InternalAggregation>> entry : aggByName.entrySet()) {
             List<InternalAggregation> aggregations = entry.getValue();
             InternalAggregation first = aggregations.get(0); // the list can't be empty as it's created on demand
-            reducedAggregations.add(first.reduce(new InternalAggregation.ReduceContext(aggregations, bigArrays)));
+            reducedAggregations.add(first.reduce(new InternalAggregation.ReduceContext(aggregations, bigArrays, finalReduce)));
         }
         InternalAggregations result = aggregationsList.get(0);
         result.reset(reducedAggregations);
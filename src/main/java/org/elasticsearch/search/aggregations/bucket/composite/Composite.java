@@ -0,0 +1,61 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.elasticsearch.search.aggregations.bucket.composite;
+
+import org.elasticsearch.search.aggregations.bucket.MultiBucketsAggregation;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A {@code composite} aggregation. Defines a page of buckets, one per combination of the values of its sources, in
+ * the order of these values. The next page starts after the {@link #afterKey()} of this one.
+ */
+public interface Composite extends MultiBucketsAggregation {
+
+    /**
+     * A bucket associated with a combination of the values of the sources.
+     */
+    public static interface Bucket extends MultiBucketsAggregation.Bucket {
+
+        /**
+         * @return  The value of each source for this bucket, keyed by the name of the source
+         */
+        Map<String, Object> getKeyAsMap();
+
+    }
+
+    /**
+     * @return  The buckets of this page, in the order of their keys
+     */
+    @Override
+    List<Bucket> getBuckets();
+
+    @Override
+    Bucket getBucketByKey(String key);
+
+    /**
+     * @return  The key of the last bucket of this page, to pass as the {@code after} key of the request of the next
+     *          page, or {@code null} if this page is empty
+     */
+    Map<String, Object> afterKey();
+
+}
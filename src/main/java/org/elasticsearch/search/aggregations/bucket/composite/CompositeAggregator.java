@@ -0,0 +1,326 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.elasticsearch.search.aggregations.bucket.composite;
+
+import org.apache.lucene.index.AtomicReaderContext;
+import org.apache.lucene.util.ArrayUtil;
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.search.aggregations.*;
+import org.elasticsearch.search.aggregations.bucket.BucketsAggregator;
+import org.elasticsearch.search.aggregations.support.AggregationContext;
+import org.elasticsearch.search.aggregations.support.ValuesSource;
+import org.elasticsearch.search.aggregations.support.ValuesSourceConfig;
+import org.elasticsearch.search.aggregations.support.format.ValueParser;
+
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * Collects the first {@code size} combinations of the values of its sources that sort after the {@code after} key.
+ * Only these keys are kept while collecting, so the memory usage doesn't depend on the number of distinct keys. The
+ * sub-aggregations are deferred: the documents are recorded and only the ones of the final buckets are replayed.
+ */
+public class CompositeAggregator extends BucketsAggregator {
+
+    private static final Comparator<long[]> KEY_COMPARATOR = new Comparator<long[]>() {
+        @Override
+        public int compare(long[] key1, long[] key2) {
+            for (int i = 0; i < key1.length; i++) {
+                if (key1[i] != key2[i]) {
+                    return key1[i] < key2[i] ? -1 : 1;
+                }
+            }
+            return 0;
+        }
+    };
+
+    private final CompositeValuesSource[] sources;
+    private final String[] sourceNames;
+    private final boolean[] reverse;
+    private final int size;
+    private final long[] after;
+
+    // the first keys collected so far, mapped to their bucket ordinal
+    private final TreeMap<long[], Integer> keys = new TreeMap<>(KEY_COMPARATOR);
+    private final long[][] docValues;
+    private final int[] docValueCounts;
+    private final long[] spare;
+    private BucketCollector replayTarget;
+
+    public CompositeAggregator(String name, AggregatorFactories factories, CompositeValuesSource[] sources, boolean hasAfter, int size,
+                               AggregationContext aggregationContext, Aggregator parent) {
+        super(name, BucketAggregationMode.PER_BUCKET, factories, size, aggregationContext, parent);
+        this.sources = sources;
+        this.sourceNames = new String[sources.length];
+        this.reverse = new boolean[sources.length];
+        for (int i = 0; i < sources.length; i++) {
+            sourceNames[i] = sources[i].name;
+            reverse[i] = sources[i].reverse;
+        }
+        this.size = size;
+        this.after = hasAfter ? new long[sources.length] : null;
+        this.docValues = new long[sources.length][1];
+        this.docValueCounts = new int[sources.length];
+        this.spare = new long[sources.length];
+    }
+
+    @Override
+    public boolean shouldCollect() {
+        return true;
+    }
+
+    @Override
+    protected boolean shouldDefer(Aggregator subAggregator) {
+        // the bucket of a key may be reused by a smaller key, so the buckets are only known once the collection is done
+        return true;
+    }
+
+    @Override
+    protected BucketCollector replayCollector(final BucketCollector deferred) {
+        return new BucketCollector() {
+
+            @Override
+            public void collect(int doc, long bucketOrdinal) throws IOException {
+                replayTarget = deferred;
+                try {
+                    collectKeys(doc);
+                } finally {
+                    replayTarget = null;
+                }
+            }
+
+            @Override
+            public void setNextReader(AtomicReaderContext reader) {
+                // the aggregation context moves the sub-aggregators and this aggregator to the replayed segment
+            }
+
+            @Override
+            public void postCollection() throws IOException {
+                deferred.postCollection();
+            }
+        };
+    }
+
+    @Override
+    public void setNextReader(AtomicReaderContext reader) {
+        for (int i = 0; i < sources.length; i++) {
+            sources[i].setNextReader();
+            if (after != null) {
+                after[i] = sources[i].afterValue();
+            }
+        }
+    }
+
+    @Override
+    public void collect(int doc, long owningBucketOrdinal) throws IOException {
+        assert owningBucketOrdinal == 0 : "composite aggregator can only be a top level aggregator";
+        if (collectKeys(doc)) {
+            // records the document for the deferred sub-aggregators, the bucket is resolved when it is replayed
+            collectBucketNoCounts(doc, 0);
+        }
+    }
+
+    /**
+     * Collects every combination of the values of the document, returns whether one of them is among the first keys.
+     */
+    private boolean collectKeys(int doc) throws IOException {
+        for (int i = 0; i < sources.length; i++) {
+            final int valueCount = sources[i].setDocument(doc);
+            if (valueCount == 0) {
+                // documents need a value for every source
+                return false;
+            }
+            docValues[i] = ArrayUtil.grow(docValues[i], valueCount);
+            for (int j = 0; j < valueCount; j++) {
+                docValues[i][j] = sources[i].nextValue();
+            }
+            docValueCounts[i] = valueCount;
+        }
+        return collectKeys(doc, 0);
+    }
+
+    private boolean collectKeys(int doc, int source) throws IOException {
+        boolean collected = false;
+        for (int i = 0; i < docValueCounts[source]; i++) {
+            spare[source] = docValues[source][i];
+            if (source == sources.length - 1) {
+                collected |= collectKey(doc);
+            } else {
+                collected |= collectKeys(doc, source + 1);
+            }
+        }
+        return collected;
+    }
+
+    private boolean collectKey(int doc) throws IOException {
+        if (replayTarget != null) {
+            final Integer bucketOrd = keys.get(spare);
+            if (bucketOrd != null) {
+                replayTarget.collect(doc, bucketOrd);
+            }
+            return bucketOrd != null;
+        }
+        if (after != null && KEY_COMPARATOR.compare(spare, after) <= 0) {
+            return false;
+        }
+        Integer bucketOrd = keys.get(spare);
+        if (bucketOrd != null) {
+            incrementBucketDocCount(1, bucketOrd);
+            return true;
+        }
+        if (keys.size() < size) {
+            bucketOrd = keys.size();
+            keys.put(spare.clone(), bucketOrd);
+            incrementBucketDocCount(1, bucketOrd);
+            return true;
+        }
+        final Map.Entry<long[], Integer> last = keys.lastEntry();
+        if (KEY_COMPARATOR.compare(spare, last.getKey()) > 0) {
+            // the last key can only decrease, so the documents of this key will never be needed
+            return false;
+        }
+        // evicts the last key and reuses its array and its bucket
+        keys.pollLastEntry();
+        final long[] key = last.getKey();
+        System.arraycopy(spare, 0, key, 0, spare.length);
+        keys.put(key, last.getValue());
+        getDocCounts().set(last.getValue(), 1);
+        return true;
+    }
+
+    @Override
+    public InternalComposite buildAggregation(long owningBucketOrdinal) {
+        assert owningBucketOrdinal == 0 : "composite aggregator can only be a top level aggregator";
+        runDeferredCollections(0);
+        final List<InternalComposite.Bucket> buckets = new ArrayList<>(keys.size());
+        for (Map.Entry<long[], Integer> entry : keys.entrySet()) {
+            final Object[] key = new Object[sources.length];
+            for (int i = 0; i < sources.length; i++) {
+                key[i] = sources[i].key(entry.getKey()[i]);
+            }
+            final long bucketOrd = entry.getValue();
+            buckets.add(new InternalComposite.Bucket(sourceNames, key, bucketDocCount(bucketOrd), bucketAggregations(bucketOrd)));
+        }
+        return new InternalComposite(name, sourceNames, reverse, size, buckets);
+    }
+
+    @Override
+    public InternalComposite buildEmptyAggregation() {
+        return new InternalComposite(name, sourceNames, reverse, size, Collections.<InternalComposite.Bucket>emptyList());
+    }
+
+    /**
+     * The configuration of a source of a {@code composite} aggregation.
+     */
+    static class SourceConfig {
+
+        final String name;
+        final ValuesSourceConfig<ValuesSource> config;
+        final boolean reverse;
+
+        SourceConfig(String name, ValuesSourceConfig<ValuesSource> config, boolean reverse) {
+            this.name = name;
+            this.config = config;
+            this.reverse = reverse;
+        }
+    }
+
+    public static class Factory extends AggregatorFactory {
+
+        private final List<SourceConfig> sources;
+        private final int size;
+        private final Map<String, Object> after;
+
+        Factory(String name, List<SourceConfig> sources, int size, Map<String, Object> after) {
+            super(name, InternalComposite.TYPE.name());
+            this.sources = sources;
+            this.size = size;
+            this.after = after;
+        }
+
+        @Override
+        public Aggregator create(AggregationContext context, Aggregator parent, long expectedBucketsCount) {
+            if (parent != null) {
+                throw new AggregationExecutionException("Aggregation [" + parent.name() + "] cannot have a composite " +
+                        "sub-aggregation [" + name + "]. Composite aggregations can only be defined as top level aggregations");
+            }
+            for (SourceConfig source : sources) {
+                if (source.config.unmapped()) {
+                    // documents need a value for every source: no bucket can be created on this shard
+                    return createUnmapped(context);
+                }
+            }
+            final CompositeValuesSource[] valuesSources = new CompositeValuesSource[sources.size()];
+            for (int i = 0; i < valuesSources.length; i++) {
+                final SourceConfig source = sources.get(i);
+                valuesSources[i] = valuesSource(context, source, after == null ? null : after.get(source.name));
+            }
+            return new CompositeAggregator(name, factories, valuesSources, after != null, size, context, parent);
+        }
+
+        private Aggregator createUnmapped(AggregationContext context) {
+            final String[] sourceNames = new String[sources.size()];
+            final boolean[] reverse = new boolean[sources.size()];
+            for (int i = 0; i < sourceNames.length; i++) {
+                sourceNames[i] = sources.get(i).name;
+                reverse[i] = sources.get(i).reverse;
+            }
+            final InternalAggregation aggregation = new InternalComposite(name, sourceNames, reverse, size,
+                    Collections.<InternalComposite.Bucket>emptyList());
+            return new NonCollectingAggregator(name, context, null) {
+                @Override
+                public InternalAggregation buildEmptyAggregation() {
+                    return aggregation;
+                }
+            };
+        }
+
+        private CompositeValuesSource valuesSource(AggregationContext context, SourceConfig source, Object after) {
+            final ValuesSource valuesSource = context.valuesSource(source.config, 0);
+            final ValueParser parser = source.config.parser();
+            if (valuesSource instanceof ValuesSource.Numeric) {
+                final ValuesSource.Numeric numeric = (ValuesSource.Numeric) valuesSource;
+                if (numeric.isFloatingPoint()) {
+                    double afterValue = 0;
+                    if (after instanceof Number) {
+                        afterValue = ((Number) after).doubleValue();
+                    } else if (after != null) {
+                        afterValue = parser != null ? parser.parseDouble(after.toString(), context.searchContext()) : Double.parseDouble(after.toString());
+                    }
+                    return new CompositeValuesSource.Doubles(source.name, source.reverse, numeric, afterValue);
+                }
+                long afterValue = 0;
+                if (after instanceof Number) {
+                    afterValue = ((Number) after).longValue();
+                } else if (after != null) {
+                    afterValue = parser != null ? parser.parseLong(after.toString(), context.searchContext()) : Long.parseLong(after.toString());
+                }
+                return new CompositeValuesSource.Longs(source.name, source.reverse, numeric, afterValue);
+            }
+            if (valuesSource instanceof ValuesSource.Bytes.WithOrdinals.FieldData) {
+                return new CompositeValuesSource.GlobalOrdinals(source.name, source.reverse, (ValuesSource.Bytes.WithOrdinals.FieldData) valuesSource,
+                        after == null ? null : new BytesRef(after.toString()));
+            }
+            throw new AggregationExecutionException("Source [" + source.name + "] of composite aggregation [" + name +
+                    "] can only be defined on a string or numeric field");
+        }
+    }
+}
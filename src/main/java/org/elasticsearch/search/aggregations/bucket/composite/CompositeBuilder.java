@@ -0,0 +1,107 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.elasticsearch.search.aggregations.bucket.composite;
+
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.search.aggregations.AggregationBuilder;
+import org.elasticsearch.search.builder.SearchSourceBuilderException;
+import org.elasticsearch.search.sort.SortOrder;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Builds a {@code composite} aggregation, which pages through the combinations of the values of its sources.
+ */
+public class CompositeBuilder extends AggregationBuilder<CompositeBuilder> {
+
+    private final List<String> sourceNames = new ArrayList<>();
+    private final List<String> fields = new ArrayList<>();
+    private final List<SortOrder> orders = new ArrayList<>();
+    private int size = CompositeParser.DEFAULT_SIZE;
+    private Map<String, Object> after;
+
+    public CompositeBuilder(String name) {
+        super(name, InternalComposite.TYPE.name());
+    }
+
+    /**
+     * Adds a source of the keys of the buckets, sorted in ascending order.
+     */
+    public CompositeBuilder source(String name, String field) {
+        return source(name, field, SortOrder.ASC);
+    }
+
+    /**
+     * Adds a source of the keys of the buckets, sorted in the given order. The buckets are sorted by the values of
+     * their sources, in the order the sources are added.
+     */
+    public CompositeBuilder source(String name, String field, SortOrder order) {
+        sourceNames.add(name);
+        fields.add(field);
+        orders.add(order);
+        return this;
+    }
+
+    /**
+     * Sets the number of buckets of a page.
+     */
+    public CompositeBuilder size(int size) {
+        this.size = size;
+        return this;
+    }
+
+    /**
+     * Sets the key the buckets of the page sort after, usually the {@link Composite#afterKey()} of the previous page.
+     */
+    public CompositeBuilder after(Map<String, Object> after) {
+        this.after = after;
+        return this;
+    }
+
+    @Override
+    protected XContentBuilder internalXContent(XContentBuilder builder, Params params) throws IOException {
+        if (sourceNames.isEmpty()) {
+            throw new SearchSourceBuilderException("at least one source must be set on composite aggregation [" + name + "]");
+        }
+        builder.startObject();
+        builder.startArray("sources");
+        for (int i = 0; i < sourceNames.size(); i++) {
+            builder.startObject().startObject(sourceNames.get(i)).startObject("terms");
+            builder.field("field", fields.get(i));
+            if (orders.get(i) != SortOrder.ASC) {
+                builder.field("order", orders.get(i).toString());
+            }
+            builder.endObject().endObject().endObject();
+        }
+        builder.endArray();
+        if (size != CompositeParser.DEFAULT_SIZE) {
+            builder.field("size", size);
+        }
+        if (after != null) {
+            builder.field("after", after);
+        }
+        return builder.endObject();
+    }
+
+}
@@ -0,0 +1,162 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.elasticsearch.search.aggregations.bucket.composite;
+
+import org.elasticsearch.common.xcontent.XContentParser;
+import org.elasticsearch.search.SearchParseException;
+import org.elasticsearch.search.aggregations.Aggregator;
+import org.elasticsearch.search.aggregations.AggregatorFactory;
+import org.elasticsearch.search.aggregations.support.ValuesSource;
+import org.elasticsearch.search.aggregations.support.ValuesSourceConfig;
+import org.elasticsearch.search.aggregations.support.ValuesSourceParser;
+import org.elasticsearch.search.internal.SearchContext;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Parses the {@code composite} aggregation request and creates a {@link CompositeAggregator.Factory}.
+ */
+public class CompositeParser implements Aggregator.Parser {
+
+    public static final int DEFAULT_SIZE = 10;
+
+    @Override
+    public String type() {
+        return InternalComposite.TYPE.name();
+    }
+
+    @Override
+    public AggregatorFactory parse(String aggregationName, XContentParser parser, SearchContext context) throws IOException {
+
+        int size = DEFAULT_SIZE;
+        List<CompositeAggregator.SourceConfig> sources = null;
+        Map<String, Object> after = null;
+
+        XContentParser.Token token;
+        String currentFieldName = null;
+        while ((token = parser.nextToken()) != XContentParser.Token.END_OBJECT) {
+            if (token == XContentParser.Token.FIELD_NAME) {
+                currentFieldName = parser.currentName();
+            } else if (token == XContentParser.Token.VALUE_NUMBER) {
+                if ("size".equals(currentFieldName)) {
+                    size = parser.intValue();
+                } else {
+                    throw new SearchParseException(context, "Unknown key for a " + token + " in [" + aggregationName + "]: [" + currentFieldName + "].");
+                }
+            } else if (token == XContentParser.Token.START_ARRAY) {
+                if ("sources".equals(currentFieldName)) {
+                    sources = new ArrayList<>();
+                    while ((token = parser.nextToken()) != XContentParser.Token.END_ARRAY) {
+                        if (token != XContentParser.Token.START_OBJECT) {
+                            throw new SearchParseException(context, "Unexpected token " + token + " for [sources] in [" + aggregationName + "].");
+                        }
+                        parseSource(aggregationName, parser, context, sources);
+                    }
+                } else {
+                    throw new SearchParseException(context, "Unknown key for a " + token + " in [" + aggregationName + "]: [" + currentFieldName + "].");
+                }
+            } else if (token == XContentParser.Token.START_OBJECT) {
+                if ("after".equals(currentFieldName)) {
+                    after = parser.map();
+                } else {
+                    throw new SearchParseException(context, "Unknown key for a " + token + " in [" + aggregationName + "]: [" + currentFieldName + "].");
+                }
+            } else {
+                throw new SearchParseException(context, "Unexpected token " + token + " in [" + aggregationName + "].");
+            }
+        }
+
+        if (sources == null || sources.isEmpty()) {
+            throw new SearchParseException(context, "Missing [sources] for composite aggregation [" + aggregationName + "]");
+        }
+        if (size <= 0) {
+            throw new SearchParseException(context, "[size] must be greater than 0 in composite aggregation [" + aggregationName + "]");
+        }
+        if (after != null) {
+            if (after.size() != sources.size()) {
+                throw new SearchParseException(context, "[after] key of composite aggregation [" + aggregationName + "] must have a value for each source");
+            }
+            for (CompositeAggregator.SourceConfig source : sources) {
+                if (after.get(source.name) == null) {
+                    throw new SearchParseException(context, "Missing value of source [" + source.name + "] in the [after] key of composite aggregation [" + aggregationName + "]");
+                }
+            }
+        }
+
+        return new CompositeAggregator.Factory(aggregationName, sources, size, after);
+    }
+
+    private void parseSource(String aggregationName, XContentParser parser, SearchContext context,
+                             List<CompositeAggregator.SourceConfig> sources) throws IOException {
+        XContentParser.Token token = parser.nextToken();
+        if (token != XContentParser.Token.FIELD_NAME) {
+            throw new SearchParseException(context, "Unexpected token " + token + " for [sources] in [" + aggregationName + "].");
+        }
+        final String sourceName = parser.currentName();
+        for (CompositeAggregator.SourceConfig source : sources) {
+            if (source.name.equals(sourceName)) {
+                throw new SearchParseException(context, "Duplicate source [" + sourceName + "] in composite aggregation [" + aggregationName + "]");
+            }
+        }
+        if (parser.nextToken() != XContentParser.Token.START_OBJECT || parser.nextToken() != XContentParser.Token.FIELD_NAME
+                || !"terms".equals(parser.currentName()) || parser.nextToken() != XContentParser.Token.START_OBJECT) {
+            throw new SearchParseException(context, "Source [" + sourceName + "] of composite aggregation [" + aggregationName + "] must be a [terms] source");
+        }
+
+        ValuesSourceParser<ValuesSource> vsParser = ValuesSourceParser.any(aggregationName, InternalComposite.TYPE, context)
+                .scriptable(false)
+                .formattable(true)
+                .build();
+        boolean reverse = false;
+        String currentFieldName = null;
+        while ((token = parser.nextToken()) != XContentParser.Token.END_OBJECT) {
+            if (token == XContentParser.Token.FIELD_NAME) {
+                currentFieldName = parser.currentName();
+            } else if (vsParser.token(currentFieldName, token, parser)) {
+                continue;
+            } else if (token == XContentParser.Token.VALUE_STRING && "order".equals(currentFieldName)) {
+                String dir = parser.text();
+                if ("asc".equalsIgnoreCase(dir)) {
+                    reverse = false;
+                } else if ("desc".equalsIgnoreCase(dir)) {
+                    reverse = true;
+                } else {
+                    throw new SearchParseException(context, "Unknown order direction [" + dir + "] for source [" + sourceName + "] in composite aggregation [" + aggregationName + "]");
+                }
+            } else {
+                throw new SearchParseException(context, "Unknown key for a " + token + " in source [" + sourceName + "] of [" + aggregationName + "]: [" + currentFieldName + "].");
+            }
+        }
+        // closes the source object and the object that holds it
+        if (parser.nextToken() != XContentParser.Token.END_OBJECT || parser.nextToken() != XContentParser.Token.END_OBJECT) {
+            throw new SearchParseException(context, "Source [" + sourceName + "] of composite aggregation [" + aggregationName + "] must only define a [terms] source");
+        }
+        ValuesSourceConfig<ValuesSource> config = vsParser.config();
+        if (!config.valid()) {
+            throw new SearchParseException(context, "Missing [field] for source [" + sourceName + "] of composite aggregation [" + aggregationName + "]");
+        }
+        sources.add(new CompositeAggregator.SourceConfig(sourceName, config, reverse));
+    }
+
+}
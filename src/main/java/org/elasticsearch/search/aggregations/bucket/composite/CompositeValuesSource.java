@@ -0,0 +1,237 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.elasticsearch.search.aggregations.bucket.composite;
+
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.NumericUtils;
+import org.elasticsearch.index.fielddata.BytesValues;
+import org.elasticsearch.index.fielddata.DoubleValues;
+import org.elasticsearch.index.fielddata.LongValues;
+import org.elasticsearch.index.fielddata.ordinals.Ordinals;
+import org.elasticsearch.search.aggregations.support.ValuesSource;
+
+/**
+ * A source of the keys of a {@code composite} aggregation. The values of the documents are exposed as longs that sort
+ * like the values themselves, global ordinals for strings, so that the keys of a shard can be compared without
+ * looking up any term.
+ */
+abstract class CompositeValuesSource {
+
+    final String name;
+    final boolean reverse;
+
+    CompositeValuesSource(String name, boolean reverse) {
+        this.name = name;
+        this.reverse = reverse;
+    }
+
+    /**
+     * Called when the values source moved to the next segment.
+     */
+    abstract void setNextReader();
+
+    /**
+     * Sets the current document and returns its number of values.
+     */
+    abstract int setDocument(int doc);
+
+    /**
+     * Returns the next value of the current document, reversed when the source is sorted in descending order.
+     */
+    final long nextValue() {
+        final long value = doNextValue();
+        return reverse ? ~value : value;
+    }
+
+    /**
+     * Returns the value the keys of the page must be strictly greater than, or rather a value that sorts in between
+     * existing values if the after value doesn't exist in this shard.
+     */
+    final long afterValue() {
+        final long value = doAfterValue();
+        return reverse ? ~value : value;
+    }
+
+    /**
+     * Returns the value of the bucket key of the given value.
+     */
+    final Object key(long value) {
+        return doKey(reverse ? ~value : value);
+    }
+
+    abstract long doNextValue();
+
+    abstract long doAfterValue();
+
+    abstract Object doKey(long value);
+
+    /**
+     * A source of string values, which relies on global ordinals. The ordinals are doubled so that a missing after
+     * term can sort in between two existing terms.
+     */
+    static class GlobalOrdinals extends CompositeValuesSource {
+
+        private final ValuesSource.Bytes.WithOrdinals.FieldData valuesSource;
+        private final BytesRef after;
+        private BytesValues.WithOrdinals globalValues;
+        private Ordinals.Docs globalOrdinals;
+        private boolean afterResolved;
+        private long afterValue;
+
+        GlobalOrdinals(String name, boolean reverse, ValuesSource.Bytes.WithOrdinals.FieldData valuesSource, BytesRef after) {
+            super(name, reverse);
+            this.valuesSource = valuesSource;
+            this.after = after;
+            valuesSource.setNeedsGlobalOrdinals(true);
+        }
+
+        @Override
+        void setNextReader() {
+            globalValues = valuesSource.globalBytesValues();
+            globalOrdinals = globalValues.ordinals();
+            if (after != null && !afterResolved) {
+                // global ordinals are the same for all the segments
+                afterValue = lookupAfter();
+                afterResolved = true;
+            }
+        }
+
+        private long lookupAfter() {
+            long low = Ordinals.MIN_ORDINAL;
+            long high = globalOrdinals.getMaxOrd() - 1;
+            while (low <= high) {
+                final long mid = (low + high) >>> 1;
+                final int cmp = globalValues.getValueByOrd(mid).compareTo(after);
+                if (cmp < 0) {
+                    low = mid + 1;
+                } else if (cmp > 0) {
+                    high = mid - 1;
+                } else {
+                    return mid << 1;
+                }
+            }
+            // the after term sorts right before the term with the ordinal low
+            return (low << 1) - 1;
+        }
+
+        @Override
+        int setDocument(int doc) {
+            return globalOrdinals.setDocument(doc);
+        }
+
+        @Override
+        long doNextValue() {
+            return globalOrdinals.nextOrd() << 1;
+        }
+
+        @Override
+        long doAfterValue() {
+            return afterValue;
+        }
+
+        @Override
+        Object doKey(long value) {
+            return BytesRef.deepCopyOf(globalValues.getValueByOrd(value >>> 1));
+        }
+    }
+
+    /**
+     * A source of integer values.
+     */
+    static class Longs extends CompositeValuesSource {
+
+        private final ValuesSource.Numeric valuesSource;
+        private final long after;
+        private LongValues values;
+
+        Longs(String name, boolean reverse, ValuesSource.Numeric valuesSource, long after) {
+            super(name, reverse);
+            this.valuesSource = valuesSource;
+            this.after = after;
+        }
+
+        @Override
+        void setNextReader() {
+            values = valuesSource.longValues();
+        }
+
+        @Override
+        int setDocument(int doc) {
+            return values.setDocument(doc);
+        }
+
+        @Override
+        long doNextValue() {
+            return values.nextValue();
+        }
+
+        @Override
+        long doAfterValue() {
+            return after;
+        }
+
+        @Override
+        Object doKey(long value) {
+            return value;
+        }
+    }
+
+    /**
+     * A source of floating point values, exposed as sortable longs.
+     */
+    static class Doubles extends CompositeValuesSource {
+
+        private final ValuesSource.Numeric valuesSource;
+        private final double after;
+        private DoubleValues values;
+
+        Doubles(String name, boolean reverse, ValuesSource.Numeric valuesSource, double after) {
+            super(name, reverse);
+            this.valuesSource = valuesSource;
+            this.after = after;
+        }
+
+        @Override
+        void setNextReader() {
+            values = valuesSource.doubleValues();
+        }
+
+        @Override
+        int setDocument(int doc) {
+            return values.setDocument(doc);
+        }
+
+        @Override
+        long doNextValue() {
+            return NumericUtils.doubleToSortableLong(values.nextValue());
+        }
+
+        @Override
+        long doAfterValue() {
+            return NumericUtils.doubleToSortableLong(after);
+        }
+
+        @Override
+        Object doKey(long value) {
+            return NumericUtils.sortableLongToDouble(value);
+        }
+    }
+}
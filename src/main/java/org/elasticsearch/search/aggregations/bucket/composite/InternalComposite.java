@@ -0,0 +1,368 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.elasticsearch.search.aggregations.bucket.composite;
+
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.CollectionUtil;
+import org.elasticsearch.ElasticsearchIllegalStateException;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.text.StringText;
+import org.elasticsearch.common.text.Text;
+import org.elasticsearch.common.util.BigArrays;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentBuilderString;
+import org.elasticsearch.search.aggregations.AggregationStreams;
+import org.elasticsearch.search.aggregations.Aggregations;
+import org.elasticsearch.search.aggregations.InternalAggregation;
+import org.elasticsearch.search.aggregations.InternalAggregations;
+
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * A page of the buckets of a {@code composite} aggregation. The keys of the buckets are held as an array with one
+ * value per source, either a {@link BytesRef}, a {@link Long} or a {@link Double}.
+ */
+public class InternalComposite extends InternalAggregation implements Composite {
+
+    public static final Type TYPE = new Type("composite");
+
+    public static final AggregationStreams.Stream STREAM = new AggregationStreams.Stream() {
+        @Override
+        public InternalComposite readResult(StreamInput in) throws IOException {
+            InternalComposite buckets = new InternalComposite();
+            buckets.readFrom(in);
+            return buckets;
+        }
+    };
+
+    public static void registerStreams() {
+        AggregationStreams.registerStream(STREAM, TYPE.stream());
+    }
+
+    private static final byte BYTES_VALUE = 0;
+    private static final byte LONG_VALUE = 1;
+    private static final byte DOUBLE_VALUE = 2;
+
+    static class Bucket implements Composite.Bucket {
+
+        private final String[] sourceNames;
+        final Object[] key;
+        long docCount;
+        InternalAggregations aggregations;
+
+        Bucket(String[] sourceNames, Object[] key, long docCount, InternalAggregations aggregations) {
+            this.sourceNames = sourceNames;
+            this.key = key;
+            this.docCount = docCount;
+            this.aggregations = aggregations;
+        }
+
+        @Override
+        public Map<String, Object> getKeyAsMap() {
+            Map<String, Object> map = new LinkedHashMap<>(sourceNames.length);
+            for (int i = 0; i < sourceNames.length; i++) {
+                map.put(sourceNames[i], keyValue(key[i]));
+            }
+            return map;
+        }
+
+        @Override
+        public String getKey() {
+            return getKeyAsMap().toString();
+        }
+
+        @Override
+        public Text getKeyAsText() {
+            return new StringText(getKey());
+        }
+
+        @Override
+        public long getDocCount() {
+            return docCount;
+        }
+
+        @Override
+        public Aggregations getAggregations() {
+            return aggregations;
+        }
+
+        Bucket reduce(List<Bucket> buckets, ReduceContext reduceContext) {
+            if (buckets.size() == 1) {
+                // we still need to reduce the sub aggs
+                Bucket bucket = buckets.get(0);
+                if (reduceContext.isFinalReduce()) {
+                    bucket.aggregations.reduce(reduceContext.bigArrays());
+                }
+                return bucket;
+            }
+            Bucket reduced = null;
+            List<InternalAggregations> aggregationsList = new ArrayList<>(buckets.size());
+            for (Bucket bucket : buckets) {
+                if (reduced == null) {
+                    reduced = bucket;
+                } else {
+                    reduced.docCount += bucket.docCount;
+                }
+                aggregationsList.add(bucket.aggregations);
+            }
+            reduced.aggregations = InternalAggregations.reduce(aggregationsList, reduceContext.bigArrays(), reduceContext.isFinalReduce());
+            return reduced;
+        }
+    }
+
+    /**
+     * Compares the keys of buckets value by value, following the order of each source.
+     */
+    static class KeyComparator implements Comparator<Object[]> {
+
+        private final boolean[] reverse;
+
+        KeyComparator(boolean[] reverse) {
+            this.reverse = reverse;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public int compare(Object[] key1, Object[] key2) {
+            for (int i = 0; i < key1.length; i++) {
+                int cmp = ((Comparable<Object>) key1[i]).compareTo(key2[i]);
+                if (cmp != 0) {
+                    return reverse[i] ? -cmp : cmp;
+                }
+            }
+            return 0;
+        }
+    }
+
+    /**
+     * Wraps a bucket key so that it can be used as a hash key.
+     */
+    private static class HashKey {
+
+        private final Object[] key;
+        private final int hashCode;
+
+        HashKey(Object[] key) {
+            this.key = key;
+            this.hashCode = Arrays.hashCode(key);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof HashKey && Arrays.equals(key, ((HashKey) obj).key);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+
+    private String[] sourceNames;
+    private boolean[] reverse;
+    private int size;
+    private List<Bucket> buckets;
+    private Map<String, Bucket> bucketMap;
+
+    InternalComposite() {
+    } // for serialization
+
+    public InternalComposite(String name, String[] sourceNames, boolean[] reverse, int size, List<Bucket> buckets) {
+        super(name);
+        this.sourceNames = sourceNames;
+        this.reverse = reverse;
+        this.size = size;
+        this.buckets = buckets;
+    }
+
+    @Override
+    public Type type() {
+        return TYPE;
+    }
+
+    @Override
+    public List<Composite.Bucket> getBuckets() {
+        Object o = buckets;
+        return (List<Composite.Bucket>) o;
+    }
+
+    @Override
+    public Composite.Bucket getBucketByKey(String key) {
+        if (bucketMap == null) {
+            bucketMap = new HashMap<>(buckets.size());
+            for (Bucket bucket : buckets) {
+                bucketMap.put(bucket.getKey(), bucket);
+            }
+        }
+        return bucketMap.get(key);
+    }
+
+    @Override
+    public Map<String, Object> afterKey() {
+        return buckets.isEmpty() ? null : buckets.get(buckets.size() - 1).getKeyAsMap();
+    }
+
+    @Override
+    public InternalComposite reduce(ReduceContext reduceContext) {
+        List<InternalAggregation> aggregations = reduceContext.aggregations();
+        if (aggregations.size() == 1) {
+            InternalComposite composite = (InternalComposite) aggregations.get(0);
+            if (reduceContext.isFinalReduce()) {
+                composite.reduceBuckets(reduceContext.bigArrays());
+            }
+            return composite;
+        }
+
+        // every shard returns the first buckets after the requested key, so the first buckets of all the shards are
+        // complete: trimming is fine even on a partial reduce
+        Map<HashKey, List<Bucket>> sameKeyBuckets = new HashMap<>();
+        for (InternalAggregation aggregation : aggregations) {
+            for (Bucket bucket : ((InternalComposite) aggregation).buckets) {
+                HashKey key = new HashKey(bucket.key);
+                List<Bucket> existingBuckets = sameKeyBuckets.get(key);
+                if (existingBuckets == null) {
+                    existingBuckets = new ArrayList<>(aggregations.size());
+                    sameKeyBuckets.put(key, existingBuckets);
+                }
+                existingBuckets.add(bucket);
+            }
+        }
+        List<List<Bucket>> ordered = new ArrayList<>(sameKeyBuckets.values());
+        final KeyComparator comparator = new KeyComparator(reverse);
+        CollectionUtil.timSort(ordered, new Comparator<List<Bucket>>() {
+            @Override
+            public int compare(List<Bucket> o1, List<Bucket> o2) {
+                return comparator.compare(o1.get(0).key, o2.get(0).key);
+            }
+        });
+        List<Bucket> reducedBuckets = new ArrayList<>(Math.min(size, ordered.size()));
+        for (List<Bucket> sameKey : ordered.subList(0, Math.min(size, ordered.size()))) {
+            reducedBuckets.add(sameKey.get(0).reduce(sameKey, reduceContext));
+        }
+        return new InternalComposite(name, sourceNames, reverse, size, reducedBuckets);
+    }
+
+    private void reduceBuckets(BigArrays bigArrays) {
+        for (Bucket bucket : buckets) {
+            bucket.aggregations.reduce(bigArrays);
+        }
+    }
+
+    @Override
+    public void readFrom(StreamInput in) throws IOException {
+        this.name = in.readString();
+        this.size = in.readVInt();
+        final int numSources = in.readVInt();
+        this.sourceNames = new String[numSources];
+        this.reverse = new boolean[numSources];
+        for (int i = 0; i < numSources; i++) {
+            sourceNames[i] = in.readString();
+            reverse[i] = in.readBoolean();
+        }
+        final int numBuckets = in.readVInt();
+        List<Bucket> buckets = new ArrayList<>(numBuckets);
+        for (int i = 0; i < numBuckets; i++) {
+            Object[] key = new Object[numSources];
+            for (int j = 0; j < numSources; j++) {
+                key[j] = readKeyValue(in);
+            }
+            buckets.add(new Bucket(sourceNames, key, in.readVLong(), InternalAggregations.readAggregations(in)));
+        }
+        this.buckets = buckets;
+        this.bucketMap = null;
+    }
+
+    @Override
+    public void writeTo(StreamOutput out) throws IOException {
+        out.writeString(name);
+        out.writeVInt(size);
+        out.writeVInt(sourceNames.length);
+        for (int i = 0; i < sourceNames.length; i++) {
+            out.writeString(sourceNames[i]);
+            out.writeBoolean(reverse[i]);
+        }
+        out.writeVInt(buckets.size());
+        for (Bucket bucket : buckets) {
+            for (Object value : bucket.key) {
+                writeKeyValue(value, out);
+            }
+            out.writeVLong(bucket.docCount);
+            bucket.aggregations.writeTo(out);
+        }
+    }
+
+    private static Object readKeyValue(StreamInput in) throws IOException {
+        final byte type = in.readByte();
+        switch (type) {
+            case BYTES_VALUE:
+                return in.readBytesRef();
+            case LONG_VALUE:
+                return in.readLong();
+            case DOUBLE_VALUE:
+                return in.readDouble();
+            default:
+                throw new ElasticsearchIllegalStateException("Unknown composite key value type [" + type + "]");
+        }
+    }
+
+    private static void writeKeyValue(Object value, StreamOutput out) throws IOException {
+        if (value instanceof BytesRef) {
+            out.writeByte(BYTES_VALUE);
+            out.writeBytesRef((BytesRef) value);
+        } else if (value instanceof Long) {
+            out.writeByte(LONG_VALUE);
+            out.writeLong((Long) value);
+        } else {
+            out.writeByte(DOUBLE_VALUE);
+            out.writeDouble((Double) value);
+        }
+    }
+
+    private static Object keyValue(Object value) {
+        return value instanceof BytesRef ? ((BytesRef) value).utf8ToString() : value;
+    }
+
+    @Override
+    public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
+        builder.startObject(name);
+        if (!buckets.isEmpty()) {
+            builder.field(Fields.AFTER_KEY, afterKey());
+        }
+        builder.startArray(CommonFields.BUCKETS);
+        for (Bucket bucket : buckets) {
+            builder.startObject();
+            builder.field(CommonFields.KEY, bucket.getKeyAsMap());
+            builder.field(CommonFields.DOC_COUNT, bucket.docCount);
+            bucket.aggregations.toXContentInternal(builder, params);
+            builder.endObject();
+        }
+        builder.endArray();
+        builder.endObject();
+        return builder;
+    }
+
+    static final class Fields {
+        static final XContentBuilderString AFTER_KEY = new XContentBuilderString("after_key");
+    }
+
+}
@@ -105,11 +105,13 @@ public class InternalGeoHashGrid extends InternalAggregation implements GeoHashG
             return 0;
         }
 
-        public Bucket reduce(List<? extends Bucket> buckets, BigArrays bigArrays) {
+        public Bucket reduce(List<? extends Bucket> buckets, ReduceContext reduceContext) {
             if (buckets.size() == 1) {
                 // we still need to reduce the sub aggs
                 Bucket bucket = buckets.get(0);
-                bucket.aggregations.reduce(bigArrays);
+                if (reduceContext.isFinalReduce()) {
+                    bucket.aggregations.reduce(reduceContext.bigArrays());
+                }
                 return bucket;
             }
             Bucket reduced = null;
@@ -122,7 +124,7 @@ public class InternalGeoHashGrid extends InternalAggregation implements GeoHashG
                 }
                 aggregationsList.add(bucket.aggregations);
             }
-            reduced.aggregations = InternalAggregations.reduce(aggregationsList, bigArrays);
+            reduced.aggregations = InternalAggregations.reduce(aggregationsList, reduceContext.bigArrays(), reduceContext.isFinalReduce());
             return reduced;
         }
 
@@ -183,7 +185,9 @@ public class InternalGeoHashGrid extends InternalAggregation implements GeoHashG
         List<InternalAggregation> aggregations = reduceContext.aggregations();
         if (aggregations.size() == 1) {
             InternalGeoHashGrid grid = (InternalGeoHashGrid) aggregations.get(0);
-            grid.reduceAndTrimBuckets(reduceContext.bigArrays());
+            if (reduceContext.isFinalReduce()) {
+                grid.reduceAndTrimBuckets(reduceContext.bigArrays());
+            }
             return grid;
         }
         InternalGeoHashGrid reduced = null;
@@ -213,11 +217,12 @@ public class InternalGeoHashGrid extends InternalAggregation implements GeoHashG
         }
 
         // TODO: would it be better to sort the backing array buffer of the hppc map directly instead of using a PQ?
-        final int size = (int) Math.min(requiredSize, buckets.size());
+        // a partial reduce keeps all the cells, the top cells are only known once all shards are reduced
+        final int size = (int) Math.min(reduceContext.isFinalReduce() ? requiredSize : Integer.MAX_VALUE, buckets.size());
         BucketPriorityQueue ordered = new BucketPriorityQueue(size);
         for (LongObjectPagedHashMap.Cursor<List<Bucket>> cursor : buckets) {
             List<Bucket> sameCellBuckets = cursor.value;
-            ordered.insertWithOverflow(sameCellBuckets.get(0).reduce(sameCellBuckets, reduceContext.bigArrays()));
+            ordered.insertWithOverflow(sameCellBuckets.get(0).reduce(sameCellBuckets, reduceContext));
         }
         buckets.close();
         Bucket[] list = new Bucket[ordered.size()];
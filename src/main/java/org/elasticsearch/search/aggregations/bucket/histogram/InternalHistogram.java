@@ -28,7 +28,6 @@ import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.rounding.Rounding;
 import org.elasticsearch.common.text.StringText;
 import org.elasticsearch.common.text.Text;
-import org.elasticsearch.common.util.BigArrays;
 import org.elasticsearch.common.util.LongObjectPagedHashMap;
 import org.elasticsearch.common.xcontent.XContentBuilder;
 import org.elasticsearch.search.aggregations.AggregationStreams;
@@ -104,11 +103,13 @@ public class InternalHistogram<B extends InternalHistogram.Bucket> extends Inter
             return aggregations;
         }
 
-        <B extends Bucket> B reduce(List<B> buckets, BigArrays bigArrays) {
+        <B extends Bucket> B reduce(List<B> buckets, ReduceContext reduceContext) {
             if (buckets.size() == 1) {
                 // we only need to reduce the sub aggregations
                 Bucket bucket = buckets.get(0);
-                bucket.aggregations.reduce(bigArrays);
+                if (reduceContext.isFinalReduce()) {
+                    bucket.aggregations.reduce(reduceContext.bigArrays());
+                }
                 return (B) bucket;
             }
             List<InternalAggregations> aggregations = new ArrayList<>(buckets.size());
@@ -121,7 +122,7 @@ public class InternalHistogram<B extends InternalHistogram.Bucket> extends Inter
                 }
                 aggregations.add((InternalAggregations) bucket.getAggregations());
             }
-            reduced.aggregations = InternalAggregations.reduce(aggregations, bigArrays);
+            reduced.aggregations = InternalAggregations.reduce(aggregations, reduceContext.bigArrays(), reduceContext.isFinalReduce());
             return (B) reduced;
         }
 
@@ -263,6 +264,10 @@ public class InternalHistogram<B extends InternalHistogram.Bucket> extends Inter
 
             InternalHistogram<B> histo = (InternalHistogram<B>) aggregations.get(0);
 
+            if (!reduceContext.isFinalReduce()) {
+                return histo;
+            }
+
             if (minDocCount == 1) {
                 for (B bucket : histo.buckets) {
                     bucket.aggregations.reduce(reduceContext.bigArrays());
@@ -365,15 +370,15 @@ public class InternalHistogram<B extends InternalHistogram.Bucket> extends Inter
         List<B> reducedBuckets = new ArrayList<>((int) bucketsByKey.size());
         for (LongObjectPagedHashMap.Cursor<List<B>> cursor : bucketsByKey) {
             List<B> sameTermBuckets = cursor.value;
-            B bucket = sameTermBuckets.get(0).reduce(sameTermBuckets, reduceContext.bigArrays());
-            if (bucket.getDocCount() >= minDocCount) {
+            B bucket = sameTermBuckets.get(0).reduce(sameTermBuckets, reduceContext);
+            if (bucket.getDocCount() >= minDocCount || !reduceContext.isFinalReduce()) {
                 reducedBuckets.add(bucket);
             }
         }
         bucketsByKey.close();
 
-        // adding empty buckets in needed
-        if (minDocCount == 0) {
+        // adding empty buckets in needed, a partial reduce leaves it to the final reduce
+        if (minDocCount == 0 && reduceContext.isFinalReduce()) {
             CollectionUtil.introSort(reducedBuckets, order.asc ? InternalOrder.KEY_ASC.comparator() : InternalOrder.KEY_DESC.comparator());
             List<B> list = order.asc ? reducedBuckets : Lists.reverse(reducedBuckets);
             B lastBucket = null;
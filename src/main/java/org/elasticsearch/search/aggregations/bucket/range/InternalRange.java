@@ -24,7 +24,6 @@ import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.text.StringText;
 import org.elasticsearch.common.text.Text;
-import org.elasticsearch.common.util.BigArrays;
 import org.elasticsearch.common.xcontent.XContentBuilder;
 import org.elasticsearch.search.aggregations.AggregationStreams;
 import org.elasticsearch.search.aggregations.Aggregations;
@@ -103,11 +102,13 @@ public class InternalRange<B extends InternalRange.Bucket> extends InternalAggre
             return aggregations;
         }
 
-        Bucket reduce(List<Bucket> ranges, BigArrays bigArrays) {
+        Bucket reduce(List<Bucket> ranges, ReduceContext reduceContext) {
             if (ranges.size() == 1) {
                 // we stil need to call reduce on all the sub aggregations
                 Bucket bucket = ranges.get(0);
-                bucket.aggregations.reduce(bigArrays);
+                if (reduceContext.isFinalReduce()) {
+                    bucket.aggregations.reduce(reduceContext.bigArrays());
+                }
                 return bucket;
             }
             Bucket reduced = null;
@@ -120,7 +121,7 @@ public class InternalRange<B extends InternalRange.Bucket> extends InternalAggre
                 }
                 aggregationsList.add(range.aggregations);
             }
-            reduced.aggregations = InternalAggregations.reduce(aggregationsList, bigArrays);
+            reduced.aggregations = InternalAggregations.reduce(aggregationsList, reduceContext.bigArrays(), reduceContext.isFinalReduce());
             return reduced;
         }
 
@@ -216,8 +217,10 @@ public class InternalRange<B extends InternalRange.Bucket> extends InternalAggre
         List<InternalAggregation> aggregations = reduceContext.aggregations();
         if (aggregations.size() == 1) {
             InternalRange<B> reduced = (InternalRange<B>) aggregations.get(0);
-            for (B bucket : reduced.ranges) {
-                bucket.aggregations.reduce(reduceContext.bigArrays());
+            if (reduceContext.isFinalReduce()) {
+                for (B bucket : reduced.ranges) {
+                    bucket.aggregations.reduce(reduceContext.bigArrays());
+                }
             }
             return reduced;
         }
@@ -250,7 +253,7 @@ public class InternalRange<B extends InternalRange.Bucket> extends InternalAggre
         InternalRange reduced = (InternalRange) aggregations.get(0);
         int i = 0;
         for (List<Bucket> sameRangeList : rangesList) {
-            reduced.ranges.set(i++, (sameRangeList.get(0)).reduce(sameRangeList, reduceContext.bigArrays()));
+            reduced.ranges.set(i++, (sameRangeList.get(0)).reduce(sameRangeList, reduceContext));
         }
         return reduced;
     }
@@ -50,7 +50,7 @@ public class GlobalOrdinalsSignificantTermsAggregator extends GlobalOrdinalsStri
                                                     SignificantTermsAggregatorFactory termsAggFactory) {
 
         super(name, factories, valuesSource, estimatedBucketCount, maxOrd, null, requiredSize, shardSize,
-                minDocCount, aggregationContext, parent);
+                minDocCount, aggregationContext, parent, SubAggCollectionMode.DEPTH_FIRST);
         this.termsAggFactory = termsAggFactory;
         this.shardMinDocCount = shardMinDocCount;
     }
@@ -21,7 +21,6 @@ package org.elasticsearch.search.aggregations.bucket.significant;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import org.elasticsearch.common.io.stream.Streamable;
-import org.elasticsearch.common.util.BigArrays;
 import org.elasticsearch.common.xcontent.ToXContent;
 import org.elasticsearch.search.aggregations.Aggregations;
 import org.elasticsearch.search.aggregations.InternalAggregation;
@@ -138,7 +137,7 @@ public abstract class InternalSignificantTerms extends InternalAggregation imple
             return aggregations;
         }
 
-        public Bucket reduce(List<? extends Bucket> buckets, BigArrays bigArrays) {
+        public Bucket reduce(List<? extends Bucket> buckets, ReduceContext reduceContext) {
             if (buckets.size() == 1) {
                 return buckets.get(0);
             }
@@ -155,7 +154,7 @@ public abstract class InternalSignificantTerms extends InternalAggregation imple
                 aggregationsList.add(bucket.aggregations);
             }
             assert reduced.subsetDf <= reduced.supersetDf;
-            reduced.aggregations = InternalAggregations.reduce(aggregationsList, bigArrays);
+            reduced.aggregations = InternalAggregations.reduce(aggregationsList, reduceContext.bigArrays(), reduceContext.isFinalReduce());
             return reduced;
         }
 
@@ -202,7 +201,9 @@ public abstract class InternalSignificantTerms extends InternalAggregation imple
         List<InternalAggregation> aggregations = reduceContext.aggregations();
         if (aggregations.size() == 1) {
             InternalSignificantTerms terms = (InternalSignificantTerms) aggregations.get(0);
-            terms.trimExcessEntries();
+            if (reduceContext.isFinalReduce()) {
+                terms.trimExcessEntries();
+            }
             return terms;
         }
         InternalSignificantTerms reduced = null;
@@ -249,12 +250,13 @@ public abstract class InternalSignificantTerms extends InternalAggregation imple
             return (UnmappedSignificantTerms) aggregations.get(0);
         }
 
-        final int size = Math.min(requiredSize, buckets.size());
+        // a partial reduce keeps all the buckets, the significant ones are only known once all shards are reduced
+        final int size = Math.min(reduceContext.isFinalReduce() ? requiredSize : Integer.MAX_VALUE, buckets.size());
         BucketSignificancePriorityQueue ordered = new BucketSignificancePriorityQueue(size);
         for (Map.Entry<String, List<Bucket>> entry : buckets.entrySet()) {
             List<Bucket> sameTermBuckets = entry.getValue();
-            final Bucket b = sameTermBuckets.get(0).reduce(sameTermBuckets, reduceContext.bigArrays());
-            if ((b.score > 0) && (b.subsetDf >= minDocCount)) {
+            final Bucket b = sameTermBuckets.get(0).reduce(sameTermBuckets, reduceContext);
+            if ((b.score > 0 && b.subsetDf >= minDocCount) || !reduceContext.isFinalReduce()) {
                 ordered.insertWithOverflow(b);
             }
         }
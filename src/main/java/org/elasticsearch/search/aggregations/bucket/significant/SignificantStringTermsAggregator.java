@@ -53,7 +53,7 @@ public class SignificantStringTermsAggregator extends StringTermsAggregator {
             SignificantTermsAggregatorFactory termsAggFactory) {
 
         super(name, factories, valuesSource, estimatedBucketCount, null, requiredSize, shardSize,
-                minDocCount, includeExclude, aggregationContext, parent);
+                minDocCount, includeExclude, aggregationContext, parent, SubAggCollectionMode.DEPTH_FIRST);
         this.termsAggFactory = termsAggFactory;
         this.shardMinDocCount = shardMinDocCount;
     }
@@ -22,12 +22,11 @@ package org.elasticsearch.search.aggregations.bucket.terms;
 import org.elasticsearch.search.aggregations.Aggregator;
 import org.elasticsearch.search.aggregations.AggregatorFactories;
 import org.elasticsearch.search.aggregations.InternalAggregation;
-import org.elasticsearch.search.aggregations.bucket.BucketsAggregator;
 import org.elasticsearch.search.aggregations.support.AggregationContext;
 
 import java.util.Collections;
 
-abstract class AbstractStringTermsAggregator extends BucketsAggregator {
+abstract class AbstractStringTermsAggregator extends TermsAggregator {
 
     protected final InternalOrder order;
     protected final int requiredSize;
@@ -36,8 +35,8 @@ abstract class AbstractStringTermsAggregator extends BucketsAggregator {
 
     public AbstractStringTermsAggregator(String name, AggregatorFactories factories,
             long estimatedBucketsCount, AggregationContext context, Aggregator parent,
-            InternalOrder order, int requiredSize, int shardSize, long minDocCount) {
-        super(name, BucketAggregationMode.PER_BUCKET, factories, estimatedBucketsCount, context, parent);
+            InternalOrder order, int requiredSize, int shardSize, long minDocCount, SubAggCollectionMode collectMode) {
+        super(name, factories, estimatedBucketsCount, context, parent, order, collectMode);
         this.order = InternalOrder.validate(order, this);
         this.requiredSize = requiredSize;
         this.shardSize = shardSize;
@@ -108,7 +108,9 @@ public class DoubleTerms extends InternalTerms {
         List<InternalAggregation> aggregations = reduceContext.aggregations();
         if (aggregations.size() == 1) {
             InternalTerms terms = (InternalTerms) aggregations.get(0);
-            terms.trimExcessEntries(reduceContext.bigArrays());
+            if (reduceContext.isFinalReduce()) {
+                terms.trimExcessEntries(reduceContext.bigArrays());
+            }
             return terms;
         }
         InternalTerms reduced = null;
@@ -141,12 +143,13 @@ public class DoubleTerms extends InternalTerms {
         }
 
         // TODO: would it be better to sort the backing array buffer of hppc map directly instead of using a PQ?
-        final int size = (int) Math.min(requiredSize, buckets.size());
+        // a partial reduce keeps all the buckets, sorted, as the top buckets are only known once all shards are reduced
+        final int size = (int) Math.min(reduceContext.isFinalReduce() ? requiredSize : Integer.MAX_VALUE, buckets.size());
         BucketPriorityQueue ordered = new BucketPriorityQueue(size, order.comparator(null));
         for (DoubleObjectPagedHashMap.Cursor<List<DoubleTerms.Bucket>> cursor : buckets) {
             List<DoubleTerms.Bucket> sameTermBuckets = cursor.value;
-            final InternalTerms.Bucket b = sameTermBuckets.get(0).reduce(sameTermBuckets, reduceContext.bigArrays());
-            if (b.getDocCount() >= minDocCount) {
+            final InternalTerms.Bucket b = sameTermBuckets.get(0).reduce(sameTermBuckets, reduceContext);
+            if (b.getDocCount() >= minDocCount || !reduceContext.isFinalReduce()) {
                 ordered.insertWithOverflow(b);
             }
         }
@@ -25,7 +25,6 @@ import org.elasticsearch.common.util.LongHash;
 import org.elasticsearch.index.fielddata.DoubleValues;
 import org.elasticsearch.search.aggregations.Aggregator;
 import org.elasticsearch.search.aggregations.AggregatorFactories;
-import org.elasticsearch.search.aggregations.bucket.BucketsAggregator;
 import org.elasticsearch.search.aggregations.bucket.terms.support.BucketPriorityQueue;
 import org.elasticsearch.search.aggregations.support.AggregationContext;
 import org.elasticsearch.search.aggregations.support.ValuesSource;
@@ -39,7 +38,7 @@ import java.util.Collections;
 /**
  *
  */
-public class DoubleTermsAggregator extends BucketsAggregator {
+public class DoubleTermsAggregator extends TermsAggregator {
 
     private final InternalOrder order;
     private final int requiredSize;
@@ -51,8 +50,9 @@ public class DoubleTermsAggregator extends BucketsAggregator {
     private DoubleValues values;
 
     public DoubleTermsAggregator(String name, AggregatorFactories factories, ValuesSource.Numeric valuesSource, @Nullable ValueFormat format, long estimatedBucketCount,
-                               InternalOrder order, int requiredSize, int shardSize, long minDocCount, AggregationContext aggregationContext, Aggregator parent) {
-        super(name, BucketAggregationMode.PER_BUCKET, factories, estimatedBucketCount, aggregationContext, parent);
+                               InternalOrder order, int requiredSize, int shardSize, long minDocCount, AggregationContext aggregationContext, Aggregator parent,
+                               SubAggCollectionMode collectMode) {
+        super(name, factories, estimatedBucketCount, aggregationContext, parent, order, collectMode);
         this.valuesSource = valuesSource;
         this.formatter = format != null ? format.formatter() : null;
         this.order = InternalOrder.validate(order, this);
@@ -124,10 +124,9 @@ public class DoubleTermsAggregator extends BucketsAggregator {
 
         final InternalTerms.Bucket[] list = new InternalTerms.Bucket[ordered.size()];
         for (int i = ordered.size() - 1; i >= 0; --i) {
-            final DoubleTerms.Bucket bucket = (DoubleTerms.Bucket) ordered.pop();
-            bucket.aggregations = bucketAggregations(bucket.bucketOrd);
-            list[i] = bucket;
+            list[i] = (DoubleTerms.Bucket) ordered.pop();
         }
+        buildSubAggregations(list);
         return new DoubleTerms(name, order, formatter, requiredSize, minDocCount, Arrays.asList(list));
     }
 
@@ -58,10 +58,12 @@ public abstract class InternalTerms extends InternalAggregation implements Terms
             return aggregations;
         }
 
-        public Bucket reduce(List<? extends Bucket> buckets, BigArrays bigArrays) {
+        public Bucket reduce(List<? extends Bucket> buckets, ReduceContext reduceContext) {
             if (buckets.size() == 1) {
                 Bucket bucket = buckets.get(0);
-                bucket.aggregations.reduce(bigArrays);
+                if (reduceContext.isFinalReduce()) {
+                    bucket.aggregations.reduce(reduceContext.bigArrays());
+                }
                 return bucket;
             }
             Bucket reduced = null;
@@ -74,7 +76,7 @@ public abstract class InternalTerms extends InternalAggregation implements Terms
                 }
                 aggregationsList.add(bucket.aggregations);
             }
-            reduced.aggregations = InternalAggregations.reduce(aggregationsList, bigArrays);
+            reduced.aggregations = InternalAggregations.reduce(aggregationsList, reduceContext.bigArrays(), reduceContext.isFinalReduce());
             return reduced;
         }
     }
@@ -117,7 +119,9 @@ public abstract class InternalTerms extends InternalAggregation implements Terms
         List<InternalAggregation> aggregations = reduceContext.aggregations();
         if (aggregations.size() == 1) {
             InternalTerms terms = (InternalTerms) aggregations.get(0);
-            terms.trimExcessEntries(reduceContext.bigArrays());
+            if (reduceContext.isFinalReduce()) {
+                terms.trimExcessEntries(reduceContext.bigArrays());
+            }
             return terms;
         }
 
@@ -150,12 +154,13 @@ public abstract class InternalTerms extends InternalAggregation implements Terms
             return (UnmappedTerms) aggregations.get(0);
         }
 
-        final int size = Math.min(requiredSize, buckets.size());
+        // a partial reduce keeps all the buckets, sorted, as the top buckets are only known once all shards are reduced
+        final int size = Math.min(reduceContext.isFinalReduce() ? requiredSize : Integer.MAX_VALUE, buckets.size());
         BucketPriorityQueue ordered = new BucketPriorityQueue(size, order.comparator(null));
         for (Map.Entry<Text, List<Bucket>> entry : buckets.entrySet()) {
             List<Bucket> sameTermBuckets = entry.getValue();
-            final Bucket b = sameTermBuckets.get(0).reduce(sameTermBuckets, reduceContext.bigArrays());
-            if (b.docCount >= minDocCount) {
+            final Bucket b = sameTermBuckets.get(0).reduce(sameTermBuckets, reduceContext);
+            if (b.docCount >= minDocCount || !reduceContext.isFinalReduce()) {
                 ordered.insertWithOverflow(b);
             }
         }
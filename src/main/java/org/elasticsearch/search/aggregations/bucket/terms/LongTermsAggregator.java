@@ -26,7 +26,6 @@ import org.elasticsearch.index.fielddata.LongValues;
 import org.elasticsearch.search.aggregations.Aggregator;
 import org.elasticsearch.search.aggregations.AggregatorFactories;
 import org.elasticsearch.search.aggregations.InternalAggregation;
-import org.elasticsearch.search.aggregations.bucket.BucketsAggregator;
 import org.elasticsearch.search.aggregations.bucket.terms.support.BucketPriorityQueue;
 import org.elasticsearch.search.aggregations.support.AggregationContext;
 import org.elasticsearch.search.aggregations.support.ValuesSource;
@@ -40,7 +39,7 @@ import java.util.Collections;
 /**
  *
  */
-public class LongTermsAggregator extends BucketsAggregator {
+public class LongTermsAggregator extends TermsAggregator {
 
     private final InternalOrder order;
     protected final int requiredSize;
@@ -52,8 +51,9 @@ public class LongTermsAggregator extends BucketsAggregator {
     private LongValues values;
 
     public LongTermsAggregator(String name, AggregatorFactories factories, ValuesSource.Numeric valuesSource, @Nullable ValueFormat format, long estimatedBucketCount,
-                               InternalOrder order, int requiredSize, int shardSize, long minDocCount, AggregationContext aggregationContext, Aggregator parent) {
-        super(name, BucketAggregationMode.PER_BUCKET, factories, estimatedBucketCount, aggregationContext, parent);
+                               InternalOrder order, int requiredSize, int shardSize, long minDocCount, AggregationContext aggregationContext, Aggregator parent,
+                               SubAggCollectionMode collectMode) {
+        super(name, factories, estimatedBucketCount, aggregationContext, parent, order, collectMode);
         this.valuesSource = valuesSource;
         this.formatter = format != null ? format.formatter() : null;
         this.order = InternalOrder.validate(order, this);
@@ -124,10 +124,9 @@ public class LongTermsAggregator extends BucketsAggregator {
 
         final InternalTerms.Bucket[] list = new InternalTerms.Bucket[ordered.size()];
         for (int i = ordered.size() - 1; i >= 0; --i) {
-            final LongTerms.Bucket bucket = (LongTerms.Bucket) ordered.pop();
-            bucket.aggregations = bucketAggregations(bucket.bucketOrd);
-            list[i] = bucket;
+            list[i] = (LongTerms.Bucket) ordered.pop();
         }
+        buildSubAggregations(list);
         return new LongTerms(name, order, formatter, requiredSize, minDocCount, Arrays.asList(list));
     }
 
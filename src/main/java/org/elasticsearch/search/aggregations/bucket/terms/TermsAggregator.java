@@ -0,0 +1,63 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.elasticsearch.search.aggregations.bucket.terms;
+
+import org.elasticsearch.search.aggregations.Aggregator;
+import org.elasticsearch.search.aggregations.AggregatorFactories;
+import org.elasticsearch.search.aggregations.bucket.BucketsAggregator;
+import org.elasticsearch.search.aggregations.support.AggregationContext;
+
+/**
+ * Base class of the terms aggregators. With the {@link SubAggCollectionMode#BREADTH_FIRST} collection mode, the
+ * sub-aggregators only collect the documents of the top buckets, except for the sub-aggregator the buckets are
+ * ordered by, which needs to collect all of them.
+ */
+abstract class TermsAggregator extends BucketsAggregator {
+
+    private final SubAggCollectionMode collectMode;
+    private final String orderAggregation;
+
+    TermsAggregator(String name, AggregatorFactories factories, long estimatedBucketsCount, AggregationContext context,
+                    Aggregator parent, InternalOrder order, SubAggCollectionMode collectMode) {
+        super(name, BucketAggregationMode.PER_BUCKET, factories, estimatedBucketsCount, context, parent);
+        this.collectMode = collectMode;
+        this.orderAggregation = order instanceof InternalOrder.Aggregation ? ((InternalOrder.Aggregation) order).path().tokens[0].name : null;
+    }
+
+    @Override
+    protected boolean shouldDefer(Aggregator subAggregator) {
+        return collectMode == SubAggCollectionMode.BREADTH_FIRST && !subAggregator.name().equals(orderAggregation);
+    }
+
+    /**
+     * Builds the aggregations of the given buckets, after the deferred sub-aggregators collected their documents.
+     */
+    protected final void buildSubAggregations(InternalTerms.Bucket[] buckets) {
+        final long[] bucketOrds = new long[buckets.length];
+        for (int i = 0; i < buckets.length; i++) {
+            bucketOrds[i] = buckets[i].bucketOrd;
+        }
+        runDeferredCollections(bucketOrds);
+        for (InternalTerms.Bucket bucket : buckets) {
+            bucket.aggregations = bucket.docCount == 0 ? bucketEmptyAggregations() : bucketAggregations(bucket.bucketOrd);
+        }
+    }
+}
@@ -20,6 +20,7 @@
 package org.elasticsearch.search.aggregations.bucket.terms;
 
 import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.search.aggregations.Aggregator.SubAggCollectionMode;
 import org.elasticsearch.search.aggregations.ValuesSourceAggregationBuilder;
 
 import java.io.IOException;
@@ -41,6 +42,7 @@ public class TermsBuilder extends ValuesSourceAggregationBuilder<TermsBuilder> {
     private String excludePattern;
     private int excludeFlags;
     private String executionHint;
+    private SubAggCollectionMode collectMode;
 
     public TermsBuilder(String name) {
         super(name, "terms");
@@ -136,6 +138,15 @@ public class TermsBuilder extends ValuesSourceAggregationBuilder<TermsBuilder> {
         return this;
     }
 
+    /**
+     * Defines when the sub-aggregations collect the documents of the buckets: as they are collected, or once the top
+     * buckets are known.
+     */
+    public TermsBuilder collectMode(SubAggCollectionMode collectMode) {
+        this.collectMode = collectMode;
+        return this;
+    }
+
     @Override
     protected XContentBuilder doInternalXContent(XContentBuilder builder, Params params) throws IOException {
         if (size >=0) {
@@ -177,6 +188,9 @@ public class TermsBuilder extends ValuesSourceAggregationBuilder<TermsBuilder> {
         if (executionHint != null) {
             builder.field("execution_hint", executionHint);
         }
+        if (collectMode != null) {
+            builder.field("collect_mode", collectMode.parseField().getPreferredName());
+        }
         return builder;
     }
 }
@@ -21,6 +21,7 @@ package org.elasticsearch.search.aggregations.bucket.terms;
 import org.elasticsearch.common.xcontent.XContentParser;
 import org.elasticsearch.search.SearchParseException;
 import org.elasticsearch.search.aggregations.Aggregator;
+import org.elasticsearch.search.aggregations.Aggregator.SubAggCollectionMode;
 import org.elasticsearch.search.aggregations.AggregatorFactory;
 import org.elasticsearch.search.aggregations.bucket.terms.support.IncludeExclude;
 import org.elasticsearch.search.aggregations.support.ValuesSourceParser;
@@ -48,6 +49,7 @@ public class TermsParser implements Aggregator.Parser {
 
         String executionHint = null;
         long minDocCount = 1;
+        SubAggCollectionMode collectMode = SubAggCollectionMode.DEPTH_FIRST;
 
         ValuesSourceParser vsParser = ValuesSourceParser.any(aggregationName, StringTerms.TYPE, context)
                 .requiresSortedValues(true)
@@ -69,6 +71,8 @@ public class TermsParser implements Aggregator.Parser {
             } else if (token == XContentParser.Token.VALUE_STRING) {
                 if ("execution_hint".equals(currentFieldName) || "executionHint".equals(currentFieldName)) {
                     executionHint = parser.text();
+                } else if ("collect_mode".equals(currentFieldName) || "collectMode".equals(currentFieldName)) {
+                    collectMode = SubAggCollectionMode.parse(parser.text());
                 } else {
                     throw new SearchParseException(context, "Unknown key for a " + token + " in [" + aggregationName + "]: [" + currentFieldName + "].");
                 }
@@ -123,7 +127,7 @@ public class TermsParser implements Aggregator.Parser {
 
         IncludeExclude includeExclude = incExcParser.includeExclude();
         InternalOrder order = resolveOrder(orderKey, orderAsc);
-        return new TermsAggregatorFactory(aggregationName, vsParser.config(), order, requiredSize, shardSize, minDocCount, includeExclude, executionHint);
+        return new TermsAggregatorFactory(aggregationName, vsParser.config(), order, requiredSize, shardSize, minDocCount, includeExclude, executionHint, collectMode);
     }
 
     static InternalOrder resolveOrder(String key, boolean asc) {
@@ -18,6 +18,8 @@
  */
 package org.elasticsearch.search.aggregations.metrics;
 
+import org.apache.lucene.util.ArrayUtil;
+import org.apache.lucene.util.RamUsageEstimator;
 import org.elasticsearch.search.aggregations.Aggregator;
 import org.elasticsearch.search.aggregations.AggregatorFactories;
 import org.elasticsearch.search.aggregations.support.AggregationContext;
@@ -27,10 +29,22 @@ import org.elasticsearch.search.aggregations.support.AggregationContext;
  */
 public abstract class MetricsAggregator extends Aggregator {
 
+    private double[] valuesBuffer;
+
     private MetricsAggregator(String name, long estimatedBucketsCount, AggregationContext context, Aggregator parent) {
         super(name, BucketAggregationMode.MULTI_BUCKETS, AggregatorFactories.EMPTY, estimatedBucketsCount, context, parent);
     }
 
+    /**
+     * Return a buffer that can hold at least <tt>size</tt> values, to read the values of a batch of documents into.
+     */
+    protected final double[] valuesBuffer(int size) {
+        if (valuesBuffer == null || valuesBuffer.length < size) {
+            valuesBuffer = new double[ArrayUtil.oversize(size, RamUsageEstimator.NUM_BYTES_DOUBLE)];
+        }
+        return valuesBuffer;
+    }
+
     public static abstract class SingleValue extends MetricsAggregator {
 
         protected SingleValue(String name, long estimatedBucketsCount, AggregationContext context, Aggregator parent) {
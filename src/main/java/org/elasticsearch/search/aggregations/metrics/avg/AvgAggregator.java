@@ -78,6 +78,30 @@ public class AvgAggregator extends MetricsAggregator.SingleValue {
         sums.increment(owningBucketOrdinal, sum);
     }
 
+    @Override
+    public boolean collectsInBatches() {
+        return valuesSource != null && !valuesSource.needsScores();
+    }
+
+    @Override
+    public void collect(int[] docs, int count, long owningBucketOrdinal) throws IOException {
+        if (values.isMultiValued()) {
+            super.collect(docs, count, owningBucketOrdinal);
+            return;
+        }
+        counts = bigArrays.grow(counts, owningBucketOrdinal + 1);
+        sums = bigArrays.grow(sums, owningBucketOrdinal + 1);
+
+        final double[] buffer = valuesBuffer(count);
+        final int valueCount = values.fill(docs, count, buffer);
+        counts.increment(owningBucketOrdinal, valueCount);
+        double sum = 0;
+        for (int i = 0; i < valueCount; i++) {
+            sum += buffer[i];
+        }
+        sums.increment(owningBucketOrdinal, sum);
+    }
+
     @Override
     public double metric(long owningBucketOrd) {
         return valuesSource == null ? Double.NaN : sums.get(owningBucketOrd) / counts.get(owningBucketOrd);
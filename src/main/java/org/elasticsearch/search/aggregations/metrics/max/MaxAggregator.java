@@ -64,11 +64,7 @@ public class MaxAggregator extends MetricsAggregator.SingleValue {
 
     @Override
     public void collect(int doc, long owningBucketOrdinal) throws IOException {
-        if (owningBucketOrdinal >= maxes.size()) {
-            long from = maxes.size();
-            maxes = bigArrays.grow(maxes, owningBucketOrdinal + 1);
-            maxes.fill(from, maxes.size(), Double.NEGATIVE_INFINITY);
-        }
+        grow(owningBucketOrdinal);
 
         final int valueCount = values.setDocument(doc);
         double max = maxes.get(owningBucketOrdinal);
@@ -78,6 +74,36 @@ public class MaxAggregator extends MetricsAggregator.SingleValue {
         maxes.set(owningBucketOrdinal, max);
     }
 
+    @Override
+    public boolean collectsInBatches() {
+        return valuesSource != null && !valuesSource.needsScores();
+    }
+
+    @Override
+    public void collect(int[] docs, int count, long owningBucketOrdinal) throws IOException {
+        if (values.isMultiValued()) {
+            super.collect(docs, count, owningBucketOrdinal);
+            return;
+        }
+        grow(owningBucketOrdinal);
+
+        final double[] buffer = valuesBuffer(count);
+        final int valueCount = values.fill(docs, count, buffer);
+        double max = maxes.get(owningBucketOrdinal);
+        for (int i = 0; i < valueCount; i++) {
+            max = Math.max(max, buffer[i]);
+        }
+        maxes.set(owningBucketOrdinal, max);
+    }
+
+    private void grow(long owningBucketOrdinal) {
+        if (owningBucketOrdinal >= maxes.size()) {
+            long from = maxes.size();
+            maxes = bigArrays.grow(maxes, owningBucketOrdinal + 1);
+            maxes.fill(from, maxes.size(), Double.NEGATIVE_INFINITY);
+        }
+    }
+
     @Override
     public double metric(long owningBucketOrd) {
         return valuesSource == null ? Double.NEGATIVE_INFINITY : maxes.get(owningBucketOrd);
@@ -68,13 +68,38 @@ public class MinAggregator extends MetricsAggregator.SingleValue {
             return;
         }
 
+        grow(owningBucketOrdinal);
+        mins.set(owningBucketOrdinal, Math.min(values.nextValue(), mins.get(owningBucketOrdinal)));
+    }
+
+    @Override
+    public boolean collectsInBatches() {
+        return valuesSource != null && !valuesSource.needsScores();
+    }
+
+    @Override
+    public void collect(int[] docs, int count, long owningBucketOrdinal) throws IOException {
+        if (values.isMultiValued()) {
+            super.collect(docs, count, owningBucketOrdinal);
+            return;
+        }
+        grow(owningBucketOrdinal);
+
+        final double[] buffer = valuesBuffer(count);
+        final int valueCount = values.fill(docs, count, buffer);
+        double min = mins.get(owningBucketOrdinal);
+        for (int i = 0; i < valueCount; i++) {
+            min = Math.min(min, buffer[i]);
+        }
+        mins.set(owningBucketOrdinal, min);
+    }
+
+    private void grow(long owningBucketOrdinal) {
         if (owningBucketOrdinal >= mins.size()) {
             long from = mins.size();
             mins = bigArrays.grow(mins, owningBucketOrdinal + 1);
             mins.fill(from, mins.size(), Double.POSITIVE_INFINITY);
         }
-
-        mins.set(owningBucketOrdinal, Math.min(values.nextValue(), mins.get(owningBucketOrdinal)));
     }
 
     @Override
@@ -74,16 +74,7 @@ public class StatsAggegator extends MetricsAggregator.MultiValue {
 
     @Override
     public void collect(int doc, long owningBucketOrdinal) throws IOException {
-        if (owningBucketOrdinal >= counts.size()) {
-            final long from = counts.size();
-            final long overSize = BigArrays.overSize(owningBucketOrdinal + 1);
-            counts = bigArrays.resize(counts, overSize);
-            sums = bigArrays.resize(sums, overSize);
-            mins = bigArrays.resize(mins, overSize);
-            maxes = bigArrays.resize(maxes, overSize);
-            mins.fill(from, overSize, Double.POSITIVE_INFINITY);
-            maxes.fill(from, overSize, Double.NEGATIVE_INFINITY);
-        }
+        grow(owningBucketOrdinal);
 
         final int valuesCount = values.setDocument(doc);
         counts.increment(owningBucketOrdinal, valuesCount);
@@ -101,6 +92,49 @@ public class StatsAggegator extends MetricsAggregator.MultiValue {
         maxes.set(owningBucketOrdinal, max);
     }
 
+    @Override
+    public boolean collectsInBatches() {
+        return valuesSource != null && !valuesSource.needsScores();
+    }
+
+    @Override
+    public void collect(int[] docs, int count, long owningBucketOrdinal) throws IOException {
+        if (values.isMultiValued()) {
+            super.collect(docs, count, owningBucketOrdinal);
+            return;
+        }
+        grow(owningBucketOrdinal);
+
+        final double[] buffer = valuesBuffer(count);
+        final int valuesCount = values.fill(docs, count, buffer);
+        counts.increment(owningBucketOrdinal, valuesCount);
+        double sum = 0;
+        double min = mins.get(owningBucketOrdinal);
+        double max = maxes.get(owningBucketOrdinal);
+        for (int i = 0; i < valuesCount; i++) {
+            final double value = buffer[i];
+            sum += value;
+            min = Math.min(min, value);
+            max = Math.max(max, value);
+        }
+        sums.increment(owningBucketOrdinal, sum);
+        mins.set(owningBucketOrdinal, min);
+        maxes.set(owningBucketOrdinal, max);
+    }
+
+    private void grow(long owningBucketOrdinal) {
+        if (owningBucketOrdinal >= counts.size()) {
+            final long from = counts.size();
+            final long overSize = BigArrays.overSize(owningBucketOrdinal + 1);
+            counts = bigArrays.resize(counts, overSize);
+            sums = bigArrays.resize(sums, overSize);
+            mins = bigArrays.resize(mins, overSize);
+            maxes = bigArrays.resize(maxes, overSize);
+            mins.fill(from, overSize, Double.POSITIVE_INFINITY);
+            maxes.fill(from, overSize, Double.NEGATIVE_INFINITY);
+        }
+    }
+
     @Override
     public boolean hasMetric(String name) {
         try {
@@ -73,6 +73,28 @@ public class SumAggregator extends MetricsAggregator.SingleValue {
         sums.increment(owningBucketOrdinal, sum);
     }
 
+    @Override
+    public boolean collectsInBatches() {
+        return valuesSource != null && !valuesSource.needsScores();
+    }
+
+    @Override
+    public void collect(int[] docs, int count, long owningBucketOrdinal) throws IOException {
+        if (values.isMultiValued()) {
+            super.collect(docs, count, owningBucketOrdinal);
+            return;
+        }
+        sums = bigArrays.grow(sums, owningBucketOrdinal + 1);
+
+        final double[] buffer = valuesBuffer(count);
+        final int valuesCount = values.fill(docs, count, buffer);
+        double sum = 0;
+        for (int i = 0; i < valuesCount; i++) {
+            sum += buffer[i];
+        }
+        sums.increment(owningBucketOrdinal, sum);
+    }
+
     @Override
     public double metric(long owningBucketOrd) {
         return valuesSource == null ? 0 : sums.get(owningBucketOrd);
@@ -150,6 +150,14 @@ public abstract class ValuesSource {
 
     public void setNeedsGlobalOrdinals(boolean needsGlobalOrdinals) {}
 
+    /**
+     * Whether the values may depend on the score of the document, in which case they can only be read
+     * while the scorer is positioned on that document. This is the case of scripts.
+     */
+    public boolean needsScores() {
+        return false;
+    }
+
     public abstract MetaData metaData();
 
     public static abstract class Bytes extends ValuesSource {
@@ -306,6 +314,11 @@ public abstract class ValuesSource {
                 return MetaData.UNKNOWN;
             }
 
+            @Override
+            public boolean needsScores() {
+                return true;
+            }
+
             @Override
             public org.elasticsearch.index.fielddata.BytesValues bytesValues() {
                 return values;
@@ -328,6 +341,11 @@ public abstract class ValuesSource {
                 return metaData;
             }
 
+            @Override
+            public boolean needsScores() {
+                return delegate.needsScores();
+            }
+
             @Override
             public void setNextReader(AtomicReaderContext reader) {
                 bytesValues = null; // order may change per-segment -> reset
@@ -441,6 +459,11 @@ public abstract class ValuesSource {
                 return MetaData.UNKNOWN;
             }
 
+            @Override
+            public boolean needsScores() {
+                return true;
+            }
+
             static class LongValues extends org.elasticsearch.index.fielddata.LongValues {
 
                 private final Numeric source;
@@ -579,6 +602,11 @@ public abstract class ValuesSource {
                 return MetaData.UNKNOWN;
             }
 
+            @Override
+            public boolean needsScores() {
+                return true;
+            }
+
             @Override
             public boolean isFloatingPoint() {
                 return scriptValueType != null ? scriptValueType.isFloatingPoint() : true;
@@ -619,6 +647,11 @@ public abstract class ValuesSource {
                 return metaData;
             }
 
+            @Override
+            public boolean needsScores() {
+                return delegate.needsScores();
+            }
+
             @Override
             public boolean isFloatingPoint() {
                 return delegate.isFloatingPoint();
@@ -753,6 +786,11 @@ public abstract class ValuesSource {
             return MetaData.UNKNOWN;
         }
 
+        @Override
+        public boolean needsScores() {
+            return true;
+        }
+
         @Override
         public BytesValues bytesValues() {
             return bytesValues;
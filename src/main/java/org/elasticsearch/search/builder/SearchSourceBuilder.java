@@ -41,6 +41,7 @@ import org.elasticsearch.search.facet.FacetBuilder;
 import org.elasticsearch.search.fetch.source.FetchSourceContext;
 import org.elasticsearch.search.highlight.HighlightBuilder;
 import org.elasticsearch.search.rescore.RescoreBuilder;
+import org.elasticsearch.search.slice.SliceBuilder;
 import org.elasticsearch.search.sort.SortBuilder;
 import org.elasticsearch.search.sort.SortBuilders;
 import org.elasticsearch.search.sort.SortOrder;
@@ -122,6 +123,10 @@ public class SearchSourceBuilder implements ToXContent {
 
     private String[] stats;
 
+    private SliceBuilder sliceBuilder;
+
+    private boolean profile = false;
+
 
     /**
      * Constructs a new search source builder.
@@ -308,6 +313,23 @@ public class SearchSourceBuilder implements ToXContent {
         return this;
     }
 
+    /**
+     * Sets the slice of the scrolled search to execute, see {@link SliceBuilder}.
+     */
+    public SearchSourceBuilder slice(SliceBuilder slice) {
+        this.sliceBuilder = slice;
+        return this;
+    }
+
+    /**
+     * Should the query phase of the shards be profiled, and the time spent in each node of the query, in the
+     * collection of the documents and in each top level aggregation be returned. Defaults to <tt>false</tt>.
+     */
+    public SearchSourceBuilder profile(boolean profile) {
+        this.profile = profile;
+        return this;
+    }
+
     /**
      * Adds a sort against the given field name and the sort ordering.
      *
@@ -768,6 +790,15 @@ public class SearchSourceBuilder implements ToXContent {
             builder.field("min_score", minScore);
         }
 
+        if (sliceBuilder != null) {
+            builder.field("slice");
+            sliceBuilder.toXContent(builder, params);
+        }
+
+        if (profile) {
+            builder.field("profile", true);
+        }
+
         if (version != null) {
             builder.field("version", version);
         }
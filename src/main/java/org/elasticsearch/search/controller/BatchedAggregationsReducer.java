@@ -0,0 +1,93 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.controller;
+
+import org.elasticsearch.common.util.BigArrays;
+import org.elasticsearch.search.aggregations.InternalAggregations;
+import org.elasticsearch.search.query.QuerySearchResult;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reduces the aggregations of the query results of a search as they arrive on the coordinating node, instead of
+ * keeping the aggregations of all shards around until the last one responded. Once <tt>batchSize</tt> shard
+ * aggregations are buffered, the next result first folds them into a partial reduce, so that at most
+ * <tt>batchSize</tt> shard aggregations are held at any time.
+ * <p/>
+ * The aggregations are detached from the query results they are consumed from, the rest of the query result (top
+ * docs, facets, suggestions) is still merged at the end.
+ */
+public class BatchedAggregationsReducer {
+
+    private final BigArrays bigArrays;
+    private final int batchSize;
+
+    private final List<InternalAggregations> buffer;
+    private int numReducePhases;
+
+    public BatchedAggregationsReducer(BigArrays bigArrays, int batchSize) {
+        assert batchSize >= 2 : "a partial reduce needs at least two results";
+        this.bigArrays = bigArrays;
+        this.batchSize = batchSize;
+        this.buffer = new ArrayList<>(Math.min(batchSize, 64));
+    }
+
+    /**
+     * Consumes the aggregations of the query result, if any.
+     */
+    public synchronized void consume(QuerySearchResult result) {
+        final InternalAggregations aggregations = (InternalAggregations) result.aggregations();
+        if (aggregations == null) {
+            return;
+        }
+        if (buffer.size() == batchSize) {
+            // reduce before adding rather than after, so that the final reduce always has a shard result next to the
+            // partial one, and the single aggregation shortcuts of the reduce only ever see shard results
+            final InternalAggregations partial = InternalAggregations.reduce(buffer, bigArrays, false);
+            buffer.clear();
+            buffer.add(partial);
+            numReducePhases++;
+        }
+        buffer.add(aggregations);
+        result.aggregations(null);
+    }
+
+    /**
+     * Reduces the consumed aggregations into the final aggregations of the search, <tt>null</tt> if none of the
+     * results had aggregations.
+     */
+    public synchronized InternalAggregations reduce() {
+        if (buffer.isEmpty()) {
+            return null;
+        }
+        final InternalAggregations aggregations = InternalAggregations.reduce(buffer, bigArrays);
+        buffer.clear();
+        numReducePhases++;
+        return aggregations;
+    }
+
+    /**
+     * The number of reduces of the aggregations, partial ones included.
+     */
+    public synchronized int numReducePhases() {
+        return numReducePhases;
+    }
+}
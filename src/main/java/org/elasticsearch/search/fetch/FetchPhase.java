@@ -150,10 +150,21 @@ public class FetchPhase implements SearchPhase {
 
         InternalSearchHit[] hits = new InternalSearchHit[context.docIdsToLoadSize()];
         FetchSubPhase.HitContext hitContext = new FetchSubPhase.HitContext();
-        for (int index = 0; index < context.docIdsToLoadSize(); index++) {
-            int docId = context.docIdsToLoad()[context.docIdsToLoadFrom() + index];
+        final List<AtomicReaderContext> leaves = context.searcher().getIndexReader().leaves();
+        AtomicReaderContext subReaderContext = null;
+        int subReaderEnd = 0;
+        for (long docAndIndex : sortedDocIds(context)) {
+            context.checkCancelled();
+            int docId = (int) (docAndIndex >>> 32);
+            int index = (int) docAndIndex;
+            if (docId >= subReaderEnd) {
+                // the doc ids are sorted, the next segment is only looked up once we are done with the current one
+                subReaderContext = leaves.get(ReaderUtil.subIndex(docId, leaves));
+                subReaderEnd = subReaderContext.docBase + subReaderContext.reader().maxDoc();
+            }
+            int subDoc = docId - subReaderContext.docBase;
 
-            loadStoredFields(context, fieldsVisitor, docId);
+            loadStoredFields(context, subReaderContext, fieldsVisitor, subDoc);
             fieldsVisitor.postProcess(context.mapperService());
 
             Map<String, SearchHitField> searchFields = null;
@@ -175,10 +186,6 @@ public class FetchPhase implements SearchPhase {
 
             hits[index] = searchHit;
 
-            int readerIndex = ReaderUtil.subIndex(docId, context.searcher().getIndexReader().leaves());
-            AtomicReaderContext subReaderContext = context.searcher().getIndexReader().leaves().get(readerIndex);
-            int subDoc = docId - subReaderContext.docBase;
-
             // go over and extract fields that are not mapped / stored
             context.lookup().setNextReader(subReaderContext);
             context.lookup().setNextDocId(subDoc);
@@ -222,12 +229,28 @@ public class FetchPhase implements SearchPhase {
         context.fetchResult().hits(new InternalSearchHits(hits, context.queryResult().topDocs().totalHits, context.queryResult().topDocs().getMaxScore()));
     }
 
-    private void loadStoredFields(SearchContext context, FieldsVisitor fieldVisitor, int docId) {
+    /**
+     * The doc ids to load, in the high 32 bits, along with their index in the hits, in the low 32 bits, sorted by doc
+     * id. Loading the hits in doc id order reads the stored fields of each segment sequentially, instead of jumping
+     * back and forth between segments and between the compressed blocks of each segment.
+     */
+    static long[] sortedDocIds(SearchContext context) {
+        final int[] docIds = context.docIdsToLoad();
+        final int from = context.docIdsToLoadFrom();
+        final long[] sorted = new long[context.docIdsToLoadSize()];
+        for (int index = 0; index < sorted.length; index++) {
+            sorted[index] = ((long) docIds[from + index]) << 32 | index;
+        }
+        Arrays.sort(sorted);
+        return sorted;
+    }
+
+    private void loadStoredFields(SearchContext context, AtomicReaderContext readerContext, FieldsVisitor fieldVisitor, int subDoc) {
         fieldVisitor.reset();
         try {
-            context.searcher().doc(docId, fieldVisitor);
+            readerContext.reader().document(subDoc, fieldVisitor);
         } catch (IOException e) {
-            throw new FetchPhaseExecutionException(context, "Failed to fetch doc id [" + docId + "]", e);
+            throw new FetchPhaseExecutionException(context, "Failed to fetch doc id [" + (readerContext.docBase + subDoc) + "]", e);
         }
     }
 }
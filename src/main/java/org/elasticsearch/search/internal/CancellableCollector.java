@@ -0,0 +1,68 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.internal;
+
+import org.apache.lucene.index.AtomicReaderContext;
+import org.apache.lucene.search.Collector;
+import org.apache.lucene.search.Scorer;
+
+import java.io.IOException;
+
+/**
+ * A collector that stops the collection with a {@link org.elasticsearch.search.SearchCancelledException} once the
+ * search context is cancelled. The context is checked on every segment and every {@link #CHECK_INTERVAL} documents.
+ */
+final class CancellableCollector extends Collector {
+
+    static final int CHECK_INTERVAL = 1 << 10;
+
+    private final Collector in;
+    private final SearchContext context;
+    private int count;
+
+    CancellableCollector(Collector in, SearchContext context) {
+        this.in = in;
+        this.context = context;
+    }
+
+    @Override
+    public void setScorer(Scorer scorer) throws IOException {
+        in.setScorer(scorer);
+    }
+
+    @Override
+    public void collect(int doc) throws IOException {
+        if ((++count & (CHECK_INTERVAL - 1)) == 0) {
+            context.checkCancelled();
+        }
+        in.collect(doc);
+    }
+
+    @Override
+    public void setNextReader(AtomicReaderContext context) throws IOException {
+        this.context.checkCancelled();
+        in.setNextReader(context);
+    }
+
+    @Override
+    public boolean acceptsDocsOutOfOrder() {
+        return in.acceptsDocsOutOfOrder();
+    }
+}
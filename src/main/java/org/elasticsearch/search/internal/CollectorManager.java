@@ -0,0 +1,45 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.elasticsearch.search.internal;
+
+import org.apache.lucene.search.Collector;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Creates the collectors of a concurrent search, one per slice of the leaves of the searcher, and reduces them into
+ * the result of the search once all the slices have been collected.
+ *
+ * @see ContextIndexSearcher#search(org.apache.lucene.search.Query, CollectorManager)
+ */
+public interface CollectorManager<C extends Collector, T> {
+
+    /**
+     * A new collector for a slice. Collectors are never shared between slices, and don't need to be thread safe.
+     */
+    C newCollector() throws IOException;
+
+    /**
+     * Reduces the collectors of all the slices, in the order of the slices.
+     */
+    T reduce(List<C> collectors) throws IOException;
+}
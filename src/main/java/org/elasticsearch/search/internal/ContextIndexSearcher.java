@@ -19,8 +19,10 @@
 
 package org.elasticsearch.search.internal;
 
+import com.google.common.util.concurrent.Uninterruptibles;
 import org.apache.lucene.index.AtomicReaderContext;
 import org.apache.lucene.search.*;
+import org.elasticsearch.ExceptionsHelper;
 import org.elasticsearch.common.lease.Releasable;
 import org.elasticsearch.common.lease.Releasables;
 import org.elasticsearch.common.lucene.MinimumScoreCollector;
@@ -28,13 +30,20 @@ import org.elasticsearch.common.lucene.MultiCollector;
 import org.elasticsearch.common.lucene.search.FilteredCollector;
 import org.elasticsearch.common.lucene.search.XCollector;
 import org.elasticsearch.common.lucene.search.XFilteredQuery;
+import org.elasticsearch.common.util.concurrent.EsRejectedExecutionException;
 import org.elasticsearch.index.engine.Engine;
 import org.elasticsearch.search.dfs.CachedDfSource;
 import org.elasticsearch.search.internal.SearchContext.Lifetime;
+import org.elasticsearch.search.profile.ProfileCollector;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
 
 /**
  * Context-aware extension of {@link IndexSearcher}.
@@ -62,6 +71,14 @@ public class ContextIndexSearcher extends IndexSearcher implements Releasable {
     private boolean enableMainDocIdSetCollector;
     private DocIdSetCollector mainDocIdSetCollector;
 
+    private Executor concurrentExecutor;
+    private int maxSlices;
+    private int minDocsPerSlice;
+    private List<List<AtomicReaderContext>> slices;
+
+    private Sort earlyTerminationSort;
+    private int earlyTerminationNumDocs;
+
     public ContextIndexSearcher(SearchContext searchContext, Engine.Searcher searcher) {
         super(searcher.reader());
         in = searcher.searcher();
@@ -98,6 +115,96 @@ public class ContextIndexSearcher extends IndexSearcher implements Releasable {
         this.enableMainDocIdSetCollector = true;
     }
 
+    /**
+     * Enables the concurrent collection of the main query. The leaves are partitioned into at most <tt>maxSlices</tt>
+     * slices of at least <tt>minDocsPerSlice</tt> documents, which are collected concurrently on the given executor.
+     */
+    public void concurrentSearch(Executor executor, int maxSlices, int minDocsPerSlice) {
+        this.concurrentExecutor = executor;
+        this.maxSlices = maxSlices;
+        this.minDocsPerSlice = minDocsPerSlice;
+        this.slices = null;
+    }
+
+    /**
+     * Returns <tt>true</tt> if the main query is collected concurrently. Only the top hits and the total hits can be
+     * merged across slices, the main query is collected serially when facets, aggregations or the main doc id set
+     * collector collect it as well. Scripts are not thread safe either: they share the search lookup and are positioned
+     * on the reader and the scorer of the slice that collects, so queries and sorts using scripts are collected serially.
+     */
+    public boolean canSearchConcurrently() {
+        if (concurrentExecutor == null || currentState != Stage.MAIN_QUERY || enableMainDocIdSetCollector) {
+            return false;
+        }
+        if (searchContext.profilers() != null) {
+            // the profiled queries and collectors are not thread safe
+            return false;
+        }
+        if (queryCollectors != null && !queryCollectors.isEmpty()) {
+            return false;
+        }
+        if (searchContext.hasLookup()) {
+            // scripts have been built for the query or the sort
+            return false;
+        }
+        if (slices == null) {
+            slices = slices(leafContexts, maxSlices, minDocsPerSlice);
+        }
+        return slices.size() > 1;
+    }
+
+    /**
+     * Partitions the leaves into slices of contiguous leaves, so that merging the hits of the slices breaks ties by
+     * doc id, like a serial search does.
+     */
+    static List<List<AtomicReaderContext>> slices(List<AtomicReaderContext> leaves, int maxSlices, int minDocsPerSlice) {
+        long maxDoc = 0;
+        for (AtomicReaderContext leaf : leaves) {
+            maxDoc += leaf.reader().maxDoc();
+        }
+        final long docsPerSlice = Math.max(minDocsPerSlice, (maxDoc + maxSlices - 1) / Math.max(1, maxSlices));
+        final List<List<AtomicReaderContext>> slices = new ArrayList<>();
+        List<AtomicReaderContext> slice = new ArrayList<>();
+        long sliceDocs = 0;
+        for (AtomicReaderContext leaf : leaves) {
+            slice.add(leaf);
+            sliceDocs += leaf.reader().maxDoc();
+            if (sliceDocs >= docsPerSlice) {
+                slices.add(slice);
+                slice = new ArrayList<>();
+                sliceDocs = 0;
+            }
+        }
+        if (!slice.isEmpty()) {
+            if (slices.isEmpty() || slices.size() < maxSlices) {
+                slices.add(slice);
+            } else {
+                slices.get(slices.size() - 1).addAll(slice);
+            }
+        }
+        return slices;
+    }
+
+    /**
+     * Terminates the collection of the main query early in the segments sorted by the given index sort, once
+     * <tt>numDocs</tt> documents of a segment have been collected. The caller makes sure that the main query is sorted
+     * like the index. Returns <tt>false</tt> if the main query can't terminate early, because facets, aggregations or
+     * the main doc id set collector need all the matching documents.
+     */
+    public boolean earlyTerminate(Sort indexSort, int numDocs) {
+        this.earlyTerminationSort = indexSort;
+        this.earlyTerminationNumDocs = numDocs;
+        if (!canEarlyTerminate()) {
+            this.earlyTerminationSort = null;
+            return false;
+        }
+        return true;
+    }
+
+    private boolean canEarlyTerminate() {
+        return earlyTerminationSort != null && !enableMainDocIdSetCollector && (queryCollectors == null || queryCollectors.isEmpty());
+    }
+
     public void inStage(Stage stage) {
         this.currentState = stage;
     }
@@ -105,6 +212,7 @@ public class ContextIndexSearcher extends IndexSearcher implements Releasable {
     public void finishStage(Stage stage) {
         assert currentState == stage : "Expected stage " + stage + " but was stage " + currentState;
         this.currentState = Stage.NA;
+        this.earlyTerminationSort = null;
     }
 
     @Override
@@ -125,8 +233,14 @@ public class ContextIndexSearcher extends IndexSearcher implements Releasable {
     @Override
     public Weight createNormalizedWeight(Query query) throws IOException {
         try {
+            // contexts that only run a query for its doc id set, like the child queries, have no parsed query
+            final boolean mainQuery = query == searchContext.query()
+                    || (searchContext.parsedQuery() != null && query == searchContext.parsedQuery().query());
+            if (mainQuery && currentState == Stage.MAIN_QUERY && searchContext.profilers() != null) {
+                query = searchContext.profilers().queryProfiler().profile(rewrite(query));
+            }
             // if its the main query, use we have dfs data, only then do it
-            if (dfSource != null && (query == searchContext.query() || query == searchContext.parsedQuery().query())) {
+            if (dfSource != null && mainQuery) {
                 return dfSource.createNormalizedWeight(query);
             }
             return in.createNormalizedWeight(query);
@@ -138,6 +252,11 @@ public class ContextIndexSearcher extends IndexSearcher implements Releasable {
 
     @Override
     public void search(List<AtomicReaderContext> leaves, Weight weight, Collector collector) throws IOException {
+        final Collector original = collector;
+        if (currentState == Stage.MAIN_QUERY && canEarlyTerminate()) {
+            collector = new EarlyTerminatingSortingCollector(collector, earlyTerminationSort, earlyTerminationNumDocs, searchContext);
+        }
+        collector = new CancellableCollector(collector, searchContext);
         if (searchContext.timeoutInMillis() != -1) {
             // TODO: change to use our own counter that uses the scheduler in ThreadPool
             collector = new TimeLimitingCollector(collector, TimeLimitingCollector.getGlobalCounter(), searchContext.timeoutInMillis());
@@ -161,6 +280,11 @@ public class ContextIndexSearcher extends IndexSearcher implements Releasable {
             if (searchContext.minimumScore() != null) {
                 collector = new MinimumScoreCollector(collector, searchContext.minimumScore());
             }
+            if (searchContext.profilers() != null) {
+                ProfileCollector profileCollector = new ProfileCollector(collector, original.getClass().getSimpleName());
+                searchContext.profilers().collector(profileCollector);
+                collector = profileCollector;
+            }
         }
 
         // we only compute the doc id set once since within a context, we execute the same query always...
@@ -193,6 +317,135 @@ public class ContextIndexSearcher extends IndexSearcher implements Releasable {
         }
     }
 
+    @Override
+    protected TopDocs search(Weight weight, ScoreDoc after, int nDocs) throws IOException {
+        if (!canSearchConcurrently()) {
+            return super.search(weight, after, nDocs);
+        }
+        nDocs = Math.min(nDocs, Math.max(1, getIndexReader().maxDoc()));
+        return search(weight, new TopDocsCollectorManager(null, nDocs, after, false, false, !weight.scoresDocsOutOfOrder()));
+    }
+
+    @Override
+    protected TopFieldDocs search(Weight weight, FieldDoc after, int nDocs, Sort sort, boolean fillFields, boolean doDocScores, boolean doMaxScore) throws IOException {
+        if (!canSearchConcurrently()) {
+            return super.search(weight, after, nDocs, sort, fillFields, doDocScores, doMaxScore);
+        }
+        nDocs = Math.min(nDocs, Math.max(1, getIndexReader().maxDoc()));
+        return (TopFieldDocs) search(weight, new TopDocsCollectorManager(sort, nDocs, after, doDocScores, doMaxScore, !weight.scoresDocsOutOfOrder()));
+    }
+
+    /**
+     * Searches the query with a collector per slice, concurrently if the main query can be collected concurrently,
+     * and reduces the collectors into the result of the search.
+     */
+    public <C extends Collector, T> T search(Query query, CollectorManager<C, T> manager) throws IOException {
+        if (!canSearchConcurrently()) {
+            final C collector = manager.newCollector();
+            search(query, collector);
+            return manager.reduce(Collections.singletonList(collector));
+        }
+        return search(createNormalizedWeight(query), manager);
+    }
+
+    private <C extends Collector, T> T search(Weight weight, CollectorManager<C, T> manager) throws IOException {
+        try {
+            final List<C> collectors = new ArrayList<>(slices.size());
+            final List<FutureTask<Boolean>> tasks = new ArrayList<>(slices.size());
+            for (List<AtomicReaderContext> slice : slices) {
+                final C collector = manager.newCollector();
+                collectors.add(collector);
+                // wrapped by the current thread, so that the time limit starts now, even for slices that are queued
+                tasks.add(new FutureTask<>(new SliceSearch(slice, weight, wrapSliceCollector(collector))));
+            }
+            // the current thread collects the last slice, and the slices that the pool rejects
+            for (int i = 0; i < tasks.size() - 1; i++) {
+                try {
+                    concurrentExecutor.execute(tasks.get(i));
+                } catch (EsRejectedExecutionException e) {
+                    tasks.get(i).run();
+                }
+            }
+            tasks.get(tasks.size() - 1).run();
+
+            // wait for all the slices, even if one failed, since they share the releasables of the collection
+            Throwable failure = null;
+            boolean timedOut = false;
+            for (FutureTask<Boolean> task : tasks) {
+                try {
+                    timedOut |= Uninterruptibles.getUninterruptibly(task);
+                } catch (ExecutionException e) {
+                    if (failure == null) {
+                        failure = e.getCause();
+                    }
+                }
+            }
+            if (failure instanceof IOException) {
+                throw (IOException) failure;
+            } else if (failure != null) {
+                throw ExceptionsHelper.convertToRuntime(failure);
+            }
+            if (timedOut) {
+                searchContext.queryResult().searchTimedOut(true);
+            }
+            return manager.reduce(collectors);
+        } finally {
+            searchContext.clearReleasables(Lifetime.COLLECTION);
+        }
+    }
+
+    private Collector wrapSliceCollector(Collector collector) {
+        if (canEarlyTerminate()) {
+            collector = new EarlyTerminatingSortingCollector(collector, earlyTerminationSort, earlyTerminationNumDocs, searchContext);
+        }
+        collector = new CancellableCollector(collector, searchContext);
+        if (searchContext.timeoutInMillis() != -1) {
+            collector = new TimeLimitingCollector(collector, TimeLimitingCollector.getGlobalCounter(), searchContext.timeoutInMillis());
+        }
+        if (searchContext.parsedPostFilter() != null) {
+            collector = new FilteredCollector(collector, searchContext.parsedPostFilter().filter());
+        }
+        if (searchContext.minimumScore() != null) {
+            collector = new MinimumScoreCollector(collector, searchContext.minimumScore());
+        }
+        return collector;
+    }
+
+    /**
+     * Collects a slice, returns <tt>true</tt> if the collection timed out.
+     */
+    private final class SliceSearch implements Callable<Boolean> {
+
+        private final List<AtomicReaderContext> leaves;
+        private final Weight weight;
+        private final Collector collector;
+
+        SliceSearch(List<AtomicReaderContext> leaves, Weight weight, Collector collector) {
+            this.leaves = leaves;
+            this.weight = weight;
+            this.collector = collector;
+        }
+
+        @Override
+        public Boolean call() throws IOException {
+            // queries and collectors may look up the current search context
+            final boolean forked = SearchContext.current() != searchContext;
+            if (forked) {
+                SearchContext.setCurrent(searchContext);
+            }
+            try {
+                ContextIndexSearcher.super.search(leaves, weight, collector);
+                return false;
+            } catch (TimeLimitingCollector.TimeExceededException e) {
+                return true;
+            } finally {
+                if (forked) {
+                    SearchContext.removeCurrent();
+                }
+            }
+        }
+    }
+
     @Override
     public Explanation explain(Query query, int doc) throws IOException {
         try {
@@ -65,6 +65,7 @@ import org.elasticsearch.search.fetch.script.ScriptFieldsContext;
 import org.elasticsearch.search.fetch.source.FetchSourceContext;
 import org.elasticsearch.search.highlight.SearchContextHighlight;
 import org.elasticsearch.search.lookup.SearchLookup;
+import org.elasticsearch.search.profile.Profilers;
 import org.elasticsearch.search.query.QuerySearchResult;
 import org.elasticsearch.search.rescore.RescoreSearchContext;
 import org.elasticsearch.search.scan.ScanContext;
@@ -150,6 +151,10 @@ public class DefaultSearchContext extends SearchContext {
 
     private Filter aliasFilter;
 
+    private Filter sliceFilter;
+
+    private Profilers profilers;
+
     private int[] docIdsToLoad;
 
     private int docsIdsToLoadFrom;
@@ -223,6 +228,10 @@ public class DefaultSearchContext extends SearchContext {
             parsedQuery(new ParsedQuery(new FunctionScoreQuery(query(), new BoostScoreFunction(queryBoost)), parsedQuery()));
         }
         Filter searchFilter = searchFilter(types());
+        if (sliceFilter != null) {
+            // only the query is sliced, global aggregations and facets still see the whole shard
+            searchFilter = searchFilter == null ? sliceFilter : new AndFilter(ImmutableList.of(searchFilter, sliceFilter));
+        }
         if (searchFilter != null) {
             if (Queries.isConstantMatchAllQuery(query())) {
                 Query q = new XConstantScoreQuery(searchFilter);
@@ -293,7 +302,7 @@ public class DefaultSearchContext extends SearchContext {
         return this;
     }
 
-    public long nowInMillis() {
+    protected long nowInMillisImpl() {
         return request.nowInMillis();
     }
 
@@ -511,6 +520,24 @@ public class DefaultSearchContext extends SearchContext {
         return aliasFilter;
     }
 
+    public SearchContext sliceFilter(Filter sliceFilter) {
+        this.sliceFilter = sliceFilter;
+        return this;
+    }
+
+    public Filter sliceFilter() {
+        return sliceFilter;
+    }
+
+    public SearchContext profilers(Profilers profilers) {
+        this.profilers = profilers;
+        return this;
+    }
+
+    public Profilers profilers() {
+        return profilers;
+    }
+
     public SearchContext parsedQuery(ParsedQuery query) {
         queryRewritten = false;
         this.originalQuery = query;
@@ -656,6 +683,11 @@ public class DefaultSearchContext extends SearchContext {
         return searchLookup;
     }
 
+    @Override
+    public boolean hasLookup() {
+        return searchLookup != null;
+    }
+
     public DfsSearchResult dfsResult() {
         return dfsResult;
     }
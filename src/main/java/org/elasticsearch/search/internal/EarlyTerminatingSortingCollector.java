@@ -0,0 +1,80 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.elasticsearch.search.internal;
+
+import org.apache.lucene.index.AtomicReaderContext;
+import org.apache.lucene.index.sorter.SortingMergePolicy;
+import org.apache.lucene.search.CollectionTerminatedException;
+import org.apache.lucene.search.Collector;
+import org.apache.lucene.search.Scorer;
+import org.apache.lucene.search.Sort;
+
+import java.io.IOException;
+
+/**
+ * A collector that stops collecting a segment sorted by the index sort once <tt>numDocsToCollect</tt> documents of
+ * the segment have been collected, since the following documents of the segment can't be competitive for a search
+ * sorted like the index. The other segments are collected fully. The query result of the search context is marked as
+ * terminated early as soon as a segment is.
+ */
+final class EarlyTerminatingSortingCollector extends Collector {
+
+    private final Collector in;
+    private final Sort indexSort;
+    private final int numDocsToCollect;
+    private final SearchContext context;
+    private boolean segmentSorted;
+    private int segmentCollected;
+
+    EarlyTerminatingSortingCollector(Collector in, Sort indexSort, int numDocsToCollect, SearchContext context) {
+        this.in = in;
+        this.indexSort = indexSort;
+        this.numDocsToCollect = numDocsToCollect;
+        this.context = context;
+    }
+
+    @Override
+    public void setScorer(Scorer scorer) throws IOException {
+        in.setScorer(scorer);
+    }
+
+    @Override
+    public void collect(int doc) throws IOException {
+        in.collect(doc);
+        if (segmentSorted && ++segmentCollected >= numDocsToCollect) {
+            context.queryResult().terminatedEarly(true);
+            throw new CollectionTerminatedException();
+        }
+    }
+
+    @Override
+    public void setNextReader(AtomicReaderContext context) throws IOException {
+        in.setNextReader(context);
+        segmentSorted = SortingMergePolicy.isSorted(context.reader(), indexSort);
+        segmentCollected = 0;
+    }
+
+    @Override
+    public boolean acceptsDocsOutOfOrder() {
+        // the documents of a sorted segment have to be collected in order
+        return !segmentSorted && in.acceptsDocsOutOfOrder();
+    }
+}
@@ -19,6 +19,7 @@
 
 package org.elasticsearch.search.internal;
 
+import org.elasticsearch.Version;
 import org.elasticsearch.action.search.SearchScrollRequest;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
@@ -38,6 +39,8 @@ public class InternalScrollSearchRequest extends TransportRequest {
 
     private Scroll scroll;
 
+    private String parentTask;
+
     public InternalScrollSearchRequest() {
     }
 
@@ -64,6 +67,19 @@ public class InternalScrollSearchRequest extends TransportRequest {
         return this;
     }
 
+    /**
+     * The id of the search task of the coordinating node this request is part of, see
+     * {@link ShardSearchRequest#parentTask()}.
+     */
+    public InternalScrollSearchRequest parentTask(String parentTask) {
+        this.parentTask = parentTask;
+        return this;
+    }
+
+    public String parentTask() {
+        return parentTask;
+    }
+
     @Override
     public void readFrom(StreamInput in) throws IOException {
         super.readFrom(in);
@@ -71,6 +87,9 @@ public class InternalScrollSearchRequest extends TransportRequest {
         if (in.readBoolean()) {
             scroll = readScroll(in);
         }
+        if (in.getVersion().onOrAfter(Version.V_2_0_0)) {
+            parentTask = in.readOptionalString();
+        }
     }
 
     @Override
@@ -83,5 +102,8 @@ public class InternalScrollSearchRequest extends TransportRequest {
             out.writeBoolean(true);
             scroll.writeTo(out);
         }
+        if (out.getVersion().onOrAfter(Version.V_2_0_0)) {
+            out.writeOptionalString(parentTask);
+        }
     }
 }
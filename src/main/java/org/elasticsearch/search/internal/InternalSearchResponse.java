@@ -19,19 +19,25 @@
 
 package org.elasticsearch.search.internal;
 
+import org.elasticsearch.Version;
+import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.io.stream.Streamable;
 import org.elasticsearch.common.xcontent.ToXContent;
 import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentBuilderString;
 import org.elasticsearch.search.SearchHits;
 import org.elasticsearch.search.aggregations.Aggregations;
 import org.elasticsearch.search.aggregations.InternalAggregations;
 import org.elasticsearch.search.facet.Facets;
 import org.elasticsearch.search.facet.InternalFacets;
+import org.elasticsearch.search.profile.ProfileShardResult;
 import org.elasticsearch.search.suggest.Suggest;
 
 import java.io.IOException;
+import java.util.Map;
+import java.util.TreeMap;
 
 import static org.elasticsearch.search.internal.InternalSearchHits.readSearchHits;
 
@@ -54,21 +60,45 @@ public class InternalSearchResponse implements Streamable, ToXContent {
 
     private boolean timedOut;
 
+    private Map<String, ProfileShardResult> profileResults;
+
+    private Boolean terminatedEarly;
+
     private InternalSearchResponse() {
     }
 
     public InternalSearchResponse(InternalSearchHits hits, InternalFacets facets, InternalAggregations aggregations, Suggest suggest, boolean timedOut) {
+        this(hits, facets, aggregations, suggest, timedOut, null);
+    }
+
+    public InternalSearchResponse(InternalSearchHits hits, InternalFacets facets, InternalAggregations aggregations, Suggest suggest, boolean timedOut,
+                                  @Nullable Map<String, ProfileShardResult> profileResults) {
+        this(hits, facets, aggregations, suggest, timedOut, profileResults, null);
+    }
+
+    public InternalSearchResponse(InternalSearchHits hits, InternalFacets facets, InternalAggregations aggregations, Suggest suggest, boolean timedOut,
+                                  @Nullable Map<String, ProfileShardResult> profileResults, @Nullable Boolean terminatedEarly) {
         this.hits = hits;
         this.facets = facets;
         this.aggregations = aggregations;
         this.suggest = suggest;
         this.timedOut = timedOut;
+        this.profileResults = profileResults;
+        this.terminatedEarly = terminatedEarly;
     }
 
     public boolean timedOut() {
         return this.timedOut;
     }
 
+    /**
+     * Whether any shard terminated the collection of the query early, <tt>null</tt> if no shard could.
+     */
+    @Nullable
+    public Boolean terminatedEarly() {
+        return terminatedEarly;
+    }
+
     public SearchHits hits() {
         return hits;
     }
@@ -85,6 +115,14 @@ public class InternalSearchResponse implements Streamable, ToXContent {
         return suggest;
     }
 
+    /**
+     * The profiles of the query phase of the shards, keyed by shard, if the search was profiled.
+     */
+    @Nullable
+    public Map<String, ProfileShardResult> profileResults() {
+        return profileResults;
+    }
+
     @Override
     public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
         hits.toXContent(builder, params);
@@ -97,6 +135,18 @@ public class InternalSearchResponse implements Streamable, ToXContent {
         if (suggest != null) {
             suggest.toXContent(builder, params);
         }
+        if (profileResults != null) {
+            builder.startObject(Fields.PROFILE);
+            builder.startArray(Fields.SHARDS);
+            for (Map.Entry<String, ProfileShardResult> entry : profileResults.entrySet()) {
+                builder.startObject();
+                builder.field(Fields.ID, entry.getKey());
+                entry.getValue().toXContent(builder, params);
+                builder.endObject();
+            }
+            builder.endArray();
+            builder.endObject();
+        }
         return builder;
     }
 
@@ -119,6 +169,16 @@ public class InternalSearchResponse implements Streamable, ToXContent {
             suggest = Suggest.readSuggest(Suggest.Fields.SUGGEST, in);
         }
         timedOut = in.readBoolean();
+        if (in.getVersion().onOrAfter(Version.V_2_0_0) && in.readBoolean()) {
+            int size = in.readVInt();
+            profileResults = new TreeMap<>();
+            for (int i = 0; i < size; i++) {
+                profileResults.put(in.readString(), ProfileShardResult.readProfileShardResult(in));
+            }
+        }
+        if (in.getVersion().onOrAfter(Version.V_2_0_0)) {
+            terminatedEarly = in.readOptionalBoolean();
+        }
     }
 
     @Override
@@ -143,5 +203,24 @@ public class InternalSearchResponse implements Streamable, ToXContent {
             suggest.writeTo(out);
         }
         out.writeBoolean(timedOut);
+        if (out.getVersion().onOrAfter(Version.V_2_0_0)) {
+            if (profileResults == null) {
+                out.writeBoolean(false);
+            } else {
+                out.writeBoolean(true);
+                out.writeVInt(profileResults.size());
+                for (Map.Entry<String, ProfileShardResult> entry : profileResults.entrySet()) {
+                    out.writeString(entry.getKey());
+                    entry.getValue().writeTo(out);
+                }
+            }
+            out.writeOptionalBoolean(terminatedEarly);
+        }
+    }
+
+    static final class Fields {
+        static final XContentBuilderString PROFILE = new XContentBuilderString("profile");
+        static final XContentBuilderString SHARDS = new XContentBuilderString("shards");
+        static final XContentBuilderString ID = new XContentBuilderString("id");
     }
 }
@@ -47,6 +47,7 @@ import org.elasticsearch.index.shard.service.IndexShard;
 import org.elasticsearch.index.similarity.SimilarityService;
 import org.elasticsearch.script.ScriptService;
 import org.elasticsearch.search.Scroll;
+import org.elasticsearch.search.SearchCancelledException;
 import org.elasticsearch.search.SearchShardTarget;
 import org.elasticsearch.search.aggregations.SearchContextAggregations;
 import org.elasticsearch.search.dfs.DfsSearchResult;
@@ -58,6 +59,7 @@ import org.elasticsearch.search.fetch.script.ScriptFieldsContext;
 import org.elasticsearch.search.fetch.source.FetchSourceContext;
 import org.elasticsearch.search.highlight.SearchContextHighlight;
 import org.elasticsearch.search.lookup.SearchLookup;
+import org.elasticsearch.search.profile.Profilers;
 import org.elasticsearch.search.query.QuerySearchResult;
 import org.elasticsearch.search.rescore.RescoreSearchContext;
 import org.elasticsearch.search.scan.ScanContext;
@@ -89,6 +91,12 @@ public abstract class SearchContext implements Releasable {
 
     private Multimap<Lifetime, Releasable> clearables = null;
 
+    private final long startTime = System.currentTimeMillis();
+
+    private volatile String parentTask;
+
+    private volatile boolean cancelled;
+
     public final void close() {
         try {
             clearReleasables(Lifetime.CONTEXT);
@@ -99,6 +107,45 @@ public abstract class SearchContext implements Releasable {
 
     protected abstract void doClose();
 
+    /**
+     * The time the context was created at.
+     */
+    public final long startTime() {
+        return startTime;
+    }
+
+    /**
+     * The full id of the search task of the coordinating node that the current phase of the context is part of.
+     */
+    public final void parentTask(String parentTask) {
+        this.parentTask = parentTask;
+    }
+
+    public final String parentTask() {
+        return parentTask;
+    }
+
+    /**
+     * Marks the context as cancelled, the phase it executes fails at its next {@link #checkCancelled() check}.
+     */
+    public final void cancel() {
+        cancelled = true;
+    }
+
+    public final boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Throws a {@link SearchCancelledException} if the context was cancelled. Called periodically by the collection
+     * of the query phase, and by the aggregation and fetch phases.
+     */
+    public final void checkCancelled() throws SearchCancelledException {
+        if (cancelled) {
+            throw new SearchCancelledException("search of task [" + parentTask + "] on shard " + shardTarget() + " was cancelled");
+        }
+    }
+
     /**
      * Should be called before executing the main query and after all other parameters have been set.
      */
@@ -128,7 +175,22 @@ public abstract class SearchContext implements Releasable {
 
     public abstract SearchContext queryBoost(float queryBoost);
 
-    public abstract long nowInMillis();
+    private boolean nowInMillisUsed;
+
+    public final long nowInMillis() {
+        nowInMillisUsed = true;
+        return nowInMillisImpl();
+    }
+
+    /**
+     * Returns <tt>true</tt> if the "now" of the request was used, in which case the results of the request depend on
+     * the time it was executed at.
+     */
+    public final boolean nowInMillisUsed() {
+        return nowInMillisUsed;
+    }
+
+    protected abstract long nowInMillisImpl();
 
     public abstract Scroll scroll();
 
@@ -230,6 +292,21 @@ public abstract class SearchContext implements Releasable {
 
     public abstract Filter aliasFilter();
 
+    /**
+     * The filter restricting the shard to the documents of the requested slice of a scroll, if any.
+     */
+    public abstract SearchContext sliceFilter(Filter sliceFilter);
+
+    public abstract Filter sliceFilter();
+
+    /**
+     * Enables the profiling of the query phase, the profilers are <tt>null</tt> unless it is enabled.
+     */
+    public abstract SearchContext profilers(Profilers profilers);
+
+    @Nullable
+    public abstract Profilers profilers();
+
     public abstract SearchContext parsedQuery(ParsedQuery query);
 
     public abstract ParsedQuery parsedQuery();
@@ -298,6 +375,11 @@ public abstract class SearchContext implements Releasable {
 
     public abstract SearchLookup lookup();
 
+    /**
+     * Returns <tt>true</tt> if the {@link #lookup()} has been created, which is the case as soon as a script has been built.
+     */
+    public abstract boolean hasLookup();
+
     public abstract DfsSearchResult dfsResult();
 
     public abstract QuerySearchResult queryResult();
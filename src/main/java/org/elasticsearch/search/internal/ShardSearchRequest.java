@@ -26,6 +26,7 @@ import org.elasticsearch.action.search.type.ParsedScrollId;
 import org.elasticsearch.cluster.routing.ShardRouting;
 import org.elasticsearch.common.Strings;
 import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.search.Scroll;
@@ -79,6 +80,8 @@ public class ShardSearchRequest extends TransportRequest {
 
     private boolean useSlowScroll;
 
+    private String parentTask;
+
     public ShardSearchRequest() {
     }
 
@@ -164,6 +167,19 @@ public class ShardSearchRequest extends TransportRequest {
         return this.nowInMillis;
     }
 
+    /**
+     * The id of the search task of the coordinating node this request is part of, to cancel the search on the shard
+     * along with it.
+     */
+    public ShardSearchRequest parentTask(String parentTask) {
+        this.parentTask = parentTask;
+        return this;
+    }
+
+    public String parentTask() {
+        return parentTask;
+    }
+
     public Scroll scroll() {
         return scroll;
     }
@@ -233,6 +249,30 @@ public class ShardSearchRequest extends TransportRequest {
             // This means that this request was send from a 1.0.x or 1.1.x node and we need to fallback to slow scroll.
             useSlowScroll = in.getVersion().before(ParsedScrollId.SCROLL_SEARCH_AFTER_MINIMUM_VERSION);
         }
+        if (in.getVersion().onOrAfter(Version.V_2_0_0)) {
+            parentTask = in.readOptionalString();
+        }
+    }
+
+    /**
+     * The bytes that identify the results of the request on a shard, its "now" aside. Requests whose results depend
+     * on their "now" can't be cached.
+     */
+    public BytesReference cacheKey() throws IOException {
+        BytesStreamOutput out = new BytesStreamOutput();
+        out.writeByte(searchType.id());
+        out.writeBytesReference(source);
+        out.writeBytesReference(extraSource);
+        out.writeStringArray(types);
+        out.writeStringArrayNullable(filteringAliases);
+        out.writeBytesReference(templateSource);
+        out.writeOptionalString(templateName);
+        boolean existTemplateParams = templateParams != null;
+        out.writeBoolean(existTemplateParams);
+        if (existTemplateParams) {
+            out.writeGenericValue(templateParams);
+        }
+        return out.bytes().copyBytesArray();
     }
 
     @Override
@@ -266,5 +306,8 @@ public class ShardSearchRequest extends TransportRequest {
         if (out.getVersion().onOrAfter(ParsedScrollId.SCROLL_SEARCH_AFTER_MINIMUM_VERSION)) {
             out.writeBoolean(useSlowScroll);
         }
+        if (out.getVersion().onOrAfter(Version.V_2_0_0)) {
+            out.writeOptionalString(parentTask);
+        }
     }
 }
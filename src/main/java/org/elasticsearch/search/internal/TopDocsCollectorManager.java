@@ -0,0 +1,68 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.elasticsearch.search.internal;
+
+import org.apache.lucene.search.*;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Collects the top hits of each slice, sorted by score or by the given sort, and merges them into the top hits of
+ * the searcher.
+ */
+public class TopDocsCollectorManager implements CollectorManager<TopDocsCollector<?>, TopDocs> {
+
+    private final Sort sort;
+    private final int numHits;
+    private final ScoreDoc after;
+    private final boolean trackDocScores;
+    private final boolean trackMaxScore;
+    private final boolean docsScoredInOrder;
+
+    public TopDocsCollectorManager(Sort sort, int numHits, ScoreDoc after, boolean trackDocScores, boolean trackMaxScore, boolean docsScoredInOrder) {
+        this.sort = sort;
+        this.numHits = numHits;
+        this.after = after;
+        this.trackDocScores = trackDocScores;
+        this.trackMaxScore = trackMaxScore;
+        this.docsScoredInOrder = docsScoredInOrder;
+    }
+
+    @Override
+    public TopDocsCollector<?> newCollector() throws IOException {
+        if (sort == null) {
+            return TopScoreDocCollector.create(numHits, after, docsScoredInOrder);
+        }
+        // the sort values are needed to merge the slices
+        return TopFieldCollector.create(sort, numHits, (FieldDoc) after, true, trackDocScores, trackMaxScore, docsScoredInOrder);
+    }
+
+    @Override
+    public TopDocs reduce(List<TopDocsCollector<?>> collectors) throws IOException {
+        final TopDocs[] topDocs = new TopDocs[collectors.size()];
+        for (int i = 0; i < topDocs.length; i++) {
+            topDocs[i] = collectors.get(i).topDocs();
+        }
+        // slices hold contiguous leaves, ties are broken by slice and then by doc id, like in a serial search
+        return TopDocs.merge(sort, numHits, topDocs);
+    }
+}
@@ -0,0 +1,59 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.profile;
+
+import org.elasticsearch.search.aggregations.Aggregator;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Profiles the top level aggregators of a search. The time spent in sub aggregators is included in the time of their
+ * top level aggregator.
+ */
+public class AggregationProfiler {
+
+    private final Map<Aggregator, ProfileBreakdown<AggregationTimingType>> breakdowns = new IdentityHashMap<>();
+
+    private final List<Aggregator> aggregators = new ArrayList<>();
+
+    public ProfileBreakdown<AggregationTimingType> breakdown(Aggregator aggregator) {
+        ProfileBreakdown<AggregationTimingType> breakdown = breakdowns.get(aggregator);
+        if (breakdown == null) {
+            breakdown = new ProfileBreakdown<>(AggregationTimingType.class);
+            breakdowns.put(aggregator, breakdown);
+            aggregators.add(aggregator);
+        }
+        return breakdown;
+    }
+
+    public List<ProfileResult> results() {
+        List<ProfileResult> results = new ArrayList<>(aggregators.size());
+        for (Aggregator aggregator : aggregators) {
+            ProfileBreakdown<AggregationTimingType> breakdown = breakdowns.get(aggregator);
+            results.add(new ProfileResult(aggregator.getClass().getSimpleName(), aggregator.name(), breakdown.totalTime(),
+                    breakdown.toMap(), Collections.<ProfileResult>emptyList()));
+        }
+        return results;
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.profile;
+
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.io.stream.Streamable;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.common.xcontent.ToXContent;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentBuilderString;
+
+import java.io.IOException;
+
+/**
+ * The time spent collecting the documents that matched the main query.
+ */
+public class CollectorResult implements Streamable, ToXContent {
+
+    private String name;
+    private long time;
+
+    CollectorResult() {
+    }
+
+    public CollectorResult(String name, long time) {
+        this.name = name;
+        this.time = time;
+    }
+
+    /**
+     * The name of the collector of the main query.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * The time spent collecting, in nanoseconds.
+     */
+    public long getTime() {
+        return time;
+    }
+
+    public static CollectorResult readCollectorResult(StreamInput in) throws IOException {
+        CollectorResult result = new CollectorResult();
+        result.readFrom(in);
+        return result;
+    }
+
+    @Override
+    public void readFrom(StreamInput in) throws IOException {
+        name = in.readString();
+        time = in.readVLong();
+    }
+
+    @Override
+    public void writeTo(StreamOutput out) throws IOException {
+        out.writeString(name);
+        out.writeVLong(time);
+    }
+
+    @Override
+    public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
+        builder.startObject();
+        builder.field(Fields.NAME, name);
+        if (builder.humanReadable()) {
+            builder.field(Fields.TIME, TimeValue.timeValueNanos(time).toString());
+        }
+        builder.field(Fields.TIME_IN_NANOS, time);
+        builder.endObject();
+        return builder;
+    }
+
+    static final class Fields {
+        static final XContentBuilderString NAME = new XContentBuilderString("name");
+        static final XContentBuilderString TIME = new XContentBuilderString("time");
+        static final XContentBuilderString TIME_IN_NANOS = new XContentBuilderString("time_in_nanos");
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.profile;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * The time spent by a query or an aggregator in each of its operations, along with the number of times each operation
+ * was called. Timings are in nanoseconds.
+ */
+public class ProfileBreakdown<T extends Enum<T>> {
+
+    private final T[] types;
+    private final long[] timings;
+    private final long[] counts;
+
+    public ProfileBreakdown(Class<T> type) {
+        this.types = type.getEnumConstants();
+        this.timings = new long[types.length];
+        this.counts = new long[types.length];
+    }
+
+    /**
+     * Records a call to the given operation, that started at the given {@link System#nanoTime()}.
+     */
+    public void record(T type, long startTime) {
+        timings[type.ordinal()] += Math.max(1, System.nanoTime() - startTime);
+        counts[type.ordinal()]++;
+    }
+
+    /**
+     * The total time spent in all the operations.
+     */
+    public long totalTime() {
+        long total = 0;
+        for (long timing : timings) {
+            total += timing;
+        }
+        return total;
+    }
+
+    /**
+     * The timings and counts of the operations, keyed by the lowercase name of the operation, and by the name
+     * followed by <tt>_count</tt> respectively.
+     */
+    public Map<String, Long> toMap() {
+        Map<String, Long> map = new LinkedHashMap<>();
+        for (T type : types) {
+            String name = type.name().toLowerCase(Locale.ROOT);
+            map.put(name, timings[type.ordinal()]);
+            map.put(name + "_count", counts[type.ordinal()]);
+        }
+        return map;
+    }
+}
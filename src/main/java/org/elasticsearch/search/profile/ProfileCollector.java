@@ -0,0 +1,81 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.profile;
+
+import org.apache.lucene.index.AtomicReaderContext;
+import org.apache.lucene.search.Collector;
+import org.apache.lucene.search.Scorer;
+
+import java.io.IOException;
+
+/**
+ * Wraps the collector of the main query to time the collection of the documents, including the time spent in the
+ * collectors it wraps in turn, like the ones of facets and aggregations.
+ */
+public class ProfileCollector extends Collector {
+
+    private final Collector collector;
+    private final String name;
+    private long time;
+
+    public ProfileCollector(Collector collector, String name) {
+        this.collector = collector;
+        this.name = name;
+    }
+
+    @Override
+    public void setScorer(Scorer scorer) throws IOException {
+        final long start = System.nanoTime();
+        try {
+            collector.setScorer(scorer);
+        } finally {
+            time += Math.max(1, System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public void collect(int doc) throws IOException {
+        final long start = System.nanoTime();
+        try {
+            collector.collect(doc);
+        } finally {
+            time += Math.max(1, System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public void setNextReader(AtomicReaderContext context) throws IOException {
+        final long start = System.nanoTime();
+        try {
+            collector.setNextReader(context);
+        } finally {
+            time += Math.max(1, System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public boolean acceptsDocsOutOfOrder() {
+        return collector.acceptsDocsOutOfOrder();
+    }
+
+    public CollectorResult result() {
+        return new CollectorResult(name, time);
+    }
+}
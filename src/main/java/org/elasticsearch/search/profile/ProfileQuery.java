@@ -0,0 +1,215 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.profile;
+
+import org.apache.lucene.index.AtomicReaderContext;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.*;
+import org.apache.lucene.util.Bits;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Wraps a node of the query tree to time the creation of its weight, and the operations of its scorers. The
+ * wrapped query must already be rewritten, its sub queries are wrapped as well by the {@link QueryProfiler}.
+ */
+public final class ProfileQuery extends Query {
+
+    private final Query query;
+    private final ProfileBreakdown<QueryTimingType> breakdown;
+    private final List<ProfileQuery> children;
+
+    ProfileQuery(Query query, List<ProfileQuery> children) {
+        this(query, new ProfileBreakdown<>(QueryTimingType.class), children);
+    }
+
+    private ProfileQuery(Query query, ProfileBreakdown<QueryTimingType> breakdown, List<ProfileQuery> children) {
+        this.query = query;
+        this.breakdown = breakdown;
+        this.children = children;
+    }
+
+    public Query getQuery() {
+        return query;
+    }
+
+    /**
+     * The profile of the query and of its sub queries.
+     */
+    public ProfileResult result() {
+        List<ProfileResult> childResults = new ArrayList<>(children.size());
+        long time = breakdown.totalTime();
+        for (ProfileQuery child : children) {
+            childResults.add(child.result());
+        }
+        return new ProfileResult(query.getClass().getSimpleName(), query.toString(), time, breakdown.toMap(), childResults);
+    }
+
+    @Override
+    public Query rewrite(IndexReader reader) throws IOException {
+        Query rewritten = query.rewrite(reader);
+        if (rewritten == query) {
+            return this;
+        }
+        ProfileQuery profileQuery = new ProfileQuery(rewritten, breakdown, children);
+        profileQuery.setBoost(getBoost());
+        return profileQuery;
+    }
+
+    @Override
+    public void extractTerms(Set<Term> terms) {
+        query.extractTerms(terms);
+    }
+
+    @Override
+    public Weight createWeight(IndexSearcher searcher) throws IOException {
+        final long start = System.nanoTime();
+        try {
+            return new ProfileWeight(query.createWeight(searcher));
+        } finally {
+            breakdown.record(QueryTimingType.CREATE_WEIGHT, start);
+        }
+    }
+
+    @Override
+    public String toString(String field) {
+        return query.toString(field);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        ProfileQuery other = (ProfileQuery) o;
+        return getBoost() == other.getBoost() && query.equals(other.query);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * query.hashCode() + Float.floatToIntBits(getBoost());
+    }
+
+    final class ProfileWeight extends Weight {
+
+        private final Weight weight;
+
+        ProfileWeight(Weight weight) {
+            this.weight = weight;
+        }
+
+        @Override
+        public Query getQuery() {
+            return ProfileQuery.this;
+        }
+
+        @Override
+        public float getValueForNormalization() throws IOException {
+            return weight.getValueForNormalization() * getBoost() * getBoost();
+        }
+
+        @Override
+        public void normalize(float norm, float topLevelBoost) {
+            weight.normalize(norm, topLevelBoost * getBoost());
+        }
+
+        @Override
+        public Scorer scorer(AtomicReaderContext context, Bits acceptDocs) throws IOException {
+            final long start = System.nanoTime();
+            final Scorer scorer;
+            try {
+                scorer = weight.scorer(context, acceptDocs);
+            } finally {
+                breakdown.record(QueryTimingType.BUILD_SCORER, start);
+            }
+            return scorer == null ? null : new ProfileScorer(this, scorer);
+        }
+
+        @Override
+        public boolean scoresDocsOutOfOrder() {
+            // the bulk scorer is built on top of the profiled scorer, which scores docs in order
+            return false;
+        }
+
+        @Override
+        public Explanation explain(AtomicReaderContext context, int doc) throws IOException {
+            return weight.explain(context, doc);
+        }
+    }
+
+    final class ProfileScorer extends Scorer {
+
+        private final Scorer scorer;
+
+        ProfileScorer(ProfileWeight weight, Scorer scorer) {
+            super(weight);
+            this.scorer = scorer;
+        }
+
+        @Override
+        public int docID() {
+            return scorer.docID();
+        }
+
+        @Override
+        public int nextDoc() throws IOException {
+            final long start = System.nanoTime();
+            try {
+                return scorer.nextDoc();
+            } finally {
+                breakdown.record(QueryTimingType.NEXT_DOC, start);
+            }
+        }
+
+        @Override
+        public int advance(int target) throws IOException {
+            final long start = System.nanoTime();
+            try {
+                return scorer.advance(target);
+            } finally {
+                breakdown.record(QueryTimingType.ADVANCE, start);
+            }
+        }
+
+        @Override
+        public float score() throws IOException {
+            final long start = System.nanoTime();
+            try {
+                return scorer.score();
+            } finally {
+                breakdown.record(QueryTimingType.SCORE, start);
+            }
+        }
+
+        @Override
+        public int freq() throws IOException {
+            return scorer.freq();
+        }
+
+        @Override
+        public long cost() {
+            return scorer.cost();
+        }
+    }
+}
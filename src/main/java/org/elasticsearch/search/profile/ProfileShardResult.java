@@ -0,0 +1,134 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.profile;
+
+import org.elasticsearch.common.Nullable;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.io.stream.Streamable;
+import org.elasticsearch.common.xcontent.ToXContent;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentBuilderString;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The profile of the query phase of a shard: the profiles of the queries it executed, of the collection of the
+ * main query and of the top level aggregators.
+ */
+public class ProfileShardResult implements Streamable, ToXContent {
+
+    private List<ProfileResult> queries;
+    private CollectorResult collector;
+    private List<ProfileResult> aggregations;
+
+    ProfileShardResult() {
+    }
+
+    public ProfileShardResult(List<ProfileResult> queries, @Nullable CollectorResult collector, List<ProfileResult> aggregations) {
+        this.queries = queries;
+        this.collector = collector;
+        this.aggregations = aggregations;
+    }
+
+    public List<ProfileResult> getQueryResults() {
+        return Collections.unmodifiableList(queries);
+    }
+
+    @Nullable
+    public CollectorResult getCollectorResult() {
+        return collector;
+    }
+
+    public List<ProfileResult> getAggregationResults() {
+        return Collections.unmodifiableList(aggregations);
+    }
+
+    public static ProfileShardResult readProfileShardResult(StreamInput in) throws IOException {
+        ProfileShardResult result = new ProfileShardResult();
+        result.readFrom(in);
+        return result;
+    }
+
+    @Override
+    public void readFrom(StreamInput in) throws IOException {
+        queries = readResults(in);
+        if (in.readBoolean()) {
+            collector = CollectorResult.readCollectorResult(in);
+        }
+        aggregations = readResults(in);
+    }
+
+    private static List<ProfileResult> readResults(StreamInput in) throws IOException {
+        int size = in.readVInt();
+        List<ProfileResult> results = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            results.add(ProfileResult.readProfileResult(in));
+        }
+        return results;
+    }
+
+    @Override
+    public void writeTo(StreamOutput out) throws IOException {
+        writeResults(queries, out);
+        if (collector == null) {
+            out.writeBoolean(false);
+        } else {
+            out.writeBoolean(true);
+            collector.writeTo(out);
+        }
+        writeResults(aggregations, out);
+    }
+
+    private static void writeResults(List<ProfileResult> results, StreamOutput out) throws IOException {
+        out.writeVInt(results.size());
+        for (ProfileResult result : results) {
+            result.writeTo(out);
+        }
+    }
+
+    @Override
+    public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
+        builder.startArray(Fields.QUERY);
+        for (ProfileResult query : queries) {
+            query.toXContent(builder, params);
+        }
+        builder.endArray();
+        if (collector != null) {
+            builder.field(Fields.COLLECTOR);
+            collector.toXContent(builder, params);
+        }
+        builder.startArray(Fields.AGGREGATIONS);
+        for (ProfileResult aggregation : aggregations) {
+            aggregation.toXContent(builder, params);
+        }
+        builder.endArray();
+        return builder;
+    }
+
+    static final class Fields {
+        static final XContentBuilderString QUERY = new XContentBuilderString("query");
+        static final XContentBuilderString COLLECTOR = new XContentBuilderString("collector");
+        static final XContentBuilderString AGGREGATIONS = new XContentBuilderString("aggregations");
+    }
+}
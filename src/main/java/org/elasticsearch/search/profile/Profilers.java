@@ -0,0 +1,52 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.profile;
+
+/**
+ * The profilers of the query phase of a shard search, that is executed with <tt>profile</tt> enabled.
+ */
+public class Profilers {
+
+    private final QueryProfiler queryProfiler = new QueryProfiler();
+
+    private final AggregationProfiler aggregationProfiler = new AggregationProfiler();
+
+    private ProfileCollector collector;
+
+    public QueryProfiler queryProfiler() {
+        return queryProfiler;
+    }
+
+    public AggregationProfiler aggregationProfiler() {
+        return aggregationProfiler;
+    }
+
+    /**
+     * Sets the profiled collector of the main query.
+     */
+    public void collector(ProfileCollector collector) {
+        this.collector = collector;
+    }
+
+    public ProfileShardResult buildShardResult() {
+        return new ProfileShardResult(queryProfiler.results(), collector == null ? null : collector.result(),
+                aggregationProfiler.results());
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.profile;
+
+import org.apache.lucene.search.*;
+import org.elasticsearch.common.lucene.search.XFilteredQuery;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Profiles the main query of a search. The rewritten query is copied into a tree of {@link ProfileQuery}s, one per
+ * node of the query: the clauses of boolean queries, the disjuncts of dis_max queries, and the queries of filtered
+ * and constant score queries are profiled on their own, any other query is profiled as a leaf.
+ */
+public class QueryProfiler {
+
+    private final List<ProfileQuery> roots = new ArrayList<>();
+
+    /**
+     * Returns a copy of the given rewritten query that profiles each of its nodes.
+     */
+    public Query profile(Query query) {
+        ProfileQuery profileQuery = wrap(query);
+        roots.add(profileQuery);
+        return profileQuery;
+    }
+
+    private ProfileQuery wrap(Query query) {
+        final List<ProfileQuery> children = new ArrayList<>();
+        final Query copy;
+        if (query.getClass() == BooleanQuery.class) {
+            BooleanQuery booleanQuery = (BooleanQuery) query;
+            BooleanQuery booleanCopy = new BooleanQuery(booleanQuery.isCoordDisabled());
+            booleanCopy.setMinimumNumberShouldMatch(booleanQuery.getMinimumNumberShouldMatch());
+            for (BooleanClause clause : booleanQuery.clauses()) {
+                ProfileQuery child = wrap(clause.getQuery());
+                children.add(child);
+                booleanCopy.add(child, clause.getOccur());
+            }
+            copy = booleanCopy;
+        } else if (query.getClass() == DisjunctionMaxQuery.class) {
+            DisjunctionMaxQuery disMaxQuery = (DisjunctionMaxQuery) query;
+            DisjunctionMaxQuery disMaxCopy = new DisjunctionMaxQuery(disMaxQuery.getTieBreakerMultiplier());
+            for (Query disjunct : disMaxQuery.getDisjuncts()) {
+                ProfileQuery child = wrap(disjunct);
+                children.add(child);
+                disMaxCopy.add(child);
+            }
+            copy = disMaxCopy;
+        } else if (query instanceof XFilteredQuery) {
+            XFilteredQuery filteredQuery = (XFilteredQuery) query;
+            ProfileQuery child = wrap(filteredQuery.getQuery());
+            children.add(child);
+            copy = new XFilteredQuery(child, filteredQuery.getFilter(), filteredQuery.getFilterStrategy());
+        } else if (query.getClass() == ConstantScoreQuery.class && ((ConstantScoreQuery) query).getQuery() != null) {
+            ProfileQuery child = wrap(((ConstantScoreQuery) query).getQuery());
+            children.add(child);
+            copy = new ConstantScoreQuery(child);
+        } else {
+            return new ProfileQuery(query, Collections.<ProfileQuery>emptyList());
+        }
+        copy.setBoost(query.getBoost());
+        return new ProfileQuery(copy, children);
+    }
+
+    /**
+     * The profiles of the queries that were profiled, in the order they were executed.
+     */
+    public List<ProfileResult> results() {
+        List<ProfileResult> results = new ArrayList<>(roots.size());
+        for (ProfileQuery root : roots) {
+            results.add(root.result());
+        }
+        return results;
+    }
+}
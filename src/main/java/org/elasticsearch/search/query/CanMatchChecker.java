@@ -0,0 +1,337 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.query;
+
+import org.apache.lucene.index.AtomicReaderContext;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.Terms;
+import org.apache.lucene.index.TermsEnum;
+import org.apache.lucene.search.NumericRangeQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.NumericUtils;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.xcontent.XContentHelper;
+import org.elasticsearch.common.xcontent.support.XContentMapValues;
+import org.elasticsearch.index.mapper.FieldMapper;
+import org.elasticsearch.index.mapper.MapperService;
+import org.elasticsearch.index.mapper.core.NumberFieldMapper;
+import org.elasticsearch.search.internal.ShardSearchRequest;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+import static org.elasticsearch.common.Strings.hasLength;
+
+/**
+ * Tells whether the query of a shard search request can match any document of the shard, without creating a search
+ * context. Only the range clauses on numeric and date fields that every matching document must satisfy are checked,
+ * against the values of the field in the terms dictionary of each segment, any other clause is assumed to match.
+ * <p/>
+ * Requests whose response doesn't only depend on the matching documents, like the ones with facets, suggestions,
+ * <tt>global</tt> aggregations or aggregations returning empty buckets, always match.
+ */
+public class CanMatchChecker {
+
+    private final MapperService mapperService;
+
+    public CanMatchChecker(MapperService mapperService) {
+        this.mapperService = mapperService;
+    }
+
+    public boolean canMatch(ShardSearchRequest request, IndexReader reader) throws IOException {
+        // like the template parsing of the search service, serialized requests have an empty template source
+        if ((request.templateSource() != null && request.templateSource().length() > 0) || hasLength(request.templateName())) {
+            return true;
+        }
+        final Map<String, Object> source = parse(request.source());
+        final Map<String, Object> extraSource = parse(request.extraSource());
+        if (!onlyDependsOnMatchingDocs(source) || !onlyDependsOnMatchingDocs(extraSource)) {
+            return true;
+        }
+        // the extra source is parsed last, its query wins
+        Object query = null;
+        if (extraSource != null && extraSource.containsKey("query")) {
+            query = extraSource.get("query");
+        } else if (source != null) {
+            query = source.get("query");
+        }
+        return query == null || canMatch(query, reader);
+    }
+
+    private static Map<String, Object> parse(BytesReference source) {
+        if (source == null || source.length() == 0) {
+            return null;
+        }
+        return XContentHelper.convertToMap(source, false).v2();
+    }
+
+    private static boolean onlyDependsOnMatchingDocs(Map<String, Object> source) {
+        if (source == null) {
+            return true;
+        }
+        if (source.containsKey("facets") || source.containsKey("suggest")) {
+            return false;
+        }
+        return !visitsAllDocs(source.get("aggregations")) && !visitsAllDocs(source.get("aggs"));
+    }
+
+    private static boolean visitsAllDocs(Object aggregations) {
+        if (aggregations instanceof Map) {
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) aggregations).entrySet()) {
+                if ("global".equals(entry.getKey())) {
+                    return true;
+                }
+                if ("min_doc_count".equals(entry.getKey()) || "minDocCount".equals(entry.getKey())) {
+                    if (XContentMapValues.nodeLongValue(entry.getValue(), 1) == 0) {
+                        return true;
+                    }
+                }
+                if (visitsAllDocs(entry.getValue())) {
+                    return true;
+                }
+            }
+        } else if (aggregations instanceof List) {
+            for (Object aggregation : (List<?>) aggregations) {
+                if (visitsAllDocs(aggregation)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private boolean canMatch(Object clause, IndexReader reader) throws IOException {
+        if (!(clause instanceof Map)) {
+            return true;
+        }
+        for (Map.Entry<?, ?> entry : ((Map<?, ?>) clause).entrySet()) {
+            final Object body = entry.getValue();
+            if (!(body instanceof Map)) {
+                // the and and or filters can be a plain array of filters
+                if ("and".equals(entry.getKey()) && !allCanMatch(body, reader)) {
+                    return false;
+                } else if ("or".equals(entry.getKey()) && !anyCanMatch(body, reader)) {
+                    return false;
+                }
+                continue;
+            }
+            final Map<?, ?> map = (Map<?, ?>) body;
+            switch ((String) entry.getKey()) {
+                case "range":
+                    for (Map.Entry<?, ?> range : map.entrySet()) {
+                        // skip the options of the filter, like _cache or _name
+                        if (range.getValue() instanceof Map && !rangeCanMatch((String) range.getKey(), (Map<?, ?>) range.getValue(), reader)) {
+                            return false;
+                        }
+                    }
+                    break;
+                case "bool":
+                    if (!allCanMatch(map.get("must"), reader)) {
+                        return false;
+                    }
+                    // without required clauses, at least one of the optional clauses has to match
+                    if (map.get("must") == null && map.get("should") != null && !map.containsKey("minimum_should_match")
+                            && !anyCanMatch(map.get("should"), reader)) {
+                        return false;
+                    }
+                    break;
+                case "filtered":
+                    if (!canMatch(map.get("query"), reader) || !canMatch(map.get("filter"), reader)) {
+                        return false;
+                    }
+                    break;
+                case "constant_score":
+                case "constantScore":
+                    if (!canMatch(map.get("filter"), reader) || !canMatch(map.get("query"), reader)) {
+                        return false;
+                    }
+                    break;
+                case "and":
+                    if (!allCanMatch(map.get("filters"), reader)) {
+                        return false;
+                    }
+                    break;
+                case "or":
+                    if (map.get("filters") != null && !anyCanMatch(map.get("filters"), reader)) {
+                        return false;
+                    }
+                    break;
+            }
+        }
+        return true;
+    }
+
+    private boolean allCanMatch(Object clauses, IndexReader reader) throws IOException {
+        if (clauses instanceof List) {
+            for (Object clause : (List<?>) clauses) {
+                if (!canMatch(clause, reader)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        return canMatch(clauses, reader);
+    }
+
+    private boolean anyCanMatch(Object clauses, IndexReader reader) throws IOException {
+        if (clauses instanceof List) {
+            final List<?> list = (List<?>) clauses;
+            for (Object clause : list) {
+                if (canMatch(clause, reader)) {
+                    return true;
+                }
+            }
+            return list.isEmpty();
+        }
+        return canMatch(clauses, reader);
+    }
+
+    private boolean rangeCanMatch(String fieldName, Map<?, ?> params, IndexReader reader) throws IOException {
+        final FieldMapper mapper = mapperService.smartNameFieldMapper(fieldName);
+        if (!(mapper instanceof NumberFieldMapper)) {
+            return true;
+        }
+        Object from = null;
+        Object to = null;
+        boolean includeLower = true;
+        boolean includeUpper = true;
+        for (Map.Entry<?, ?> param : params.entrySet()) {
+            final Object value = param.getValue();
+            switch ((String) param.getKey()) {
+                case "from":
+                    from = value;
+                    break;
+                case "to":
+                    to = value;
+                    break;
+                case "include_lower":
+                case "includeLower":
+                    includeLower = XContentMapValues.nodeBooleanValue(value);
+                    break;
+                case "include_upper":
+                case "includeUpper":
+                    includeUpper = XContentMapValues.nodeBooleanValue(value);
+                    break;
+                case "gt":
+                    from = value;
+                    includeLower = false;
+                    break;
+                case "gte":
+                    from = value;
+                    includeLower = true;
+                    break;
+                case "lt":
+                    to = value;
+                    includeUpper = false;
+                    break;
+                case "lte":
+                    to = value;
+                    includeUpper = true;
+                    break;
+                case "boost":
+                case "_name":
+                    break;
+                default:
+                    // time zones, formats and the like are left to the query phase
+                    return true;
+            }
+        }
+        final Query query = ((NumberFieldMapper) mapper).rangeQuery(from, to, includeLower, includeUpper, null);
+        if (!(query instanceof NumericRangeQuery)) {
+            return true;
+        }
+        return rangeCanMatch((NumericRangeQuery<?>) query, reader);
+    }
+
+    /**
+     * Checks whether a segment has a value in the range, with a single seek to the ceiling of the lower bound in the
+     * full precision terms of the field, which sort before the lower precision ones.
+     */
+    static boolean rangeCanMatch(NumericRangeQuery<?> query, IndexReader reader) throws IOException {
+        final Number min = query.getMin();
+        final Number max = query.getMax();
+        final boolean longs;
+        if (min instanceof Long || max instanceof Long || min instanceof Double || max instanceof Double) {
+            longs = true;
+        } else if (min instanceof Integer || max instanceof Integer || min instanceof Float || max instanceof Float) {
+            longs = false;
+        } else {
+            // unbounded
+            return true;
+        }
+        long lower = min == null ? (longs ? Long.MIN_VALUE : Integer.MIN_VALUE) : sortableBits(min);
+        long upper = max == null ? (longs ? Long.MAX_VALUE : Integer.MAX_VALUE) : sortableBits(max);
+        if (min != null && !query.includesMin()) {
+            if (lower == (longs ? Long.MAX_VALUE : Integer.MAX_VALUE)) {
+                return false;
+            }
+            lower++;
+        }
+        if (max != null && !query.includesMax()) {
+            if (upper == (longs ? Long.MIN_VALUE : Integer.MIN_VALUE)) {
+                return false;
+            }
+            upper--;
+        }
+        if (lower > upper) {
+            return false;
+        }
+
+        final BytesRef lowerTerm = new BytesRef(longs ? NumericUtils.BUF_SIZE_LONG : NumericUtils.BUF_SIZE_INT);
+        if (longs) {
+            NumericUtils.longToPrefixCoded(lower, 0, lowerTerm);
+        } else {
+            NumericUtils.intToPrefixCoded((int) lower, 0, lowerTerm);
+        }
+        TermsEnum termsEnum = null;
+        for (AtomicReaderContext context : reader.leaves()) {
+            final Terms terms = context.reader().terms(query.getField());
+            if (terms == null) {
+                continue;
+            }
+            termsEnum = terms.iterator(termsEnum);
+            if (termsEnum.seekCeil(lowerTerm) == TermsEnum.SeekStatus.END) {
+                continue;
+            }
+            final BytesRef term = termsEnum.term();
+            if (longs) {
+                if (NumericUtils.getPrefixCodedLongShift(term) == 0 && NumericUtils.prefixCodedToLong(term) <= upper) {
+                    return true;
+                }
+            } else {
+                if (NumericUtils.getPrefixCodedIntShift(term) == 0 && NumericUtils.prefixCodedToInt(term) <= upper) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static long sortableBits(Number value) {
+        if (value instanceof Double) {
+            return NumericUtils.doubleToSortableLong(value.doubleValue());
+        } else if (value instanceof Float) {
+            return NumericUtils.floatToSortableInt(value.floatValue());
+        }
+        return value.longValue();
+    }
+}
@@ -22,19 +22,23 @@ package org.elasticsearch.search.query;
 import com.google.common.collect.ImmutableMap;
 import org.apache.lucene.search.Query;
 import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.Sort;
 import org.apache.lucene.search.TopDocs;
-import org.apache.lucene.search.TotalHitCountCollector;
 import org.elasticsearch.action.search.SearchType;
 import org.elasticsearch.common.inject.Inject;
 import org.elasticsearch.common.lucene.Lucene;
+import org.elasticsearch.index.merge.policy.IndexSort;
 import org.elasticsearch.search.SearchParseElement;
 import org.elasticsearch.search.SearchPhase;
 import org.elasticsearch.search.aggregations.AggregationPhase;
 import org.elasticsearch.search.facet.FacetPhase;
 import org.elasticsearch.search.internal.ContextIndexSearcher;
 import org.elasticsearch.search.internal.SearchContext;
+import org.elasticsearch.search.internal.TotalHitCountCollectorManager;
+import org.elasticsearch.search.profile.ProfileParseElement;
 import org.elasticsearch.search.rescore.RescorePhase;
 import org.elasticsearch.search.rescore.RescoreSearchContext;
+import org.elasticsearch.search.slice.SliceParseElement;
 import org.elasticsearch.search.sort.SortParseElement;
 import org.elasticsearch.search.sort.TrackScoresParseElement;
 import org.elasticsearch.search.suggest.SuggestPhase;
@@ -79,6 +83,8 @@ public class QueryPhase implements SearchPhase {
                 .put("min_score", new MinScoreParseElement())
                 .put("minScore", new MinScoreParseElement())
                 .put("timeout", new TimeoutParseElement())
+                .put("slice", new SliceParseElement())
+                .put("profile", new ProfileParseElement())
                 .putAll(facetPhase.parseElements())
                 .putAll(aggregationPhase.parseElements())
                 .putAll(suggestPhase.parseElements())
@@ -112,9 +118,8 @@ public class QueryPhase implements SearchPhase {
             int numDocs = searchContext.from() + searchContext.size();
 
             if (searchContext.searchType() == SearchType.COUNT || numDocs == 0) {
-                TotalHitCountCollector collector = new TotalHitCountCollector();
-                searchContext.searcher().search(query, collector);
-                topDocs = new TopDocs(collector.getTotalHits(), Lucene.EMPTY_SCORE_DOCS, 0);
+                int totalHits = searchContext.searcher().search(query, new TotalHitCountCollectorManager());
+                topDocs = new TopDocs(totalHits, Lucene.EMPTY_SCORE_DOCS, 0);
             } else if (searchContext.searchType() == SearchType.SCAN) {
                 topDocs = searchContext.scanContext().execute(searchContext);
             } else {
@@ -146,6 +151,11 @@ public class QueryPhase implements SearchPhase {
                     }
                 } else {
                     if (searchContext.sort() != null) {
+                        final Sort indexSort = IndexSort.indexSort(searchContext.indexShard().indexService().settingsService().getSettings());
+                        if (indexSort != null && IndexSort.sortsLike(indexSort, searchContext.sort())
+                                && searchContext.searcher().earlyTerminate(indexSort, numDocs)) {
+                            searchContext.queryResult().terminatedEarly(false);
+                        }
                         topDocs = searchContext.searcher().search(query, null, numDocs, searchContext.sort(),
                                 searchContext.trackScores(), searchContext.trackScores());
                     } else {
@@ -169,5 +179,8 @@ public class QueryPhase implements SearchPhase {
         suggestPhase.execute(searchContext);
         facetPhase.execute(searchContext);
         aggregationPhase.execute(searchContext);
+        if (searchContext.profilers() != null) {
+            searchContext.queryResult().profileResults(searchContext.profilers().buildShardResult());
+        }
     }
 }
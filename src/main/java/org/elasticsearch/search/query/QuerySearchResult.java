@@ -20,6 +20,8 @@
 package org.elasticsearch.search.query;
 
 import org.apache.lucene.search.TopDocs;
+import org.elasticsearch.Version;
+import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.search.SearchShardTarget;
@@ -27,6 +29,7 @@ import org.elasticsearch.search.aggregations.Aggregations;
 import org.elasticsearch.search.aggregations.InternalAggregations;
 import org.elasticsearch.search.facet.Facets;
 import org.elasticsearch.search.facet.InternalFacets;
+import org.elasticsearch.search.profile.ProfileShardResult;
 import org.elasticsearch.search.suggest.Suggest;
 import org.elasticsearch.transport.TransportResponse;
 
@@ -49,6 +52,10 @@ public class QuerySearchResult extends TransportResponse implements QuerySearchR
     private InternalAggregations aggregations;
     private Suggest suggest;
     private boolean searchTimedOut;
+    private int nodeQueueSize = -1;
+    private long serviceTimeEWMA = -1;
+    private ProfileShardResult profileResults;
+    private Boolean terminatedEarly;
 
     public QuerySearchResult() {
 
@@ -90,6 +97,19 @@ public class QuerySearchResult extends TransportResponse implements QuerySearchR
         return searchTimedOut;
     }
 
+    /**
+     * Whether the collection of the main query was terminated early, <tt>null</tt> if the search couldn't terminate
+     * early.
+     */
+    @Nullable
+    public Boolean terminatedEarly() {
+        return terminatedEarly;
+    }
+
+    public void terminatedEarly(boolean terminatedEarly) {
+        this.terminatedEarly = terminatedEarly;
+    }
+
     public TopDocs topDocs() {
         return topDocs;
     }
@@ -122,6 +142,44 @@ public class QuerySearchResult extends TransportResponse implements QuerySearchR
         this.suggest = suggest;
     }
 
+    /**
+     * The number of tasks queued in the search thread pool of the node that executed the query phase, <tt>-1</tt> if
+     * unknown.
+     */
+    public int nodeQueueSize() {
+        return nodeQueueSize;
+    }
+
+    public QuerySearchResult nodeQueueSize(int nodeQueueSize) {
+        this.nodeQueueSize = nodeQueueSize;
+        return this;
+    }
+
+    /**
+     * The moving average of the time, in nanoseconds, the node that executed the query phase spends executing
+     * query phases, <tt>-1</tt> if unknown.
+     */
+    public long serviceTimeEWMA() {
+        return serviceTimeEWMA;
+    }
+
+    public QuerySearchResult serviceTimeEWMA(long serviceTimeEWMA) {
+        this.serviceTimeEWMA = serviceTimeEWMA;
+        return this;
+    }
+
+    /**
+     * The profile of the query phase, if it was profiled.
+     */
+    @Nullable
+    public ProfileShardResult profileResults() {
+        return profileResults;
+    }
+
+    public void profileResults(ProfileShardResult profileResults) {
+        this.profileResults = profileResults;
+    }
+
     public int from() {
         return from;
     }
@@ -149,7 +207,12 @@ public class QuerySearchResult extends TransportResponse implements QuerySearchR
     @Override
     public void readFrom(StreamInput in) throws IOException {
         super.readFrom(in);
-        id = in.readLong();
+        long id = in.readLong();
+        readFromWithId(id, in);
+    }
+
+    public void readFromWithId(long id, StreamInput in) throws IOException {
+        this.id = id;
 //        shardTarget = readSearchShardTarget(in);
         from = in.readVInt();
         size = in.readVInt();
@@ -164,12 +227,24 @@ public class QuerySearchResult extends TransportResponse implements QuerySearchR
             suggest = Suggest.readSuggest(Suggest.Fields.SUGGEST, in);
         }
         searchTimedOut = in.readBoolean();
+        if (in.getVersion().onOrAfter(Version.V_2_0_0)) {
+            nodeQueueSize = in.readInt();
+            serviceTimeEWMA = in.readLong();
+            if (in.readBoolean()) {
+                profileResults = ProfileShardResult.readProfileShardResult(in);
+            }
+            terminatedEarly = in.readOptionalBoolean();
+        }
     }
 
     @Override
     public void writeTo(StreamOutput out) throws IOException {
         super.writeTo(out);
         out.writeLong(id);
+        writeToNoId(out);
+    }
+
+    public void writeToNoId(StreamOutput out) throws IOException {
 //        shardTarget.writeTo(out);
         out.writeVInt(from);
         out.writeVInt(size);
@@ -193,5 +268,16 @@ public class QuerySearchResult extends TransportResponse implements QuerySearchR
             suggest.writeTo(out);
         }
         out.writeBoolean(searchTimedOut);
+        if (out.getVersion().onOrAfter(Version.V_2_0_0)) {
+            out.writeInt(nodeQueueSize);
+            out.writeLong(serviceTimeEWMA);
+            if (profileResults == null) {
+                out.writeBoolean(false);
+            } else {
+                out.writeBoolean(true);
+                profileResults.writeTo(out);
+            }
+            out.writeOptionalBoolean(terminatedEarly);
+        }
     }
 }
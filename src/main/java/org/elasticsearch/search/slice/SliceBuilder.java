@@ -0,0 +1,161 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.slice;
+
+import org.apache.lucene.search.CachingWrapperFilter;
+import org.apache.lucene.search.Filter;
+import org.elasticsearch.ElasticsearchIllegalArgumentException;
+import org.elasticsearch.common.lucene.search.MatchNoDocsFilter;
+import org.elasticsearch.common.lucene.search.Queries;
+import org.elasticsearch.common.xcontent.ToXContent;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.index.mapper.FieldMapper;
+import org.elasticsearch.index.mapper.internal.UidFieldMapper;
+import org.elasticsearch.search.SearchParseException;
+import org.elasticsearch.search.internal.SearchContext;
+
+import java.io.IOException;
+
+/**
+ * A slice of a scrolled search, the <tt>id</tt>-th out of <tt>max</tt> slices. Scrolling over every slice of a
+ * search, possibly in parallel, returns the same documents as scrolling over the search without slicing.
+ * <p/>
+ * When there are at least as many shards as slices, every slice gets whole shards. Otherwise the shards are split
+ * between the slices that target them, based on the hash of the terms of a field, the <tt>_uid</tt> by default.
+ */
+public class SliceBuilder implements ToXContent {
+
+    public static final String FIELD = "field";
+    public static final String ID = "id";
+    public static final String MAX = "max";
+
+    private String field = UidFieldMapper.NAME;
+    private int id = -1;
+    private int max = -1;
+
+    public SliceBuilder() {
+    }
+
+    public SliceBuilder(int id, int max) {
+        this(UidFieldMapper.NAME, id, max);
+    }
+
+    public SliceBuilder(String field, int id, int max) {
+        field(field);
+        id(id);
+        max(max);
+    }
+
+    /**
+     * The field whose terms are hashed to split a shard between slices. Its terms should be unique per document,
+     * like the ones of the <tt>_uid</tt> field which is used by default.
+     */
+    public SliceBuilder field(String field) {
+        if (field == null || field.isEmpty()) {
+            throw new ElasticsearchIllegalArgumentException("[" + FIELD + "] must not be empty");
+        }
+        this.field = field;
+        return this;
+    }
+
+    public String field() {
+        return field;
+    }
+
+    /**
+     * The id of the slice, between <tt>0</tt> and <tt>max - 1</tt>.
+     */
+    public SliceBuilder id(int id) {
+        if (id < 0) {
+            throw new ElasticsearchIllegalArgumentException("[" + ID + "] must be greater than or equal to 0");
+        }
+        if (max != -1 && id >= max) {
+            throw new ElasticsearchIllegalArgumentException("[" + ID + "] must be lower than [" + MAX + "]");
+        }
+        this.id = id;
+        return this;
+    }
+
+    public int id() {
+        return id;
+    }
+
+    /**
+     * The number of slices, at least <tt>2</tt>.
+     */
+    public SliceBuilder max(int max) {
+        if (max <= 1) {
+            throw new ElasticsearchIllegalArgumentException("[" + MAX + "] must be greater than 1");
+        }
+        if (id != -1 && id >= max) {
+            throw new ElasticsearchIllegalArgumentException("[" + ID + "] must be lower than [" + MAX + "]");
+        }
+        this.max = max;
+        return this;
+    }
+
+    public int max() {
+        return max;
+    }
+
+    /**
+     * Builds the filter that restricts the shard of the given context to the documents of this slice.
+     */
+    public Filter toFilter(SearchContext context) {
+        final int shardId = context.shardTarget().shardId();
+        final int numShards = context.numberOfShards();
+        if (numShards >= max) {
+            // whole shards, the shards of a slice are max apart
+            return shardId % max == id ? Queries.MATCH_ALL_FILTER : new MatchNoDocsFilter();
+        }
+        // the slice only targets a single shard, which it shares with the other slices targeting it
+        final int targetShard = id % numShards;
+        if (targetShard != shardId) {
+            return new MatchNoDocsFilter();
+        }
+        int numSlicesInShard = max / numShards;
+        if (max % numShards > targetShard) {
+            numSlicesInShard++;
+        }
+        if (numSlicesInShard == 1) {
+            return Queries.MATCH_ALL_FILTER;
+        }
+        final FieldMapper<?> mapper = context.smartNameFieldMapper(field);
+        if (mapper == null) {
+            throw new SearchParseException(context, "field [" + field + "] used to slice the search isn't mapped");
+        }
+        if (!mapper.fieldType().indexed()) {
+            throw new SearchParseException(context, "field [" + field + "] used to slice the search must be indexed");
+        }
+        // hashing the terms of a segment is as costly as reading them all, the filter lives in the search context so
+        // the segments are hashed once per scroll rather than once per page
+        return new CachingWrapperFilter(new TermsSliceFilter(mapper.names().indexName(), id / numShards, numSlicesInShard));
+    }
+
+    @Override
+    public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
+        builder.startObject();
+        builder.field(FIELD, field);
+        builder.field(ID, id);
+        builder.field(MAX, max);
+        builder.endObject();
+        return builder;
+    }
+}
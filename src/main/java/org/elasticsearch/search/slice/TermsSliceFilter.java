@@ -0,0 +1,115 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.slice;
+
+import org.apache.lucene.index.AtomicReaderContext;
+import org.apache.lucene.index.DocsEnum;
+import org.apache.lucene.index.Terms;
+import org.apache.lucene.index.TermsEnum;
+import org.apache.lucene.search.DocIdSet;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.search.Filter;
+import org.apache.lucene.util.Bits;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.FixedBitSet;
+import org.elasticsearch.common.hash.MurmurHash3;
+
+import java.io.IOException;
+
+/**
+ * A filter that matches the documents of a slice, the ones with a term of the field whose hash modulo <tt>max</tt>
+ * is the <tt>id</tt> of the slice. It only needs the terms dictionary and the postings of the field, and the terms
+ * of the field should be unique per document for every document to belong to a single slice.
+ */
+public final class TermsSliceFilter extends Filter {
+
+    private final String field;
+    private final int id;
+    private final int max;
+
+    public TermsSliceFilter(String field, int id, int max) {
+        this.field = field;
+        this.id = id;
+        this.max = max;
+    }
+
+    public String getField() {
+        return field;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public int getMax() {
+        return max;
+    }
+
+    @Override
+    public DocIdSet getDocIdSet(AtomicReaderContext context, Bits acceptDocs) throws IOException {
+        final Terms terms = context.reader().terms(field);
+        if (terms == null) {
+            return null;
+        }
+        final MurmurHash3.Hash128 hash = new MurmurHash3.Hash128();
+        final TermsEnum termsEnum = terms.iterator(null);
+        FixedBitSet result = null;
+        DocsEnum docsEnum = null;
+        for (BytesRef term = termsEnum.next(); term != null; term = termsEnum.next()) {
+            MurmurHash3.hash128(term.bytes, term.offset, term.length, 0, hash);
+            if ((int) ((hash.h1 & Long.MAX_VALUE) % max) != id) {
+                continue;
+            }
+            docsEnum = termsEnum.docs(acceptDocs, docsEnum, DocsEnum.FLAG_NONE);
+            for (int doc = docsEnum.nextDoc(); doc != DocIdSetIterator.NO_MORE_DOCS; doc = docsEnum.nextDoc()) {
+                if (result == null) {
+                    result = new FixedBitSet(context.reader().maxDoc());
+                }
+                result.set(doc);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        TermsSliceFilter that = (TermsSliceFilter) o;
+        return id == that.id && max == that.max && field.equals(that.field);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = field.hashCode();
+        result = 31 * result + id;
+        result = 31 * result + max;
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "slice(" + field + ":" + id + "/" + max + ")";
+    }
+}
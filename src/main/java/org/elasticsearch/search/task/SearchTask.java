@@ -0,0 +1,102 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.task;
+
+import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
+
+import java.util.Set;
+
+/**
+ * A search request in flight on its coordinating node. The shard requests it sends carry its {@link #fullId()}, so
+ * that cancelling the task also cancels the searches of its shards, on the nodes it sent them to.
+ */
+public class SearchTask {
+
+    private final String nodeId;
+    private final long id;
+    private final String action;
+    private final String description;
+    private final long startTime = System.currentTimeMillis();
+    private final Set<String> nodes = ConcurrentCollections.newConcurrentSet();
+    private volatile boolean cancelled;
+
+    SearchTask(String nodeId, long id, String action, String description) {
+        this.nodeId = nodeId;
+        this.id = id;
+        this.action = action;
+        this.description = description;
+    }
+
+    /**
+     * The id of the task on its node.
+     */
+    public long id() {
+        return id;
+    }
+
+    /**
+     * The id of the task in the cluster, <tt>node_id:id</tt>.
+     */
+    public String fullId() {
+        return fullId(nodeId, id);
+    }
+
+    public String action() {
+        return action;
+    }
+
+    public String description() {
+        return description;
+    }
+
+    public long startTime() {
+        return startTime;
+    }
+
+    /**
+     * Records that a shard request of the task was sent to the given node.
+     */
+    public void addNode(String nodeId) {
+        nodes.add(nodeId);
+    }
+
+    /**
+     * The nodes the shard requests of the task were sent to.
+     */
+    public Set<String> nodes() {
+        return nodes;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    void cancel() {
+        cancelled = true;
+    }
+
+    public SearchTaskInfo info() {
+        return new SearchTaskInfo(nodeId, id, action, description, null, startTime, System.currentTimeMillis() - startTime, cancelled);
+    }
+
+    public static String fullId(String nodeId, long id) {
+        return nodeId + ":" + id;
+    }
+}
@@ -0,0 +1,165 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.task;
+
+import org.elasticsearch.common.Nullable;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.io.stream.Streamable;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.common.xcontent.ToXContent;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentBuilderString;
+
+import java.io.IOException;
+
+/**
+ * A snapshot of a search in flight on a node, either a {@link SearchTask} of the coordinating node or the search of a
+ * shard, whose parent task is the search task that sent it.
+ */
+public class SearchTaskInfo implements Streamable, ToXContent {
+
+    private String node;
+    private long id;
+    private String action;
+    private String description;
+    private String parentTask;
+    private long startTime;
+    private long runningTime;
+    private boolean cancelled;
+
+    SearchTaskInfo() {
+    }
+
+    public SearchTaskInfo(String node, long id, String action, String description, @Nullable String parentTask,
+                          long startTime, long runningTime, boolean cancelled) {
+        this.node = node;
+        this.id = id;
+        this.action = action;
+        this.description = description;
+        this.parentTask = parentTask;
+        this.startTime = startTime;
+        this.runningTime = runningTime;
+        this.cancelled = cancelled;
+    }
+
+    public String getNode() {
+        return node;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    /**
+     * The id of the task in the cluster, <tt>node_id:id</tt>.
+     */
+    public String getFullId() {
+        return SearchTask.fullId(node, id);
+    }
+
+    public String getAction() {
+        return action;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    /**
+     * The full id of the search task this shard search is part of, <tt>null</tt> for search tasks.
+     */
+    @Nullable
+    public String getParentTask() {
+        return parentTask;
+    }
+
+    public long getStartTime() {
+        return startTime;
+    }
+
+    public TimeValue getRunningTime() {
+        return new TimeValue(runningTime);
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    public static SearchTaskInfo readSearchTaskInfo(StreamInput in) throws IOException {
+        SearchTaskInfo info = new SearchTaskInfo();
+        info.readFrom(in);
+        return info;
+    }
+
+    @Override
+    public void readFrom(StreamInput in) throws IOException {
+        node = in.readString();
+        id = in.readLong();
+        action = in.readString();
+        description = in.readString();
+        parentTask = in.readOptionalString();
+        startTime = in.readVLong();
+        runningTime = in.readVLong();
+        cancelled = in.readBoolean();
+    }
+
+    @Override
+    public void writeTo(StreamOutput out) throws IOException {
+        out.writeString(node);
+        out.writeLong(id);
+        out.writeString(action);
+        out.writeString(description);
+        out.writeOptionalString(parentTask);
+        out.writeVLong(startTime);
+        out.writeVLong(runningTime);
+        out.writeBoolean(cancelled);
+    }
+
+    @Override
+    public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
+        builder.startObject();
+        builder.field(Fields.NODE, node);
+        builder.field(Fields.ID, id);
+        builder.field(Fields.ACTION, action);
+        builder.field(Fields.DESCRIPTION, description);
+        if (parentTask != null) {
+            builder.field(Fields.PARENT_TASK, parentTask);
+        }
+        builder.dateValueField(Fields.START_TIME_IN_MILLIS, Fields.START_TIME, startTime);
+        builder.timeValueField(Fields.RUNNING_TIME_IN_MILLIS, Fields.RUNNING_TIME, runningTime);
+        builder.field(Fields.CANCELLED, cancelled);
+        builder.endObject();
+        return builder;
+    }
+
+    static final class Fields {
+        static final XContentBuilderString NODE = new XContentBuilderString("node");
+        static final XContentBuilderString ID = new XContentBuilderString("id");
+        static final XContentBuilderString ACTION = new XContentBuilderString("action");
+        static final XContentBuilderString DESCRIPTION = new XContentBuilderString("description");
+        static final XContentBuilderString PARENT_TASK = new XContentBuilderString("parent_task");
+        static final XContentBuilderString START_TIME = new XContentBuilderString("start_time");
+        static final XContentBuilderString START_TIME_IN_MILLIS = new XContentBuilderString("start_time_in_millis");
+        static final XContentBuilderString RUNNING_TIME = new XContentBuilderString("running_time");
+        static final XContentBuilderString RUNNING_TIME_IN_MILLIS = new XContentBuilderString("running_time_in_millis");
+        static final XContentBuilderString CANCELLED = new XContentBuilderString("cancelled");
+    }
+}
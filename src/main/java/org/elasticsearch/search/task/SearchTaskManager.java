@@ -0,0 +1,95 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.task;
+
+import org.elasticsearch.ElasticsearchIllegalArgumentException;
+import org.elasticsearch.cluster.ClusterService;
+import org.elasticsearch.common.collect.Tuple;
+import org.elasticsearch.common.component.AbstractComponent;
+import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
+import org.elasticsearch.common.util.concurrent.ConcurrentMapLong;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The registry of the {@link SearchTask}s in flight on the node, the search requests it coordinates.
+ */
+public class SearchTaskManager extends AbstractComponent {
+
+    private final ClusterService clusterService;
+
+    private final AtomicLong idGenerator = new AtomicLong();
+
+    private final ConcurrentMapLong<SearchTask> tasks = ConcurrentCollections.newConcurrentMapLong();
+
+    @Inject
+    public SearchTaskManager(Settings settings, ClusterService clusterService) {
+        super(settings);
+        this.clusterService = clusterService;
+    }
+
+    /**
+     * Registers a new search task, it must be {@link #unregister(SearchTask) unregistered} once the search is done.
+     */
+    public SearchTask register(String action, String description) {
+        SearchTask task = new SearchTask(clusterService.localNode().id(), idGenerator.incrementAndGet(), action, description);
+        tasks.put(task.id(), task);
+        return task;
+    }
+
+    public void unregister(SearchTask task) {
+        tasks.remove(task.id());
+    }
+
+    /**
+     * Marks the task with the given id as cancelled, returns <tt>null</tt> if there is no such task. The coordinating
+     * actions stop at their next phase, the caller still has to cancel the searches of the shards of the task.
+     */
+    public SearchTask cancel(long id) {
+        SearchTask task = tasks.get(id);
+        if (task != null) {
+            task.cancel();
+        }
+        return task;
+    }
+
+    public List<SearchTask> tasks() {
+        return new ArrayList<>(tasks.values());
+    }
+
+    /**
+     * Parses the full id of a task, <tt>node_id:id</tt>, into its node id and id.
+     */
+    public static Tuple<String, Long> parseFullId(String fullId) {
+        int index = fullId == null ? -1 : fullId.lastIndexOf(':');
+        if (index <= 0 || index == fullId.length() - 1) {
+            throw new ElasticsearchIllegalArgumentException("malformed search task id [" + fullId + "], expected [node_id:id]");
+        }
+        try {
+            return new Tuple<>(fullId.substring(0, index), Long.parseLong(fullId.substring(index + 1)));
+        } catch (NumberFormatException e) {
+            throw new ElasticsearchIllegalArgumentException("malformed search task id [" + fullId + "], expected [node_id:id]");
+        }
+    }
+}
@@ -0,0 +1,165 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.benchmark.search.aggregations;
+
+import org.apache.lucene.analysis.core.KeywordAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field.Store;
+import org.apache.lucene.document.LongField;
+import org.apache.lucene.document.NumericDocValuesField;
+import org.apache.lucene.index.AtomicReader;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.SlowCompositeReaderWrapper;
+import org.apache.lucene.store.RAMDirectory;
+import org.elasticsearch.common.lucene.Lucene;
+import org.elasticsearch.index.Index;
+import org.elasticsearch.index.fielddata.AtomicNumericFieldData;
+import org.elasticsearch.index.fielddata.DoubleValues;
+import org.elasticsearch.index.fielddata.IndexFieldDataService;
+import org.elasticsearch.index.fielddata.IndexNumericFieldData;
+import org.elasticsearch.index.fielddata.plain.NumericDVAtomicFieldData;
+import org.elasticsearch.index.mapper.ContentPath;
+import org.elasticsearch.index.mapper.Mapper.BuilderContext;
+import org.elasticsearch.index.mapper.core.LongFieldMapper;
+import org.elasticsearch.indices.fielddata.breaker.DummyCircuitBreakerService;
+
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Compares the collection of numeric metrics (count, sum, min and max) document per document through
+ * {@link DoubleValues#setDocument(int)}/{@link DoubleValues#nextValue()}, which is what metric aggregators do
+ * when collecting a single document, with the batch collection path which reads the values of a batch of
+ * documents with {@link DoubleValues#fill(int[], int, double[])} and reduces them in a tight loop.
+ */
+public class NumericMetricsCollectionBenchmark {
+
+    private static final Random RANDOM = new Random(0);
+    private static final int NUM_DOCS = 5000000;
+    private static final int BATCH_SIZE = 1024;
+    private static final int WARMUP_ITERS = 10;
+    private static final int ITERS = 20;
+
+    // To avoid JVM optimizations
+    @SuppressWarnings("unused")
+    private static double DUMMY;
+
+    enum Mode {
+        PER_DOC {
+            @Override
+            double collect(DoubleValues values, int[] docs, int count, double[] buffer, double[] stats) {
+                for (int i = 0; i < count; i++) {
+                    final int valueCount = values.setDocument(docs[i]);
+                    stats[0] += valueCount;
+                    for (int j = 0; j < valueCount; j++) {
+                        final double value = values.nextValue();
+                        stats[1] += value;
+                        stats[2] = Math.min(stats[2], value);
+                        stats[3] = Math.max(stats[3], value);
+                    }
+                }
+                return stats[1];
+            }
+        },
+        BATCH {
+            @Override
+            double collect(DoubleValues values, int[] docs, int count, double[] buffer, double[] stats) {
+                final int valueCount = values.fill(docs, count, buffer);
+                double sum = 0;
+                double min = stats[2];
+                double max = stats[3];
+                for (int i = 0; i < valueCount; i++) {
+                    final double value = buffer[i];
+                    sum += value;
+                    min = Math.min(min, value);
+                    max = Math.max(max, value);
+                }
+                stats[0] += valueCount;
+                stats[1] += sum;
+                stats[2] = min;
+                stats[3] = max;
+                return stats[1];
+            }
+        };
+
+        abstract double collect(DoubleValues values, int[] docs, int count, double[] buffer, double[] stats);
+    }
+
+    public static void main(String[] args) throws Exception {
+        final String fieldName = "f";
+        final String docValuesFieldName = "f_dv";
+        final RAMDirectory dir = new RAMDirectory();
+        final IndexWriter indexWriter = new IndexWriter(dir, new IndexWriterConfig(Lucene.VERSION, new KeywordAnalyzer()));
+        for (int i = 0; i < NUM_DOCS; ++i) {
+            final Document doc = new Document();
+            final long value = RANDOM.nextInt(1 << 20);
+            doc.add(new LongField(fieldName, value, Store.NO));
+            doc.add(new NumericDocValuesField(docValuesFieldName, value));
+            indexWriter.addDocument(doc);
+        }
+        indexWriter.forceMerge(1, true);
+        indexWriter.close();
+
+        final DirectoryReader dr = DirectoryReader.open(dir);
+        final AtomicReader reader = SlowCompositeReaderWrapper.wrap(dr);
+        final IndexFieldDataService fds = new IndexFieldDataService(new Index("dummy"), new DummyCircuitBreakerService());
+        final LongFieldMapper mapper = new LongFieldMapper.Builder(fieldName).build(new BuilderContext(null, new ContentPath(1)));
+        final IndexNumericFieldData<AtomicNumericFieldData> fd = fds.getForField(mapper);
+        final AtomicNumericFieldData fieldData = fd.loadDirect(reader.getContext());
+        final AtomicNumericFieldData docValues = new NumericDVAtomicFieldData(reader, docValuesFieldName);
+
+        System.out.println("Source\tDocs\tMode\tns/doc");
+        for (AtomicNumericFieldData data : new AtomicNumericFieldData[] {fieldData, docValues}) {
+            for (int every : new int[] {1, 10}) {
+                final int[] docs = new int[NUM_DOCS / every];
+                for (int i = 0; i < docs.length; ++i) {
+                    docs[i] = i * every;
+                }
+                for (Mode mode : Mode.values()) {
+                    final DoubleValues values = data.getDoubleValues();
+                    for (int i = 0; i < WARMUP_ITERS; ++i) {
+                        run(mode, values, docs);
+                    }
+                    final long start = System.nanoTime();
+                    for (int i = 0; i < ITERS; ++i) {
+                        run(mode, values, docs);
+                    }
+                    final long elapsed = System.nanoTime() - start;
+                    System.out.println(data.getClass().getSimpleName() + "\t" + (every == 1 ? "all" : "1/" + every) + "\t"
+                            + mode + "\t" + String.format(Locale.ROOT, "%.2f", (double) elapsed / ITERS / docs.length));
+                }
+            }
+        }
+        dr.close();
+    }
+
+    private static void run(Mode mode, DoubleValues values, int[] docs) {
+        final int[] batch = new int[BATCH_SIZE];
+        final double[] buffer = new double[BATCH_SIZE];
+        final double[] stats = new double[] {0, 0, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY};
+        for (int i = 0; i < docs.length; i += BATCH_SIZE) {
+            final int count = Math.min(BATCH_SIZE, docs.length - i);
+            System.arraycopy(docs, i, batch, 0, count);
+            DUMMY += mode.collect(values, batch, count, buffer, stats);
+        }
+    }
+}
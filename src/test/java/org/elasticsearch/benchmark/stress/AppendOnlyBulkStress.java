@@ -0,0 +1,130 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.benchmark.stress;
+
+import org.elasticsearch.action.bulk.BulkRequestBuilder;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.client.Client;
+import org.elasticsearch.client.Requests;
+import org.elasticsearch.common.StopWatch;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.SizeValue;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.index.engine.internal.InternalEngine;
+import org.elasticsearch.node.Node;
+
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.elasticsearch.cluster.metadata.IndexMetaData.SETTING_NUMBER_OF_REPLICAS;
+import static org.elasticsearch.cluster.metadata.IndexMetaData.SETTING_NUMBER_OF_SHARDS;
+import static org.elasticsearch.common.settings.ImmutableSettings.settingsBuilder;
+import static org.elasticsearch.common.xcontent.XContentFactory.jsonBuilder;
+import static org.elasticsearch.index.query.QueryBuilders.matchAllQuery;
+import static org.elasticsearch.node.NodeBuilder.nodeBuilder;
+
+/**
+ * Compares the bulk indexing throughput of auto generated id documents into a default index and into an append only
+ * index.
+ */
+public class AppendOnlyBulkStress {
+
+    public static void main(String[] args) throws Exception {
+        int shardsCount = Integer.parseInt(System.getProperty("es.shards", "1"));
+        int threads = Integer.parseInt(System.getProperty("es.threads", "4"));
+        long count = SizeValue.parseSizeValue(System.getProperty("es.count", "2m")).singles();
+        int batch = Integer.parseInt(System.getProperty("es.batch", "500"));
+
+        Settings settings = settingsBuilder()
+                .put("index.refresh_interval", "1s")
+                .put("index.merge.async", true)
+                .put("gateway.type", "none")
+                .put(SETTING_NUMBER_OF_SHARDS, shardsCount)
+                .put(SETTING_NUMBER_OF_REPLICAS, 0)
+                .build();
+
+        Node node = nodeBuilder().settings(settingsBuilder().put(settings).put("name", "node1")).node();
+        Client client = node.client();
+
+        client.admin().indices().prepareCreate("default").setSettings(settings).execute().actionGet();
+        client.admin().indices().prepareCreate("append_only").setSettings(settingsBuilder().put(settings)
+                .put(InternalEngine.INDEX_APPEND_ONLY, true)).execute().actionGet();
+        client.admin().cluster().prepareHealth().setWaitForGreenStatus().execute().actionGet();
+
+        // warm up the jvm on both indices before measuring
+        index(client, "default", threads, count / 10, batch);
+        index(client, "append_only", threads, count / 10, batch);
+
+        double defaultTps = index(client, "default", threads, count, batch);
+        double appendOnlyTps = index(client, "append_only", threads, count, batch);
+
+        client.admin().indices().prepareRefresh().execute().actionGet();
+        System.out.println("--> default:     " + client.prepareCount("default").setQuery(matchAllQuery()).execute().actionGet().getCount() + " docs, TPS " + defaultTps);
+        System.out.println("--> append only: " + client.prepareCount("append_only").setQuery(matchAllQuery()).execute().actionGet().getCount() + " docs, TPS " + appendOnlyTps);
+
+        client.close();
+        node.close();
+    }
+
+    private static double index(final Client client, final String index, int threads, final long count, final int batch) throws Exception {
+        System.out.println("--> indexing [" + count + "] docs into [" + index + "] with [" + threads + "] threads...");
+        final AtomicLong remaining = new AtomicLong(count);
+        final AtomicLong failures = new AtomicLong();
+        final CountDownLatch latch = new CountDownLatch(threads);
+        StopWatch stopWatch = new StopWatch().start();
+        for (int t = 0; t < threads; t++) {
+            new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        long counter;
+                        while ((counter = remaining.addAndGet(-batch)) > -batch) {
+                            BulkRequestBuilder request = client.prepareBulk();
+                            for (int j = 0; j < batch; j++) {
+                                request.add(Requests.indexRequest(index).type("type1").source(source("test" + (counter + j))));
+                            }
+                            BulkResponse response = request.execute().actionGet();
+                            if (response.hasFailures()) {
+                                failures.incrementAndGet();
+                            }
+                        }
+                    } catch (IOException e) {
+                        throw new RuntimeException(e);
+                    } finally {
+                        latch.countDown();
+                    }
+                }
+            }.start();
+        }
+        latch.await();
+        stopWatch.stop();
+        if (failures.get() > 0) {
+            System.err.println("--> [" + failures.get() + "] bulks had failures");
+        }
+        double tps = ((double) count) / stopWatch.totalTime().secondsFrac();
+        System.out.println("--> indexing into [" + index + "] took " + stopWatch.totalTime() + ", TPS " + tps);
+        return tps;
+    }
+
+    private static XContentBuilder source(String nameValue) throws IOException {
+        return jsonBuilder().startObject().field("field", nameValue).endObject();
+    }
+}
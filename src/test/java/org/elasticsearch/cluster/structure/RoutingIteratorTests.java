@@ -29,10 +29,13 @@ import org.elasticsearch.cluster.node.DiscoveryNodes;
 import org.elasticsearch.cluster.routing.*;
 import org.elasticsearch.cluster.routing.allocation.AllocationService;
 import org.elasticsearch.cluster.routing.allocation.decider.AwarenessAllocationDecider;
+import org.elasticsearch.cluster.routing.operation.ResponseCollectorService;
 import org.elasticsearch.cluster.routing.operation.hash.djb.DjbHashFunction;
 import org.elasticsearch.cluster.routing.operation.plain.PlainOperationRouting;
 import org.elasticsearch.common.settings.ImmutableSettings;
+import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.index.shard.ShardId;
+import org.elasticsearch.node.settings.NodeSettingsService;
 import org.elasticsearch.test.ElasticsearchAllocationTestCase;
 import org.junit.Test;
 
@@ -323,4 +326,73 @@ public class RoutingIteratorTests extends ElasticsearchAllocationTestCase {
         assertThat(shardIterators.iterator().next().shardId().id(), equalTo(0));
         assertThat(shardIterators.iterator().next().nextOrNull().currentNodeId(), equalTo("node1"));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testAdaptiveReplicaSelection() {
+        AllocationService strategy = createAllocationService(settingsBuilder()
+                .put("cluster.routing.allocation.concurrent_recoveries", 10)
+                .build());
+
+        MetaData metaData = MetaData.builder()
+                .put(IndexMetaData.builder("test").numberOfShards(5).numberOfReplicas(2))
+                .build();
+
+        RoutingTable routingTable = RoutingTable.builder()
+                .addAsNew(metaData.index("test"))
+                .build();
+
+        ClusterState clusterState = ClusterState.builder(ClusterName.DEFAULT).metaData(metaData).routingTable(routingTable).build();
+
+        clusterState = ClusterState.builder(clusterState).nodes(DiscoveryNodes.builder()
+                .put(newNode("node1"))
+                .put(newNode("node2"))
+                .put(newNode("node3"))
+                .localNodeId("node1")
+        ).build();
+        routingTable = strategy.reroute(clusterState).routingTable();
+        clusterState = ClusterState.builder(clusterState).routingTable(routingTable).build();
+
+        routingTable = strategy.applyStartedShards(clusterState, clusterState.routingNodes().shardsWithState(INITIALIZING)).routingTable();
+        clusterState = ClusterState.builder(clusterState).routingTable(routingTable).build();
+
+        routingTable = strategy.applyStartedShards(clusterState, clusterState.routingNodes().shardsWithState(INITIALIZING)).routingTable();
+        clusterState = ClusterState.builder(clusterState).routingTable(routingTable).build();
+
+        ResponseCollectorService collector = new ResponseCollectorService(ImmutableSettings.Builder.EMPTY_SETTINGS);
+        PlainOperationRouting operationRouting = new PlainOperationRouting(settingsBuilder().put(PlainOperationRouting.CLUSTER_ROUTING_USE_ADAPTIVE_REPLICA_SELECTION, true).build(),
+                new DjbHashFunction(), new AwarenessAllocationDecider(), collector, new NodeSettingsService(ImmutableSettings.Builder.EMPTY_SETTINGS));
+
+        // node1 is slow and busy, node2 responds fast, node3 didn't respond yet
+        collector.addNodeStatistics("node1", 10, TimeValue.timeValueMillis(200).nanos(), TimeValue.timeValueMillis(100).nanos());
+        collector.addNodeStatistics("node2", 0, TimeValue.timeValueMillis(5).nanos(), TimeValue.timeValueMillis(2).nanos());
+        assertThat(collector.nodeStatistics("node1").rank(), greaterThan(collector.nodeStatistics("node2").rank()));
+
+        GroupShardsIterator shardIterators = operationRouting.searchShards(clusterState, new String[]{"test"}, new String[]{"test"}, null, null);
+        assertThat(shardIterators.size(), equalTo(5));
+        for (ShardIterator shardIterator : shardIterators) {
+            // unranked nodes first, then from the best to the worst
+            assertThat(shardIterator.nextOrNull().currentNodeId(), equalTo("node3"));
+            assertThat(shardIterator.nextOrNull().currentNodeId(), equalTo("node2"));
+            assertThat(shardIterator.nextOrNull().currentNodeId(), equalTo("node1"));
+        }
+
+        collector.addNodeStatistics("node3", 5, TimeValue.timeValueMillis(50).nanos(), TimeValue.timeValueMillis(20).nanos());
+        shardIterators = operationRouting.searchShards(clusterState, new String[]{"test"}, new String[]{"test"}, null, null);
+        for (ShardIterator shardIterator : shardIterators) {
+            assertThat(shardIterator.nextOrNull().currentNodeId(), equalTo("node2"));
+        }
+
+        // searches in flight make a node rank worse
+        for (int i = 0; i < 100; i++) {
+            collector.onSearchSent("node2");
+        }
+        ShardIterator shardIterator = operationRouting.getShards(clusterState, "test", 0, null);
+        assertThat(shardIterator.nextOrNull().currentNodeId(), not(equalTo("node2")));
+
+        // a preference disables the ranking
+        shardIterators = operationRouting.searchShards(clusterState, new String[]{"test"}, new String[]{"test"}, null, "_prefer_node:node1");
+        for (ShardIterator it : shardIterators) {
+            assertThat(it.nextOrNull().currentNodeId(), equalTo("node1"));
+        }
+    }
+}
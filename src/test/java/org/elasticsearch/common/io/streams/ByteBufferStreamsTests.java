@@ -0,0 +1,107 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.elasticsearch.common.io.streams;
+
+import org.elasticsearch.common.bytes.BytesArray;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.io.stream.ByteBufferStreamInput;
+import org.elasticsearch.test.ElasticsearchTestCase;
+import org.junit.Test;
+
+import java.io.EOFException;
+import java.nio.ByteBuffer;
+
+import static org.hamcrest.Matchers.equalTo;
+
+/**
+ * Tests for {@link ByteBufferStreamInput} bounds checks and slicing.
+ */
+public class ByteBufferStreamsTests extends ElasticsearchTestCase {
+
+    private static ByteBuffer buffer(int length) {
+        ByteBuffer buffer = randomBoolean() ? ByteBuffer.allocate(length + 4) : ByteBuffer.allocateDirect(length + 4);
+        for (int i = 0; i < buffer.capacity(); i++) {
+            buffer.put(i, (byte) i);
+        }
+        // the bytes past the limit must never be read
+        buffer.position(2);
+        buffer.limit(2 + length);
+        return buffer.slice();
+    }
+
+    @Test
+    public void testReadBytes() throws Exception {
+        ByteBufferStreamInput in = new ByteBufferStreamInput(buffer(10));
+        byte[] bytes = new byte[10];
+        in.readBytes(bytes, 0, 4);
+        in.readBytes(bytes, 4, 6);
+        for (int i = 0; i < bytes.length; i++) {
+            assertThat(bytes[i], equalTo((byte) (i + 2)));
+        }
+        assertThat(in.available(), equalTo(0));
+    }
+
+    @Test
+    public void testReadBytesPastLimit() throws Exception {
+        ByteBufferStreamInput in = new ByteBufferStreamInput(buffer(10));
+        in.readBytes(new byte[6], 0, 6);
+        try {
+            in.readBytes(new byte[5], 0, 5);
+            fail("read past the limit of the buffer");
+        } catch (EOFException e) {
+            // expected
+        }
+        // nothing was consumed
+        assertThat(in.available(), equalTo(4));
+        in.readBytes(new byte[4], 0, 4);
+        try {
+            in.readByte();
+            fail("read past the limit of the buffer");
+        } catch (EOFException e) {
+            // expected
+        }
+        assertThat(in.read(), equalTo(-1));
+    }
+
+    @Test
+    public void testReadBytesReference() throws Exception {
+        ByteBuffer buffer = buffer(10);
+        ByteBufferStreamInput in = new ByteBufferStreamInput(buffer);
+        in.readByte();
+        BytesReference slice = in.readBytesReference(5);
+        assertThat(slice.toBytesArray(), equalTo(new BytesArray(new byte[]{3, 4, 5, 6, 7})));
+        assertThat(in.available(), equalTo(4));
+        // a view, not a copy
+        buffer.put(1, (byte) 42);
+        assertThat(slice.get(0), equalTo((byte) 42));
+        // streaming the slice doesn't move its position
+        assertThat(slice.streamInput().readByte(), equalTo((byte) 42));
+        assertThat(slice.length(), equalTo(5));
+
+        try {
+            in.readBytesReference(5);
+            fail("read past the limit of the buffer");
+        } catch (EOFException e) {
+            // expected
+        }
+        assertThat(in.available(), equalTo(4));
+    }
+}
@@ -0,0 +1,237 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.common.lucene.uid;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.NumericDocValuesField;
+import org.apache.lucene.index.*;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.common.lucene.Lucene;
+import org.elasticsearch.common.util.BloomFilter;
+import org.elasticsearch.index.mapper.internal.UidFieldMapper;
+import org.elasticsearch.index.mapper.internal.VersionFieldMapper;
+import org.elasticsearch.test.ElasticsearchLuceneTestCase;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Locale;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+
+public class UidFilterCacheTests extends ElasticsearchLuceneTestCase {
+
+    private static String uid(int i) {
+        // zero padded, so that uids sort like the numbers
+        return String.format(Locale.ROOT, "%06d", i);
+    }
+
+    private static void addDoc(IndexWriter writer, int i) throws IOException {
+        Document doc = new Document();
+        doc.add(new Field(UidFieldMapper.NAME, uid(i), UidFieldMapper.Defaults.FIELD_TYPE));
+        doc.add(new NumericDocValuesField(VersionFieldMapper.NAME, i + 1));
+        writer.addDocument(doc);
+    }
+
+    @Test
+    public void testFilterSegments() throws IOException {
+        Directory dir = newDirectory();
+        IndexWriter writer = new IndexWriter(dir, new IndexWriterConfig(Lucene.VERSION, Lucene.STANDARD_ANALYZER));
+        // two segments, with disjoint uid ranges
+        for (int i = 0; i < 100; i++) {
+            addDoc(writer, i);
+        }
+        writer.commit();
+        for (int i = 100; i < 200; i++) {
+            addDoc(writer, i);
+        }
+        DirectoryReader reader = DirectoryReader.open(writer, true);
+        assertThat(reader.leaves().size(), equalTo(2));
+
+        UidFilterCache cache = new UidFilterCache(BloomFilter.Factory.DEFAULT, 0);
+        for (AtomicReaderContext context : reader.leaves()) {
+            int numContained = 0;
+            for (int i = 0; i < 200; i++) {
+                if (cache.mightContain(context, new BytesRef(uid(i)))) {
+                    numContained++;
+                }
+            }
+            // all the uids of the segment, out of range uids are always filtered
+            assertThat(numContained, equalTo(100));
+            assertThat(cache.mightContain(context, new BytesRef(uid(1000))), equalTo(false));
+        }
+        assertThat(cache.size(), equalTo(2));
+        assertThat(cache.sizeInBytes(), greaterThan(0l));
+
+        for (int i = 0; i < 250; i++) {
+            Term term = new Term(UidFieldMapper.NAME, uid(i));
+            assertThat(Versions.loadVersion(reader, term, cache), equalTo(Versions.loadVersion(reader, term)));
+        }
+
+        // merged segments are dropped from the cache
+        writer.forceMerge(1);
+        DirectoryReader newReader = DirectoryReader.openIfChanged(reader);
+        reader.close();
+        assertThat(cache.size(), equalTo(0));
+        assertThat(cache.sizeInBytes(), equalTo(0l));
+        for (int i = 0; i < 250; i++) {
+            Term term = new Term(UidFieldMapper.NAME, uid(i));
+            assertThat(Versions.loadVersion(newReader, term, cache), equalTo(i < 200 ? i + 1l : Versions.NOT_FOUND));
+        }
+        assertThat(cache.size(), equalTo(1));
+
+        newReader.close();
+        writer.close();
+        dir.close();
+    }
+
+    @Test
+    public void testSmallSegmentsAreNotFiltered() throws IOException {
+        Directory dir = newDirectory();
+        IndexWriter writer = new IndexWriter(dir, new IndexWriterConfig(Lucene.VERSION, Lucene.STANDARD_ANALYZER));
+        for (int i = 0; i < 10; i++) {
+            addDoc(writer, i);
+        }
+        DirectoryReader reader = DirectoryReader.open(writer, true);
+
+        UidFilterCache cache = new UidFilterCache(BloomFilter.Factory.DEFAULT, 100);
+        assertThat(cache.mightContain(reader.leaves().get(0), new BytesRef(uid(1000))), equalTo(true));
+        assertThat(cache.size(), equalTo(0));
+
+        reader.close();
+        writer.close();
+        dir.close();
+    }
+
+    /**
+     * Counts the filters that are built.
+     */
+    private static class CountingFactory extends BloomFilter.Factory {
+
+        final AtomicInteger created = new AtomicInteger();
+
+        CountingFactory() {
+            super(new BloomFilter.Factory.Entry[0]);
+        }
+
+        @Override
+        public BloomFilter createFilter(int expectedInsertions) {
+            created.incrementAndGet();
+            return super.createFilter(expectedInsertions);
+        }
+    }
+
+    @Test
+    public void testWarm() throws IOException {
+        Directory dir = newDirectory();
+        IndexWriter writer = new IndexWriter(dir, new IndexWriterConfig(Lucene.VERSION, Lucene.STANDARD_ANALYZER));
+        for (int i = 0; i < 100; i++) {
+            addDoc(writer, i);
+        }
+        writer.commit();
+        // too small to be filtered
+        for (int i = 100; i < 110; i++) {
+            addDoc(writer, i);
+        }
+        DirectoryReader reader = DirectoryReader.open(writer, true);
+        assertThat(reader.leaves().size(), equalTo(2));
+
+        CountingFactory factory = new CountingFactory();
+        UidFilterCache cache = new UidFilterCache(factory, 50);
+        cache.warm(reader);
+        assertThat(cache.size(), equalTo(1));
+        assertThat(factory.created.get(), equalTo(1));
+        long sizeInBytes = cache.sizeInBytes();
+        assertThat(sizeInBytes, greaterThan(0l));
+
+        // lookups and warming the same segments again reuse the filters
+        for (int i = 0; i < 120; i++) {
+            Term term = new Term(UidFieldMapper.NAME, uid(i));
+            assertThat(Versions.loadVersion(reader, term, cache), equalTo(i < 110 ? i + 1l : Versions.NOT_FOUND));
+        }
+        cache.warm(reader);
+        assertThat(factory.created.get(), equalTo(1));
+        assertThat(cache.sizeInBytes(), equalTo(sizeInBytes));
+
+        // the writer pools the segments of its near real-time readers, they are closed along with it
+        reader.close();
+        writer.close();
+        assertThat(cache.size(), equalTo(0));
+        assertThat(cache.sizeInBytes(), equalTo(0l));
+        dir.close();
+    }
+
+    @Test
+    public void testConcurrentLookupsBuildOnce() throws Exception {
+        Directory dir = newDirectory();
+        IndexWriter writer = new IndexWriter(dir, new IndexWriterConfig(Lucene.VERSION, Lucene.STANDARD_ANALYZER));
+        for (int i = 0; i < 1000; i++) {
+            addDoc(writer, i);
+        }
+        writer.forceMerge(1);
+        final DirectoryReader reader = DirectoryReader.open(writer, true);
+        assertThat(reader.leaves().size(), equalTo(1));
+
+        final CountingFactory factory = new CountingFactory();
+        final UidFilterCache cache = new UidFilterCache(factory, 0);
+        final int numThreads = 2 + random().nextInt(7);
+        final CyclicBarrier barrier = new CyclicBarrier(numThreads);
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+        Thread[] threads = new Thread[numThreads];
+        for (int t = 0; t < numThreads; t++) {
+            threads[t] = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        barrier.await();
+                        for (int i = 0; i < 1000; i += 10) {
+                            if (!cache.mightContain(reader.leaves().get(0), new BytesRef(uid(i)))) {
+                                throw new AssertionError("uid [" + uid(i) + "] was filtered out");
+                            }
+                        }
+                    } catch (Throwable e) {
+                        failure.compareAndSet(null, e);
+                    }
+                }
+            };
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        if (failure.get() != null) {
+            throw new AssertionError(failure.get());
+        }
+        // the lookups that came in while the filter was being built waited for it
+        assertThat(factory.created.get(), equalTo(1));
+        assertThat(cache.size(), equalTo(1));
+
+        reader.close();
+        writer.close();
+        assertThat(cache.size(), equalTo(0));
+        assertThat(cache.sizeInBytes(), equalTo(0l));
+        dir.close();
+    }
+}
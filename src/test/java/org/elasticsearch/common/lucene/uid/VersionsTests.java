@@ -113,6 +113,44 @@ public class VersionsTests extends ElasticsearchLuceneTestCase {
         dir.close();
     }
 
+    @Test
+    public void testLoadVersions() throws IOException {
+        Directory dir = newDirectory();
+        IndexWriter writer = new IndexWriter(dir, new IndexWriterConfig(Lucene.VERSION, Lucene.STANDARD_ANALYZER));
+        final int numDocs = 1 + random().nextInt(100);
+        for (int i = 0; i < numDocs; i++) {
+            Document doc = new Document();
+            doc.add(new Field(UidFieldMapper.NAME, Integer.toString(i), UidFieldMapper.Defaults.FIELD_TYPE));
+            doc.add(new NumericDocValuesField(VersionFieldMapper.NAME, i + 1));
+            writer.addDocument(doc);
+            if (rarely()) {
+                writer.commit();
+            }
+        }
+        // update some of the documents, so that older segments have deleted versions of them
+        for (int i = 0; i < numDocs; i += 3) {
+            Document doc = new Document();
+            doc.add(new Field(UidFieldMapper.NAME, Integer.toString(i), UidFieldMapper.Defaults.FIELD_TYPE));
+            doc.add(new NumericDocValuesField(VersionFieldMapper.NAME, 1000 + i));
+            writer.updateDocument(new Term(UidFieldMapper.NAME, Integer.toString(i)), doc);
+        }
+        DirectoryReader directoryReader = DirectoryReader.open(writer, true);
+
+        // in random order, with missing and duplicate uids
+        final Term[] terms = new Term[1 + random().nextInt(2 * numDocs)];
+        for (int i = 0; i < terms.length; i++) {
+            terms[i] = new Term(UidFieldMapper.NAME, Integer.toString(random().nextInt(numDocs + 10)));
+        }
+        final long[] versions = Versions.loadVersions(directoryReader, terms);
+        assertThat(versions.length, equalTo(terms.length));
+        for (int i = 0; i < terms.length; i++) {
+            assertThat(versions[i], equalTo(Versions.loadVersion(directoryReader, terms[i])));
+        }
+        directoryReader.close();
+        writer.close();
+        dir.close();
+    }
+
     @Test
     public void testNestedDocuments() throws IOException {
         Directory dir = newDirectory();
@@ -20,9 +20,13 @@
 package org.elasticsearch.common.util;
 
 import org.apache.lucene.util.BytesRef;
-import org.elasticsearch.ElasticsearchIllegalStateException;
 import org.elasticsearch.cache.recycler.PageCacheRecycler;
+import org.elasticsearch.common.breaker.CircuitBreakingException;
 import org.elasticsearch.common.settings.ImmutableSettings;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.indices.fielddata.breaker.CircuitBreakerService;
+import org.elasticsearch.indices.fielddata.breaker.InternalCircuitBreakerService;
+import org.elasticsearch.node.settings.NodeSettingsService;
 import org.elasticsearch.test.ElasticsearchTestCase;
 import org.elasticsearch.test.cache.recycler.MockBigArrays;
 import org.elasticsearch.test.cache.recycler.MockPageCacheRecycler;
@@ -329,41 +333,61 @@ public class BigArraysTests extends ElasticsearchTestCase {
         return bytearray;
     }
 
+    private BigArrays circuitBreakingBigArrays(CircuitBreakerService breakerService) {
+        return new BigArrays(ImmutableSettings.EMPTY, null, breakerService).withCircuitBreaking();
+    }
+
+    private CircuitBreakerService breakerService(long requestLimit) {
+        Settings settings = ImmutableSettings.builder()
+                .put(InternalCircuitBreakerService.REQUEST_CIRCUIT_BREAKER_MAX_BYTES_SETTING, requestLimit)
+                .put(InternalCircuitBreakerService.TOTAL_CIRCUIT_BREAKER_MAX_BYTES_SETTING, -1)
+                .build();
+        return new InternalCircuitBreakerService(settings, new NodeSettingsService(settings));
+    }
+
     public void testByteAccounting() throws Exception {
         for (String type : Arrays.asList("Byte", "Int", "Long", "Float", "Double", "Object")) {
-            BigArrays bigArrays = new BigArrays(ImmutableSettings.builder().put(BigArrays.MAX_SIZE_IN_BYTES_SETTING, Long.MAX_VALUE).build(), null);
+            CircuitBreakerService breakerService = breakerService(Long.MAX_VALUE);
+            BigArrays bigArrays = circuitBreakingBigArrays(breakerService);
             Method create = BigArrays.class.getMethod("new" + type + "Array", long.class);
             final int size = scaledRandomIntBetween(5, 1 << 16);
             BigArray array = (BigArray) create.invoke(bigArrays, size);
             assertEquals(array.sizeInBytes(), bigArrays.sizeInBytes());
+            assertEquals(array.sizeInBytes(), breakerService.getRequestBreaker().getUsed());
             Method resize = BigArrays.class.getMethod("resize", array.getClass().getInterfaces()[0], long.class);
             int newSize = scaledRandomIntBetween(5, 1 << 16);
             array = (BigArray) resize.invoke(bigArrays, array, newSize);
             assertEquals(array.sizeInBytes(), bigArrays.sizeInBytes());
+            assertEquals(array.sizeInBytes(), breakerService.getRequestBreaker().getUsed());
             array.close();
             assertEquals(0, bigArrays.sizeInBytes());
+            assertEquals(0, breakerService.getRequestBreaker().getUsed());
         }
     }
 
     public void testMaxSizeExceededOnNew() throws Exception {
         final int size = scaledRandomIntBetween(5, 1 << 22);
         for (String type : Arrays.asList("Byte", "Int", "Long", "Float", "Double", "Object")) {
-            BigArrays bigArrays = new BigArrays(ImmutableSettings.builder().put(BigArrays.MAX_SIZE_IN_BYTES_SETTING, randomIntBetween(1, size)).build(), null);
+            CircuitBreakerService breakerService = breakerService(randomIntBetween(1, size));
+            BigArrays bigArrays = circuitBreakingBigArrays(breakerService);
             Method create = BigArrays.class.getMethod("new" + type + "Array", long.class);
             try {
                 create.invoke(bigArrays, size);
                 fail("expected an exception on " + create);
             } catch (InvocationTargetException e) {
-                assertTrue(e.getCause() instanceof ElasticsearchIllegalStateException);
+                assertTrue(e.getCause() instanceof CircuitBreakingException);
             }
             assertEquals(0, bigArrays.sizeInBytes());
+            assertEquals(0, breakerService.getRequestBreaker().getUsed());
+            assertEquals(1, breakerService.getRequestBreaker().getTrippedCount());
         }
     }
 
     public void testMaxSizeExceededOnResize() throws Exception {
         for (String type : Arrays.asList("Byte", "Int", "Long", "Float", "Double", "Object")) {
             final long maxSize = randomIntBetween(1 << 10, 1 << 22);
-            BigArrays bigArrays = new BigArrays(ImmutableSettings.builder().put(BigArrays.MAX_SIZE_IN_BYTES_SETTING, maxSize).build(), null);
+            CircuitBreakerService breakerService = breakerService(maxSize);
+            BigArrays bigArrays = circuitBreakingBigArrays(breakerService);
             Method create = BigArrays.class.getMethod("new" + type + "Array", long.class);
             final int size = scaledRandomIntBetween(1, 20);
             BigArray array = (BigArray) create.invoke(bigArrays, size);
@@ -371,17 +395,29 @@ public class BigArraysTests extends ElasticsearchTestCase {
             while (true) {
                 long newSize = array.size() * 2;
                 assertEquals(array.sizeInBytes(), bigArrays.sizeInBytes());
+                assertEquals(array.sizeInBytes(), breakerService.getRequestBreaker().getUsed());
                 try {
                     array = (BigArray) resize.invoke(bigArrays, array, newSize);
                 } catch (InvocationTargetException e) {
-                    assertTrue(e.getCause() instanceof ElasticsearchIllegalStateException);
+                    assertTrue(e.getCause() instanceof CircuitBreakingException);
                     break;
                 }
             }
             assertEquals(array.sizeInBytes(), bigArrays.sizeInBytes());
             array.close();
             assertEquals(0, bigArrays.sizeInBytes());
+            assertEquals(0, breakerService.getRequestBreaker().getUsed());
         }
     }
 
+    public void testNoBreakingWithoutCircuitBreaking() throws Exception {
+        CircuitBreakerService breakerService = breakerService(1);
+        BigArrays bigArrays = new BigArrays(ImmutableSettings.EMPTY, null, breakerService);
+        ByteArray array = bigArrays.newByteArray(scaledRandomIntBetween(2, 1 << 16));
+        assertEquals(array.sizeInBytes(), bigArrays.sizeInBytes());
+        assertEquals(0, breakerService.getRequestBreaker().getUsed());
+        array.close();
+        assertEquals(0, bigArrays.sizeInBytes());
+    }
+
 }
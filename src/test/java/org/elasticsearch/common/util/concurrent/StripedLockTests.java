@@ -0,0 +1,88 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.common.util.concurrent;
+
+import org.elasticsearch.common.lease.Releasable;
+import org.elasticsearch.test.ElasticsearchTestCase;
+import org.junit.Test;
+
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import static org.hamcrest.Matchers.equalTo;
+
+public class StripedLockTests extends ElasticsearchTestCase {
+
+    @Test
+    public void testConcurrentSingleAndBatchedAcquisitions() throws Exception {
+        final int numKeys = randomIntBetween(1, 50);
+        final StripedLock lock = new StripedLock(randomIntBetween(1, 20));
+        final long[] counters = new long[numKeys];
+        final int numThreads = randomIntBetween(2, 8);
+        final int iters = scaledRandomIntBetween(100, 2000);
+        final CountDownLatch startLatch = new CountDownLatch(1);
+        final Thread[] threads = new Thread[numThreads];
+        final AtomicLongArray expected = new AtomicLongArray(numKeys);
+        for (int t = 0; t < threads.length; t++) {
+            final boolean batched = randomBoolean();
+            final long seed = randomLong();
+            threads[t] = new Thread() {
+                @Override
+                public void run() {
+                    Random random = new Random(seed);
+                    try {
+                        startLatch.await();
+                    } catch (InterruptedException e) {
+                        throw new RuntimeException(e);
+                    }
+                    for (int i = 0; i < iters; i++) {
+                        if (batched) {
+                            int[] keys = new int[1 + random.nextInt(numKeys)];
+                            for (int j = 0; j < keys.length; j++) {
+                                keys[j] = random.nextInt(numKeys);
+                            }
+                            try (Releasable r = lock.acquireAll(keys)) {
+                                for (int key : keys) {
+                                    counters[key]++;
+                                    expected.incrementAndGet(key);
+                                }
+                            }
+                        } else {
+                            int key = random.nextInt(numKeys);
+                            try (Releasable r = lock.acquire(key)) {
+                                counters[key]++;
+                                expected.incrementAndGet(key);
+                            }
+                        }
+                    }
+                }
+            };
+            threads[t].start();
+        }
+        startLatch.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        for (int i = 0; i < numKeys; i++) {
+            assertThat(counters[i], equalTo(expected.get(i)));
+        }
+    }
+}
@@ -19,6 +19,10 @@
 
 package org.elasticsearch.common.xcontent.support;
 
+import org.elasticsearch.common.Strings;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentFactory;
 import org.elasticsearch.common.xcontent.XContentHelper;
 import org.elasticsearch.test.ElasticsearchTestCase;
 import org.hamcrest.Matchers;
@@ -64,5 +68,50 @@ public class XContentHelperTests extends ElasticsearchTestCase {
         assertThat(content, Matchers.equalTo(expected));
     }
 
+    @Test
+    public void testStreamingFilterMatchesMapFilter() throws Exception {
+        XContentBuilder builder = XContentFactory.jsonBuilder().startObject()
+                .field("field", "value")
+                .field("empty_array", new String[0])
+                .startObject("obj1")
+                    .field("field", 1)
+                    .startObject("obj2").field("field", 2).field("other", 3).endObject()
+                    .startObject("empty").endObject()
+                .endObject()
+                .startArray("arr1")
+                    .startObject().field("field", 4).endObject()
+                    .startObject().field("other", 5).endObject()
+                    .value(6)
+                    .startArray().value(7).endArray()
+                .endArray()
+                .endObject();
+        BytesReference source = builder.bytes();
+        Map<String, Object> sourceAsMap = XContentHelper.convertToMap(source, false).v2();
+
+        String[][] includes = {
+                {}, {"field"}, {"obj1"}, {"obj1.obj2"}, {"obj1.obj2.field"}, {"obj1.*"}, {"*.field"}, {"arr1.field"},
+                {"arr1"}, {"obj1.empty"}, {"unknown"}, {"obj1.obj2.field", "arr1.other"}, {"empty_array"}
+        };
+        String[][] excludes = {
+                {}, {"field"}, {"obj1.obj2"}, {"*.field"}, {"arr1.other"}, {"obj1.obj2.other"}
+        };
+        for (String[] include : includes) {
+            for (String[] exclude : excludes) {
+                BytesReference filtered = XContentHelper.filter(source, include, exclude);
+                assertThat(Arrays.toString(include) + " " + Arrays.toString(exclude),
+                        XContentHelper.convertToMap(filtered, false).v2(), Matchers.equalTo(XContentMapValues.filter(sourceAsMap, include, exclude)));
+            }
+        }
+    }
+
+    @Test
+    public void testStreamingFilterKeepsFieldOrder() throws Exception {
+        BytesReference source = XContentFactory.jsonBuilder().startObject()
+                .field("c", 1).field("b", 2).field("a", 3).field("d", 4)
+                .endObject().bytes();
+        BytesReference filtered = XContentHelper.filter(source, Strings.EMPTY_ARRAY, new String[]{"d"});
+        assertThat(filtered.toUtf8(), Matchers.equalTo("{\"c\":1,\"b\":2,\"a\":3}"));
+    }
+
 
 }
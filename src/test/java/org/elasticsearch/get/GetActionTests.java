@@ -33,6 +33,7 @@ import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.common.settings.ImmutableSettings;
 import org.elasticsearch.common.xcontent.XContentFactory;
 import org.elasticsearch.index.engine.VersionConflictEngineException;
+import org.elasticsearch.index.translog.fs.FsTranslog;
 import org.elasticsearch.test.ElasticsearchIntegrationTest;
 import org.junit.Test;
 
@@ -524,6 +525,51 @@ public class GetActionTests extends ElasticsearchIntegrationTest {
         assertThat(responseBeforeFlushWithExtraFilters.getSourceAsString(), is(responseAfterFlushWithExtraFilters.getSourceAsString()));
     }
 
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testGetFromMmapTranslog() throws Exception {
+        client().admin().indices().prepareCreate("test")
+                .setSettings(ImmutableSettings.settingsBuilder()
+                        .put("index.refresh_interval", -1)
+                        .put(FsTranslog.INDEX_TRANSLOG_FS_TYPE, "mmap"))
+                .execute().actionGet();
+        ensureGreen();
+
+        int numDocs = 10 + randomInt(40);
+        String[] sources = new String[numDocs];
+        for (int i = 0; i < numDocs; i++) {
+            sources[i] = jsonBuilder().startObject()
+                    .field("field", randomAsciiOfLength(1 + randomInt(100)))
+                    .startObject("included").field("field", "should be seen").field("field2", "should not be seen").endObject()
+                    .endObject().string();
+            client().prepareIndex("test", "type1", Integer.toString(i)).setSource(sources[i]).execute().actionGet();
+        }
+
+        // the unfiltered source is a view on the mapped translog, it has to survive the get releasing it
+        GetResponse[] before = new GetResponse[numDocs];
+        for (int i = 0; i < numDocs; i++) {
+            before[i] = client().prepareGet("test", "type1", Integer.toString(i)).execute().actionGet();
+            assertThat(before[i].isExists(), is(true));
+            assertThat(before[i].getSourceAsString(), equalTo(sources[i]));
+
+            GetResponse filtered = client().prepareGet("test", "type1", Integer.toString(i)).setFetchSource("*.field", "*.field2").get();
+            assertThat(filtered.isExists(), is(true));
+            assertThat(filtered.getSourceAsMap(), not(hasKey("field")));
+            assertThat((Map<String, Object>) filtered.getSourceAsMap().get("included"), hasKey("field"));
+            assertThat((Map<String, Object>) filtered.getSourceAsMap().get("included"), not(hasKey("field2")));
+        }
+
+        // flushing rolls the translog and unmaps the old file
+        client().admin().indices().prepareFlush("test").execute().actionGet();
+
+        for (int i = 0; i < numDocs; i++) {
+            assertThat(before[i].getSourceAsString(), equalTo(sources[i]));
+            GetResponse after = client().prepareGet("test", "type1", Integer.toString(i)).execute().actionGet();
+            assertThat(after.isExists(), is(true));
+            assertThat(after.getSourceAsString(), equalTo(sources[i]));
+        }
+    }
+
     @Test
     public void testGetWithVersion() {
         client().admin().indices().prepareCreate("test").setSettings(ImmutableSettings.settingsBuilder().put("index.refresh_interval", -1)).execute().actionGet();
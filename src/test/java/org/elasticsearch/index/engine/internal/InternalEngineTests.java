@@ -564,6 +564,113 @@ public class InternalEngineTests extends ElasticsearchTestCase {
         engine.close();
     }
 
+    @Test
+    public void testBulk() throws Exception {
+        ParsedDocument doc1 = testParsedDocument("1", "1", "test", null, -1, -1, testDocument(), Lucene.STANDARD_ANALYZER, B_1, false);
+        engine.index(new Engine.Index(null, newUid("1"), doc1));
+        // the version of doc 1 now has to be loaded from the index
+        engine.refresh(new Engine.Refresh("test").force(false));
+
+        ParsedDocument doc2 = testParsedDocument("2", "2", "test", null, -1, -1, testDocument(), Lucene.STANDARD_ANALYZER, B_2, false);
+        ParsedDocument doc3 = testParsedDocument("3", "3", "test", null, -1, -1, testDocument(), Lucene.STANDARD_ANALYZER, B_3, false);
+        Engine.Bulk bulk = new Engine.Bulk(new Engine.Operation[]{
+                new Engine.Index(null, newUid("1"), doc1),
+                new Engine.Create(null, newUid("2"), doc2),
+                new Engine.Create(null, newUid("1"), testParsedDocument("1", "1", "test", null, -1, -1, testDocument(), Lucene.STANDARD_ANALYZER, B_1, false)),
+                new Engine.Delete("test", "2", newUid("2")),
+                new Engine.Index(null, newUid("3"), doc3)
+        });
+        engine.bulk(bulk);
+
+        assertThat(bulk.failure(0), nullValue());
+        assertThat(((Engine.Index) bulk.operations()[0]).version(), equalTo(2l));
+        assertThat(((Engine.Index) bulk.operations()[0]).created(), equalTo(false));
+        assertThat(bulk.failure(1), nullValue());
+        assertThat(((Engine.Create) bulk.operations()[1]).version(), equalTo(1l));
+        // a failure doesn't prevent the rest of the bulk from being applied
+        assertThat(bulk.failure(2), instanceOf(DocumentAlreadyExistsException.class));
+        // operations see the earlier operations of the same bulk
+        assertThat(bulk.failure(3), nullValue());
+        assertThat(((Engine.Delete) bulk.operations()[3]).found(), equalTo(true));
+        assertThat(((Engine.Delete) bulk.operations()[3]).version(), equalTo(2l));
+        assertThat(bulk.failure(4), nullValue());
+
+        Engine.GetResult getResult = engine.get(new Engine.Get(true, newUid("2")));
+        assertThat(getResult.exists(), equalTo(false));
+        getResult.release();
+        getResult = engine.get(new Engine.Get(true, newUid("3")));
+        assertThat(getResult.exists(), equalTo(true));
+        assertThat(getResult.source().source.toBytesArray(), equalTo(B_3.toBytesArray()));
+        getResult.release();
+
+        engine.refresh(new Engine.Refresh("test").force(false));
+        Engine.Searcher searchResult = engine.acquireSearcher("test");
+        MatcherAssert.assertThat(searchResult, EngineSearcherTotalHitsMatcher.engineSearcherTotalHits(2));
+        searchResult.close();
+    }
+
+    @Test
+    public void testAppendOnly() throws Exception {
+        defaultSettings = ImmutableSettings.builder().put(defaultSettings).put(InternalEngine.INDEX_APPEND_ONLY, true).build();
+        Engine engine = createEngine(replicaSettingsService, storeReplica, createTranslogReplica());
+        engine.start();
+        try {
+            for (int i = 0; i < 3; i++) {
+                ParsedDocument doc = testParsedDocument(Integer.toString(i), Integer.toString(i), "test", null, -1, -1, testDocument(), Lucene.STANDARD_ANALYZER, B_1, false);
+                Engine.Create create = new Engine.Create(null, newUid(Integer.toString(i)), doc, Versions.MATCH_ANY, VersionType.INTERNAL, PRIMARY, 0, false, true);
+                engine.create(create);
+                assertThat(create.version(), equalTo(1l));
+            }
+            // a retry replaces the copy that is already there
+            ParsedDocument doc = testParsedDocument("1", "1", "test", null, -1, -1, testDocument(), Lucene.STANDARD_ANALYZER, B_1, false);
+            engine.create(new Engine.Create(null, newUid("1"), doc, Versions.MATCH_ANY, VersionType.INTERNAL, PRIMARY, 0, true, true));
+
+            try {
+                engine.create(new Engine.Create(null, newUid("1"), doc, Versions.MATCH_ANY, VersionType.INTERNAL, PRIMARY, 0, false, false));
+                fail("creates with explicit ids are not supported");
+            } catch (AppendOnlyEngineException e) {
+                // expected
+            }
+            try {
+                engine.index(new Engine.Index(null, newUid("1"), doc));
+                fail("index operations are not supported");
+            } catch (AppendOnlyEngineException e) {
+                // expected
+            }
+            try {
+                engine.delete(new Engine.Delete("test", "1", newUid("1")));
+                fail("delete operations are not supported");
+            } catch (AppendOnlyEngineException e) {
+                // expected
+            }
+
+            Engine.Operation[] operations = new Engine.Operation[5];
+            for (int i = 0; i < operations.length; i++) {
+                String id = Integer.toString(3 + i);
+                doc = testParsedDocument(id, id, "test", null, -1, -1, testDocument(), Lucene.STANDARD_ANALYZER, B_1, false);
+                operations[i] = new Engine.Create(null, newUid(id), doc, Versions.MATCH_ANY, VersionType.INTERNAL, PRIMARY, 0, i == 3, true);
+            }
+            operations[2] = new Engine.Index(null, newUid("2"), doc);
+            Engine.Bulk bulk = new Engine.Bulk(operations);
+            engine.bulk(bulk);
+            for (int i = 0; i < operations.length; i++) {
+                if (i == 2) {
+                    assertThat(bulk.failure(i), instanceOf(AppendOnlyEngineException.class));
+                } else {
+                    assertThat(bulk.failure(i), nullValue());
+                    assertThat(((Engine.Create) operations[i]).version(), equalTo(1l));
+                }
+            }
+
+            engine.refresh(new Engine.Refresh("test").force(false));
+            Engine.Searcher searchResult = engine.acquireSearcher("test");
+            MatcherAssert.assertThat(searchResult, EngineSearcherTotalHitsMatcher.engineSearcherTotalHits(7));
+            searchResult.close();
+        } finally {
+            engine.close();
+        }
+    }
+
     @Test
     public void testSearchResultRelease() throws Exception {
         Engine.Searcher searchResult = engine.acquireSearcher("test");
@@ -0,0 +1,207 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.engine.internal;
+
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.common.util.BigArraysTests;
+import org.elasticsearch.index.translog.Translog;
+import org.elasticsearch.test.ElasticsearchTestCase;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.hamcrest.Matchers.*;
+
+public class LiveVersionMapTests extends ElasticsearchTestCase {
+
+    @Test
+    public void testDuel() {
+        final LiveVersionMap map = new LiveVersionMap(BigArraysTests.randombigArrays(), randomIntBetween(1, 16));
+        try {
+            final Map<BytesRef, Long> versions = new HashMap<>();
+            final int iters = scaledRandomIntBetween(100, 10000);
+            for (int i = 0; i < iters; i++) {
+                final BytesRef uid = new BytesRef(randomAsciiOfLength(3));
+                final long version = randomIntBetween(1, 1000);
+                map.put(uid, version, false, i, new Translog.Location(1, i, 10));
+                versions.put(uid, version);
+            }
+            assertThat(map.size(), equalTo((long) versions.size()));
+            assertThat(map.sizeInBytes(), greaterThan(0l));
+            for (Map.Entry<BytesRef, Long> entry : versions.entrySet()) {
+                final InternalEngine.VersionValue value = map.get(entry.getKey());
+                assertThat(value, notNullValue());
+                assertThat(value.version(), equalTo(entry.getValue()));
+                assertThat(value.delete(), equalTo(false));
+                assertThat(value.translogLocation().translogId, equalTo(1l));
+                assertThat(value.translogLocation().size, equalTo(10));
+            }
+            assertThat(map.get(new BytesRef("unknown")), nullValue());
+        } finally {
+            map.close();
+        }
+    }
+
+    @Test
+    public void testRefreshSwapsGenerations() {
+        final LiveVersionMap map = new LiveVersionMap(BigArraysTests.randombigArrays(), randomIntBetween(1, 16));
+        try {
+            map.put(new BytesRef("1"), 1, false, 10, new Translog.Location(1, 0, 10));
+            map.beforeRefresh();
+            // values written before the refresh are still visible while it is in progress
+            assertThat(map.get(new BytesRef("1")).version(), equalTo(1l));
+            map.put(new BytesRef("2"), 1, false, 20, null);
+            map.afterRefresh(0);
+
+            assertThat(map.get(new BytesRef("1")), nullValue());
+            assertThat(map.get(new BytesRef("2")).version(), equalTo(1l));
+            assertThat(map.get(new BytesRef("2")).translogLocation(), nullValue());
+            assertThat(map.size(), equalTo(1l));
+        } finally {
+            map.close();
+        }
+    }
+
+    @Test
+    public void testDeletesAreCarriedOver() {
+        final LiveVersionMap map = new LiveVersionMap(BigArraysTests.randombigArrays(), randomIntBetween(1, 16));
+        try {
+            map.put(new BytesRef("1"), 2, true, 10, new Translog.Location(1, 0, 10));
+            map.put(new BytesRef("2"), 3, true, 100, new Translog.Location(1, 10, 10));
+            map.put(new BytesRef("3"), 4, true, 100, new Translog.Location(1, 20, 10));
+            map.beforeRefresh();
+            // a newer value written during the refresh must not be overridden by the carried over delete
+            map.put(new BytesRef("3"), 5, false, 110, new Translog.Location(1, 30, 10));
+            map.afterRefresh(50);
+
+            assertThat(map.get(new BytesRef("1")), nullValue());
+            assertThat(map.get(new BytesRef("2")).version(), equalTo(3l));
+            assertThat(map.get(new BytesRef("2")).delete(), equalTo(true));
+            assertThat(map.get(new BytesRef("3")).version(), equalTo(5l));
+            assertThat(map.get(new BytesRef("3")).delete(), equalTo(false));
+        } finally {
+            map.close();
+        }
+    }
+
+    @Test
+    public void testConcurrentGetDeleteRefresh() throws Exception {
+        final LiveVersionMap map = new LiveVersionMap(BigArraysTests.randombigArrays(), randomIntBetween(1, 16));
+        try {
+            final int numWriters = randomIntBetween(1, 4);
+            final int numReaders = randomIntBetween(1, 4);
+            final int numUidsPerWriter = randomIntBetween(1, 50);
+            final int iters = scaledRandomIntBetween(1000, 10000);
+            // the last version each uid was deleted with, deletes are never pruned so they must always be visible
+            final ConcurrentMap<BytesRef, Long> deleted = new ConcurrentHashMap<>();
+            final AtomicBoolean running = new AtomicBoolean(true);
+            final AtomicReference<Throwable> failure = new AtomicReference<>();
+            final CyclicBarrier barrier = new CyclicBarrier(numWriters + numReaders + 1);
+            final List<Thread> threads = new ArrayList<>();
+            for (int w = 0; w < numWriters; w++) {
+                final int writer = w;
+                threads.add(new Thread() {
+                    @Override
+                    public void run() {
+                        try {
+                            barrier.await();
+                            // every writer has its own uids, writes on the same uid are serialized
+                            for (int i = 0; i < iters; i++) {
+                                final BytesRef uid = new BytesRef(writer + "_" + (i % numUidsPerWriter));
+                                final long version = i + 1;
+                                map.put(uid, version, true, i, null);
+                                deleted.put(uid, version);
+                                final InternalEngine.VersionValue value = map.get(uid);
+                                assertThat(value, notNullValue());
+                                assertThat(value.delete(), equalTo(true));
+                                assertThat(value.version(), equalTo(version));
+                            }
+                        } catch (Throwable t) {
+                            failure.compareAndSet(null, t);
+                        }
+                    }
+                });
+            }
+            for (int r = 0; r < numReaders; r++) {
+                threads.add(new Thread() {
+                    @Override
+                    public void run() {
+                        try {
+                            barrier.await();
+                            while (running.get()) {
+                                for (Map.Entry<BytesRef, Long> entry : deleted.entrySet()) {
+                                    final long minVersion = entry.getValue();
+                                    final InternalEngine.VersionValue value = map.get(entry.getKey());
+                                    assertThat(value, notNullValue());
+                                    assertThat(value.delete(), equalTo(true));
+                                    assertThat(value.version(), greaterThanOrEqualTo(minVersion));
+                                }
+                            }
+                        } catch (Throwable t) {
+                            failure.compareAndSet(null, t);
+                        }
+                    }
+                });
+            }
+            final Thread refresher = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        barrier.await();
+                        while (running.get()) {
+                            map.beforeRefresh();
+                            map.afterRefresh(Long.MIN_VALUE);
+                        }
+                    } catch (Throwable t) {
+                        failure.compareAndSet(null, t);
+                    }
+                }
+            };
+            refresher.start();
+            for (Thread thread : threads) {
+                thread.start();
+            }
+            for (int w = 0; w < numWriters; w++) {
+                threads.get(w).join();
+            }
+            running.set(false);
+            for (Thread thread : threads) {
+                thread.join();
+            }
+            refresher.join();
+            if (failure.get() != null) {
+                throw new AssertionError(failure.get());
+            }
+            for (Map.Entry<BytesRef, Long> entry : deleted.entrySet()) {
+                assertThat(map.get(entry.getKey()).version(), equalTo(entry.getValue()));
+            }
+        } finally {
+            map.close();
+        }
+    }
+}
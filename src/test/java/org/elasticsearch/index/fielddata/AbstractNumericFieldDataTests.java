@@ -80,6 +80,13 @@ public abstract class AbstractNumericFieldDataTests extends AbstractFieldDataImp
         assertThat(1, equalTo(doubleValues.setDocument(2)));
         assertThat(doubleValues.nextValue(), equalTo(3d));
 
+        double[] bulkValues = new double[3];
+        assertThat(doubleValues.fill(new int[] {0, 1, 2}, 3, bulkValues), equalTo(3));
+        assertThat(bulkValues, equalTo(new double[] {2d, 1d, 3d}));
+        bulkValues = new double[2];
+        assertThat(doubleValues.fill(new int[] {0, 2}, 2, bulkValues), equalTo(2));
+        assertThat(bulkValues, equalTo(new double[] {2d, 3d}));
+
         IndexSearcher searcher = new IndexSearcher(readerContext.reader());
         TopFieldDocs topDocs;
 
@@ -128,6 +135,11 @@ public abstract class AbstractNumericFieldDataTests extends AbstractFieldDataImp
         assertThat(1, equalTo(doubleValues.setDocument(2)));
         assertThat(doubleValues.nextValue(), equalTo(3d));
 
+        double[] bulkValues = new double[3];
+        assertThat(doubleValues.fill(new int[] {0, 1, 2}, 3, bulkValues), equalTo(2));
+        assertThat(bulkValues[0], equalTo(2d));
+        assertThat(bulkValues[1], equalTo(3d));
+
         IndexSearcher searcher = new IndexSearcher(readerContext.reader());
         TopFieldDocs topDocs;
 
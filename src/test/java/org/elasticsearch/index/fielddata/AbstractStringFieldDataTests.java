@@ -50,7 +50,9 @@ import org.junit.Test;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.TreeSet;
 
 import static org.hamcrest.Matchers.*;
 
@@ -567,4 +569,100 @@ public abstract class AbstractStringFieldDataTests extends AbstractFieldDataImpl
         ifdService.clear();
         assertThat(indicesFieldDataCache.getCache().size(), equalTo(0l));
     }
+
+    @Test
+    public void testGlobalOrdinalsAfterRefresh() throws Exception {
+        FieldDataType fieldDataType = new FieldDataType("string", ImmutableSettings.builder().put("global_ordinals", "fixed"));
+        IndexFieldData.WithOrdinals ifd = getForField(fieldDataType, "value");
+        final int numTerms = scaledRandomIntBetween(10, 500);
+        final int iters = between(3, 10);
+        int id = 0;
+        IndexFieldData.WithOrdinals previous = null;
+        for (int i = 0; i < iters; i++) {
+            // a few large segments first, then small ones that get merged into the global ordinals of the previous reader
+            final int numDocs = i == 0 ? scaledRandomIntBetween(100, 1000) : between(1, 20);
+            for (int j = 0; j < numDocs; j++) {
+                Document d = new Document();
+                d.add(new StringField("_id", Integer.toString(id++), Field.Store.NO));
+                final int numValues = between(0, 3);
+                for (int k = 0; k < numValues; k++) {
+                    d.add(new StringField("value", "term" + between(0, numTerms), Field.Store.NO));
+                }
+                writer.addDocument(d);
+                if (i == 0 && randomInt(numDocs) < 3) {
+                    writer.commit();
+                }
+            }
+            if (randomBoolean()) {
+                writer.deleteDocuments(new Term("_id", Integer.toString(randomInt(id - 1))));
+            }
+            if (rarely()) {
+                writer.forceMerge(between(1, 3));
+            }
+            refreshReader();
+            IndexFieldData.WithOrdinals globalOrdinals = ifd.loadGlobal(topLevelReader);
+            assertThat(globalOrdinals, not(sameInstance(previous)));
+            assertGlobalOrdinals(ifd, globalOrdinals);
+            // keeps the previous global ordinals around for the next build like warming does
+            previous = globalOrdinals;
+        }
+    }
+
+    @Test
+    public void testGlobalOrdinalsAfterRefreshAddingSegment() throws Exception {
+        FieldDataType fieldDataType = new FieldDataType("string", ImmutableSettings.builder().put("global_ordinals", "fixed"));
+        IndexFieldData.WithOrdinals ifd = getForField(fieldDataType, "value");
+        // two large segments with interleaved terms
+        for (int i = 0; i < 2; i++) {
+            for (int j = 0; j < 300; j++) {
+                Document d = new Document();
+                d.add(new StringField("value", "term" + (2 * j + i), Field.Store.NO));
+                writer.addDocument(d);
+            }
+            writer.commit();
+        }
+        refreshReader();
+        IndexFieldData.WithOrdinals previous = ifd.loadGlobal(topLevelReader);
+        assertGlobalOrdinals(ifd, previous);
+
+        // a refresh that only adds a small segment keeps all the segments of the previous reader
+        Document d = new Document();
+        d.add(new StringField("value", "term0", Field.Store.NO));
+        d.add(new StringField("value", "term1000", Field.Store.NO));
+        d.add(new StringField("value", "zzz", Field.Store.NO));
+        writer.addDocument(d);
+        refreshReader();
+        assertThat(topLevelReader.leaves().size(), equalTo(3));
+        IndexFieldData.WithOrdinals globalOrdinals = ifd.loadGlobal(topLevelReader);
+        assertThat(globalOrdinals, not(sameInstance(previous)));
+        assertGlobalOrdinals(ifd, globalOrdinals);
+    }
+
+    private void assertGlobalOrdinals(IndexFieldData.WithOrdinals ifd, IndexFieldData.WithOrdinals globalOrdinals) throws Exception {
+        TreeSet<BytesRef> terms = new TreeSet<>();
+        for (AtomicReaderContext context : topLevelReader.leaves()) {
+            TermsEnum termsEnum = ifd.load(context).getTermsEnum();
+            for (BytesRef term = termsEnum.next(); term != null; term = termsEnum.next()) {
+                terms.add(BytesRef.deepCopyOf(term));
+            }
+        }
+        List<BytesRef> sortedTerms = new ArrayList<>(terms);
+        for (AtomicReaderContext context : topLevelReader.leaves()) {
+            BytesValues.WithOrdinals segmentValues = ifd.load(context).getBytesValues(false);
+            BytesValues.WithOrdinals globalValues = globalOrdinals.load(context).getBytesValues(false);
+            Ordinals.Docs segmentOrdinals = segmentValues.ordinals();
+            Ordinals.Docs globalOrds = globalValues.ordinals();
+            assertThat(globalOrds.getMaxOrd(), equalTo((long) sortedTerms.size()));
+            for (int doc = 0; doc < context.reader().maxDoc(); doc++) {
+                final int numValues = segmentOrdinals.setDocument(doc);
+                assertThat(globalOrds.setDocument(doc), equalTo(numValues));
+                for (int i = 0; i < numValues; i++) {
+                    BytesRef term = segmentValues.getValueByOrd(segmentOrdinals.nextOrd());
+                    long globalOrd = globalOrds.nextOrd();
+                    assertThat(globalOrd, equalTo((long) Collections.binarySearch(sortedTerms, term)));
+                    assertThat(globalValues.getValueByOrd(globalOrd), equalTo(term));
+                }
+            }
+        }
+    }
 }
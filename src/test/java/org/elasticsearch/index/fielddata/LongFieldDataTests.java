@@ -375,6 +375,29 @@ public class LongFieldDataTests extends AbstractNumericFieldDataTests {
             }
             assertThat(doubleSet, equalTo(doubleV));
         }
+
+        if (!doubleData.isMultiValued()) {
+            // bulk reads must return the same values as reads document per document
+            final int from = randomInt(values.size() - 1);
+            final int to = randomIntBetween(from, values.size() - 1);
+            final boolean consecutive = randomBoolean();
+            final int[] docs = new int[to - from + 1];
+            int count = 0;
+            for (int i = from; i <= to; ++i) {
+                if (consecutive || randomBoolean()) {
+                    docs[count++] = i;
+                }
+            }
+            final double[] bulkValues = new double[count];
+            final int numValues = doubleData.fill(docs, count, bulkValues);
+            int expectedNumValues = 0;
+            for (int i = 0; i < count; ++i) {
+                if (doubleData.setDocument(docs[i]) > 0) {
+                    assertThat(bulkValues[expectedNumValues++], equalTo(doubleData.nextValue()));
+                }
+            }
+            assertThat(numValues, equalTo(expectedNumValues));
+        }
     }
 
     private void test(Data data) throws Exception {
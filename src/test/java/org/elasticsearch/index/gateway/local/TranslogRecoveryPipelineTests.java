@@ -0,0 +1,253 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.elasticsearch.index.gateway.local;
+
+import org.apache.lucene.index.Term;
+import org.elasticsearch.ElasticsearchException;
+import org.elasticsearch.common.bytes.BytesArray;
+import org.elasticsearch.common.logging.Loggers;
+import org.elasticsearch.index.engine.Engine;
+import org.elasticsearch.index.mapper.MapperParsingException;
+import org.elasticsearch.index.mapper.Uid;
+import org.elasticsearch.index.translog.Translog;
+import org.elasticsearch.indices.recovery.RecoveryState;
+import org.elasticsearch.test.ElasticsearchTestCase;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.Matchers.*;
+
+public class TranslogRecoveryPipelineTests extends ElasticsearchTestCase {
+
+    private ExecutorService executor;
+
+    @Before
+    public void startExecutor() {
+        executor = Executors.newFixedThreadPool(between(1, 8));
+    }
+
+    @After
+    public void stopExecutor() throws Exception {
+        executor.shutdown();
+        assertThat(executor.awaitTermination(10, TimeUnit.SECONDS), equalTo(true));
+    }
+
+    /**
+     * Records the operations in the order they are applied. Every operation of the translog is identified by its
+     * position in it.
+     */
+    private static class RecordingTarget implements TranslogRecoveryPipeline.Target {
+
+        final Map<Translog.Operation, Integer> positions = new IdentityHashMap<>();
+        final ConcurrentMap<Engine.Operation, Integer> prepared = new ConcurrentHashMap<>();
+        final ConcurrentMap<Term, List<Integer>> appliedByUid = new ConcurrentHashMap<>();
+        final AtomicInteger applied = new AtomicInteger();
+        // the number of operations that were applied when each delete by query was applied
+        final List<Integer> appliedBeforeDeleteByQuery = Collections.synchronizedList(new ArrayList<Integer>());
+
+        List<Translog.Operation> operations(int numOps, int numUids, double deleteByQueryRatio) {
+            List<Translog.Operation> operations = new ArrayList<>();
+            for (int i = 0; i < numOps; i++) {
+                final Translog.Operation operation;
+                if (randomDouble() < deleteByQueryRatio) {
+                    operation = new Translog.DeleteByQuery(new BytesArray(new byte[]{1}), null);
+                } else {
+                    operation = new Translog.Delete(new Term("_uid", Uid.createUid("test", Integer.toString(randomInt(numUids - 1)))));
+                }
+                positions.put(operation, i);
+                operations.add(operation);
+            }
+            return operations;
+        }
+
+        @Override
+        public Engine.Operation prepareRecoveryOperation(Translog.Operation operation) throws ElasticsearchException {
+            final Term uid = ((Translog.Delete) operation).uid();
+            final Engine.Delete delete = new Engine.Delete("test", Uid.createUid(uid.text()).id(), uid);
+            prepared.put(delete, positions.get(operation));
+            return delete;
+        }
+
+        @Override
+        public void performRecoveryOperation(Engine.Operation operation) throws ElasticsearchException {
+            final Term uid = ((Engine.Delete) operation).uid();
+            List<Integer> uidOperations = appliedByUid.get(uid);
+            if (uidOperations == null) {
+                uidOperations = Collections.synchronizedList(new ArrayList<Integer>());
+                List<Integer> existing = appliedByUid.putIfAbsent(uid, uidOperations);
+                if (existing != null) {
+                    uidOperations = existing;
+                }
+            }
+            uidOperations.add(prepared.get(operation));
+            applied.incrementAndGet();
+        }
+
+        @Override
+        public void performRecoveryOperation(Translog.Operation operation) throws ElasticsearchException {
+            assertThat(operation, instanceOf(Translog.DeleteByQuery.class));
+            appliedBeforeDeleteByQuery.add(applied.get());
+        }
+    }
+
+    private TranslogRecoveryPipeline pipeline(TranslogRecoveryPipeline.Target target, RecoveryState.Translog recoveryState) {
+        return new TranslogRecoveryPipeline(target, recoveryState, executor, between(1, 8), between(1, 50),
+                Loggers.getLogger(TranslogRecoveryPipelineTests.class));
+    }
+
+    @Test
+    public void testSameUidAppliedInOrder() throws Exception {
+        final RecordingTarget target = new RecordingTarget();
+        final RecoveryState.Translog recoveryState = new RecoveryState.Translog();
+        final List<Translog.Operation> operations = target.operations(scaledRandomIntBetween(100, 2000), between(1, 20), 0);
+        TranslogRecoveryPipeline pipeline = pipeline(target, recoveryState);
+        for (Translog.Operation operation : operations) {
+            pipeline.add(operation);
+        }
+        pipeline.finish();
+
+        assertThat(target.applied.get(), equalTo(operations.size()));
+        for (Map.Entry<Term, List<Integer>> entry : target.appliedByUid.entrySet()) {
+            List<Integer> expected = new ArrayList<>();
+            for (int i = 0; i < operations.size(); i++) {
+                if (entry.getKey().equals(((Translog.Delete) operations.get(i)).uid())) {
+                    expected.add(i);
+                }
+            }
+            assertThat("operations of uid [" + entry.getKey().text() + "]", entry.getValue(), equalTo(expected));
+        }
+    }
+
+    @Test
+    public void testDeleteByQueryIsABarrier() throws Exception {
+        final RecordingTarget target = new RecordingTarget();
+        final RecoveryState.Translog recoveryState = new RecoveryState.Translog();
+        final List<Translog.Operation> operations = target.operations(scaledRandomIntBetween(100, 2000), between(1, 20), 0.05);
+        TranslogRecoveryPipeline pipeline = pipeline(target, recoveryState);
+        List<Integer> expected = new ArrayList<>();
+        int deletes = 0;
+        for (Translog.Operation operation : operations) {
+            if (operation instanceof Translog.DeleteByQuery) {
+                // everything before it was applied, nothing after it
+                expected.add(deletes);
+            } else {
+                deletes++;
+            }
+            pipeline.add(operation);
+        }
+        pipeline.finish();
+
+        assertThat(target.appliedBeforeDeleteByQuery, equalTo(expected));
+        assertThat(target.applied.get(), equalTo(deletes));
+        assertThat(recoveryState.currentTranslogOperations(), equalTo(operations.size()));
+    }
+
+    @Test
+    public void testProgress() throws Exception {
+        final RecordingTarget target = new RecordingTarget();
+        final RecoveryState.Translog recoveryState = new RecoveryState.Translog();
+        final List<Translog.Operation> operations = target.operations(scaledRandomIntBetween(100, 2000), between(1, 20), 0.01);
+        TranslogRecoveryPipeline pipeline = pipeline(target, recoveryState);
+        int previous = 0;
+        for (int i = 0; i < operations.size(); i++) {
+            pipeline.add(operations.get(i));
+            // only operations that were applied are reported, and the count never goes backwards
+            final int current = recoveryState.currentTranslogOperations();
+            assertThat(current, greaterThanOrEqualTo(previous));
+            assertThat(current, lessThanOrEqualTo(i + 1));
+            previous = current;
+        }
+        pipeline.finish();
+        assertThat(recoveryState.currentTranslogOperations(), equalTo(operations.size()));
+    }
+
+    @Test
+    public void testBadRequestsAreIgnored() throws Exception {
+        final RecoveryState.Translog recoveryState = new RecoveryState.Translog();
+        final RecordingTarget target = new RecordingTarget() {
+            @Override
+            public Engine.Operation prepareRecoveryOperation(Translog.Operation operation) throws ElasticsearchException {
+                if (positions.get(operation) % 3 == 0) {
+                    throw new MapperParsingException("corrupt operation");
+                }
+                return super.prepareRecoveryOperation(operation);
+            }
+        };
+        final List<Translog.Operation> operations = target.operations(scaledRandomIntBetween(100, 2000), between(1, 20), 0);
+        TranslogRecoveryPipeline pipeline = pipeline(target, recoveryState);
+        for (Translog.Operation operation : operations) {
+            pipeline.add(operation);
+        }
+        pipeline.finish();
+
+        final int expected = operations.size() - (operations.size() + 2) / 3;
+        assertThat(target.applied.get(), equalTo(expected));
+        assertThat(recoveryState.currentTranslogOperations(), equalTo(expected));
+    }
+
+    @Test
+    public void testFailureFailsTheRecovery() throws Exception {
+        final RecoveryState.Translog recoveryState = new RecoveryState.Translog();
+        final boolean failOnPrepare = randomBoolean();
+        final RecordingTarget target = new RecordingTarget() {
+            @Override
+            public Engine.Operation prepareRecoveryOperation(Translog.Operation operation) throws ElasticsearchException {
+                if (failOnPrepare && positions.get(operation) == 42) {
+                    throw new ElasticsearchException("failed to prepare");
+                }
+                return super.prepareRecoveryOperation(operation);
+            }
+
+            @Override
+            public void performRecoveryOperation(Engine.Operation operation) throws ElasticsearchException {
+                if (!failOnPrepare && prepared.get(operation) == 42) {
+                    throw new ElasticsearchException("failed to apply");
+                }
+                super.performRecoveryOperation(operation);
+            }
+        };
+        final List<Translog.Operation> operations = target.operations(scaledRandomIntBetween(100, 2000), between(1, 20), 0);
+        TranslogRecoveryPipeline pipeline = pipeline(target, recoveryState);
+        try {
+            for (Translog.Operation operation : operations) {
+                pipeline.add(operation);
+            }
+            pipeline.finish();
+            fail("the recovery should have failed");
+        } catch (ElasticsearchException e) {
+            assertThat(e.getMessage(), equalTo(failOnPrepare ? "failed to prepare" : "failed to apply"));
+        }
+        assertThat(target.applied.get(), lessThan(operations.size()));
+    }
+}
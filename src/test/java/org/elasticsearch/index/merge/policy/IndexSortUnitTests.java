@@ -0,0 +1,100 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.elasticsearch.index.merge.policy;
+
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.SortField;
+import org.elasticsearch.ElasticsearchIllegalArgumentException;
+import org.elasticsearch.index.fielddata.IndexFieldData;
+import org.elasticsearch.index.fielddata.fieldcomparator.BytesRefFieldComparatorSource;
+import org.elasticsearch.index.fielddata.fieldcomparator.DoubleValuesComparatorSource;
+import org.elasticsearch.index.fielddata.fieldcomparator.LongValuesComparatorSource;
+import org.elasticsearch.index.search.nested.NestedFieldComparatorSource;
+import org.elasticsearch.search.MultiValueMode;
+import org.elasticsearch.test.ElasticsearchTestCase;
+import org.junit.Test;
+
+import static org.elasticsearch.common.settings.ImmutableSettings.settingsBuilder;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.nullValue;
+
+public class IndexSortUnitTests extends ElasticsearchTestCase {
+
+    @Test
+    public void testIndexSort() {
+        assertThat(IndexSort.indexSort(settingsBuilder().build()), nullValue());
+
+        Sort sort = IndexSort.indexSort(settingsBuilder()
+                .put(IndexSort.INDEX_SORT_FIELD, "timestamp")
+                .put(IndexSort.INDEX_SORT_ORDER, "desc")
+                .put(IndexSort.INDEX_SORT_TYPE, "double").build());
+        assertThat(sort.getSort().length, equalTo(1));
+        assertThat(sort.getSort()[0].getField(), equalTo("timestamp"));
+        assertThat(sort.getSort()[0].getType(), equalTo(SortField.Type.DOUBLE));
+        assertThat(sort.getSort()[0].getReverse(), equalTo(true));
+    }
+
+    @Test(expected = ElasticsearchIllegalArgumentException.class)
+    public void testUnknownOrder() {
+        IndexSort.indexSort(settingsBuilder().put(IndexSort.INDEX_SORT_FIELD, "timestamp").put(IndexSort.INDEX_SORT_ORDER, "up").build());
+    }
+
+    @Test(expected = ElasticsearchIllegalArgumentException.class)
+    public void testUnknownType() {
+        IndexSort.indexSort(settingsBuilder().put(IndexSort.INDEX_SORT_FIELD, "timestamp").put(IndexSort.INDEX_SORT_TYPE, "string").build());
+    }
+
+    @Test
+    public void testSortsLike() {
+        final Sort asc = IndexSort.indexSort(settingsBuilder().put(IndexSort.INDEX_SORT_FIELD, "timestamp").build());
+        final Sort desc = IndexSort.indexSort(settingsBuilder().put(IndexSort.INDEX_SORT_FIELD, "timestamp").put(IndexSort.INDEX_SORT_ORDER, "desc").build());
+
+        assertThat(IndexSort.sortsLike(asc, sort("timestamp", new LongValuesComparatorSource(null, null, MultiValueMode.MIN), false)), equalTo(true));
+        assertThat(IndexSort.sortsLike(asc, sort("timestamp", new LongValuesComparatorSource(null, "_last", MultiValueMode.MIN), false)), equalTo(true));
+        assertThat(IndexSort.sortsLike(asc, sort("timestamp", new DoubleValuesComparatorSource(null, null, MultiValueMode.MIN), false)), equalTo(true));
+        assertThat(IndexSort.sortsLike(desc, sort("timestamp", new LongValuesComparatorSource(null, null, MultiValueMode.MAX), true)), equalTo(true));
+
+        // other field or order
+        assertThat(IndexSort.sortsLike(asc, sort("other", new LongValuesComparatorSource(null, null, MultiValueMode.MIN), false)), equalTo(false));
+        assertThat(IndexSort.sortsLike(asc, sort("timestamp", new LongValuesComparatorSource(null, null, MultiValueMode.MAX), true)), equalTo(false));
+        assertThat(IndexSort.sortsLike(asc, new Sort(new SortField("timestamp", new LongValuesComparatorSource(null, null, MultiValueMode.MIN), false),
+                new SortField("other", new LongValuesComparatorSource(null, null, MultiValueMode.MIN), false))), equalTo(false));
+
+        // missing values not sorted last
+        assertThat(IndexSort.sortsLike(asc, sort("timestamp", new LongValuesComparatorSource(null, "_first", MultiValueMode.MIN), false)), equalTo(false));
+        assertThat(IndexSort.sortsLike(asc, sort("timestamp", new LongValuesComparatorSource(null, "42", MultiValueMode.MIN), false)), equalTo(false));
+
+        // multiple values not sorted by their default value
+        assertThat(IndexSort.sortsLike(asc, sort("timestamp", new LongValuesComparatorSource(null, null, MultiValueMode.MAX), false)), equalTo(false));
+        assertThat(IndexSort.sortsLike(asc, sort("timestamp", new LongValuesComparatorSource(null, null, MultiValueMode.AVG), false)), equalTo(false));
+        assertThat(IndexSort.sortsLike(desc, sort("timestamp", new LongValuesComparatorSource(null, null, MultiValueMode.MIN), true)), equalTo(false));
+
+        // nested and non numeric sorts
+        final IndexFieldData.XFieldComparatorSource nested = new NestedFieldComparatorSource(MultiValueMode.MIN,
+                new LongValuesComparatorSource(null, null, MultiValueMode.MIN), null, null);
+        assertThat(IndexSort.sortsLike(asc, sort("timestamp", nested, false)), equalTo(false));
+        assertThat(IndexSort.sortsLike(asc, sort("timestamp", new BytesRefFieldComparatorSource(null, null, MultiValueMode.MIN), false)), equalTo(false));
+    }
+
+    private static Sort sort(String field, IndexFieldData.XFieldComparatorSource comparatorSource, boolean reverse) {
+        return new Sort(new SortField(field, comparatorSource, reverse));
+    }
+}
@@ -56,6 +56,7 @@ import org.elasticsearch.search.internal.ContextIndexSearcher;
 import org.elasticsearch.search.internal.SearchContext;
 import org.elasticsearch.search.internal.ShardSearchRequest;
 import org.elasticsearch.search.lookup.SearchLookup;
+import org.elasticsearch.search.profile.Profilers;
 import org.elasticsearch.search.query.QuerySearchResult;
 import org.elasticsearch.search.rescore.RescoreSearchContext;
 import org.elasticsearch.search.scan.ScanContext;
@@ -158,7 +159,7 @@ public class TestSearchContext extends SearchContext {
     }
 
     @Override
-    public long nowInMillis() {
+    protected long nowInMillisImpl() {
         return 0;
     }
 
@@ -392,6 +393,26 @@ public class TestSearchContext extends SearchContext {
         return null;
     }
 
+    @Override
+    public SearchContext sliceFilter(Filter sliceFilter) {
+        return null;
+    }
+
+    @Override
+    public Filter sliceFilter() {
+        return null;
+    }
+
+    @Override
+    public SearchContext profilers(Profilers profilers) {
+        return null;
+    }
+
+    @Override
+    public Profilers profilers() {
+        return null;
+    }
+
     @Override
     public SearchContext parsedQuery(ParsedQuery query) {
         return null;
@@ -535,6 +556,11 @@ public class TestSearchContext extends SearchContext {
         return null;
     }
 
+    @Override
+    public boolean hasLookup() {
+        return false;
+    }
+
     @Override
     public DfsSearchResult dfsResult() {
         return null;
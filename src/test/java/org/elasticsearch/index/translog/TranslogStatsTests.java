@@ -0,0 +1,73 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.elasticsearch.index.translog;
+
+import org.elasticsearch.Version;
+import org.elasticsearch.common.io.stream.BytesStreamInput;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.test.ElasticsearchTestCase;
+import org.junit.Test;
+
+import static org.hamcrest.Matchers.equalTo;
+
+public class TranslogStatsTests extends ElasticsearchTestCase {
+
+    @Test
+    public void testSerialization() throws Exception {
+        TranslogStats stats = new TranslogStats(randomIntBetween(0, 1000), randomIntBetween(0, Integer.MAX_VALUE), randomIntBetween(0, 1000), randomIntBetween(0, 100000));
+
+        TranslogStats read = serialize(stats, Version.CURRENT);
+        assertThat(read.getEstimatedNumberOfOperations(), equalTo(stats.getEstimatedNumberOfOperations()));
+        assertThat(read.getTranslogSizeInBytes(), equalTo(stats.getTranslogSizeInBytes()));
+        assertThat(read.getSyncCount(), equalTo(stats.getSyncCount()));
+        assertThat(read.getSyncTime(), equalTo(stats.getSyncTime()));
+
+        // older nodes only know about the number of operations
+        read = serialize(stats, Version.V_1_2_0);
+        assertThat(read.getEstimatedNumberOfOperations(), equalTo(stats.getEstimatedNumberOfOperations()));
+        assertThat(read.getTranslogSizeInBytes(), equalTo(0l));
+        assertThat(read.getSyncCount(), equalTo(0l));
+        assertThat(read.getSyncTime().millis(), equalTo(0l));
+    }
+
+    @Test
+    public void testAdd() {
+        TranslogStats stats = new TranslogStats(1, 10, 2, 20);
+        stats.add(new TranslogStats(3, 30, 4, 40));
+        stats.add(null);
+        assertThat(stats.getEstimatedNumberOfOperations(), equalTo(4));
+        assertThat(stats.getTranslogSizeInBytes(), equalTo(40l));
+        assertThat(stats.getSyncCount(), equalTo(6l));
+        assertThat(stats.getSyncTime().millis(), equalTo(60l));
+    }
+
+    private static TranslogStats serialize(TranslogStats stats, Version version) throws Exception {
+        BytesStreamOutput out = new BytesStreamOutput();
+        out.setVersion(version);
+        stats.writeTo(out);
+        StreamInput in = new BytesStreamInput(out.bytes());
+        in.setVersion(version);
+        TranslogStats read = new TranslogStats();
+        read.readFrom(in);
+        return read;
+    }
+}
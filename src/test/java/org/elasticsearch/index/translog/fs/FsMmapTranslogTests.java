@@ -0,0 +1,185 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.translog.fs;
+
+import org.elasticsearch.common.bytes.BytesArray;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.bytes.ReleasableBytesReference;
+import org.elasticsearch.common.io.FileSystemUtils;
+import org.elasticsearch.common.io.stream.ByteBufferStreamInput;
+import org.elasticsearch.common.io.stream.InputStreamStreamInput;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.settings.ImmutableSettings;
+import org.elasticsearch.index.translog.AbstractSimpleTranslogTests;
+import org.elasticsearch.index.translog.Translog;
+import org.elasticsearch.index.translog.TranslogSizeMatcher;
+import org.elasticsearch.index.translog.TranslogStreams;
+import org.junit.AfterClass;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.instanceOf;
+
+/**
+ *
+ */
+public class FsMmapTranslogTests extends AbstractSimpleTranslogTests {
+
+    @Override
+    protected Translog create() {
+        return new FsTranslog(shardId,
+                ImmutableSettings.settingsBuilder().put("index.translog.fs.type", FsTranslogFile.Type.MMAP.name()).build(),
+                new File("data/fs-mmap-translog"));
+    }
+
+    @AfterClass
+    public static void cleanup() {
+        FileSystemUtils.deleteRecursively(new File("data/fs-mmap-translog"), true);
+    }
+
+    private File translogFile() {
+        return new File("data/fs-mmap-translog", "translog-1");
+    }
+
+    /**
+     * Adds a few operations and closes the translog, as a shard does before a restart, and returns the locations.
+     */
+    private Translog.Location[] writeAndClose() {
+        Translog.Location[] locations = new Translog.Location[]{
+                translog.add(new Translog.Create("test", "1", new byte[]{1})),
+                translog.add(new Translog.Index("test", "2", new byte[]{2})),
+                translog.add(new Translog.Index("test", "3", new byte[]{3, 3, 3}))};
+        translog.close();
+        return locations;
+    }
+
+    /**
+     * Reads the operations of the translog file like the recovery does, from its mapping or through a stream.
+     */
+    private List<Translog.Operation> recover(boolean mapped) throws IOException {
+        List<Translog.Operation> operations = new ArrayList<>();
+        RandomAccessFile raf = new RandomAccessFile(translogFile(), "r");
+        try {
+            final StreamInput in;
+            if (mapped) {
+                in = new ByteBufferStreamInput(raf.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, raf.length()));
+            } else {
+                in = new InputStreamStreamInput(new FileInputStream(raf.getFD()));
+            }
+            for (Translog.Operation operation = TranslogStreams.readNextOperation(in); operation != null; operation = TranslogStreams.readNextOperation(in)) {
+                operations.add(operation);
+            }
+        } finally {
+            raf.close();
+        }
+        return operations;
+    }
+
+    @Test
+    public void testRecovery() throws IOException {
+        Translog.Location[] locations = writeAndClose();
+        // the preallocated space was dropped on close
+        assertThat(translogFile().length(), equalTo(locations[2].translogLocation + locations[2].size));
+        for (boolean mapped : new boolean[]{true, false}) {
+            List<Translog.Operation> operations = recover(mapped);
+            assertThat(operations.size(), equalTo(3));
+            assertThat(((Translog.Index) operations.get(2)).source().toBytesArray(), equalTo(new BytesArray(new byte[]{3, 3, 3})));
+        }
+    }
+
+    @Test
+    public void testRecoveryOfTornWrite() throws IOException {
+        Translog.Location[] locations = writeAndClose();
+        // a crash while the last operation was written, anywhere in its frame
+        for (int written = locations[2].size - 1; written > 0; written--) {
+            RandomAccessFile raf = new RandomAccessFile(translogFile(), "rw");
+            try {
+                raf.setLength(locations[2].translogLocation + written);
+            } finally {
+                raf.close();
+            }
+            assertThat(recover(true).size(), equalTo(2));
+            assertThat(recover(false).size(), equalTo(2));
+        }
+    }
+
+    @Test
+    public void testRecoveryOfChecksumMismatch() throws IOException {
+        Translog.Location[] locations = writeAndClose();
+        // flip each byte of the operation and of its checksum, after the size header
+        for (int offset = 4; offset < locations[1].size; offset++) {
+            final long position = locations[1].translogLocation + offset;
+            flip(position);
+            // the operations after a corrupted one aren't replayed either
+            assertThat(recover(true).size(), equalTo(1));
+            assertThat(recover(false).size(), equalTo(1));
+            flip(position);
+        }
+        assertThat(recover(true).size(), equalTo(3));
+    }
+
+    private void flip(long position) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(translogFile(), "rw");
+        try {
+            raf.seek(position);
+            final int b = raf.read();
+            raf.seek(position);
+            raf.write(~b);
+        } finally {
+            raf.close();
+        }
+    }
+
+    @Test
+    public void testReadsKeepTheFileMapped() throws IOException {
+        Translog.Location location = translog.add(new Translog.Index("test", "1", new byte[]{1, 2, 3}));
+        BytesReference data = translog.read(location);
+        assertThat(data, instanceOf(ReleasableBytesReference.class));
+        translog.close();
+
+        // the file is only unmapped and truncated once the bytes are released
+        assertThat(translogFile().length(), equalTo((long) MmapFsTranslogFile.CHUNK_SIZE));
+        assertThat(TranslogStreams.readSource(data).source.toBytesArray(), equalTo(new BytesArray(new byte[]{1, 2, 3})));
+        ((ReleasableBytesReference) data).close();
+        assertThat(translogFile().length(), equalTo((long) location.size));
+    }
+
+    @Test
+    public void testSnapshotsKeepTheFileMapped() throws IOException {
+        translog.add(new Translog.Index("test", "1", new byte[]{1}));
+        translog.add(new Translog.Index("test", "2", new byte[]{2}));
+        Translog.Snapshot snapshot = translog.snapshot();
+        translog.close();
+
+        assertThat(translogFile().length(), equalTo((long) MmapFsTranslogFile.CHUNK_SIZE));
+        assertThat(snapshot, TranslogSizeMatcher.translogSize(2));
+        snapshot.close();
+        assertThat(translogFile().length(), equalTo(snapshot.length()));
+    }
+}
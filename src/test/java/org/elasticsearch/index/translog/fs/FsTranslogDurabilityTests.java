@@ -0,0 +1,245 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.elasticsearch.index.translog.fs;
+
+import org.elasticsearch.common.bytes.BytesArray;
+import org.elasticsearch.common.io.FileSystemUtils;
+import org.elasticsearch.common.settings.ImmutableSettings;
+import org.elasticsearch.index.Index;
+import org.elasticsearch.index.shard.ShardId;
+import org.elasticsearch.index.translog.Translog;
+import org.elasticsearch.test.ElasticsearchTestCase;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.GatheringByteChannel;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.hamcrest.Matchers.*;
+
+/**
+ * Tests the <tt>index.translog.durability</tt> and <tt>index.translog.sync_window</tt> settings of {@link FsTranslog}.
+ */
+public class FsTranslogDurabilityTests extends ElasticsearchTestCase {
+
+    private static final File LOCATION = new File("data/fs-durability-translog");
+
+    private final ShardId shardId = new ShardId(new Index("index"), 1);
+
+    private FsTranslog translog;
+
+    private FsTranslog create(FsTranslog.Durability durability, String syncWindow) {
+        translog = new FsTranslog(shardId, ImmutableSettings.settingsBuilder()
+                .put(FsTranslog.INDEX_TRANSLOG_FS_TYPE, randomFrom(FsTranslogFile.Type.values()).name())
+                .put(FsTranslog.INDEX_TRANSLOG_DURABILITY, durability.name())
+                .put(FsTranslog.INDEX_TRANSLOG_SYNC_WINDOW, syncWindow)
+                .build(), LOCATION);
+        translog.newTranslog(1);
+        return translog;
+    }
+
+    @After
+    public void closeTranslog() {
+        if (translog != null) {
+            translog.closeWithDelete();
+        }
+    }
+
+    @AfterClass
+    public static void cleanup() {
+        FileSystemUtils.deleteRecursively(LOCATION, true);
+    }
+
+    @Test
+    public void testRequestDurability() throws Exception {
+        create(FsTranslog.Durability.REQUEST, "0ms");
+
+        Translog.Location location = translog.add(new Translog.Create("test", "1", new byte[]{1}));
+        assertThat(translog.synced(location), equalTo(true));
+        assertThat(translog.syncNeeded(), equalTo(false));
+        assertThat(translog.stats().getSyncCount(), equalTo(1l));
+
+        // a batch is synced once
+        Translog.Location[] locations = translog.add(new Translog.Operation[]{
+                new Translog.Create("test", "2", new byte[]{2}),
+                new Translog.Index("test", "3", new byte[]{3}),
+                new Translog.Index("test", "4", new byte[]{4})});
+        for (Translog.Location l : locations) {
+            assertThat(translog.synced(l), equalTo(true));
+        }
+        assertThat(translog.syncNeeded(), equalTo(false));
+        assertThat(translog.stats().getSyncCount(), equalTo(2l));
+
+        // nothing left to sync
+        translog.sync();
+        assertThat(translog.stats().getSyncCount(), equalTo(2l));
+    }
+
+    @Test
+    public void testAsyncDurability() throws Exception {
+        create(FsTranslog.Durability.ASYNC, "0ms");
+
+        Translog.Location first = translog.add(new Translog.Create("test", "1", new byte[]{1}));
+        Translog.Location second = translog.add(new Translog.Index("test", "2", new byte[]{2}));
+        assertThat(translog.synced(first), equalTo(false));
+        assertThat(translog.synced(second), equalTo(false));
+        assertThat(translog.syncNeeded(), equalTo(true));
+        assertThat(translog.stats().getSyncCount(), equalTo(0l));
+
+        // the background sync covers all the operations added so far
+        translog.sync();
+        assertThat(translog.synced(first), equalTo(true));
+        assertThat(translog.synced(second), equalTo(true));
+        assertThat(translog.syncNeeded(), equalTo(false));
+        assertThat(translog.stats().getSyncCount(), equalTo(1l));
+    }
+
+    @Test
+    public void testGroupCommit() throws Exception {
+        // a window much larger than the time it takes the writers to append their operation
+        create(FsTranslog.Durability.REQUEST, "500ms");
+
+        final int numThreads = between(4, 8);
+        final CyclicBarrier barrier = new CyclicBarrier(numThreads);
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+        Thread[] threads = new Thread[numThreads];
+        for (int i = 0; i < numThreads; i++) {
+            final String id = Integer.toString(i);
+            threads[i] = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        barrier.await();
+                        Translog.Location location = translog.add(new Translog.Index("test", id, new byte[]{1}));
+                        // only acknowledged once it is fsync'ed
+                        if (!translog.synced(location)) {
+                            throw new AssertionError("operation [" + id + "] was acknowledged before it was synced");
+                        }
+                    } catch (Throwable t) {
+                        failure.compareAndSet(null, t);
+                    }
+                }
+            };
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        if (failure.get() != null) {
+            throw new AssertionError(failure.get());
+        }
+        assertThat(translog.syncNeeded(), equalTo(false));
+        assertThat(translog.stats().getEstimatedNumberOfOperations(), equalTo(numThreads));
+        // the writers that came in during the window were synced by the fsync of the first one
+        assertThat(translog.stats().getSyncCount(), greaterThanOrEqualTo(1l));
+        assertThat(translog.stats().getSyncCount(), lessThan((long) numThreads));
+    }
+
+    @Test
+    public void testSyncOnlyCoversCompletedWrites() throws Exception {
+        FileSystemUtils.mkdirs(LOCATION);
+        final SimpleFsTranslogFile file = new SimpleFsTranslogFile(shardId, 1, new RafReference(new File(LOCATION, "translog-1")));
+        try {
+            final CountDownLatch writing = new CountDownLatch(1);
+            final CountDownLatch release = new CountDownLatch(1);
+            // an operation whose write is slow, the operations added after it would finish first if they could
+            final BytesArray slow = new BytesArray(bytes(100, (byte) 1)) {
+                @Override
+                public void writeTo(GatheringByteChannel channel) throws IOException {
+                    writing.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new IOException(e);
+                    }
+                    super.writeTo(channel);
+                }
+            };
+            final AtomicReference<Translog.Location> slowLocation = new AtomicReference<>();
+            final Translog.Location[] fastLocations = new Translog.Location[2];
+            final AtomicReference<Throwable> failure = new AtomicReference<>();
+            Thread slowWriter = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        slowLocation.set(file.add(slow));
+                    } catch (Throwable t) {
+                        failure.compareAndSet(null, t);
+                    }
+                }
+            };
+            slowWriter.start();
+            writing.await();
+            Thread fastWriters = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        for (int i = 0; i < fastLocations.length; i++) {
+                            fastLocations[i] = file.add(new BytesArray(bytes(100, (byte) (i + 2))));
+                        }
+                    } catch (Throwable t) {
+                        failure.compareAndSet(null, t);
+                    }
+                }
+            };
+            fastWriters.start();
+            // give the fast writers a chance to complete before the slow one
+            fastWriters.join(200);
+
+            // nothing is completely written from the start of the file yet, a sync must not cover anything
+            file.sync();
+            assertThat(file.syncedPosition(), equalTo(0l));
+
+            release.countDown();
+            slowWriter.join();
+            fastWriters.join();
+            if (failure.get() != null) {
+                throw new AssertionError(failure.get());
+            }
+            assertThat(file.syncedPosition(), equalTo(0l));
+            assertThat(file.syncNeeded(), equalTo(true));
+            file.sync();
+            assertThat(file.syncedPosition(), equalTo(300l));
+            assertThat(slowLocation.get().translogLocation + slowLocation.get().size, lessThanOrEqualTo(file.syncedPosition()));
+
+            // every operation landed at its location
+            assertThat(file.read(slowLocation.get()).toBytes(), equalTo(bytes(100, (byte) 1)));
+            for (int i = 0; i < fastLocations.length; i++) {
+                assertThat(file.read(fastLocations[i]).toBytes(), equalTo(bytes(100, (byte) (i + 2))));
+            }
+        } finally {
+            file.close(true);
+        }
+    }
+
+    private static byte[] bytes(int length, byte value) {
+        byte[] bytes = new byte[length];
+        Arrays.fill(bytes, value);
+        return bytes;
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.indices.cache.query;
+
+import org.elasticsearch.action.admin.cluster.node.stats.NodeStats;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.action.search.SearchType;
+import org.elasticsearch.common.breaker.MemoryCircuitBreaker;
+import org.elasticsearch.index.cache.query.QueryCacheStats;
+import org.elasticsearch.search.aggregations.bucket.terms.Terms;
+import org.elasticsearch.test.ElasticsearchIntegrationTest;
+import org.junit.Test;
+
+import static org.elasticsearch.common.settings.ImmutableSettings.settingsBuilder;
+import static org.elasticsearch.index.query.QueryBuilders.rangeQuery;
+import static org.elasticsearch.search.aggregations.AggregationBuilders.terms;
+import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertAcked;
+import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertNoFailures;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+
+public class IndicesQueryCacheTests extends ElasticsearchIntegrationTest {
+
+    @Test
+    public void testCacheAggs() throws Exception {
+        assertAcked(prepareCreate("index").setSettings(settingsBuilder()
+                .put("index.number_of_shards", 1)
+                .put("index.number_of_replicas", 0)
+                .put(IndicesQueryCache.INDEX_CACHE_QUERY_ENABLED, true)));
+        ensureGreen();
+        indexRandom(true,
+                client().prepareIndex("index", "type", "1").setSource("field", "a"),
+                client().prepareIndex("index", "type", "2").setSource("field", "a"),
+                client().prepareIndex("index", "type", "3").setSource("field", "b"));
+
+        // the first request fills the cache, the next ones are served from it
+        for (int i = 0; i < 3; i++) {
+            SearchResponse response = client().prepareSearch("index").setSearchType(SearchType.COUNT)
+                    .addAggregation(terms("terms").field("field")).get();
+            assertNoFailures(response);
+            assertThat(response.getHits().totalHits(), equalTo(3l));
+            Terms terms = response.getAggregations().get("terms");
+            assertThat(terms.getBucketByKey("a").getDocCount(), equalTo(2l));
+            assertThat(terms.getBucketByKey("b").getDocCount(), equalTo(1l));
+        }
+        QueryCacheStats stats = queryCacheStats();
+        assertThat(stats.getMissCount(), equalTo(1l));
+        assertThat(stats.getHitCount(), equalTo(2l));
+        assertThat(stats.getMemorySizeInBytes(), greaterThan(0l));
+        // the cached results are charged to the request breaker
+        long requestBreakerEstimate = 0;
+        for (NodeStats nodeStats : client().admin().cluster().prepareNodesStats().clear().setBreaker(true).get().getNodes()) {
+            requestBreakerEstimate += nodeStats.getBreaker().getStats(MemoryCircuitBreaker.REQUEST).getEstimated();
+        }
+        assertThat(requestBreakerEstimate, greaterThan(0l));
+
+        // a refresh that changes the shard invalidates the cached results
+        indexRandom(true, client().prepareIndex("index", "type", "4").setSource("field", "b"));
+        SearchResponse response = client().prepareSearch("index").setSearchType(SearchType.COUNT)
+                .addAggregation(terms("terms").field("field")).get();
+        assertNoFailures(response);
+        assertThat(response.getHits().totalHits(), equalTo(4l));
+        Terms terms = response.getAggregations().get("terms");
+        assertThat(terms.getBucketByKey("b").getDocCount(), equalTo(2l));
+        stats = queryCacheStats();
+        assertThat(stats.getMissCount(), equalTo(2l));
+        assertThat(stats.getHitCount(), equalTo(2l));
+
+        // requests that return hits are not cached
+        client().prepareSearch("index").setSize(10).get();
+        stats = queryCacheStats();
+        assertThat(stats.getMissCount(), equalTo(2l));
+        assertThat(stats.getHitCount(), equalTo(2l));
+    }
+
+    @Test
+    public void testRequestsUsingNowAreNotCached() throws Exception {
+        assertAcked(prepareCreate("index").setSettings(settingsBuilder()
+                .put("index.number_of_shards", 1)
+                .put("index.number_of_replicas", 0)
+                .put(IndicesQueryCache.INDEX_CACHE_QUERY_ENABLED, true))
+                .addMapping("type", "date", "type=date"));
+        ensureGreen();
+        indexRandom(true, client().prepareIndex("index", "type", "1").setSource("date", "2014-01-01"));
+
+        for (int i = 0; i < 2; i++) {
+            SearchResponse response = client().prepareSearch("index").setSearchType(SearchType.COUNT)
+                    .setQuery(rangeQuery("date").lte("now")).get();
+            assertNoFailures(response);
+            assertThat(response.getHits().totalHits(), equalTo(1l));
+        }
+        QueryCacheStats stats = queryCacheStats();
+        assertThat(stats.getHitCount(), equalTo(0l));
+        assertThat(stats.getMemorySizeInBytes(), equalTo(0l));
+    }
+
+    private QueryCacheStats queryCacheStats() {
+        return client().admin().indices().prepareStats("index").clear().setQueryCache(true).get().getTotal().getQueryCache();
+    }
+}
@@ -19,7 +19,10 @@
 
 package org.elasticsearch.indices.fielddata.breaker;
 
+import org.elasticsearch.action.admin.cluster.node.stats.NodeStats;
+import org.elasticsearch.action.admin.cluster.node.stats.NodesStatsResponse;
 import org.elasticsearch.client.Client;
+import org.elasticsearch.common.breaker.MemoryCircuitBreaker;
 import org.elasticsearch.common.collect.MapBuilder;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.rest.RestStatus;
@@ -32,10 +35,13 @@ import java.util.Arrays;
 
 import static org.elasticsearch.cluster.metadata.IndexMetaData.SETTING_NUMBER_OF_REPLICAS;
 import static org.elasticsearch.common.settings.ImmutableSettings.settingsBuilder;
+import static org.elasticsearch.index.query.QueryBuilders.matchAllQuery;
+import static org.elasticsearch.search.aggregations.AggregationBuilders.terms;
 import static org.elasticsearch.test.ElasticsearchIntegrationTest.Scope.TEST;
 import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertAcked;
 import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertFailures;
 import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.Matchers.greaterThan;
 
 /**
  * Integration tests for InternalCircuitBreakerService
@@ -146,4 +152,52 @@ public class CircuitBreakerServiceTests extends ElasticsearchIntegrationTest {
             client.admin().cluster().prepareUpdateSettings().setTransientSettings(resetSettings).execute().actionGet();
         }
     }
+
+    @Test
+    @TestLogging("org.elasticsearch.indices.fielddata.breaker:TRACE,org.elasticsearch.common.breaker:TRACE")
+    public void testRequestBreaker() {
+        assertAcked(prepareCreate("cb-test", 1, settingsBuilder().put(SETTING_NUMBER_OF_REPLICAS, between(0, 1))));
+        final Client client = client();
+
+        try {
+            // index some different terms so the aggregation has buckets to allocate
+            int docCount = scaledRandomIntBetween(300, 1000);
+            for (long id = 0; id < docCount; id++) {
+                client.prepareIndex("cb-test", "type", Long.toString(id))
+                        .setSource(MapBuilder.<String, Object>newMapBuilder().put("test", id).map()).execute().actionGet();
+            }
+
+            // refresh
+            refresh();
+
+            // execute a search that aggregates on the "test" field
+            client.prepareSearch("cb-test").setQuery(matchAllQuery()).addAggregation(terms("my_terms").field("test"))
+                    .execute().actionGet();
+
+            // Update circuit breaker settings
+            Settings settings = settingsBuilder()
+                    .put(InternalCircuitBreakerService.REQUEST_CIRCUIT_BREAKER_MAX_BYTES_SETTING, "10b")
+                    .build();
+            client.admin().cluster().prepareUpdateSettings().setTransientSettings(settings).execute().actionGet();
+
+            // execute the same search again, this time the arrays allocated
+            // by the aggregation should trip the request breaker
+            assertFailures(client.prepareSearch("cb-test").setQuery(matchAllQuery()).addAggregation(terms("my_terms").field("test")),
+                    RestStatus.INTERNAL_SERVER_ERROR,
+                    containsString("[request] Data too large, data for field [<reused_arrays>] would be larger than limit of [10/10b]"));
+
+            long trippedCount = 0;
+            NodesStatsResponse stats = client.admin().cluster().prepareNodesStats().setBreaker(true).get();
+            for (NodeStats nodeStats : stats.getNodes()) {
+                trippedCount += nodeStats.getBreaker().getStats(MemoryCircuitBreaker.REQUEST).getTrippedCount();
+            }
+            assertThat(trippedCount, greaterThan(0l));
+        } finally {
+            // Reset settings
+            Settings resetSettings = settingsBuilder()
+                    .put(InternalCircuitBreakerService.REQUEST_CIRCUIT_BREAKER_MAX_BYTES_SETTING, "40%")
+                    .build();
+            client.admin().cluster().prepareUpdateSettings().setTransientSettings(resetSettings).execute().actionGet();
+        }
+    }
 }
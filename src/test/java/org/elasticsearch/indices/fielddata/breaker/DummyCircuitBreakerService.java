@@ -32,6 +32,7 @@ public class DummyCircuitBreakerService implements CircuitBreakerService {
     private final ESLogger logger = Loggers.getLogger(DummyCircuitBreakerService.class);
 
     private final MemoryCircuitBreaker breaker = new MemoryCircuitBreaker(new ByteSizeValue(Long.MAX_VALUE), 0.0, logger);
+    private final MemoryCircuitBreaker requestBreaker = new MemoryCircuitBreaker(MemoryCircuitBreaker.REQUEST, new ByteSizeValue(Long.MAX_VALUE), 0.0, null, null, logger);
 
     public DummyCircuitBreakerService() {}
 
@@ -41,7 +42,15 @@ public class DummyCircuitBreakerService implements CircuitBreakerService {
     }
 
     @Override
-    public FieldDataBreakerStats stats() {
-        return new FieldDataBreakerStats(-1, -1, 0);
+    public MemoryCircuitBreaker getRequestBreaker() {
+        return requestBreaker;
+    }
+
+    @Override
+    public AllCircuitBreakerStats stats() {
+        return new AllCircuitBreakerStats(new CircuitBreakerStats[] {
+                new CircuitBreakerStats(MemoryCircuitBreaker.FIELDDATA, -1, -1, 0, 0),
+                new CircuitBreakerStats(MemoryCircuitBreaker.REQUEST, -1, -1, 0, 0)
+        });
     }
 }
@@ -0,0 +1,93 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.indices.memory;
+
+import org.elasticsearch.test.ElasticsearchTestCase;
+import org.junit.Test;
+
+import static org.hamcrest.Matchers.*;
+
+public class IndexingMemoryControllerTests extends ElasticsearchTestCase {
+
+    @Test
+    public void testAllocateEvenlyWithoutIndexing() {
+        long[] sizes = IndexingMemoryController.allocate(100, 10, 1000, new double[]{0, 0, 0, 0});
+        assertThat(sizes.length, equalTo(4));
+        for (long size : sizes) {
+            assertThat(size, equalTo(25l));
+        }
+    }
+
+    @Test
+    public void testAllocateProportionallyToRates() {
+        long[] sizes = IndexingMemoryController.allocate(100, 10, 1000, new double[]{0, 3, 1});
+        // 30 are reserved for the minimums, the remaining 70 are divided by rate
+        assertThat(sizes[0], equalTo(10l));
+        assertThat(sizes[1], equalTo(10l + 52));
+        assertThat(sizes[2], equalTo(10l + 17));
+    }
+
+    @Test
+    public void testAllocateRespectsBounds() {
+        long[] sizes = IndexingMemoryController.allocate(100, 10, 40, new double[]{10, 0});
+        assertThat(sizes[0], equalTo(40l));
+        assertThat(sizes[1], equalTo(10l));
+
+        // more shards than the buffer can hold minimums for
+        sizes = IndexingMemoryController.allocate(100, 60, 1000, new double[]{1, 1});
+        assertThat(sizes[0], equalTo(60l));
+        assertThat(sizes[1], equalTo(60l));
+    }
+
+    @Test
+    public void testAllocationNeverExceedsBuffer() {
+        final int numShards = randomIntBetween(1, 50);
+        final long min = randomIntBetween(0, 10);
+        final long buffer = min * numShards + randomIntBetween(0, 10000);
+        final double[] rates = new double[numShards];
+        for (int i = 0; i < rates.length; i++) {
+            rates[i] = randomBoolean() ? 0 : randomDouble() * 1000;
+        }
+        long total = 0;
+        for (long size : IndexingMemoryController.allocate(buffer, min, Long.MAX_VALUE, rates)) {
+            assertThat(size, greaterThanOrEqualTo(min));
+            total += size;
+        }
+        assertThat(total, lessThanOrEqualTo(buffer));
+    }
+
+    @Test
+    public void testRateSamplingAndHysteresis() {
+        IndexingMemoryController.ShardIndexingStatus status = new IndexingMemoryController.ShardIndexingStatus();
+        status.sampleIndexingRate(0, 0);
+        assertThat(status.indexingRate, equalTo(0d));
+        status.sampleIndexingRate(2000, 1000);
+        assertThat(status.indexingRate, equalTo(1000d));
+        status.sampleIndexingRate(2000, 2000);
+        assertThat(status.indexingRate, equalTo(500d));
+
+        assertThat(status.needsReallocation(100, 10, 0.25), equalTo(true));
+        status.indexBufferSize = 100;
+        status.translogBufferSize = 10;
+        assertThat(status.needsReallocation(110, 10, 0.25), equalTo(false));
+        assertThat(status.needsReallocation(130, 10, 0.25), equalTo(true));
+        assertThat(status.needsReallocation(100, 5, 0.25), equalTo(true));
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.aggregations;
+
+import org.elasticsearch.action.index.IndexRequestBuilder;
+import org.elasticsearch.action.search.SearchRequestBuilder;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.action.search.SearchType;
+import org.elasticsearch.search.aggregations.bucket.histogram.Histogram;
+import org.elasticsearch.search.aggregations.bucket.terms.Terms;
+import org.elasticsearch.search.aggregations.metrics.sum.Sum;
+import org.elasticsearch.test.ElasticsearchIntegrationTest;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.elasticsearch.common.settings.ImmutableSettings.settingsBuilder;
+import static org.elasticsearch.search.aggregations.AggregationBuilders.*;
+import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertAcked;
+import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertNoFailures;
+import static org.hamcrest.Matchers.equalTo;
+
+/**
+ * Checks that reducing the aggregations of the shards in small batches gives the same results as reducing them all at
+ * once.
+ */
+public class BatchedReduceTests extends ElasticsearchIntegrationTest {
+
+    @Test
+    public void testBatchedReduce() throws Exception {
+        assertAcked(prepareCreate("idx").setSettings(settingsBuilder().put("index.number_of_shards", between(4, 10)))
+                .addMapping("type", "term", "type=string,index=not_analyzed", "value", "type=long"));
+        ensureGreen();
+        List<IndexRequestBuilder> docs = new ArrayList<>();
+        final int numDocs = scaledRandomIntBetween(200, 2000);
+        for (int i = 0; i < numDocs; i++) {
+            docs.add(client().prepareIndex("idx", "type").setSource("term", "t" + randomInt(50), "value", randomInt(100)));
+        }
+        indexRandom(true, docs);
+
+        for (SearchType searchType : new SearchType[] {SearchType.QUERY_THEN_FETCH, SearchType.QUERY_AND_FETCH, SearchType.COUNT}) {
+            SearchResponse expected = search(searchType, 512);
+            SearchResponse batched = search(searchType, 2);
+            assertThat(batched.getHits().getTotalHits(), equalTo(expected.getHits().getTotalHits()));
+
+            Terms expectedTerms = expected.getAggregations().get("terms");
+            Terms batchedTerms = batched.getAggregations().get("terms");
+            assertThat(batchedTerms.getBuckets().size(), equalTo(expectedTerms.getBuckets().size()));
+            for (Terms.Bucket expectedBucket : expectedTerms.getBuckets()) {
+                Terms.Bucket batchedBucket = batchedTerms.getBucketByKey(expectedBucket.getKey());
+                assertThat(batchedBucket.getDocCount(), equalTo(expectedBucket.getDocCount()));
+                Sum expectedSum = expectedBucket.getAggregations().get("sum");
+                Sum batchedSum = batchedBucket.getAggregations().get("sum");
+                assertThat(batchedSum.getValue(), equalTo(expectedSum.getValue()));
+                assertHistogramEquals((Histogram) batchedBucket.getAggregations().get("histo"), (Histogram) expectedBucket.getAggregations().get("histo"));
+            }
+            assertHistogramEquals((Histogram) batched.getAggregations().get("histo"), (Histogram) expected.getAggregations().get("histo"));
+        }
+    }
+
+    private SearchResponse search(SearchType searchType, int batchedReduceSize) {
+        SearchRequestBuilder request = client().prepareSearch("idx").setSearchType(searchType).setBatchedReduceSize(batchedReduceSize)
+                .addAggregation(terms("terms").field("term").size(5)
+                        .subAggregation(sum("sum").field("value"))
+                        .subAggregation(histogram("histo").field("value").interval(10).minDocCount(2)))
+                .addAggregation(histogram("histo").field("value").interval(5).minDocCount(0));
+        SearchResponse response = request.get();
+        assertNoFailures(response);
+        return response;
+    }
+
+    private static void assertHistogramEquals(Histogram actual, Histogram expected) {
+        assertThat(actual.getBuckets().size(), equalTo(expected.getBuckets().size()));
+        List<? extends Histogram.Bucket> actualBuckets = new ArrayList<>(actual.getBuckets());
+        List<? extends Histogram.Bucket> expectedBuckets = new ArrayList<>(expected.getBuckets());
+        for (int i = 0; i < expectedBuckets.size(); i++) {
+            assertThat(actualBuckets.get(i).getKeyAsNumber(), equalTo(expectedBuckets.get(i).getKeyAsNumber()));
+            assertThat(actualBuckets.get(i).getDocCount(), equalTo(expectedBuckets.get(i).getDocCount()));
+        }
+    }
+}
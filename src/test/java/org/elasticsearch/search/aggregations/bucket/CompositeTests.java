@@ -0,0 +1,170 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.elasticsearch.search.aggregations.bucket;
+
+import org.elasticsearch.action.index.IndexRequestBuilder;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.search.aggregations.bucket.composite.Composite;
+import org.elasticsearch.search.aggregations.bucket.composite.CompositeBuilder;
+import org.elasticsearch.search.aggregations.metrics.sum.Sum;
+import org.elasticsearch.search.sort.SortOrder;
+import org.elasticsearch.test.ElasticsearchIntegrationTest;
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.elasticsearch.common.settings.ImmutableSettings.settingsBuilder;
+import static org.elasticsearch.search.aggregations.AggregationBuilders.composite;
+import static org.elasticsearch.search.aggregations.AggregationBuilders.sum;
+import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertAcked;
+import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertNoFailures;
+import static org.hamcrest.Matchers.*;
+
+/**
+ *
+ */
+public class CompositeTests extends ElasticsearchIntegrationTest {
+
+    @Test
+    public void testPagination() throws Exception {
+        assertAcked(prepareCreate("idx").setSettings(settingsBuilder().put("index.number_of_shards", between(1, 5)))
+                .addMapping("type", "user", "type=string,index=not_analyzed", "tag", "type=string,index=not_analyzed",
+                        "day", "type=long", "value", "type=long"));
+        ensureGreen();
+
+        final boolean userDesc = randomBoolean();
+        final boolean dayDesc = randomBoolean();
+        // expected doc count and sum of each (user, day, tag) key
+        final TreeMap<List<Comparable>, long[]> expected = new TreeMap<>(new Comparator<List<Comparable>>() {
+            @Override
+            public int compare(List<Comparable> o1, List<Comparable> o2) {
+                int cmp = o1.get(0).compareTo(o2.get(0));
+                if (cmp != 0) {
+                    return userDesc ? -cmp : cmp;
+                }
+                cmp = o1.get(1).compareTo(o2.get(1));
+                if (cmp != 0) {
+                    return dayDesc ? -cmp : cmp;
+                }
+                return o1.get(2).compareTo(o2.get(2));
+            }
+        });
+        List<IndexRequestBuilder> docs = new ArrayList<>();
+        final int numDocs = scaledRandomIntBetween(100, 1000);
+        for (int i = 0; i < numDocs; i++) {
+            final String user = "u" + randomInt(30);
+            final long day = randomInt(20);
+            final long value = randomInt(100);
+            final Set<String> tags = new HashSet<>();
+            for (int j = randomInt(3); j > 0; j--) {
+                tags.add("t" + randomInt(5));
+            }
+            docs.add(client().prepareIndex("idx", "type").setSource("user", user, "day", day, "value", value, "tag", tags.toArray()));
+            for (String tag : tags) {
+                long[] countAndSum = expected.get(Arrays.<Comparable>asList(user, day, tag));
+                if (countAndSum == null) {
+                    countAndSum = new long[2];
+                    expected.put(Arrays.<Comparable>asList(user, day, tag), countAndSum);
+                }
+                countAndSum[0]++;
+                countAndSum[1] += value;
+            }
+        }
+        indexRandom(true, docs);
+
+        final int size = between(1, 50);
+        Iterator<Map.Entry<List<Comparable>, long[]>> expectedBuckets = expected.entrySet().iterator();
+        Map<String, Object> after = null;
+        int pages = 0;
+        while (true) {
+            CompositeBuilder builder = composite("composite").size(size)
+                    .source("user", "user", userDesc ? SortOrder.DESC : SortOrder.ASC)
+                    .source("day", "day", dayDesc ? SortOrder.DESC : SortOrder.ASC)
+                    .source("tag", "tag")
+                    .after(after)
+                    .subAggregation(sum("sum").field("value"));
+            SearchResponse response = client().prepareSearch("idx").setSize(0).addAggregation(builder).get();
+            assertNoFailures(response);
+            Composite composite = response.getAggregations().get("composite");
+            assertThat(composite, notNullValue());
+            if (composite.getBuckets().isEmpty()) {
+                assertThat(composite.afterKey(), nullValue());
+                break;
+            }
+            assertThat(composite.getBuckets().size(), lessThanOrEqualTo(size));
+            for (Composite.Bucket bucket : composite.getBuckets()) {
+                assertTrue(expectedBuckets.hasNext());
+                Map.Entry<List<Comparable>, long[]> expectedBucket = expectedBuckets.next();
+                Map<String, Object> key = bucket.getKeyAsMap();
+                assertThat((String) key.get("user"), equalTo(expectedBucket.getKey().get(0)));
+                assertThat(((Number) key.get("day")).longValue(), equalTo(expectedBucket.getKey().get(1)));
+                assertThat((String) key.get("tag"), equalTo(expectedBucket.getKey().get(2)));
+                assertThat(bucket.getDocCount(), equalTo(expectedBucket.getValue()[0]));
+                Sum sum = bucket.getAggregations().get("sum");
+                assertThat((long) sum.getValue(), equalTo(expectedBucket.getValue()[1]));
+            }
+            after = composite.afterKey();
+            assertThat(after, equalTo(composite.getBuckets().get(composite.getBuckets().size() - 1).getKeyAsMap()));
+            pages++;
+        }
+        assertFalse(expectedBuckets.hasNext());
+        assertThat(pages, equalTo((expected.size() + size - 1) / size));
+    }
+
+    @Test
+    public void testDoubleSourceAndMissingAfterTerm() throws Exception {
+        createIndex("idx");
+        List<IndexRequestBuilder> docs = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            docs.add(client().prepareIndex("idx", "type").setSource("name", "n" + i, "score", i + 0.5));
+        }
+        indexRandom(true, docs);
+
+        Map<String, Object> after = new HashMap<>();
+        // n3a sorts in between n3 and n4
+        after.put("name", "n3a");
+        after.put("score", 0d);
+        SearchResponse response = client().prepareSearch("idx").setSize(0)
+                .addAggregation(composite("composite").size(3).source("name", "name").source("score", "score").after(after)).get();
+        assertNoFailures(response);
+        Composite composite = response.getAggregations().get("composite");
+        assertThat(composite.getBuckets().size(), equalTo(3));
+        for (int i = 0; i < 3; i++) {
+            Composite.Bucket bucket = composite.getBuckets().get(i);
+            assertThat((String) bucket.getKeyAsMap().get("name"), equalTo("n" + (i + 4)));
+            assertThat((Double) bucket.getKeyAsMap().get("score"), equalTo(i + 4.5));
+            assertThat(bucket.getDocCount(), equalTo(1l));
+        }
+    }
+
+    @Test
+    public void testUnmapped() throws Exception {
+        createIndex("idx");
+        indexRandom(true, client().prepareIndex("idx", "type").setSource("name", "n"));
+
+        SearchResponse response = client().prepareSearch("idx").setSize(0)
+                .addAggregation(composite("composite").source("name", "name").source("unmapped", "unmapped")).get();
+        assertNoFailures(response);
+        Composite composite = response.getAggregations().get("composite");
+        assertThat(composite.getBuckets().size(), equalTo(0));
+        assertThat(composite.afterKey(), nullValue());
+    }
+}
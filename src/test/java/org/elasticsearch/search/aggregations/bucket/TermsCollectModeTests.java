@@ -0,0 +1,128 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.elasticsearch.search.aggregations.bucket;
+
+import org.elasticsearch.action.index.IndexRequestBuilder;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.search.aggregations.Aggregator.SubAggCollectionMode;
+import org.elasticsearch.search.aggregations.bucket.histogram.Histogram;
+import org.elasticsearch.search.aggregations.bucket.terms.Terms;
+import org.elasticsearch.search.aggregations.bucket.terms.TermsBuilder;
+import org.elasticsearch.search.aggregations.metrics.stats.Stats;
+import org.elasticsearch.test.ElasticsearchIntegrationTest;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.elasticsearch.common.settings.ImmutableSettings.settingsBuilder;
+import static org.elasticsearch.search.aggregations.AggregationBuilders.*;
+import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertAcked;
+import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertNoFailures;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.notNullValue;
+
+/**
+ * Checks that the breadth first collection of the sub-aggregations of terms aggregations gives the same results as
+ * the depth first one.
+ */
+public class TermsCollectModeTests extends ElasticsearchIntegrationTest {
+
+    private static final String[] EXECUTION_HINTS = {null, "map", "ordinals", "global_ordinals", "global_ordinals_hash"};
+
+    @Test
+    public void testBreadthFirst() throws Exception {
+        assertAcked(prepareCreate("idx").setSettings(settingsBuilder().put("index.number_of_shards", between(1, 5)))
+                .addMapping("type", "user", "type=string,index=not_analyzed", "page", "type=string,index=not_analyzed",
+                        "user_id", "type=long", "score", "type=double", "value", "type=long"));
+        ensureGreen();
+        List<IndexRequestBuilder> docs = new ArrayList<>();
+        final int numDocs = scaledRandomIntBetween(200, 2000);
+        for (int i = 0; i < numDocs; i++) {
+            final int user = randomInt(100);
+            // unique values, so that ordering by the max value doesn't depend on how ties are broken
+            docs.add(client().prepareIndex("idx", "type").setSource("user", "u" + user, "user_id", user, "score", user / 3 + 0.5,
+                    "page", "p" + randomInt(30), "value", i));
+        }
+        indexRandom(true, docs);
+
+        for (String field : new String[] {"user", "user_id", "score"}) {
+            final String executionHint = "user".equals(field) ? randomFrom(EXECUTION_HINTS) : null;
+            SearchResponse depthFirst = search(field, executionHint, SubAggCollectionMode.DEPTH_FIRST, false);
+            SearchResponse breadthFirst = search(field, executionHint, SubAggCollectionMode.BREADTH_FIRST, false);
+            assertTermsEquals((Terms) breadthFirst.getAggregations().get("users"), (Terms) depthFirst.getAggregations().get("users"));
+
+            // ordered by a sub-aggregation, which has to collect all the buckets
+            depthFirst = search(field, executionHint, SubAggCollectionMode.DEPTH_FIRST, true);
+            breadthFirst = search(field, executionHint, SubAggCollectionMode.BREADTH_FIRST, true);
+            assertTermsEquals((Terms) breadthFirst.getAggregations().get("users"), (Terms) depthFirst.getAggregations().get("users"));
+        }
+    }
+
+    private SearchResponse search(String field, String executionHint, SubAggCollectionMode collectMode, boolean orderByStats) {
+        TermsBuilder users = terms("users").field(field).size(5).collectMode(collectMode).executionHint(executionHint)
+                .subAggregation(terms("pages").field("page").size(3).collectMode(collectMode)
+                        .subAggregation(histogram("histo").field("value").interval(100)
+                                .subAggregation(stats("stats").field("value"))))
+                .subAggregation(stats("stats").field("value"));
+        if (orderByStats) {
+            users.order(Terms.Order.aggregation("stats.max", false));
+        }
+        SearchResponse response = client().prepareSearch("idx").setSize(0).addAggregation(users).get();
+        assertNoFailures(response);
+        return response;
+    }
+
+    private static void assertTermsEquals(Terms actual, Terms expected) {
+        assertThat(actual.getBuckets().size(), equalTo(expected.getBuckets().size()));
+        for (Terms.Bucket expectedBucket : expected.getBuckets()) {
+            Terms.Bucket actualBucket = actual.getBucketByKey(expectedBucket.getKey());
+            assertThat(actualBucket, notNullValue());
+            assertThat(actualBucket.getDocCount(), equalTo(expectedBucket.getDocCount()));
+            assertStatsEquals((Stats) actualBucket.getAggregations().get("stats"), (Stats) expectedBucket.getAggregations().get("stats"));
+            Terms expectedPages = expectedBucket.getAggregations().get("pages");
+            if (expectedPages != null) {
+                Terms actualPages = actualBucket.getAggregations().get("pages");
+                assertTermsEquals(actualPages, expectedPages);
+            }
+            Histogram expectedHisto = expectedBucket.getAggregations().get("histo");
+            if (expectedHisto != null) {
+                Histogram actualHisto = actualBucket.getAggregations().get("histo");
+                assertThat(actualHisto.getBuckets().size(), equalTo(expectedHisto.getBuckets().size()));
+                for (Histogram.Bucket expectedHistoBucket : expectedHisto.getBuckets()) {
+                    Histogram.Bucket actualHistoBucket = actualHisto.getBucketByKey(expectedHistoBucket.getKeyAsNumber().longValue());
+                    assertThat(actualHistoBucket.getDocCount(), equalTo(expectedHistoBucket.getDocCount()));
+                    assertStatsEquals((Stats) actualHistoBucket.getAggregations().get("stats"), (Stats) expectedHistoBucket.getAggregations().get("stats"));
+                }
+            }
+        }
+    }
+
+    private static void assertStatsEquals(Stats actual, Stats expected) {
+        if (expected == null) {
+            return;
+        }
+        assertThat(actual.getCount(), equalTo(expected.getCount()));
+        assertThat(actual.getSum(), equalTo(expected.getSum()));
+        assertThat(actual.getMin(), equalTo(expected.getMin()));
+        assertThat(actual.getMax(), equalTo(expected.getMax()));
+    }
+}
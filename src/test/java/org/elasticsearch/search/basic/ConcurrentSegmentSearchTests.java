@@ -0,0 +1,113 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.elasticsearch.search.basic;
+
+import org.elasticsearch.action.index.IndexRequestBuilder;
+import org.elasticsearch.action.search.SearchRequestBuilder;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.action.search.SearchType;
+import org.elasticsearch.index.query.FilterBuilders;
+import org.elasticsearch.search.SearchHit;
+import org.elasticsearch.search.SearchService;
+import org.elasticsearch.search.sort.SortBuilders;
+import org.elasticsearch.search.sort.SortOrder;
+import org.elasticsearch.test.ElasticsearchIntegrationTest;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.elasticsearch.common.settings.ImmutableSettings.settingsBuilder;
+import static org.elasticsearch.common.xcontent.XContentFactory.jsonBuilder;
+import static org.elasticsearch.index.query.QueryBuilders.functionScoreQuery;
+import static org.elasticsearch.index.query.QueryBuilders.matchAllQuery;
+import static org.elasticsearch.index.query.QueryBuilders.matchQuery;
+import static org.elasticsearch.index.query.functionscore.ScoreFunctionBuilders.scriptFunction;
+import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertAcked;
+import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertNoFailures;
+import static org.hamcrest.Matchers.equalTo;
+
+public class ConcurrentSegmentSearchTests extends ElasticsearchIntegrationTest {
+
+    private static final String[] WORDS = new String[] {"foo", "bar", "baz", "quux", "lorem", "ipsum"};
+
+    @Test
+    public void testConcurrentSearchMatchesSerialSearch() throws Exception {
+        // a single copy of a single shard, so that the serial and the concurrent searches see the same segments
+        assertAcked(prepareCreate("test").setSettings(settingsBuilder()
+                .put("index.number_of_shards", 1)
+                .put("index.number_of_replicas", 0)
+                .put(SearchService.INDEX_CONCURRENT_SEARCH_MAX_SLICES, between(2, 4))
+                .put(SearchService.INDEX_CONCURRENT_SEARCH_MIN_DOCS_PER_SLICE, 0)));
+        ensureGreen();
+
+        int id = 0;
+        for (int i = 0; i < 3; i++) {
+            List<IndexRequestBuilder> builders = new ArrayList<>();
+            int numDocs = scaledRandomIntBetween(10, 200);
+            for (int j = 0; j < numDocs; j++) {
+                StringBuilder text = new StringBuilder();
+                for (int k = between(1, 5); k > 0; k--) {
+                    text.append(WORDS[between(0, WORDS.length - 1)]).append(' ');
+                }
+                builders.add(client().prepareIndex("test", "type", Integer.toString(id++))
+                        .setSource(jsonBuilder().startObject().field("text", text.toString()).field("num", between(0, 20)).endObject()));
+            }
+            indexRandom(true, builders);
+        }
+
+        SearchRequestBuilder[] requests = new SearchRequestBuilder[] {
+                client().prepareSearch("test").setQuery(matchQuery("text", "foo bar")).setSize(between(1, 50)),
+                client().prepareSearch("test").setQuery(matchQuery("text", "baz")).setPostFilter(FilterBuilders.rangeFilter("num").gte(10)),
+                client().prepareSearch("test").setQuery(matchQuery("text", "lorem ipsum")).setMinScore(0.5f),
+                client().prepareSearch("test").setQuery(matchAllQuery()).addSort("num", SortOrder.DESC).setSize(between(1, 50)),
+                client().prepareSearch("test").setQuery(matchQuery("text", "quux")).addSort("num", SortOrder.ASC).setTrackScores(true),
+                client().prepareSearch("test").setQuery(matchQuery("text", "foo")).setSearchType(SearchType.COUNT),
+                client().prepareSearch("test").setQuery(matchAllQuery()).setSize(0),
+                // scripts fall back to serial collection
+                client().prepareSearch("test").setQuery(matchAllQuery()).addSort(SortBuilders.scriptSort("doc['num'].value * 2", "number")).setSize(between(1, 50)),
+                client().prepareSearch("test").setQuery(functionScoreQuery(matchQuery("text", "foo bar")).add(scriptFunction("_score * doc['num'].value"))).setSize(between(1, 50))
+        };
+
+        SearchResponse[] serial = new SearchResponse[requests.length];
+        for (int i = 0; i < requests.length; i++) {
+            serial[i] = requests[i].get();
+            assertNoFailures(serial[i]);
+        }
+
+        assertAcked(client().admin().indices().prepareUpdateSettings("test")
+                .setSettings(settingsBuilder().put(SearchService.INDEX_CONCURRENT_SEARCH_ENABLED, true)));
+
+        for (int i = 0; i < requests.length; i++) {
+            SearchResponse concurrent = requests[i].get();
+            assertNoFailures(concurrent);
+            assertThat(concurrent.getHits().totalHits(), equalTo(serial[i].getHits().totalHits()));
+            SearchHit[] expected = serial[i].getHits().hits();
+            SearchHit[] hits = concurrent.getHits().hits();
+            assertThat(hits.length, equalTo(expected.length));
+            for (int j = 0; j < hits.length; j++) {
+                assertThat(hits[j].id(), equalTo(expected[j].id()));
+                assertThat(hits[j].score(), equalTo(expected[j].score()));
+                assertThat(hits[j].sortValues(), equalTo(expected[j].sortValues()));
+            }
+        }
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.fetch;
+
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.search.SearchHit;
+import org.elasticsearch.search.sort.SortOrder;
+import org.elasticsearch.test.ElasticsearchIntegrationTest;
+import org.junit.Test;
+
+import static org.elasticsearch.common.settings.ImmutableSettings.settingsBuilder;
+import static org.elasticsearch.index.query.QueryBuilders.matchAllQuery;
+import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertAcked;
+import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertHitCount;
+import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertNoFailures;
+import static org.hamcrest.Matchers.equalTo;
+
+/**
+ * The hits are loaded in doc id order, checks that they are returned in the order of the query phase.
+ */
+public class FetchOrderTests extends ElasticsearchIntegrationTest {
+
+    @Test
+    public void testHitsOrder() throws Exception {
+        assertAcked(prepareCreate("test").setSettings(settingsBuilder().put("index.number_of_shards", between(1, 3)))
+                .addMapping("type", "value", "type=long"));
+        ensureGreen();
+        final int numDocs = scaledRandomIntBetween(50, 300);
+        for (int i = 0; i < numDocs; i++) {
+            client().prepareIndex("test", "type", Integer.toString(i)).setSource("value", i, "text", "doc " + i).get();
+            if (rarely()) {
+                // more segments
+                refresh();
+            }
+        }
+        refresh();
+
+        for (SortOrder order : SortOrder.values()) {
+            final int size = between(1, numDocs);
+            SearchResponse response = client().prepareSearch("test").setQuery(matchAllQuery()).addSort("value", order)
+                    .setSize(size).get();
+            assertNoFailures(response);
+            assertHitCount(response, numDocs);
+            assertThat(response.getHits().hits().length, equalTo(size));
+            for (int i = 0; i < size; i++) {
+                SearchHit hit = response.getHits().getAt(i);
+                int expected = order == SortOrder.ASC ? i : numDocs - 1 - i;
+                assertThat(hit.id(), equalTo(Integer.toString(expected)));
+                assertThat(hit.getSource().get("text"), equalTo((Object) ("doc " + expected)));
+            }
+        }
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.elasticsearch.search.internal;
+
+import org.apache.lucene.analysis.core.KeywordAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.AtomicReaderContext;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.NoMergePolicy;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.RAMDirectory;
+import org.elasticsearch.common.lucene.Lucene;
+import org.elasticsearch.test.ElasticsearchTestCase;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+
+public class ContextIndexSearcherTests extends ElasticsearchTestCase {
+
+    private static DirectoryReader reader(Directory directory, int... segmentSizes) throws Exception {
+        IndexWriter writer = new IndexWriter(directory, new IndexWriterConfig(Lucene.VERSION, new KeywordAnalyzer()).setMergePolicy(NoMergePolicy.COMPOUND_FILES));
+        int id = 0;
+        for (int segmentSize : segmentSizes) {
+            for (int i = 0; i < segmentSize; i++) {
+                Document document = new Document();
+                document.add(new StringField("_id", Integer.toString(id++), Field.Store.NO));
+                writer.addDocument(document);
+            }
+            writer.commit();
+        }
+        writer.close();
+        return DirectoryReader.open(directory);
+    }
+
+    @Test
+    public void testSlices() throws Exception {
+        Directory directory = new RAMDirectory();
+        DirectoryReader reader = reader(directory, 10, 10, 10, 10);
+        List<AtomicReaderContext> leaves = reader.leaves();
+        assertThat(leaves.size(), equalTo(4));
+
+        List<List<AtomicReaderContext>> slices = ContextIndexSearcher.slices(leaves, 2, 1);
+        assertThat(slices.size(), equalTo(2));
+        assertThat(slices.get(0), equalTo(leaves.subList(0, 2)));
+        assertThat(slices.get(1), equalTo(leaves.subList(2, 4)));
+
+        // a single slice
+        slices = ContextIndexSearcher.slices(leaves, 1, 1);
+        assertThat(slices.size(), equalTo(1));
+        assertThat(slices.get(0), equalTo(leaves));
+
+        // the minimum number of documents per slice wins over the maximum number of slices
+        slices = ContextIndexSearcher.slices(leaves, 4, 25);
+        assertThat(slices.size(), equalTo(2));
+        assertThat(slices.get(0), equalTo(leaves.subList(0, 3)));
+        assertThat(slices.get(1), equalTo(leaves.subList(3, 4)));
+
+        slices = ContextIndexSearcher.slices(leaves, 4, 100);
+        assertThat(slices.size(), equalTo(1));
+        assertThat(slices.get(0), equalTo(leaves));
+
+        reader.close();
+        directory.close();
+    }
+
+    @Test
+    public void testSlicesOfNoLeaves() {
+        assertThat(ContextIndexSearcher.slices(Collections.<AtomicReaderContext>emptyList(), between(1, 10), between(0, 100)).size(), equalTo(0));
+    }
+
+    @Test
+    public void testRandomSlices() throws Exception {
+        Directory directory = new RAMDirectory();
+        int[] segmentSizes = new int[between(1, 20)];
+        int maxDoc = 0;
+        for (int i = 0; i < segmentSizes.length; i++) {
+            segmentSizes[i] = between(1, 100);
+            maxDoc += segmentSizes[i];
+        }
+        DirectoryReader reader = reader(directory, segmentSizes);
+        List<AtomicReaderContext> leaves = reader.leaves();
+        final int maxSlices = between(1, 10);
+        final int minDocsPerSlice = between(0, 200);
+
+        List<List<AtomicReaderContext>> slices = ContextIndexSearcher.slices(leaves, maxSlices, minDocsPerSlice);
+        assertThat(slices.size(), lessThanOrEqualTo(maxSlices));
+        // slices are contiguous and cover all the leaves in order
+        List<AtomicReaderContext> concatenated = new ArrayList<>();
+        for (List<AtomicReaderContext> slice : slices) {
+            assertThat(slice.isEmpty(), equalTo(false));
+            concatenated.addAll(slice);
+        }
+        assertThat(concatenated, equalTo(leaves));
+        // all slices but the last one have enough documents
+        for (int i = 0; i < slices.size() - 1; i++) {
+            int sliceDocs = 0;
+            for (AtomicReaderContext leaf : slices.get(i)) {
+                sliceDocs += leaf.reader().maxDoc();
+            }
+            assertThat(sliceDocs, greaterThanOrEqualTo(Math.min(maxDoc, minDocsPerSlice)));
+        }
+
+        reader.close();
+        directory.close();
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.profile;
+
+import org.elasticsearch.action.index.IndexRequestBuilder;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.test.ElasticsearchIntegrationTest;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.elasticsearch.common.settings.ImmutableSettings.settingsBuilder;
+import static org.elasticsearch.index.query.QueryBuilders.*;
+import static org.elasticsearch.search.aggregations.AggregationBuilders.terms;
+import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertAcked;
+import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertHitCount;
+import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertNoFailures;
+import static org.hamcrest.Matchers.*;
+
+public class ProfileTests extends ElasticsearchIntegrationTest {
+
+    private void indexDocs() throws Exception {
+        assertAcked(prepareCreate("test").setSettings(settingsBuilder().put("index.number_of_shards", between(1, 5)))
+                .addMapping("type", "tag", "type=string,index=not_analyzed", "body", "type=string"));
+        ensureGreen();
+        List<IndexRequestBuilder> docs = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            docs.add(client().prepareIndex("test", "type").setSource("tag", "t" + (i % 5), "body", i % 2 == 0 ? "quick fox" : "lazy dog"));
+        }
+        indexRandom(true, docs);
+    }
+
+    @Test
+    public void testProfileQuery() throws Exception {
+        indexDocs();
+
+        SearchResponse response = client().prepareSearch("test")
+                .setQuery(boolQuery().must(termQuery("tag", "t1")).should(matchQuery("body", "fox")))
+                .setProfile(true).get();
+        assertNoFailures(response);
+        assertHitCount(response, 20);
+        assertThat(response.getProfileResults(), notNullValue());
+        assertThat(response.getProfileResults().size(), equalTo(response.getSuccessfulShards()));
+
+        for (ProfileShardResult shardResult : response.getProfileResults().values()) {
+            assertThat(shardResult.getQueryResults().size(), equalTo(1));
+            ProfileResult query = shardResult.getQueryResults().get(0);
+            assertThat(query.getType(), equalTo("BooleanQuery"));
+            assertThat(query.getBreakdown().get("create_weight_count"), equalTo(1L));
+            assertThat(query.getChildren().size(), equalTo(2));
+            long childrenTime = 0;
+            for (ProfileResult child : query.getChildren()) {
+                assertThat(child.getType(), equalTo("TermQuery"));
+                assertThat(child.getBreakdown().get("create_weight_count"), equalTo(1L));
+                assertThat(child.getTime(), greaterThan(0L));
+                childrenTime += child.getBreakdown().get("create_weight");
+            }
+            // the time of a query includes the time of its children
+            assertThat(query.getBreakdown().get("create_weight"), greaterThanOrEqualTo(childrenTime));
+            assertThat(shardResult.getCollectorResult(), notNullValue());
+            assertThat(shardResult.getAggregationResults().size(), equalTo(0));
+        }
+
+        response = client().prepareSearch("test").setQuery(termQuery("tag", "t1")).get();
+        assertNoFailures(response);
+        assertThat(response.getProfileResults(), nullValue());
+    }
+
+    @Test
+    public void testProfileAggregations() throws Exception {
+        indexDocs();
+
+        SearchResponse response = client().prepareSearch("test").setQuery(matchQuery("body", "dog"))
+                .addAggregation(terms("tags").field("tag")).setProfile(true).get();
+        assertNoFailures(response);
+        assertHitCount(response, 50);
+        assertThat(response.getProfileResults().size(), equalTo(response.getSuccessfulShards()));
+
+        for (ProfileShardResult shardResult : response.getProfileResults().values()) {
+            assertThat(shardResult.getQueryResults().size(), equalTo(1));
+            assertThat(shardResult.getAggregationResults().size(), equalTo(1));
+            ProfileResult aggregation = shardResult.getAggregationResults().get(0);
+            assertThat(aggregation.getDescription(), equalTo("tags"));
+            assertThat(aggregation.getBreakdown().get("build_aggregation_count"), equalTo(1L));
+            assertThat(aggregation.getBreakdown().get("collect_count"), greaterThanOrEqualTo(0L));
+        }
+    }
+}
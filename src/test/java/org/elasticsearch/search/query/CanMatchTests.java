@@ -0,0 +1,123 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.query;
+
+import org.elasticsearch.action.index.IndexRequestBuilder;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.action.search.SearchType;
+import org.elasticsearch.search.aggregations.bucket.global.Global;
+import org.elasticsearch.test.ElasticsearchIntegrationTest;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.elasticsearch.common.settings.ImmutableSettings.settingsBuilder;
+import static org.elasticsearch.index.query.FilterBuilders.rangeFilter;
+import static org.elasticsearch.index.query.QueryBuilders.*;
+import static org.elasticsearch.search.aggregations.AggregationBuilders.global;
+import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertAcked;
+import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertHitCount;
+import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertNoFailures;
+import static org.hamcrest.Matchers.equalTo;
+
+public class CanMatchTests extends ElasticsearchIntegrationTest {
+
+    private int indexTimeBasedIndices(int numIndices) throws Exception {
+        List<IndexRequestBuilder> docs = new ArrayList<>();
+        for (int i = 0; i < numIndices; i++) {
+            assertAcked(prepareCreate("logs-" + i).setSettings(settingsBuilder().put("index.number_of_shards", 1))
+                    .addMapping("type", "timestamp", "type=long", "value", "type=double"));
+            // every index covers its own range of 100 timestamps, like daily indices
+            for (int j = 0; j < 10; j++) {
+                docs.add(client().prepareIndex("logs-" + i, "type").setSource("timestamp", i * 100 + j * 10, "value", i + 0.5));
+            }
+        }
+        ensureGreen();
+        indexRandom(true, docs);
+        return docs.size();
+    }
+
+    @Test
+    public void testSkipShards() throws Exception {
+        final int numIndices = between(3, 8);
+        indexTimeBasedIndices(numIndices);
+
+        for (SearchType searchType : new SearchType[] {SearchType.QUERY_THEN_FETCH, SearchType.QUERY_AND_FETCH, SearchType.COUNT}) {
+            SearchResponse response = client().prepareSearch("logs-*").setSearchType(searchType).setPreFilterShardSize(1)
+                    .setQuery(rangeQuery("timestamp").gte(100).lt(200)).get();
+            assertNoFailures(response);
+            assertHitCount(response, 10);
+            assertThat(response.getTotalShards(), equalTo(numIndices));
+            assertThat(response.getSuccessfulShards(), equalTo(numIndices));
+            assertThat(response.getSkippedShards(), equalTo(numIndices - 1));
+
+            // within a bool query, on a double field
+            response = client().prepareSearch("logs-*").setSearchType(searchType).setPreFilterShardSize(1)
+                    .setQuery(boolQuery().must(matchAllQuery()).must(rangeQuery("value").gt(1).lt(2))).get();
+            assertNoFailures(response);
+            assertHitCount(response, 10);
+            assertThat(response.getSkippedShards(), equalTo(numIndices - 1));
+
+            // optional clauses only
+            response = client().prepareSearch("logs-*").setSearchType(searchType).setPreFilterShardSize(1)
+                    .setQuery(boolQuery().should(rangeQuery("timestamp").gte(0).lt(100)).should(rangeQuery("timestamp").gte(200).lt(300))).get();
+            assertNoFailures(response);
+            assertHitCount(response, 20);
+            assertThat(response.getSkippedShards(), equalTo(numIndices - 2));
+
+            // nothing matches, a single shard is still searched
+            response = client().prepareSearch("logs-*").setSearchType(searchType).setPreFilterShardSize(1)
+                    .setQuery(filteredQuery(matchAllQuery(), rangeFilter("timestamp").gt(10000))).get();
+            assertNoFailures(response);
+            assertHitCount(response, 0);
+            assertThat(response.getSuccessfulShards(), equalTo(numIndices));
+            assertThat(response.getSkippedShards(), equalTo(numIndices - 1));
+        }
+    }
+
+    @Test
+    public void testNoSkipping() throws Exception {
+        final int numIndices = between(3, 8);
+        final int numDocs = indexTimeBasedIndices(numIndices);
+
+        // below the threshold
+        SearchResponse response = client().prepareSearch("logs-*").setQuery(rangeQuery("timestamp").gte(100).lt(200)).get();
+        assertNoFailures(response);
+        assertHitCount(response, 10);
+        assertThat(response.getSkippedShards(), equalTo(0));
+
+        // an optional clause that isn't a range can match any shard
+        response = client().prepareSearch("logs-*").setPreFilterShardSize(1)
+                .setQuery(boolQuery().should(rangeQuery("timestamp").gte(100).lt(200)).should(termQuery("value", 0.5))).get();
+        assertNoFailures(response);
+        assertHitCount(response, 20);
+        assertThat(response.getSkippedShards(), equalTo(0));
+
+        // global aggregations need all shards
+        response = client().prepareSearch("logs-*").setSearchType(SearchType.COUNT).setPreFilterShardSize(1)
+                .setQuery(rangeQuery("timestamp").gte(100).lt(200)).addAggregation(global("global")).get();
+        assertNoFailures(response);
+        assertHitCount(response, 10);
+        assertThat(response.getSkippedShards(), equalTo(0));
+        Global global = response.getAggregations().get("global");
+        assertThat(global.getDocCount(), equalTo((long) numDocs));
+    }
+}
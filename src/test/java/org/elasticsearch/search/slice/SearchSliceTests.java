@@ -0,0 +1,125 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.slice;
+
+import org.elasticsearch.action.index.IndexRequestBuilder;
+import org.elasticsearch.action.search.SearchPhaseExecutionException;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.action.search.SearchType;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.search.SearchHit;
+import org.elasticsearch.test.ElasticsearchIntegrationTest;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.elasticsearch.common.settings.ImmutableSettings.settingsBuilder;
+import static org.elasticsearch.index.query.QueryBuilders.matchAllQuery;
+import static org.elasticsearch.index.query.QueryBuilders.rangeQuery;
+import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertAcked;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.lessThan;
+
+public class SearchSliceTests extends ElasticsearchIntegrationTest {
+
+    private int setupIndex(int numShards) throws Exception {
+        assertAcked(prepareCreate("test").setSettings(settingsBuilder().put("index.number_of_shards", numShards))
+                .addMapping("type", "value", "type=long"));
+        ensureGreen();
+        List<IndexRequestBuilder> docs = new ArrayList<>();
+        final int numDocs = scaledRandomIntBetween(100, 1000);
+        for (int i = 0; i < numDocs; i++) {
+            docs.add(client().prepareIndex("test", "type", Integer.toString(i)).setSource("value", i));
+        }
+        indexRandom(true, docs);
+        return numDocs;
+    }
+
+    @Test
+    public void testSlicesCoverAllDocs() throws Exception {
+        final int numShards = between(1, 5);
+        final int numDocs = setupIndex(numShards);
+
+        // fewer, as many and more slices than shards
+        for (int max : new int[] {2, numShards + 1, numShards * between(2, 4) + between(0, 3)}) {
+            for (SearchType searchType : new SearchType[] {SearchType.SCAN, SearchType.QUERY_THEN_FETCH}) {
+                Set<String> ids = new HashSet<>();
+                for (int id = 0; id < max; id++) {
+                    for (String docId : scrollSlice(searchType, new SliceBuilder(id, max), between(5, 50))) {
+                        assertThat("doc [" + docId + "] returned by several slices", ids.add(docId), equalTo(true));
+                    }
+                }
+                assertThat(ids.size(), equalTo(numDocs));
+            }
+        }
+    }
+
+    @Test
+    public void testSliceWithQuery() throws Exception {
+        final int numDocs = setupIndex(between(1, 3));
+        final int max = between(2, 10);
+        final int limit = numDocs / 2;
+        long totalHits = 0;
+        for (int id = 0; id < max; id++) {
+            SearchResponse response = client().prepareSearch("test").setScroll(TimeValue.timeValueMinutes(1))
+                    .setQuery(rangeQuery("value").lt(limit)).setSlice(new SliceBuilder(id, max)).setSize(numDocs).get();
+            for (SearchHit hit : response.getHits()) {
+                assertThat(((Number) hit.getSource().get("value")).intValue(), lessThan(limit));
+            }
+            totalHits += response.getHits().getTotalHits();
+            client().prepareClearScroll().addScrollId(response.getScrollId()).get();
+        }
+        assertThat(totalHits, equalTo((long) limit));
+    }
+
+    @Test
+    public void testSliceRequiresScroll() throws Exception {
+        setupIndex(1);
+        try {
+            client().prepareSearch("test").setQuery(matchAllQuery()).setSlice(new SliceBuilder(0, 2)).get();
+            fail("slicing a search that isn't scrolled should fail");
+        } catch (SearchPhaseExecutionException e) {
+            assertThat(e.toString(), e.toString().contains("[slice] can only be used with a scroll"), equalTo(true));
+        }
+    }
+
+    private List<String> scrollSlice(SearchType searchType, SliceBuilder slice, int size) {
+        List<String> ids = new ArrayList<>();
+        SearchResponse response = client().prepareSearch("test").setSearchType(searchType).setQuery(matchAllQuery())
+                .setScroll(TimeValue.timeValueMinutes(1)).setSlice(slice).setSize(size).get();
+        assertThat(response.getFailedShards(), equalTo(0));
+        // a scan returns no hits until the first scroll request
+        while (true) {
+            for (SearchHit hit : response.getHits()) {
+                ids.add(hit.getId());
+            }
+            response = client().prepareSearchScroll(response.getScrollId()).setScroll(TimeValue.timeValueMinutes(1)).get();
+            assertThat(response.getFailedShards(), equalTo(0));
+            if (response.getHits().hits().length == 0) {
+                break;
+            }
+        }
+        client().prepareClearScroll().addScrollId(response.getScrollId()).get();
+        return ids;
+    }
+}
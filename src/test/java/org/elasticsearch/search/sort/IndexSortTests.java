@@ -0,0 +1,168 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.elasticsearch.search.sort;
+
+import org.elasticsearch.ElasticsearchIllegalArgumentException;
+import org.elasticsearch.ExceptionsHelper;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.index.mapper.MapperParsingException;
+import org.elasticsearch.index.merge.policy.IndexSort;
+import org.elasticsearch.test.ElasticsearchIntegrationTest;
+import org.elasticsearch.test.engine.MockInternalEngine;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.elasticsearch.common.settings.ImmutableSettings.settingsBuilder;
+import static org.elasticsearch.search.aggregations.AggregationBuilders.sum;
+import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertAcked;
+import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertHitCount;
+import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertNoFailures;
+import static org.hamcrest.Matchers.*;
+
+public class IndexSortTests extends ElasticsearchIntegrationTest {
+
+    @Test
+    public void testEarlyTermination() throws Exception {
+        assertAcked(prepareCreate("test").setSettings(settingsBuilder()
+                .put("index.number_of_shards", 1)
+                .put("index.number_of_replicas", 0)
+                .put(IndexSort.INDEX_SORT_FIELD, "timestamp")
+                .put(MockInternalEngine.WRAP_READER_RATIO, 0.0d))
+                .addMapping("type", "timestamp", "type=long"));
+        ensureGreen();
+
+        final int numDocs = scaledRandomIntBetween(100, 1000);
+        List<Integer> timestamps = new ArrayList<>();
+        for (int i = 0; i < numDocs; i++) {
+            timestamps.add(i);
+        }
+        Collections.shuffle(timestamps, getRandom());
+        // index in two segments, so that the optimize merges them into a sorted one
+        for (int i = 0; i < numDocs; i++) {
+            client().prepareIndex("test", "type", Integer.toString(i)).setSource("timestamp", timestamps.get(i)).get();
+            if (i == numDocs / 2) {
+                refresh();
+            }
+        }
+        refresh();
+        client().admin().indices().prepareOptimize("test").setFlush(true).setMaxNumSegments(1).get();
+        refresh();
+
+        final int size = between(1, 20);
+        SearchResponse response = client().prepareSearch("test").setSize(size).addSort("timestamp", SortOrder.ASC).get();
+        assertNoFailures(response);
+        assertThat(response.isTerminatedEarly(), equalTo(Boolean.TRUE));
+        assertThat(response.getHits().getTotalHits(), lessThan((long) numDocs));
+        assertThat(response.getHits().hits().length, equalTo(size));
+        for (int i = 0; i < size; i++) {
+            assertThat(((Number) response.getHits().getAt(i).sortValues()[0]).longValue(), equalTo((long) i));
+        }
+
+        // sorted in the other order
+        response = client().prepareSearch("test").setSize(size).addSort("timestamp", SortOrder.DESC).get();
+        assertNoFailures(response);
+        assertThat(response.isTerminatedEarly(), nullValue());
+        assertHitCount(response, numDocs);
+        assertThat(((Number) response.getHits().getAt(0).sortValues()[0]).longValue(), equalTo((long) numDocs - 1));
+
+        // documents without a value sorted first
+        response = client().prepareSearch("test").setSize(size)
+                .addSort(SortBuilders.fieldSort("timestamp").order(SortOrder.ASC).missing("_first")).get();
+        assertNoFailures(response);
+        assertThat(response.isTerminatedEarly(), nullValue());
+        assertHitCount(response, numDocs);
+
+        // a sort mode that isn't the default one of the order
+        response = client().prepareSearch("test").setSize(size)
+                .addSort(SortBuilders.fieldSort("timestamp").order(SortOrder.ASC).sortMode("max")).get();
+        assertNoFailures(response);
+        assertThat(response.isTerminatedEarly(), nullValue());
+        assertHitCount(response, numDocs);
+
+        // aggregations need all the documents
+        response = client().prepareSearch("test").setSize(size).addSort("timestamp", SortOrder.ASC)
+                .addAggregation(sum("sum").field("timestamp")).get();
+        assertNoFailures(response);
+        assertThat(response.isTerminatedEarly(), nullValue());
+        assertHitCount(response, numDocs);
+    }
+
+    @Test
+    public void testInvalidIndexSort() throws Exception {
+        try {
+            prepareCreate("test").setSettings(settingsBuilder()
+                    .put(IndexSort.INDEX_SORT_FIELD, "timestamp")
+                    .put(IndexSort.INDEX_SORT_ORDER, "up")).get();
+            fail("index sort order [up] should have been rejected");
+        } catch (Exception e) {
+            assertThat(ExceptionsHelper.unwrapCause(e), instanceOf(ElasticsearchIllegalArgumentException.class));
+        }
+        assertThat(client().admin().indices().prepareExists("test").get().isExists(), equalTo(false));
+    }
+
+    @Test
+    public void testSortFieldWithDocValues() throws Exception {
+        try {
+            prepareCreate("test").setSettings(settingsBuilder().put(IndexSort.INDEX_SORT_FIELD, "timestamp"))
+                    .addMapping("type", "timestamp", "type=long,doc_values=true").get();
+            fail("doc values on the index sort field should have been rejected");
+        } catch (Exception e) {
+            assertThat(ExceptionsHelper.unwrapCause(e), instanceOf(MapperParsingException.class));
+            assertThat(ExceptionsHelper.detailedMessage(e), containsString("can't have doc values"));
+        }
+        assertThat(client().admin().indices().prepareExists("test").get().isExists(), equalTo(false));
+
+        assertAcked(prepareCreate("test").setSettings(settingsBuilder().put(IndexSort.INDEX_SORT_FIELD, "timestamp")));
+        try {
+            client().admin().indices().preparePutMapping("test").setType("type")
+                    .setSource("timestamp", "type=long,doc_values=true").get();
+            fail("doc values on the index sort field should have been rejected");
+        } catch (Exception e) {
+            assertThat(ExceptionsHelper.unwrapCause(e), instanceOf(MapperParsingException.class));
+            assertThat(ExceptionsHelper.detailedMessage(e), containsString("can't have doc values"));
+        }
+    }
+
+    @Test
+    public void testMultiValuedSortField() throws Exception {
+        assertAcked(prepareCreate("test").setSettings(settingsBuilder().put(IndexSort.INDEX_SORT_FIELD, "timestamp"))
+                .addMapping("type", "timestamp", "type=long"));
+        client().prepareIndex("test", "type", "1").setSource("timestamp", 1).get();
+        try {
+            client().prepareIndex("test", "type", "2").setSource("timestamp", new long[] {1, 2}).get();
+            fail("several values for the index sort field should have been rejected");
+        } catch (Exception e) {
+            assertThat(ExceptionsHelper.unwrapCause(e), instanceOf(MapperParsingException.class));
+            assertThat(ExceptionsHelper.detailedMessage(e), containsString("can't have more than one value"));
+        }
+        // dynamically mapped too, the random index template might give the field doc values
+        try {
+            client().prepareIndex("test", "other_type", "3").setSource("timestamp", new long[] {1, 2}).get();
+            fail("several values for the index sort field should have been rejected");
+        } catch (Exception e) {
+            assertThat(ExceptionsHelper.unwrapCause(e), instanceOf(MapperParsingException.class));
+            assertThat(ExceptionsHelper.detailedMessage(e), containsString("The index is sorted by [timestamp]"));
+        }
+    }
+}
@@ -0,0 +1,193 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.task;
+
+import org.elasticsearch.action.ActionRequestValidationException;
+import org.elasticsearch.action.admin.cluster.node.tasks.SearchTasksResponse;
+import org.elasticsearch.action.index.IndexRequestBuilder;
+import org.elasticsearch.action.search.SearchAction;
+import org.elasticsearch.action.search.SearchPhaseExecutionException;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.action.search.ShardSearchFailure;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.search.SearchService;
+import org.elasticsearch.test.ElasticsearchIntegrationTest;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.elasticsearch.common.settings.ImmutableSettings.settingsBuilder;
+import static org.elasticsearch.index.query.QueryBuilders.matchAllQuery;
+import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertAcked;
+import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertNoFailures;
+import static org.hamcrest.Matchers.*;
+
+public class SearchTaskTests extends ElasticsearchIntegrationTest {
+
+    @Test
+    public void testListShardSearches() throws Exception {
+        final int numShards = between(1, 5);
+        assertAcked(prepareCreate("test").setSettings(settingsBuilder().put("index.number_of_shards", numShards).put("index.number_of_replicas", 0)));
+        ensureGreen();
+        List<IndexRequestBuilder> docs = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            docs.add(client().prepareIndex("test", "type", Integer.toString(i)).setSource("field", i));
+        }
+        indexRandom(true, docs);
+
+        SearchResponse response = client().prepareSearch("test").setQuery(matchAllQuery()).setSize(2)
+                .setScroll(TimeValue.timeValueMinutes(1)).get();
+        assertNoFailures(response);
+
+        // the search task is done, the contexts of the scroll are left on the shards
+        SearchTasksResponse tasks = client().admin().cluster().prepareListSearchTasks().get();
+        List<SearchTaskInfo> shardSearches = new ArrayList<>();
+        for (SearchTaskInfo task : tasks.getTasks()) {
+            assertThat(task.getAction(), not(equalTo(SearchAction.NAME)));
+            if (task.getAction().equals(SearchService.SHARD_SEARCH_ACTION)) {
+                shardSearches.add(task);
+            }
+        }
+        assertThat(shardSearches.size(), equalTo(numShards));
+        final String parentTask = shardSearches.get(0).getParentTask();
+        assertThat(parentTask, notNullValue());
+        for (SearchTaskInfo shardSearch : shardSearches) {
+            assertThat(shardSearch.getParentTask(), equalTo(parentTask));
+            assertThat(shardSearch.isCancelled(), equalTo(false));
+        }
+
+        tasks = client().admin().cluster().prepareListSearchTasks().setShards(false).get();
+        assertThat(tasks.getTasks().size(), equalTo(0));
+
+        // cancelling the searches of the task frees the idle scroll contexts
+        int cancelled = 0;
+        for (SearchService searchService : cluster().getInstances(SearchService.class)) {
+            cancelled += searchService.cancelSearches(parentTask);
+        }
+        assertThat(cancelled, equalTo(numShards));
+        tasks = client().admin().cluster().prepareListSearchTasks().get();
+        assertThat(tasks.getTasks().size(), equalTo(0));
+
+        try {
+            response = client().prepareSearchScroll(response.getScrollId()).setScroll(TimeValue.timeValueMinutes(1)).get();
+            assertThat(response.getFailedShards(), equalTo(numShards));
+        } catch (SearchPhaseExecutionException e) {
+            // all shards failed
+        }
+    }
+
+    @Test
+    public void testCancelWhileScrolling() throws Exception {
+        final int numShards = between(1, 5);
+        assertAcked(prepareCreate("test").setSettings(settingsBuilder().put("index.number_of_shards", numShards).put("index.number_of_replicas", 0)));
+        ensureGreen();
+        List<IndexRequestBuilder> docs = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            docs.add(client().prepareIndex("test", "type", Integer.toString(i)).setSource("field", i));
+        }
+        indexRandom(true, docs);
+
+        final SearchResponse first = client().prepareSearch("test").setQuery(matchAllQuery()).setSize(1)
+                .setScroll(TimeValue.timeValueMinutes(1)).get();
+        assertNoFailures(first);
+
+        final List<ShardSearchFailure> failures = new CopyOnWriteArrayList<>();
+        final AtomicReference<Throwable> error = new AtomicReference<>();
+        Thread scroller = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    SearchResponse response = first;
+                    while (response.getHits().hits().length > 0) {
+                        response = client().prepareSearchScroll(response.getScrollId()).setScroll(TimeValue.timeValueMinutes(1)).get();
+                        failures.addAll(Arrays.asList(response.getShardFailures()));
+                    }
+                } catch (SearchPhaseExecutionException e) {
+                    // all shards were cancelled
+                    failures.addAll(Arrays.asList(e.shardFailures()));
+                } catch (Throwable t) {
+                    error.set(t);
+                }
+            }
+        };
+        scroller.start();
+
+        // cancel the contexts while the scroll moves them between phases, they must never be freed under a phase
+        while (scroller.isAlive()) {
+            for (SearchService searchService : cluster().getInstances(SearchService.class)) {
+                for (SearchTaskInfo task : searchService.shardSearchTasks()) {
+                    if (randomBoolean()) {
+                        searchService.cancelSearches(task.getParentTask());
+                    }
+                }
+            }
+        }
+        scroller.join();
+        assertThat(error.get(), nullValue());
+        for (ShardSearchFailure failure : failures) {
+            assertThat(failure.reason(), anyOf(containsString("SearchCancelledException"), containsString("SearchContextMissingException")));
+        }
+
+        // contexts that were cancelled while processing were freed by their phase, the others are freed now
+        for (SearchService searchService : cluster().getInstances(SearchService.class)) {
+            for (SearchTaskInfo task : searchService.shardSearchTasks()) {
+                assertThat(task.getParentTask(), notNullValue());
+                searchService.cancelSearches(task.getParentTask());
+            }
+        }
+        SearchTasksResponse tasks = client().admin().cluster().prepareListSearchTasks().get();
+        assertThat(tasks.getTasks().size(), equalTo(0));
+    }
+
+    @Test
+    public void testCancelSearchTask() throws Exception {
+        SearchTaskManager taskManager = cluster().getInstance(SearchTaskManager.class);
+        SearchTask task = taskManager.register(SearchAction.NAME, "indices[test]");
+        try {
+            SearchTasksResponse tasks = client().admin().cluster().prepareListSearchTasks().setShards(false).get();
+            assertThat(tasks.getTasks().size(), equalTo(1));
+            assertThat(tasks.getTasks().get(0).getFullId(), equalTo(task.fullId()));
+            assertThat(tasks.getTasks().get(0).getDescription(), equalTo("indices[test]"));
+
+            tasks = client().admin().cluster().prepareCancelSearchTask(task.fullId()).get();
+            assertThat(tasks.getTasks().size(), equalTo(1));
+            assertThat(tasks.getTasks().get(0).getFullId(), equalTo(task.fullId()));
+            assertThat(tasks.getTasks().get(0).isCancelled(), equalTo(true));
+            assertThat(task.isCancelled(), equalTo(true));
+        } finally {
+            taskManager.unregister(task);
+        }
+
+        // the task is done
+        SearchTasksResponse tasks = client().admin().cluster().prepareCancelSearchTask(task.fullId()).get();
+        assertThat(tasks.getTasks().size(), equalTo(0));
+
+        try {
+            client().admin().cluster().prepareCancelSearchTask("no_id").get();
+            fail("expected a validation failure");
+        } catch (ActionRequestValidationException e) {
+            assertThat(e.getMessage(), containsString("malformed search task id [no_id]"));
+        }
+    }
+}
@@ -26,6 +26,7 @@ import org.elasticsearch.action.admin.cluster.node.stats.NodesStatsResponse;
 import org.elasticsearch.action.admin.cluster.state.ClusterStateResponse;
 import org.elasticsearch.client.Client;
 import org.elasticsearch.cluster.metadata.IndexMetaData;
+import org.elasticsearch.common.breaker.MemoryCircuitBreaker;
 import org.elasticsearch.common.logging.ESLogger;
 import org.elasticsearch.common.logging.Loggers;
 import org.elasticsearch.indices.IndexMissingException;
@@ -181,7 +182,7 @@ public abstract class ImmutableTestCluster implements Iterable<Client> {
     /**
      * Ensures that the breaker statistics are reset to 0 since we wiped all indices and that
      * means all stats should be set to 0 otherwise something is wrong with the field data
-     * calculation.
+     * calculation or some request didn't release its arrays.
      */
     public void ensureEstimatedStats() {
         if (size() > 0) {
@@ -189,7 +190,9 @@ public abstract class ImmutableTestCluster implements Iterable<Client> {
                     .clear().setBreaker(true).execute().actionGet();
             for (NodeStats stats : nodeStats.getNodes()) {
                 assertThat("Breaker not reset to 0 on node: " + stats.getNode(),
-                        stats.getBreaker().getEstimated(), equalTo(0L));
+                        stats.getBreaker().getStats(MemoryCircuitBreaker.FIELDDATA).getEstimated(), equalTo(0L));
+                assertThat("Request breaker not reset to 0 on node: " + stats.getNode(),
+                        stats.getBreaker().getStats(MemoryCircuitBreaker.REQUEST).getEstimated(), equalTo(0L));
             }
         }
     }
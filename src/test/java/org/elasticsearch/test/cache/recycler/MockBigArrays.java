@@ -26,9 +26,11 @@ import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 import org.apache.lucene.util.BytesRef;
 import org.elasticsearch.cache.recycler.PageCacheRecycler;
+import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.inject.Inject;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.util.*;
+import org.elasticsearch.indices.fielddata.breaker.CircuitBreakerService;
 import org.elasticsearch.test.ElasticsearchTestCase;
 
 import java.util.Map;
@@ -79,9 +81,13 @@ public class MockBigArrays extends BigArrays {
 
     private final Random random;
 
-    @Inject
     public MockBigArrays(Settings settings, PageCacheRecycler recycler) {
-        super(settings, recycler);
+        this(settings, recycler, null);
+    }
+
+    @Inject
+    public MockBigArrays(Settings settings, PageCacheRecycler recycler, @Nullable CircuitBreakerService breakerService) {
+        super(settings, recycler, breakerService);
         long seed;
         try {
             seed = SeedUtils.parseSeed(RandomizedContext.current().getRunnerSeedAsString());
@@ -92,6 +98,16 @@ public class MockBigArrays extends BigArrays {
         INSTANCE = this;
     }
 
+    private MockBigArrays(MockBigArrays bigArrays) {
+        super(bigArrays);
+        this.random = bigArrays.random;
+    }
+
+    @Override
+    public BigArrays withCircuitBreaking() {
+        return new MockBigArrays(this);
+    }
+
     @Override
     public ByteArray newByteArray(long size, boolean clearOnResize) {
         final ByteArrayWrapper array = new ByteArrayWrapper(super.newByteArray(size, clearOnResize), clearOnResize);